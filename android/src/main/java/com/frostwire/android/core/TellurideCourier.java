@@ -141,7 +141,7 @@ public final class TellurideCourier {
             gson = new GsonBuilder().create();
         }
 
-        List<TellurideSearchResult> validResults = TellurideSearchPerformer.getValidResults(json_query_video_result, gson, null, -1, url);
+        List<TellurideSearchResult> validResults = TellurideSearchPerformer.getValidResults(json_query_video_result, gson, null, -1, url, true);
         LOG.info("TellurideCourier::queryPage: TellurideSearchPerformer.getValidResults() -> " + validResults.size());
 
         if (callback != null && !callback.aborted()) {
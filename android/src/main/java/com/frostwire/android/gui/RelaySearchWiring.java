@@ -18,6 +18,7 @@
 
 package com.frostwire.android.gui;
 
+import com.frostwire.search.relay.CatalogSummaryFetcher;
 import com.frostwire.search.relay.DistributedSearchTransport;
 import com.frostwire.search.relay.IdentityKeys;
 import com.frostwire.search.relay.LocalIndex;
@@ -26,8 +27,8 @@ import com.frostwire.search.relay.PeerKarmaCache;
 
 /**
  * Holds the relay-stack wiring dependencies (localIndex, karmaCache,
- * peerDirectory, identity, searchTransport) needed by the LOCAL and
- * DISTRIBUTED search engines.
+ * peerDirectory, identity, searchTransport, catalogSummaries) needed by
+ * the LOCAL and DISTRIBUTED search engines.
  *
  * <p>Composed into only those two engines — the 14 web-scraping engines
  * carry zero overhead. All fields are volatile for cross-thread visibility
@@ -40,6 +41,7 @@ public final class RelaySearchWiring {
     private volatile PeerDirectory peerDirectory;
     private volatile IdentityKeys identity;
     private volatile DistributedSearchTransport searchTransport;
+    private volatile CatalogSummaryFetcher catalogSummaries;
 
     public LocalIndex localIndex() {
         return localIndex;
@@ -85,4 +87,13 @@ public final class RelaySearchWiring {
         this.searchTransport = searchTransport;
         return this;
     }
+
+    public CatalogSummaryFetcher catalogSummaries() {
+        return catalogSummaries;
+    }
+
+    public RelaySearchWiring catalogSummaries(CatalogSummaryFetcher catalogSummaries) {
+        this.catalogSummaries = catalogSummaries;
+        return this;
+    }
 }
@@ -424,13 +424,17 @@ public abstract class SearchEngine {
             if (!isReady()) {
                 return null;
             }
-            return new DistributedSearchPerformer(
+            DistributedSearchPerformer performer = new DistributedSearchPerformer(
                     token,
                     keywords,
                     DISTRIBUTED_WIRING.localIndex(),
                     DISTRIBUTED_WIRING.peerDirectory(),
                     DISTRIBUTED_WIRING.identity(),
-                    DISTRIBUTED_WIRING.searchTransport());
+                    DISTRIBUTED_WIRING.searchTransport(),
+                    DISTRIBUTED_WIRING.catalogSummaries());
+            // show peer rows as their signed chunks arrive
+            performer.setStreamResults(true);
+            return performer;
         }
 
         @Override
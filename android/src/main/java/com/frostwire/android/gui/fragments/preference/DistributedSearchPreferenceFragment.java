@@ -42,6 +42,7 @@ import com.frostwire.bittorrent.BTEngine;
 import com.frostwire.platform.Platforms;
 import com.frostwire.search.relay.IdentityKeys;
 import com.frostwire.search.relay.IdentityLifecycle;
+import com.frostwire.search.relay.IdentityMiner;
 import com.frostwire.search.relay.KarmaConstants;
 import com.frostwire.search.relay.PeerDirectory;
 import com.frostwire.search.relay.PeerKarmaCache;
@@ -61,6 +62,7 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CancellationException;
 
 /**
  * Android UI for identity lifecycle. Business logic is
@@ -478,12 +480,16 @@ public final class DistributedSearchPreferenceFragment extends AbstractPreferenc
         // Progress text must set expectations: difficulty-20 PoW is ~1M Ed25519
         // attempts (tens of seconds on phones). Dialog is dismissed as soon as
         // keys are written — stack restart must not hold the spinner forever.
+        // Back cancels mining; the current identity (if any) is kept.
+        IdentityMiner miner = new IdentityMiner();
+        String initializing = getString(R.string.distributed_identity_initializing);
         ProgressDialog progress = ProgressDialog.show(
                 requireContext(),
                 getString(R.string.distributed_identity_initialize),
-                getString(R.string.distributed_identity_initializing),
+                initializing,
                 true,
-                false);
+                true,
+                dialog -> miner.cancel());
 
         // HIGH_PRIORITY: dedicated thread — never queue behind MISC (IceBridge
         // start/stop, peer discovery glue, etc.).
@@ -498,7 +504,11 @@ public final class DistributedSearchPreferenceFragment extends AbstractPreferenc
                         + " path=" + file.getAbsolutePath());
                 long t0 = System.currentTimeMillis();
                 IdentityKeys keys = IdentityLifecycle.generateAndInstall(
-                        file, KarmaConstants.IDENTITY_DIFFICULTY);
+                        file, KarmaConstants.IDENTITY_DIFFICULTY, miner,
+                        p -> SystemUtils.postToUIThread(() -> progress.setMessage(
+                                initializing + "\n\n" + progress.getContext().getString(
+                                        R.string.distributed_identity_mining_rate,
+                                        p.attempts(), Math.round(p.hashesPerSecond()), p.threads()))));
                 SearchEngine.DISTRIBUTED_WIRING.identity(keys);
                 LOG.info("Identity generate: installed in "
                         + (System.currentTimeMillis() - t0) + " ms nodeId="
@@ -517,6 +527,13 @@ public final class DistributedSearchPreferenceFragment extends AbstractPreferenc
                 // Reload IceBridge with the new identity file (best-effort),
                 // then refresh karma / peers / stack status.
                 restartRelayStack(this::refreshAll);
+            } catch (CancellationException e) {
+                LOG.info("Identity generate: cancelled by user");
+                SystemUtils.postToUIThread(() -> {
+                    dismiss(progress);
+                    busy = false;
+                    toast(R.string.distributed_identity_mining_cancelled);
+                });
             } catch (Throwable t) {
                 LOG.error("Failed to generate identity", t);
                 SystemUtils.postToUIThread(() -> {
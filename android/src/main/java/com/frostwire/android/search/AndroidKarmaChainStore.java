@@ -39,7 +39,8 @@ import java.util.List;
  * Android SQLite implementation of {@link KarmaChainStore}.
  *
  * <p>Stores the local node's karma chain entries in a {@code karma_chain}
- * table. Uses the same schema as the desktop {@code KarmaChainTable} so
+ * table, and the last verified position of every chain it has checked
+ * (ours and remote peers') in {@code karma_checkpoint}. Uses the same schema as the desktop {@code KarmaChainTable} so
  * databases are compatible if copied between platforms.
  *
  * <p>The database file is shared with {@link AndroidLocalIndex} (WAL mode
@@ -56,6 +57,7 @@ public final class AndroidKarmaChainStore implements KarmaChainStore {
 
     static final String CHAIN_TABLE = "karma_chain";
     static final String PEER_TABLE = "peer_karma";
+    static final String CHECKPOINT_TABLE = "karma_checkpoint";
 
     private static final String CREATE_CHAIN_TABLE_SQL =
             "CREATE TABLE IF NOT EXISTS " + CHAIN_TABLE + " (" +
@@ -81,6 +83,18 @@ public final class AndroidKarmaChainStore implements KarmaChainStore {
                     "endorsement_count INTEGER NOT NULL DEFAULT 0, " +
                     "last_endorsed_at INTEGER NOT NULL DEFAULT 0)";
 
+    private static final String CREATE_CHECKPOINT_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS " + CHECKPOINT_TABLE + " (" +
+                    "owner_pub TEXT PRIMARY KEY, " +
+                    "seq INTEGER NOT NULL, " +
+                    "entry_hash TEXT NOT NULL, " +
+                    "block_height INTEGER NOT NULL, " +
+                    "last_epoch INTEGER NOT NULL, " +
+                    "commitment_epoch INTEGER NOT NULL, " +
+                    "endorsements INTEGER NOT NULL, " +
+                    "energy REAL NOT NULL, " +
+                    "verified_at INTEGER NOT NULL)";
+
     private static final String CREATE_INDEX_EPOCH_SQL =
             "CREATE INDEX IF NOT EXISTS idx_" + CHAIN_TABLE + "_epoch ON " +
                     CHAIN_TABLE + " (epoch)";
@@ -117,6 +131,7 @@ public final class AndroidKarmaChainStore implements KarmaChainStore {
     private void initializeSchema() {
         db.execSQL(CREATE_CHAIN_TABLE_SQL);
         db.execSQL(CREATE_PEER_TABLE_SQL);
+        db.execSQL(CREATE_CHECKPOINT_TABLE_SQL);
         db.execSQL(CREATE_INDEX_EPOCH_SQL);
         db.execSQL(CREATE_INDEX_BLOCK_SQL);
         db.execSQL(CREATE_INDEX_SCORE_SQL);
@@ -243,7 +258,7 @@ public final class AndroidKarmaChainStore implements KarmaChainStore {
         if (loaded.isEmpty()) {
             return new KarmaChain(ownerPub);
         }
-        KarmaChain chain = KarmaChain.load(ownerPub, loaded);
+        KarmaChain chain = KarmaChain.load(ownerPub, loaded, this);
         if (chain == null) {
             LOG.warn("Persisted karma chain failed verification; starting fresh");
             return new KarmaChain(ownerPub);
@@ -251,6 +266,56 @@ public final class AndroidKarmaChainStore implements KarmaChainStore {
         return chain;
     }
 
+    @Override
+    public KarmaChain.Checkpoint loadCheckpoint(byte[] ownerPub) {
+        if (ownerPub == null || ownerPub.length != 32) {
+            return null;
+        }
+        ensureOpen();
+        String ownerB64 = Base64.getEncoder().withoutPadding().encodeToString(ownerPub);
+        synchronized (db) {
+            try (Cursor c = db.query(CHECKPOINT_TABLE,
+                    new String[]{"seq", "entry_hash", "block_height", "last_epoch",
+                            "commitment_epoch", "endorsements", "energy"},
+                    "owner_pub = ?", new String[]{ownerB64}, null, null, null, "1")) {
+                if (c.moveToFirst()) {
+                    return new KarmaChain.Checkpoint(ownerPub,
+                            c.getLong(0), Hex.decode(c.getString(1)), c.getLong(2),
+                            c.getLong(3), c.getLong(4), c.getInt(5), c.getDouble(6));
+                }
+            } catch (Throwable t) {
+                LOG.warn("Failed to read karma checkpoint", t);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void saveCheckpoint(KarmaChain.Checkpoint checkpoint) {
+        if (checkpoint == null) {
+            throw new IllegalArgumentException("checkpoint is null");
+        }
+        ensureOpen();
+        ContentValues cv = new ContentValues(9);
+        cv.put("owner_pub", Base64.getEncoder().withoutPadding()
+                .encodeToString(checkpoint.ownerPub()));
+        cv.put("seq", checkpoint.seq());
+        cv.put("entry_hash", Hex.encode(checkpoint.entryHash()));
+        cv.put("block_height", checkpoint.blockHeight());
+        cv.put("last_epoch", checkpoint.lastEpoch());
+        cv.put("commitment_epoch", checkpoint.commitmentEpoch());
+        cv.put("endorsements", checkpoint.endorsementsInEpoch());
+        cv.put("energy", checkpoint.energy());
+        cv.put("verified_at", System.currentTimeMillis());
+        synchronized (db) {
+            try {
+                db.replace(CHECKPOINT_TABLE, null, cv);
+            } catch (Throwable t) {
+                LOG.warn("Failed to save karma checkpoint", t);
+            }
+        }
+    }
+
     public boolean isOpen() {
         return open;
     }
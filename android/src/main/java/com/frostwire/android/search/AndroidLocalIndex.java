@@ -24,6 +24,7 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import com.frostwire.search.relay.KeywordBloomFilter;
 import com.frostwire.search.relay.LocalIndex;
 import com.frostwire.search.relay.LocalSharedTorrent;
 import com.frostwire.util.Hex;
@@ -385,6 +386,12 @@ public final class AndroidLocalIndex implements LocalIndex, AutoCloseable {
         }
     }
 
+    /** Without FTS5, {@link #search} matches substrings (LIKE), which a keyword summary can't describe. */
+    @Override
+    public boolean matchesWholeTokens() {
+        return fts5Available;
+    }
+
     @Override
     public int size() {
         ensureOpen();
@@ -557,23 +564,11 @@ public final class AndroidLocalIndex implements LocalIndex, AutoCloseable {
         }
     }
 
+    /** Same tokens as the catalog summary keys, see {@link KeywordBloomFilter#tokens}. */
     private static String sanitizeFtsQuery(String raw) {
-        if (raw == null) return "";
-        String lowered = raw.toLowerCase();
-        StringBuilder clean = new StringBuilder(lowered.length());
-        for (int i = 0; i < lowered.length(); i++) {
-            char ch = lowered.charAt(i);
-            if ((ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9')) {
-                clean.append(ch);
-            } else {
-                clean.append(' ');
-            }
-        }
-        String[] tokens = clean.toString().split("\\s+");
         StringBuilder out = new StringBuilder();
         boolean first = true;
-        for (String tok : tokens) {
-            if (tok.isEmpty()) continue;
+        for (String tok : KeywordBloomFilter.tokens(raw)) {
             if (!first) out.append(' ');
             out.append('"').append(tok).append('"');
             first = false;
@@ -25,6 +25,7 @@ import com.frostwire.android.core.Constants;
 import com.frostwire.android.gui.SearchEngine;
 import com.frostwire.bittorrent.BTEngine;
 import com.frostwire.search.relay.BTEngineListenerChain;
+import com.frostwire.search.relay.CatalogSummaryFetcher;
 import com.frostwire.search.relay.CompositePeerDiscoverySource;
 import com.frostwire.search.relay.DhtAdvertiser;
 import com.frostwire.search.relay.DhtKarmaChainSource;
@@ -216,7 +217,7 @@ public final class AndroidRelayStack implements AutoCloseable {
 
             int meshRudpPort = PeerRegistrySync.ICEBRIDGE_RUDP_PORT;
             PeerKarmaCache karmaCache = new PeerKarmaCache(
-                    new RemoteKarmaChainFetcher(new DhtKarmaChainSource(btEngine)));
+                    new RemoteKarmaChainFetcher(new DhtKarmaChainSource(btEngine), ks));
             pd = new PeerDirectory(karmaCache);
 
             if (useRemote) {
@@ -245,6 +246,9 @@ public final class AndroidRelayStack implements AutoCloseable {
                         .controlHttpPort(controlPort)
                         .role(role)
                         .identityFile(identityFile)
+                        // same compiled format as the desktop's IPFilterStore; the server
+                        // publishes it to IPBlocklist and picks up a replaced file on its own
+                        .ipFilterFile(new File(homeDir, "ip_filter.idx"))
                         .maxPeers(500)
                         .peerTtlSec(180)
                         .maxQpsPerKey(5.0)
@@ -339,7 +343,9 @@ public final class AndroidRelayStack implements AutoCloseable {
                     .localIndex(li)
                     .peerDirectory(pd)
                     .identity(ident)
-                    .searchTransport(tr);
+                    .searchTransport(tr)
+                    .catalogSummaries(new CatalogSummaryFetcher(
+                            new CatalogSummaryFetcher.DhtSummarySource(btEngine)));
             LOG.info("AndroidRelayStack: LOCAL and DISTRIBUTED search engines wired"
                     + " LocalIndex.size=" + li.size()
                     + " remoteIceBridge=" + useRemote
@@ -50,4 +50,19 @@ public final class BTContext {
     public String natpmpGateway = "";
     public int natpmpLeaseDuration = 3600;
     public boolean allowMultipleConnectionsPerPid = false;
+    /**
+     * Restore saved torrents by parsing them on a bounded pool and adding them to the session
+     * in pipelined batches, active downloads first and seeds last. When false, torrents are
+     * restored one after another in directory order.
+     */
+    public boolean parallelRestore = true;
+    /**
+     * Threads used to parse .torrent and resume files when {@link #parallelRestore} is on.
+     */
+    public int restoreThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    /**
+     * Maximum number of restore adds in flight (submitted but not yet confirmed by an
+     * ADD_TORRENT alert) when {@link #parallelRestore} is on.
+     */
+    public int restoreBatchSize = 32;
 }
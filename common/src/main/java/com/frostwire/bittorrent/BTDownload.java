@@ -29,7 +29,6 @@ import com.frostwire.transfers.BittorrentDownload;
 import com.frostwire.transfers.TransferItem;
 import com.frostwire.transfers.TransferState;
 import com.frostwire.util.Logger;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 
 import java.io.File;
@@ -68,6 +67,7 @@ public final class BTDownload implements BittorrentDownload {
     private long lastSaveResumeTime;
     private String predominantFileExtension;
     private volatile boolean removing;
+    private final String statusKey;
     private volatile TorrentStatus cachedStatus;
     private volatile long lastStatusUpdateTime;
     private final AtomicBoolean statusRefreshScheduled = new AtomicBoolean(false);
@@ -76,8 +76,14 @@ public final class BTDownload implements BittorrentDownload {
         this.engine = engine;
         this.th = th;
         this.savePath = new File(th.savePath());
-        // Cache the initial status to avoid blocking JNI call during initialization
-        TorrentStatus initialStatus = th.status();
+        this.statusKey = statusKey(th);
+        // Prefer the status pushed by the engine's update cycle, the same torrent may be wrapped
+        // by several BTDownload instances (see BTEngine.fireDownloadUpdate)
+        TorrentStatus initialStatus = engine.pushedTorrentStatus(statusKey);
+        if (initialStatus == null) {
+            initialStatus = th.status();
+            engine.offerTorrentStatus(statusKey, initialStatus);
+        }
         this.created = new Date(initialStatus.addedTime());
         this.cachedStatus = initialStatus;
         this.lastStatusUpdateTime = System.currentTimeMillis();
@@ -90,6 +96,14 @@ public final class BTDownload implements BittorrentDownload {
         engine.addListener(innerListener);
     }
 
+    private static String statusKey(TorrentHandle th) {
+        try {
+            return th.infoHash().toString();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
     private static boolean isPaused(TorrentStatus s) {
         return s.flags().and_(TorrentFlags.PAUSED).nonZero();
     }
@@ -173,6 +187,7 @@ public final class BTDownload implements BittorrentDownload {
             if (status != null) {
                 cachedStatus = status;
                 lastStatusUpdateTime = System.currentTimeMillis();
+                engine.offerTorrentStatus(statusKey, status);
             }
         }
         if (status == null) {
@@ -295,13 +310,19 @@ public final class BTDownload implements BittorrentDownload {
 
     /**
      * Gets cached status without blocking on EDT.
-     * Returns stale cached data immediately if available, scheduling async refresh if cache is stale.
+     * While the engine's post_torrent_updates cycle is running the status libtorrent last pushed
+     * for this torrent is returned, so readers never talk to libtorrent. Otherwise returns stale
+     * cached data immediately if available, scheduling async refresh if cache is stale.
      * This prevents EDT blocking during rendering by never synchronously calling expensive JNI methods.
      */
     private TorrentStatus getCachedStatus() {
         if (!th.isValid()) {
             return null;
         }
+        TorrentStatus pushed = engine.pushedTorrentStatus(statusKey);
+        if (pushed != null) {
+            return pushed;
+        }
         long now = System.currentTimeMillis();
         long lastUpdate = lastStatusUpdateTime;
 
@@ -326,8 +347,10 @@ public final class BTDownload implements BittorrentDownload {
         com.frostwire.concurrent.concurrent.ThreadExecutor.startThread(() -> {
             try {
                 if (th.isValid()) {
-                    cachedStatus = th.status();
+                    TorrentStatus status = th.status();
+                    cachedStatus = status;
                     lastStatusUpdateTime = System.currentTimeMillis();
+                    engine.offerTorrentStatus(statusKey, status);
                 }
             } catch (Exception e) {
                 LOG.warn("Error refreshing torrent status cache: " + e.getMessage());
@@ -339,11 +362,14 @@ public final class BTDownload implements BittorrentDownload {
 
     /**
      * Invalidates the cached status to force a refresh on next access.
+     * The engine's pushed status is dropped too and a new update cycle is requested right away.
      */
     private void invalidateStatusCache() {
         cachedStatus = null;
         lastStatusUpdateTime = 0;
         statusRefreshScheduled.set(false); // Allow immediate refresh on next access
+        engine.forgetTorrentStatus(statusKey);
+        engine.requestTorrentUpdates();
     }
 
     public int getConnectedPeers() {
@@ -515,8 +541,7 @@ public final class BTDownload implements BittorrentDownload {
             }
         } catch (Throwable ignore) { }
         for (String h : hashesToDelete) {
-            //noinspection ResultOfMethodCallIgnored
-            engine.resumeDataFile(h).delete();
+            engine.removeResumeData(h);
             //noinspection ResultOfMethodCallIgnored
             engine.resumeTorrentFile(h).delete();
         }
@@ -586,6 +611,7 @@ public final class BTDownload implements BittorrentDownload {
 
     private void torrentRemoved() {
         engine.removeListener(innerListener);
+        engine.forgetTorrentStatus(statusKey);
         if (parts != null) {
             //noinspection ResultOfMethodCallIgnored
             parts.delete();
@@ -803,10 +829,9 @@ public final class BTDownload implements BittorrentDownload {
             }
             if (th.isValid()) {
                 String infoHash = th.infoHash().toString();
-                File file = engine.resumeDataFile(infoHash);
                 entry e = add_torrent_params.write_resume_data(alert.swig().getParams());
                 e.dict().put(EXTRA_DATA_KEY, Entry.fromMap(extra).swig());
-                FileUtils.writeByteArrayToFile(file, Vectors.byte_vector2bytes(e.bencode()));
+                engine.writeResumeData(infoHash, Vectors.byte_vector2bytes(e.bencode()));
             }
         } catch (Throwable e) {
             LOG.warn("Error saving resume data", e);
@@ -861,9 +886,8 @@ public final class BTDownload implements BittorrentDownload {
         Map<String, String> map = new HashMap<>();
         try {
             String infoHash = getInfoHash();
-            File file = engine.resumeDataFile(infoHash);
-            if (file.exists()) {
-                byte[] arr = FileUtils.readFileToByteArray(file);
+            byte[] arr = engine.readResumeData(infoHash);
+            if (arr != null) {
                 entry e = entry.bdecode(Vectors.bytes2byte_vector(arr));
                 string_entry_map d = e.dict();
                 if (d.containsKey(EXTRA_DATA_KEY)) {
@@ -871,7 +895,7 @@ public final class BTDownload implements BittorrentDownload {
                 }
             }
         } catch (Throwable e) {
-            LOG.error("Error reading extra data from resume file", e);
+            LOG.error("Error reading extra data from resume data", e);
         }
         return map;
     }
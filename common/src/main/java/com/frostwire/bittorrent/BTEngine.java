@@ -18,6 +18,7 @@
 
 package com.frostwire.bittorrent;
 
+import com.frostwire.concurrent.concurrent.ExecutorsHelper;
 import com.frostwire.concurrent.concurrent.ThreadExecutor;
 import com.frostwire.jlibtorrent.*;
 import com.frostwire.jlibtorrent.alerts.*;
@@ -27,12 +28,20 @@ import com.frostwire.platform.Platforms;
 import com.frostwire.search.torrent.TorrentCrawledSearchResult;
 import com.frostwire.util.Logger;
 import com.frostwire.util.OSUtils;
+import com.frostwire.util.ThreadPool;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static com.frostwire.jlibtorrent.alerts.AlertType.*;
 
@@ -51,9 +60,26 @@ public final class BTEngine extends SessionManager {
             DHT_BOOTSTRAP.swig(),
             TORRENT_LOG.swig(),
             PEER_LOG.swig(),
-            AlertType.LOG.swig()
+            AlertType.LOG.swig(),
+            STATE_UPDATE.swig()
     };
+    /**
+     * How often the session is asked to post the statuses of torrents that changed
+     * (post_torrent_updates). {@link BTDownload} readers are served from the pushed statuses
+     * in between, instead of each handle asking libtorrent for its own status.
+     */
+    private static final long TORRENT_UPDATES_INTERVAL_MILLIS = 1000;
+    /**
+     * Pushed statuses are considered current while state update alerts keep arriving. If no
+     * update cycle completed in this long (session paused, stopped, alert queue stalled)
+     * readers fall back to per-handle status polling.
+     */
+    private static final long TORRENT_UPDATES_STALE_MILLIS = 3 * TORRENT_UPDATES_INTERVAL_MILLIS;
     private static final String TORRENT_ORIG_PATH_KEY = "torrent_orig_path";
+    // keys written by BTDownload into the resume data
+    private static final String RESUME_EXTRA_DATA_KEY = "extra_data";
+    private static final String RESUME_WAS_PAUSED_KEY = "was_paused";
+    private static final long RESTORE_ADD_TIMEOUT_MILLIS = 30000;
     private static final String STATE_VERSION_KEY = "state_version";
     // this constant only changes when the libtorrent settings_pack ABI is
     // incompatible with the previous version. It should only happen from
@@ -71,6 +97,18 @@ public final class BTEngine extends SessionManager {
     // Store priorities for V2-only torrents that are added as paused and need priority application when ADD_TORRENT alert fires
     private final Map<String, Priority[]> pendingV2TorrentPriorities = new HashMap<>();
 
+    // Latest status of every torrent, keyed by info hash, kept current by the post_torrent_updates cycle
+    private final Map<String, TorrentStatus> torrentStatuses = new ConcurrentHashMap<>();
+    private volatile long lastTorrentUpdatesMillis;
+    private ScheduledExecutorService torrentUpdatesScheduler;
+
+    // parallel restore state, see restoreDownloadsInParallel()
+    private volatile BTRestoreListener restoreListener;
+    private volatile RestoreProgress restoreProgress;
+
+    // resume data of every torrent, one log file in ctx.homeDir, see resumeDataStore()
+    private ResumeDataStore resumeDataStore;
+
     private BTEngine() {
         super(false);
         this.innerListener = new InnerListener();
@@ -227,17 +265,113 @@ public final class BTEngine extends SessionManager {
                 cachedPausedState = false;
             }
         }, "BTEngine::onAfterStart() cache BTEngine's first paused state in the background");
+        startTorrentUpdates();
         fireStarted();
     }
 
     @Override
     protected void onBeforeStop() {
+        stopTorrentUpdates();
         removeListener(innerListener);
         saveSettings();
     }
 
+    private synchronized void startTorrentUpdates() {
+        if (torrentUpdatesScheduler != null) {
+            return;
+        }
+        torrentUpdatesScheduler = ExecutorsHelper.newScheduledThreadPool(1, "BTEngine-TorrentUpdates");
+        torrentUpdatesScheduler.scheduleWithFixedDelay(this::requestTorrentUpdates,
+                TORRENT_UPDATES_INTERVAL_MILLIS, TORRENT_UPDATES_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void stopTorrentUpdates() {
+        if (torrentUpdatesScheduler != null) {
+            torrentUpdatesScheduler.shutdownNow();
+            torrentUpdatesScheduler = null;
+        }
+        lastTorrentUpdatesMillis = 0;
+        torrentStatuses.clear();
+    }
+
+    /**
+     * Asks libtorrent to post a {@link StateUpdateAlert} with the statuses of the torrents that
+     * changed since the last request. Cheap and non-blocking, safe to call from any thread.
+     */
+    void requestTorrentUpdates() {
+        try {
+            if (swig() != null) {
+                postTorrentUpdates();
+            }
+        } catch (Throwable t) {
+            LOG.warn("Error requesting torrent status updates: " + t.getMessage());
+        }
+    }
+
+    /**
+     * Returns the most recent status libtorrent pushed for the given info hash, or null if there
+     * is none or the update cycle is not running (in which case callers should poll the handle).
+     */
+    TorrentStatus pushedTorrentStatus(String infoHash) {
+        if (infoHash == null) {
+            return null;
+        }
+        long last = lastTorrentUpdatesMillis;
+        if (last == 0 || System.currentTimeMillis() - last > TORRENT_UPDATES_STALE_MILLIS) {
+            return null;
+        }
+        return torrentStatuses.get(infoHash);
+    }
+
+    /**
+     * Records a status obtained directly from a handle, so torrents that have not changed since
+     * they were added (and therefore never show up in a state update) are still served from the map.
+     */
+    void offerTorrentStatus(String infoHash, TorrentStatus status) {
+        if (infoHash != null && status != null) {
+            torrentStatuses.put(infoHash, status);
+        }
+    }
+
+    void forgetTorrentStatus(String infoHash) {
+        if (infoHash != null) {
+            torrentStatuses.remove(infoHash);
+        }
+    }
+
+    private void onStateUpdate(StateUpdateAlert alert) {
+        try {
+            for (TorrentStatus status : alert.status()) {
+                String infoHash = torrentStatusInfoHash(status);
+                if (infoHash != null) {
+                    torrentStatuses.put(infoHash, detachedStatus(status));
+                }
+            }
+        } catch (Throwable e) {
+            LOG.warn("Error processing torrent state update", e);
+        }
+        lastTorrentUpdatesMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * The statuses of a state update alert live in the alert's native memory, which libtorrent
+     * frees on the next pop_alerts, so the ones kept past the alert are deep copies.
+     */
+    static TorrentStatus detachedStatus(TorrentStatus status) {
+        return new TorrentStatus(new torrent_status(status.swig()));
+    }
+
+    private static String torrentStatusInfoHash(TorrentStatus status) {
+        try {
+            return new TorrentHandle(status.swig().getHandle()).infoHash().toString();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
     @Override
     protected void onAfterStop() {
+        closeResumeDataStore();
         fireStopped();
     }
 
@@ -464,7 +598,7 @@ public final class BTEngine extends SessionManager {
             return;
         }
         TorrentInfo ti = sr.getTorrentInfo();
-        int fileIndex = sr.getFileIndex();
+        int fileIndex = sr.getFileIndex(ti);
         Sha1Hash infoHashV1 = getSafeHashForFind(ti);
         TorrentHandle th = infoHashV1 != null ? find(infoHashV1) : null;
         boolean exists = th != null;
@@ -496,32 +630,200 @@ public final class BTEngine extends SessionManager {
             return;
         }
         File[] torrents = ctx.homeDir.listFiles((dir, name) -> name != null && FilenameUtils.getExtension(name).equalsIgnoreCase("torrent"));
-        if (torrents != null) {
+        if (torrents == null) {
+            return;
+        }
+        if (ctx.parallelRestore) {
+            final long started = System.currentTimeMillis();
+            ThreadExecutor.startThread(() -> restoreDownloadsInParallel(torrents, started), "BTEngine::restoreDownloadsInParallel");
+            return;
+        }
+        for (File t : torrents) {
+            try {
+                String infoHash = FilenameUtils.getBaseName(t.getName());
+                if (infoHash != null) {
+                    File savePath = readSavePath(infoHash);
+                    File checked = setupSaveDir(savePath);
+                    if (checked == null) {
+                        // fallback to default data dir
+                        checked = setupSaveDir(ctx.dataDir);
+                    }
+                    if (checked == null) {
+                        LOG.warn("Can't create data dir or mount point is not accessible for infoHash=" + infoHash);
+                        continue;
+                    }
+                    restoreDownloadsQueue.add(new RestoreDownloadTask(t, checked, null, infoHash));
+                }
+            } catch (Throwable e) {
+                LOG.error("Error restoring torrent download: " + t, e);
+            }
+            runNextRestoreDownloadTask();
+        }
+    }
+
+    public void setRestoreListener(BTRestoreListener restoreListener) {
+        this.restoreListener = restoreListener;
+    }
+
+    /**
+     * Parallel restore mode (see {@link BTContext#parallelRestore}).
+     * <p>
+     * The .torrent and resume files are parsed on a bounded pool, the results are ordered so
+     * that active downloads come first, paused downloads next and finished torrents (seeds) last,
+     * and then the adds are submitted to libtorrent keeping up to {@link BTContext#restoreBatchSize}
+     * of them in flight instead of waiting for each ADD_TORRENT alert before the next add.
+     */
+    private void restoreDownloadsInParallel(File[] torrents, long started) {
+        int total = torrents.length;
+        LOG.info("restoreDownloadsInParallel() - restoring " + total + " torrents with " + ctx.restoreThreads + " parser threads, batch size " + ctx.restoreBatchSize);
+        ExecutorService parsers = ThreadPool.newThreadPool("BTEngine-RestoreParser", Math.max(1, ctx.restoreThreads), true);
+        List<RestoreCandidate> candidates = new ArrayList<>(total);
+        int failed = 0;
+        try {
+            // one sequential pass over the resume data log instead of a file read per torrent
+            Map<String, byte[]> resumeData = loadAllResumeData();
+            List<Future<RestoreCandidate>> futures = new ArrayList<>(total);
             for (File t : torrents) {
+                futures.add(parsers.submit(() -> prepareRestore(t, resumeData)));
+            }
+            for (Future<RestoreCandidate> f : futures) {
+                RestoreCandidate c = null;
                 try {
-                    String infoHash = FilenameUtils.getBaseName(t.getName());
-                    if (infoHash != null) {
-                        File resumeFile = resumeDataFile(infoHash);
-                        File savePath = readSavePath(infoHash);
-                        File checked = setupSaveDir(savePath);
-                        if (checked == null) {
-                            // fallback to default data dir
-                            checked = setupSaveDir(ctx.dataDir);
-                        }
-                        if (checked == null) {
-                            LOG.warn("Can't create data dir or mount point is not accessible for infoHash=" + infoHash);
-                            continue;
-                        }
-                        restoreDownloadsQueue.add(new RestoreDownloadTask(t, checked, null, resumeFile));
+                    c = f.get();
+                } catch (ExecutionException e) {
+                    LOG.error("Error preparing torrent restore", e.getCause());
+                }
+                if (c != null) {
+                    candidates.add(c);
+                } else {
+                    failed++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            parsers.shutdown();
+        }
+        long parsedMillis = System.currentTimeMillis() - started;
+        // stable sort, directory order is kept inside each class
+        candidates.sort(Comparator.comparingInt(c -> c.restoreClass.ordinal()));
+        LOG.info("restoreDownloadsInParallel() - parsed " + candidates.size() + " torrents in " + parsedMillis + " ms (" + failed + " failed)");
+
+        RestoreProgress progress = new RestoreProgress(this, restoreListener, total, ctx.restoreBatchSize);
+        restoreProgress = progress;
+        try {
+            for (RestoreCandidate c : candidates) {
+                if (!progress.acquire(RESTORE_ADD_TIMEOUT_MILLIS)) {
+                    LOG.warn("restoreDownloadsInParallel() - timed out waiting for ADD_TORRENT alerts, continuing");
+                }
+                progress.submitted(c.infoHash);
+                try {
+                    if (!downloadWithResumeData(c.ti, c.saveDir, c.infoHash, c.resumeData, null)) {
+                        progress.failed(c.infoHash);
                     }
                 } catch (Throwable e) {
-                    LOG.error("Error restoring torrent download: " + t, e);
+                    progress.failed(c.infoHash);
+                    failed++;
+                    LOG.error("Unable to restore download from previous session. (" + c.torrent.getAbsolutePath() + ")", e);
                 }
-                runNextRestoreDownloadTask();
             }
+            // drain: wait for the adds still in flight to be confirmed
+            if (!progress.drain(RESTORE_ADD_TIMEOUT_MILLIS)) {
+                LOG.warn("restoreDownloadsInParallel() - " + progress.pendingCount() + " adds not confirmed in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            restoreProgress = null;
         }
+        long elapsed = System.currentTimeMillis() - started;
+        LOG.info("restoreDownloadsInParallel() - restored " + progress.restored() + "/" + total + " torrents in " + elapsed + " ms (" + (failed + progress.rejected()) + " failed)");
+        progress.finished(failed, elapsed);
+    }
 
+    /**
+     * Called for every ADD_TORRENT alert. While a parallel restore is running, frees one slot of
+     * the in-flight window and reports progress if the torrent is one of the restore. A failed add
+     * frees its slot too, and is counted as failed.
+     */
+    private void onRestoreAddConfirmed(TorrentAlert<?> alert) {
+        RestoreProgress progress = restoreProgress;
+        if (progress == null) {
+            return;
+        }
+        if (alert instanceof AddTorrentAlert && ((AddTorrentAlert) alert).error().isError()) {
+            // failed adds carry no valid handle, the info hash comes from the add params
+            String infoHash;
+            try {
+                infoHash = new Sha1Hash(((AddTorrentAlert) alert).swig().getParams().getInfo_hashes().getV1()).toString();
+            } catch (Throwable e) {
+                LOG.warn("Unable to read the info hash of a failed add, its slot is given back by the drain timeout", e);
+                return;
+            }
+            if (progress.rejected(infoHash)) {
+                LOG.warn("Unable to restore download " + infoHash + ": " + ((AddTorrentAlert) alert).error().message());
+            }
+            return;
+        }
+        String infoHash;
+        try {
+            infoHash = alert.handle().infoHash().toString();
+        } catch (Throwable e) {
+            return;
+        }
+        progress.confirmed(infoHash);
+    }
 
+    /**
+     * Reads the torrent and its resume data once and works out where and in which order it
+     * should be restored. Returns null if the torrent can't be restored. Runs on the parser pool.
+     */
+    private RestoreCandidate prepareRestore(File torrent, Map<String, byte[]> resumeData) {
+        String infoHash = FilenameUtils.getBaseName(torrent.getName());
+        if (infoHash == null) {
+            return null;
+        }
+        try {
+            byte[] arr = resumeData.get(infoHash);
+            File savePath = null;
+            boolean completed = false;
+            boolean wasPaused = false;
+            if (arr != null) {
+                try {
+                    entry e = entry.bdecode(Vectors.bytes2byte_vector(arr));
+                    string_entry_map d = e.dict();
+                    if (d.containsKey("save_path")) {
+                        savePath = new File(d.get("save_path").string());
+                    }
+                    if (d.containsKey("completed_time")) {
+                        completed = d.get("completed_time").integer() > 0;
+                    }
+                    if (d.containsKey(RESUME_EXTRA_DATA_KEY)) {
+                        string_entry_map extra = d.get(RESUME_EXTRA_DATA_KEY).dict();
+                        if (extra.containsKey(RESUME_WAS_PAUSED_KEY)) {
+                            wasPaused = Boolean.parseBoolean(extra.get(RESUME_WAS_PAUSED_KEY).string());
+                        }
+                    }
+                } catch (Throwable e) {
+                    // unreadable resume data, libtorrent will recheck the files
+                }
+            }
+            File checked = setupSaveDir(savePath);
+            if (checked == null) {
+                // fallback to default data dir
+                checked = setupSaveDir(ctx.dataDir);
+            }
+            if (checked == null) {
+                LOG.warn("Can't create data dir or mount point is not accessible for infoHash=" + infoHash);
+                return null;
+            }
+            RestoreClass restoreClass = completed ? RestoreClass.SEED : (wasPaused ? RestoreClass.PAUSED : RestoreClass.DOWNLOADING);
+            return new RestoreCandidate(torrent, infoHash, new TorrentInfo(torrent), checked, arr, restoreClass);
+        } catch (Throwable e) {
+            LOG.error("Error restoring torrent download: " + torrent, e);
+            return null;
+        }
     }
 
     File settingsFile() {
@@ -536,8 +838,117 @@ public final class BTEngine extends SessionManager {
         return new File(ctx.torrentsDir, name + ".torrent");
     }
 
-    File resumeDataFile(String infoHash) {
-        return new File(ctx.homeDir, infoHash + ".resume");
+    /**
+     * The resume data store, opened on first use. The first open imports (and deletes) the
+     * per-torrent {@code <infohash>.resume} files older versions kept in {@code ctx.homeDir}.
+     * Returns null if the store can't be opened.
+     */
+    synchronized ResumeDataStore resumeDataStore() {
+        if (resumeDataStore == null && ctx != null && ctx.homeDir != null) {
+            try {
+                resumeDataStore = ResumeDataStore.open(ctx.homeDir);
+            } catch (Throwable e) {
+                LOG.error("Unable to open resume data store in " + ctx.homeDir, e);
+            }
+        }
+        return resumeDataStore;
+    }
+
+    private synchronized void closeResumeDataStore() {
+        if (resumeDataStore != null) {
+            try {
+                resumeDataStore.close();
+            } catch (Throwable e) {
+                LOG.warn("Error closing resume data store", e);
+            }
+            resumeDataStore = null;
+        }
+    }
+
+    byte[] readResumeData(String infoHash) {
+        ResumeDataStore store = resumeDataStore();
+        return store != null ? store.get(infoHash) : null;
+    }
+
+    void writeResumeData(String infoHash, byte[] data) throws IOException {
+        ResumeDataStore store = resumeDataStore();
+        if (store == null) {
+            throw new IOException("Resume data store not available");
+        }
+        store.put(infoHash, data);
+    }
+
+    void removeResumeData(String infoHash) {
+        ResumeDataStore store = resumeDataStore();
+        if (store != null) {
+            try {
+                store.remove(infoHash);
+            } catch (Throwable e) {
+                LOG.warn("Error removing resume data of " + infoHash, e);
+            }
+        }
+    }
+
+    private Map<String, byte[]> loadAllResumeData() {
+        ResumeDataStore store = resumeDataStore();
+        if (store != null) {
+            try {
+                return store.loadAll();
+            } catch (Throwable e) {
+                LOG.error("Error reading resume data store", e);
+            }
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Adds a torrent paused with the given resume data, the add params are read straight from
+     * the stored bytes. Same as the SessionManager download with a resume file, without the file.
+     * Returns false if nothing was handed to libtorrent (no session, torrent already added),
+     * no ADD_TORRENT alert follows then.
+     */
+    private boolean downloadWithResumeData(TorrentInfo ti, File saveDir, String infoHash, byte[] resumeData, Priority[] priorities) {
+        session s = swig();
+        if (s == null) {
+            return false;
+        }
+        if (priorities != null && ti.numFiles() != priorities.length) {
+            throw new IllegalArgumentException("The priorities length should be equals to the number of files");
+        }
+        Sha1Hash infoHashV1 = getSafeHashForFind(ti);
+        if (infoHashV1 != null && find(infoHashV1) != null) {
+            // already in the session
+            return false;
+        }
+        add_torrent_params p = null;
+        if (resumeData != null) {
+            error_code ec = new error_code();
+            p = add_torrent_params.read_resume_data(Vectors.bytes2byte_vector(resumeData), ec);
+            if (ec.value() != 0) {
+                LOG.warn("Unable to read the resume data of " + infoHash + ": " + ec.message());
+                p = null;
+            }
+        }
+        if (p == null) {
+            p = add_torrent_params.create_instance();
+        }
+        p.set_ti(ti.swig());
+        if (saveDir != null) {
+            p.setSave_path(saveDir.getAbsolutePath());
+        }
+        if (priorities != null) {
+            byte[] v = new byte[priorities.length];
+            for (int i = 0; i < priorities.length; i++) {
+                v[i] = (byte) priorities[i].swig();
+            }
+            p.set_file_priorities2(Vectors.bytes2byte_vector(v));
+        }
+        torrent_flags_t flags = p.getFlags();
+        flags = flags.and_(TorrentFlags.AUTO_MANAGED.inv());
+        flags = flags.or_(TorrentFlags.PAUSED);
+        p.setFlags(flags);
+        s.async_add_torrent(p);
+        return true;
     }
 
     File readTorrentPath(String infoHash) {
@@ -555,7 +966,10 @@ public final class BTEngine extends SessionManager {
     File readSavePath(String infoHash) {
         File savePath = null;
         try {
-            byte[] arr = FileUtils.readFileToByteArray(resumeDataFile(infoHash));
+            byte[] arr = readResumeData(infoHash);
+            if (arr == null) {
+                return null;
+            }
             entry e = entry.bdecode(Vectors.bytes2byte_vector(arr));
             savePath = new File(e.dict().get("save_path").string());
         } catch (Throwable e) {
@@ -878,6 +1292,7 @@ public final class BTEngine extends SessionManager {
                 case ADD_TORRENT:
                     TorrentAlert<?> torrentAlert = (TorrentAlert<?>) alert;
                     fireDownloadAdded(torrentAlert);
+                    onRestoreAddConfirmed(torrentAlert);
                     runNextRestoreDownloadTask();
                     break;
                 case LISTEN_SUCCEEDED:
@@ -900,27 +1315,57 @@ public final class BTEngine extends SessionManager {
                 case LOG:
                     printAlert(alert);
                     break;
+                case STATE_UPDATE:
+                    onStateUpdate((StateUpdateAlert) alert);
+                    break;
             }
         }
     }
 
+    /**
+     * Restore order of the parallel restore mode, by ordinal.
+     */
+    private enum RestoreClass {
+        DOWNLOADING,
+        PAUSED,
+        SEED
+    }
+
+    private static final class RestoreCandidate {
+        private final File torrent;
+        private final String infoHash;
+        private final TorrentInfo ti;
+        private final File saveDir;
+        private final byte[] resumeData;
+        private final RestoreClass restoreClass;
+
+        RestoreCandidate(File torrent, String infoHash, TorrentInfo ti, File saveDir, byte[] resumeData, RestoreClass restoreClass) {
+            this.torrent = torrent;
+            this.infoHash = infoHash;
+            this.ti = ti;
+            this.saveDir = saveDir;
+            this.resumeData = resumeData;
+            this.restoreClass = restoreClass;
+        }
+    }
+
     private final class RestoreDownloadTask implements Runnable {
         private final File torrent;
         private final File saveDir;
         private final Priority[] priorities;
-        private final File resume;
+        private final String infoHash;
 
-        public RestoreDownloadTask(File torrent, File saveDir, Priority[] priorities, File resume) {
+        public RestoreDownloadTask(File torrent, File saveDir, Priority[] priorities, String infoHash) {
             this.torrent = torrent;
             this.saveDir = saveDir;
             this.priorities = priorities;
-            this.resume = resume;
+            this.infoHash = infoHash;
         }
 
         @Override
         public void run() {
             try {
-                download(new TorrentInfo(torrent), saveDir, resume, priorities, null, TorrentFlags.PAUSED);
+                downloadWithResumeData(new TorrentInfo(torrent), saveDir, infoHash, readResumeData(infoHash), priorities);
             } catch (Throwable e) {
                 LOG.error("Unable to restore download from previous session. (" + torrent.getAbsolutePath() + ")", e);
             }
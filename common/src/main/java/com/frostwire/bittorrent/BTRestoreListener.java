@@ -0,0 +1,42 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.bittorrent;
+
+/**
+ * Receives progress of {@link BTEngine#restoreDownloads()} when the parallel restore mode
+ * is enabled (see {@link BTContext#parallelRestore}). Called from the restore thread.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public interface BTRestoreListener {
+    /**
+     * @param restored torrents libtorrent already confirmed as added
+     * @param total    torrents found in the engine home dir
+     */
+    void restoreProgress(BTEngine engine, int restored, int total);
+
+    /**
+     * @param restored      torrents libtorrent confirmed as added
+     * @param failed        torrents that could not be parsed or had no usable save dir
+     * @param total         torrents found in the engine home dir
+     * @param elapsedMillis wall time from listing the home dir to the last confirmed add
+     */
+    void restoreFinished(BTEngine engine, int restored, int failed, int total, long elapsedMillis);
+}
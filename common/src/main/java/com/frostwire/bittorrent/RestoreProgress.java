@@ -0,0 +1,150 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.bittorrent;
+
+import com.frostwire.util.Logger;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bookkeeping of one parallel restore: the window of adds in flight and the progress reported
+ * to the {@link BTRestoreListener}. Only the info hashes the restore submitted are counted,
+ * ADD_TORRENT alerts of anything else added meanwhile (user downloads, magnets) are ignored.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+final class RestoreProgress {
+    private static final Logger LOG = Logger.getLogger(RestoreProgress.class);
+
+    private final BTEngine engine;
+    private final BTRestoreListener listener;
+    private final int total;
+    private final int window;
+    private final Semaphore inFlight;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger restored = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    RestoreProgress(BTEngine engine, BTRestoreListener listener, int total, int window) {
+        this.engine = engine;
+        this.listener = listener;
+        this.total = total;
+        this.window = Math.max(1, window);
+        this.inFlight = new Semaphore(this.window);
+    }
+
+    /**
+     * Waits for a free slot in the window, returns false if none freed up in time.
+     */
+    boolean acquire(long timeoutMillis) throws InterruptedException {
+        return inFlight.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Must be called before the add is handed to libtorrent, its alert can arrive right away.
+     */
+    void submitted(String infoHash) {
+        pending.add(key(infoHash));
+    }
+
+    /**
+     * The add never reached libtorrent (it failed, or the torrent was already added), frees its
+     * slot without counting it.
+     */
+    void failed(String infoHash) {
+        if (pending.remove(key(infoHash))) {
+            inFlight.release();
+        }
+    }
+
+    /**
+     * Called for every ADD_TORRENT alert, returns false if the torrent is not part of the restore.
+     */
+    boolean confirmed(String infoHash) {
+        if (infoHash == null || !pending.remove(key(infoHash))) {
+            return false;
+        }
+        inFlight.release();
+        int n = restored.incrementAndGet();
+        if (listener != null && (n % window == 0 || n == total)) {
+            try {
+                listener.restoreProgress(engine, n, total);
+            } catch (Throwable e) {
+                LOG.error("Error notifying restore progress", e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Called for an ADD_TORRENT alert carrying an error, frees the slot of the add and counts it
+     * as failed. Returns false if the torrent is not part of the restore.
+     */
+    boolean rejected(String infoHash) {
+        if (infoHash == null || !pending.remove(key(infoHash))) {
+            return false;
+        }
+        inFlight.release();
+        rejected.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Waits for the adds still in flight, returns false if some were not confirmed in time.
+     */
+    boolean drain(long timeoutMillis) throws InterruptedException {
+        return inFlight.tryAcquire(window, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    int restored() {
+        return restored.get();
+    }
+
+    int rejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @param failed the torrents that never reached libtorrent, the adds libtorrent rejected are
+     *               counted here
+     */
+    void finished(int failed, long elapsedMillis) {
+        if (listener != null) {
+            try {
+                listener.restoreFinished(engine, restored.get(), failed + rejected.get(), total, elapsedMillis);
+            } catch (Throwable e) {
+                LOG.error("Error notifying restore finished", e);
+            }
+        }
+    }
+
+    private static String key(String infoHash) {
+        return infoHash.toLowerCase(Locale.US);
+    }
+}
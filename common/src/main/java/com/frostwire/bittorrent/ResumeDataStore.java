@@ -0,0 +1,520 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.bittorrent;
+
+import com.frostwire.concurrent.concurrent.ExecutorsHelper;
+import com.frostwire.util.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, crash-safe store for libtorrent resume data, one log file for all torrents
+ * instead of one {@code <infohash>.resume} file per torrent.
+ * <p>
+ * Every {@link #put} or {@link #remove} appends a record
+ * {@code [magic][op][keyLen][valueLen][key][value][crc32]} to the log. Appends are not
+ * fsync'd one by one, a background flusher syncs the log once per
+ * {@link #FLUSH_INTERVAL_MILLIS} if anything was written, so a checkpoint of thousands of
+ * torrents costs one fsync. On open the log is read in one sequential pass that builds the
+ * in-memory index (key to value offset); a torn or corrupt tail left by a crash is detected by
+ * the length and CRC checks and truncated away.
+ * <p>
+ * When superseded records take more than half of the log (and the log is bigger than
+ * {@link #COMPACT_MIN_BYTES}) the live records are rewritten to a new file which atomically
+ * replaces the old one.
+ * <p>
+ * Plain java.io/java.nio.channels only, this class is shared with Android.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class ResumeDataStore implements Closeable {
+    private static final Logger LOG = Logger.getLogger(ResumeDataStore.class);
+
+    public static final String LOG_FILE_NAME = "resume.log";
+    static final String LEGACY_SUFFIX = ".resume";
+
+    private static final int MAGIC = 0x46575244; // FWRD
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    // magic + op + keyLen + valueLen
+    private static final int HEADER_BYTES = 4 + 1 + 2 + 4;
+    private static final int CRC_BYTES = 4;
+    private static final int MAX_KEY_BYTES = Short.MAX_VALUE;
+    private static final int MAX_VALUE_BYTES = 64 * 1024 * 1024;
+
+    static final long FLUSH_INTERVAL_MILLIS = 1000;
+    static final long COMPACT_MIN_BYTES = 4 * 1024 * 1024;
+
+    private final File file;
+    private final Map<String, Slot> index = new HashMap<>();
+    private final ScheduledExecutorService flusher;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private long end;
+    private long liveBytes;
+    private boolean dirty;
+    private boolean compactionScheduled;
+    private boolean closed;
+
+    private ResumeDataStore(File file, boolean startFlusher) throws IOException {
+        this.file = file;
+        load();
+        if (startFlusher) {
+            flusher = ExecutorsHelper.newScheduledThreadPool(1, "ResumeDataStore-Flusher");
+            flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Opens (or creates) the store in the given directory. The first time, any legacy
+     * {@code <infohash>.resume} files found there are imported and then deleted.
+     */
+    public static ResumeDataStore open(File dir) throws IOException {
+        return open(dir, true);
+    }
+
+    static ResumeDataStore open(File dir, boolean startFlusher) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create resume data dir " + dir);
+        }
+        File logFile = new File(dir, LOG_FILE_NAME);
+        ResumeDataStore store = new ResumeDataStore(logFile, startFlusher);
+        store.migrateLegacyFiles(dir);
+        return store;
+    }
+
+    public synchronized byte[] get(String key) {
+        Slot slot = index.get(key);
+        if (slot == null || closed) {
+            return null;
+        }
+        try {
+            return readValue(channel, slot);
+        } catch (IOException e) {
+            LOG.warn("Error reading resume data for " + key, e);
+            return null;
+        }
+    }
+
+    public synchronized boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    public synchronized Set<String> keys() {
+        return new HashSet<>(index.keySet());
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized void put(String key, byte[] value) throws IOException {
+        ensureOpen();
+        long offset = append(OP_PUT, key, value);
+        Slot previous = index.put(key, new Slot(offset, value.length, recordBytes(key, value.length)));
+        if (previous != null) {
+            liveBytes -= previous.recordBytes;
+        }
+        liveBytes += recordBytes(key, value.length);
+        maybeScheduleCompaction();
+    }
+
+    public synchronized void remove(String key) throws IOException {
+        ensureOpen();
+        Slot previous = index.remove(key);
+        if (previous == null) {
+            return;
+        }
+        liveBytes -= previous.recordBytes;
+        append(OP_DELETE, key, new byte[0]);
+        maybeScheduleCompaction();
+    }
+
+    /**
+     * Reads every live value in one sequential pass over the log, for bulk restore.
+     */
+    public synchronized Map<String, byte[]> loadAll() throws IOException {
+        ensureOpen();
+        Map<String, byte[]> result = new LinkedHashMap<>(index.size() * 2);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 256 * 1024))) {
+            long pos = 0;
+            while (pos < end) {
+                Record r = readRecord(in, pos);
+                if (r == null) {
+                    break;
+                }
+                Slot slot = index.get(r.key);
+                if (r.op == OP_PUT && slot != null && slot.valueOffset == r.valueOffset) {
+                    result.put(r.key, r.value);
+                }
+                pos += recordBytes(r.keyBytes, r.value.length);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forces buffered appends to disk now.
+     */
+    public synchronized void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (dirty) {
+            channel.force(false);
+            dirty = false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            flush();
+            closed = true;
+            raf.close();
+        }
+    }
+
+    long fileBytes() {
+        synchronized (this) {
+            return end;
+        }
+    }
+
+    /**
+     * Rewrites the live records into a fresh log and atomically swaps it in.
+     */
+    synchronized void compact() throws IOException {
+        ensureOpen();
+        compactionScheduled = false;
+        File tmp = new File(file.getParentFile(), file.getName() + ".compact");
+        Map<String, Slot> newIndex = new HashMap<>(index.size() * 2);
+        long newEnd = 0;
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            FileChannel outChannel = out.getChannel();
+            for (Map.Entry<String, Slot> e : index.entrySet()) {
+                byte[] value = readValue(channel, e.getValue());
+                ByteBuffer record = encode(OP_PUT, e.getKey(), value);
+                long offset = newEnd;
+                writeFully(outChannel, record, offset);
+                newIndex.put(e.getKey(), new Slot(offset + HEADER_BYTES + keyBytes(e.getKey()).length, value.length, record.capacity()));
+                newEnd += record.capacity();
+            }
+            outChannel.force(true);
+        }
+        long before = end;
+        raf.close();
+        try {
+            // the live log is only ever replaced, never deleted first, a failed move keeps it intact
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp.toPath());
+            openChannel();
+            throw new IOException("Can't replace " + file + " with compacted log", e);
+        }
+        openChannel();
+        index.clear();
+        index.putAll(newIndex);
+        end = newEnd;
+        liveBytes = newEnd;
+        dirty = false;
+        LOG.info("ResumeDataStore compacted " + before + " -> " + newEnd + " bytes, " + index.size() + " entries");
+    }
+
+    /**
+     * Imports the legacy per-torrent resume files of {@code dir} in a single batch, syncs the
+     * log once and only then deletes the imported files.
+     */
+    int migrateLegacyFiles(File dir) throws IOException {
+        File[] legacy = dir.listFiles((d, name) -> name != null && name.endsWith(LEGACY_SUFFIX));
+        if (legacy == null || legacy.length == 0) {
+            return 0;
+        }
+        int imported = 0;
+        for (int i = 0; i < legacy.length; i++) {
+            File f = legacy[i];
+            String name = f.getName();
+            String key = name.substring(0, name.length() - LEGACY_SUFFIX.length());
+            try {
+                synchronized (this) {
+                    // data already in the log is newer than a leftover legacy file
+                    if (!index.containsKey(key)) {
+                        put(key, readFile(f));
+                        imported++;
+                    }
+                }
+            } catch (IOException e) {
+                LOG.warn("Could not migrate legacy resume file " + f, e);
+                // keep it, the next open retries
+                legacy[i] = null;
+            }
+        }
+        flush();
+        for (File f : legacy) {
+            if (f != null && f.exists() && !f.delete()) {
+                LOG.warn("Could not delete migrated legacy resume file " + f);
+            }
+        }
+        LOG.info("ResumeDataStore migrated " + imported + " legacy resume files from " + dir);
+        return imported;
+    }
+
+    private void load() throws IOException {
+        index.clear();
+        liveBytes = 0;
+        long pos = 0;
+        if (file.exists()) {
+            long length = file.length();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 256 * 1024))) {
+                while (pos < length) {
+                    Record r = readRecord(in, pos);
+                    if (r == null) {
+                        break;
+                    }
+                    int size = recordBytes(r.keyBytes, r.value.length);
+                    Slot previous;
+                    if (r.op == OP_PUT) {
+                        previous = index.put(r.key, new Slot(r.valueOffset, r.value.length, size));
+                        liveBytes += size;
+                    } else {
+                        previous = index.remove(r.key);
+                    }
+                    if (previous != null) {
+                        liveBytes -= previous.recordBytes;
+                    }
+                    pos += size;
+                }
+            }
+            if (pos < length) {
+                LOG.warn("ResumeDataStore " + file + " has a torn or corrupt tail at " + pos + " of " + length + " bytes, truncating");
+            }
+        }
+        openChannel();
+        if (channel.size() != pos) {
+            channel.truncate(pos);
+            channel.force(true);
+        }
+        end = pos;
+    }
+
+    private void openChannel() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+    }
+
+    /**
+     * Reads the record starting at {@code pos}, or returns null if it is incomplete or corrupt.
+     */
+    private static Record readRecord(DataInputStream in, long pos) throws IOException {
+        try {
+            int magic = in.readInt();
+            byte op = in.readByte();
+            int keyLen = in.readUnsignedShort();
+            int valueLen = in.readInt();
+            if (magic != MAGIC || (op != OP_PUT && op != OP_DELETE) || valueLen < 0 || valueLen > MAX_VALUE_BYTES) {
+                return null;
+            }
+            byte[] keyBytes = new byte[keyLen];
+            in.readFully(keyBytes);
+            byte[] value = new byte[valueLen];
+            in.readFully(value);
+            int crc = in.readInt();
+            CRC32 crc32 = new CRC32();
+            crc32.update(op);
+            crc32.update(keyBytes);
+            crc32.update(value);
+            if ((int) crc32.getValue() != crc) {
+                return null;
+            }
+            return new Record(op, new String(keyBytes, StandardCharsets.UTF_8), keyBytes.length, value, pos + HEADER_BYTES + keyLen);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private long append(byte op, String key, byte[] value) throws IOException {
+        ByteBuffer record = encode(op, key, value);
+        long recordStart = end;
+        writeFully(channel, record, recordStart);
+        end += record.capacity();
+        dirty = true;
+        return recordStart + HEADER_BYTES + keyBytes(key).length;
+    }
+
+    private static ByteBuffer encode(byte op, String key, byte[] value) {
+        byte[] k = keyBytes(key);
+        if (value.length > MAX_VALUE_BYTES) {
+            throw new IllegalArgumentException("Resume data too big: " + value.length + " bytes");
+        }
+        ByteBuffer buf = ByteBuffer.allocate(recordBytes(k.length, value.length));
+        buf.putInt(MAGIC);
+        buf.put(op);
+        buf.putShort((short) k.length);
+        buf.putInt(value.length);
+        buf.put(k);
+        buf.put(value);
+        CRC32 crc32 = new CRC32();
+        crc32.update(op);
+        crc32.update(k);
+        crc32.update(value);
+        buf.putInt((int) crc32.getValue());
+        buf.flip();
+        return buf;
+    }
+
+    private static byte[] readValue(FileChannel channel, Slot slot) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(slot.valueLength);
+        long pos = slot.valueOffset;
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, pos);
+            if (n < 0) {
+                throw new EOFException("Resume data log ended early");
+            }
+            pos += n;
+        }
+        return buf.array();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            pos += channel.write(buf, pos);
+        }
+    }
+
+    private static byte[] keyBytes(String key) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        if (k.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("Resume data key too long");
+        }
+        return k;
+    }
+
+    private static int recordBytes(String key, int valueLength) {
+        return recordBytes(keyBytes(key).length, valueLength);
+    }
+
+    private static int recordBytes(int keyLength, int valueLength) {
+        return HEADER_BYTES + keyLength + valueLength + CRC_BYTES;
+    }
+
+    private void maybeScheduleCompaction() {
+        if (compactionScheduled || flusher == null) {
+            return;
+        }
+        if (end >= COMPACT_MIN_BYTES && end - liveBytes > end / 2) {
+            compactionScheduled = true;
+            flusher.execute(() -> {
+                try {
+                    compact();
+                } catch (Throwable e) {
+                    LOG.error("ResumeDataStore compaction failed", e);
+                }
+            });
+        }
+    }
+
+    private static byte[] readFile(File f) throws IOException {
+        long length = f.length();
+        if (length > MAX_VALUE_BYTES) {
+            throw new IOException("Resume file too big: " + f);
+        }
+        byte[] data = new byte[(int) length];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(f))) {
+            in.readFully(data);
+        }
+        return data;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Throwable e) {
+            LOG.warn("ResumeDataStore flush failed", e);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("ResumeDataStore is closed");
+        }
+    }
+
+    private static final class Slot {
+        final long valueOffset;
+        final int valueLength;
+        final int recordBytes;
+
+        Slot(long valueOffset, int valueLength, int recordBytes) {
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+            this.recordBytes = recordBytes;
+        }
+    }
+
+    private static final class Record {
+        final byte op;
+        final String key;
+        final int keyBytes;
+        final byte[] value;
+        final long valueOffset;
+
+        Record(byte op, String key, int keyBytes, byte[] value, long valueOffset) {
+            this.op = op;
+            this.key = key;
+            this.keyBytes = keyBytes;
+            this.value = value;
+            this.valueOffset = valueOffset;
+        }
+    }
+}
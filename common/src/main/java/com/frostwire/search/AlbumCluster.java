@@ -24,90 +24,276 @@ import com.frostwire.search.torrent.TorrentItemSearchResult;
 import com.frostwire.util.MimeDetector;
 import org.apache.commons.io.FilenameUtils;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 /**
- * To be used only inside PerformersHelper and only for torrents search related functions.
+ * Groups the audio files of crawled torrents into albums, as results arrive.
+ *
+ * <p>Tracks of one torrent are grouped by
+ * <ul>
+ *     <li>their directory, with disc subdirectories ({@code CD1}, {@code Disc 2})
+ *     folded into the album directory, and</li>
+ *     <li>within a directory, the artist/album tokens in front of the track
+ *     number ({@code Artist - Album - 05 - Title.mp3}), so discographies
+ *     kept in one flat directory still split into albums.</li>
+ * </ul>
+ * A group with {@link #ALBUM_SIZE_THRESHOLD} or more tracks becomes one
+ * {@link TorrentCrawledAlbumSearchResult} that holds its tracks, reported
+ * next to the tracks themselves.
+ *
+ * <p>{@link #add} handles one batch in time linear in its size and keeps
+ * the groups it saw, so a later batch of the same torrent joins the albums
+ * already reported instead of the whole result set being clustered again.
+ * Files are remembered by path per torrent infohash, a torrent crawled
+ * again (or listed by another engine) doesn't add its tracks twice.
+ * Groups of the last {@link #MAX_TORRENTS} torrents are remembered.
+ *
+ * <p>To be used only inside PerformersHelper and only for torrents search related functions.
  * Private API.
  *
  * @author gubatron
  * @author aldenml
  */
 public class AlbumCluster {
-    private static final int ALBUM_SIZE_THRESHOLD = 4;
+    static final int ALBUM_SIZE_THRESHOLD = 4;
+    static final int MAX_TORRENTS = 256;
+
+    private final LinkedHashMap<String, Torrent> torrents = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Torrent> eldest) {
+            return size() > MAX_TORRENTS;
+        }
+    };
 
     /**
-     * Try to extract album and artist from path.
+     * Clusters a batch of files of {@code parent}.
+     *
+     * @return every file of the batch, followed by the albums it completed.
+     * Files joining an album reported by an earlier batch are added to that
+     * album; files already seen for the torrent are returned but not
+     * clustered again.
      */
-    /*public static final Pair<String, String> albumArtistFromPath(String filepath, String defaultAlbum, String defaultArtist) {
-        String album = defaultAlbum;
-        String artist = defaultArtist;
+    public synchronized List<SearchResult> add(TorrentCrawlableSearchResult parent, List<? extends TorrentItemSearchResult> batch) {
+        List<SearchResult> out = new ArrayList<>(batch);
+        Torrent torrent = torrents.computeIfAbsent(torrentKey(parent), k -> new Torrent());
+        Map<String, Group> groups = torrent.groups;
+        List<Group> touched = new ArrayList<>();
+        for (TorrentItemSearchResult sr : batch) {
+            String path = sr.getFilePath();
+            if (!isAudio(path) || !torrent.paths.add(path)) {
+                continue;
+            }
+            String dir = albumDir(FilenameUtils.getPathNoEndSeparator(path));
+            String prefix = trackPrefix(FilenameUtils.getBaseName(path));
+            String key = dir.toLowerCase(Locale.US) + '\u0000' + normalize(prefix);
+            Group group = groups.get(key);
+            if (group == null) {
+                group = new Group(dir, prefix);
+                groups.put(key, group);
+            }
+            if (group.album != null) {
+                group.album.addItem(sr);
+            } else if (!group.flat) {
+                if (group.pending.isEmpty()) {
+                    touched.add(group);
+                }
+                group.pending.add(sr);
+            }
+        }
+        for (Group group : touched) {
+            if (group.pending.size() >= ALBUM_SIZE_THRESHOLD) {
+                String[] artistAlbum = artistAndAlbum(group.dir, group.prefix);
+                group.album = new TorrentCrawledAlbumSearchResult(parent, artistAlbum[0], artistAlbum[1], group.pending);
+                out.add(group.album);
+            } else {
+                // too small to be an album, later tracks of the group stay on their own too
+                group.flat = true;
+            }
+            group.pending = new LinkedList<>();
+        }
+        return out;
+    }
 
-        if (!filepath.contains("/")) { // does not contain directory parts
-            return ImmutablePair.of(album, artist);
+    /**
+     * One-shot clustering of a whole torrent.
+     *
+     * @return only the albums found
+     */
+    public static LinkedList<TorrentCrawledAlbumSearchResult> detect(TorrentCrawlableSearchResult parent, List<? extends TorrentItemSearchResult> results) {
+        LinkedList<TorrentCrawledAlbumSearchResult> albums = new LinkedList<>();
+        for (SearchResult sr : new AlbumCluster().add(parent, results)) {
+            if (sr instanceof TorrentCrawledAlbumSearchResult) {
+                albums.add((TorrentCrawledAlbumSearchResult) sr);
+            }
         }
-        ArrayList<String> dirs = new ArrayList<String>(Arrays.asList(filepath.split("/")));
+        return albums;
+    }
 
-        if (dirs.get(0).equals("")) {
-            dirs.remove(0);
+    private static String torrentKey(TorrentCrawlableSearchResult parent) {
+        String hash = parent.getHash();
+        if (hash != null && !hash.isEmpty()) {
+            return hash.toLowerCase(Locale.US);
         }
+        String url = parent.getTorrentUrl();
+        return url != null ? url : parent.getDetailsUrl();
+    }
+
+    private static boolean isAudio(String path) {
+        String ext = FilenameUtils.getExtension(path).toLowerCase(Locale.US);
+        return !ext.isEmpty() && MimeDetector.getMimeType(ext).startsWith("audio");
+    }
+
+    /** {@code dir} without a trailing disc subdirectory. */
+    static String albumDir(String dir) {
+        int slash = Math.max(dir.lastIndexOf('/'), dir.lastIndexOf('\\'));
+        String last = dir.substring(slash + 1);
+        return slash > 0 && isDiscDir(last) ? dir.substring(0, slash) : dir;
+    }
 
-        if (dirs.size() > 0) {
-            dirs.remove(dirs.size() - 1);
+    /** CD1, CD 2, Disc 1, Disk02, DVD 1, possibly followed by " - title". */
+    private static boolean isDiscDir(String name) {
+        String s = name.toLowerCase(Locale.US);
+        int i;
+        if (s.startsWith("cd") || s.startsWith("dvd")) {
+            i = s.startsWith("cd") ? 2 : 3;
+        } else if (s.startsWith("disc") || s.startsWith("disk")) {
+            i = 4;
+        } else {
+            return false;
+        }
+        while (i < s.length() && s.charAt(i) == ' ') {
+            i++;
         }
+        int digits = 0;
+        while (i < s.length() && Character.isDigit(s.charAt(i))) {
+            i++;
+            digits++;
+        }
+        return digits > 0 && digits <= 2 && (i == s.length() || !Character.isLetterOrDigit(s.charAt(i)));
+    }
 
-        // strip disc subdirectory from list
-        if (dirs.size() > 0) {
-            String last = dirs.get(dirs.size() - 1);
-            if (last.matches("(?is)(^|\\s)(CD|DVD|Disc)\\s*\\d+(\\s|$)")) {
-                dirs.remove(dirs.size() - 1);
+    /**
+     * The text in front of a file name's track number, e.g. "Artist - Album"
+     * for "Artist - Album - 05 - Title"; empty for "05 - Title", "05. Title"
+     * or a name without a track number.
+     */
+    static String trackPrefix(String baseName) {
+        String[] parts = baseName.split(" - ");
+        for (int i = 1; i < parts.length; i++) {
+            if (isTrackNumber(parts[i].trim()) || startsWithTrackNumber(parts[i].trim())) {
+                StringBuilder sb = new StringBuilder(parts[0].trim());
+                for (int j = 1; j < i; j++) {
+                    sb.append(" - ").append(parts[j].trim());
+                }
+                return sb.toString();
             }
         }
+        return "";
+    }
 
-        if (dirs.size() > 0) {
-            // for clustering assume %artist%/%album%/file or %artist% - %album%/file
-            album = dirs.get(dirs.size() - 1);
-            if (album.contains(" - ")) {
-                String[] parts = album.split(" - ");
-                artist = parts[0];
-                album = parts[1];
-            } else if (dirs.size() > 1) {
-                artist = dirs.get(dirs.size() - 2);
-            }
+    /** "5", "05", "105", "1-05" */
+    private static boolean isTrackNumber(String s) {
+        int dash = s.indexOf('-');
+        if (dash > 0) {
+            return isDigits(s.substring(0, dash), 1) && isDigits(s.substring(dash + 1), 2);
         }
+        return isDigits(s, 3);
+    }
 
-        return ImmutablePair.of(album, artist);
-    }*/
-    public LinkedList<TorrentCrawledAlbumSearchResult> detect(TorrentCrawlableSearchResult parent, List<? extends TorrentItemSearchResult> results) {
-        LinkedList<TorrentCrawledAlbumSearchResult> albums = new LinkedList<TorrentCrawledAlbumSearchResult>();
-        Map<String, LinkedList<TorrentItemSearchResult>> dirs = new HashMap<String, LinkedList<TorrentItemSearchResult>>();
-        for (TorrentItemSearchResult sr : results) {
-            String path = sr.getFilePath();
-            String dir = FilenameUtils.getPathNoEndSeparator(path);
-            if (!dirs.containsKey(dir)) {
-                dirs.put(dir, new LinkedList<TorrentItemSearchResult>());
+    /** "05. Title", "05 Title", "05_Title" */
+    private static boolean startsWithTrackNumber(String s) {
+        int i = 0;
+        while (i < s.length() && Character.isDigit(s.charAt(i))) {
+            i++;
+        }
+        return i > 0 && i <= 3 && i < s.length() && (s.charAt(i) == '.' || s.charAt(i) == ' ' || s.charAt(i) == '_');
+    }
+
+    private static boolean isDigits(String s, int maxLength) {
+        if (s.isEmpty() || s.length() > maxLength) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return false;
             }
-            LinkedList<TorrentItemSearchResult> items = dirs.get(dir);
-            items.add(sr);
-        }
-        for (Map.Entry<String, LinkedList<TorrentItemSearchResult>> kv : dirs.entrySet()) {
-            int numAudio = 0;
-            for (TorrentItemSearchResult sr : kv.getValue()) {
-                String mime = MimeDetector.getMimeType(sr.getFilePath());
-                if (mime.startsWith("audio")) {
-                    numAudio++;
+        }
+        return true;
+    }
+
+    /** Lowercase tokens separated by single spaces, so "Artist_-_Album" joins "artist - album". */
+    private static String normalize(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean space = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && sb.length() > 0) {
+                    sb.append(' ');
                 }
+                sb.append(Character.toLowerCase(c));
+                space = false;
+            } else {
+                space = true;
             }
-//            if (numAudio >= ALBUM_SIZE_THRESHOLD) {
-//                Pair<String, String> p = albumArtistFromPath(kv.getKey(), "", "");
-//                TorrentCrawledAlbumSearchResult sr = new TorrentCrawledAlbumSearchResult(parent, p.getRight(), p.getLeft(), kv.getValue());
-//                System.out.println(sr);
-//                albums.add(sr);
-//            }
         }
-        return albums;
+        return sb.toString();
+    }
+
+    /**
+     * {artist, album} from the track prefix if it has them, else from the
+     * directory: for clustering assume %artist%/%album%/file or
+     * %artist% - %album%/file.
+     */
+    static String[] artistAndAlbum(String dir, String prefix) {
+        String artist = "";
+        String album = "";
+        int sep = prefix.indexOf(" - ");
+        if (sep > 0) {
+            return new String[]{prefix.substring(0, sep).trim(), prefix.substring(sep + 3).trim()};
+        }
+        String[] dirs = dir.split("[/\\\\]");
+        if (dirs.length > 0 && !dirs[dirs.length - 1].isEmpty()) {
+            album = dirs[dirs.length - 1];
+            sep = album.indexOf(" - ");
+            if (sep > 0) {
+                artist = album.substring(0, sep).trim();
+                album = album.substring(sep + 3).trim();
+            } else if (dirs.length > 1) {
+                artist = dirs[dirs.length - 2];
+            }
+        }
+        if (!prefix.isEmpty()) {
+            // "Artist - 05 - Title" in an album directory
+            artist = prefix;
+        }
+        return new String[]{artist, album};
+    }
+
+    private static final class Torrent {
+        final Map<String, Group> groups = new HashMap<>();
+        final Set<String> paths = new HashSet<>();
+    }
+
+    private static final class Group {
+        final String dir;
+        final String prefix;
+        List<TorrentItemSearchResult> pending = new LinkedList<>();
+        TorrentCrawledAlbumSearchResult album;
+        /** Decided not to be an album; later tracks are shown on their own. */
+        boolean flat;
+
+        Group(String dir, String prefix) {
+            this.dir = dir;
+            this.prefix = prefix;
+        }
     }
 }
@@ -79,14 +79,14 @@ public abstract class CrawlPagedWebSearchPerformer<T extends CrawlableSearchResu
     }
 
     public static void clearCache() {
-        CrawlCache c = cache;
+        CrawlCache c = crawlCache();
         if (c != null) {
             c.clear();
         }
     }
 
     public static long getCacheNumEntries() {
-        CrawlCache c = cache;
+        CrawlCache c = crawlCache();
         if (c != null) {
             return c.numEntries();
         }
@@ -94,7 +94,7 @@ public abstract class CrawlPagedWebSearchPerformer<T extends CrawlableSearchResu
     }
 
     public static long getCacheSize() {
-        CrawlCache c = cache;
+        CrawlCache c = crawlCache();
         if (c != null) {
             return c.sizeInBytes();
         }
@@ -232,8 +232,14 @@ public abstract class CrawlPagedWebSearchPerformer<T extends CrawlableSearchResu
         }
     }
 
-    private byte[] cacheGet(String key) {
+    /** The cache set here, else the one configured through {@link CrawlCacheManager}. */
+    private static CrawlCache crawlCache() {
         CrawlCache c = cache;
+        return c != null ? c : CrawlCacheManager.getCache();
+    }
+
+    private byte[] cacheGet(String key) {
+        CrawlCache c = crawlCache();
         if (c != null) {
             return c.get(key);
         }
@@ -241,14 +247,14 @@ public abstract class CrawlPagedWebSearchPerformer<T extends CrawlableSearchResu
     }
 
     private void cachePut(String key, byte[] data) {
-        CrawlCache c = cache;
+        CrawlCache c = crawlCache();
         if (c != null) {
             c.put(key, data);
         }
     }
 
     private void cacheRemove(String key) {
-        CrawlCache c = cache;
+        CrawlCache c = crawlCache();
         if (c != null) {
             c.remove(key);
         }
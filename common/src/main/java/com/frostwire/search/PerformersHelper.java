@@ -18,11 +18,10 @@
 
 package com.frostwire.search;
 
-import com.frostwire.jlibtorrent.FileStorage;
-import com.frostwire.jlibtorrent.TorrentInfo;
 import com.frostwire.regex.Pattern;
 import com.frostwire.search.torrent.TorrentCrawlableSearchResult;
 import com.frostwire.search.torrent.TorrentCrawledSearchResult;
+import com.frostwire.search.torrent.TorrentFiles;
 import com.frostwire.util.Logger;
 import com.frostwire.util.StringUtils;
 
@@ -85,20 +84,20 @@ public final class PerformersHelper {
 
     private static List<? extends SearchResult> performSearch(RegexSearchPerformer<?> performer, Pattern pattern, String page, int regexMaxResults) {
         List<SearchResult> result = new LinkedList<>();
-        SearchMatcher matcher = SearchMatcher.from(pattern.matcher(page));
+        RegexPageScanner scanner = new RegexPageScanner(pattern, page);
         int i = 0;
         boolean matcherFound;
 
         do {
             try {
-                matcherFound = matcher.find();
+                matcherFound = scanner.find();
             } catch (Throwable t) {
                 matcherFound = false;
                 LOG.error("performSearch(...): " + pattern + " has failed.\n" + t.getMessage(), t);
             }
 
             if (matcherFound) {
-                SearchResult sr = performer.fromMatcher(matcher);
+                SearchResult sr = performer.fromMatcher(scanner.matcher());
                 if (sr != null) {
                     if (sr instanceof WebSearchPerformer) {
                         List<String> keywords = ((WebSearchPerformer) sr).getKeywords();
@@ -122,37 +121,41 @@ public final class PerformersHelper {
      * This method is only public allow reuse inside the package search, consider it a private API
      */
     public static List<? extends SearchResult> crawlTorrentInfo(ISearchPerformer performer, TorrentCrawlableSearchResult sr, byte[] data, boolean detectAlbums) {
+        return crawlTorrentInfo(performer, sr, data, detectAlbums ? new AlbumCluster() : null);
+    }
+
+    /**
+     * Like {@link #crawlTorrentInfo(ISearchPerformer, TorrentCrawlableSearchResult, byte[])},
+     * but the torrent's tracks go through {@code albums} when it isn't null, so the
+     * albums they form come back after them. Pass the same clusterer for every torrent
+     * of a search.
+     */
+    public static List<? extends SearchResult> crawlTorrentInfo(ISearchPerformer performer, TorrentCrawlableSearchResult sr, byte[] data, AlbumCluster albums) {
         List<TorrentCrawledSearchResult> list = new LinkedList<>();
         if (data == null) {
             return list;
         }
-        TorrentInfo ti;
+        TorrentFiles files;
         try {
-            ti = TorrentInfo.bdecode(data);
-        } catch (Throwable t) {
-            LOG.error("Can't bdecode:\n" + new String(data) + "\n\n");
-            throw t;
+            files = TorrentFiles.parse(data);
+        } catch (IllegalArgumentException e) {
+            LOG.error("Can't bdecode torrent of " + data.length + " bytes from " + sr.getTorrentUrl() + ": " + e.getMessage());
+            throw e;
         }
-        int numFiles = ti.numFiles();
-        FileStorage fs = ti.files();
-        for (int i = 0; !performer.isStopped() && i < numFiles; i++) {
-            if (fs.padFileAt(i) || fs.fileFlags(i).and_(FileStorage.FLAG_HIDDEN).nonZero()) {
-                continue;
-            }
-            list.add(new TorrentCrawledSearchResult(sr, ti, i, fs.filePath(i), fs.fileSize(i)));
+        // the parsed infohash may differ from the one the engine listed, keep the data under it too
+        CrawlCache cache = CrawlCacheManager.getCache();
+        if (cache != null && !files.infoHash().equalsIgnoreCase(sr.getHash())) {
+            cache.put(files.infoHash(), data);
         }
-        if (detectAlbums) {
-            List<SearchResult> temp = new LinkedList<>();
-            temp.addAll(list);
-            temp.addAll(new AlbumCluster().detect(sr, list));
-            return temp;
-        } else {
-            return list;
+        int numFiles = files.size();
+        for (int i = 0; (performer == null || !performer.isStopped()) && i < numFiles; i++) {
+            list.add(new TorrentCrawledSearchResult(sr, files, i));
         }
+        return albums != null ? albums.add(sr, list) : list;
     }
 
     public static List<? extends SearchResult> crawlTorrentInfo(ISearchPerformer performer, TorrentCrawlableSearchResult sr, byte[] data) {
-        return crawlTorrentInfo(performer, sr, data, false);
+        return crawlTorrentInfo(performer, sr, data, (AlbumCluster) null);
     }
 
     public static String parseInfoHash(String url) {
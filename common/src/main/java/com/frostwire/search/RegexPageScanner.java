@@ -0,0 +1,215 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.search;
+
+import com.frostwire.regex.Matcher;
+import com.frostwire.regex.Pattern;
+import com.frostwire.util.Logger;
+
+/**
+ * Walks the matches of a {@link Pattern} over a results page under a CPU
+ * budget, so one large page or expensive pattern cannot hold a search
+ * thread for seconds.
+ *
+ * <p>The matcher never sees the whole page. It runs over a window of
+ * {@code windowChars} characters that slides forward once the window has
+ * no more matches. Consecutive windows overlap by {@code overlapChars}, and
+ * a match ending inside the overlap of a window that is not the last one
+ * is searched again from its start in the next window, so matches up to
+ * {@code overlapChars} long are found exactly as on the whole page.
+ *
+ * <p>The window checks the clock while the engine reads it. A single
+ * {@link #find()} may run for at most {@code matchBudgetMs} and the whole
+ * page for at most {@code pageBudgetMs}; past either, {@link #find()}
+ * returns false and {@link #budgetExceeded()} is true. Matches already
+ * returned stay valid.
+ *
+ * <p>Usage:
+ * <pre>
+ *   RegexPageScanner scanner = new RegexPageScanner(pattern, page);
+ *   while (scanner.find()) {
+ *       SearchResult sr = fromMatcher(scanner.matcher());
+ *   }
+ * </pre>
+ *
+ * @author gubatron
+ */
+public final class RegexPageScanner {
+    private static final Logger LOG = Logger.getLogger(RegexPageScanner.class);
+
+    public static final int DEFAULT_WINDOW_CHARS = 256 * 1024;
+    public static final int DEFAULT_OVERLAP_CHARS = 32 * 1024;
+    public static final long DEFAULT_MATCH_BUDGET_MS = 250;
+    public static final long DEFAULT_PAGE_BUDGET_MS = 1500;
+
+    /** Characters read by the engine between two clock reads. */
+    private static final int CHARS_PER_CLOCK_CHECK = 4096;
+
+    private final Pattern pattern;
+    private final String page;
+    private final int windowChars;
+    private final int overlapChars;
+    private final long matchBudgetNanos;
+    private final long pageDeadlineNanos;
+
+    private Window window;
+    private Matcher matcher;
+    private SearchMatcher searchMatcher;
+    /** Page offset before which matches were already returned. */
+    private int nextStart;
+    private boolean done;
+    private boolean budgetExceeded;
+
+    public RegexPageScanner(Pattern pattern, String page) {
+        this(pattern, page, DEFAULT_WINDOW_CHARS, DEFAULT_OVERLAP_CHARS,
+                DEFAULT_MATCH_BUDGET_MS, DEFAULT_PAGE_BUDGET_MS);
+    }
+
+    public RegexPageScanner(Pattern pattern, String page,
+                            int windowChars, int overlapChars,
+                            long matchBudgetMs, long pageBudgetMs) {
+        if (overlapChars < 0 || windowChars <= overlapChars) {
+            throw new IllegalArgumentException("windowChars must be > overlapChars >= 0");
+        }
+        this.pattern = pattern;
+        this.page = page == null ? "" : page;
+        this.windowChars = windowChars;
+        this.overlapChars = overlapChars;
+        this.matchBudgetNanos = matchBudgetMs * 1_000_000L;
+        this.pageDeadlineNanos = System.nanoTime() + pageBudgetMs * 1_000_000L;
+        openWindow(0);
+    }
+
+    /**
+     * Advances to the next match.
+     *
+     * @return false at the end of the page or once a budget is exceeded
+     */
+    public boolean find() {
+        while (!done) {
+            long now = System.nanoTime();
+            window.deadline = Math.min(pageDeadlineNanos, now + matchBudgetNanos);
+            window.countdown = CHARS_PER_CLOCK_CHECK;
+            boolean found;
+            try {
+                found = matcher.find();
+            } catch (BudgetExceededException e) {
+                budgetExceeded = true;
+                done = true;
+                LOG.warn("RegexPageScanner: " + pattern.namedPattern().length() + "-char pattern over "
+                        + page.length() + "-char page exceeded its CPU budget at offset "
+                        + window.offset + ", stopped");
+                return false;
+            }
+            if (!found) {
+                if (window.isLast()) {
+                    done = true;
+                    return false;
+                }
+                openWindow(Math.max(nextStart, window.end - overlapChars));
+                continue;
+            }
+            int start = window.offset + matcher.start();
+            int end = window.offset + matcher.end();
+            if (!window.isLast() && end > window.end - overlapChars && start > window.offset) {
+                // may be cut short by the window end: look again from its start
+                openWindow(start);
+                continue;
+            }
+            nextStart = end > start ? end : start + 1;
+            return true;
+        }
+        return false;
+    }
+
+    /** The current match; valid after {@link #find()} returned true. */
+    public SearchMatcher matcher() {
+        return searchMatcher;
+    }
+
+    /** Page offset of the current match. */
+    public int start() {
+        return window.offset + matcher.start();
+    }
+
+    /** True if scanning stopped because a match or page budget ran out. */
+    public boolean budgetExceeded() {
+        return budgetExceeded;
+    }
+
+    private void openWindow(int offset) {
+        window = new Window(offset, (int) Math.min(page.length(), (long) offset + windowChars));
+        matcher = pattern.matcher(window);
+        searchMatcher = SearchMatcher.from(matcher);
+    }
+
+    /**
+     * {@code page[offset, end)} as seen by the regex engine. Reading it
+     * counts down to the next clock check.
+     */
+    private final class Window implements CharSequence {
+        final int offset;
+        final int end;
+        long deadline;
+        int countdown;
+
+        Window(int offset, int end) {
+            this.offset = offset;
+            this.end = end;
+        }
+
+        boolean isLast() {
+            return end >= page.length();
+        }
+
+        @Override
+        public int length() {
+            return end - offset;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (--countdown <= 0) {
+                countdown = CHARS_PER_CLOCK_CHECK;
+                if (System.nanoTime() > deadline) {
+                    throw BudgetExceededException.INSTANCE;
+                }
+            }
+            return page.charAt(offset + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return page.substring(offset + start, offset + end);
+        }
+
+        @Override
+        public String toString() {
+            return page.substring(offset, end);
+        }
+    }
+
+    private static final class BudgetExceededException extends RuntimeException {
+        static final BudgetExceededException INSTANCE = new BudgetExceededException();
+
+        private BudgetExceededException() {
+            super("regex CPU budget exceeded", null, false, false);
+        }
+    }
+}
@@ -18,23 +18,30 @@
 
 package com.frostwire.search;
 
-import com.frostwire.regex.Matcher;
 import com.frostwire.regex.Pattern;
 import com.frostwire.search.SearchMatcher;
 import com.frostwire.util.Logger;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Abstract base class for regex-based search pattern implementations.
  * Provides common regex matching logic for parsing HTML results.
  *
+ * <p>Matching runs through a {@link RegexPageScanner}, so it is bounded in
+ * time per match and per page, and {@link #streamResults} hands results
+ * over in small batches while the rest of the page is still being matched.
+ *
  * @author gubatron
  */
 public abstract class RegexSearchPattern implements SearchPattern {
     private static final Logger LOG = Logger.getLogger(RegexSearchPattern.class);
     private static final int DEFAULT_MAX_RESULTS = 100;
+    /** Results per streamed batch, unless {@link #STREAM_BATCH_MS} passes first. */
+    private static final int STREAM_BATCH_SIZE = 8;
+    private static final long STREAM_BATCH_MS = 50;
 
     protected final int maxResults;
 
@@ -61,33 +68,63 @@ public abstract class RegexSearchPattern implements SearchPattern {
      */
     protected abstract FileSearchResult fromMatch(SearchMatcher matcher);
 
+    /**
+     * Creates the scanner the page is matched with. Override to change the
+     * window or CPU budgets for an engine with unusually large pages.
+     */
+    protected RegexPageScanner newScanner(Pattern pattern, String responseBody) {
+        return new RegexPageScanner(pattern, responseBody);
+    }
+
     @Override
     public List<FileSearchResult> parseResults(String responseBody) {
         List<FileSearchResult> results = new ArrayList<>();
+        streamResults(responseBody, batch -> {
+            results.addAll(batch);
+            return true;
+        });
+        return results;
+    }
 
+    @Override
+    public void streamResults(String responseBody, Predicate<List<FileSearchResult>> sink) {
         if (responseBody == null || responseBody.isEmpty()) {
-            return results;
+            return;
         }
 
+        int found = 0;
+        List<FileSearchResult> batch = new ArrayList<>();
+        long lastFlush = System.currentTimeMillis();
         try {
-            Pattern p = getPattern();
-            Matcher m = p.matcher(responseBody);
+            RegexPageScanner scanner = newScanner(getPattern(), responseBody);
 
-            while (m.find() && results.size() < maxResults) {
+            while (found < maxResults && scanner.find()) {
                 try {
-                    FileSearchResult result = fromMatch(SearchMatcher.from(m));
+                    FileSearchResult result = fromMatch(scanner.matcher());
                     if (result != null) {
-                        results.add(result);
+                        batch.add(result);
+                        found++;
                     }
                 } catch (Exception e) {
                     LOG.warn("Error parsing search result: " + e.getMessage());
                     // Continue to next match
                 }
+                long now = System.currentTimeMillis();
+                if (!batch.isEmpty() && (batch.size() >= STREAM_BATCH_SIZE || now - lastFlush >= STREAM_BATCH_MS)) {
+                    lastFlush = now;
+                    boolean more = sink.test(batch);
+                    batch = new ArrayList<>();
+                    if (!more) {
+                        return;
+                    }
+                }
             }
         } catch (Exception e) {
             LOG.error("Error executing regex pattern: " + e.getMessage(), e);
         }
 
-        return results;
+        if (!batch.isEmpty()) {
+            sink.test(batch);
+        }
     }
 }
@@ -19,6 +19,7 @@
 package com.frostwire.search;
 
 import com.frostwire.search.filter.SearchTable;
+import com.frostwire.util.HttpClientFactory;
 import com.frostwire.util.Logger;
 import com.frostwire.util.Ref;
 import com.frostwire.util.ThreadPool;
@@ -32,6 +33,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * @author gubatron
@@ -90,7 +92,9 @@ public final class SearchManager {
                 }
             });
             SearchTask task = new PerformTask(this, performer);
-            submitSimpleSearchTask(task, performer.isCrawler() ? crawlingExecutor : singlePageRequestExecutor);
+            ExecutorService executor = performer.isCrawler() ? crawlingExecutor : singlePageRequestExecutor;
+            warmUpIfQueued(performer, executor);
+            submitSimpleSearchTask(task, executor);
         } else {
             LOG.warn("Search performer is null, review your logic");
         }
@@ -113,6 +117,28 @@ public final class SearchManager {
         this.listener = listener;
     }
 
+    /**
+     * A performer that has to wait for a free search thread gets its
+     * engine's connection opened in the meantime, so its request doesn't
+     * pay for the TCP/TLS handshakes once it runs.
+     */
+    private static void warmUpIfQueued(ISearchPerformer performer, ExecutorService executor) {
+        if (!(performer instanceof SearchPerformer) || !(executor instanceof ThreadPoolExecutor)) {
+            return;
+        }
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+        if (pool.getActiveCount() + pool.getQueue().size() < pool.getMaximumPoolSize()) {
+            return;
+        }
+        SearchPerformer searchPerformer = (SearchPerformer) performer;
+        try {
+            String url = searchPerformer.getPattern().getSearchUrl(searchPerformer.getEncodedKeywords());
+            HttpClientFactory.warmUp(HttpClientFactory.HttpContext.SEARCH, Collections.singletonList(url));
+        } catch (Throwable t) {
+            LOG.debug("SearchManager::warmUpIfQueued failed: " + t.getMessage());
+        }
+    }
+
     private void submitSimpleSearchTask(SearchTask task, ExecutorService executor) {
         synchronized (tasks) {
             tasks.add(task);
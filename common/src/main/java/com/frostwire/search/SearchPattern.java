@@ -20,6 +20,7 @@ package com.frostwire.search;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * Strategy interface for defining how to search and parse results.
@@ -82,6 +83,24 @@ public interface SearchPattern {
      */
     List<FileSearchResult> parseResults(String responseBody);
 
+    /**
+     * Parses search results from the response body, handing them to {@code sink}
+     * in batches as they are found. Parsing stops early when {@code sink}
+     * returns false.
+     *
+     * <p>The default parses the whole body with {@link #parseResults(String)}
+     * and hands over a single batch.
+     *
+     * @param responseBody the HTTP response body (HTML or other format)
+     * @param sink receives each non-empty batch; returns false to stop parsing
+     */
+    default void streamResults(String responseBody, Predicate<List<FileSearchResult>> sink) {
+        List<FileSearchResult> results = parseResults(responseBody);
+        if (!results.isEmpty()) {
+            sink.test(results);
+        }
+    }
+
     /**
      * Gets custom HTTP headers for this search request.
      * Only called if the implementation needs custom headers (e.g., authentication, sessionId).
@@ -91,4 +110,17 @@ public interface SearchPattern {
     default Map<String, String> getCustomHeaders() {
         return null;
     }
+
+    /**
+     * Seconds a results page from this engine may be reused from the search
+     * HTTP cache without asking the server again; after that it is
+     * revalidated with its ETag / Last-Modified. Return 0 for engines whose
+     * results change too fast to reuse, or a negative value to keep the
+     * server's own caching headers.
+     *
+     * @return freshness in seconds
+     */
+    default int getCacheFreshnessSeconds() {
+        return -1;
+    }
 }
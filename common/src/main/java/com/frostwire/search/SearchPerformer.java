@@ -122,6 +122,10 @@ public class SearchPerformer implements ISearchPerformer {
                 }
             } else {
                 // Default: GET request
+                int freshness = pattern.getCacheFreshnessSeconds();
+                if (freshness >= 0) {
+                    HttpClientFactory.getSearchCache().setFreshness(searchUrl, freshness);
+                }
                 Map<String, String> customHeaders = pattern.getCustomHeaders();
                 responseBody = fetch(searchUrl, null, customHeaders);
             }
@@ -130,6 +134,23 @@ public class SearchPerformer implements ISearchPerformer {
                 return;
             }
 
+            if (crawlingStrategy == null) {
+                // Report results as the pattern finds them instead of once the page is done
+                boolean[] reported = {false};
+                pattern.streamResults(responseBody, batch -> {
+                    if (stopped) {
+                        return false;
+                    }
+                    reported[0] = true;
+                    onResults(batch);
+                    return true;
+                });
+                if (!reported[0]) {
+                    onResults(java.util.Collections.emptyList());
+                }
+                return;
+            }
+
             // Parse results
             List<FileSearchResult> results = pattern.parseResults(responseBody);
 
@@ -137,11 +158,10 @@ public class SearchPerformer implements ISearchPerformer {
                 return;
             }
 
-            // If we have a crawling strategy, use it to crawl the results
-            if (crawlingStrategy != null && !results.isEmpty()) {
+            // Crawl the results with the crawling strategy
+            if (!results.isEmpty()) {
                 crawlingStrategy.crawlResults(results, listener, token);
             } else {
-                // Otherwise, just report the results directly
                 onResults(results);
             }
         } catch (Exception e) {
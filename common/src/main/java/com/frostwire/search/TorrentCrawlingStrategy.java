@@ -22,6 +22,7 @@ import com.frostwire.licenses.License;
 import com.frostwire.search.PerformersHelper;
 import com.frostwire.search.SearchListener;
 import com.frostwire.search.torrent.TorrentCrawlableSearchResult;
+import com.frostwire.search.torrent.TorrentFiles;
 import com.frostwire.util.HttpClientFactory;
 import com.frostwire.util.Logger;
 import com.frostwire.util.http.HttpClient;
@@ -30,6 +31,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -58,6 +60,7 @@ public class TorrentCrawlingStrategy implements CrawlingStrategy {
     private final HttpClient httpClient;
     private final int timeout;
     private final int maxCrawls;
+    private final AlbumCluster albumCluster = new AlbumCluster();
 
     public TorrentCrawlingStrategy() {
         this(HttpClientFactory.getInstance(HttpClientFactory.HttpContext.SEARCH), 30000, 100);
@@ -86,13 +89,14 @@ public class TorrentCrawlingStrategy implements CrawlingStrategy {
                     try {
                         String torrentUrl = result.getTorrentUrl().orElse(null);
                         if (torrentUrl != null) {
-                            byte[] torrentData = fetchTorrentData(torrentUrl);
+                            byte[] torrentData = fetchTorrentData(torrentUrl, result.getTorrentHash().orElse(null));
                             if (torrentData != null) {
                                 // Extract files from torrent - result will be updated in-place
                                 List<? extends com.frostwire.search.SearchResult> crawledSearchResults = PerformersHelper.crawlTorrentInfo(
                                         null,  // No performer reference needed in v2
                                         new LegacyTorrentCrawlableResult(result),
-                                        torrentData
+                                        torrentData,
+                                        albumCluster
                                 );
 
                                 if (!crawledSearchResults.isEmpty()) {
@@ -124,18 +128,30 @@ public class TorrentCrawlingStrategy implements CrawlingStrategy {
         }
     }
 
-    private byte[] fetchTorrentData(String torrentUrl) {
+    private byte[] fetchTorrentData(String torrentUrl, String infoHash) {
         // Check cache first
         byte[] cachedData = cacheGet(torrentUrl);
         if (cachedData != null) {
             return cachedData;
         }
+        // Another engine (or an earlier session) may have fetched the same torrent
+        CrawlCache crawlCache = CrawlCacheManager.getCache();
+        if (crawlCache != null && infoHash != null) {
+            cachedData = crawlCache.get(infoHash.toLowerCase(Locale.US));
+            if (cachedData != null) {
+                cachePut(torrentUrl, cachedData);
+                return cachedData;
+            }
+        }
 
         // Fetch from URL
         try {
             byte[] data = httpClient.getBytes(torrentUrl, timeout, "FrostWire/1.0", null);
             if (data != null && data.length > 0) {
                 cachePut(torrentUrl, data);
+                if (crawlCache != null && infoHash != null) {
+                    cacheByInfoHash(crawlCache, infoHash, data);
+                }
             }
             return data;
         } catch (Exception e) {
@@ -144,6 +160,25 @@ public class TorrentCrawlingStrategy implements CrawlingStrategy {
         }
     }
 
+    /**
+     * Shares {@code data} under the infohash it actually has. A page can report the hash of
+     * another torrent than the one its link serves, caching under the reported hash would hand
+     * the wrong torrent to every engine that finds it.
+     */
+    private static void cacheByInfoHash(CrawlCache crawlCache, String reportedHash, byte[] data) {
+        String actualHash;
+        try {
+            actualHash = TorrentFiles.parse(data).infoHash();
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        if (!actualHash.equalsIgnoreCase(reportedHash)) {
+            LOG.warn("Torrent infohash " + actualHash + " doesn't match the reported " + reportedHash + ", not sharing it");
+            return;
+        }
+        crawlCache.put(actualHash.toLowerCase(Locale.US), data);
+    }
+
     private static byte[] cacheGet(String url) {
         synchronized (CACHE) {
             return CACHE.get(url);
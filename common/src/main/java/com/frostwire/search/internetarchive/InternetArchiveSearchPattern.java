@@ -57,6 +57,12 @@ public class InternetArchiveSearchPattern implements SearchPattern {
                 "&rows=50&page=1&output=json";
     }
 
+    @Override
+    public int getCacheFreshnessSeconds() {
+        // archive.org search results change slowly
+        return 300;
+    }
+
     @Override
     public List<FileSearchResult> parseResults(String responseBody) {
         List<FileSearchResult> results = new ArrayList<>();
@@ -19,9 +19,10 @@
 package com.frostwire.search.nyaa;
 import com.frostwire.search.CompositeFileSearchResult;
 
-import com.frostwire.regex.Matcher;
 import com.frostwire.regex.Pattern;
 import com.frostwire.search.FileSearchResult;
+import com.frostwire.search.RegexPageScanner;
+import com.frostwire.search.SearchMatcher;
 import com.frostwire.search.SearchPattern;
 import com.frostwire.util.HtmlManipulator;
 import com.frostwire.util.Logger;
@@ -90,10 +91,11 @@ public class NyaaSearchPattern implements SearchPattern {
             }
             String reducedPage = responseBody.substring(offset);
 
-            Matcher matcher = searchPattern.matcher(reducedPage);
+            RegexPageScanner scanner = new RegexPageScanner(searchPattern, reducedPage);
             int resultCount = 0;
 
-            while (matcher.find() && resultCount < MAX_RESULTS) {
+            while (scanner.find() && resultCount < MAX_RESULTS) {
+                SearchMatcher matcher = scanner.matcher();
                 try {
                     String displayName = matcher.group("displayname");
                     String magnetUrl = matcher.group("magneturl");
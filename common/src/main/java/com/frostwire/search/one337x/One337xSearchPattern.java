@@ -19,9 +19,10 @@
 package com.frostwire.search.one337x;
 import com.frostwire.search.CompositeFileSearchResult;
 
-import com.frostwire.regex.Matcher;
 import com.frostwire.regex.Pattern;
 import com.frostwire.search.FileSearchResult;
+import com.frostwire.search.RegexPageScanner;
+import com.frostwire.search.SearchMatcher;
 import com.frostwire.search.SearchPattern;
 import com.frostwire.search.TorrentMetadata;
 import com.frostwire.util.Logger;
@@ -85,11 +86,12 @@ public class One337xSearchPattern implements SearchPattern {
         }
 
         try {
-            Matcher matcher = searchResultsPattern.matcher(responseBody);
+            RegexPageScanner scanner = new RegexPageScanner(searchResultsPattern, responseBody);
             int resultCount = 0;
             int maxResults = 20;
 
-            while (matcher.find() && resultCount < maxResults) {
+            while (scanner.find() && resultCount < maxResults) {
+                SearchMatcher matcher = scanner.matcher();
                 try {
                     String itemId = matcher.group("itemId");
                     String htmlFileName = matcher.group("htmlFileName");
@@ -0,0 +1,323 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import com.frostwire.util.ThreadPool;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, expiring, asynchronous cache for remote lookups (DHT
+ * karma chains, index manifests).
+ *
+ * <p><b>Single flight:</b> concurrent misses for the same key share
+ * one load; only the first caller submits the loader to the
+ * executor, the rest get the same future.
+ *
+ * <p><b>Expiry:</b> a loaded value is fresh for {@code ttlMs}. For
+ * another {@code staleMs} after that it is still served, and the
+ * first read of a stale value starts a background refresh
+ * (stale-while-revalidate). A {@code null} load result is a negative
+ * entry ("peer has nothing published"); it expires after
+ * {@code negativeTtlMs} and is never served stale. A loader that
+ * throws caches nothing, the next read tries again.
+ *
+ * <p><b>Bound:</b> at most {@code maxEntries} keys, least recently
+ * used evicted first.
+ *
+ * <p>{@link #peek} never blocks, so callers on a latency-sensitive
+ * path (search ranking) can use whatever is cached and let the
+ * load complete in the background.
+ */
+public final class AsyncTtlCache<K, V> {
+
+    private static final int DEFAULT_LOADER_THREADS = 4;
+
+    private static volatile Executor defaultExecutor;
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final long staleMs;
+    private final long negativeTtlMs;
+    private final Executor executor;
+    private final LongSupplier clock;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<K, Slot<V>> slots = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public AsyncTtlCache(int maxEntries, long ttlMs, long staleMs, long negativeTtlMs) {
+        this(maxEntries, ttlMs, staleMs, negativeTtlMs, defaultExecutor(), System::currentTimeMillis);
+    }
+
+    AsyncTtlCache(int maxEntries, long ttlMs, long staleMs, long negativeTtlMs,
+                  Executor executor, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be > 0");
+        }
+        if (ttlMs <= 0 || staleMs < 0 || negativeTtlMs < 0) {
+            throw new IllegalArgumentException("invalid expiry: ttl=" + ttlMs
+                    + " stale=" + staleMs + " negativeTtl=" + negativeTtlMs);
+        }
+        if (executor == null || clock == null) {
+            throw new IllegalArgumentException("executor and clock are required");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.staleMs = staleMs;
+        this.negativeTtlMs = negativeTtlMs;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /**
+     * Shared daemon pool for the remote loaders, so a cold DHT lookup
+     * never runs on the thread that asked for it.
+     */
+    static Executor defaultExecutor() {
+        Executor e = defaultExecutor;
+        if (e == null) {
+            synchronized (AsyncTtlCache.class) {
+                e = defaultExecutor;
+                if (e == null) {
+                    e = ThreadPool.newThreadPool("RemoteFetch", DEFAULT_LOADER_THREADS, true);
+                    defaultExecutor = e;
+                }
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Returns the cached value for {@code key} (fresh or stale), or
+     * loads it. The future completes with {@code null} for a negative
+     * entry and exceptionally if the loader threw.
+     */
+    public CompletableFuture<V> get(K key, Function<K, V> loader) {
+        Lookup<V> lookup = lookup(key);
+        if (lookup.state == State.FRESH) {
+            return CompletableFuture.completedFuture(lookup.value);
+        }
+        if (lookup.state == State.STALE) {
+            load(key, loader);
+            return CompletableFuture.completedFuture(lookup.value);
+        }
+        return load(key, loader);
+    }
+
+    /**
+     * Non-blocking read: returns the cached value (fresh or stale) or
+     * {@code null}. A miss or a stale hit starts a background load; on
+     * a miss, a load that has already finished by the time this returns
+     * (same-thread executor, tiny source) is returned right away.
+     */
+    public V peek(K key, Function<K, V> loader) {
+        Lookup<V> lookup = lookup(key);
+        if (lookup.state == State.FRESH) {
+            return lookup.value;
+        }
+        CompletableFuture<V> future = load(key, loader);
+        if (lookup.state == State.MISSING && future.isDone() && !future.isCompletedExceptionally()) {
+            return future.join();
+        }
+        return lookup.value;
+    }
+
+    /** True if {@code key} has an entry, positive or negative, that has not fully expired. */
+    public boolean contains(K key) {
+        return lookup(key, false).state != State.MISSING;
+    }
+
+    /**
+     * Drops {@code key}. A load already in flight still completes for
+     * the callers waiting on it, but its result is not stored.
+     */
+    public void invalidate(K key) {
+        synchronized (lock) {
+            slots.remove(key);
+        }
+        inFlight.remove(key);
+    }
+
+    public void clear() {
+        synchronized (lock) {
+            slots.clear();
+        }
+        inFlight.clear();
+    }
+
+    /** Number of entries, positive and negative. */
+    public int size() {
+        synchronized (lock) {
+            return slots.size();
+        }
+    }
+
+    /** Number of non-negative entries. */
+    public int presentSize() {
+        synchronized (lock) {
+            int n = 0;
+            for (Slot<V> slot : slots.values()) {
+                if (slot.value != null) {
+                    n++;
+                }
+            }
+            return n;
+        }
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long staleHitCount() {
+        return staleHits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long loadCount() {
+        return loads.get();
+    }
+
+    public long coalescedCount() {
+        return coalesced.get();
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    private Lookup<V> lookup(K key) {
+        return lookup(key, true);
+    }
+
+    private Lookup<V> lookup(K key, boolean count) {
+        long now = clock.getAsLong();
+        Slot<V> slot;
+        synchronized (lock) {
+            slot = slots.get(key);
+            if (slot != null && now >= slot.staleUntilMs) {
+                slots.remove(key);
+                slot = null;
+            }
+        }
+        if (slot == null) {
+            if (count) {
+                misses.incrementAndGet();
+            }
+            return new Lookup<>(State.MISSING, null);
+        }
+        if (now < slot.freshUntilMs) {
+            if (count) {
+                hits.incrementAndGet();
+            }
+            return new Lookup<>(State.FRESH, slot.value);
+        }
+        if (count) {
+            staleHits.incrementAndGet();
+        }
+        return new Lookup<>(State.STALE, slot.value);
+    }
+
+    private CompletableFuture<V> load(K key, Function<K, V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing;
+        }
+        loads.incrementAndGet();
+        try {
+            executor.execute(() -> runLoad(key, loader, future));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void runLoad(K key, Function<K, V> loader, CompletableFuture<V> future) {
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (Throwable t) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(t);
+            return;
+        }
+        synchronized (lock) {
+            // skip the store if the key was invalidated while loading
+            if (inFlight.get(key) == future) {
+                store(key, value);
+            }
+        }
+        inFlight.remove(key, future);
+        future.complete(value);
+    }
+
+    private void store(K key, V value) {
+        long now = clock.getAsLong();
+        Slot<V> slot = value != null
+                ? new Slot<>(value, now + ttlMs, now + ttlMs + staleMs)
+                : new Slot<>(null, now + negativeTtlMs, now + negativeTtlMs);
+        slots.put(key, slot);
+        if (slots.size() > maxEntries) {
+            Iterator<Map.Entry<K, Slot<V>>> it = slots.entrySet().iterator();
+            while (slots.size() > maxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private enum State {
+        MISSING, FRESH, STALE
+    }
+
+    private static final class Lookup<V> {
+        final State state;
+        final V value;
+
+        Lookup(State state, V value) {
+            this.state = state;
+            this.value = value;
+        }
+    }
+
+    private static final class Slot<V> {
+        final V value;
+        final long freshUntilMs;
+        final long staleUntilMs;
+
+        Slot(V value, long freshUntilMs, long staleUntilMs) {
+            this.value = value;
+            this.freshUntilMs = freshUntilMs;
+            this.staleUntilMs = staleUntilMs;
+        }
+    }
+}
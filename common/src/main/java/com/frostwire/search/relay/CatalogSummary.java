@@ -0,0 +1,275 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import com.frostwire.jlibtorrent.Entry;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keyword summary of a node's whole shared catalog, published next to
+ * the index manifest so searchers can skip peers that cannot match.
+ *
+ * <p>The inline manifest of {@link IndexAnnouncementPublisher} only
+ * fits a handful of recent rows. The summary instead covers every row
+ * of the {@link LocalIndex} (name, tags and file paths) as a set of
+ * {@link KeywordBloomFilter} keys, split over up to {@link #MAX_SHARDS}
+ * shards so each one fits a BEP 44 item. A key lives in shard
+ * {@code shardOf(hash, shardCount)}, so a query only needs the shards
+ * its own keys map to.
+ *
+ * <p>Each shard is a BEP 46 mutable item under
+ * {@code RelayConstants.BEP46_SALT_INDEX_SUMMARY + "-" + index}:
+ * <pre>
+ * { "v": 2, "i": shardIndex, "n": shardCount, "k": hashes, "b": "base64 bits", "ts": epochSec }
+ * </pre>
+ *
+ * <p>Sizing: shards are {@link #SHARD_BYTES} each and the shard count
+ * grows with the number of distinct keys to keep about
+ * {@link #TARGET_BITS_PER_KEY} bits per key (roughly 1% false
+ * positives) until {@link #MAX_SHARDS} is reached; past that the
+ * false-positive rate rises but a match is never missed.
+ */
+public final class CatalogSummary {
+
+    /** 2: keys are prefixes of Porter stems; version 1 used raw token prefixes and is ignored. */
+    static final int VERSION = 2;
+
+    /** Bloom bytes per shard; base64 plus the other fields stays under the BEP 44 limit. */
+    static final int SHARD_BYTES = 640;
+
+    public static final int MAX_SHARDS = 16;
+
+    static final int TARGET_BITS_PER_KEY = 10;
+
+    private final KeywordBloomFilter[] shards;
+    private final int keyCount;
+
+    private CatalogSummary(KeywordBloomFilter[] shards, int keyCount) {
+        this.shards = shards;
+        this.keyCount = keyCount;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public KeywordBloomFilter shard(int index) {
+        return shards[index];
+    }
+
+    /** Number of distinct keys the summary was built from. */
+    public int keyCount() {
+        return keyCount;
+    }
+
+    /**
+     * False only if some token of {@code query} is certainly absent
+     * from the catalog. A query without tokens always might match.
+     */
+    public boolean mightMatch(String query) {
+        for (long h : queryHashes(query)) {
+            if (!shards[shardOf(h, shards.length)].mightContain(h)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Bencoded size of all shards, i.e. what one publish puts on the DHT. */
+    public int publishedBytes() {
+        int total = 0;
+        for (int i = 0; i < shards.length; i++) {
+            total += toEntry(i, 0).bencode().length;
+        }
+        return total;
+    }
+
+    /**
+     * SHA-1 of the shard geometry and bits, equal for two summaries
+     * that would publish the same shards.
+     */
+    public byte[] digest() {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            md.update((byte) shards.length);
+            for (KeywordBloomFilter shard : shards) {
+                md.update((byte) shard.hashes());
+                md.update(shard.toBytes());
+            }
+            return md.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Entry toEntry(int index, long timestampSec) {
+        Map<String, Object> map = new TreeMap<>();
+        map.put("b", new Entry(Base64.getEncoder().withoutPadding()
+                .encodeToString(shards[index].toBytes())));
+        map.put("i", new Entry((long) index));
+        map.put("k", new Entry((long) shards[index].hashes()));
+        map.put("n", new Entry((long) shards.length));
+        map.put("ts", new Entry(timestampSec));
+        map.put("v", new Entry((long) VERSION));
+        return Entry.fromMap(map);
+    }
+
+    /**
+     * Parses a published shard. Returns null if it is malformed, of an
+     * unknown version, or not the shard at {@code expectedIndex}.
+     */
+    public static Shard parseShard(Entry entry, int expectedIndex) {
+        try {
+            Map<String, Entry> dict = entry.dictionary();
+            if (dict.get("v").integer() != VERSION) {
+                return null;
+            }
+            long index = dict.get("i").integer();
+            long count = dict.get("n").integer();
+            if (index != expectedIndex || count < 1 || count > MAX_SHARDS || index >= count) {
+                return null;
+            }
+            byte[] bits = Base64.getDecoder().decode(dict.get("b").string());
+            KeywordBloomFilter filter = KeywordBloomFilter.fromBytes(bits,
+                    (int) dict.get("k").integer());
+            Entry ts = dict.get("ts");
+            return new Shard((int) index, (int) count, ts != null ? ts.integer() : 0, filter);
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /** Key hashes of the distinct tokens in {@code query}. */
+    public static long[] queryHashes(String query) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String token : KeywordBloomFilter.tokens(query)) {
+            keys.add(KeywordBloomFilter.key(token));
+        }
+        long[] out = new long[keys.size()];
+        int i = 0;
+        for (String key : keys) {
+            out[i++] = KeywordBloomFilter.hash(key);
+        }
+        return out;
+    }
+
+    /** The shard a key hash belongs to, independent of its bit positions. */
+    public static int shardOf(long keyHash, int shardCount) {
+        return (int) Math.floorMod(KeywordBloomFilter.mix(keyHash ^ 0x9e3779b97f4a7c15L), (long) shardCount);
+    }
+
+    /** One parsed shard of a remote summary. */
+    public static final class Shard {
+        private final int index;
+        private final int shardCount;
+        private final long generation;
+        private final KeywordBloomFilter filter;
+
+        Shard(int index, int shardCount, long generation, KeywordBloomFilter filter) {
+            this.index = index;
+            this.shardCount = shardCount;
+            this.generation = generation;
+            this.filter = filter;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public int shardCount() {
+            return shardCount;
+        }
+
+        /** The {@code ts} of the publish the shard came from, equal for every shard of it. */
+        public long generation() {
+            return generation;
+        }
+
+        public KeywordBloomFilter filter() {
+            return filter;
+        }
+    }
+
+    public static final class Builder {
+        private final Set<String> keys = new HashSet<>();
+        private int shardBytes = SHARD_BYTES;
+        private int maxShards = MAX_SHARDS;
+
+        private Builder() {
+        }
+
+        public Builder add(LocalSharedTorrent torrent) {
+            if (torrent != null) {
+                addText(torrent.name());
+                addText(torrent.tags());
+                // file paths; the JSON keys add a few constant keys, which is harmless
+                addText(torrent.filesJson());
+            }
+            return this;
+        }
+
+        public Builder addAll(Iterable<LocalSharedTorrent> torrents) {
+            for (LocalSharedTorrent t : torrents) {
+                add(t);
+            }
+            return this;
+        }
+
+        public Builder addText(String text) {
+            for (String token : KeywordBloomFilter.tokens(text)) {
+                keys.add(KeywordBloomFilter.key(token));
+            }
+            return this;
+        }
+
+        /** Overrides the shard geometry, for benchmarks. */
+        Builder geometry(int shardBytes, int maxShards) {
+            if (shardBytes <= 0 || maxShards < 1 || maxShards > MAX_SHARDS) {
+                throw new IllegalArgumentException("invalid geometry");
+            }
+            this.shardBytes = shardBytes;
+            this.maxShards = maxShards;
+            return this;
+        }
+
+        public CatalogSummary build() {
+            long shardBits = shardBytes * 8L;
+            long wantedBits = (long) keys.size() * TARGET_BITS_PER_KEY;
+            int count = (int) Math.max(1, Math.min(maxShards, (wantedBits + shardBits - 1) / shardBits));
+            long[] perShard = new long[count];
+            long[] hashes = new long[keys.size()];
+            int i = 0;
+            for (String key : keys) {
+                long h = KeywordBloomFilter.hash(key);
+                hashes[i++] = h;
+                perShard[shardOf(h, count)]++;
+            }
+            KeywordBloomFilter[] shards = new KeywordBloomFilter[count];
+            for (int s = 0; s < count; s++) {
+                shards[s] = new KeywordBloomFilter(shardBytes,
+                        KeywordBloomFilter.optimalHashes(shardBits, perShard[s]));
+            }
+            for (long h : hashes) {
+                shards[shardOf(h, count)].add(h);
+            }
+            return new CatalogSummary(shards, keys.size());
+        }
+    }
+}
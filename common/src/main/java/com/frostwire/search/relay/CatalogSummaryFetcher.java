@@ -0,0 +1,210 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import com.frostwire.jlibtorrent.Entry;
+import com.frostwire.jlibtorrent.SessionManager;
+import com.frostwire.util.Hex;
+import com.frostwire.util.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Fetches and caches remote peers' {@link CatalogSummary} shards and
+ * answers "can this peer match this query?" without blocking.
+ *
+ * <p>Shards are cached one by one in an {@link AsyncTtlCache} keyed by
+ * peer and shard index, and only the shards a query's keys map to
+ * are ever fetched. {@link #excludes(byte[], String)} only reads the
+ * cache: a shard that is not cached yet counts as "might match" and
+ * is fetched in the background for the next search. A peer is only
+ * excluded when a shard it published proves a query key is absent,
+ * so peers without a summary (older versions, DHT miss) are always
+ * queried.
+ *
+ * <p>The transport is abstracted behind {@link SummarySource}; the
+ * default is {@link DhtSummarySource}.
+ */
+public final class CatalogSummaryFetcher {
+
+    private static final Logger LOG = Logger.getLogger(CatalogSummaryFetcher.class);
+
+    public static final int MAX_CACHED_SHARDS = 4096;
+    public static final long SUMMARY_TTL_MS = 10 * 60 * 1000L;
+    public static final long SUMMARY_STALE_MS = 30 * 60 * 1000L;
+    public static final long ABSENT_TTL_MS = 5 * 60 * 1000L;
+
+    private final SummarySource source;
+    private final AsyncTtlCache<String, CatalogSummary.Shard> cache;
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong exclusions = new AtomicLong();
+    private final AtomicLong unknowns = new AtomicLong();
+
+    public CatalogSummaryFetcher(SummarySource source) {
+        this(source, AsyncTtlCache.defaultExecutor(), System::currentTimeMillis);
+    }
+
+    CatalogSummaryFetcher(SummarySource source, Executor executor, LongSupplier clock) {
+        if (source == null) {
+            throw new IllegalArgumentException("source is null");
+        }
+        this.source = source;
+        this.cache = new AsyncTtlCache<>(MAX_CACHED_SHARDS, SUMMARY_TTL_MS, SUMMARY_STALE_MS,
+                ABSENT_TTL_MS, executor, clock);
+    }
+
+    /**
+     * True only if {@code peerPub}'s cached summary shows that some
+     * token of {@code query} is not in its catalog. Never blocks.
+     */
+    public boolean excludes(byte[] peerPub, String query) {
+        if (peerPub == null || peerPub.length != 32) {
+            return false;
+        }
+        long[] hashes = CatalogSummary.queryHashes(query);
+        if (hashes.length == 0) {
+            return false;
+        }
+        checks.incrementAndGet();
+        String peerHex = Hex.encode(peerPub);
+        CatalogSummary.Shard first = shard(peerPub, peerHex, 0);
+        if (first == null) {
+            unknowns.incrementAndGet();
+            return false;
+        }
+        int count = first.shardCount();
+        boolean complete = true;
+        for (long h : hashes) {
+            int index = CatalogSummary.shardOf(h, count);
+            CatalogSummary.Shard shard = index == 0 ? first : shard(peerPub, peerHex, index);
+            if (shard == null) {
+                complete = false;
+                continue;
+            }
+            if (shard.shardCount() != count || shard.generation() != first.generation()) {
+                // published by a different generation of the summary, refetch both
+                cache.invalidate(cacheKey(peerHex, index));
+                cache.invalidate(cacheKey(peerHex, 0));
+                complete = false;
+                continue;
+            }
+            if (!shard.filter().mightContain(h)) {
+                exclusions.incrementAndGet();
+                return true;
+            }
+        }
+        if (!complete) {
+            unknowns.incrementAndGet();
+        }
+        return false;
+    }
+
+    /** Drops every cached shard of a peer. */
+    public void evict(byte[] peerPub) {
+        if (peerPub == null || peerPub.length != 32) {
+            return;
+        }
+        String peerHex = Hex.encode(peerPub);
+        for (int i = 0; i < CatalogSummary.MAX_SHARDS; i++) {
+            cache.invalidate(cacheKey(peerHex, i));
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /** Number of {@link #excludes} calls that had query tokens. */
+    public long checkCount() {
+        return checks.get();
+    }
+
+    /** Number of {@link #excludes} calls that returned true. */
+    public long exclusionCount() {
+        return exclusions.get();
+    }
+
+    /** Number of checks that could not use the whole summary (not cached yet). */
+    public long unknownCount() {
+        return unknowns.get();
+    }
+
+    /** The underlying cache, for its hit/miss/coalescing counters. */
+    public AsyncTtlCache<String, CatalogSummary.Shard> cache() {
+        return cache;
+    }
+
+    private CatalogSummary.Shard shard(byte[] peerPub, String peerHex, int index) {
+        return cache.peek(cacheKey(peerHex, index), key -> load(peerPub, peerHex, index));
+    }
+
+    /** Runs on the cache's loader pool; null (cached as absent) for a missing or malformed shard. */
+    private CatalogSummary.Shard load(byte[] peerPub, String peerHex, int index) {
+        Entry entry;
+        try {
+            entry = source.fetchShard(peerPub, index);
+        } catch (RuntimeException e) {
+            LOG.debug("Catalog summary fetch failed for peer " + peerHex + " shard " + index, e);
+            throw e;
+        }
+        return entry == null ? null : CatalogSummary.parseShard(entry, index);
+    }
+
+    private static String cacheKey(String peerHex, int index) {
+        return peerHex + '/' + index;
+    }
+
+    static byte[] salt(int index) {
+        return (RelayConstants.BEP46_SALT_INDEX_SUMMARY + "-" + index)
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Pluggable transport for summary shards. Tests substitute a fake
+     * to avoid a real DHT.
+     */
+    public interface SummarySource {
+
+        /** The published shard, or null if there is none or the lookup failed. */
+        Entry fetchShard(byte[] peerPub, int index);
+    }
+
+    /**
+     * BEP 46 mutable DHT lookup of a summary shard under the peer's
+     * key and the shard's salt. jlibtorrent verifies the publisher
+     * signature on the returned item.
+     */
+    public static final class DhtSummarySource implements SummarySource {
+
+        private static final int DEFAULT_DHT_TIMEOUT_MS = 5000;
+
+        private final SessionManager session;
+
+        public DhtSummarySource(SessionManager session) {
+            if (session == null) {
+                throw new IllegalArgumentException("session is null");
+            }
+            this.session = session;
+        }
+
+        @Override
+        public Entry fetchShard(byte[] peerPub, int index) {
+            try {
+                SessionManager.MutableItem item = session.dhtGetItem(peerPub, salt(index),
+                        DEFAULT_DHT_TIMEOUT_MS);
+                return item == null ? null : item.item;
+            } catch (Throwable t) {
+                LOG.debug("DhtSummarySource fetch failed for peer " + Hex.encode(peerPub), t);
+                return null;
+            }
+        }
+    }
+}
@@ -22,6 +22,8 @@ import java.util.function.Supplier;
  * Background daemon task that keeps the node visible on the DHT. Each tick:
  * <ol>
  *   <li>Re-publishes our {@link IdentityRecord} as a BEP 46 mutable item.</li>
+ *   <li>When an {@link IndexAnnouncementPublisher} is set, publishes the index
+ *       manifest and the {@link CatalogSummary} shards.</li>
  *   <li>Optionally announces under the BEP 5 peer topic.</li>
  *   <li>Announces under the BEP 5 relay topic when role is FORWARDER/BOTH
  *       (or CLIENT auto-elected as connectable).</li>
@@ -176,6 +178,7 @@ public final class DhtAdvertiser {
                 if (rows > 0) {
                     indexPublishes.incrementAndGet();
                 }
+                indexPublisher.publishSummaryIfNeeded(session);
             }
             int announcePort = identityPublisher.utpPort();
             if (announcePeerTopic) {
@@ -23,12 +23,12 @@ import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.security.Signature;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -43,9 +43,25 @@ import java.util.concurrent.TimeUnit;
  * response against the expected responder's Ed25519 public key.
  *
  * <p>Fail-closed: unreachable peers, invalid signatures, stale responses,
- * wrong nonces, and rate-limited peers simply contribute no results. The
- * listener always receives a single {@code onResults} callback with the merged
- * local + peer result set, even if every peer fails.
+ * wrong nonces, and rate-limited peers simply contribute no results. By
+ * default the listener receives a single {@code onResults} callback with the
+ * merged local + peer result set, even if every peer fails.
+ *
+ * <p>Streaming: every response chunk is signed on its own, so each one is
+ * verified and its rows used as soon as it arrives. With
+ * {@link #setStreamResults} the listener sees those rows right away too.
+ *
+ * <p>Fanout pruning: when a {@link CatalogSummaryFetcher} is given, peers
+ * whose published {@link CatalogSummary} proves they hold nothing for the
+ * query are dropped before the top {@code maxPeers} are picked. Peers that
+ * advertise {@link NodeCapabilities#RELAY} are kept regardless, since they
+ * may forward the request on.
+ *
+ * <p>Latency: responses, timeouts and end-to-end search times are recorded
+ * in the directory's {@link PeerLatencyTracker}. Silent peers are given up
+ * on at an adaptive per-request deadline instead of always waiting
+ * {@code peerTimeoutSec}, and a peer that has not answered by its p95 is
+ * hedged to the next-best peer.
  *
  * <p>Source label for all results: {@link #SOURCE_NAME}.
  */
@@ -67,6 +83,7 @@ public final class DistributedSearchPerformer implements ISearchPerformer {
     private final PeerDirectory peerDirectory;
     private final IdentityKeys identity;
     private final DistributedSearchTransport transport;
+    private final CatalogSummaryFetcher summaries;
     private final int maxPeers;
     private final int localLimit;
     private final int peerLimit;
@@ -74,13 +91,27 @@ public final class DistributedSearchPerformer implements ISearchPerformer {
 
     private volatile boolean stopped;
     private volatile SearchListener listener;
+    private volatile boolean streamResults;
 
     public DistributedSearchPerformer(long token, String keywords,
                                        LocalIndex localIndex,
                                        PeerDirectory peerDirectory,
                                        IdentityKeys identity,
                                        DistributedSearchTransport transport) {
-        this(token, keywords, localIndex, peerDirectory, identity, transport,
+        this(token, keywords, localIndex, peerDirectory, identity, transport, null);
+    }
+
+    /**
+     * @param summaries peers' catalog summaries used to prune the fanout,
+     *                  or null to query the top peers unconditionally
+     */
+    public DistributedSearchPerformer(long token, String keywords,
+                                       LocalIndex localIndex,
+                                       PeerDirectory peerDirectory,
+                                       IdentityKeys identity,
+                                       DistributedSearchTransport transport,
+                                       CatalogSummaryFetcher summaries) {
+        this(token, keywords, localIndex, peerDirectory, identity, transport, summaries,
                 DEFAULT_MAX_PEERS, DEFAULT_LOCAL_LIMIT, DEFAULT_PEER_LIMIT, DEFAULT_PEER_TIMEOUT_SEC);
     }
 
@@ -93,6 +124,20 @@ public final class DistributedSearchPerformer implements ISearchPerformer {
                                        int localLimit,
                                        int peerLimit,
                                        int peerTimeoutSec) {
+        this(token, keywords, localIndex, peerDirectory, identity, transport, null,
+                maxPeers, localLimit, peerLimit, peerTimeoutSec);
+    }
+
+    public DistributedSearchPerformer(long token, String keywords,
+                                       LocalIndex localIndex,
+                                       PeerDirectory peerDirectory,
+                                       IdentityKeys identity,
+                                       DistributedSearchTransport transport,
+                                       CatalogSummaryFetcher summaries,
+                                       int maxPeers,
+                                       int localLimit,
+                                       int peerLimit,
+                                       int peerTimeoutSec) {
         if (token < 0) {
             throw new IllegalArgumentException("token must be >= 0");
         }
@@ -130,12 +175,22 @@ public final class DistributedSearchPerformer implements ISearchPerformer {
         this.peerDirectory = peerDirectory;
         this.identity = identity;
         this.transport = transport;
+        this.summaries = summaries;
         this.maxPeers = maxPeers;
         this.localLimit = localLimit;
         this.peerLimit = peerLimit;
         this.peerTimeoutSec = peerTimeoutSec;
     }
 
+    /**
+     * When true, local rows are reported right away and each verified
+     * peer chunk's new rows as it arrives, instead of one merged
+     * {@code onResults} at the end. Off by default.
+     */
+    public void setStreamResults(boolean streamResults) {
+        this.streamResults = streamResults;
+    }
+
     @Override
     public long getToken() {
         return token;
@@ -151,8 +206,10 @@ public final class DistributedSearchPerformer implements ISearchPerformer {
         if (stopped || l == null) {
             return;
         }
+        long startNanos = System.nanoTime();
         try {
-            List<FileSearchResult> merged = new ArrayList<>(queryLocal());
+            ResultBatcher batches = new ResultBatcher(l, streamResults);
+            batches.add(queryLocal());
             if (stopped) {
                 return;
             }
@@ -165,19 +222,22 @@ public final class DistributedSearchPerformer implements ISearchPerformer {
                 peers = peerDirectory.topByTrustVerified(maxPeers);
             }
             peers = KeyspaceRouter.rankByKeyspace(keywords, peers);
+            peers = pruneBySummary(peers);
+            // Keyspace order decides who to ask; peers that keep timing out go last.
+            peers = peerDirectory.latency().demoteUnresponsive(peers);
+            List<PeerDirectory.PeerInfo> spares = List.of();
             if (peers.size() > maxPeers) {
+                spares = peers.subList(maxPeers, peers.size());
                 peers = peers.subList(0, maxPeers);
             }
             if (!peers.isEmpty()) {
-                merged.addAll(queryPeers(peers));
+                queryPeers(peers, spares, batches);
             }
             if (stopped) {
                 return;
             }
-            List<FileSearchResult> deduped = dedupeByInfoHash(merged);
-            List<SearchResult> widened = new ArrayList<>(deduped.size());
-            widened.addAll(deduped);
-            l.onResults(token, widened);
+            recordSearchLatency(startNanos);
+            batches.finish();
         } catch (Throwable t) {
             LOG.warn("DistributedSearchPerformer failed for token " + token, t);
             if (listener != null && !stopped) {
@@ -228,6 +288,14 @@ public final class DistributedSearchPerformer implements ISearchPerformer {
         return false;
     }
 
+    private void recordSearchLatency(long startNanos) {
+        PeerLatencyTracker latency = peerDirectory.latency();
+        latency.recordSearch(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        LOG.debug("DistributedSearchPerformer: search latency p50="
+                + latency.searchLatencyP50Ms() + "ms p99=" + latency.searchLatencyP99Ms()
+                + "ms over " + latency.searchCount() + " search(es)");
+    }
+
     /**
      * Query the local index and wrap each row as a {@link CompositeFileSearchResult}
      * tagged with {@link #SOURCE_NAME}.
@@ -241,26 +309,55 @@ public final class DistributedSearchPerformer implements ISearchPerformer {
         return out;
     }
 
+    /**
+     * Drops the peers whose cached catalog summary rules out the query.
+     * Never blocks: peers whose summary isn't cached yet are kept (and
+     * their summary is fetched for next time).
+     */
+    private List<PeerDirectory.PeerInfo> pruneBySummary(List<PeerDirectory.PeerInfo> peers) {
+        if (summaries == null || peers.isEmpty()) {
+            return peers;
+        }
+        List<PeerDirectory.PeerInfo> kept = new ArrayList<>(peers.size());
+        for (PeerDirectory.PeerInfo peer : peers) {
+            if (NodeCapabilities.has(peer.capabilities(), NodeCapabilities.RELAY)
+                    || !summaries.excludes(peer.peerPub(), keywords)) {
+                kept.add(peer);
+            }
+        }
+        if (kept.size() < peers.size()) {
+            LOG.debug("DistributedSearchPerformer: catalog summaries ruled out "
+                    + (peers.size() - kept.size()) + " of " + peers.size() + " peer(s)");
+        }
+        return kept;
+    }
+
     /**
      * Send signed requests to all peers in parallel, then wait for responses
-     * to arrive on the transport within the timeout window.
+     * to arrive on the transport.
      *
      * <p>A temporary {@link DistributedSearchTransport.PayloadListener} is
      * registered for the duration of the search. It decodes each inbound
      * payload as a {@link RemoteSearchResponse}, matches the nonce to a
      * pending request, verifies the signature against the expected peer's
      * public key, and collects verified rows.
+     *
+     * <p>Each peer is a slot. A request that sees no verified frame within
+     * its {@link PeerLatencyTracker#deadlineMs adaptive deadline} is given
+     * up on and counted as a timeout. If a slot has no frame by its peer's
+     * {@link PeerLatencyTracker#hedgeDelayMs p95}, the same query goes once
+     * to the next peer of {@code spares}; whichever answers first completes
+     * the slot. The whole wait never exceeds {@code peerTimeoutSec}.
      */
-    private List<FileSearchResult> queryPeers(List<PeerDirectory.PeerInfo> peers) {
-        // The latch covers every peer: successful sends will be counted down
-        // when a response arrives (or times out); failed sends are counted
-        // down immediately. The listener is registered BEFORE any sends so
-        // that responses delivered by the transport's poller thread are not
-        // missed.
-        int totalPeers = peers.size();
+    private void queryPeers(List<PeerDirectory.PeerInfo> peers,
+                            List<PeerDirectory.PeerInfo> spares,
+                            ResultBatcher batches) {
+        // The listener is registered BEFORE any sends so that responses
+        // delivered by the transport's poller thread are not missed.
+        PeerLatencyTracker latency = peerDirectory.latency();
         Map<String, PendingRequest> pending = new ConcurrentHashMap<>();
-        List<FileSearchResult> results = Collections.synchronizedList(new ArrayList<>());
-        CountDownLatch latch = new CountDownLatch(totalPeers);
+        List<Slot> slots = new ArrayList<>(peers.size());
+        Object lock = new Object();
 
         DistributedSearchTransport.PayloadListener responseListener =
                 (sourcePub, payload, receivedMs) -> {
@@ -279,54 +376,101 @@ public final class DistributedSearchPerformer implements ISearchPerformer {
                                 + " final=" + response.isFinalChunk());
                         // Bad frame: drop but keep waiting for a good final
                         // or timeout unless this claimed to be final.
-                        if (response.isFinalChunk()) {
-                            if (pending.remove(nonceKey, req)) {
-                                latch.countDown();
-                            }
+                        if (response.isFinalChunk() && pending.remove(nonceKey, req)) {
+                            finish(lock, req, false);
                         }
                         return;
                     }
+                    if (!req.firstDelivery(response.chunkIndex())) {
+                        return; // the same signed chunk again, e.g. via another mesh path
+                    }
+                    if (req.markAnswered()) {
+                        latency.recordResponse(req.peer.peerPub(),
+                                (System.nanoTime() - req.sentNanos) / 1_000_000L);
+                    }
                     try {
                         List<FileSearchResult> converted = toResults(response);
-                        results.addAll(converted);
+                        batches.add(converted);
                         LOG.info("DistributedSearchPerformer: accepted " + converted.size()
                                 + " row(s) from " + req.peer.hostname());
                     } catch (Throwable t) {
                         LOG.warn("Failed to convert search response rows", t);
                     }
                     // Stream: only complete the peer when final=true. Intermediate RESULT chunks accumulate.
-                    if (response.isFinalChunk()) {
-                        if (pending.remove(nonceKey, req)) {
-                            latch.countDown();
-                        }
+                    if (response.isFinalChunk() && pending.remove(nonceKey, req)) {
+                        finish(lock, req, true);
                     }
                 };
 
+        long startNanos = System.nanoTime();
+        long maxWaitMs = TimeUnit.SECONDS.toMillis(peerTimeoutSec);
+        long hardStopNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        int nextSpare = 0;
         transport.addListener(responseListener);
         try {
             for (PeerDirectory.PeerInfo peer : peers) {
                 if (stopped) {
-                    latch.countDown();
-                    continue;
+                    break;
                 }
-                try {
-                    RemoteSearchRequest request = buildSignedRequest(keywords, peerLimit);
-                    byte[] payload = SearchPayloadCodec.encodeRequest(request);
-                    String nonce = Hex.encode(request.nonce());
-                    pending.put(nonce, new PendingRequest(peer, request));
-                    if (!transport.send(peer.peerPub(),
-                            com.frostwire.search.relay.icebridge.MeshProtocolId.SEARCH, payload)) {
-                        pending.remove(nonce);
-                        latch.countDown(); // send failed — no response expected
+                Slot slot = new Slot();
+                slots.add(slot);
+                send(peer, slot, pending, lock, maxWaitMs);
+            }
+            while (!stopped) {
+                List<Slot> toHedge = new ArrayList<>();
+                synchronized (lock) {
+                    long now = System.nanoTime();
+                    if (now >= hardStopNanos) {
+                        break;
+                    }
+                    long wakeNanos = hardStopNanos;
+                    boolean open = false;
+                    for (Slot slot : slots) {
+                        if (slot.done) {
+                            continue;
+                        }
+                        for (PendingRequest req : slot.requests) {
+                            if (req.live && !req.answered && now >= req.deadlineNanos) {
+                                // silent past its deadline: stop waiting on it
+                                pending.remove(Hex.encode(req.request.nonce()), req);
+                                latency.recordTimeout(req.peer.peerPub());
+                                finish(lock, req, false);
+                            } else if (req.live && !req.answered) {
+                                wakeNanos = Math.min(wakeNanos, req.deadlineNanos);
+                            }
+                        }
+                        if (slot.done) {
+                            continue;
+                        }
+                        open = true;
+                        if (!slot.hedged && !slot.answered() && slot.hedgeAtNanos > 0
+                                && nextSpare + toHedge.size() < spares.size()) {
+                            if (now >= slot.hedgeAtNanos) {
+                                slot.hedged = true;
+                                toHedge.add(slot);
+                            } else {
+                                wakeNanos = Math.min(wakeNanos, slot.hedgeAtNanos);
+                            }
+                        }
+                    }
+                    if (!open) {
+                        break;
                     }
-                } catch (Throwable t) {
-                    LOG.debug("Failed to send search request to peer "
-                            + peer.hostname() + ":" + peer.utpPort()
-                            + " token=" + token, t);
-                    latch.countDown();
+                    if (toHedge.isEmpty()) {
+                        long waitMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(wakeNanos - now));
+                        lock.wait(waitMs);
+                        continue;
+                    }
+                }
+                for (Slot slot : toHedge) {
+                    PeerDirectory.PeerInfo spare = spares.get(nextSpare++);
+                    latency.recordHedge();
+                    LOG.debug("DistributedSearchPerformer: hedging to " + spare.hostname()
+                            + " after no answer within the primary's p95");
+                    send(spare, slot, pending, lock,
+                            TimeUnit.NANOSECONDS.toMillis(hardStopNanos - System.nanoTime()));
                 }
             }
-            latch.await(peerTimeoutSec, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         } finally {
@@ -334,7 +478,63 @@ public final class DistributedSearchPerformer implements ISearchPerformer {
             // Clear any unresponded entries to prevent memory leak.
             pending.clear();
         }
-        return results;
+    }
+
+    /**
+     * Sends one signed request for {@code slot}. A failed send leaves the
+     * request finished, so the slot completes if nothing else is live.
+     */
+    private void send(PeerDirectory.PeerInfo peer, Slot slot, Map<String, PendingRequest> pending,
+                      Object lock, long maxWaitMs) {
+        PeerLatencyTracker latency = peerDirectory.latency();
+        long now = System.nanoTime();
+        long deadlineMs = latency.deadlineMs(peer.peerPub(), Math.max(1, maxWaitMs));
+        PendingRequest req = new PendingRequest(peer, slot, now,
+                now + TimeUnit.MILLISECONDS.toNanos(deadlineMs));
+        synchronized (lock) {
+            slot.requests.add(req);
+            if (!slot.hedged && slot.hedgeAtNanos == 0) {
+                long hedgeMs = latency.hedgeDelayMs(peer.peerPub());
+                if (hedgeMs > 0 && hedgeMs < deadlineMs) {
+                    slot.hedgeAtNanos = now + TimeUnit.MILLISECONDS.toNanos(hedgeMs);
+                }
+            }
+        }
+        try {
+            req.request = buildSignedRequest(keywords, peerLimit);
+            byte[] payload = SearchPayloadCodec.encodeRequest(req.request);
+            String nonce = Hex.encode(req.request.nonce());
+            pending.put(nonce, req);
+            if (!transport.send(peer.peerPub(),
+                    com.frostwire.search.relay.icebridge.MeshProtocolId.SEARCH, payload)) {
+                if (pending.remove(nonce, req)) {
+                    finish(lock, req, false); // send failed — no response expected
+                }
+            }
+        } catch (Throwable t) {
+            LOG.debug("Failed to send search request to peer "
+                    + peer.hostname() + ":" + peer.utpPort()
+                    + " token=" + token, t);
+            finish(lock, req, false);
+        }
+    }
+
+    /**
+     * Marks {@code req} no longer live. Its slot is done on a complete
+     * response, or when no request of the slot is live anymore.
+     */
+    private static void finish(Object lock, PendingRequest req, boolean completed) {
+        synchronized (lock) {
+            if (!req.live) {
+                return;
+            }
+            req.live = false;
+            Slot slot = req.slot;
+            if (completed || slot.requests.stream().noneMatch(r -> r.live)) {
+                slot.done = true;
+            }
+            lock.notifyAll();
+        }
     }
 
     private RemoteSearchRequest buildSignedRequest(String keywords, int limit) throws GeneralSecurityException {
@@ -421,28 +621,111 @@ public final class DistributedSearchPerformer implements ISearchPerformer {
     }
 
     /**
-     * Deduplicate by infohash, preserving order. The first occurrence
-     * (local results are queried first) wins.
+     * Deduplicates results by infohash across the local rows and every
+     * peer chunk, keeping the first occurrence (local rows come first).
+     * Rows without an infohash are dropped. Streaming reports each
+     * batch's new rows on arrival and an empty batch if nothing was ever
+     * reported; otherwise one merged batch is reported at the end.
      */
-    private static List<FileSearchResult> dedupeByInfoHash(List<FileSearchResult> results) {
-        Map<String, FileSearchResult> seen = new LinkedHashMap<>();
-        for (FileSearchResult r : results) {
-            if (!(r instanceof CompositeFileSearchResult)) {
-                continue;
+    private final class ResultBatcher {
+        private final SearchListener listener;
+        private final boolean streaming;
+        private final Map<String, FileSearchResult> seen = new LinkedHashMap<>();
+        private boolean reported;
+        private boolean finished;
+
+        ResultBatcher(SearchListener listener, boolean streaming) {
+            this.listener = listener;
+            this.streaming = streaming;
+        }
+
+        synchronized void add(List<FileSearchResult> batch) {
+            if (finished || stopped) {
+                return;
             }
-            CompositeFileSearchResult c = (CompositeFileSearchResult) r;
-            if (c.getTorrentHash().isEmpty()) {
-                continue;
+            List<SearchResult> fresh = new ArrayList<>(batch.size());
+            for (FileSearchResult r : batch) {
+                if (!(r instanceof CompositeFileSearchResult)) {
+                    continue;
+                }
+                CompositeFileSearchResult c = (CompositeFileSearchResult) r;
+                if (c.getTorrentHash().isEmpty()) {
+                    continue;
+                }
+                if (seen.putIfAbsent(c.getTorrentHash().get(), r) == null) {
+                    fresh.add(r);
+                }
             }
-            String hash = c.getTorrentHash().get();
-            if (!seen.containsKey(hash)) {
-                seen.put(hash, r);
+            if (streaming && !fresh.isEmpty()) {
+                reported = true;
+                listener.onResults(token, fresh);
+            }
+        }
+
+        synchronized void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (!streaming) {
+                listener.onResults(token, new ArrayList<SearchResult>(seen.values()));
+            } else if (!reported) {
+                listener.onResults(token, new ArrayList<SearchResult>());
             }
         }
-        return new ArrayList<>(seen.values());
     }
 
-    /** Associates a sent request with the peer it was sent to. */
-    private record PendingRequest(PeerDirectory.PeerInfo peer, RemoteSearchRequest request) {
+    /** One peer's share of the fanout; hedging may add a second request to it. */
+    private static final class Slot {
+        final List<PendingRequest> requests = new ArrayList<>(2);
+        long hedgeAtNanos;
+        boolean hedged;
+        boolean done;
+
+        boolean answered() {
+            for (PendingRequest r : requests) {
+                if (r.answered) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Associates a sent request with the peer it was sent to. The slot
+     * fields are guarded by the search's lock; {@code answered} is also
+     * set from the transport thread.
+     */
+    private static final class PendingRequest {
+        final PeerDirectory.PeerInfo peer;
+        final Slot slot;
+        final long sentNanos;
+        final long deadlineNanos;
+        volatile RemoteSearchRequest request;
+        volatile boolean answered;
+        boolean live = true;
+        private final Set<Integer> chunks = new HashSet<>();
+
+        PendingRequest(PeerDirectory.PeerInfo peer, Slot slot, long sentNanos, long deadlineNanos) {
+            this.peer = peer;
+            this.slot = slot;
+            this.sentNanos = sentNanos;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /** True the first time chunk {@code index} is delivered. */
+        synchronized boolean firstDelivery(int index) {
+            return chunks.add(index);
+        }
+
+        /** True only for the first verified frame. */
+        synchronized boolean markAnswered() {
+            if (answered) {
+                return false;
+            }
+            answered = true;
+            return true;
+        }
     }
 }
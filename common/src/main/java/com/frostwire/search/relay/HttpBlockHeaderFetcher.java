@@ -14,8 +14,10 @@ import com.frostwire.util.http.HttpClient;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ConcurrentHashMap;
@@ -28,7 +30,9 @@ import java.util.concurrent.ConcurrentHashMap;
  * it is never re-fetched (Bitcoin blocks are immutable).
  *
  * <p>The local cache is a flat file {@code <cacheDir>/block-headers.cache}
- * with one line per cached block: {@code <height> <hex-hash>}.
+ * with one line per cached block: {@code <height> <hex-hash>}. It is
+ * append-only: a newly fetched block adds its line instead of rewriting
+ * the file, and a torn or malformed line is skipped on load.
  *
  * <p>Thread-safe: uses a {@link ConcurrentHashMap} for the in-memory
  * cache and synchronizes file writes.
@@ -71,8 +75,9 @@ public final class HttpBlockHeaderFetcher implements BlockHeaderSource {
                 String response = fetch(api.blockUrl(height));
                 byte[] parsedHash = api.parseBlockHash(response);
                 if (parsedHash != null) {
-                    cache.put(height, parsedHash);
-                    persistCache();
+                    if (cache.putIfAbsent(height, parsedHash) == null) {
+                        appendToCache(height, parsedHash);
+                    }
                     return new BitcoinBlockReference(height, parsedHash);
                 }
             } catch (Throwable t) {
@@ -132,10 +137,13 @@ public final class HttpBlockHeaderFetcher implements BlockHeaderSource {
         }
     }
 
-    private synchronized void persistCache() {
-        try (PrintWriter writer = new PrintWriter(cacheFile, StandardCharsets.UTF_8)) {
-            cache.forEach((height, hash) ->
-                    writer.println(height + " " + Hex.encode(hash)));
+    private synchronized void appendToCache(long height, byte[] hash) {
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(cacheFile, true), StandardCharsets.UTF_8))) {
+            writer.println(height + " " + Hex.encode(hash));
+            if (writer.checkError()) {
+                throw new IOException("write failed");
+            }
         } catch (IOException e) {
             LOG.warn("Failed to persist block header cache", e);
         }
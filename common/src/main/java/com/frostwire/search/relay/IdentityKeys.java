@@ -21,7 +21,6 @@ import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.security.Provider;
 import java.security.PublicKey;
-import java.security.SecureRandom;
 import java.security.Security;
 import java.security.Signature;
 import java.security.spec.NamedParameterSpec;
@@ -152,6 +151,21 @@ public final class IdentityKeys {
      * accepted as-is. PoW is enforced on new identity creation only.
      */
     public static IdentityKeys loadOrCreate(File file) throws IOException, GeneralSecurityException {
+        return loadOrCreate(file, KarmaConstants.IDENTITY_DIFFICULTY, 0, null);
+    }
+
+    /**
+     * Like {@link #loadOrCreate(File)}, but a new identity is mined with
+     * {@link IdentityMiner#mineBest}: for up to {@code budgetMs} on all
+     * cores, aiming for {@code targetDifficulty} leading zero bits and
+     * never settling for fewer than
+     * {@link KarmaConstants#IDENTITY_DIFFICULTY}.
+     *
+     * @param listener mining progress, may be null
+     */
+    public static IdentityKeys loadOrCreate(File file, int targetDifficulty, long budgetMs,
+                                            IdentityMiner.ProgressListener listener)
+            throws IOException, GeneralSecurityException {
         if (file == null) {
             throw new IllegalArgumentException("file is null");
         }
@@ -160,15 +174,20 @@ public final class IdentityKeys {
             return load(file);
         }
         int difficulty = KarmaConstants.IDENTITY_DIFFICULTY;
+        int target = Math.max(difficulty, targetDifficulty);
+        IdentityMiner miner = new IdentityMiner();
         LOG.info("No identity at " + file.getAbsolutePath()
                 + " — mining proof-of-work identity (" + difficulty
-                + " leading zero bits; typically a few seconds with native Ed25519)…");
+                + (target > difficulty ? "-" + target + " leading zero bits within " + budgetMs + " ms"
+                        : " leading zero bits")
+                + " on " + miner.threads() + " thread(s))…");
         long t0 = System.currentTimeMillis();
-        IdentityKeys keys = generate(difficulty);
+        IdentityMiner.Result mined = miner.mineBest(difficulty, target, budgetMs, listener);
+        IdentityKeys keys = mined.keys();
         save(keys, file);
         long ms = System.currentTimeMillis() - t0;
         LOG.info("Generated new identity keys at " + file.getAbsolutePath()
-                + " in " + ms + " ms (difficulty=" + difficulty + ")");
+                + " in " + ms + " ms (difficulty=" + mined.difficulty() + ")");
         return keys;
     }
 
@@ -396,12 +415,15 @@ public final class IdentityKeys {
     }
 
     /**
-     * Generate a PoW-qualified identity. Loops until
+     * Generate a PoW-qualified identity: one whose
      * {@code SHA-1(ed25519PubRaw)} has at least {@code minDifficulty}
      * leading zero bits. With {@code minDifficulty=0}, the first
      * generated keypair is returned. With {@code minDifficulty=20},
-     * the loop runs until ~1 million SHA-1 attempts yield a qualifying
-     * pubkey (~1-2 seconds using native jlibtorrent Ed25519).
+     * about a million keypairs are tried on average.
+     *
+     * <p>Mines on every available core with an {@link IdentityMiner};
+     * use one directly for cancellation, progress or a smaller share
+     * of the CPU.
      *
      * <p>Uses jlibtorrent's native Ed25519 implementation for key
      * generation instead of the JDK's {@code KeyPairGenerator}, which
@@ -412,36 +434,7 @@ public final class IdentityKeys {
         if (minDifficulty < 0) {
             throw new IllegalArgumentException("minDifficulty must be >= 0");
         }
-        SecureRandom rng = new SecureRandom();
-        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
-        long t0 = System.currentTimeMillis();
-        long attempts = 0;
-        // Log every 100k tries so Android/desktop UIs and logcat show mining is alive
-        // (difficulty 20 ≈ 1M attempts average; phones can take 30–90s).
-        final long logEvery = 100_000L;
-
-        while (true) {
-            byte[] seed = new byte[32];
-            rng.nextBytes(seed);
-            com.frostwire.jlibtorrent.Pair<byte[], byte[]> pair =
-                    com.frostwire.jlibtorrent.Ed25519.createKeypair(seed);
-            byte[] rawPub = pair.first;
-            attempts++;
-            if (minDifficulty == 0 || countLeadingZeroBits(sha1.digest(rawPub)) >= minDifficulty) {
-                KeyPair edPair = buildEd25519KeyPair(seed, rawPub);
-                long ms = System.currentTimeMillis() - t0;
-                if (minDifficulty > 0) {
-                    LOG.info("PoW identity mined: difficulty=" + minDifficulty
-                            + " attempts=" + attempts + " in " + ms + " ms");
-                }
-                return new IdentityKeys(edPair, generateX25519KeyPair());
-            }
-            if (attempts % logEvery == 0) {
-                long ms = System.currentTimeMillis() - t0;
-                LOG.info("PoW identity mining… difficulty=" + minDifficulty
-                        + " attempts=" + attempts + " elapsedMs=" + ms);
-            }
-        }
+        return new IdentityMiner().mine(minDifficulty, null).keys();
     }
 
     /**
@@ -89,10 +89,24 @@ public final class IdentityLifecycle {
      */
     public static IdentityKeys generateAndInstall(File identityFile, int difficulty)
             throws IOException, GeneralSecurityException {
+        return generateAndInstall(identityFile, difficulty, new IdentityMiner(), null);
+    }
+
+    /**
+     * Like {@link #generateAndInstall(File, int)}, mining with {@code miner}
+     * so the caller can cancel it ({@link IdentityMiner#cancel()} makes this
+     * throw {@link java.util.concurrent.CancellationException} and leaves the
+     * existing identity untouched) and show {@code listener} progress.
+     */
+    public static IdentityKeys generateAndInstall(File identityFile, int difficulty,
+                                                  IdentityMiner miner,
+                                                  IdentityMiner.ProgressListener listener)
+            throws IOException, GeneralSecurityException {
         if (difficulty < 0) {
             throw new IllegalArgumentException("difficulty must be >= 0");
         }
-        IdentityKeys keys = IdentityKeys.generate(difficulty);
+        Objects.requireNonNull(miner, "miner");
+        IdentityKeys keys = miner.mine(difficulty, listener).keys();
         install(keys, identityFile, true);
         return keys;
     }
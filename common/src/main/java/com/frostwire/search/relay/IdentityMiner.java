@@ -0,0 +1,420 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import com.frostwire.util.Logger;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Multi-threaded proof-of-work miner for {@link IdentityKeys}.
+ *
+ * <p>Every attempt is independent (random seed, native
+ * {@code Ed25519.createKeypair}, SHA-1 of the public key, count the
+ * leading zero bits), so the search splits across cores with no
+ * coordination besides a shared "found" flag. Expected work for
+ * difficulty {@code d} is {@code 2^d} attempts whatever the thread
+ * count; more threads only make them go by faster.
+ *
+ * <p>Two ways to mine:
+ * <ul>
+ *   <li>{@link #mine} stops at the first key with at least
+ *       {@code minDifficulty} leading zero bits.</li>
+ *   <li>{@link #mineBest} keeps going for a time budget and returns
+ *       the best key found, stopping early at {@code targetDifficulty}.
+ *       Headless forwarders use it to start with a stronger identity
+ *       than the required minimum.</li>
+ * </ul>
+ *
+ * <p>{@link #cancel()} (from any thread) or interrupting the mining
+ * thread stops the workers; the mining call then throws
+ * {@link CancellationException}. An optional {@link ProgressListener}
+ * is called on the mining thread with attempt counts and hash rate.
+ *
+ * <p>{@link #forBenchmark} derives seeds from a fixed seed and an
+ * attempt counter instead of {@link SecureRandom}, and always returns
+ * the lowest qualifying attempt, so {@link #mine} finds the same key
+ * for any thread count (other workers may finish a few attempts past
+ * it). Never use it for a real identity.
+ *
+ * <p>One mining call at a time per instance.
+ */
+public final class IdentityMiner {
+
+    private static final Logger LOG = Logger.getLogger(IdentityMiner.class);
+
+    public static final long DEFAULT_PROGRESS_INTERVAL_MS = 1000;
+
+    private static final long LOG_INTERVAL_MS = 5000;
+
+    private final int threads;
+    private final byte[] benchmarkSeed;
+    private final long progressIntervalMs;
+
+    private volatile boolean cancelled;
+    private volatile Search current;
+
+    /** Miner using every available core. */
+    public IdentityMiner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public IdentityMiner(int threads) {
+        this(threads, null, DEFAULT_PROGRESS_INTERVAL_MS);
+    }
+
+    IdentityMiner(int threads, byte[] benchmarkSeed, long progressIntervalMs) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be > 0");
+        }
+        if (progressIntervalMs <= 0) {
+            throw new IllegalArgumentException("progressIntervalMs must be > 0");
+        }
+        this.threads = threads;
+        this.benchmarkSeed = benchmarkSeed != null ? benchmarkSeed.clone() : null;
+        this.progressIntervalMs = progressIntervalMs;
+    }
+
+    /**
+     * Deterministic miner for benchmarks and tests: attempt {@code n}
+     * uses seed {@code SHA-256(seed || n)}. Its keys are predictable
+     * from {@code seed}; never install them.
+     */
+    public static IdentityMiner forBenchmark(int threads, byte[] seed) {
+        if (seed == null || seed.length == 0) {
+            throw new IllegalArgumentException("seed is empty");
+        }
+        return new IdentityMiner(threads, seed, DEFAULT_PROGRESS_INTERVAL_MS);
+    }
+
+    /**
+     * Number of threads for a {@code share} (0, 1] of the available
+     * cores, at least one.
+     */
+    public static int threadsForShare(double share) {
+        if (!(share > 0 && share <= 1)) {
+            throw new IllegalArgumentException("share must be in (0, 1]");
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, (int) Math.round(cores * share));
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    /** Stops a running (or the next) mining call. */
+    public void cancel() {
+        cancelled = true;
+        Search search = current;
+        if (search != null) {
+            search.stop = true;
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Mines until a key with at least {@code minDifficulty} leading zero bits is found. */
+    public Result mine(int minDifficulty, ProgressListener listener) throws GeneralSecurityException {
+        return run(minDifficulty, minDifficulty, 0, listener);
+    }
+
+    /**
+     * Mines for up to {@code budgetMs} and returns the best key found,
+     * or earlier once one reaches {@code targetDifficulty}. If the
+     * budget runs out before {@code minDifficulty} is reached, mining
+     * continues until it is.
+     */
+    public Result mineBest(int minDifficulty, int targetDifficulty, long budgetMs,
+                           ProgressListener listener) throws GeneralSecurityException {
+        if (targetDifficulty < minDifficulty) {
+            throw new IllegalArgumentException("targetDifficulty must be >= minDifficulty");
+        }
+        if (budgetMs < 0) {
+            throw new IllegalArgumentException("budgetMs must be >= 0");
+        }
+        return run(minDifficulty, targetDifficulty, budgetMs, listener);
+    }
+
+    private Result run(int minDifficulty, int targetDifficulty, long budgetMs,
+                       ProgressListener listener) throws GeneralSecurityException {
+        if (minDifficulty < 0) {
+            throw new IllegalArgumentException("minDifficulty must be >= 0");
+        }
+        Search search = new Search(minDifficulty, targetDifficulty);
+        current = search;
+        search.stop = cancelled;
+        long t0 = System.currentTimeMillis();
+        // one attempt always qualifies at difficulty 0, not worth a thread
+        int workerCount = targetDifficulty == 0 ? 1 : threads;
+        Thread[] workers = new Thread[workerCount];
+        Throwable[] failure = new Throwable[1];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    work(search);
+                } catch (Throwable t) {
+                    synchronized (failure) {
+                        if (failure[0] == null) {
+                            failure[0] = t;
+                        }
+                    }
+                    search.stop = true;
+                }
+            }, "IdentityMiner-" + i);
+            workers[i].setDaemon(true);
+            workers[i].setPriority(Thread.MIN_PRIORITY);
+        }
+        if (targetDifficulty == 0) {
+            workers[0].run();
+        } else {
+            for (Thread w : workers) {
+                w.start();
+            }
+        }
+
+        long nextLogMs = t0 + LOG_INTERVAL_MS;
+        try {
+            for (Thread w : workers) {
+                while (w.isAlive()) {
+                    w.join(progressIntervalMs);
+                    long now = System.currentTimeMillis();
+                    if (budgetMs > 0 && now - t0 >= budgetMs) {
+                        search.budgetSpent = true;
+                        if (search.bestDifficulty >= minDifficulty) {
+                            search.stop = true;
+                        }
+                    }
+                    if (w.isAlive()) {
+                        Progress progress = search.progress(workerCount, now - t0);
+                        if (listener != null) {
+                            listener.onProgress(progress);
+                        }
+                        if (now >= nextLogMs) {
+                            nextLogMs = now + LOG_INTERVAL_MS;
+                            LOG.info("PoW identity mining… difficulty=" + minDifficulty
+                                    + (targetDifficulty > minDifficulty ? " target=" + targetDifficulty : "")
+                                    + " " + progress);
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("identity mining interrupted");
+        } finally {
+            // also stops the workers if the listener threw
+            search.stop = true;
+            current = null;
+        }
+
+        synchronized (failure) {
+            if (failure[0] instanceof GeneralSecurityException) {
+                throw (GeneralSecurityException) failure[0];
+            }
+            if (failure[0] != null) {
+                throw new IllegalStateException("identity mining failed", failure[0]);
+            }
+        }
+        if (search.bestSeed == null || search.bestDifficulty < minDifficulty) {
+            throw new CancellationException("identity mining cancelled");
+        }
+        long ms = System.currentTimeMillis() - t0;
+        Result result = new Result(IdentityKeys.fromSeed(search.bestSeed), search.bestDifficulty,
+                search.attempts.sum(), ms, workerCount);
+        if (targetDifficulty > 0) {
+            LOG.info("PoW identity mined: difficulty=" + result.difficulty()
+                    + " attempts=" + result.attempts() + " in " + ms + " ms"
+                    + " threads=" + workerCount);
+        }
+        return result;
+    }
+
+    private void work(Search search) throws GeneralSecurityException {
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        MessageDigest sha256 = benchmarkSeed != null ? MessageDigest.getInstance("SHA-256") : null;
+        SecureRandom rng = benchmarkSeed == null ? new SecureRandom() : null;
+        byte[] counter = new byte[8];
+        long localAttempt = 0;
+        while (!search.stop) {
+            long n;
+            byte[] seed;
+            if (benchmarkSeed != null) {
+                n = search.nextAttempt.getAndIncrement();
+                if (n >= search.found.get()) {
+                    return;
+                }
+                for (int i = 0; i < 8; i++) {
+                    counter[i] = (byte) (n >>> (56 - 8 * i));
+                }
+                sha256.update(benchmarkSeed);
+                seed = sha256.digest(counter);
+            } else {
+                n = localAttempt++;
+                seed = new byte[32];
+                rng.nextBytes(seed);
+            }
+            byte[] rawPub = com.frostwire.jlibtorrent.Ed25519.createKeypair(seed).first;
+            search.attempts.increment();
+            int zeros = search.target == 0 ? 0 : IdentityKeys.countLeadingZeroBits(sha1.digest(rawPub));
+            if (zeros > search.bestDifficulty || (zeros >= search.target && n < search.found.get())) {
+                search.offer(seed, zeros, n);
+            }
+        }
+    }
+
+    /** Shared state of one mining call. */
+    private final class Search {
+        final int min;
+        final int target;
+        final LongAdder attempts = new LongAdder();
+        final AtomicLong nextAttempt = new AtomicLong();
+        /** Lowest attempt index that reached the goal, for deterministic mode. */
+        final AtomicLong found = new AtomicLong(Long.MAX_VALUE);
+        volatile boolean stop;
+        volatile boolean budgetSpent;
+        volatile int bestDifficulty = -1;
+        byte[] bestSeed;
+        long bestAttempt = Long.MAX_VALUE;
+
+        Search(int min, int target) {
+            this.min = min;
+            this.target = target;
+        }
+
+        synchronized void offer(byte[] seed, int zeros, long n) {
+            boolean reachesGoal = zeros >= target || (budgetSpent && zeros >= min);
+            boolean better = bestSeed == null
+                    || (zeros >= target && bestDifficulty >= target ? n < bestAttempt : zeros > bestDifficulty);
+            if (better) {
+                bestSeed = seed;
+                bestDifficulty = zeros;
+                bestAttempt = n;
+            }
+            if (reachesGoal) {
+                found.accumulateAndGet(n, Math::min);
+                if (benchmarkSeed == null) {
+                    // deterministic mode drains lower attempts first, see work()
+                    stop = true;
+                }
+            }
+        }
+
+        Progress progress(int threads, long elapsedMs) {
+            return new Progress(attempts.sum(), elapsedMs, Math.max(0, bestDifficulty), threads);
+        }
+    }
+
+    /** Snapshot of a running mining call. */
+    public static final class Progress {
+        private final long attempts;
+        private final long elapsedMs;
+        private final int bestDifficulty;
+        private final int threads;
+
+        Progress(long attempts, long elapsedMs, int bestDifficulty, int threads) {
+            this.attempts = attempts;
+            this.elapsedMs = elapsedMs;
+            this.bestDifficulty = bestDifficulty;
+            this.threads = threads;
+        }
+
+        public long attempts() {
+            return attempts;
+        }
+
+        public long elapsedMs() {
+            return elapsedMs;
+        }
+
+        /** Most leading zero bits seen so far. */
+        public int bestDifficulty() {
+            return bestDifficulty;
+        }
+
+        public int threads() {
+            return threads;
+        }
+
+        /** Keypairs generated and hashed per second, over the whole run. */
+        public double hashesPerSecond() {
+            return elapsedMs > 0 ? attempts * 1000.0 / elapsedMs : 0;
+        }
+
+        /**
+         * Expected time to reach {@code difficulty} at the current rate.
+         * The search is memoryless, so this does not shrink as attempts
+         * accumulate.
+         */
+        public long expectedMs(int difficulty) {
+            double rate = hashesPerSecond();
+            return rate > 0 ? (long) (Math.pow(2, difficulty) / rate * 1000) : -1;
+        }
+
+        @Override
+        public String toString() {
+            return "attempts=" + attempts + " elapsedMs=" + elapsedMs
+                    + " rate=" + Math.round(hashesPerSecond()) + "/s best=" + bestDifficulty
+                    + " threads=" + threads;
+        }
+    }
+
+    /** Outcome of a mining call. */
+    public static final class Result {
+        private final IdentityKeys keys;
+        private final int difficulty;
+        private final long attempts;
+        private final long elapsedMs;
+        private final int threads;
+
+        Result(IdentityKeys keys, int difficulty, long attempts, long elapsedMs, int threads) {
+            this.keys = keys;
+            this.difficulty = difficulty;
+            this.attempts = attempts;
+            this.elapsedMs = elapsedMs;
+            this.threads = threads;
+        }
+
+        public IdentityKeys keys() {
+            return keys;
+        }
+
+        /** Leading zero bits of the mined key's node ID. */
+        public int difficulty() {
+            return difficulty;
+        }
+
+        public long attempts() {
+            return attempts;
+        }
+
+        public long elapsedMs() {
+            return elapsedMs;
+        }
+
+        public int threads() {
+            return threads;
+        }
+
+        public double hashesPerSecond() {
+            return elapsedMs > 0 ? attempts * 1000.0 / elapsedMs : 0;
+        }
+    }
+
+    /** Progress callback, called on the mining thread about once per progress interval. */
+    public interface ProgressListener {
+        void onProgress(Progress progress);
+    }
+}
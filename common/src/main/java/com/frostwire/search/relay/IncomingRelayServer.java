@@ -7,6 +7,7 @@
 
 package com.frostwire.search.relay;
 
+import com.frostwire.util.IPBlocklist;
 import com.frostwire.util.Logger;
 
 import java.io.IOException;
@@ -21,6 +22,7 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Plain-TCP server that accepts relay search requests and
@@ -61,6 +63,7 @@ public final class IncomingRelayServer {
     private final int soTimeoutMs;
     private final String bindHost;
     private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicLong blockedConnections = new AtomicLong();
 
     private ServerSocket serverSocket;
     private Thread acceptThread;
@@ -201,10 +204,21 @@ public final class IncomingRelayServer {
         return connectionCount.get();
     }
 
+    /** Connections closed right after accept because the remote address is in the IP filter. */
+    public long blockedConnections() {
+        return blockedConnections.get();
+    }
+
     private void acceptLoop() {
         while (running) {
             try {
                 Socket socket = serverSocket.accept();
+                if (IPBlocklist.isBlocked(socket.getInetAddress())) {
+                    // user IP filter, drop before spending a worker on it
+                    blockedConnections.incrementAndGet();
+                    closeQuietly(socket);
+                    continue;
+                }
                 connectionCount.incrementAndGet();
                 try {
                     workerPool.execute(() -> handleConnection(socket));
@@ -14,6 +14,7 @@ import com.frostwire.util.Logger;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -43,7 +44,13 @@ import java.util.concurrent.atomic.AtomicLong;
  * value. The publisher enforces {@link #MAX_MANIFEST_BYTES} and
  * includes as many rows as fit, sorted by most-recently-seen first.
  *
- * <p>Thread-safe: stateless aside from the monotonic sequence counter.
+ * <p>Because that only covers a few rows, {@link #publishSummaryIfNeeded}
+ * also publishes a {@link CatalogSummary} of the whole index under
+ * {@link RelayConstants#BEP46_SALT_INDEX_SUMMARY}, which searchers use
+ * to skip peers that cannot match a query.
+ *
+ * <p>Thread-safe: stateless aside from the monotonic sequence counter
+ * and the last published summary's digest and time.
  */
 public final class IndexAnnouncementPublisher {
 
@@ -57,6 +64,8 @@ public final class IndexAnnouncementPublisher {
     private final LocalIndex index;
     private final IdentityKeys identity;
     private final AtomicLong seq = new AtomicLong(Instant.now().getEpochSecond());
+    private volatile byte[] lastSummaryDigest;
+    private volatile long lastSummaryAtSec;
 
     public IndexAnnouncementPublisher(LocalIndex index, IdentityKeys identity) {
         if (index == null) {
@@ -132,6 +141,58 @@ public final class IndexAnnouncementPublisher {
         }
     }
 
+    /**
+     * Publish a {@link CatalogSummary} of the whole index, one DHT item
+     * per shard, when its {@link CatalogSummary#digest()} changed since
+     * the last publish or {@link RelayConstants#RELAY_REPUBLISH_INTERVAL_SEC}
+     * has passed. Returns the number of shards published, 0 if nothing was.
+     *
+     * <p>Every shard of a publish carries the same {@code ts}, strictly
+     * greater than the previous publish's, so searchers can tell shards
+     * of two generations apart even when the shard count did not change.
+     *
+     * <p>Nothing is published for an index whose search is not
+     * token-based ({@link LocalIndex#matchesWholeTokens()}), or whose
+     * {@code listAll()} disagrees with {@code size()}, since a summary
+     * that misses keys would make peers skip us wrongly.
+     */
+    public int publishSummaryIfNeeded(SessionManager session) {
+        if (session == null || !index.matchesWholeTokens()) {
+            return 0;
+        }
+        try {
+            long now = Instant.now().getEpochSecond();
+            int size = index.size();
+            List<LocalSharedTorrent> rows = index.listAll();
+            if (rows.size() < size) {
+                LOG.debug("Index listAll() returned " + rows.size() + " of " + size
+                        + " row(s), not publishing a catalog summary");
+                return 0;
+            }
+            CatalogSummary summary = CatalogSummary.builder().addAll(rows).build();
+            byte[] digest = summary.digest();
+            if (Arrays.equals(digest, lastSummaryDigest)
+                    && now - lastSummaryAtSec < RelayConstants.RELAY_REPUBLISH_INTERVAL_SEC) {
+                return 0;
+            }
+            long ts = Math.max(now, lastSummaryAtSec + 1);
+            byte[] pubKey = identity.ed25519PubRaw();
+            byte[] privKey = identity.ed25519SecretKeyNaCl();
+            for (int i = 0; i < summary.shardCount(); i++) {
+                session.dhtPutItem(pubKey, privKey, summary.toEntry(i, ts),
+                        CatalogSummaryFetcher.salt(i));
+            }
+            lastSummaryDigest = digest;
+            lastSummaryAtSec = ts;
+            LOG.info("Published catalog summary: " + rows.size() + " row(s), "
+                    + summary.keyCount() + " key(s), " + summary.shardCount() + " shard(s)");
+            return summary.shardCount();
+        } catch (Throwable t) {
+            LOG.warn("Failed to publish catalog summary", t);
+            return 0;
+        }
+    }
+
     /**
      * Build the bencoded manifest entry, truncating rows to fit within
      * {@link #MAX_MANIFEST_BYTES}.
@@ -23,6 +23,13 @@ import java.util.List;
  * {@link KarmaConstants#ENERGY_DECAY_FACTOR} each epoch. The maximum
  * accumulable energy converges to {@link KarmaConstants#MAX_ENERGY}.
  *
+ * <p>Verification: {@link #verify(List)} checks a whole chain.
+ * {@link #verify(List, KarmaChainStore)} resumes from the
+ * {@link Checkpoint} the store kept for the chain owner, so a chain
+ * that only grew since it was last verified costs one hash per old
+ * entry (to bind it to the checkpoint) plus the full checks, Ed25519
+ * signature included, for the new entries only.
+ *
  * <p>Thread-safe: all mutating methods are synchronized.
  */
 public final class KarmaChain {
@@ -49,10 +56,20 @@ public final class KarmaChain {
      * new endorsements can be appended immediately.
      */
     public static KarmaChain load(byte[] ownerPub, List<KarmaChainEntry> entries) {
+        return load(ownerPub, entries, null);
+    }
+
+    /**
+     * Like {@link #load(byte[], List)}, verifying only what was appended
+     * since the checkpoint kept in {@code checkpoints} (if any), and
+     * advancing that checkpoint.
+     */
+    public static KarmaChain load(byte[] ownerPub, List<KarmaChainEntry> entries,
+                                  KarmaChainStore checkpoints) {
         if (entries == null || entries.isEmpty()) {
             return null;
         }
-        if (!verify(entries)) {
+        if (!verify(entries, checkpoints)) {
             return null;
         }
         KarmaChain chain = new KarmaChain(ownerPub);
@@ -199,73 +216,158 @@ public final class KarmaChain {
      * Used when loading a peer's published chain.
      */
     public static boolean verify(List<KarmaChainEntry> chainEntries) {
+        return verifyFrom(null, chainEntries) != null;
+    }
+
+    /**
+     * Validates the chain incrementally against the checkpoint that
+     * {@code checkpoints} holds for its owner, then stores the new
+     * checkpoint at the head. With a null store, or no usable
+     * checkpoint, this is {@link #verify(List)}.
+     */
+    public static boolean verify(List<KarmaChainEntry> chainEntries, KarmaChainStore checkpoints) {
         if (chainEntries == null || chainEntries.isEmpty()) {
             return false;
         }
-
-        // First entry must have GENESIS_PREV_HASH
-        if (!java.util.Arrays.equals(chainEntries.get(0).prevHash(),
-                KarmaChainEntry.GENESIS_PREV_HASH)) {
+        if (checkpoints == null) {
+            return verify(chainEntries);
+        }
+        byte[] ownerPub = chainEntries.get(0).endorserPub();
+        Checkpoint trusted = null;
+        try {
+            trusted = checkpoints.loadCheckpoint(ownerPub);
+        } catch (Throwable t) {
+            LOG.warn("Could not read karma checkpoint, verifying the whole chain", t);
+        }
+        Checkpoint head = verifyFrom(trusted, chainEntries);
+        if (head == null) {
             return false;
         }
-
-        // All entries must have the same endorserPub
-        byte[] expectedPub = chainEntries.get(0).endorserPub();
-        for (KarmaChainEntry e : chainEntries) {
-            if (!java.util.Arrays.equals(e.endorserPub(), expectedPub)) {
-                return false;
+        if (trusted == null || head.seq() != trusted.seq()) {
+            try {
+                checkpoints.saveCheckpoint(head);
+            } catch (Throwable t) {
+                LOG.warn("Could not save karma checkpoint", t);
             }
         }
+        return true;
+    }
 
-        // Each entry must verify its signature
-        for (KarmaChainEntry e : chainEntries) {
-            if (!e.verifySignature()) {
-                return false;
+    /**
+     * Verifies {@code chainEntries} and returns the checkpoint at its
+     * head, or null if the chain is invalid.
+     *
+     * <p>If {@code trusted} belongs to the same owner and the chain's
+     * first {@code trusted.seq() + 1} entries hash-link to
+     * {@code trusted.entryHash()}, those entries are not checked again
+     * and verification resumes from the checkpoint's state. If they do
+     * not (the chain is shorter, or was rewritten), the whole chain is
+     * verified from genesis.
+     */
+    public static Checkpoint verifyFrom(Checkpoint trusted, List<KarmaChainEntry> chainEntries) {
+        if (chainEntries == null || chainEntries.isEmpty()) {
+            return null;
+        }
+        Verifier verifier = null;
+        int start = 0;
+        if (trusted != null && matchesCheckpoint(trusted, chainEntries)) {
+            verifier = new Verifier(trusted);
+            start = (int) trusted.seq() + 1;
+        }
+        if (verifier == null) {
+            verifier = new Verifier(chainEntries.get(0).endorserPub());
+        }
+        for (int i = start; i < chainEntries.size(); i++) {
+            if (!verifier.accept(chainEntries.get(i))) {
+                return null;
             }
         }
+        return verifier.checkpoint();
+    }
 
-        // Each entry's prevHash must link to the previous entry's entryHash
-        for (int i = 1; i < chainEntries.size(); i++) {
-            byte[] expectedPrev = chainEntries.get(i - 1).entryHash();
-            if (!java.util.Arrays.equals(chainEntries.get(i).prevHash(), expectedPrev)) {
+    /**
+     * True if the prefix of {@code chainEntries} up to the checkpoint's
+     * seq is the exact chain the checkpoint was taken from: same owner,
+     * contiguous seqs, and each prevHash links to the hash of the entry
+     * before it, ending at the checkpoint's entry hash.
+     */
+    private static boolean matchesCheckpoint(Checkpoint cp, List<KarmaChainEntry> chainEntries) {
+        if (cp.seq() < 0 || cp.seq() >= chainEntries.size()) {
+            return false;
+        }
+        byte[] expectedPrev = KarmaChainEntry.GENESIS_PREV_HASH;
+        for (int i = 0; i <= cp.seq(); i++) {
+            KarmaChainEntry e = chainEntries.get(i);
+            if (e.seq() != i
+                    || !java.util.Arrays.equals(e.endorserPub(), cp.ownerPub)
+                    || !java.util.Arrays.equals(e.prevHash(), expectedPrev)) {
                 return false;
             }
+            expectedPrev = e.entryHash();
+        }
+        return java.util.Arrays.equals(expectedPrev, cp.entryHash);
+    }
+
+    /**
+     * Applies the chain rules one entry at a time: genesis and hash
+     * links, single owner, signatures, 0-based contiguous seqs,
+     * non-decreasing block heights, increasing epoch commitments, and
+     * per-epoch endorsement budgets.
+     */
+    private static final class Verifier {
+        private final byte[] ownerPub;
+        private long nextSeq;
+        private byte[] headHash;
+        private long blockHeight;
+        private long lastEpoch;
+        private long lastCommitmentEpoch;
+        private int endorsementsInCurrentEpoch;
+        private double energyAtCurrentEpoch;
+
+        Verifier(byte[] ownerPub) {
+            this.ownerPub = ownerPub;
+            this.nextSeq = 0;
+            this.headHash = KarmaChainEntry.GENESIS_PREV_HASH;
+            this.blockHeight = Long.MIN_VALUE;
+            this.lastEpoch = -1;
+            this.lastCommitmentEpoch = -1;
+            this.endorsementsInCurrentEpoch = 0;
+            this.energyAtCurrentEpoch = 0;
         }
 
-        // Sequence numbers must be 0-based and monotonic
-        for (int i = 0; i < chainEntries.size(); i++) {
-            if (chainEntries.get(i).seq() != i) {
-                return false;
-            }
+        Verifier(Checkpoint cp) {
+            this.ownerPub = cp.ownerPub;
+            this.nextSeq = cp.seq + 1;
+            this.headHash = cp.entryHash;
+            this.blockHeight = cp.blockHeight;
+            this.lastEpoch = cp.lastEpoch;
+            this.lastCommitmentEpoch = cp.commitmentEpoch;
+            this.endorsementsInCurrentEpoch = cp.endorsementsInEpoch;
+            this.energyAtCurrentEpoch = cp.energy;
         }
 
-        // Block heights must be monotonically non-decreasing
-        for (int i = 1; i < chainEntries.size(); i++) {
-            if (chainEntries.get(i).blockHeight() < chainEntries.get(i - 1).blockHeight()) {
+        boolean accept(KarmaChainEntry e) {
+            if (e.seq() != nextSeq) {
+                return false;
+            }
+            if (!java.util.Arrays.equals(e.endorserPub(), ownerPub)) {
+                return false;
+            }
+            if (!java.util.Arrays.equals(e.prevHash(), headHash)) {
+                return false;
+            }
+            if (e.blockHeight() < blockHeight) {
+                return false;
+            }
+            if (!e.verifySignature()) {
                 return false;
             }
-        }
-
-        // Epoch commitments must be in monotonically increasing order
-        long lastEpoch = -1;
-        for (KarmaChainEntry e : chainEntries) {
             if (e.kind() == KarmaChainEntry.Kind.EPOCH_COMMITMENT) {
                 Long ep = e.epoch();
                 if (ep != null && ep <= lastEpoch) {
                     return false;
                 }
                 if (ep != null) lastEpoch = ep;
-            }
-        }
-
-        // Endorsements must follow an epoch commitment in the chain.
-        // An endorsement can be in any epoch >= the most recent commitment's epoch.
-        // The energy budget is tracked per-epoch based on the most recent commitment.
-        long lastCommitmentEpoch = -1;
-        int endorsementsInCurrentEpoch = 0;
-        double energyAtCurrentEpoch = 0;
-        for (KarmaChainEntry e : chainEntries) {
-            if (e.kind() == KarmaChainEntry.Kind.EPOCH_COMMITMENT) {
                 lastCommitmentEpoch = e.epoch();
                 endorsementsInCurrentEpoch = 0;
                 energyAtCurrentEpoch = e.energy();
@@ -282,8 +384,88 @@ public final class KarmaChain {
                     return false; // Over budget
                 }
             }
+            headHash = e.entryHash();
+            blockHeight = e.blockHeight();
+            nextSeq++;
+            return true;
         }
 
-        return true;
+        Checkpoint checkpoint() {
+            return new Checkpoint(ownerPub, nextSeq - 1, headHash, blockHeight, lastEpoch,
+                    lastCommitmentEpoch, endorsementsInCurrentEpoch, energyAtCurrentEpoch);
+        }
+    }
+
+    /**
+     * The last verified position of a chain: the seq and hash of its
+     * head entry, plus the verifier state (epochs, energy budget, block
+     * height) needed to check entries appended after it.
+     */
+    public static final class Checkpoint {
+        private final byte[] ownerPub;
+        private final long seq;
+        private final byte[] entryHash;
+        private final long blockHeight;
+        private final long lastEpoch;
+        private final long commitmentEpoch;
+        private final int endorsementsInEpoch;
+        private final double energy;
+
+        public Checkpoint(byte[] ownerPub, long seq, byte[] entryHash, long blockHeight,
+                          long lastEpoch, long commitmentEpoch, int endorsementsInEpoch,
+                          double energy) {
+            if (ownerPub == null || ownerPub.length != 32) {
+                throw new IllegalArgumentException("ownerPub must be 32 bytes");
+            }
+            if (entryHash == null || entryHash.length != 32) {
+                throw new IllegalArgumentException("entryHash must be 32 bytes");
+            }
+            this.ownerPub = ownerPub.clone();
+            this.seq = seq;
+            this.entryHash = entryHash.clone();
+            this.blockHeight = blockHeight;
+            this.lastEpoch = lastEpoch;
+            this.commitmentEpoch = commitmentEpoch;
+            this.endorsementsInEpoch = endorsementsInEpoch;
+            this.energy = energy;
+        }
+
+        public byte[] ownerPub() {
+            return ownerPub.clone();
+        }
+
+        public long seq() {
+            return seq;
+        }
+
+        public byte[] entryHash() {
+            return entryHash.clone();
+        }
+
+        public long blockHeight() {
+            return blockHeight;
+        }
+
+        public long lastEpoch() {
+            return lastEpoch;
+        }
+
+        public long commitmentEpoch() {
+            return commitmentEpoch;
+        }
+
+        public int endorsementsInEpoch() {
+            return endorsementsInEpoch;
+        }
+
+        public double energy() {
+            return energy;
+        }
+
+        @Override
+        public String toString() {
+            return "Checkpoint{seq=" + seq + ", blockHeight=" + blockHeight
+                    + ", epoch=" + commitmentEpoch + "}";
+        }
     }
 }
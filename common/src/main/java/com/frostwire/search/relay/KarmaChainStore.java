@@ -37,4 +37,21 @@ public interface KarmaChainStore extends AutoCloseable {
      * @return the verified chain, or an empty chain if none exists
      */
     KarmaChain loadChain(byte[] ownerPub);
+
+    /**
+     * The last verified {@link KarmaChain.Checkpoint} for a chain owner
+     * (this node or a remote peer), or null if none is kept.
+     *
+     * <p>The default keeps no checkpoints, so every verification is a
+     * full one.
+     */
+    default KarmaChain.Checkpoint loadCheckpoint(byte[] ownerPub) {
+        return null;
+    }
+
+    /**
+     * Replace the checkpoint kept for {@code checkpoint.ownerPub()}.
+     */
+    default void saveCheckpoint(KarmaChain.Checkpoint checkpoint) {
+    }
 }
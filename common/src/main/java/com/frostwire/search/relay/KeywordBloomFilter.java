@@ -0,0 +1,202 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fixed-size Bloom filter over catalog keywords, one shard of a
+ * {@link CatalogSummary}.
+ *
+ * <p>Keys are derived from text the same way the FTS5 local indexes
+ * tokenize a query: diacritics removed and lowercase, as
+ * {@code unicode61} does, then {@code [a-z0-9]} runs, everything else
+ * a separator. Those indexes match on the {@code porter} stem of each
+ * token ("djs" matches "dj", "using" matches "use"), so a key is the
+ * first {@link #KEY_PREFIX_CHARS} characters of the token's
+ * {@link PorterStemmer} stem, with {@code y} folded to {@code i}. Two
+ * tokens FTS5 matches against each other always share a key, so a
+ * query token whose key is not in the filter cannot match anything in
+ * the catalog.
+ *
+ * <p>Positions use double hashing ({@code h1 + i * h2}) over one
+ * 64-bit hash per key, so each key is hashed once.
+ *
+ * <p>Not thread-safe while being built; read-only use after
+ * {@link #fromBytes} is.
+ */
+public final class KeywordBloomFilter {
+
+    /** Characters of a token's stem that make up its key. */
+    static final int KEY_PREFIX_CHARS = 3;
+
+    static final int MAX_HASHES = 16;
+
+    private final byte[] bits;
+    private final long numBits;
+    private final int hashes;
+
+    public KeywordBloomFilter(int numBytes, int hashes) {
+        this(new byte[checkSize(numBytes)], hashes);
+    }
+
+    private KeywordBloomFilter(byte[] bits, int hashes) {
+        if (hashes < 1 || hashes > MAX_HASHES) {
+            throw new IllegalArgumentException("hashes must be in [1, " + MAX_HASHES + "]");
+        }
+        this.bits = bits;
+        this.numBits = bits.length * 8L;
+        this.hashes = hashes;
+    }
+
+    /** Wraps a serialized bit array (takes a copy). */
+    public static KeywordBloomFilter fromBytes(byte[] bits, int hashes) {
+        if (bits == null) {
+            throw new IllegalArgumentException("bits is null");
+        }
+        checkSize(bits.length);
+        return new KeywordBloomFilter(bits.clone(), hashes);
+    }
+
+    private static int checkSize(int numBytes) {
+        if (numBytes <= 0) {
+            throw new IllegalArgumentException("numBytes must be > 0");
+        }
+        return numBytes;
+    }
+
+    public void add(long keyHash) {
+        long h1 = (int) keyHash;
+        long h2 = (int) (keyHash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numBits);
+            bits[(int) (bit >>> 3)] |= (byte) (1 << (bit & 7));
+        }
+    }
+
+    public boolean mightContain(long keyHash) {
+        long h1 = (int) keyHash;
+        long h2 = (int) (keyHash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numBits);
+            if ((bits[(int) (bit >>> 3)] & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public byte[] toBytes() {
+        return bits.clone();
+    }
+
+    public int sizeBytes() {
+        return bits.length;
+    }
+
+    public int hashes() {
+        return hashes;
+    }
+
+    /** Fraction of bits set; the false-positive rate is about {@code fill^hashes}. */
+    public double fillRatio() {
+        long set = 0;
+        for (byte b : bits) {
+            set += Integer.bitCount(b & 0xff);
+        }
+        return (double) set / numBits;
+    }
+
+    /**
+     * Splits text into the tokens the FTS5 query sanitizers search for:
+     * {@code [a-z0-9]} runs of the text with its diacritics removed
+     * ("&eacute;t&eacute;" is "ete", as {@code unicode61} indexes it) and
+     * lowercased.
+     */
+    public static List<String> tokens(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null) {
+            return out;
+        }
+        String folded = text;
+        if (!isAscii(text)) {
+            folded = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{Mn}+", "");
+        }
+        String lowered = folded.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lowered.length(); i++) {
+            char ch = i < lowered.length() ? lowered.charAt(i) : ' ';
+            boolean word = (ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9');
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                out.add(lowered.substring(start, i));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** The stemming-stable key of a token, see the class comment. */
+    public static String key(String token) {
+        String stem = PorterStemmer.stem(token);
+        String prefix = stem.length() > KEY_PREFIX_CHARS
+                ? stem.substring(0, KEY_PREFIX_CHARS)
+                : stem;
+        return prefix.replace('y', 'i');
+    }
+
+    /** 64-bit FNV-1a of the key's bytes, finished with a murmur3 mix. */
+    public static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** The hash count that minimizes false positives for {@code keys} keys in {@code numBits} bits. */
+    public static int optimalHashes(long numBits, long keys) {
+        if (keys <= 0) {
+            return 1;
+        }
+        long k = Math.round((double) numBits / keys * Math.log(2));
+        return (int) Math.max(1, Math.min(MAX_HASHES, k));
+    }
+
+    /** Theoretical false-positive rate: {@code (1 - e^(-k*n/m))^k}. */
+    public static double expectedFalsePositiveRate(long numBits, int hashes, long keys) {
+        if (keys <= 0) {
+            return 0;
+        }
+        return Math.pow(1 - Math.exp(-(double) hashes * keys / numBits), hashes);
+    }
+}
@@ -10,6 +10,7 @@ package com.frostwire.search.relay;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 /**
  * Storage boundary for the local distributed-search torrent index.
@@ -26,6 +27,21 @@ public interface LocalIndex {
 
     List<LocalSharedTorrent> search(String query, int limit);
 
+    /**
+     * Streams the rows {@link #search} would return to {@code sink} in
+     * the same order, stopping early once it returns false. Lets a
+     * responder start answering before the whole result set is read.
+     * Implementations backed by a cursor should override this; the
+     * default runs {@link #search} first.
+     */
+    default void forEachMatch(String query, int limit, Predicate<LocalSharedTorrent> sink) {
+        for (LocalSharedTorrent t : search(query, limit)) {
+            if (!sink.test(t)) {
+                return;
+            }
+        }
+    }
+
     void markPublished(String infoHashHex, long timestamp);
 
     List<String> needsRepublish(long nowSec, long thresholdSec);
@@ -43,4 +59,15 @@ public interface LocalIndex {
     default List<LocalSharedTorrent> listAll() {
         return Collections.emptyList();
     }
+
+    /**
+     * True if {@link #search} only returns rows that contain every
+     * query token (the FTS5 implementations), which is what a published
+     * {@link CatalogSummary} promises to peers. Implementations that
+     * fall back to substring matching must return false so their
+     * summary is not published and peers never skip them.
+     */
+    default boolean matchesWholeTokens() {
+        return true;
+    }
 }
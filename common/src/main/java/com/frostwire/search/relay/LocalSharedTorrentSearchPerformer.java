@@ -52,6 +52,12 @@ public final class LocalSharedTorrentSearchPerformer implements ISearchPerformer
 
     public static final String SOURCE_NAME = "Local";
     public static final int DEFAULT_RESULT_LIMIT = 50;
+    /**
+     * Upper bound on how long ranking waits for publishers' karma
+     * chains that are not cached yet. They are fetched in parallel;
+     * whatever is still in flight afterwards ranks as 0 karma.
+     */
+    static final long KARMA_PREFETCH_WAIT_MS = 750;
 
     private static final Logger LOG = Logger.getLogger(LocalSharedTorrentSearchPerformer.class);
 
@@ -205,6 +211,14 @@ public final class LocalSharedTorrentSearchPerformer implements ISearchPerformer
             return out;
         }
         // Karma-weighted sort. Stable: ties keep FTS5 rank order.
+        List<byte[]> publishers = new ArrayList<>(rows.size());
+        for (LocalSharedTorrent row : rows) {
+            byte[] pub = row.publisherEd25519Pub();
+            if (pub != null && pub.length == 32) {
+                publishers.add(pub);
+            }
+        }
+        karmaCache.prefetch(publishers, KARMA_PREFETCH_WAIT_MS);
         List<LocalSharedTorrent> sorted = new ArrayList<>(rows);
         sorted.sort((a, b) -> {
             long kb = karmaFor(b);
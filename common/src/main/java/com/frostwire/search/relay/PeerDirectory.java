@@ -10,7 +10,9 @@ package com.frostwire.search.relay;
 import com.frostwire.util.Logger;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
@@ -39,6 +41,11 @@ import java.util.concurrent.atomic.AtomicLong;
  * {@link #markSpam(byte[])}). Karma is an additive offset to the
  * structural trust, with the same exponential-decay shape.
  *
+ * <p>Ranking: the {@code topByTrust*} queries order peers by
+ * {@code finalScore(p) * responsiveness(p)} for positive scores, where
+ * responsiveness comes from the directory's {@link PeerLatencyTracker}
+ * (1 for peers without history), so slow or unresponsive peers sink.
+ *
  * <p>The directory is bounded: when the entry count exceeds
  * {@code maxEntries}, the oldest-stale entries are evicted.
  *
@@ -60,6 +67,7 @@ public final class PeerDirectory {
     private final PeerKarmaCache karmaCache;
     private final int maxEntries;
     private final AtomicLong version = new AtomicLong();
+    private final PeerLatencyTracker latency = new PeerLatencyTracker();
 
     public PeerDirectory(PeerKarmaCache karmaCache) {
         this(karmaCache, DEFAULT_MAX_ENTRIES);
@@ -296,7 +304,7 @@ public final class PeerDirectory {
     }
 
     /**
-     * Returns up to {@code limit} verified entries sorted by trust score descending.
+     * Returns up to {@code limit} verified entries sorted by {@link #rankScore} descending.
      * Unverified placeholder entries are excluded.
      */
     public List<PeerInfo> topByTrustVerified(int limit) {
@@ -317,21 +325,39 @@ public final class PeerDirectory {
                 snapshot.add(e);
             }
         }
-        snapshot.sort((a, b) -> Double.compare(trustScore(b.peerPub), trustScore(a.peerPub)));
-        List<PeerInfo> out = new ArrayList<>(Math.min(limit, snapshot.size()));
-        for (int i = 0; i < Math.min(limit, snapshot.size()); i++) {
-            out.add(toPeerInfo(snapshot.get(i)));
-        }
-        return out;
+        return topByRank(snapshot, limit);
     }
 
-    /** Returns up to {@code limit} entries sorted by trust score descending. */
+    /** Returns up to {@code limit} entries sorted by {@link #rankScore} descending. */
     public List<PeerInfo> topByTrust(int limit) {
         if (limit <= 0) {
             throw new IllegalArgumentException("limit must be > 0");
         }
         List<Entry> snapshot = new ArrayList<>(entries.values());
-        snapshot.sort((a, b) -> Double.compare(trustScore(b.peerPub), trustScore(a.peerPub)));
+        return topByRank(snapshot, limit);
+    }
+
+    /** Latency history used for ranking; {@link DistributedSearchPerformer} records into it. */
+    public PeerLatencyTracker latency() {
+        return latency;
+    }
+
+    /**
+     * Returns the trust score scaled by the peer's responsiveness.
+     * Non-positive scores are left alone so spammers stay at the bottom.
+     */
+    public double rankScore(byte[] peerPub) {
+        double trust = trustScore(peerPub);
+        return trust > 0 ? trust * latency.responsiveness(peerPub) : trust;
+    }
+
+    private List<PeerInfo> topByRank(List<Entry> snapshot, int limit) {
+        // score once per entry; trustScore walks the WOT graph
+        Map<Entry, Double> scores = new IdentityHashMap<>(snapshot.size());
+        for (Entry e : snapshot) {
+            scores.put(e, rankScore(e.peerPub));
+        }
+        snapshot.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
         List<PeerInfo> out = new ArrayList<>(Math.min(limit, snapshot.size()));
         for (int i = 0; i < Math.min(limit, snapshot.size()); i++) {
             out.add(toPeerInfo(snapshot.get(i)));
@@ -357,6 +383,7 @@ public final class PeerDirectory {
         if (peerPub == null || peerPub.length != 32) {
             return false;
         }
+        latency.forget(peerPub);
         return entries.remove(com.frostwire.util.Hex.encode(peerPub)) != null;
     }
 
@@ -378,6 +405,7 @@ public final class PeerDirectory {
         }
         if (oldest != null) {
             entries.remove(com.frostwire.util.Hex.encode(oldest.peerPub));
+            latency.forget(oldest.peerPub);
         }
     }
 
@@ -7,15 +7,30 @@
 
 package com.frostwire.search.relay;
 
+import com.frostwire.concurrent.concurrent.ExecutorsHelper;
 import com.frostwire.jlibtorrent.Entry;
 import com.frostwire.util.Logger;
+import com.frostwire.util.ThreadPool;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
 
 /**
  * Discovers other FrostWire nodes on the DHT and registers them
@@ -37,6 +52,19 @@ import java.util.Optional;
  *       unverified and must not be used for distributed search.</li>
  * </ol>
  *
+ * <p><b>Authentication rounds:</b> candidates are de-duplicated
+ * and checked against what is already known before any connection
+ * is made: an endpoint verified in the last
+ * {@link #VERIFIED_TTL_MS} that is still in the directory is
+ * skipped, and so is an endpoint whose last handshake failed and
+ * is still backing off (starting at {@link #FAILURE_BACKOFF_MS},
+ * doubling per consecutive failure up to
+ * {@link #MAX_FAILURE_BACKOFF_MS}). The remaining handshakes run
+ * on up to {@code parallelism} threads, each one abandoned after
+ * {@code attemptTimeoutMs}. Results are applied to the directory on
+ * the calling thread in candidate order. Each round's counts and
+ * timing are logged and available from {@link #lastRound()}.
+ *
  * <p><b>Identity record fetch:</b>
  * {@link #fetchIdentityRecord} wraps the source's
  * {@link PeerDiscoverySource#fetchIdentityEntry} for a known
@@ -52,10 +80,34 @@ public final class PeerDiscovery {
     /** BEP 46 lookup timeout for identity records. */
     public static final int DEFAULT_IDENTITY_TIMEOUT_MS = 5000;
 
+    /** Concurrent identity handshakes per discovery round. */
+    public static final int DEFAULT_AUTH_PARALLELISM = 16;
+
+    /** Deadline of a single identity handshake, counted from when it starts. */
+    public static final long DEFAULT_AUTH_ATTEMPT_TIMEOUT_MS = 10_000;
+
+    /** A verified endpoint is not handshaken again for this long. */
+    public static final long VERIFIED_TTL_MS = TimeUnit.MINUTES.toMillis(30);
+
+    /** Backoff after the first failed handshake with an endpoint. */
+    public static final long FAILURE_BACKOFF_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /** Upper bound of the doubling failure backoff. */
+    public static final long MAX_FAILURE_BACKOFF_MS = TimeUnit.HOURS.toMillis(1);
+
+    /** Endpoint states kept, the oldest are forgotten first. */
+    private static final int MAX_ENDPOINT_STATES = 4096;
+
     private final PeerDiscoverySource source;
     private final PeerDirectory directory;
     private final PeerAuthenticator authenticator;
     private final byte[] ownEd25519Pub;
+    private final int parallelism;
+    private final long attemptTimeoutMs;
+    private final LongSupplier clock;
+    // host:port -> outcome of the last handshake, access-ordered for eviction
+    private final Map<String, EndpointState> endpointStates = new LinkedHashMap<>(256, 0.75f, true);
+    private volatile RoundStats lastRound;
 
     public PeerDiscovery(PeerDiscoverySource source, PeerDirectory directory) {
         this(source, directory, null, null);
@@ -68,6 +120,20 @@ public final class PeerDiscovery {
 
     public PeerDiscovery(PeerDiscoverySource source, PeerDirectory directory,
                          PeerAuthenticator authenticator, byte[] ownEd25519Pub) {
+        this(source, directory, authenticator, ownEd25519Pub,
+                DEFAULT_AUTH_PARALLELISM, DEFAULT_AUTH_ATTEMPT_TIMEOUT_MS);
+    }
+
+    public PeerDiscovery(PeerDiscoverySource source, PeerDirectory directory,
+                         PeerAuthenticator authenticator, byte[] ownEd25519Pub,
+                         int parallelism, long attemptTimeoutMs) {
+        this(source, directory, authenticator, ownEd25519Pub, parallelism, attemptTimeoutMs,
+                System::currentTimeMillis);
+    }
+
+    PeerDiscovery(PeerDiscoverySource source, PeerDirectory directory,
+                  PeerAuthenticator authenticator, byte[] ownEd25519Pub,
+                  int parallelism, long attemptTimeoutMs, LongSupplier clock) {
         if (source == null) {
             throw new IllegalArgumentException("source is null");
         }
@@ -78,6 +144,15 @@ public final class PeerDiscovery {
         this.directory = directory;
         this.authenticator = authenticator;
         this.ownEd25519Pub = (ownEd25519Pub != null) ? ownEd25519Pub.clone() : null;
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be > 0");
+        }
+        if (attemptTimeoutMs <= 0) {
+            throw new IllegalArgumentException("attemptTimeoutMs must be > 0");
+        }
+        this.parallelism = parallelism;
+        this.attemptTimeoutMs = attemptTimeoutMs;
+        this.clock = clock;
     }
 
     /**
@@ -92,6 +167,9 @@ public final class PeerDiscovery {
         List<DiscoveredEndpoint> discovered = new ArrayList<>();
         try {
             List<DiscoveredEndpoint> endpoints = source.fetchEndpoints();
+            if (authenticator != null) {
+                return authenticateAndRegister(endpoints);
+            }
             for (DiscoveredEndpoint ep : endpoints) {
                 String host = ep.host;
                 int port = ep.port;
@@ -102,44 +180,12 @@ public final class PeerDiscovery {
                     LOG.debug("Skipping likely local/self endpoint " + host + ":" + port);
                     continue;
                 }
-                if (authenticator != null) {
-                    Optional<IdentityRecord> maybeIdentity = authenticator.authenticate(host, port);
-                    if (maybeIdentity.isEmpty()) {
-                        LOG.debug("Authentication failed for discovered peer " + host + ":" + port);
-                        continue;
-                    }
-                    IdentityRecord identity = maybeIdentity.get();
-                    if (ownEd25519Pub != null && Arrays.equals(identity.ed25519Pub(), ownEd25519Pub)) {
-                        LOG.debug("Skipping self discovery for " + host + ":" + port);
-                        continue;
-                    }
-                    byte[] peerPub = identity.ed25519Pub();
-                    if (alreadyKnown(peerPub, host, port)) {
-                        continue;
-                    }
-                    directory.upsertVerified(peerPub, host, port, identity.rudpPort(),
-                            identity.capabilities(), identity.icebridgeVersion());
-                    discovered.add(new DiscoveredEndpoint(host, port));
-
-                    // Feed known IceBridge relays (FORWARDER / BOTH) into the host cache
-                    // for the settings UI table and for faster post-restart bootstrapping.
-                    String role = identity.role();
-                    if ("FORWARDER".equals(role) || "BOTH".equals(role)) {
-                        try {
-                            com.frostwire.search.relay.icebridge.IceBridgeHostCache.getInstance()
-                                    .markSuccess(host, port, role);
-                        } catch (Throwable ignored) {
-                            // cache is best-effort
-                        }
-                    }
-                } else {
-                    byte[] placeholderPubkey = placeholderPubkey(host, port);
-                    if (alreadyKnown(placeholderPubkey, host, port)) {
-                        continue;
-                    }
-                    directory.upsert(placeholderPubkey, host, port);
-                    discovered.add(new DiscoveredEndpoint(host, port));
+                byte[] placeholderPubkey = placeholderPubkey(host, port);
+                if (alreadyKnown(placeholderPubkey, host, port)) {
+                    continue;
                 }
+                directory.upsert(placeholderPubkey, host, port);
+                discovered.add(new DiscoveredEndpoint(host, port));
             }
         } catch (Throwable t) {
             LOG.debug("Peer discovery failed", t);
@@ -147,6 +193,190 @@ public final class PeerDiscovery {
         return discovered;
     }
 
+    /**
+     * Counts and timing of the last discovery round that used the
+     * authenticator, or null before the first one.
+     */
+    public RoundStats lastRound() {
+        return lastRound;
+    }
+
+    private List<DiscoveredEndpoint> authenticateAndRegister(List<DiscoveredEndpoint> endpoints) {
+        long started = System.nanoTime();
+        long now = clock.getAsLong();
+        RoundStats stats = new RoundStats();
+        stats.candidates = endpoints.size();
+
+        // 1. filter before connecting: invalid, local, duplicates, known, backing off
+        Map<String, DiscoveredEndpoint> toAuthenticate = new LinkedHashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (DiscoveredEndpoint ep : endpoints) {
+            String host = ep.host;
+            int port = ep.port;
+            if (host == null || host.isEmpty() || port <= 0) {
+                continue;
+            }
+            String key = host + ":" + port;
+            if (!seen.add(key)) {
+                stats.duplicates++;
+                continue;
+            }
+            if (isLocalEndpoint(host)) {
+                LOG.debug("Skipping likely local/self endpoint " + key);
+                continue;
+            }
+            EndpointState state = endpointState(key);
+            if (state != null && state.verifiedPub != null
+                    && now - state.verifiedAtMs < VERIFIED_TTL_MS
+                    && alreadyKnown(state.verifiedPub, host, port)) {
+                stats.skippedKnown++;
+                continue;
+            }
+            if (state != null && now < state.retryAtMs) {
+                stats.skippedBackoff++;
+                continue;
+            }
+            toAuthenticate.put(key, ep);
+        }
+
+        // 2. handshakes, bounded parallelism, per-attempt deadline
+        List<Attempt> attempts = runAttempts(toAuthenticate.values());
+
+        // 3. apply the results in candidate order
+        List<DiscoveredEndpoint> discovered = new ArrayList<>();
+        for (Attempt attempt : attempts) {
+            String host = attempt.endpoint.host;
+            int port = attempt.endpoint.port;
+            Optional<IdentityRecord> maybeIdentity;
+            boolean timedOut = false;
+            try {
+                maybeIdentity = attempt.result.join();
+            } catch (CompletionException e) {
+                // the deadline fired first
+                maybeIdentity = Optional.empty();
+                timedOut = true;
+            }
+            stats.attempted++;
+            if (maybeIdentity.isEmpty()) {
+                if (timedOut) {
+                    stats.timedOut++;
+                } else {
+                    stats.failed++;
+                }
+                recordFailure(host + ":" + port);
+                LOG.debug("Authentication " + (timedOut ? "timed out" : "failed")
+                        + " for discovered peer " + host + ":" + port);
+                continue;
+            }
+            stats.succeeded++;
+            IdentityRecord identity = maybeIdentity.get();
+            byte[] peerPub = identity.ed25519Pub();
+            if (ownEd25519Pub != null && Arrays.equals(peerPub, ownEd25519Pub)) {
+                LOG.debug("Skipping self discovery for " + host + ":" + port);
+                // never worth another handshake
+                recordFailure(host + ":" + port, MAX_FAILURE_BACKOFF_MS);
+                continue;
+            }
+            recordVerified(host + ":" + port, peerPub);
+            if (alreadyKnown(peerPub, host, port)) {
+                continue;
+            }
+            directory.upsertVerified(peerPub, host, port, identity.rudpPort(),
+                    identity.capabilities(), identity.icebridgeVersion());
+            discovered.add(new DiscoveredEndpoint(host, port));
+            stats.registered++;
+
+            // Feed known IceBridge relays (FORWARDER / BOTH) into the host cache
+            // for the settings UI table and for faster post-restart bootstrapping.
+            String role = identity.role();
+            if ("FORWARDER".equals(role) || "BOTH".equals(role)) {
+                try {
+                    com.frostwire.search.relay.icebridge.IceBridgeHostCache.getInstance()
+                            .markSuccess(host, port, role);
+                } catch (Throwable ignored) {
+                    // cache is best-effort
+                }
+            }
+        }
+        stats.elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        lastRound = stats;
+        LOG.info("Peer discovery round: " + stats);
+        return discovered;
+    }
+
+    private List<Attempt> runAttempts(Iterable<DiscoveredEndpoint> endpoints) {
+        List<Attempt> attempts = new ArrayList<>();
+        for (DiscoveredEndpoint ep : endpoints) {
+            attempts.add(new Attempt(ep));
+        }
+        if (attempts.isEmpty()) {
+            return attempts;
+        }
+        ExecutorService pool = ThreadPool.newThreadPool("PeerDiscovery-Auth",
+                Math.min(parallelism, attempts.size()), true);
+        ScheduledExecutorService deadlines = ExecutorsHelper.newScheduledThreadPool(1, "PeerDiscovery-AuthDeadline");
+        try {
+            for (Attempt attempt : attempts) {
+                try {
+                    pool.execute(() -> attempt.run(deadlines));
+                } catch (RejectedExecutionException e) {
+                    attempt.result.complete(Optional.empty());
+                }
+            }
+            CompletableFuture.allOf(attempts.stream().map(a -> a.result)
+                    .toArray(CompletableFuture[]::new)).handle((ignored, e) -> null).join();
+        } finally {
+            // a handshake past its deadline finishes (and is ignored) on its own
+            pool.shutdown();
+            deadlines.shutdownNow();
+        }
+        return attempts;
+    }
+
+    private EndpointState endpointState(String key) {
+        synchronized (endpointStates) {
+            return endpointStates.get(key);
+        }
+    }
+
+    private void recordVerified(String key, byte[] pub) {
+        synchronized (endpointStates) {
+            EndpointState state = new EndpointState();
+            state.verifiedPub = pub;
+            state.verifiedAtMs = clock.getAsLong();
+            putEndpointState(key, state);
+        }
+    }
+
+    private void recordFailure(String key) {
+        recordFailure(key, -1);
+    }
+
+    /**
+     * Backs the endpoint off for {@code backoffMs}, or for the doubling failure backoff when
+     * {@code backoffMs < 0}.
+     */
+    private void recordFailure(String key, long backoffMs) {
+        synchronized (endpointStates) {
+            EndpointState previous = endpointStates.get(key);
+            EndpointState state = new EndpointState();
+            state.failures = (previous != null ? previous.failures : 0) + 1;
+            if (backoffMs < 0) {
+                backoffMs = Math.min(MAX_FAILURE_BACKOFF_MS,
+                        FAILURE_BACKOFF_MS << Math.min(state.failures - 1, 20));
+            }
+            state.retryAtMs = clock.getAsLong() + backoffMs;
+            putEndpointState(key, state);
+        }
+    }
+
+    private void putEndpointState(String key, EndpointState state) {
+        endpointStates.put(key, state);
+        if (endpointStates.size() > MAX_ENDPOINT_STATES) {
+            endpointStates.remove(endpointStates.keySet().iterator().next());
+        }
+    }
+
     private boolean alreadyKnown(byte[] pub, String host, int port) {
         PeerDirectory.PeerInfo existing = directory.get(pub).orElse(null);
         return existing != null
@@ -192,6 +422,90 @@ public final class PeerDiscovery {
         }
     }
 
+    private static final class EndpointState {
+        byte[] verifiedPub;
+        long verifiedAtMs;
+        int failures;
+        long retryAtMs;
+    }
+
+    private final class Attempt {
+        final DiscoveredEndpoint endpoint;
+        // completed exceptionally (TimeoutException) when the deadline passes first
+        final CompletableFuture<Optional<IdentityRecord>> result = new CompletableFuture<>();
+
+        Attempt(DiscoveredEndpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        void run(ScheduledExecutorService deadlines) {
+            ScheduledFuture<?> deadline = null;
+            try {
+                deadline = deadlines.schedule(() -> result.completeExceptionally(new TimeoutException()),
+                        attemptTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ignored) {
+                // round already over
+            }
+            try {
+                Optional<IdentityRecord> identity = authenticator.authenticate(endpoint.host, endpoint.port);
+                result.complete(identity != null ? identity : Optional.empty());
+            } catch (Throwable t) {
+                result.complete(Optional.empty());
+            } finally {
+                if (deadline != null) {
+                    deadline.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Outcome of one authenticated discovery round.
+     */
+    public static final class RoundStats {
+        int candidates;
+        int duplicates;
+        int skippedKnown;
+        int skippedBackoff;
+        int attempted;
+        int succeeded;
+        int failed;
+        int timedOut;
+        int registered;
+        long elapsedMs;
+
+        public int candidates() { return candidates; }
+        public int duplicates() { return duplicates; }
+        public int skippedKnown() { return skippedKnown; }
+        public int skippedBackoff() { return skippedBackoff; }
+        public int attempted() { return attempted; }
+        public int succeeded() { return succeeded; }
+        public int failed() { return failed; }
+        public int timedOut() { return timedOut; }
+        public int registered() { return registered; }
+        public long elapsedMs() { return elapsedMs; }
+
+        /** Successful handshakes over attempted ones, 0 when nothing was attempted. */
+        public double successRate() {
+            return attempted == 0 ? 0 : (double) succeeded / attempted;
+        }
+
+        @Override
+        public String toString() {
+            return "candidates=" + candidates
+                    + " duplicates=" + duplicates
+                    + " skippedKnown=" + skippedKnown
+                    + " skippedBackoff=" + skippedBackoff
+                    + " attempted=" + attempted
+                    + " succeeded=" + succeeded
+                    + " failed=" + failed
+                    + " timedOut=" + timedOut
+                    + " registered=" + registered
+                    + String.format(" successRate=%.2f", successRate())
+                    + " elapsedMs=" + elapsedMs;
+        }
+    }
+
     private static boolean isLocalEndpoint(String host) {
         if (host == null || host.isEmpty()) return false;
         if ("127.0.0.1".equals(host)
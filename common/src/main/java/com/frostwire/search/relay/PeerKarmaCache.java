@@ -9,7 +9,13 @@ package com.frostwire.search.relay;
 
 import com.frostwire.util.Logger;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -28,16 +34,22 @@ import java.util.concurrent.atomic.AtomicLong;
  * other peers' chains, but that requires crawling remote
  * chains, which is out of scope for this build.
  *
- * <p>Scores are cached in-memory by the fetcher; this class
- * additionally memoizes the aggregate result so we don't
+ * <p>Chains are cached (and expired) by the fetcher; this class
+ * additionally memoizes the aggregate result per chain so we don't
  * re-iterate the chain on every score lookup.
+ *
+ * <p>{@link #getKarma(byte[])} never blocks: it scores whatever
+ * chain the fetcher has cached, and a peer that is not cached yet
+ * scores 0 while its chain is fetched in the background. Callers
+ * that rank a known set of peers can {@link #prefetch} them first
+ * to fetch all cold chains in parallel under one bounded wait.
  */
 public class PeerKarmaCache {
 
     private static final Logger LOG = Logger.getLogger(PeerKarmaCache.class);
 
     private final RemoteKarmaChainFetcher fetcher;
-    private final java.util.concurrent.ConcurrentHashMap<String, Long> scoreCache = new java.util.concurrent.ConcurrentHashMap<>();
+    private final java.util.concurrent.ConcurrentHashMap<String, Score> scoreCache = new java.util.concurrent.ConcurrentHashMap<>();
     private final AtomicLong fetches = new AtomicLong();
     private final AtomicLong cacheHits = new AtomicLong();
 
@@ -50,25 +62,68 @@ public class PeerKarmaCache {
 
     /**
      * Returns a karma score for the given peer. 0 means "no chain
-     * or no endorsements in the tail". Never negative.
+     * or no endorsements in the tail", or that the chain has not
+     * been fetched yet. Never negative, never blocks.
      */
     public long getKarma(byte[] peerPub) {
         if (peerPub == null || peerPub.length != 32) {
             return 0;
         }
         String key = com.frostwire.util.Hex.encode(peerPub);
-        Long cached = scoreCache.get(key);
-        if (cached != null) {
+        boolean wasCached = fetcher.isCached(peerPub);
+        List<KarmaChainEntry> chain = fetcher.cachedChain(peerPub);
+        if (!wasCached) {
+            fetches.incrementAndGet();
+        }
+        if (chain == null) {
+            scoreCache.remove(key);
+            if (wasCached) {
+                cacheHits.incrementAndGet();
+            }
+            return 0;
+        }
+        Score cached = scoreCache.get(key);
+        if (cached != null && cached.chain == chain) {
             cacheHits.incrementAndGet();
-            return cached;
+            return cached.score;
         }
-        fetches.incrementAndGet();
-        List<KarmaChainEntry> chain = fetcher.fetchChain(peerPub);
         long score = computeScore(chain);
-        scoreCache.put(key, score);
+        scoreCache.put(key, new Score(chain, score));
         return score;
     }
 
+    /**
+     * Fetches the chains of {@code peerPubs} that are not cached yet,
+     * in parallel, waiting at most {@code maxWaitMs} in total. Chains
+     * still in flight when the wait ends keep loading in the
+     * background; their peers score 0 until they land.
+     */
+    public void prefetch(Collection<byte[]> peerPubs, long maxWaitMs) {
+        if (peerPubs == null || peerPubs.isEmpty()) {
+            return;
+        }
+        List<CompletableFuture<List<KarmaChainEntry>>> pending = new ArrayList<>();
+        for (byte[] peerPub : peerPubs) {
+            CompletableFuture<List<KarmaChainEntry>> f = fetcher.fetchChainAsync(peerPub);
+            if (!f.isDone()) {
+                pending.add(f);
+            }
+        }
+        if (pending.isEmpty() || maxWaitMs <= 0) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]))
+                    .get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOG.debug("Karma prefetch: " + pending.size() + " chains still loading after " + maxWaitMs + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) {
+            // fetchChainAsync never completes exceptionally
+        }
+    }
+
     /** Drop the cached score for a peer; the next lookup re-fetches. */
     public void evict(byte[] peerPub) {
         if (peerPub == null) {
@@ -106,4 +161,14 @@ public class PeerKarmaCache {
         }
         return count;
     }
+
+    private static final class Score {
+        final List<KarmaChainEntry> chain;
+        final long score;
+
+        Score(List<KarmaChainEntry> chain, long score) {
+            this.chain = chain;
+            this.score = score;
+        }
+    }
 }
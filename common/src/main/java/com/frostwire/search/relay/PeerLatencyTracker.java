@@ -0,0 +1,367 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import com.frostwire.util.Hex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-peer search response latency, used to rank peers, size request
+ * deadlines and decide when to hedge.
+ *
+ * <p>Each peer keeps an EWMA of its response time (time to the first
+ * verified frame), a small log-bucketed {@link Sketch} for quantiles,
+ * and an EWMA of its timeout rate. From these:
+ * <ul>
+ *   <li>{@link #responsiveness} is a factor in (0, 1] that
+ *       {@link PeerDirectory} multiplies into the trust score;
+ *       peers without history get 1 so new peers still get tried.</li>
+ *   <li>{@link #deadlineMs} is how long to wait for a silent peer:
+ *       twice its p99, clamped to [{@link #MIN_DEADLINE_MS}, max].</li>
+ *   <li>{@link #hedgeDelayMs} is the peer's p95, after which
+ *       {@link DistributedSearchPerformer} sends the same query to the
+ *       next-best peer.</li>
+ * </ul>
+ *
+ * <p>The tracker also keeps the end-to-end latency of whole distributed
+ * searches ({@link #searchLatencyP50Ms}, {@link #searchLatencyP99Ms}).
+ *
+ * <p>Sketches halve their counts when full, so old samples fade out and
+ * a peer whose link changes is re-learned within a few hundred requests.
+ */
+public final class PeerLatencyTracker {
+
+    /** Weight of the newest sample in the EWMAs. */
+    static final double EWMA_ALPHA = 0.2;
+
+    /** Samples a peer needs before its own quantiles are trusted. */
+    static final int MIN_SAMPLES = 5;
+
+    /** Shortest deadline a peer with history is given. */
+    public static final long MIN_DEADLINE_MS = 1500;
+
+    /** Hedges are never sent earlier than this. */
+    static final long MIN_HEDGE_DELAY_MS = 50;
+
+    /** Response time at which the latency part of {@link #responsiveness} is 0.5. */
+    static final double HALF_RESPONSIVENESS_MS = 2000;
+
+    /** Peers below this {@link #responsiveness} are moved last by {@link #demoteUnresponsive}. */
+    static final double UNRESPONSIVE_BELOW = 0.5;
+
+    /** Consecutive timeouts after which a peer without samples gets a short deadline. */
+    static final int PROBE_AFTER_TIMEOUTS = 3;
+
+    static final int MAX_TRACKED_PEERS = 4096;
+    static final int PEER_SKETCH_WINDOW = 256;
+    static final int SEARCH_SKETCH_WINDOW = 1024;
+
+    private final ConcurrentHashMap<String, Stats> peers = new ConcurrentHashMap<>();
+    private final Sketch allResponses = new Sketch(SEARCH_SKETCH_WINDOW);
+    private final Sketch searches = new Sketch(SEARCH_SKETCH_WINDOW);
+    private final AtomicLong touches = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+
+    /** Records a peer's time to its first verified response frame. */
+    public void recordResponse(byte[] peerPub, long rttMs) {
+        if (peerPub == null || peerPub.length != 32 || rttMs < 0) {
+            return;
+        }
+        stats(peerPub).response(rttMs, touches.incrementAndGet());
+        allResponses.record(rttMs);
+    }
+
+    /** Records a request the peer did not answer before its deadline. */
+    public void recordTimeout(byte[] peerPub) {
+        if (peerPub == null || peerPub.length != 32) {
+            return;
+        }
+        stats(peerPub).timeout(touches.incrementAndGet());
+        timeouts.incrementAndGet();
+    }
+
+    /** Records the end-to-end latency of one distributed search. */
+    public void recordSearch(long latencyMs) {
+        if (latencyMs >= 0) {
+            searches.record(latencyMs);
+        }
+    }
+
+    /** Counts a hedged request. */
+    public void recordHedge() {
+        hedges.incrementAndGet();
+    }
+
+    /** Drops a peer's history, e.g. when it leaves the directory. */
+    public void forget(byte[] peerPub) {
+        if (peerPub != null && peerPub.length == 32) {
+            peers.remove(Hex.encode(peerPub));
+        }
+    }
+
+    /**
+     * How long to wait for {@code peerPub} to answer a request before
+     * giving up on it, at most {@code maxMs}. Peers without enough
+     * history get {@code maxMs}, except those that keep timing out,
+     * which get a short probe deadline.
+     */
+    public long deadlineMs(byte[] peerPub, long maxMs) {
+        Stats s = peek(peerPub);
+        if (s == null) {
+            return maxMs;
+        }
+        synchronized (s) {
+            if (s.samples < MIN_SAMPLES) {
+                return s.consecutiveTimeouts >= PROBE_AFTER_TIMEOUTS
+                        ? Math.min(maxMs, 2 * MIN_DEADLINE_MS)
+                        : maxMs;
+            }
+            return clamp(2 * s.sketch.quantile(0.99), MIN_DEADLINE_MS, maxMs);
+        }
+    }
+
+    /**
+     * How long to wait for {@code peerPub} before hedging to another
+     * peer: its own p95, or the p95 over all peers while it has little
+     * history. -1 if nothing is known yet, meaning "don't hedge".
+     */
+    public long hedgeDelayMs(byte[] peerPub) {
+        Stats s = peek(peerPub);
+        if (s != null) {
+            synchronized (s) {
+                if (s.samples >= MIN_SAMPLES) {
+                    return Math.max(MIN_HEDGE_DELAY_MS, s.sketch.quantile(0.95));
+                }
+            }
+        }
+        if (allResponses.count() >= MIN_SAMPLES) {
+            return Math.max(MIN_HEDGE_DELAY_MS, allResponses.quantile(0.95));
+        }
+        return -1;
+    }
+
+    /**
+     * Factor in (0, 1] that is lower for slow peers and for peers that
+     * time out. 1 for peers without history.
+     */
+    public double responsiveness(byte[] peerPub) {
+        Stats s = peek(peerPub);
+        if (s == null) {
+            return 1.0;
+        }
+        synchronized (s) {
+            double answered = 1.0 - 0.75 * s.timeoutRate;
+            double speed = s.samples == 0
+                    ? 1.0
+                    : HALF_RESPONSIVENESS_MS / (HALF_RESPONSIVENESS_MS + s.ewmaMs);
+            return Math.max(0.05, answered * speed);
+        }
+    }
+
+    /**
+     * Stable reordering of {@code ranked} that moves peers below
+     * {@link #UNRESPONSIVE_BELOW} responsiveness to the end.
+     */
+    public List<PeerDirectory.PeerInfo> demoteUnresponsive(List<PeerDirectory.PeerInfo> ranked) {
+        if (ranked.isEmpty() || peers.isEmpty()) {
+            return ranked;
+        }
+        List<PeerDirectory.PeerInfo> out = new ArrayList<>(ranked.size());
+        List<PeerDirectory.PeerInfo> slow = new ArrayList<>();
+        for (PeerDirectory.PeerInfo peer : ranked) {
+            (responsiveness(peer.peerPub()) < UNRESPONSIVE_BELOW ? slow : out).add(peer);
+        }
+        if (slow.isEmpty()) {
+            return ranked;
+        }
+        out.addAll(slow);
+        return out;
+    }
+
+    /** The peer's response-time EWMA in ms, or -1 without samples. */
+    public long ewmaMs(byte[] peerPub) {
+        Stats s = peek(peerPub);
+        if (s == null) {
+            return -1;
+        }
+        synchronized (s) {
+            return s.samples == 0 ? -1 : Math.round(s.ewmaMs);
+        }
+    }
+
+    /** The peer's response-time quantile {@code q} in ms, or -1 without samples. */
+    public long quantileMs(byte[] peerPub, double q) {
+        Stats s = peek(peerPub);
+        if (s == null) {
+            return -1;
+        }
+        synchronized (s) {
+            return s.samples == 0 ? -1 : s.sketch.quantile(q);
+        }
+    }
+
+    /** Median end-to-end search latency in ms, or -1 before the first search. */
+    public long searchLatencyP50Ms() {
+        return searches.count() == 0 ? -1 : searches.quantile(0.50);
+    }
+
+    /** 99th percentile end-to-end search latency in ms, or -1 before the first search. */
+    public long searchLatencyP99Ms() {
+        return searches.count() == 0 ? -1 : searches.quantile(0.99);
+    }
+
+    /** Number of searches recorded since startup. */
+    public long searchCount() {
+        return searches.total();
+    }
+
+    public long timeoutCount() {
+        return timeouts.get();
+    }
+
+    public long hedgeCount() {
+        return hedges.get();
+    }
+
+    public int trackedPeers() {
+        return peers.size();
+    }
+
+    private Stats peek(byte[] peerPub) {
+        if (peerPub == null || peerPub.length != 32) {
+            return null;
+        }
+        return peers.get(Hex.encode(peerPub));
+    }
+
+    private Stats stats(byte[] peerPub) {
+        Stats s = peers.computeIfAbsent(Hex.encode(peerPub), k -> new Stats());
+        if (peers.size() > MAX_TRACKED_PEERS) {
+            evictLeastRecent();
+        }
+        return s;
+    }
+
+    private void evictLeastRecent() {
+        String oldestKey = null;
+        long oldest = Long.MAX_VALUE;
+        for (Map.Entry<String, Stats> e : peers.entrySet()) {
+            long t = e.getValue().lastTouch;
+            if (t < oldest) {
+                oldest = t;
+                oldestKey = e.getKey();
+            }
+        }
+        if (oldestKey != null) {
+            peers.remove(oldestKey);
+        }
+    }
+
+    private static long clamp(long v, long min, long max) {
+        return Math.max(Math.min(min, max), Math.min(v, max));
+    }
+
+    /** Guarded by its own monitor. */
+    private static final class Stats {
+        final Sketch sketch = new Sketch(PEER_SKETCH_WINDOW);
+        double ewmaMs;
+        double timeoutRate;
+        long samples;
+        int consecutiveTimeouts;
+        volatile long lastTouch;
+
+        synchronized void response(long rttMs, long touch) {
+            ewmaMs = samples == 0 ? rttMs : ewmaMs + EWMA_ALPHA * (rttMs - ewmaMs);
+            timeoutRate -= EWMA_ALPHA * timeoutRate;
+            samples++;
+            consecutiveTimeouts = 0;
+            sketch.record(rttMs);
+            lastTouch = touch;
+        }
+
+        synchronized void timeout(long touch) {
+            timeoutRate += EWMA_ALPHA * (1.0 - timeoutRate);
+            consecutiveTimeouts++;
+            lastTouch = touch;
+        }
+    }
+
+    /**
+     * Log-bucketed latency histogram: four buckets per doubling from
+     * 1 ms to about 17 minutes, so a quantile is within 19% of the true
+     * value. When {@code window} samples are held all counts are halved,
+     * which keeps the sketch biased towards recent samples.
+     */
+    static final class Sketch {
+        static final int BUCKETS_PER_DOUBLING = 4;
+        static final int BUCKETS = 20 * BUCKETS_PER_DOUBLING;
+
+        private final int window;
+        private final int[] counts = new int[BUCKETS];
+        private int count;
+        private long total;
+
+        Sketch(int window) {
+            this.window = window;
+        }
+
+        synchronized void record(long ms) {
+            counts[bucket(ms)]++;
+            count++;
+            total++;
+            if (count >= window) {
+                count = 0;
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] >>= 1;
+                    count += counts[i];
+                }
+            }
+        }
+
+        /** Upper bound of the bucket holding quantile {@code q}; 0 when empty. */
+        synchronized long quantile(double q) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(BUCKETS - 1);
+        }
+
+        /** Samples currently weighted in the sketch. */
+        synchronized int count() {
+            return count;
+        }
+
+        /** Samples ever recorded. */
+        synchronized long total() {
+            return total;
+        }
+
+        static int bucket(long ms) {
+            double log2 = Math.log(ms + 1.0) / Math.log(2);
+            return (int) Math.min(BUCKETS - 1, Math.max(0, Math.floor(log2 * BUCKETS_PER_DOUBLING)));
+        }
+
+        static long upperBound(int bucket) {
+            return Math.round(Math.pow(2, (bucket + 1) / (double) BUCKETS_PER_DOUBLING) - 1);
+        }
+    }
+}
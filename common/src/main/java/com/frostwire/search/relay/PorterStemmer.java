@@ -0,0 +1,282 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+/**
+ * The Porter stemmer of SQLite's FTS5 {@code porter} tokenizer, ported
+ * rule for rule (including its order of suffix checks and its limits:
+ * tokens shorter than 3 or longer than 64 characters are left alone),
+ * so {@link KeywordBloomFilter} keys land on the same stems the local
+ * indexes match on.
+ *
+ * <p>Expects the lowercase ASCII tokens of
+ * {@link KeywordBloomFilter#tokens}.
+ */
+final class PorterStemmer {
+
+    private static final int MIN_TOKEN = 3;
+    private static final int MAX_TOKEN = 64;
+
+    private PorterStemmer() {
+    }
+
+    static String stem(String token) {
+        if (token.length() < MIN_TOKEN || token.length() > MAX_TOKEN) {
+            return token;
+        }
+        StringBuilder b = new StringBuilder(token);
+
+        step1a(b);
+        if (step1b(b) && b.length() >= 2 && !step1b2(b)) {
+            int n = b.length();
+            char c = b.charAt(n - 1);
+            if (!isVowel(c, false) && c != 'l' && c != 's' && c != 'z' && c == b.charAt(n - 2)) {
+                b.setLength(n - 1);
+            } else if (mEq1(b, n) && oStar(b, n)) {
+                b.append('e');
+            }
+        }
+        // step 1c
+        int n = b.length();
+        if (b.charAt(n - 1) == 'y' && hasVowel(b, n - 1)) {
+            b.setCharAt(n - 1, 'i');
+        }
+        if (b.length() >= 2) {
+            step2(b);
+        }
+        if (b.length() >= 2) {
+            step3(b);
+        }
+        if (b.length() >= 2) {
+            step4(b);
+        }
+        // step 5a
+        n = b.length();
+        if (b.charAt(n - 1) == 'e' && (mGt1(b, n - 1) || (mEq1(b, n - 1) && !oStar(b, n - 1)))) {
+            b.setLength(n - 1);
+        }
+        // step 5b
+        n = b.length();
+        if (n > 1 && b.charAt(n - 1) == 'l' && b.charAt(n - 2) == 'l' && mGt1(b, n - 1)) {
+            b.setLength(n - 1);
+        }
+        return b.toString();
+    }
+
+    private static void step1a(StringBuilder b) {
+        int n = b.length();
+        if (b.charAt(n - 1) != 's') {
+            return;
+        }
+        if (b.charAt(n - 2) == 'e') {
+            if ((n > 4 && b.charAt(n - 4) == 's' && b.charAt(n - 3) == 's')
+                    || (n > 3 && b.charAt(n - 3) == 'i')) {
+                b.setLength(n - 2);
+            } else {
+                b.setLength(n - 1);
+            }
+        } else if (b.charAt(n - 2) != 's') {
+            b.setLength(n - 1);
+        }
+    }
+
+    /** Returns true if an "ed" or "ing" was removed. */
+    private static boolean step1b(StringBuilder b) {
+        if (b.length() < 2) {
+            return false;
+        }
+        if (endsWith(b, "eed")) {
+            if (mGt0(b, b.length() - 3)) {
+                b.setLength(b.length() - 1);
+            }
+        } else if (endsWith(b, "ed")) {
+            if (hasVowel(b, b.length() - 2)) {
+                b.setLength(b.length() - 2);
+                return true;
+            }
+        } else if (endsWith(b, "ing")) {
+            if (hasVowel(b, b.length() - 3)) {
+                b.setLength(b.length() - 3);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean step1b2(StringBuilder b) {
+        if (endsWith(b, "at")) {
+            b.append('e');
+            return true;
+        } else if (endsWith(b, "bl")) {
+            b.append('e');
+            return true;
+        } else if (endsWith(b, "iz")) {
+            b.append('e');
+            return true;
+        }
+        return false;
+    }
+
+    private static final String[][] STEP2 = {
+            {"ational", "ate"}, {"tional", "tion"},
+            {"enci", "ence"}, {"anci", "ance"},
+            {"izer", "ize"},
+            {"logi", "log"},
+            {"bli", "ble"}, {"alli", "al"}, {"entli", "ent"}, {"eli", "e"}, {"ousli", "ous"},
+            {"ization", "ize"}, {"ation", "ate"}, {"ator", "ate"},
+            {"alism", "al"}, {"iveness", "ive"}, {"fulness", "ful"}, {"ousness", "ous"},
+            {"aliti", "al"}, {"iviti", "ive"}, {"biliti", "ble"},
+    };
+
+    private static final String[][] STEP3 = {
+            {"ical", "ic"},
+            {"ness", ""},
+            {"icate", "ic"}, {"iciti", "ic"},
+            {"ful", ""},
+            {"ative", ""},
+            {"alize", "al"},
+    };
+
+    private static final String[][] STEP4 = {
+            {"al", ""},
+            {"ance", ""}, {"ence", ""},
+            {"er", ""},
+            {"ic", ""},
+            {"able", ""}, {"ible", ""},
+            {"ant", ""}, {"ement", ""}, {"ment", ""}, {"ent", ""},
+            {"ion", ""}, {"ou", ""},
+            {"ism", ""},
+            {"ate", ""}, {"iti", ""},
+            {"ous", ""},
+            {"ive", ""},
+            {"ize", ""},
+    };
+
+    private static void step2(StringBuilder b) {
+        replaceSuffix(b, STEP2, false);
+    }
+
+    private static void step3(StringBuilder b) {
+        replaceSuffix(b, STEP3, false);
+    }
+
+    private static void step4(StringBuilder b) {
+        replaceSuffix(b, STEP4, true);
+    }
+
+    /**
+     * Applies the first rule whose suffix the word ends with. As in
+     * SQLite, once a suffix matches no later rule is tried, even if the
+     * measure condition fails, so longer suffixes come first.
+     */
+    private static void replaceSuffix(StringBuilder b, String[][] rules, boolean step4) {
+        int n = b.length();
+        for (String[] rule : rules) {
+            String suffix = rule[0];
+            if (endsWith(b, suffix)) {
+                int stem = n - suffix.length();
+                boolean ok;
+                if (!step4) {
+                    ok = mGt0(b, stem);
+                } else if (suffix.equals("ion")) {
+                    ok = (b.charAt(stem - 1) == 's' || b.charAt(stem - 1) == 't') && mGt1(b, stem);
+                } else {
+                    ok = mGt1(b, stem);
+                }
+                if (ok) {
+                    b.setLength(stem);
+                    b.append(rule[1]);
+                }
+                return;
+            }
+        }
+    }
+
+    private static boolean endsWith(StringBuilder b, String suffix) {
+        int n = b.length();
+        int len = suffix.length();
+        if (n <= len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (b.charAt(n - len + i) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isVowel(char c, boolean yIsVowel) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u' || (yIsVowel && c == 'y');
+    }
+
+    /**
+     * Skips one vowel run and the consonant after it, starting at
+     * {@code from}; returns the index just past that consonant, or 0
+     * if there is no such VC.
+     */
+    private static int gobbleVC(CharSequence s, int from, int end, boolean prevCons) {
+        boolean cons = prevCons;
+        int i = from;
+        for (; i < end; i++) {
+            cons = !isVowel(s.charAt(i), cons);
+            if (!cons) {
+                break;
+            }
+        }
+        for (i++; i < end; i++) {
+            cons = !isVowel(s.charAt(i), cons);
+            if (cons) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /** Porter's (m > 0) on the first {@code len} characters. */
+    private static boolean mGt0(CharSequence s, int len) {
+        return gobbleVC(s, 0, len, false) != 0;
+    }
+
+    /** Porter's (m > 1). */
+    private static boolean mGt1(CharSequence s, int len) {
+        int n = gobbleVC(s, 0, len, false);
+        return n != 0 && gobbleVC(s, n, len, true) != 0;
+    }
+
+    /** Porter's (m = 1). */
+    private static boolean mEq1(CharSequence s, int len) {
+        int n = gobbleVC(s, 0, len, false);
+        return n != 0 && gobbleVC(s, n, len, true) == 0;
+    }
+
+    /** Porter's *o: ends consonant-vowel-consonant, the last not w, x or y. */
+    private static boolean oStar(CharSequence s, int len) {
+        char last = s.charAt(len - 1);
+        if (last == 'w' || last == 'x' || last == 'y') {
+            return false;
+        }
+        int mask = 0;
+        boolean cons = false;
+        for (int i = 0; i < len; i++) {
+            cons = !isVowel(s.charAt(i), cons);
+            mask = (mask << 1) + (cons ? 1 : 0);
+        }
+        return (mask & 0x7) == 0x5;
+    }
+
+    /** Porter's *v*: a vowel in the first {@code len} characters, y counting after the first. */
+    private static boolean hasVowel(CharSequence s, int len) {
+        for (int i = 0; i < len; i++) {
+            if (isVowel(s.charAt(i), i > 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -33,6 +33,8 @@ public final class RelayConstants {
 
     public static final String BEP46_SALT_IDENTITY = "frostwire-identity-v1";
     public static final String BEP46_SALT_INDEX = "frostwire-index-v1";
+    /** Prefix of the {@link CatalogSummary} shard salts; shard i is {@code prefix + "-" + i}. */
+    public static final String BEP46_SALT_INDEX_SUMMARY = "frostwire-index-bloom-v1";
 
     public static final String TRANSPORT_KDF_LABEL = "frostwire-relay-transport-v1";
     public static final String PAYLOAD_KDF_LABEL = "frostwire-search-v1";
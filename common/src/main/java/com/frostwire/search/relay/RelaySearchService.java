@@ -19,6 +19,7 @@ import java.security.spec.X509EncodedKeySpec;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 /**
  * In-process handler for incoming {@link RemoteSearchRequest}s.
@@ -33,6 +34,9 @@ import java.util.Optional;
  *       {@link RemoteSearchResponse} signed by this node's key.</li>
  * </ol>
  *
+ * <p>{@link #handleStreaming} answers the same request as a stream of
+ * independently signed chunks instead of one response.
+ *
  * <p>Returns {@link Optional#empty()} for any rejection. The
  * transport layer can map empty to a generic error reply without
  * leaking the rejection reason (which would help attackers tune
@@ -111,50 +115,111 @@ public final class RelaySearchService {
             return Optional.empty();
         }
         try {
-            if (!verifySignature(request)) {
-                LOG.warn("RelaySearchService: rejected request (bad signature) keywords="
-                        + request.keywords());
-                return Optional.empty();
-            }
-            long nowMs = System.currentTimeMillis();
-            long skew = Math.abs(nowMs - (request.timestamp() * 1000L));
-            if (skew > MAX_TIMESTAMP_SKEW_MS) {
-                LOG.warn("RelaySearchService: rejected request (timestamp skew "
-                        + skew + "ms) keywords=" + request.keywords());
+            if (!admit(request)) {
                 return Optional.empty();
             }
-            if (!rateLimiter.tryAcquire(request.requesterPub())) {
-                LOG.warn("RelaySearchService: rejected request (rate limit) keywords="
-                        + request.keywords());
-                return Optional.empty();
-            }
-            int limit = Math.min(request.limit(), RESULT_LIMIT_CAP);
-            int fetch = visibility == null || visibility == ShareVisibilityPolicy.INCLUDE_ALL
-                    ? limit
-                    : Math.min(limit * 4, Math.max(limit, 200));
-            List<LocalSharedTorrent> rows = index.search(request.keywords(), fetch);
-            if (rows == null) {
-                rows = new ArrayList<>();
-            }
-            rows = ShareVisibility.filter(rows, visibility);
-            if (rows.size() > limit) {
-                rows = new ArrayList<>(rows.subList(0, limit));
-            }
+            List<LocalSharedTorrent> rows = new ArrayList<>();
+            streamRows(request, rows::add);
             LOG.info("RelaySearchService: answered keywords=\"" + request.keywords()
                     + "\" rows=" + rows.size());
-            return Optional.of(buildResponse(request, rows));
+            return Optional.of(buildResponse(request.nonce(), rows,
+                    seederEndpointProvider.seederEndpoints(), 0, true));
         } catch (Throwable t) {
             LOG.warn("RelaySearchService.handle failed", t);
             return Optional.empty();
         }
     }
 
-    private RemoteSearchResponse buildResponse(RemoteSearchRequest request,
-                                               List<LocalSharedTorrent> rows) {
+    /**
+     * Streaming form of {@link #handle}: answers with independently
+     * signed chunks of at most {@code chunkSize} rows, handed to
+     * {@code sink} as the index cursor yields them. Each chunk's
+     * signature covers its nonce, chunk index, rows and final flag, so
+     * the requester can verify and use it without the other chunks.
+     * The last chunk has {@code final=true}; an empty result is a
+     * single empty final chunk.
+     *
+     * <p>One row is held back so the final flag can be set on the
+     * chunk that really is last.
+     *
+     * @return false if the request was rejected or the query failed
+     */
+    public boolean handleStreaming(RemoteSearchRequest request, int chunkSize, ChunkSink sink) {
+        if (request == null || sink == null) {
+            return false;
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be > 0");
+        }
+        try {
+            if (!admit(request)) {
+                return false;
+            }
+            ChunkWriter writer = new ChunkWriter(request.nonce(), chunkSize, sink);
+            int rows = streamRows(request, writer::add);
+            writer.finish();
+            LOG.info("RelaySearchService: answered keywords=\"" + request.keywords()
+                    + "\" rows=" + rows + " chunks=" + writer.chunkIndex);
+            return true;
+        } catch (Throwable t) {
+            LOG.warn("RelaySearchService.handleStreaming failed", t);
+            return false;
+        }
+    }
+
+    /** Signature, timestamp skew and rate limit checks. */
+    private boolean admit(RemoteSearchRequest request) {
+        if (!verifySignature(request)) {
+            LOG.warn("RelaySearchService: rejected request (bad signature) keywords="
+                    + request.keywords());
+            return false;
+        }
+        long nowMs = System.currentTimeMillis();
+        long skew = Math.abs(nowMs - (request.timestamp() * 1000L));
+        if (skew > MAX_TIMESTAMP_SKEW_MS) {
+            LOG.warn("RelaySearchService: rejected request (timestamp skew "
+                    + skew + "ms) keywords=" + request.keywords());
+            return false;
+        }
+        if (!rateLimiter.tryAcquire(request.requesterPub())) {
+            LOG.warn("RelaySearchService: rejected request (rate limit) keywords="
+                    + request.keywords());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Feeds up to the request's (capped) limit of visible matching rows
+     * to {@code sink}. Hidden rows are skipped, so more are read from the
+     * index than will be sent when a visibility policy is set.
+     *
+     * @return the number of rows handed to {@code sink}
+     */
+    private int streamRows(RemoteSearchRequest request, Predicate<LocalSharedTorrent> sink) {
+        int limit = Math.min(request.limit(), RESULT_LIMIT_CAP);
+        int fetch = visibility == null || visibility == ShareVisibilityPolicy.INCLUDE_ALL
+                ? limit
+                : Math.min(limit * 4, Math.max(limit, 200));
+        int[] emitted = {0};
+        index.forEachMatch(request.keywords(), fetch, t -> {
+            if (!ShareVisibility.isVisible(t, visibility)) {
+                return true;
+            }
+            emitted[0]++;
+            return sink.test(t) && emitted[0] < limit;
+        });
+        return emitted[0];
+    }
+
+    private RemoteSearchResponse buildResponse(byte[] nonce, List<LocalSharedTorrent> rows,
+                                               List<String> endpoints, int chunkIndex,
+                                               boolean finalChunk) {
         RemoteSearchResponse.Builder b = RemoteSearchResponse.builder()
-                .nonce(request.nonce())
-                .timestamp(System.currentTimeMillis() / 1000L);
-        List<String> endpoints = seederEndpointProvider.seederEndpoints();
+                .nonce(nonce)
+                .timestamp(System.currentTimeMillis() / 1000L)
+                .chunkIndex(chunkIndex)
+                .finalChunk(finalChunk);
         for (LocalSharedTorrent t : rows) {
             byte[] nodeId = t.publisherNodeId();
             b.addRow(t.infoHash(), t.name(), t.sizeBytes(), t.fileCount(),
@@ -203,4 +268,54 @@ public final class RelaySearchService {
     public RateLimiter rateLimiter() {
         return rateLimiter;
     }
+
+    /** Receives the chunks of a streamed response, in order. */
+    public interface ChunkSink {
+
+        /** Sends one chunk; false stops the stream (e.g. no route to the requester). */
+        boolean accept(RemoteSearchResponse chunk);
+    }
+
+    /** Groups streamed rows into signed chunks, holding the newest one back. */
+    private final class ChunkWriter {
+        private final byte[] nonce;
+        private final int chunkSize;
+        private final ChunkSink sink;
+        private final List<String> endpoints = seederEndpointProvider.seederEndpoints();
+        private final List<LocalSharedTorrent> buffered = new ArrayList<>();
+        private int chunkIndex;
+        private boolean open = true;
+
+        ChunkWriter(byte[] nonce, int chunkSize, ChunkSink sink) {
+            this.nonce = nonce;
+            this.chunkSize = chunkSize;
+            this.sink = sink;
+        }
+
+        boolean add(LocalSharedTorrent row) {
+            if (buffered.size() == chunkSize) {
+                // a row past a full chunk proves that chunk isn't the last
+                flush(false);
+            }
+            if (!open) {
+                return false;
+            }
+            buffered.add(row);
+            return true;
+        }
+
+        void finish() {
+            if (open) {
+                flush(true);
+            }
+        }
+
+        private void flush(boolean finalChunk) {
+            RemoteSearchResponse chunk = buildResponse(nonce, buffered, endpoints, chunkIndex,
+                    finalChunk);
+            buffered.clear();
+            chunkIndex++;
+            open = sink.accept(chunk);
+        }
+    }
 }
@@ -27,7 +27,9 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
 
 /**
  * Fetches a remote peer's shared torrent catalog from the DHT and
@@ -44,11 +46,14 @@ import java.util.concurrent.ConcurrentHashMap;
  * { "v": 1, "pub": "base64url", "rows": [{"ih":"hex","n":"name","s":123,"fc":1}], "ts": 1700000000 }
  * </pre>
  *
- * <p><b>Caching:</b> the first call for a given peer triggers a remote
- * lookup. Subsequent calls return the cached entries until
- * {@link #evict(byte[])} is called or the cache is cleared. Peers
- * with no manifest (or malformed manifests) are cached as absent so
- * repeated lookups are skipped.
+ * <p><b>Caching:</b> catalogs live in an {@link AsyncTtlCache}:
+ * concurrent lookups for one peer share a single DHT request, a
+ * catalog is fresh for {@link #CATALOG_TTL_MS} and served stale
+ * (while it is refreshed in the background) for another
+ * {@link #CATALOG_STALE_MS}, and at most {@link #MAX_CACHED_PEERS}
+ * peers are kept. Peers with no manifest (or malformed manifests)
+ * are cached as absent for {@link #ABSENT_TTL_MS} so repeated
+ * lookups are skipped.
  *
  * <p>Fail-closed: any source or parse error returns an empty list.
  */
@@ -58,51 +63,59 @@ public final class RemoteIndexFetcher {
 
     public static final int MANIFEST_VERSION = 1;
 
+    public static final int MAX_CACHED_PEERS = 512;
+    public static final long CATALOG_TTL_MS = 10 * 60 * 1000L;
+    public static final long CATALOG_STALE_MS = 30 * 60 * 1000L;
+    public static final long ABSENT_TTL_MS = 5 * 60 * 1000L;
+
     private final IndexSource source;
-    private final ConcurrentHashMap<String, List<RemoteTorrentEntry>> cached = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Boolean> absent = new ConcurrentHashMap<>();
+    private final AsyncTtlCache<String, List<RemoteTorrentEntry>> cache;
 
     public RemoteIndexFetcher(IndexSource source) {
+        this(source, AsyncTtlCache.defaultExecutor(), System::currentTimeMillis);
+    }
+
+    RemoteIndexFetcher(IndexSource source, Executor executor, LongSupplier clock) {
         if (source == null) {
             throw new IllegalArgumentException("source is null");
         }
         this.source = source;
+        this.cache = new AsyncTtlCache<>(MAX_CACHED_PEERS, CATALOG_TTL_MS, CATALOG_STALE_MS,
+                ABSENT_TTL_MS, executor, clock);
     }
 
     /**
      * Fetch and parse a peer's catalog. Returns the list of entries,
      * or an empty list if the peer has no published catalog, the
-     * lookup failed, or parsing failed.
+     * lookup failed, or parsing failed. Blocks on a cold miss.
      */
     public List<RemoteTorrentEntry> fetchCatalog(byte[] peerPub) {
+        return fetchCatalogAsync(peerPub).join();
+    }
+
+    /**
+     * Asynchronous {@link #fetchCatalog(byte[])}. The future never
+     * completes exceptionally; failures complete it with an empty list.
+     */
+    public CompletableFuture<List<RemoteTorrentEntry>> fetchCatalogAsync(byte[] peerPub) {
         if (peerPub == null || peerPub.length != 32) {
-            return Collections.emptyList();
+            return CompletableFuture.completedFuture(Collections.emptyList());
         }
         String key = Hex.encode(peerPub);
-        List<RemoteTorrentEntry> cachedEntries = cached.get(key);
-        if (cachedEntries != null) {
-            return cachedEntries;
-        }
-        if (absent.containsKey(key)) {
-            return Collections.emptyList();
-        }
-        try {
-            Optional<byte[]> bytes = source.fetch(peerPub);
-            if (bytes == null || !bytes.isPresent()) {
-                absent.put(key, Boolean.TRUE);
-                return Collections.emptyList();
-            }
-            List<RemoteTorrentEntry> entries = parseManifest(bytes.get());
-            if (entries == null) {
-                absent.put(key, Boolean.TRUE);
-                return Collections.emptyList();
-            }
-            cached.put(key, entries);
-            return entries;
-        } catch (Throwable t) {
-            LOG.debug("RemoteIndexFetcher failed for peer " + key, t);
-            return Collections.emptyList();
+        return cache.get(key, k -> load(k, peerPub))
+                .handle((entries, t) -> entries != null ? entries : Collections.<RemoteTorrentEntry>emptyList());
+    }
+
+    /**
+     * Non-blocking lookup: the cached catalog (possibly stale), or
+     * null if none is cached yet, in which case it is fetched in the
+     * background.
+     */
+    public List<RemoteTorrentEntry> cachedCatalog(byte[] peerPub) {
+        if (peerPub == null || peerPub.length != 32) {
+            return null;
         }
+        return cache.peek(Hex.encode(peerPub), k -> load(k, peerPub));
     }
 
     /**
@@ -113,20 +126,39 @@ public final class RemoteIndexFetcher {
         if (peerPub == null) {
             return;
         }
-        String key = Hex.encode(peerPub);
-        cached.remove(key);
-        absent.remove(key);
+        cache.invalidate(Hex.encode(peerPub));
     }
 
     /** Clear all cached catalogs. */
     public void clear() {
-        cached.clear();
-        absent.clear();
+        cache.clear();
     }
 
     /** Number of peers with cached catalogs. */
     public int cacheSize() {
-        return cached.size();
+        return cache.presentSize();
+    }
+
+    /** The underlying cache, for its hit/miss/coalescing counters. */
+    public AsyncTtlCache<String, List<RemoteTorrentEntry>> cache() {
+        return cache;
+    }
+
+    /**
+     * Runs on the cache's loader pool. Returns null (cached as absent)
+     * for a missing or malformed manifest.
+     */
+    private List<RemoteTorrentEntry> load(String key, byte[] peerPub) {
+        try {
+            Optional<byte[]> bytes = source.fetch(peerPub);
+            if (bytes == null || !bytes.isPresent()) {
+                return null;
+            }
+            return parseManifest(bytes.get());
+        } catch (RuntimeException e) {
+            LOG.debug("RemoteIndexFetcher failed for peer " + key, e);
+            throw e;
+        }
     }
 
     // --- manifest parsing / building helpers ---
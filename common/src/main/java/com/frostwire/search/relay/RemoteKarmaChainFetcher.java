@@ -14,7 +14,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
 
 /**
  * Fetches a remote peer's karma chain manifest, verifies it with
@@ -36,9 +38,20 @@ import java.util.concurrent.ConcurrentHashMap;
  * failed verification is treated as "no chain" (cached as
  * absent, returns null on subsequent lookups).
  *
- * <p><b>Caching:</b> the first call for a given peer triggers a
- * remote lookup. Subsequent calls return the cached chain until
- * {@link #evict(byte[])} is called or the cache is cleared.
+ * <p>When constructed with a {@link KarmaChainStore}, the store's
+ * checkpoints are used so that a refetched chain which only grew
+ * has just its new tail fully verified (see
+ * {@link KarmaChain#verify(List, KarmaChainStore)}).
+ *
+ * <p><b>Caching:</b> chains live in an {@link AsyncTtlCache}.
+ * Lookups for the same peer are coalesced into one DHT request,
+ * a verified chain is fresh for {@link #CHAIN_TTL_MS} and served
+ * stale (while a background refresh runs) for another
+ * {@link #CHAIN_STALE_MS}, "no chain" is remembered for
+ * {@link #ABSENT_TTL_MS}, and at most {@link #MAX_CACHED_PEERS}
+ * peers are kept. {@link #cachedChain(byte[])} never blocks and is
+ * what ranking code should use; {@link #fetchChain(byte[])} waits
+ * for the DHT on a cold miss.
  *
  * <p>Fail-closed: any source or parse error returns null.
  */
@@ -46,51 +59,79 @@ public final class RemoteKarmaChainFetcher {
 
     private static final Logger LOG = Logger.getLogger(RemoteKarmaChainFetcher.class);
 
+    public static final int MAX_CACHED_PEERS = 2048;
+    public static final long CHAIN_TTL_MS = 15 * 60 * 1000L;
+    public static final long CHAIN_STALE_MS = 60 * 60 * 1000L;
+    public static final long ABSENT_TTL_MS = 5 * 60 * 1000L;
+
     private final KarmaChainSource source;
-    private final ConcurrentHashMap<String, List<KarmaChainEntry>> verified = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Boolean> absent = new ConcurrentHashMap<>();
+    private final KarmaChainStore checkpoints;
+    private final AsyncTtlCache<String, List<KarmaChainEntry>> cache;
 
     public RemoteKarmaChainFetcher(KarmaChainSource source) {
+        this(source, null);
+    }
+
+    /**
+     * @param checkpoints where verification checkpoints are loaded
+     *                    from and saved to, or null to always verify
+     *                    chains from genesis
+     */
+    public RemoteKarmaChainFetcher(KarmaChainSource source, KarmaChainStore checkpoints) {
+        this(source, checkpoints, AsyncTtlCache.defaultExecutor(), System::currentTimeMillis);
+    }
+
+    RemoteKarmaChainFetcher(KarmaChainSource source, Executor executor, LongSupplier clock) {
+        this(source, null, executor, clock);
+    }
+
+    RemoteKarmaChainFetcher(KarmaChainSource source, KarmaChainStore checkpoints,
+                            Executor executor, LongSupplier clock) {
         if (source == null) {
             throw new IllegalArgumentException("source is null");
         }
         this.source = source;
+        this.checkpoints = checkpoints;
+        this.cache = new AsyncTtlCache<>(MAX_CACHED_PEERS, CHAIN_TTL_MS, CHAIN_STALE_MS,
+                ABSENT_TTL_MS, executor, clock);
     }
 
     /**
      * Fetch and verify a peer's karma chain. Returns the verified
      * chain entries, or null if the peer has no chain, the lookup
-     * failed, or verification failed.
+     * failed, or verification failed. Blocks on a cold miss.
      */
     public List<KarmaChainEntry> fetchChain(byte[] peerPub) {
+        return fetchChainAsync(peerPub).join();
+    }
+
+    /**
+     * Asynchronous {@link #fetchChain(byte[])}. The future never
+     * completes exceptionally; failures complete it with null.
+     */
+    public CompletableFuture<List<KarmaChainEntry>> fetchChainAsync(byte[] peerPub) {
         if (peerPub == null || peerPub.length != 32) {
-            return null;
-        }
-        String key = cacheKey(peerPub);
-        List<KarmaChainEntry> cached = verified.get(key);
-        if (cached != null) {
-            return cached;
+            return CompletableFuture.completedFuture(null);
         }
-        if (absent.containsKey(key)) {
-            return null;
-        }
-        try {
-            Entry manifest = source.fetchManifest(peerPub);
-            if (manifest == null) {
-                absent.put(key, Boolean.TRUE);
-                return null;
-            }
-            List<KarmaChainEntry> entries = parseAndVerify(manifest);
-            if (entries == null) {
-                absent.put(key, Boolean.TRUE);
-                return null;
-            }
-            verified.put(key, entries);
-            return entries;
-        } catch (Throwable t) {
-            LOG.debug("Remote karma fetch failed for peer " + com.frostwire.util.Hex.encode(peerPub), t);
+        return cache.get(cacheKey(peerPub), key -> load(peerPub))
+                .exceptionally(t -> null);
+    }
+
+    /**
+     * Non-blocking lookup: the cached chain (possibly stale), or null
+     * if none is cached yet. A miss or a stale hit starts a background
+     * fetch, so a later call sees the result.
+     */
+    public List<KarmaChainEntry> cachedChain(byte[] peerPub) {
+        if (peerPub == null || peerPub.length != 32) {
             return null;
         }
+        return cache.peek(cacheKey(peerPub), key -> load(peerPub));
+    }
+
+    /** True if the peer has a chain, or a "no chain" marker, in the cache. */
+    public boolean isCached(byte[] peerPub) {
+        return peerPub != null && peerPub.length == 32 && cache.contains(cacheKey(peerPub));
     }
 
     /**
@@ -101,20 +142,41 @@ public final class RemoteKarmaChainFetcher {
         if (peerPub == null) {
             return;
         }
-        String key = cacheKey(peerPub);
-        verified.remove(key);
-        absent.remove(key);
+        cache.invalidate(cacheKey(peerPub));
     }
 
     /** Clear all cached chains. */
     public void clear() {
-        verified.clear();
-        absent.clear();
+        cache.clear();
     }
 
     /** Number of peers with verified chains in the cache. */
     public int cacheSize() {
-        return verified.size();
+        return cache.presentSize();
+    }
+
+    /** The underlying cache, for its hit/miss/coalescing counters. */
+    public AsyncTtlCache<String, List<KarmaChainEntry>> cache() {
+        return cache;
+    }
+
+    /**
+     * Runs on the cache's loader pool. Returns null (cached as absent)
+     * when the peer has no chain or it fails verification; throws
+     * (nothing cached) on transport errors.
+     */
+    private List<KarmaChainEntry> load(byte[] peerPub) {
+        Entry manifest;
+        try {
+            manifest = source.fetchManifest(peerPub);
+        } catch (RuntimeException e) {
+            LOG.debug("Remote karma fetch failed for peer " + com.frostwire.util.Hex.encode(peerPub), e);
+            throw e;
+        }
+        if (manifest == null) {
+            return null;
+        }
+        return parseAndVerify(manifest);
     }
 
     private List<KarmaChainEntry> parseAndVerify(Entry manifest) {
@@ -148,7 +210,7 @@ public final class RemoteKarmaChainFetcher {
             }
             chain.add(entry);
         }
-        if (!KarmaChain.verify(chain)) {
+        if (!KarmaChain.verify(chain, checkpoints)) {
             return null;
         }
         return Collections.unmodifiableList(chain);
@@ -0,0 +1,159 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-bucketed duplicate detector for mesh frames and forwarded search
+ * requests.
+ *
+ * <p>In a dense mesh the same message reaches a node along several paths.
+ * {@link #checkAndAdd} answers "did this message already pass through
+ * here?" so it is processed and re-forwarded once instead of once per
+ * path.
+ *
+ * <p>Two {@link KeywordBloomFilter} generations rotate: new keys go into
+ * the current one, lookups check both, and the previous one is dropped
+ * when the current one is {@code windowMs} old or holds
+ * {@code expectedPerWindow} keys. A key is therefore remembered for at
+ * least one window unless the filter is overloaded, and at most two. Each
+ * generation is sized for about 0.1% false positives at capacity; a false
+ * positive drops a message that was not a duplicate, which the other
+ * paths of a flood cover for.
+ *
+ * <p>Keys are a SHA-256 of the message parts under a random per-instance
+ * salt, so remote peers cannot craft messages that collide in the filter.
+ */
+public final class SeenFilter {
+
+    private static final double BITS_PER_KEY = 14.4;
+
+    private final int expectedPerWindow;
+    private final long windowMs;
+    private final int filterBytes;
+    private final int hashes;
+    private final LongSupplier clock;
+    private final byte[] salt;
+    private final MessageDigest sha256;
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    private KeywordBloomFilter current;
+    private KeywordBloomFilter previous;
+    private int currentCount;
+    private long rotatedAtMs;
+
+    public SeenFilter(int expectedPerWindow, long windowMs) {
+        this(expectedPerWindow, windowMs, System::currentTimeMillis);
+    }
+
+    SeenFilter(int expectedPerWindow, long windowMs, LongSupplier clock) {
+        if (expectedPerWindow <= 0) {
+            throw new IllegalArgumentException("expectedPerWindow must be > 0");
+        }
+        if (windowMs <= 0) {
+            throw new IllegalArgumentException("windowMs must be > 0");
+        }
+        this.expectedPerWindow = expectedPerWindow;
+        this.windowMs = windowMs;
+        this.filterBytes = (int) Math.max(8, Math.ceil(expectedPerWindow * BITS_PER_KEY / 8));
+        this.hashes = KeywordBloomFilter.optimalHashes(filterBytes * 8L, expectedPerWindow);
+        this.clock = clock;
+        this.salt = new byte[16];
+        new SecureRandom().nextBytes(salt);
+        try {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        this.current = new KeywordBloomFilter(filterBytes, hashes);
+        this.previous = new KeywordBloomFilter(filterBytes, hashes);
+        this.rotatedAtMs = clock.getAsLong();
+    }
+
+    /**
+     * Records the message made of {@code parts} and reports whether it was
+     * (probably) recorded before within the window. Null parts are skipped.
+     *
+     * @return true if this is a duplicate and should be dropped
+     */
+    public synchronized boolean checkAndAdd(byte[]... parts) {
+        checks.incrementAndGet();
+        long key = key(parts);
+        rotateIfNeeded();
+        if (current.mightContain(key) || previous.mightContain(key)) {
+            duplicates.incrementAndGet();
+            return true;
+        }
+        current.add(key);
+        currentCount++;
+        return false;
+    }
+
+    /**
+     * Reports whether the message made of {@code parts} was (probably)
+     * recorded within the window, without recording it. For callers that
+     * only record a message once they have accepted it.
+     */
+    public synchronized boolean mightContain(byte[]... parts) {
+        long key = key(parts);
+        rotateIfNeeded();
+        return current.mightContain(key) || previous.mightContain(key);
+    }
+
+    /** Number of {@link #checkAndAdd} calls. */
+    public long checkCount() {
+        return checks.get();
+    }
+
+    /** Number of {@link #checkAndAdd} calls that reported a duplicate. */
+    public long duplicateCount() {
+        return duplicates.get();
+    }
+
+    /** Heap used by the two generations' bit arrays. */
+    public int sizeBytes() {
+        return 2 * filterBytes;
+    }
+
+    private void rotateIfNeeded() {
+        long now = clock.getAsLong();
+        if (now - rotatedAtMs >= 2 * windowMs) {
+            // idle for two windows: both generations are expired
+            previous = new KeywordBloomFilter(filterBytes, hashes);
+            current = new KeywordBloomFilter(filterBytes, hashes);
+        } else if (now - rotatedAtMs >= windowMs || currentCount >= expectedPerWindow) {
+            previous = current;
+            current = new KeywordBloomFilter(filterBytes, hashes);
+        } else {
+            return;
+        }
+        currentCount = 0;
+        rotatedAtMs = now;
+    }
+
+    /** Caller holds the monitor ({@link #sha256} is not thread-safe). */
+    private long key(byte[][] parts) {
+        sha256.reset();
+        sha256.update(salt);
+        for (byte[] part : parts) {
+            if (part != null) {
+                // length prefix keeps ("ab", "c") and ("a", "bc") apart
+                sha256.update(ByteBuffer.allocate(4).putInt(part.length).array());
+                sha256.update(part);
+            }
+        }
+        return ByteBuffer.wrap(sha256.digest()).getLong();
+    }
+}
@@ -31,14 +31,25 @@ public final class ShareVisibility {
         }
         List<LocalSharedTorrent> out = new ArrayList<>(rows.size());
         for (LocalSharedTorrent t : rows) {
-            if (t == null) {
-                continue;
-            }
-            String hash = t.infoHashHex();
-            if (hash != null && policy.isVisible(hash)) {
+            if (isVisible(t, policy)) {
                 out.add(t);
             }
         }
         return out;
     }
+
+    /**
+     * Single-row form of {@link #filter}, for rows streamed off a cursor.
+     * Null policy = visible.
+     */
+    public static boolean isVisible(LocalSharedTorrent t, ShareVisibilityPolicy policy) {
+        if (t == null) {
+            return false;
+        }
+        if (policy == null || policy == ShareVisibilityPolicy.INCLUDE_ALL) {
+            return true;
+        }
+        String hash = t.infoHashHex();
+        return hash != null && policy.isVisible(hash);
+    }
 }
@@ -7,6 +7,8 @@
 
 package com.frostwire.search.relay.icebridge;
 
+import com.frostwire.search.relay.KarmaConstants;
+
 import java.io.File;
 import java.util.Objects;
 
@@ -42,6 +44,9 @@ public final class IceBridgeConfig {
     private final boolean bootstrap;
     private final boolean dhtEnabled;
     private final File authTokensFile;
+    private final int identityDifficulty;
+    private final long identityMiningBudgetSec;
+    private final File ipFilterFile;
 
     public IceBridgeConfig(String host,
                            int rudpPort,
@@ -84,6 +89,45 @@ public final class IceBridgeConfig {
                            boolean bootstrap,
                            boolean dhtEnabled,
                            File authTokensFile) {
+        this(host, rudpPort, relayPort, controlHttpPort, role, identityFile,
+                maxPeers, peerTtlSec, maxQpsPerKey, bootstrap, dhtEnabled, authTokensFile,
+                KarmaConstants.IDENTITY_DIFFICULTY, 0);
+    }
+
+    public IceBridgeConfig(String host,
+                           int rudpPort,
+                           int relayPort,
+                           int controlHttpPort,
+                           Role role,
+                           File identityFile,
+                           int maxPeers,
+                           long peerTtlSec,
+                           double maxQpsPerKey,
+                           boolean bootstrap,
+                           boolean dhtEnabled,
+                           File authTokensFile,
+                           int identityDifficulty,
+                           long identityMiningBudgetSec) {
+        this(host, rudpPort, relayPort, controlHttpPort, role, identityFile,
+                maxPeers, peerTtlSec, maxQpsPerKey, bootstrap, dhtEnabled, authTokensFile,
+                identityDifficulty, identityMiningBudgetSec, null);
+    }
+
+    public IceBridgeConfig(String host,
+                           int rudpPort,
+                           int relayPort,
+                           int controlHttpPort,
+                           Role role,
+                           File identityFile,
+                           int maxPeers,
+                           long peerTtlSec,
+                           double maxQpsPerKey,
+                           boolean bootstrap,
+                           boolean dhtEnabled,
+                           File authTokensFile,
+                           int identityDifficulty,
+                           long identityMiningBudgetSec,
+                           File ipFilterFile) {
         this.host = Objects.requireNonNullElse(host, "0.0.0.0");
         this.rudpPort = requirePositiveOrZero(rudpPort, "rudpPort");
         this.relayPort = requirePositiveOrZero(relayPort, "relayPort");
@@ -96,6 +140,12 @@ public final class IceBridgeConfig {
         this.bootstrap = bootstrap;
         this.dhtEnabled = dhtEnabled;
         this.authTokensFile = authTokensFile != null ? authTokensFile : new File("icebridge-tokens.txt");
+        if (identityDifficulty < 0 || identityDifficulty > 160) {
+            throw new IllegalArgumentException("identityDifficulty must be in [0, 160]");
+        }
+        this.identityDifficulty = identityDifficulty;
+        this.identityMiningBudgetSec = requirePositiveOrZero(identityMiningBudgetSec, "identityMiningBudgetSec");
+        this.ipFilterFile = ipFilterFile;
     }
 
     public String host() {
@@ -152,6 +202,31 @@ public final class IceBridgeConfig {
         return authTokensFile;
     }
 
+    /**
+     * Leading zero bits to aim for when mining a new identity. Values
+     * below {@link KarmaConstants#IDENTITY_DIFFICULTY} are raised to it.
+     */
+    public int identityDifficulty() {
+        return identityDifficulty;
+    }
+
+    /**
+     * Time spent mining toward {@link #identityDifficulty()} before
+     * settling for the best key found (at least the required minimum).
+     * 0 stops at the first key that meets the minimum.
+     */
+    public long identityMiningBudgetSec() {
+        return identityMiningBudgetSec;
+    }
+
+    /**
+     * Compiled IP block list ({@code ip_filter.idx}) whose peers are dropped before any rUDP or
+     * identity handshake work, or null for none. The file is reloaded when it changes.
+     */
+    public File ipFilterFile() {
+        return ipFilterFile;
+    }
+
     public boolean canAcceptIncoming() {
         return role == Role.FORWARDER || role == Role.BOTH;
     }
@@ -200,6 +275,9 @@ public final class IceBridgeConfig {
         private boolean bootstrap;
         private boolean dhtEnabled;
         private File authTokensFile;
+        private int identityDifficulty = KarmaConstants.IDENTITY_DIFFICULTY;
+        private long identityMiningBudgetSec;
+        private File ipFilterFile;
 
         private Builder() {
         }
@@ -264,10 +342,25 @@ public final class IceBridgeConfig {
             return this;
         }
 
+        public Builder identityDifficulty(int identityDifficulty) {
+            this.identityDifficulty = identityDifficulty;
+            return this;
+        }
+
+        public Builder identityMiningBudgetSec(long identityMiningBudgetSec) {
+            this.identityMiningBudgetSec = identityMiningBudgetSec;
+            return this;
+        }
+
+        public Builder ipFilterFile(File ipFilterFile) {
+            this.ipFilterFile = ipFilterFile;
+            return this;
+        }
+
         public IceBridgeConfig build() {
             return new IceBridgeConfig(host, rudpPort, relayPort, controlHttpPort, role,
                     identityFile, maxPeers, peerTtlSec, maxQpsPerKey, bootstrap, dhtEnabled,
-                    authTokensFile);
+                    authTokensFile, identityDifficulty, identityMiningBudgetSec, ipFilterFile);
         }
     }
 
@@ -292,6 +385,13 @@ public final class IceBridgeConfig {
         return value;
     }
 
+    private static long requirePositiveOrZero(long value, String name) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " must be >= 0");
+        }
+        return value;
+    }
+
     private static double requirePositive(double value, String name) {
         if (value <= 0) {
             throw new IllegalArgumentException(name + " must be > 0");
@@ -316,6 +416,12 @@ public final class IceBridgeConfig {
      *   <li>{@code ICEBRIDGE_DHT} — embed DHT SessionManager and announce (default: true for
      *       FORWARDER/BOTH, false for CLIENT)</li>
      *   <li>{@code ICEBRIDGE_AUTH_TOKENS_FILE} — path to file with bearer tokens, one per line (default: icebridge-tokens.txt)</li>
+     *   <li>{@code ICEBRIDGE_IDENTITY_DIFFICULTY} — PoW bits to aim for when mining a new identity
+     *       (default: {@link KarmaConstants#IDENTITY_DIFFICULTY})</li>
+     *   <li>{@code ICEBRIDGE_IDENTITY_MINING_SEC} — seconds to mine toward that difficulty before
+     *       settling for the best key found (default: 0)</li>
+     *   <li>{@code ICEBRIDGE_IP_FILTER_FILE} — compiled IP block list (ip_filter.idx) whose peers
+     *       are dropped (default: none)</li>
      *   <li>{@code ICEBRIDGE_MESH_FANOUT} — N: max IceBridge peers for mesh RELAY (default: 32, LimeWire NUM_CONNECTIONS)</li>
      *   <li>{@code ICEBRIDGE_SEARCH_PEER_FANOUT} — M: max FrostWire peers per search hop (default: 30, MAX_LEAVES)</li>
      *   <li>{@code ICEBRIDGE_MESH_HOP_TTL} — mesh RELAY hop TTL (default: 3, SOFT_MAX)</li>
@@ -349,6 +455,12 @@ public final class IceBridgeConfig {
         b.dhtEnabled(envBool("ICEBRIDGE_DHT", dhtDefault));
         String tokensFile = env("ICEBRIDGE_AUTH_TOKENS_FILE", "icebridge-tokens.txt");
         b.authTokensFile(new File(tokensFile));
+        b.identityDifficulty(envInt("ICEBRIDGE_IDENTITY_DIFFICULTY", KarmaConstants.IDENTITY_DIFFICULTY));
+        b.identityMiningBudgetSec(envLong("ICEBRIDGE_IDENTITY_MINING_SEC", 0));
+        String ipFilterPath = env("ICEBRIDGE_IP_FILTER_FILE", "");
+        if (!ipFilterPath.isEmpty()) {
+            b.ipFilterFile(new File(ipFilterPath));
+        }
         // Topology is process-wide (IceBridgeTopology reads the same env keys
         // in its constructor); re-apply here so fromEnv() after startup still
         // refreshes live limits.
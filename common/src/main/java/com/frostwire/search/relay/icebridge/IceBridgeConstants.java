@@ -16,8 +16,13 @@ public final class IceBridgeConstants {
         // utility class
     }
 
-    /** Protocol version for inter-servent rUDP framing. */
-    public static final int PROTOCOL_VERSION = 1;
+    /**
+     * Protocol version for inter-servent rUDP framing, advertised in the
+     * {@code ackThrough} field of HELLO / HELLO_ACK. Version 2 adds
+     * {@code RELAY_V2} frames carrying an end-to-end message id; peers that
+     * advertise less (older nodes send 0) only get plain RELAY frames.
+     */
+    public static final int PROTOCOL_VERSION = 2;
 
     /**
      * Monotonic software release code advertised by this IceBridge build.
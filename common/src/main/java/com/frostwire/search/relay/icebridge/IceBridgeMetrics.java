@@ -23,6 +23,9 @@ public final class IceBridgeMetrics {
     private final AtomicLong rudpBytesOut = new AtomicLong();
     private final AtomicLong controlRequests = new AtomicLong();
     private final AtomicLong controlErrors = new AtomicLong();
+    private final AtomicLong relayDuplicatesDropped = new AtomicLong();
+    private final AtomicLong relayBusySignals = new AtomicLong();
+    private final AtomicLong relayBackoffDrops = new AtomicLong();
 
     public void rudpPacketIn(int bytes) {
         rudpPacketsIn.incrementAndGet();
@@ -42,6 +45,21 @@ public final class IceBridgeMetrics {
         controlErrors.incrementAndGet();
     }
 
+    /** A RELAY frame already seen by this node (another mesh path or a retransmit). */
+    public void relayDuplicateDropped() {
+        relayDuplicatesDropped.incrementAndGet();
+    }
+
+    /** A RELAY_BUSY sent back to the hop that fed us a RELAY we could not take. */
+    public void relayBusySignaled() {
+        relayBusySignals.incrementAndGet();
+    }
+
+    /** A RELAY not sent or forwarded because its target asked us to back off. */
+    public void relayBackoffDropped() {
+        relayBackoffDrops.incrementAndGet();
+    }
+
     public long rudpPacketsIn() {
         return rudpPacketsIn.get();
     }
@@ -66,6 +84,18 @@ public final class IceBridgeMetrics {
         return controlErrors.get();
     }
 
+    public long relayDuplicatesDropped() {
+        return relayDuplicatesDropped.get();
+    }
+
+    public long relayBusySignals() {
+        return relayBusySignals.get();
+    }
+
+    public long relayBackoffDrops() {
+        return relayBackoffDrops.get();
+    }
+
     public void reset() {
         rudpPacketsIn.set(0);
         rudpPacketsOut.set(0);
@@ -73,5 +103,8 @@ public final class IceBridgeMetrics {
         rudpBytesOut.set(0);
         controlRequests.set(0);
         controlErrors.set(0);
+        relayDuplicatesDropped.set(0);
+        relayBusySignals.set(0);
+        relayBackoffDrops.set(0);
     }
 }
\ No newline at end of file
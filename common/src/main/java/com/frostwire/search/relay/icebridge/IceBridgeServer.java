@@ -9,6 +9,7 @@ package com.frostwire.search.relay.icebridge;
 
 import com.frostwire.search.relay.DhtAdvertiser;
 import com.frostwire.search.relay.IdentityKeys;
+import com.frostwire.search.relay.IdentityLifecycle;
 import com.frostwire.search.relay.IdentityRecord;
 import com.frostwire.search.relay.IdentityRecordPublisher;
 import com.frostwire.search.relay.IncomingRelayServer;
@@ -19,6 +20,8 @@ import com.frostwire.search.relay.icebridge.peer.PeerRegistry;
 import com.frostwire.search.relay.icebridge.udp.RudpSessionManager;
 import com.frostwire.search.relay.icebridge.udp.RudpServer;
 import com.frostwire.util.Hex;
+import com.frostwire.util.IPBlocklist;
+import com.frostwire.util.IPIntervalSet;
 import com.frostwire.util.Logger;
 
 import java.io.File;
@@ -59,6 +62,8 @@ public final class IceBridgeServer implements AutoCloseable {
     private IncomingRelayServer relayServer;
     private IceBridgeDhtSession dhtSession;
     private DhtAdvertiser dhtAdvertiser;
+    /** lastModified of the loaded {@link IceBridgeConfig#ipFilterFile()}, 0 when none was loaded. */
+    private long ipFilterModified;
 
     public static void main(String[] args) {
         configureStandaloneConsoleLogging();
@@ -116,6 +121,7 @@ public final class IceBridgeServer implements AutoCloseable {
         System.out.println("  ICEBRIDGE_MAX_QPS_PER_KEY   = " + config.maxQpsPerKey());
         System.out.println("  ICEBRIDGE_BOOTSTRAP         = " + config.bootstrap());
         System.out.println("  ICEBRIDGE_DHT               = " + config.dhtEnabled());
+        System.out.println("  ICEBRIDGE_IP_FILTER_FILE    = " + (config.ipFilterFile() != null ? config.ipFilterFile() : "(none)"));
         System.out.println();
 
         if (!checkPortAvailable(config.host(), config.rudpPort(), true)) {
@@ -286,7 +292,8 @@ public final class IceBridgeServer implements AutoCloseable {
             throw new IllegalStateException("server already started");
         }
         ensureRuntimeAuthToken();
-        this.identity = loadIdentity(config.identityFile());
+        reloadIpFilterIfChanged();
+        this.identity = loadIdentity(config);
         this.metrics = new IceBridgeMetrics();
         this.registry = new PeerRegistry(config);
         this.inboundQueue = new InboundMessageQueue();
@@ -307,27 +314,48 @@ public final class IceBridgeServer implements AutoCloseable {
                 + " dht=" + (dhtAdvertiser != null));
     }
 
-    private IdentityKeys loadIdentity(File file) throws IOException, GeneralSecurityException {
+    private IdentityKeys loadIdentity(IceBridgeConfig config) throws IOException, GeneralSecurityException {
+        File file = config.identityFile();
         if (file == null) {
             File defaultDir = new File(System.getProperty("user.home"), ".frostwire");
             file = new File(defaultDir, "icebridge-identity.dat");
         }
+        int minDifficulty = com.frostwire.search.relay.KarmaConstants.IDENTITY_DIFFICULTY;
+        int targetDifficulty = Math.max(minDifficulty, config.identityDifficulty());
+        long budgetMs = config.identityMiningBudgetSec() * 1000L;
         // CLI-visible progress: first-run PoW can take seconds; never leave operators guessing.
         boolean exists = file.exists() && file.length() > 0;
         if (exists) {
             System.out.println("Loading identity from " + file.getAbsolutePath() + " …");
+        } else if (targetDifficulty > minDifficulty && budgetMs > 0) {
+            System.out.println("No identity file yet — mining proof-of-work identity on all cores"
+                    + " for up to " + config.identityMiningBudgetSec() + " s, aiming for "
+                    + targetDifficulty + " leading zero bits (at least " + minDifficulty + ")."
+                    + " Please wait…");
+            System.out.flush();
         } else {
             System.out.println("No identity file yet — mining proof-of-work identity"
-                    + " (" + com.frostwire.search.relay.KarmaConstants.IDENTITY_DIFFICULTY
+                    + " (" + minDifficulty
                     + " leading zero bits). This usually takes a few seconds (native Ed25519)."
                     + " Please wait…");
             System.out.flush();
         }
         long t0 = System.currentTimeMillis();
-        IdentityKeys keys = IdentityKeys.loadOrCreate(file);
+        long[] lastReportSec = {0};
+        IdentityKeys keys = IdentityKeys.loadOrCreate(file, targetDifficulty, budgetMs, progress -> {
+            long sec = progress.elapsedMs() / 1000;
+            if (sec - lastReportSec[0] >= 10) {
+                lastReportSec[0] = sec;
+                System.out.println("  … " + progress.attempts() + " keys, "
+                        + Math.round(progress.hashesPerSecond()) + "/s on " + progress.threads()
+                        + " threads, best " + progress.bestDifficulty() + " bits");
+                System.out.flush();
+            }
+        });
         long ms = System.currentTimeMillis() - t0;
         if (!exists) {
-            System.out.println("Identity ready in " + ms + " ms → " + file.getAbsolutePath());
+            System.out.println("Identity ready in " + ms + " ms ("
+                    + IdentityLifecycle.difficultyBits(keys) + " bits) → " + file.getAbsolutePath());
         } else {
             System.out.println("Identity loaded in " + ms + " ms.");
         }
@@ -434,11 +462,47 @@ public final class IceBridgeServer implements AutoCloseable {
             if (removed > 0) {
                 LOG.info("IceBridge janitor evicted " + removed + " stale peers; registry size=" + registry.size());
             }
+            // USE_REMOTE client queues live as long as the registration.
+            int queues = inboundQueue.evictUnregistered(pub -> registry.lookup(pub) != null);
+            if (queues > 0) {
+                LOG.info("IceBridge janitor dropped " + queues + " inbound queues of unregistered clients");
+            }
+            // the desktop UI rewrites ip_filter.idx when the user imports or edits the list
+            reloadIpFilterIfChanged();
         } catch (Throwable t) {
             LOG.warn("IceBridge janitor failed", t);
         }
     }
 
+    /**
+     * Publishes {@link IceBridgeConfig#ipFilterFile()} as the {@link IPBlocklist} that
+     * {@link RudpServer} and {@link IncomingRelayServer} check, if it changed since the last load.
+     */
+    synchronized void reloadIpFilterIfChanged() {
+        File file = config.ipFilterFile();
+        if (file == null) {
+            return;
+        }
+        long modified = file.isFile() ? file.lastModified() : 0;
+        if (modified == ipFilterModified) {
+            return;
+        }
+        if (modified == 0) {
+            IPBlocklist.set(IPIntervalSet.EMPTY);
+            ipFilterModified = 0;
+            LOG.info("IceBridge IP filter " + file + " removed, no peers blocked");
+            return;
+        }
+        try {
+            IPIntervalSet set = IPIntervalSet.load(file);
+            IPBlocklist.set(set);
+            ipFilterModified = modified;
+            LOG.info("IceBridge IP filter loaded from " + file + ": " + set.size() + " ranges");
+        } catch (IOException e) {
+            LOG.warn("IceBridge can't load IP filter " + file + ": " + e.getMessage());
+        }
+    }
+
     public IceBridgeConfig config() {
         return config;
     }
@@ -568,6 +632,9 @@ public final class IceBridgeServer implements AutoCloseable {
                 case "--host":
                     b.host(next(args, ++i, "--host"));
                     break;
+                case "--ip-filter-file":
+                    b.ipFilterFile(new File(next(args, ++i, "--ip-filter-file")));
+                    break;
                 case "--auth-token":
                     // Parsed separately by parseAuthToken(); skip value.
                     i++;
@@ -624,6 +691,7 @@ public final class IceBridgeServer implements AutoCloseable {
         System.out.println("  --dht                      Embed DHT SessionManager and announce on relay topics");
         System.out.println("  --no-dht                   Disable embedded DHT (default when using CLI without --dht)");
         System.out.println("  --host HOST                Bind host");
+        System.out.println("  --ip-filter-file PATH      Compiled IP block list (ip_filter.idx), reloaded when it changes");
         System.out.println("  --auth-tokens-file PATH    File with one bearer token per line (default icebridge-tokens.txt)");
         System.out.println("  --generate-token           Generate + print one new token (only the token to stdout), store it, exit");
     }
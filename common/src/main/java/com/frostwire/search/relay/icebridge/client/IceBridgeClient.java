@@ -11,6 +11,7 @@ import com.frostwire.search.relay.IdentityKeys;
 import com.frostwire.search.relay.icebridge.IceBridgeConfig;
 import com.frostwire.search.relay.icebridge.IceBridgeConstants;
 import com.frostwire.search.relay.icebridge.control.ApiResponse;
+import com.frostwire.search.relay.icebridge.control.PeerDelta;
 import com.frostwire.search.relay.icebridge.control.PeerInfo;
 import com.frostwire.search.relay.icebridge.control.RegisterRequest;
 import com.frostwire.search.relay.icebridge.control.RouteRequest;
@@ -113,6 +114,21 @@ public final class IceBridgeClient implements AutoCloseable {
         return response == null || response.data == null ? Collections.emptyList() : response.data;
     }
 
+    /**
+     * Fetch registry changes after the cursor of a previous call
+     * ({@code 0, 0} for a full pull).
+     *
+     * @return the page, or null if the call failed or the daemon predates
+     *         {@code /lookup/delta}
+     */
+    public PeerDelta lookupDelta(long epoch, long sinceVersion, int count) {
+        ApiResponse<PeerDelta> response = get("/lookup/delta?epoch=" + epoch
+                        + "&since=" + sinceVersion + "&count=" + count,
+                new TypeToken<ApiResponse<PeerDelta>>() {
+                });
+        return response == null || !response.ok ? null : response.data;
+    }
+
     /**
      * Register this node's identity and endpoint with the local IceBridge.
      */
@@ -18,6 +18,7 @@ import com.frostwire.search.relay.RemoteIndexFetcher;
 import com.frostwire.search.relay.RemoteSearchRequest;
 import com.frostwire.search.relay.RemoteSearchResponse;
 import com.frostwire.search.relay.SearchPayloadCodec;
+import com.frostwire.search.relay.SeenFilter;
 import com.frostwire.search.relay.icebridge.IceBridgeTopology;
 import com.frostwire.search.relay.icebridge.MeshProtocolId;
 import com.frostwire.util.Hex;
@@ -33,7 +34,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
-import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -59,6 +59,10 @@ import java.util.concurrent.ConcurrentHashMap;
  * <p>Rate-limits per-source to prevent flood/amplification attacks. Each
  * source public key is limited to {@link #MAX_REQUESTS_PER_MINUTE} search
  * requests per minute.
+ *
+ * <p>Requests that already passed through this node along another mesh
+ * path are dropped before search and forwarding (see {@link SeenFilter}),
+ * so a multi-path flood is answered and re-forwarded once per node.
  */
 public final class IncomingSearchRequestHandler implements DistributedSearchTransport.PayloadListener {
 
@@ -80,12 +84,20 @@ public final class IncomingSearchRequestHandler implements DistributedSearchTran
     private static final int MAX_FORWARD_TARGETS =
             IceBridgeTopology.DEFAULT_SEARCH_PEER_FANOUT;
 
+    /**
+     * Covers the request timestamp skew window; older copies are rejected
+     * by {@link RelaySearchService} anyway.
+     */
+    private static final long SEEN_WINDOW_MS = RemoteSearchRequest.MAX_TIMESTAMP_SKEW_SEC * 1000L;
+    private static final int SEEN_PER_WINDOW = 20_000;
+
     private final DistributedSearchTransport transport;
     private final RelaySearchService searchService;
     private final PeerDirectory peerDirectory;
     private final IdentityKeys identity;
     private final LocalIndex localIndex;
     private final ConcurrentHashMap<String, RateBucket> rateMap = new ConcurrentHashMap<>();
+    private final SeenFilter seenRequests = new SeenFilter(SEEN_PER_WINDOW, SEEN_WINDOW_MS);
 
     public IncomingSearchRequestHandler(DistributedSearchTransport transport,
                                         RelaySearchService searchService) {
@@ -151,15 +163,26 @@ public final class IncomingSearchRequestHandler implements DistributedSearchTran
         }
     }
 
+    /** Number of search requests dropped because this node had already handled them. */
+    public long duplicateDrops() {
+        return seenRequests.duplicateCount();
+    }
+
     private void handleSearchRequest(RemoteSearchRequest request, byte[] sourcePub) {
+        // Hop fields differ per path; the signed envelope does not. The
+        // signature is part of the key so a forged copy with a stolen
+        // nonce cannot shadow the genuine request.
+        if (seenRequests.checkAndAdd(request.requesterPub(), request.nonce(), request.signature())) {
+            LOG.debug("IncomingSearchRequestHandler: dropped duplicate search from "
+                    + Hex.encode(request.requesterPub()).substring(0, 12) + "…");
+            return;
+        }
         // Rate-limit is applied inside RelaySearchService after signature
         // verify, keyed by requesterPub (not transport sourcePub).
         try {
-            Optional<RemoteSearchResponse> response = searchService.handle(request);
-            if (response.isEmpty()) {
-                return;
-            }
-            sendSearchResponse(request.requesterPub(), response.get());
+            byte[] requesterPub = request.requesterPub();
+            searchService.handleStreaming(request, RemoteSearchResponse.DEFAULT_STREAM_CHUNK_SIZE,
+                    chunk -> sendSearchChunk(requesterPub, chunk));
         } catch (Throwable t) {
             LOG.debug("IncomingSearchRequestHandler failed to process request", t);
         }
@@ -177,55 +200,17 @@ public final class IncomingSearchRequestHandler implements DistributedSearchTran
     }
 
     /**
-     * Stream large result sets as signed RESULT chunks ending with
-     * {@code final=true}. Small sets stay a single frame.
+     * Sends one signed RESULT chunk as soon as {@link RelaySearchService}
+     * has it. Small result sets are a single final chunk.
      */
-    private void sendSearchResponse(byte[] requesterPub, RemoteSearchResponse full) {
-        List<RemoteSearchResponse.Row> rows = full.rows();
-        int chunkSize = RemoteSearchResponse.DEFAULT_STREAM_CHUNK_SIZE;
-        if (rows.size() <= chunkSize || identity == null) {
-            byte[] responseBytes = SearchPayloadCodec.encodeResponse(full);
-            if (!transport.send(requesterPub, MeshProtocolId.SEARCH, responseBytes)) {
-                LOG.warn("Could not route search response to requester "
-                        + Hex.encode(requesterPub));
-            }
-            return;
-        }
-        int total = rows.size();
-        int chunks = (total + chunkSize - 1) / chunkSize;
-        long ts = full.timestamp();
-        byte[] nonce = full.nonce();
-        for (int i = 0; i < chunks; i++) {
-            int from = i * chunkSize;
-            int to = Math.min(from + chunkSize, total);
-            boolean isFinal = i == chunks - 1;
-            try {
-                RemoteSearchResponse.Builder b = RemoteSearchResponse.builder()
-                        .nonce(nonce)
-                        .timestamp(ts)
-                        .chunkIndex(i)
-                        .finalChunk(isFinal);
-                for (int r = from; r < to; r++) {
-                    RemoteSearchResponse.Row row = rows.get(r);
-                    b.addRow(row.infoHash, row.name, row.sizeBytes, row.fileCount,
-                            row.publisherEd25519Pub, row.publisherNodeId, row.matchedFile);
-                }
-                RemoteSearchResponse unsigned = b.signature(new byte[64]).build();
-                Signature signer = IdentityKeys.softwareSignature("Ed25519");
-                signer.initSign(identity.ed25519().getPrivate());
-                signer.update(unsigned.canonicalBytes());
-                RemoteSearchResponse chunk = b.signature(signer.sign()).build();
-                byte[] bytes = SearchPayloadCodec.encodeResponse(chunk);
-                if (!transport.send(requesterPub, MeshProtocolId.SEARCH, bytes)) {
-                    LOG.warn("Could not route search chunk " + i + " to "
-                            + Hex.encode(requesterPub));
-                    return;
-                }
-            } catch (Throwable t) {
-                LOG.debug("Failed to stream search chunk " + i, t);
-                return;
-            }
+    private boolean sendSearchChunk(byte[] requesterPub, RemoteSearchResponse chunk) {
+        byte[] bytes = SearchPayloadCodec.encodeResponse(chunk);
+        if (!transport.send(requesterPub, MeshProtocolId.SEARCH, bytes)) {
+            LOG.warn("Could not route search chunk " + chunk.chunkIndex() + " to "
+                    + Hex.encode(requesterPub));
+            return false;
         }
+        return true;
     }
 
     private void handleCatalogBrowseRequest(RemoteCatalogBrowseRequest request,
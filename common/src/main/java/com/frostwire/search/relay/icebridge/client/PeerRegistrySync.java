@@ -11,13 +11,17 @@ import com.frostwire.search.relay.IdentityKeys;
 import com.frostwire.search.relay.PeerDirectory;
 import com.frostwire.search.relay.icebridge.IceBridgeConfig;
 import com.frostwire.search.relay.icebridge.MeshProtocolId;
+import com.frostwire.search.relay.icebridge.control.PeerDelta;
 import com.frostwire.search.relay.icebridge.control.PeerInfo;
 import com.frostwire.util.Hex;
 import com.frostwire.util.Logger;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -34,6 +38,17 @@ import java.util.concurrent.TimeUnit;
  * registration is already Ed25519-signed at the forwarder; this is the path
  * when direct TCP identity (home NAT) is unreachable — DESIGN_RELAY_REGISTRY
  * hybrid plane + §8 mesh search.
+ *
+ * <p>The pull is incremental: the sync keeps the {@code (epoch, version)}
+ * cursor of the registry and asks {@code GET /lookup/delta} only for
+ * records that changed since, so a steady mesh costs one small request per
+ * cycle instead of re-importing every peer. Daemons without the delta
+ * endpoint fall back to a full {@code GET /lookup}.
+ *
+ * <p>The delta only drives directory membership. Warming (the rUDP
+ * HELLO plus NAT keepalive ping) is done every cycle for the
+ * {@link #MAX_WARMS_PER_CYCLE} freshest registry peers, then for routed
+ * directory peers while that budget lasts, each peer at most once.
  */
 public final class PeerRegistrySync implements AutoCloseable {
 
@@ -44,6 +59,11 @@ public final class PeerRegistrySync implements AutoCloseable {
     private static final long SYNC_INTERVAL_SEC = 30;
     private static final long INITIAL_DELAY_SEC = 3;
     private static final int LOOKUP_COUNT = 50;
+    private static final int DELTA_PAGE_SIZE = 200;
+    /** Caps one cycle's catch-up; the cursor continues on the next cycle. */
+    private static final int MAX_DELTA_PAGES = 10;
+    /** Peers pinged per cycle; the interval keeps their NAT mappings open. */
+    static final int MAX_WARMS_PER_CYCLE = 32;
     private static final byte[] WARM_PING = {0x01};
 
     private final IceBridgeClient client;
@@ -54,6 +74,9 @@ public final class PeerRegistrySync implements AutoCloseable {
     private final IceBridgeConfig.Role localRole;
     private final byte[] ownPub;
     private final ScheduledExecutorService scheduler;
+    /** Delta cursor; only touched by the sync thread. */
+    private long deltaEpoch;
+    private long deltaVersion;
 
     public PeerRegistrySync(IceBridgeClient client,
                             PeerDirectory directory,
@@ -108,13 +131,15 @@ public final class PeerRegistrySync implements AutoCloseable {
 
     /**
      * One sync cycle: register self, push verified peers to IceBridge, pull
-     * mesh peers into the directory (forwarder-first discovery).
+     * mesh peers into the directory (forwarder-first discovery), then warm
+     * the freshest peers.
      */
     void sync() {
         try {
             registerSelf();
-            pushDirectoryToMesh();
+            List<byte[]> routed = pushDirectoryToMesh();
             pullMeshIntoDirectory();
+            warmPeers(routed);
         } catch (Throwable t) {
             LOG.warn("PeerRegistrySync failed", t);
         }
@@ -135,8 +160,10 @@ public final class PeerRegistrySync implements AutoCloseable {
         }
     }
 
-    private void pushDirectoryToMesh() {
+    /** Routes verified directory peers, returns the ones routed. */
+    private List<byte[]> pushDirectoryToMesh() {
         List<PeerDirectory.PeerInfo> peers = directory.topByTrustVerified(100);
+        List<byte[]> routed = new ArrayList<>();
         int registered = 0;
         for (PeerDirectory.PeerInfo peer : peers) {
             if (peer.hostname() == null || peer.hostname().isBlank()) {
@@ -146,13 +173,44 @@ public final class PeerRegistrySync implements AutoCloseable {
             if (client.route(peer.peerPub(), peer.hostname(),
                     peerRudpPort, IceBridgeConfig.Role.BOTH)) {
                 registered++;
-                warmMeshPeer(peer.peerPub());
+                routed.add(peer.peerPub());
             }
         }
         if (registered > 0 || !peers.isEmpty()) {
             LOG.info("PeerRegistrySync: routed " + registered
                     + "/" + peers.size() + " directory peers to IceBridge");
         }
+        return routed;
+    }
+
+    /**
+     * Pings the freshest registry peers, then the routed directory peers,
+     * up to {@link #MAX_WARMS_PER_CYCLE} distinct peers in all.
+     */
+    private void warmPeers(List<byte[]> routed) {
+        Set<String> warmed = new HashSet<>();
+        try {
+            List<PeerInfo> freshest = client.lookup(MAX_WARMS_PER_CYCLE);
+            if (freshest != null) {
+                for (PeerInfo info : freshest) {
+                    byte[] pub = info != null ? decodePub(info.pub) : null;
+                    if (pub != null && (ownPub == null || !Arrays.equals(pub, ownPub))) {
+                        warmOnce(pub, warmed);
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            LOG.debug("PeerRegistrySync: lookup of peers to warm failed", t);
+        }
+        for (byte[] pub : routed) {
+            warmOnce(pub, warmed);
+        }
+    }
+
+    private void warmOnce(byte[] pub, Set<String> warmed) {
+        if (warmed.size() < MAX_WARMS_PER_CYCLE && warmed.add(Hex.encode(pub))) {
+            warmMeshPeer(pub);
+        }
     }
 
     /**
@@ -171,7 +229,7 @@ public final class PeerRegistrySync implements AutoCloseable {
     private void pullMeshIntoDirectory() {
         List<PeerInfo> mesh;
         try {
-            mesh = client.lookup(LOOKUP_COUNT);
+            mesh = fetchMeshChanges();
         } catch (Throwable t) {
             LOG.debug("PeerRegistrySync: lookup failed", t);
             return;
@@ -187,17 +245,8 @@ public final class PeerRegistrySync implements AutoCloseable {
             if (info.rudpPort <= 0 || info.rudpPort > 65535) {
                 continue;
             }
-            byte[] pub;
-            try {
-                pub = Base64.getUrlDecoder().decode(info.pub);
-            } catch (IllegalArgumentException e) {
-                try {
-                    pub = Base64.getDecoder().decode(info.pub);
-                } catch (IllegalArgumentException e2) {
-                    continue;
-                }
-            }
-            if (pub.length != 32) {
+            byte[] pub = decodePub(info.pub);
+            if (pub == null) {
                 continue;
             }
             if (ownPub != null && Arrays.equals(pub, ownPub)) {
@@ -213,7 +262,6 @@ public final class PeerRegistrySync implements AutoCloseable {
             directory.upsertVerified(pub, info.host, info.rudpPort, info.rudpPort,
                     caps, info.icebridgeVersion);
             client.route(pub, info.host, info.rudpPort, role);
-            warmMeshPeer(pub);
             // Seed host cache for Settings → Refresh/Ping (TCP identity on 6888).
             // Skip loopback USE_REMOTE self-registrations; only public/remote hosts.
             if (!isLoopbackHost(info.host)
@@ -235,6 +283,51 @@ public final class PeerRegistrySync implements AutoCloseable {
         }
     }
 
+    /**
+     * Registry records changed since the last pull, following {@code more}
+     * pages up to {@link #MAX_DELTA_PAGES}. Falls back to a full lookup when
+     * the first delta call fails (older daemon).
+     */
+    private List<PeerInfo> fetchMeshChanges() {
+        List<PeerInfo> changed = new ArrayList<>();
+        for (int page = 0; page < MAX_DELTA_PAGES; page++) {
+            PeerDelta delta = client.lookupDelta(deltaEpoch, deltaVersion, DELTA_PAGE_SIZE);
+            if (delta == null) {
+                return page == 0 ? client.lookup(LOOKUP_COUNT) : changed;
+            }
+            if (delta.reset && deltaEpoch != 0) {
+                LOG.info("PeerRegistrySync: IceBridge registry restarted, full resync");
+            }
+            deltaEpoch = delta.epoch;
+            deltaVersion = delta.version;
+            if (delta.peers != null) {
+                changed.addAll(delta.peers);
+            }
+            if (!delta.more) {
+                break;
+            }
+        }
+        return changed;
+    }
+
+    /** The raw 32-byte key of a registry record, null if malformed. */
+    private static byte[] decodePub(String pub) {
+        if (pub == null) {
+            return null;
+        }
+        byte[] raw;
+        try {
+            raw = Base64.getUrlDecoder().decode(pub);
+        } catch (IllegalArgumentException e) {
+            try {
+                raw = Base64.getDecoder().decode(pub);
+            } catch (IllegalArgumentException e2) {
+                return null;
+            }
+        }
+        return raw.length == 32 ? raw : null;
+    }
+
     private static boolean isLoopbackHost(String host) {
         if (host == null || host.isEmpty()) {
             return true;
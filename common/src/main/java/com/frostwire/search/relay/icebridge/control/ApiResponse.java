@@ -17,6 +17,8 @@ public final class ApiResponse<T> {
     public boolean ok;
     public String error;
     public T data;
+    /** Set on a refusal the caller may retry after this many ms; null otherwise. */
+    public Long retryAfterMs;
 
     public ApiResponse() {
     }
@@ -34,4 +36,10 @@ public final class ApiResponse<T> {
     public static <T> ApiResponse<T> error(String error) {
         return new ApiResponse<>(false, null, error);
     }
+
+    public static <T> ApiResponse<T> retryAfter(String error, long retryAfterMs) {
+        ApiResponse<T> response = new ApiResponse<>(false, null, error);
+        response.retryAfterMs = retryAfterMs;
+        return response;
+    }
 }
\ No newline at end of file
@@ -45,6 +45,8 @@ import java.util.stream.Collectors;
  *   <li>{@code POST /register} — register or refresh a peer identity and endpoint (signed).</li>
  *   <li>{@code POST /route} — add a peer to the registry without a signature (localhost-only trust).</li>
  *   <li>{@code GET /lookup?count=N} — return up to N forward-capable peers.</li>
+ *   <li>{@code GET /lookup/delta?epoch=E&since=V&count=N} — registry changes after cursor
+ *       {@code (E, V)}, see {@link PeerRegistry#changesSince}.</li>
  *   <li>{@code POST /send} — send an opaque payload to a target peer.</li>
  *   <li>{@code GET /poll?count=N} — retrieve received payloads queued for the local process.</li>
  *   <li>{@code GET /metrics} — return in-memory counters and registry size.</li>
@@ -56,6 +58,8 @@ public final class ControlHandler extends SimpleChannelInboundHandler<FullHttpRe
     private static final Logger LOG = Logger.getLogger(ControlHandler.class);
     private static final Gson GSON = new Gson();
     private static final int DEFAULT_LOOKUP_COUNT = 10;
+    private static final int DEFAULT_DELTA_COUNT = 200;
+    private static final int MAX_DELTA_COUNT = 1000;
     private static final int DEFAULT_POLL_COUNT = 64;
 
     private final PeerRegistry registry;
@@ -105,6 +109,8 @@ public final class ControlHandler extends SimpleChannelInboundHandler<FullHttpRe
                 response = handleRoute(request);
             } else if (method == HttpMethod.GET && "/lookup".equals(path)) {
                 response = handleLookup(uri);
+            } else if (method == HttpMethod.GET && "/lookup/delta".equals(path)) {
+                response = handleLookupDelta(uri);
             } else if (method == HttpMethod.POST && "/send".equals(path)) {
                 response = handleSend(request);
             } else if (method == HttpMethod.GET && "/poll".equals(path)) {
@@ -116,7 +122,10 @@ public final class ControlHandler extends SimpleChannelInboundHandler<FullHttpRe
             } else {
                 response = ApiResponse.error("unknown endpoint: " + method + " " + path);
             }
-            sendJson(ctx, request, response.ok ? HttpResponseStatus.OK : HttpResponseStatus.BAD_REQUEST, response);
+            HttpResponseStatus status = response.ok ? HttpResponseStatus.OK
+                    : response.retryAfterMs != null ? HttpResponseStatus.SERVICE_UNAVAILABLE
+                    : HttpResponseStatus.BAD_REQUEST;
+            sendJson(ctx, request, status, response);
         } catch (Throwable t) {
             LOG.warn("Control handler error", t);
             metrics.controlError();
@@ -230,17 +239,47 @@ public final class ControlHandler extends SimpleChannelInboundHandler<FullHttpRe
         List<PeerRecord> peers =
                 registry.lookupPeers(Math.max(1, Math.min(count, 100)), forwardersOnly);
         List<PeerInfo> info = peers.stream()
-                .map(p -> new PeerInfo(
-                        Base64.getUrlEncoder().withoutPadding().encodeToString(p.ed25519Pub()),
-                        p.host(),
-                        p.rudpPort(),
-                        p.role(),
-                        p.lastSeenMs(),
-                        p.icebridgeVersion()))
+                .map(ControlHandler::toPeerInfo)
                 .collect(Collectors.toList());
         return ApiResponse.success(info);
     }
 
+    private ApiResponse<PeerDelta> handleLookupDelta(String uri) {
+        QueryStringDecoder decoder = new QueryStringDecoder(uri);
+        long epoch = longParam(decoder, "epoch", 0);
+        long since = longParam(decoder, "since", 0);
+        int count = (int) Math.max(1, Math.min(longParam(decoder, "count", DEFAULT_DELTA_COUNT),
+                MAX_DELTA_COUNT));
+        PeerRegistry.Delta delta = registry.changesSince(epoch, since, count);
+        List<PeerInfo> info = delta.records().stream()
+                .map(ControlHandler::toPeerInfo)
+                .collect(Collectors.toList());
+        return ApiResponse.success(new PeerDelta(delta.epoch(), delta.version(),
+                delta.reset(), delta.more(), info));
+    }
+
+    private static long longParam(QueryStringDecoder decoder, String name, long fallback) {
+        List<String> values = decoder.parameters().get(name);
+        if (values == null || values.isEmpty()) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(values.get(0));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static PeerInfo toPeerInfo(PeerRecord p) {
+        return new PeerInfo(
+                Base64.getUrlEncoder().withoutPadding().encodeToString(p.ed25519Pub()),
+                p.host(),
+                p.rudpPort(),
+                p.role(),
+                p.lastSeenMs(),
+                p.icebridgeVersion());
+    }
+
     private ApiResponse<String> handleSend(FullHttpRequest request) {
         if (rudpSessionManager == null) {
             return ApiResponse.error("rUDP stack not available");
@@ -272,7 +311,13 @@ public final class ControlHandler extends SimpleChannelInboundHandler<FullHttpRe
         } catch (IllegalArgumentException e) {
             return ApiResponse.error("invalid envelope: " + e.getMessage());
         }
-        rudpSessionManager.deliver(targetPub, wire);
+        long result = rudpSessionManager.deliver(targetPub, wire);
+        if (result == RudpSessionManager.UNDELIVERABLE) {
+            return ApiResponse.error("no route to target");
+        }
+        if (result != RudpSessionManager.DELIVERED) {
+            return ApiResponse.retryAfter("target busy", result);
+        }
         LOG.info("IceBridge mesh: " + MeshProtocolId.name(protocolId)
                 + " send queued target="
                 + com.frostwire.util.Hex.encode(targetPub).substring(0, 12) + "…"
@@ -333,6 +378,7 @@ public final class ControlHandler extends SimpleChannelInboundHandler<FullHttpRe
                 metrics.rudpPacketsIn(), metrics.rudpPacketsOut(),
                 metrics.rudpBytesIn(), metrics.rudpBytesOut(),
                 metrics.controlRequests(), metrics.controlErrors(),
+                metrics.relayDuplicatesDropped(),
                 registry.size(), registry.registrations(), registry.lookups(), registry.evicted());
         return ApiResponse.success(snapshot);
     }
@@ -346,6 +392,11 @@ public final class ControlHandler extends SimpleChannelInboundHandler<FullHttpRe
         response.headers()
                 .set(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=UTF-8")
                 .set(HttpHeaderNames.CONTENT_LENGTH, bytes.length);
+        if (body instanceof ApiResponse && ((ApiResponse<?>) body).retryAfterMs != null) {
+            // Retry-After is in whole seconds; the body keeps the exact ms.
+            long ms = ((ApiResponse<?>) body).retryAfterMs;
+            response.headers().set(HttpHeaderNames.RETRY_AFTER, Math.max(1, (ms + 999) / 1000));
+        }
         boolean keepAlive = HttpUtil.isKeepAlive(request);
         if (!keepAlive) {
             ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
@@ -376,6 +427,8 @@ public final class ControlHandler extends SimpleChannelInboundHandler<FullHttpRe
         @SuppressWarnings("unused")
         final long controlErrors;
         @SuppressWarnings("unused")
+        final long relayDuplicatesDropped;
+        @SuppressWarnings("unused")
         final int registrySize;
         @SuppressWarnings("unused")
         final long registrations;
@@ -387,6 +440,7 @@ public final class ControlHandler extends SimpleChannelInboundHandler<FullHttpRe
         MetricsSnapshot(long rudpPacketsIn, long rudpPacketsOut,
                         long rudpBytesIn, long rudpBytesOut,
                         long controlRequests, long controlErrors,
+                        long relayDuplicatesDropped,
                         int registrySize, long registrations,
                         long lookups, long evicted) {
             this.rudpPacketsIn = rudpPacketsIn;
@@ -395,6 +449,7 @@ public final class ControlHandler extends SimpleChannelInboundHandler<FullHttpRe
             this.rudpBytesOut = rudpBytesOut;
             this.controlRequests = controlRequests;
             this.controlErrors = controlErrors;
+            this.relayDuplicatesDropped = relayDuplicatesDropped;
             this.registrySize = registrySize;
             this.registrations = registrations;
             this.lookups = lookups;
@@ -14,10 +14,14 @@ import com.frostwire.util.Hex;
 import com.frostwire.util.Logger;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
 
 /**
  * In-memory queues of application payloads received over rUDP or control-plane
@@ -31,17 +35,35 @@ import java.util.concurrent.atomic.AtomicInteger;
  * peers is demuxed into a <em>per-target-pub</em> queue so {@code /poll?pub=}
  * only returns that client's messages (avoids race-stealing between desktop
  * and Android on the same forwarder).
+ *
+ * <p>Each client queue is a fixed-size ring. When a client does not poll fast
+ * enough its ring fills and new messages are <em>refused</em>:
+ * {@link #offerForTarget} returns false so the caller can push back on the
+ * sender (see {@code RudpSessionManager}'s {@code RELAY_BUSY}) instead of
+ * queued responses being silently replaced. Refusals are counted per
+ * protocol and logged on a sample.
+ *
+ * <p>Client queues live as long as the client's registration:
+ * {@link #evictUnregistered} drops the queues of clients that left the
+ * registry, together with anything still queued for them.
  */
 public final class InboundMessageQueue implements RudpMessageListener {
 
     private static final Logger LOG = Logger.getLogger(InboundMessageQueue.class);
     private static final int DEFAULT_MAX_SIZE = 512;
+    /** Client queues kept at most; new clients beyond this are refused until one is evicted. */
+    static final int MAX_CLIENT_QUEUES = 1024;
+    /** Deliveries and refusals are logged once, then every this many per protocol. */
+    static final int LOG_SAMPLE_EVERY = 256;
+    /** Counter slot for protocol ids {@link MeshProtocolId#isKnown} rejects. */
+    private static final int UNKNOWN_PROTOCOL_SLOT = MeshProtocolId.FILESYNC + 1;
     /** Shared queue for messages without an explicit control-plane target. */
     private static final String SHARED_KEY = "";
 
-    private final ConcurrentHashMap<String, ConcurrentLinkedQueue<InboundMessage>> queues =
-            new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Ring> queues = new ConcurrentHashMap<>();
+    private final AtomicLongArray delivered = new AtomicLongArray(UNKNOWN_PROTOCOL_SLOT + 1);
+    private final AtomicLongArray dropped = new AtomicLongArray(UNKNOWN_PROTOCOL_SLOT + 1);
+    private final AtomicLong evictedQueues = new AtomicLong();
     private final int maxSizePerQueue;
 
     public InboundMessageQueue() {
@@ -68,16 +90,17 @@ public final class InboundMessageQueue implements RudpMessageListener {
      * @param targetPub destination client Ed25519 public key (32 bytes)
      * @param sourcePub sender public key if known, else empty/null
      * @param wireOrAppPayload MeshEnvelope wire bytes or bare payload
+     * @return false if the message was refused because the client's queue is
+     *         full (or too many clients are queued); the sender should back off
      */
-    public void offerForTarget(byte[] targetPub, byte[] sourcePub, byte[] wireOrAppPayload) {
+    public boolean offerForTarget(byte[] targetPub, byte[] sourcePub, byte[] wireOrAppPayload) {
         if (targetPub == null || targetPub.length != 32) {
-            onMessage(sourcePub, wireOrAppPayload);
-            return;
+            return offerUnwrapped(SHARED_KEY, sourcePub, wireOrAppPayload);
         }
-        offerUnwrapped(Hex.encode(targetPub), sourcePub, wireOrAppPayload);
+        return offerUnwrapped(Hex.encode(targetPub), sourcePub, wireOrAppPayload);
     }
 
-    private void offerUnwrapped(String targetKey, byte[] sourcePub, byte[] payload) {
+    private boolean offerUnwrapped(String targetKey, byte[] sourcePub, byte[] payload) {
         int protocolId;
         byte[] appPayload;
         try {
@@ -90,47 +113,57 @@ public final class InboundMessageQueue implements RudpMessageListener {
             appPayload = payload;
             if (payload == null || payload.length == 0) {
                 LOG.debug("Dropping empty inbound payload");
-                return;
+                return true;
             }
         }
-        ConcurrentLinkedQueue<InboundMessage> queue =
-                queues.computeIfAbsent(targetKey, k -> new ConcurrentLinkedQueue<>());
-        AtomicInteger count = counts.computeIfAbsent(targetKey, k -> new AtomicInteger(0));
-        while (count.get() >= maxSizePerQueue) {
-            if (queue.poll() != null) {
-                count.decrementAndGet();
-            } else {
-                break;
+        int slot = counterSlot(protocolId);
+        Ring ring = queues.get(targetKey);
+        if (ring == null) {
+            if (queues.size() >= MAX_CLIENT_QUEUES) {
+                refused(slot, sourcePub, targetKey, "too many client queues");
+                return false;
             }
+            ring = queues.computeIfAbsent(targetKey, k -> new Ring(maxSizePerQueue));
+        }
+        InboundMessage m = new InboundMessage(sourcePub, appPayload, System.currentTimeMillis(), protocolId);
+        if (!ring.offer(m)) {
+            refused(slot, sourcePub, targetKey, "queue full");
+            return false;
         }
-        queue.offer(new InboundMessage(sourcePub, appPayload, System.currentTimeMillis(), protocolId));
-        count.incrementAndGet();
-        logSuccessfulProtocol(sourcePub, protocolId, appPayload, targetKey);
+        long n = delivered.incrementAndGet(slot);
+        if (sampled(n)) {
+            LOG.info("IceBridge mesh: " + protocolName(slot)
+                    + " delivered=" + n
+                    + " dropped=" + dropped.get(slot)
+                    + " last from=" + shortPub(sourcePub)
+                    + " target=" + shortTarget(targetKey)
+                    + " bytes=" + appPayload.length);
+        }
+        return true;
     }
 
-    private static void logSuccessfulProtocol(byte[] sourcePub, int protocolId, byte[] appPayload,
-                                              String targetKey) {
-        int id = MeshProtocolId.effective(protocolId);
-        if (!MeshProtocolId.isKnown(id)) {
-            LOG.info("IceBridge mesh: unknown protocol id=" + id
+    private void refused(int slot, byte[] sourcePub, String targetKey, String reason) {
+        long n = dropped.incrementAndGet(slot);
+        if (sampled(n)) {
+            LOG.info("IceBridge mesh: " + protocolName(slot) + " refused (" + reason + ")"
+                    + " dropped=" + n
                     + " from=" + shortPub(sourcePub)
-                    + " target=" + shortTarget(targetKey)
-                    + " bytes=" + (appPayload == null ? 0 : appPayload.length));
-            return;
+                    + " target=" + shortTarget(targetKey));
         }
-        String detail = "";
-        if (id == MeshProtocolId.TELEMETRY
-                && appPayload != null
-                && appPayload.length > 0
-                && appPayload.length <= 8) {
-            detail = appPayload.length == 1 && appPayload[0] == 0x01
-                    ? " PING"
-                    : " probe";
-        }
-        LOG.info("IceBridge mesh: " + MeshProtocolId.name(id) + detail
-                + " ok from=" + shortPub(sourcePub)
-                + " target=" + shortTarget(targetKey)
-                + " bytes=" + (appPayload == null ? 0 : appPayload.length));
+    }
+
+    private static boolean sampled(long n) {
+        return n == 1 || n % LOG_SAMPLE_EVERY == 0;
+    }
+
+    private static int counterSlot(int protocolId) {
+        return MeshProtocolId.isKnown(protocolId)
+                ? MeshProtocolId.effective(protocolId)
+                : UNKNOWN_PROTOCOL_SLOT;
+    }
+
+    private static String protocolName(int slot) {
+        return slot == UNKNOWN_PROTOCOL_SLOT ? "unknown protocol" : MeshProtocolId.name(slot);
     }
 
     private static String shortPub(byte[] sourcePub) {
@@ -165,29 +198,121 @@ public final class InboundMessageQueue implements RudpMessageListener {
     }
 
     private List<InboundMessage> pollKey(String key, int max) {
-        int n = Math.max(0, max);
         List<InboundMessage> result = new ArrayList<>();
-        ConcurrentLinkedQueue<InboundMessage> queue = queues.get(key);
-        if (queue == null) {
-            return result;
-        }
-        AtomicInteger count = counts.computeIfAbsent(key, k -> new AtomicInteger(0));
-        for (int i = 0; i < n; i++) {
-            InboundMessage m = queue.poll();
-            if (m == null) {
-                break;
-            }
-            count.decrementAndGet();
-            result.add(m);
+        Ring ring = queues.get(key);
+        if (ring != null) {
+            ring.drainTo(result, Math.max(0, max));
         }
         return result;
     }
 
+    /**
+     * Drop the queues of clients for which {@code registered} is false,
+     * discarding their undelivered messages. Called after registry eviction.
+     *
+     * @return number of client queues removed
+     */
+    public int evictUnregistered(Predicate<byte[]> registered) {
+        int removed = 0;
+        Iterator<Map.Entry<String, Ring>> it = queues.entrySet().iterator();
+        while (it.hasNext()) {
+            String key = it.next().getKey();
+            if (!SHARED_KEY.equals(key) && !registered.test(Hex.decode(key))) {
+                it.remove();
+                removed++;
+            }
+        }
+        evictedQueues.addAndGet(removed);
+        return removed;
+    }
+
     public int size() {
         int total = 0;
-        for (AtomicInteger c : counts.values()) {
-            total += Math.max(0, c.get());
+        for (Ring ring : queues.values()) {
+            total += ring.size();
         }
         return total;
     }
+
+    /** Number of client queues, including the shared one once used. */
+    public int queueCount() {
+        return queues.size();
+    }
+
+    /** Messages queued for {@code protocolId} since startup. */
+    public long deliveredCount(int protocolId) {
+        return delivered.get(counterSlot(protocolId));
+    }
+
+    /** Messages for {@code protocolId} refused because a queue was full. */
+    public long droppedCount(int protocolId) {
+        return dropped.get(counterSlot(protocolId));
+    }
+
+    public long droppedTotal() {
+        long total = 0;
+        for (int i = 0; i < dropped.length(); i++) {
+            total += dropped.get(i);
+        }
+        return total;
+    }
+
+    public long evictedQueues() {
+        return evictedQueues.get();
+    }
+
+    /**
+     * Bounded multi-producer ring. Producers (rUDP and control-plane
+     * threads) claim a slot with a CAS on {@code tail} and publish into it;
+     * the consumer ({@code /poll}) takes slots in order under the ring's
+     * monitor, so concurrent polls for one client don't interleave.
+     * A slot is claimed only once the consumer has emptied it, so a full
+     * ring refuses instead of overwriting.
+     */
+    static final class Ring {
+        private final AtomicReferenceArray<InboundMessage> slots;
+        private final int mask;
+        private final int capacity;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+
+        Ring(int capacity) {
+            this.capacity = capacity;
+            int size = Integer.highestOneBit(Math.max(1, capacity - 1) << 1);
+            this.slots = new AtomicReferenceArray<>(size);
+            this.mask = size - 1;
+        }
+
+        boolean offer(InboundMessage m) {
+            while (true) {
+                long t = tail.get();
+                if (t - head >= capacity) {
+                    return false;
+                }
+                if (tail.compareAndSet(t, t + 1)) {
+                    slots.lazySet((int) (t & mask), m);
+                    return true;
+                }
+            }
+        }
+
+        synchronized void drainTo(List<InboundMessage> out, int max) {
+            long h = head;
+            for (int i = 0; i < max; i++) {
+                int idx = (int) (h & mask);
+                InboundMessage m = slots.get(idx);
+                if (m == null) {
+                    // empty, or the next producer has claimed but not yet published
+                    break;
+                }
+                slots.lazySet(idx, null);
+                out.add(m);
+                head = ++h;
+            }
+        }
+
+        int size() {
+            return (int) Math.max(0, Math.min(capacity, tail.get() - head));
+        }
+    }
 }
@@ -0,0 +1,37 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay.icebridge.control;
+
+import java.util.List;
+
+/**
+ * JSON page of registry changes returned by {@code GET /lookup/delta}.
+ *
+ * <p>{@link #epoch} and {@link #version} are the cursor to send back on
+ * the next call. {@link #reset} means the cursor sent was not usable
+ * (registry restarted) and {@link #peers} starts over from version 0.
+ */
+public final class PeerDelta {
+
+    public long epoch;
+    public long version;
+    public boolean reset;
+    public boolean more;
+    public List<PeerInfo> peers;
+
+    public PeerDelta() {
+    }
+
+    public PeerDelta(long epoch, long version, boolean reset, boolean more, List<PeerInfo> peers) {
+        this.epoch = epoch;
+        this.version = version;
+        this.reset = reset;
+        this.more = more;
+        this.peers = peers;
+    }
+}
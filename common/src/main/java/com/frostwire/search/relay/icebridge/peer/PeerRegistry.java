@@ -12,11 +12,18 @@ import com.frostwire.search.relay.icebridge.IceBridgeConfig;
 import com.frostwire.util.Hex;
 import com.frostwire.util.Logger;
 
+import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -25,22 +32,66 @@ import java.util.concurrent.atomic.AtomicLong;
  * <p>All state is kept in RAM. Stale peers are evicted periodically by
  * {@link #evictStale(long)}. The registry is intentionally isolated from
  * search semantics: it only tracks who can relay and how to reach them.
+ *
+ * <p><b>Versions and delta sync:</b> every accepted change gets the next
+ * value of a registry-wide version counter, so a puller only needs the
+ * {@code (epoch, version)} cursor of its last pull to ask for what changed
+ * since ({@link #changesSince}). The registry is the single writer of its
+ * own counter, which makes that pair a complete version-vector summary.
+ * A refresh that only moves {@link PeerRecord#lastSeenMs()} is republished
+ * at most every {@link #REFRESH_REPUBLISH_MS}, so steady-state pulls carry
+ * only real endpoint/role changes. The epoch is random per registry
+ * instance; a cursor from another epoch (daemon restart) restarts from 0.
+ * Evictions are not propagated: pullers age peers out on their own.
+ *
+ * <p><b>Indexes:</b> peers are also kept in freshness order (newest
+ * {@code lastSeenMs} first), overall and for forward-capable roles, so
+ * {@link #lookupForwarders(int)} and {@link #lookupPeers(int, boolean)}
+ * read the first {@code maxResults} entries instead of scanning, and
+ * {@link #evictStale(long)} only visits the stale tail.
+ *
+ * <p>Writes are serialized on one lock (registrations are rate-limited and
+ * cheap); lookups and delta reads are lock-free.
  */
 public final class PeerRegistry {
 
     private static final Logger LOG = Logger.getLogger(PeerRegistry.class);
 
-    private final Map<String, PeerRecord> byPubHex = new ConcurrentHashMap<>();
+    /** A lastSeen-only refresh bumps the version at most this often. */
+    public static final long REFRESH_REPUBLISH_MS = 5 * 60 * 1000L;
+
+    private static final Comparator<Slot> FRESHEST_FIRST = Comparator
+            .comparingLong((Slot s) -> s.record.lastSeenMs()).reversed()
+            .thenComparing(s -> s.key)
+            .thenComparingLong(s -> s.serial);
+
+    private final Map<String, Slot> byPubHex = new ConcurrentHashMap<>();
+    private final NavigableSet<Slot> byFreshness = new ConcurrentSkipListSet<>(FRESHEST_FIRST);
+    private final NavigableSet<Slot> forwardersByFreshness = new ConcurrentSkipListSet<>(FRESHEST_FIRST);
+    /** version -> key of the peer whose current slot carries that version. */
+    private final ConcurrentSkipListMap<Long, String> changes = new ConcurrentSkipListMap<>();
+    private final Object writeLock = new Object();
+    private final long epoch;
+    private long clock;
+    private long slotSerial;
+    /** Highest version whose change-log entry is visible to readers. */
+    private volatile long committedVersion;
     private final RateLimiter rateLimiter;
     private final int maxPeers;
     private final AtomicLong registrations = new AtomicLong();
     private final AtomicLong lookups = new AtomicLong();
     private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong deltaReads = new AtomicLong();
 
     public PeerRegistry(IceBridgeConfig config) {
         this.maxPeers = config.maxPeers();
         // Capacity = max burst in one second; refill = sustained QPS.
         this.rateLimiter = new RateLimiter(config.maxQpsPerKey(), config.maxQpsPerKey());
+        long e;
+        do {
+            e = new SecureRandom().nextLong() & Long.MAX_VALUE;
+        } while (e == 0);
+        this.epoch = e;
     }
 
     /**
@@ -59,35 +110,34 @@ public final class PeerRegistry {
             return false;
         }
         String key = Hex.encode(pub);
-        boolean isNewPeer = !byPubHex.containsKey(key);
-
-        // Reject new identities once we are at capacity. Refreshes of
-        // existing peers are always allowed.
-        if (isNewPeer && byPubHex.size() >= maxPeers) {
-            LOG.warn("PeerRegistry: at capacity (" + maxPeers
-                    + "); dropped new peer " + record.ed25519PubHex());
-            return false;
-        }
-
-        byPubHex.merge(key, record, (existing, incoming) -> {
-            // Fresher endpoint wins; otherwise keep existing.
-            if (incoming.lastSeenMs() < existing.lastSeenMs()) {
-                return existing;
+        synchronized (writeLock) {
+            Slot existing = byPubHex.get(key);
+            // Reject new identities once we are at capacity. Refreshes of
+            // existing peers are always allowed.
+            if (existing == null && byPubHex.size() >= maxPeers) {
+                LOG.warn("PeerRegistry: at capacity (" + maxPeers
+                        + "); dropped new peer " + record.ed25519PubHex());
+                return false;
+            }
+            if (existing == null) {
+                store(key, null, record);
+            } else if (record.lastSeenMs() >= existing.record.lastSeenMs()) {
+                // Fresher endpoint wins; otherwise keep existing.
+                // Preserve a previously advertised IceBridge version when the
+                // refresh omitted it (e.g. /route without version).
+                String ver = (record.icebridgeVersion() != null
+                        && !record.icebridgeVersion().isBlank())
+                        ? record.icebridgeVersion()
+                        : existing.record.icebridgeVersion();
+                store(key, existing, new PeerRecord(
+                        pub,
+                        record.host(),
+                        record.rudpPort(),
+                        record.role(),
+                        record.lastSeenMs(),
+                        ver));
             }
-            // Preserve a previously advertised IceBridge version when the
-            // refresh omitted it (e.g. /route without version).
-            String ver = (incoming.icebridgeVersion() != null
-                    && !incoming.icebridgeVersion().isBlank())
-                    ? incoming.icebridgeVersion()
-                    : existing.icebridgeVersion();
-            return new PeerRecord(
-                    incoming.ed25519Pub(),
-                    incoming.host(),
-                    incoming.rudpPort(),
-                    incoming.role(),
-                    incoming.lastSeenMs(),
-                    ver);
-        });
+        }
         registrations.incrementAndGet();
         return true;
     }
@@ -105,25 +155,31 @@ public final class PeerRegistry {
             return;
         }
         String key = Hex.encode(pub);
-        byPubHex.compute(key, (k, existing) -> existing != null
-                ? new PeerRecord(existing.ed25519Pub(), host, rudpPort,
-                        existing.role(), System.currentTimeMillis(), existing.icebridgeVersion())
-                : new PeerRecord(pub, host, rudpPort, IceBridgeConfig.Role.CLIENT,
-                        System.currentTimeMillis(), null));
+        synchronized (writeLock) {
+            Slot existing = byPubHex.get(key);
+            PeerRecord learned = existing != null
+                    ? new PeerRecord(existing.record.ed25519Pub(), host, rudpPort,
+                            existing.record.role(), System.currentTimeMillis(),
+                            existing.record.icebridgeVersion())
+                    : new PeerRecord(pub, host, rudpPort, IceBridgeConfig.Role.CLIENT,
+                            System.currentTimeMillis(), null);
+            store(key, existing, learned);
+        }
     }
 
     /**
-     * Look up recent peers that advertise relay/forward capability.
+     * Look up the freshest peers that advertise relay/forward capability.
      *
      * @param maxResults maximum number of records to return
-     * @return an immutable list of forward-capable peers
+     * @return an immutable list of forward-capable peers, newest first
      */
     public List<PeerRecord> lookupForwarders(int maxResults) {
         return lookupPeers(maxResults, true);
     }
 
     /**
-     * Look up registered peers for mesh discovery / routing.
+     * Look up registered peers for mesh discovery / routing, newest
+     * {@link PeerRecord#lastSeenMs()} first.
      *
      * @param maxResults   maximum number of records to return
      * @param forwardersOnly if true, only FORWARDER/BOTH roles
@@ -133,12 +189,14 @@ public final class PeerRegistry {
             return Collections.emptyList();
         }
         lookups.incrementAndGet();
+        NavigableSet<Slot> index = forwardersOnly ? forwardersByFreshness : byFreshness;
         List<PeerRecord> result = new ArrayList<>(Math.min(maxResults, byPubHex.size()));
-        for (PeerRecord r : byPubHex.values()) {
-            if (forwardersOnly && !r.canForward()) {
+        for (Slot s : index) {
+            // a concurrent write may briefly index both the old and the new slot
+            if (byPubHex.get(s.key) != s) {
                 continue;
             }
-            result.add(r);
+            result.add(s.record);
             if (result.size() >= maxResults) {
                 break;
             }
@@ -153,7 +211,47 @@ public final class PeerRegistry {
         if (ed25519Pub == null || ed25519Pub.length != 32) {
             return null;
         }
-        return byPubHex.get(Hex.encode(ed25519Pub));
+        Slot s = byPubHex.get(Hex.encode(ed25519Pub));
+        return s != null ? s.record : null;
+    }
+
+    /**
+     * Records changed after {@code sinceVersion}, oldest change first.
+     *
+     * <p>Pass the {@link Delta#epoch()} and {@link Delta#version()} of the
+     * previous call to continue; pass {@code 0, 0} for a full pull. A
+     * cursor from another epoch, or one ahead of this registry, is
+     * answered with everything from version 0 and {@link Delta#reset()}
+     * set. When {@link Delta#more()} is true, call again right away.
+     *
+     * @param maxResults page size, at least 1
+     */
+    public Delta changesSince(long sinceEpoch, long sinceVersion, int maxResults) {
+        deltaReads.incrementAndGet();
+        long high = committedVersion;
+        boolean reset = sinceEpoch != epoch || sinceVersion < 0 || sinceVersion > high;
+        long since = reset ? 0 : sinceVersion;
+        int limit = Math.max(1, maxResults);
+        List<PeerRecord> records = new ArrayList<>(Math.min(limit, 64));
+        long cursor = since;
+        boolean more = false;
+        // only versions <= high: their log entries were all written before high was published
+        for (Map.Entry<Long, String> e : changes.subMap(since, false, high, true).entrySet()) {
+            if (records.size() >= limit) {
+                more = true;
+                break;
+            }
+            cursor = e.getKey();
+            Slot s = byPubHex.get(e.getValue());
+            // superseded after the read started; the newer version comes in a later pull
+            if (s != null && s.version == cursor) {
+                records.add(s.record);
+            }
+        }
+        if (!more) {
+            cursor = high;
+        }
+        return new Delta(epoch, cursor, reset, more, Collections.unmodifiableList(records));
     }
 
     /**
@@ -168,9 +266,16 @@ public final class PeerRegistry {
         }
         long cutoff = System.currentTimeMillis() - ttlMs;
         int removed = 0;
-        for (Map.Entry<String, PeerRecord> e : byPubHex.entrySet()) {
-            if (e.getValue().lastSeenMs() < cutoff) {
-                if (byPubHex.remove(e.getKey(), e.getValue())) {
+        synchronized (writeLock) {
+            Iterator<Slot> oldestFirst = byFreshness.descendingIterator();
+            while (oldestFirst.hasNext()) {
+                Slot s = oldestFirst.next();
+                if (s.record.lastSeenMs() >= cutoff) {
+                    break;
+                }
+                if (byPubHex.remove(s.key, s)) {
+                    unindex(s);
+                    changes.remove(s.version, s.key);
                     removed++;
                 }
             }
@@ -184,6 +289,16 @@ public final class PeerRegistry {
         return byPubHex.size();
     }
 
+    /** Random id of this registry instance; delta cursors are only valid within it. */
+    public long epoch() {
+        return epoch;
+    }
+
+    /** Version of the latest change visible to {@link #changesSince}. */
+    public long version() {
+        return committedVersion;
+    }
+
     public long registrations() {
         return registrations.get();
     }
@@ -195,4 +310,110 @@ public final class PeerRegistry {
     public long evicted() {
         return evicted.get();
     }
-}
\ No newline at end of file
+
+    public long deltaReads() {
+        return deltaReads.get();
+    }
+
+    /** Installs {@code record} for {@code key}; caller holds {@link #writeLock}. */
+    private void store(String key, Slot existing, PeerRecord record) {
+        Slot slot;
+        if (existing != null && sameAdvertisement(existing.record, record)
+                && record.lastSeenMs() - existing.publishedSeenMs < REFRESH_REPUBLISH_MS) {
+            slot = new Slot(key, record, existing.version, existing.publishedSeenMs, ++slotSerial);
+        } else {
+            slot = new Slot(key, record, ++clock, record.lastSeenMs(), ++slotSerial);
+        }
+        // index the new slot before dropping the old one so lookups never miss the peer
+        index(slot);
+        byPubHex.put(key, slot);
+        if (existing != null) {
+            unindex(existing);
+        }
+        if (existing == null || existing.version != slot.version) {
+            if (existing != null) {
+                changes.remove(existing.version, key);
+            }
+            changes.put(slot.version, key);
+            committedVersion = slot.version;
+        }
+    }
+
+    private void index(Slot s) {
+        byFreshness.add(s);
+        if (s.record.canForward()) {
+            forwardersByFreshness.add(s);
+        }
+    }
+
+    private void unindex(Slot s) {
+        byFreshness.remove(s);
+        forwardersByFreshness.remove(s);
+    }
+
+    private static boolean sameAdvertisement(PeerRecord a, PeerRecord b) {
+        return a.rudpPort() == b.rudpPort()
+                && a.role() == b.role()
+                && a.host().equals(b.host())
+                && Objects.equals(a.icebridgeVersion(), b.icebridgeVersion());
+    }
+
+    /** A record plus its change version, as stored in the map and the indexes. */
+    private static final class Slot {
+        final String key;
+        final PeerRecord record;
+        final long version;
+        /** lastSeenMs of the record when {@link #version} was assigned. */
+        final long publishedSeenMs;
+        /** Tie-breaker so an old and a new slot of the same peer never compare equal. */
+        final long serial;
+
+        Slot(String key, PeerRecord record, long version, long publishedSeenMs, long serial) {
+            this.key = key;
+            this.record = record;
+            this.version = version;
+            this.publishedSeenMs = publishedSeenMs;
+            this.serial = serial;
+        }
+    }
+
+    /** One page of {@link #changesSince}. */
+    public static final class Delta {
+        private final long epoch;
+        private final long version;
+        private final boolean reset;
+        private final boolean more;
+        private final List<PeerRecord> records;
+
+        Delta(long epoch, long version, boolean reset, boolean more, List<PeerRecord> records) {
+            this.epoch = epoch;
+            this.version = version;
+            this.reset = reset;
+            this.more = more;
+            this.records = records;
+        }
+
+        public long epoch() {
+            return epoch;
+        }
+
+        /** Cursor for the next call. */
+        public long version() {
+            return version;
+        }
+
+        /** True if the caller's cursor was not usable and this is a full pull. */
+        public boolean reset() {
+            return reset;
+        }
+
+        /** True if the page is full and more changes follow. */
+        public boolean more() {
+            return more;
+        }
+
+        public List<PeerRecord> records() {
+            return records;
+        }
+    }
+}
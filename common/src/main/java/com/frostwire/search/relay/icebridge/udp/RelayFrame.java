@@ -7,23 +7,32 @@
 
 package com.frostwire.search.relay.icebridge.udp;
 
+import java.security.SecureRandom;
 import java.util.Arrays;
 
 /**
- * Application payload carried by rUDP {@link RudpPacket.Type#RELAY} packets
- * for multi-hop mesh delivery between IceBridge nodes.
+ * Application payload carried by rUDP {@link RudpPacket.Type#RELAY} and
+ * {@link RudpPacket.Type#RELAY_V2} packets for multi-hop mesh delivery
+ * between IceBridge nodes.
  *
  * <pre>
- *   sourcePub (32) | targetPub (32) | hopTtl (1) | appPayload...
+ *   RELAY:    sourcePub (32) | targetPub (32) | hopTtl (1) | appPayload...
+ *   RELAY_V2: sourcePub (32) | targetPub (32) | hopTtl (1) | messageId (8) | appPayload...
  * </pre>
  *
  * <p>{@code sourcePub} must match the authenticated rUDP session of the
  * immediate sender (anti-spoof). {@code hopTtl} is decremented at each
  * intermediate forwarder when the target is not in the local registry.
+ * {@code messageId} is picked at random by the originator and kept by
+ * every forwarder, so copies of one flood can be told apart from another
+ * source sending the same bytes to the same target. Only peers that
+ * advertised protocol version 2 in their HELLO get the V2 layout.
  */
 public final class RelayFrame {
 
     public static final int HEADER_LENGTH = 32 + 32 + 1;
+    /** {@link #HEADER_LENGTH} plus the message id of a {@code RELAY_V2} frame. */
+    public static final int HEADER_LENGTH_V2 = HEADER_LENGTH + 8;
     /**
      * Default hop budget for mesh multi-hop delivery (kept small vs amplification).
      * Prefer live value from {@link com.frostwire.search.relay.icebridge.IceBridgeTopology#meshHopTtl()}.
@@ -36,16 +45,26 @@ public final class RelayFrame {
      */
     public static final int MAX_APP_PAYLOAD =
             RudpPacket.MAX_FRAGMENT_PAYLOAD - HEADER_LENGTH;
+    /** Same bound for a {@code RELAY_V2} frame; larger payloads go out as RELAY. */
+    public static final int MAX_APP_PAYLOAD_V2 =
+            RudpPacket.MAX_FRAGMENT_PAYLOAD - HEADER_LENGTH_V2;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
 
     private final byte[] sourcePub;
     private final byte[] targetPub;
     private final int hopTtl;
+    private final boolean hasMessageId;
+    private final long messageId;
     private final byte[] appPayload;
 
-    private RelayFrame(byte[] sourcePub, byte[] targetPub, int hopTtl, byte[] appPayload) {
+    private RelayFrame(byte[] sourcePub, byte[] targetPub, int hopTtl, boolean hasMessageId,
+                       long messageId, byte[] appPayload) {
         this.sourcePub = sourcePub;
         this.targetPub = targetPub;
         this.hopTtl = hopTtl;
+        this.hasMessageId = hasMessageId;
+        this.messageId = messageId;
         this.appPayload = appPayload;
     }
 
@@ -61,11 +80,44 @@ public final class RelayFrame {
         return hopTtl;
     }
 
+    /** Whether the frame came as {@code RELAY_V2} and carries a {@link #messageId()}. */
+    public boolean hasMessageId() {
+        return hasMessageId;
+    }
+
+    /** End-to-end id of the message, the same at every hop; 0 for a plain RELAY frame. */
+    public long messageId() {
+        return messageId;
+    }
+
     public byte[] appPayload() {
         return appPayload.clone();
     }
 
+    /** A fresh id for a message this node originates. */
+    public static long newMessageId() {
+        return RANDOM.nextLong();
+    }
+
     public static byte[] encode(byte[] sourcePub, byte[] targetPub, int hopTtl, byte[] appPayload) {
+        byte[] out = encode(sourcePub, targetPub, hopTtl, appPayload, HEADER_LENGTH, MAX_APP_PAYLOAD);
+        System.arraycopy(appPayload, 0, out, HEADER_LENGTH, appPayload.length);
+        return out;
+    }
+
+    public static byte[] encodeV2(byte[] sourcePub, byte[] targetPub, int hopTtl, long messageId,
+                                  byte[] appPayload) {
+        byte[] out = encode(sourcePub, targetPub, hopTtl, appPayload, HEADER_LENGTH_V2, MAX_APP_PAYLOAD_V2);
+        for (int i = 0; i < 8; i++) {
+            out[HEADER_LENGTH + i] = (byte) (messageId >>> (56 - 8 * i));
+        }
+        System.arraycopy(appPayload, 0, out, HEADER_LENGTH_V2, appPayload.length);
+        return out;
+    }
+
+    /** Validates the arguments and writes the common header into a frame sized for {@code appPayload}. */
+    private static byte[] encode(byte[] sourcePub, byte[] targetPub, int hopTtl, byte[] appPayload,
+                                 int headerLength, int maxAppPayload) {
         if (sourcePub == null || sourcePub.length != 32) {
             throw new IllegalArgumentException("sourcePub must be 32 bytes");
         }
@@ -75,30 +127,42 @@ public final class RelayFrame {
         if (appPayload == null || appPayload.length == 0) {
             throw new IllegalArgumentException("appPayload must be non-empty");
         }
-        if (appPayload.length > MAX_APP_PAYLOAD) {
+        if (appPayload.length > maxAppPayload) {
             throw new IllegalArgumentException(
-                    "appPayload exceeds RELAY max " + MAX_APP_PAYLOAD + " bytes");
+                    "appPayload exceeds RELAY max " + maxAppPayload + " bytes");
         }
         int ttl = Math.max(0, Math.min(255, hopTtl));
-        byte[] out = new byte[HEADER_LENGTH + appPayload.length];
+        byte[] out = new byte[headerLength + appPayload.length];
         System.arraycopy(sourcePub, 0, out, 0, 32);
         System.arraycopy(targetPub, 0, out, 32, 32);
         out[64] = (byte) ttl;
-        System.arraycopy(appPayload, 0, out, HEADER_LENGTH, appPayload.length);
         return out;
     }
 
     public static RelayFrame decode(byte[] wire) {
-        if (wire == null || wire.length <= HEADER_LENGTH) {
+        return decode(wire, HEADER_LENGTH, MAX_APP_PAYLOAD);
+    }
+
+    public static RelayFrame decodeV2(byte[] wire) {
+        return decode(wire, HEADER_LENGTH_V2, MAX_APP_PAYLOAD_V2);
+    }
+
+    private static RelayFrame decode(byte[] wire, int headerLength, int maxAppPayload) {
+        if (wire == null || wire.length <= headerLength) {
             throw new IllegalArgumentException("relay frame too short");
         }
-        if (wire.length - HEADER_LENGTH > MAX_APP_PAYLOAD) {
+        if (wire.length - headerLength > maxAppPayload) {
             throw new IllegalArgumentException("relay app payload too large");
         }
         byte[] sourcePub = Arrays.copyOfRange(wire, 0, 32);
         byte[] targetPub = Arrays.copyOfRange(wire, 32, 64);
         int hopTtl = wire[64] & 0xFF;
-        byte[] app = Arrays.copyOfRange(wire, HEADER_LENGTH, wire.length);
-        return new RelayFrame(sourcePub, targetPub, hopTtl, app);
+        long messageId = 0;
+        for (int i = HEADER_LENGTH; i < headerLength; i++) {
+            messageId = (messageId << 8) | (wire[i] & 0xFF);
+        }
+        byte[] app = Arrays.copyOfRange(wire, headerLength, wire.length);
+        return new RelayFrame(sourcePub, targetPub, hopTtl, headerLength == HEADER_LENGTH_V2,
+                messageId, app);
     }
 }
@@ -28,6 +28,11 @@ import java.util.Objects;
  *   <li>{@code ackThrough} — fragment group id (random, shared by all
  *       fragments of the same logical payload)</li>
  * </ul>
+ *
+ * <p>In {@link Type#HELLO} and {@link Type#HELLO_ACK}, {@code ackThrough}
+ * carries the sender's
+ * {@link com.frostwire.search.relay.icebridge.IceBridgeConstants#PROTOCOL_VERSION};
+ * nodes that predate it send 0.
  */
 public final class RudpPacket {
 
@@ -53,7 +58,20 @@ public final class RudpPacket {
         RELAY(0x07),
         RELAY_RESPONSE(0x08),
         DATA_FRAG(0x09),
-        DATA_END(0x0A);
+        DATA_END(0x0A),
+        /**
+         * Flow-control feedback for RELAY: the target's queue on the
+         * sending node is full. Payload is {@code targetPub(32) | retryAfterMs(2)};
+         * the receiver stops relaying to that target until then. Nodes
+         * that predate it drop the unknown type.
+         */
+        RELAY_BUSY(0x0B),
+        /**
+         * RELAY whose frame also carries the originator's message id (see
+         * {@link RelayFrame}). Only sent to peers whose HELLO / HELLO_ACK
+         * advertised protocol version 2 or later.
+         */
+        RELAY_V2(0x0C);
 
         private final int code;
 
@@ -9,6 +9,7 @@ package com.frostwire.search.relay.icebridge.udp;
 
 import com.frostwire.search.relay.icebridge.IceBridgeConfig;
 import com.frostwire.search.relay.icebridge.IceBridgeMetrics;
+import com.frostwire.util.IPBlocklist;
 import com.frostwire.util.Logger;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
@@ -22,6 +23,7 @@ import io.netty.channel.socket.nio.NioDatagramChannel;
 import io.netty.util.concurrent.DefaultThreadFactory;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * rUDP listener for the IceBridge servent.
@@ -37,6 +39,7 @@ public final class RudpServer implements AutoCloseable {
 
     private final IceBridgeConfig config;
     private final RudpSessionManager manager;
+    private final AtomicLong blockedPackets = new AtomicLong();
     private EventLoopGroup group;
     private Channel channel;
 
@@ -71,6 +74,11 @@ public final class RudpServer implements AutoCloseable {
         return actualPort();
     }
 
+    /** Datagrams dropped because the sender is in the IP filter. */
+    public long blockedPackets() {
+        return blockedPackets.get();
+    }
+
     private int actualPort() {
         if (channel == null) {
             return config.rudpPort();
@@ -93,6 +101,11 @@ public final class RudpServer implements AutoCloseable {
     private final class PacketHandler extends SimpleChannelInboundHandler<RudpPacketEnvelope> {
         @Override
         public void channelRead0(ChannelHandlerContext ctx, RudpPacketEnvelope envelope) {
+            if (IPBlocklist.isBlocked(envelope.sender())) {
+                // user IP filter, dropped before any session state is created
+                blockedPackets.incrementAndGet();
+                return;
+            }
             manager.onPacket(envelope);
         }
     }
@@ -29,6 +29,8 @@ final class RudpSession {
     /** Set on inbound HELLO or when HELLO_ACK proves the peer's pub. */
     private volatile byte[] remotePub;
     private final boolean weAreInitiator;
+    /** Protocol version the peer advertised in its HELLO / HELLO_ACK; 1 until it has. */
+    private volatile int peerProtocolVersion = 1;
 
     private volatile long lastActivityMs;
     private final AtomicInteger nextLocalSeq = new AtomicInteger(1);
@@ -86,6 +88,14 @@ final class RudpSession {
         }
     }
 
+    int peerProtocolVersion() {
+        return peerProtocolVersion;
+    }
+
+    void setPeerProtocolVersion(int version) {
+        this.peerProtocolVersion = Math.max(1, version);
+    }
+
     boolean weAreInitiator() {
         return weAreInitiator;
     }
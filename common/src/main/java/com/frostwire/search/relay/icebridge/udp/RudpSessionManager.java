@@ -9,6 +9,8 @@ package com.frostwire.search.relay.icebridge.udp;
 
 import com.frostwire.search.relay.IdentityKeys;
 import com.frostwire.search.relay.RateLimiter;
+import com.frostwire.search.relay.SeenFilter;
+import com.frostwire.search.relay.icebridge.IceBridgeConstants;
 import com.frostwire.search.relay.icebridge.IceBridgeMetrics;
 import com.frostwire.search.relay.icebridge.IceBridgeTopology;
 import com.frostwire.search.relay.icebridge.peer.PeerRecord;
@@ -20,6 +22,7 @@ import io.netty.channel.Channel;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +50,25 @@ public final class RudpSessionManager {
     private static final long SESSION_IDLE_MS = 120_000;
     /** Max RELAY / RELAY_RESPONSE accepts per peer key per second (sustained). */
     private static final double RELAY_MAX_QPS = 20.0;
+    /**
+     * RELAY duplicate window. Copies of one flood arrive within a few
+     * retransmit intervals; identical app payloads sent on purpose (the
+     * 30 s warm pings) are further apart than two windows.
+     */
+    private static final long RELAY_SEEN_WINDOW_MS = 10_000;
+    private static final int RELAY_SEEN_PER_WINDOW = 50_000;
+    /** {@link #deliver} result: the payload was sent, relayed or queued. */
+    public static final long DELIVERED = 0;
+    /** {@link #deliver} result: the target cannot be reached with this payload. */
+    public static final long UNDELIVERABLE = -1;
+    /** Back-off asked for in RELAY_BUSY when a local client's queue is full. */
+    static final int RELAY_BUSY_RETRY_MS = 1000;
+    /** Longest back-off honoured from a RELAY_BUSY. */
+    static final int MAX_RELAY_BACKOFF_MS = 10_000;
+    /** (hop, target) pairs under back-off, or recently forwarded, kept at most. */
+    private static final int MAX_RELAY_BACKOFFS = 4096;
+    /** A RELAY_BUSY is only honoured for a target we relayed to that hop this recently. */
+    static final long RELAY_BUSY_ACCEPT_MS = 5000;
 
     /** N — mesh broadcast fanout; live-tunable via {@link IceBridgeTopology}. */
     private int meshBroadcastFanout() {
@@ -70,6 +92,11 @@ public final class RudpSessionManager {
     private final RudpMessageListener messageListener;
     private final FragmentReassembler reassembler = new FragmentReassembler();
     private final RateLimiter relayRateLimiter;
+    private final SeenFilter relaySeen = new SeenFilter(RELAY_SEEN_PER_WINDOW, RELAY_SEEN_WINDOW_MS);
+    /** hop address + targetPub hex -> time of the last RELAY sent there. */
+    private final Map<String, Long> relayForwardedAt = new ConcurrentHashMap<>();
+    /** hop address + targetPub hex -> time until which RELAYs to it are not sent (RELAY_BUSY). */
+    private final Map<String, Long> relayBackoffUntil = new ConcurrentHashMap<>();
 
     private final Map<Long, RudpSession> sessionsByRemoteId = new ConcurrentHashMap<>();
     private final Map<InetSocketAddress, RudpSession> sessionsByAddress = new ConcurrentHashMap<>();
@@ -96,6 +123,11 @@ public final class RudpSessionManager {
                 RETRANSMIT_INTERVAL_MS, RETRANSMIT_INTERVAL_MS, TimeUnit.MILLISECONDS);
     }
 
+    /** Duplicate filter consulted for every inbound RELAY frame. */
+    public SeenFilter relaySeenFilter() {
+        return relaySeen;
+    }
+
     public void setChannel(Channel channel) {
         this.channel = channel;
     }
@@ -108,25 +140,31 @@ public final class RudpSessionManager {
      * known FORWARDER/BOTH mesh peers (hop TTL from
      * {@link IceBridgeTopology#meshHopTtl()}, fanout N from
      * {@link IceBridgeTopology#meshBroadcastFanout()}).
+     *
+     * @return {@link #DELIVERED}, {@link #UNDELIVERABLE} if there is no
+     *         route for the payload, or else how many ms the sender should
+     *         wait before retrying: the target's local queue is full or
+     *         every mesh route to it is backing off
      */
-    public void deliver(byte[] targetPub, byte[] payload) {
+    public long deliver(byte[] targetPub, byte[] payload) {
         if (targetPub == null || targetPub.length != 32 || payload == null || payload.length == 0) {
-            return;
+            return UNDELIVERABLE;
         }
         if (payload.length > RelayFrame.MAX_APP_PAYLOAD) {
             LOG.debug("RudpSessionManager: deliver payload too large for mesh ("
                     + payload.length + " > " + RelayFrame.MAX_APP_PAYLOAD + ")");
             // Direct DATA path can still fragment; only mesh RELAY is capped.
             PeerRecord direct = registry.lookup(targetPub);
-            if (direct != null) {
-                sendData(new InetSocketAddress(direct.host(), direct.rudpPort()), payload);
+            if (direct == null) {
+                return UNDELIVERABLE;
             }
-            return;
+            sendData(new InetSocketAddress(direct.host(), direct.rudpPort()), payload);
+            return DELIVERED;
         }
         if (Arrays.equals(targetPub, identity.ed25519PubRaw())) {
             // Local delivery (loopback control plane → same process).
             notifyListener(identity.ed25519PubRaw(), payload);
-            return;
+            return DELIVERED;
         }
         PeerRecord target = registry.lookup(targetPub);
         if (target != null) {
@@ -134,31 +172,60 @@ public final class RudpSessionManager {
             // USE_REMOTE clients register at this process's own rUDP endpoint and
             // drain /poll — never self-UDP (would black-hole multi-client meshes).
             if (isLocalRudpEndpoint(addr)) {
-                deliverToLocalPollClient(targetPub, new byte[0], payload);
-                return;
+                return deliverToLocalPollClient(targetPub, new byte[0], payload)
+                        ? DELIVERED
+                        : RELAY_BUSY_RETRY_MS;
             }
             sendData(addr, payload);
-            return;
+            return DELIVERED;
         }
         int n = meshBroadcastFanout();
-        List<PeerRecord> forwarders = registry.lookupForwarders(n);
-        int sent = 0;
+        List<InetSocketAddress> hops = new ArrayList<>(n);
+        long backoffMs = relayNextHops(targetPub, null, n, hops);
+        if (hops.isEmpty()) {
+            if (backoffMs > 0) {
+                metrics.relayBackoffDropped();
+                return backoffMs;
+            }
+            LOG.debug("RudpSessionManager: no route to target " + Hex.encode(targetPub));
+            return UNDELIVERABLE;
+        }
+        // Remember our own flood so copies echoed back by the mesh are dropped.
+        long messageId = RelayFrame.newMessageId();
+        markRelaySeen(targetPub, true, messageId, payload);
         // LimeWire soft-max: remaining TTL at hop 0 is clamped to softMax.
         int hopTtl = IceBridgeTopology.get().clampRemainingTtl(0, meshHopTtl());
-        for (PeerRecord forwarder : forwarders) {
-            if (isSelf(forwarder)) {
+        for (InetSocketAddress hop : hops) {
+            sendRelay(hop, targetPub, true, messageId, payload, hopTtl);
+        }
+        return DELIVERED;
+    }
+
+    /**
+     * Up to {@code n} mesh forwarders to relay a frame for {@code targetPub}
+     * through, skipping ourselves, {@code senderPub} and hops that asked us
+     * to back off for that target. Returns the shortest back-off among the
+     * skipped hops, 0 if none was skipped.
+     */
+    private long relayNextHops(byte[] targetPub, byte[] senderPub, int n,
+                               List<InetSocketAddress> hops) {
+        long backoffMs = 0;
+        for (PeerRecord f : registry.lookupForwarders(n)) {
+            if (hops.size() >= n) {
+                break;
+            }
+            if (isSelf(f) || (senderPub != null && Arrays.equals(f.ed25519Pub(), senderPub))) {
                 continue;
             }
-            if (sent >= n) {
-                break;
+            InetSocketAddress hop = new InetSocketAddress(f.host(), f.rudpPort());
+            long remaining = relayBackoffRemainingMs(hop, targetPub);
+            if (remaining > 0) {
+                backoffMs = backoffMs == 0 ? remaining : Math.min(backoffMs, remaining);
+                continue;
             }
-            sendRelay(new InetSocketAddress(forwarder.host(), forwarder.rudpPort()),
-                    targetPub, payload, hopTtl);
-            sent++;
-        }
-        if (sent == 0) {
-            LOG.debug("RudpSessionManager: no route to target " + Hex.encode(targetPub));
+            hops.add(hop);
         }
+        return backoffMs;
     }
 
     /**
@@ -193,7 +260,8 @@ public final class RudpSessionManager {
             sessionsByAddress.remove(remoteAddress);
             return -1;
         }
-        RudpPacket hello = new RudpPacket(RudpPacket.Type.HELLO, remoteCid, 0, 0, payload);
+        RudpPacket hello = new RudpPacket(RudpPacket.Type.HELLO, remoteCid, 0,
+                IceBridgeConstants.PROTOCOL_VERSION, payload);
         send(session, hello);
         return localCid;
     }
@@ -265,6 +333,16 @@ public final class RudpSessionManager {
 
     public void sendRelay(InetSocketAddress forwarderAddress, byte[] targetPub,
                           byte[] payload, int hopTtl) {
+        sendRelay(forwarderAddress, targetPub, true, RelayFrame.newMessageId(), payload, hopTtl);
+    }
+
+    /**
+     * Sends one copy of message {@code messageId}; forwarders pass on the id they received.
+     * Peers that did not advertise protocol version 2, and messages that arrived without an
+     * id, go out as a plain RELAY.
+     */
+    private void sendRelay(InetSocketAddress forwarderAddress, byte[] targetPub,
+                           boolean hasMessageId, long messageId, byte[] payload, int hopTtl) {
         if (forwarderAddress == null
                 || targetPub == null || targetPub.length != 32
                 || payload == null || payload.length == 0) {
@@ -279,15 +357,19 @@ public final class RudpSessionManager {
             }
         }
         try {
-            byte[] frame = RelayFrame.encode(
-                    identity.ed25519PubRaw(), targetPub, hopTtl, payload);
+            boolean v2 = hasMessageId && session.peerProtocolVersion() >= 2
+                    && payload.length <= RelayFrame.MAX_APP_PAYLOAD_V2;
+            byte[] frame = v2
+                    ? RelayFrame.encodeV2(identity.ed25519PubRaw(), targetPub, hopTtl, messageId, payload)
+                    : RelayFrame.encode(identity.ed25519PubRaw(), targetPub, hopTtl, payload);
             RudpPacket relay = new RudpPacket(
-                    RudpPacket.Type.RELAY,
+                    v2 ? RudpPacket.Type.RELAY_V2 : RudpPacket.Type.RELAY,
                     session.remoteConnectionId(),
                     session.nextLocalSequence(),
                     session.receivedThroughRemote(),
                     frame);
             sendReliable(session, relay);
+            noteRelayForwarded(forwarderAddress, targetPub);
         } catch (IllegalArgumentException e) {
             LOG.debug("RudpSessionManager: sendRelay rejected: " + e.getMessage());
         }
@@ -332,11 +414,15 @@ public final class RudpSessionManager {
                 handleHolePunchResponse(packet, sender);
                 break;
             case RELAY:
+            case RELAY_V2:
                 handleRelay(packet, sender);
                 break;
             case RELAY_RESPONSE:
                 handleRelayResponse(packet, sender);
                 break;
+            case RELAY_BUSY:
+                handleRelayBusy(packet, sender);
+                break;
             default:
                 LOG.debug("RudpSessionManager: unknown packet type " + packet.type());
         }
@@ -439,6 +525,7 @@ public final class RudpSessionManager {
             session.setRemotePub(remotePub);
             sessionsByAddress.put(sender, session);
         }
+        session.setPeerProtocolVersion(packet.ackThrough());
         session.markActivity();
         if (sender.getAddress() != null
                 && !sender.getAddress().isAnyLocalAddress()
@@ -452,13 +539,13 @@ public final class RudpSessionManager {
         // session.remoteConnectionId when we reused an outbound session).
         try {
             byte[] ackPayload = RudpAuth.createHelloPayload(identity, remoteCid);
-            RudpPacket ack = new RudpPacket(
-                    RudpPacket.Type.HELLO_ACK, remoteCid, 0, 0, ackPayload);
+            RudpPacket ack = new RudpPacket(RudpPacket.Type.HELLO_ACK, remoteCid, 0,
+                    IceBridgeConstants.PROTOCOL_VERSION, ackPayload);
             write(sender, ack);
         } catch (Exception e) {
             LOG.error("Failed to sign HELLO_ACK", e);
-            write(sender, new RudpPacket(
-                    RudpPacket.Type.HELLO_ACK, remoteCid, 0, 0, new byte[0]));
+            write(sender, new RudpPacket(RudpPacket.Type.HELLO_ACK, remoteCid, 0,
+                    IceBridgeConstants.PROTOCOL_VERSION, new byte[0]));
         }
     }
 
@@ -484,6 +571,7 @@ public final class RudpSessionManager {
                 && RudpAuth.verifyHello(packet.connectionId(), ackPayload)) {
             byte[] peerPub = Arrays.copyOfRange(ackPayload, 0, 32);
             session.setRemotePub(peerPub);
+            session.setPeerProtocolVersion(packet.ackThrough());
             // Prefer the session that just proved identity on this address.
             sessionsByAddress.put(sender, session);
         }
@@ -624,12 +712,14 @@ public final class RudpSessionManager {
 
     private void handleRelay(RudpPacket packet, InetSocketAddress sender) {
         byte[] payload = packet.payload();
-        if (payload == null || payload.length <= RelayFrame.HEADER_LENGTH) {
+        boolean v2 = packet.type() == RudpPacket.Type.RELAY_V2;
+        if (payload == null
+                || payload.length <= (v2 ? RelayFrame.HEADER_LENGTH_V2 : RelayFrame.HEADER_LENGTH)) {
             return;
         }
         RelayFrame frame;
         try {
-            frame = RelayFrame.decode(payload);
+            frame = v2 ? RelayFrame.decodeV2(payload) : RelayFrame.decode(payload);
         } catch (IllegalArgumentException e) {
             LOG.debug("RudpSessionManager: dropped malformed RELAY frame");
             return;
@@ -662,8 +752,24 @@ public final class RudpSessionManager {
         byte[] appPayload = frame.appPayload();
         int hopTtl = frame.hopTtl();
 
+        // sourcePub and hopTtl are rewritten at every hop; the originator's
+        // message id, target and payload identify the flood. Catches both
+        // other mesh paths and retransmits whose ACK was lost, without
+        // dropping the same bytes sent to the same target by another source.
+        // A plain RELAY has no id and falls back to target and payload.
+        // A frame is only recorded once it is accepted, so one refused with
+        // RELAY_BUSY or for want of TTL can still pass on a later copy.
+        byte[] seenKey = frame.hasMessageId()
+                ? relaySeenKey(targetPub, frame.messageId())
+                : targetPub;
+        if (relaySeen.mightContain(seenKey, appPayload)) {
+            metrics.relayDuplicateDropped();
+            return;
+        }
+
         if (Arrays.equals(targetPub, identity.ed25519PubRaw())) {
-            LOG.info("IceBridge mesh: RELAY delivered to self from="
+            markRelaySeen(targetPub, frame.hasMessageId(), frame.messageId(), appPayload);
+            LOG.debug("IceBridge mesh: RELAY delivered to self from="
                     + Hex.encode(frame.sourcePub()).substring(0, 12) + "…"
                     + " bytes=" + appPayload.length);
             notifyListener(frame.sourcePub(), appPayload);
@@ -672,11 +778,15 @@ public final class RudpSessionManager {
 
         PeerRecord target = registry.lookup(targetPub);
         if (target != null) {
-            LOG.info("IceBridge mesh: RELAY local-registry target="
+            LOG.debug("IceBridge mesh: RELAY local-registry target="
                     + Hex.encode(targetPub).substring(0, 12) + "…"
                     + " hop=" + Hex.encode(senderPub).substring(0, 12) + "…"
                     + " bytes=" + appPayload.length);
-            deliverToLocalRegistryTarget(frame.sourcePub(), target, appPayload);
+            if (deliverToLocalRegistryTarget(frame.sourcePub(), target, appPayload)) {
+                markRelaySeen(targetPub, frame.hasMessageId(), frame.messageId(), appPayload);
+            } else {
+                sendRelayBusy(senderSession, targetPub, RELAY_BUSY_RETRY_MS);
+            }
             return;
         }
 
@@ -685,28 +795,27 @@ public final class RudpSessionManager {
                     + Hex.encode(targetPub).substring(0, 12) + "...");
             return;
         }
+        int n = meshBroadcastFanout();
+        List<InetSocketAddress> hops = new ArrayList<>(n);
+        long backoffMs = relayNextHops(targetPub, senderPub, n, hops);
+        if (hops.isEmpty()) {
+            if (backoffMs > 0) {
+                // every route to the target asked to slow down: pass that on
+                // to whoever is feeding us instead of relaying into it.
+                metrics.relayBackoffDropped();
+                sendRelayBusy(senderSession, targetPub, backoffMs);
+            }
+            return;
+        }
+        markRelaySeen(targetPub, frame.hasMessageId(), frame.messageId(), appPayload);
         // hops already spent ≈ initial soft horizon - remaining (approx).
         // hopTtl > 0 is guaranteed above; clamping may reduce the remaining
         // ttl to 0, and this node still floods once — the next hop's ttl
         // guard stops further forwarding (soft-max horizon).
         int hopsSoFar = Math.max(0, IceBridgeTopology.get().softMax() - hopTtl);
         int nextTtl = IceBridgeTopology.get().clampRemainingTtl(hopsSoFar + 1, hopTtl - 1);
-        int n = meshBroadcastFanout();
-        List<PeerRecord> forwarders = registry.lookupForwarders(n);
-        int sent = 0;
-        for (PeerRecord f : forwarders) {
-            if (sent >= n) {
-                break;
-            }
-            if (isSelf(f)) {
-                continue;
-            }
-            if (Arrays.equals(f.ed25519Pub(), senderPub)) {
-                continue;
-            }
-            InetSocketAddress next = new InetSocketAddress(f.host(), f.rudpPort());
-            sendRelay(next, targetPub, appPayload, nextTtl);
-            sent++;
+        for (InetSocketAddress next : hops) {
+            sendRelay(next, targetPub, frame.hasMessageId(), frame.messageId(), appPayload, nextTtl);
         }
     }
 
@@ -717,20 +826,21 @@ public final class RudpSessionManager {
      * own rUDP host:port and drain {@code /poll}. In that case deliver
      * straight to the local inbound queue (no self-UDP). Remote endpoints
      * get an authenticated reliable RELAY_RESPONSE.
+     *
+     * @return false only if a local poll client's queue refused the payload
      */
-    private void deliverToLocalRegistryTarget(byte[] logicalSourcePub,
-                                              PeerRecord target,
-                                              byte[] appPayload) {
+    private boolean deliverToLocalRegistryTarget(byte[] logicalSourcePub,
+                                                 PeerRecord target,
+                                                 byte[] appPayload) {
         if (appPayload.length > RelayFrame.MAX_APP_PAYLOAD) {
             LOG.debug("RudpSessionManager: drop oversized local RELAY delivery");
-            return;
+            return true;
         }
         InetSocketAddress targetAddress = new InetSocketAddress(target.host(), target.rudpPort());
         if (isLocalRudpEndpoint(targetAddress)) {
             // Prefer wire-shaped delivery so InboundMessageQueue can unwrap;
             // bare app payloads are still accepted as SEARCH fallback.
-            deliverToLocalPollClient(target.ed25519Pub(), logicalSourcePub, appPayload);
-            return;
+            return deliverToLocalPollClient(target.ed25519Pub(), logicalSourcePub, appPayload);
         }
         RudpSession targetSession = sessionsByAddress.get(targetAddress);
         if (targetSession == null) {
@@ -740,7 +850,7 @@ public final class RudpSessionManager {
         if (targetSession == null) {
             LOG.debug("RudpSessionManager: no session to local registry target "
                     + target.host() + ":" + target.rudpPort());
-            return;
+            return true;
         }
         byte[] responsePayload = new byte[32 + appPayload.length];
         System.arraycopy(logicalSourcePub, 0, responsePayload, 0, 32);
@@ -752,6 +862,7 @@ public final class RudpSessionManager {
                 targetSession.receivedThroughRemote(),
                 responsePayload);
         sendReliable(targetSession, forward);
+        return true;
     }
 
     private boolean isLocalRudpEndpoint(InetSocketAddress addr) {
@@ -825,18 +936,130 @@ public final class RudpSessionManager {
     /**
      * Deliver to a USE_REMOTE client registered on our rUDP host:port.
      * Demuxes into a per-target inbound queue when the listener supports it.
+     *
+     * @return false if the client's queue is full and refused the payload
      */
-    private void deliverToLocalPollClient(byte[] targetPub, byte[] sourcePub, byte[] payload) {
+    private boolean deliverToLocalPollClient(byte[] targetPub, byte[] sourcePub, byte[] payload) {
         if (messageListener instanceof com.frostwire.search.relay.icebridge.control.InboundMessageQueue) {
             try {
-                ((com.frostwire.search.relay.icebridge.control.InboundMessageQueue) messageListener)
+                return ((com.frostwire.search.relay.icebridge.control.InboundMessageQueue) messageListener)
                         .offerForTarget(targetPub, sourcePub == null ? new byte[0] : sourcePub, payload);
             } catch (Throwable t) {
                 LOG.warn("RudpSessionManager: local poll client delivery failed", t);
             }
-            return;
+            return true;
         }
         notifyListener(sourcePub, payload);
+        return true;
+    }
+
+    /**
+     * Records a relayed message as seen. A message with an id is also recorded
+     * under the id-less key, since the copies that pass through nodes speaking
+     * only plain RELAY come back without it.
+     */
+    private void markRelaySeen(byte[] targetPub, boolean hasMessageId, long messageId,
+                               byte[] appPayload) {
+        if (hasMessageId) {
+            relaySeen.checkAndAdd(relaySeenKey(targetPub, messageId), appPayload);
+        }
+        relaySeen.checkAndAdd(targetPub, appPayload);
+    }
+
+    /** targetPub followed by the big-endian message id. */
+    private static byte[] relaySeenKey(byte[] targetPub, long messageId) {
+        byte[] key = Arrays.copyOf(targetPub, 40);
+        for (int i = 0; i < 8; i++) {
+            key[32 + i] = (byte) (messageId >>> (56 - 8 * i));
+        }
+        return key;
+    }
+
+    // ---- RELAY flow control ----
+
+    /**
+     * Tell the hop that fed us a RELAY for {@code targetPub} to stop for
+     * {@code retryAfterMs}. Best effort: a lost RELAY_BUSY only means the
+     * next RELAY is refused again.
+     */
+    private void sendRelayBusy(RudpSession session, byte[] targetPub, long retryAfterMs) {
+        int ms = (int) Math.max(1, Math.min(retryAfterMs, MAX_RELAY_BACKOFF_MS));
+        byte[] payload = new byte[34];
+        System.arraycopy(targetPub, 0, payload, 0, 32);
+        payload[32] = (byte) (ms >>> 8);
+        payload[33] = (byte) ms;
+        metrics.relayBusySignaled();
+        send(session, new RudpPacket(
+                RudpPacket.Type.RELAY_BUSY,
+                session.remoteConnectionId(),
+                0,
+                session.receivedThroughRemote(),
+                payload));
+    }
+
+    /**
+     * Backs off relaying to {@code targetPub} through the hop that sent the
+     * RELAY_BUSY, and through no other. Only honoured if we relayed a frame
+     * for that target to that hop within {@link #RELAY_BUSY_ACCEPT_MS}, so a
+     * peer cannot cut us off from targets it never carried for us.
+     */
+    private void handleRelayBusy(RudpPacket packet, InetSocketAddress sender) {
+        byte[] payload = packet.payload();
+        if (payload == null || payload.length != 34) {
+            return;
+        }
+        RudpSession session = sessionsByAddress.get(sender);
+        if (session == null || session.remotePub() == null) {
+            LOG.debug("RudpSessionManager: rejected RELAY_BUSY from unauthenticated " + sender);
+            return;
+        }
+        byte[] targetPub = Arrays.copyOf(payload, 32);
+        String key = relayHopKey(sender, targetPub);
+        long now = System.currentTimeMillis();
+        Long forwardedAt = relayForwardedAt.get(key);
+        if (forwardedAt == null || now - forwardedAt > RELAY_BUSY_ACCEPT_MS) {
+            LOG.debug("RudpSessionManager: ignored RELAY_BUSY for a target not relayed to " + sender);
+            return;
+        }
+        int retryAfterMs = ((payload[32] & 0xff) << 8) | (payload[33] & 0xff);
+        long until = now + Math.min(retryAfterMs, MAX_RELAY_BACKOFF_MS);
+        if (relayBackoffUntil.size() >= MAX_RELAY_BACKOFFS) {
+            purgeExpiredBackoffs(now);
+            if (relayBackoffUntil.size() >= MAX_RELAY_BACKOFFS) {
+                return;
+            }
+        }
+        relayBackoffUntil.merge(key, until, Math::max);
+    }
+
+    /** Milliseconds left on a RELAY_BUSY back-off for {@code targetPub} through {@code hop}, 0 if none. */
+    long relayBackoffRemainingMs(InetSocketAddress hop, byte[] targetPub) {
+        if (relayBackoffUntil.isEmpty()) {
+            return 0;
+        }
+        Long until = relayBackoffUntil.get(relayHopKey(hop, targetPub));
+        return until == null ? 0 : Math.max(0, until - System.currentTimeMillis());
+    }
+
+    private void noteRelayForwarded(InetSocketAddress hop, byte[] targetPub) {
+        long now = System.currentTimeMillis();
+        if (relayForwardedAt.size() >= MAX_RELAY_BACKOFFS) {
+            purgeExpiredBackoffs(now);
+            if (relayForwardedAt.size() >= MAX_RELAY_BACKOFFS) {
+                // a RELAY_BUSY for this one is ignored, which only costs a refused frame
+                return;
+            }
+        }
+        relayForwardedAt.put(relayHopKey(hop, targetPub), now);
+    }
+
+    private void purgeExpiredBackoffs(long now) {
+        relayBackoffUntil.values().removeIf(until -> until <= now);
+        relayForwardedAt.values().removeIf(at -> now - at > RELAY_BUSY_ACCEPT_MS);
+    }
+
+    private static String relayHopKey(InetSocketAddress hop, byte[] targetPub) {
+        return hop + "/" + Hex.encode(targetPub);
     }
 
     // ---- maintenance ----
@@ -869,6 +1092,7 @@ public final class RudpSessionManager {
             }
         }
         reassembler.evictStale();
+        purgeExpiredBackoffs(now);
     }
 
     // ---- utilities ----
@@ -0,0 +1,388 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ * 
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ * 
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ * 
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.search.telluride;
+
+import com.frostwire.concurrent.concurrent.ThreadExecutor;
+import com.frostwire.util.Logger;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small pool of long-lived telluride processes answering metadata requests,
+ * so a lookup doesn't pay the interpreter start-up of a fresh process.
+ * <p>
+ * A worker is started with {@link #WORKER_FLAG} and speaks one JSON object per
+ * line. It reads requests from stdin:
+ * <pre>{"id":1,"url":"https://...","playlist":false}</pre>
+ * and writes one response per request to stdout, with the metadata the
+ * {@code -m}/{@code -p} modes print, or an error:
+ * <pre>{"id":1,"meta":{...}}
+ * {"id":1,"error":"ERROR: Unsupported URL"}</pre>
+ * Any other output line is ignored. A worker that misses its deadline is
+ * killed, one that exits is dropped, and a replacement is started on the next
+ * request. After {@link #MAX_CONSECUTIVE_CRASHES} workers die without answering
+ * anything the pool disables itself, e.g. a telluride build without the worker
+ * mode, and {@link #isAvailable()} tells callers to launch one-shot processes.
+ * <p>
+ * Extracted metadata is kept in an LRU cache keyed by URL for
+ * {@link #META_CACHE_TTL_MILLIS}, format URLs expire on the sites' side.
+ */
+public final class TelluridePool {
+
+    private static final Logger LOG = Logger.getLogger(TelluridePool.class);
+
+    static final String WORKER_FLAG = "--worker";
+
+    public static final int DEFAULT_POOL_SIZE = 2;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 60_000;
+
+    static final int MAX_CONSECUTIVE_CRASHES = 3;
+    static final int META_CACHE_SIZE = 128;
+    static final long META_CACHE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private static TelluridePool instance;
+
+    private final File executable;
+    private final int size;
+    private final long cacheTtlMillis;
+    private final LinkedBlockingQueue<Worker> idle;
+    private final List<Worker> workers;
+    private final AtomicInteger consecutiveCrashes;
+    private final AtomicLong nextRequestId;
+    private final Map<String, CachedMeta> metaCache;
+
+    private volatile boolean closed;
+
+    TelluridePool(File executable, int size, long cacheTtlMillis) {
+        this.executable = executable;
+        this.size = size;
+        this.cacheTtlMillis = cacheTtlMillis;
+        this.idle = new LinkedBlockingQueue<>();
+        this.workers = new ArrayList<>(size);
+        this.consecutiveCrashes = new AtomicInteger();
+        this.nextRequestId = new AtomicLong();
+        this.metaCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedMeta> eldest) {
+                return size() > META_CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Returns the shared pool for the given telluride executable, replacing the
+     * previous one if the executable changed.
+     */
+    public static synchronized TelluridePool instance(File executable) {
+        if (instance == null || !instance.executable.equals(executable)) {
+            if (instance != null) {
+                instance.close();
+            }
+            instance = new TelluridePool(executable, DEFAULT_POOL_SIZE, META_CACHE_TTL_MILLIS);
+        }
+        return instance;
+    }
+
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    public boolean isAvailable() {
+        return !closed && consecutiveCrashes.get() < MAX_CONSECUTIVE_CRASHES;
+    }
+
+    /**
+     * Returns the JSON metadata of the given URL, as printed by the {@code -m}
+     * (or {@code -p} in playlist mode) telluride option.
+     *
+     * @throws TimeoutException   if no worker answered within the given time, the
+     *                            worker in charge is killed
+     * @throws ExtractorException if the extractor reported an error
+     * @throws IOException        if the worker died or the pool is not available
+     */
+    public String meta(String url, boolean playlist, long timeoutMillis)
+            throws IOException, TimeoutException, InterruptedException {
+        String key = (playlist ? "p:" : "m:") + url;
+        String cached = cachedMeta(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (!isAvailable()) {
+            throw new IOException("Telluride worker pool is not available");
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Worker worker = acquire(deadline);
+        if (worker == null) {
+            throw new TimeoutException("No telluride worker available for " + url);
+        }
+        try {
+            String meta = worker.request(nextRequestId.incrementAndGet(), url, playlist, deadline);
+            synchronized (metaCache) {
+                metaCache.put(key, new CachedMeta(meta, System.currentTimeMillis()));
+            }
+            return meta;
+        } catch (TimeoutException e) {
+            LOG.warn("TelluridePool.meta() worker timed out on " + url + ", killing it");
+            worker.destroy();
+            throw e;
+        } finally {
+            release(worker);
+        }
+    }
+
+    private String cachedMeta(String key) {
+        synchronized (metaCache) {
+            CachedMeta cached = metaCache.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - cached.timestamp > cacheTtlMillis) {
+                metaCache.remove(key);
+                return null;
+            }
+            return cached.json;
+        }
+    }
+
+    private Worker acquire(long deadline) throws IOException, InterruptedException {
+        while (true) {
+            if (closed) {
+                throw new IOException("Telluride worker pool closed");
+            }
+            Worker worker = idle.poll();
+            if (worker == null) {
+                worker = spawnIfBelowSize();
+            }
+            if (worker == null) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return null;
+                }
+                // wake up now and then, a busy worker may die and free its slot
+                worker = idle.poll(Math.min(remaining, 250), TimeUnit.MILLISECONDS);
+                if (worker == null) {
+                    continue;
+                }
+            }
+            if (worker.isAlive()) {
+                return worker;
+            }
+            remove(worker);
+        }
+    }
+
+    private void release(Worker worker) {
+        if (worker.isAlive() && !closed) {
+            idle.offer(worker);
+        } else {
+            remove(worker);
+        }
+    }
+
+    private Worker spawnIfBelowSize() throws IOException {
+        synchronized (workers) {
+            if (closed || workers.size() >= size) {
+                return null;
+            }
+            ProcessBuilder pb = new ProcessBuilder(executable.getAbsolutePath(), WORKER_FLAG);
+            pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+            Worker worker = new Worker(pb.start());
+            workers.add(worker);
+            return worker;
+        }
+    }
+
+    private void remove(Worker worker) {
+        synchronized (workers) {
+            workers.remove(worker);
+        }
+        worker.destroy();
+    }
+
+    void close() {
+        closed = true;
+        synchronized (workers) {
+            for (Worker worker : workers) {
+                worker.destroy();
+            }
+            workers.clear();
+        }
+        idle.clear();
+    }
+
+    int liveWorkers() {
+        synchronized (workers) {
+            return workers.size();
+        }
+    }
+
+    /**
+     * The worker is fine, the extractor couldn't get metadata out of the URL.
+     */
+    public static final class ExtractorException extends IOException {
+        ExtractorException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class CachedMeta {
+        final String json;
+        final long timestamp;
+
+        CachedMeta(String json, long timestamp) {
+            this.json = json;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * One telluride process serving a request at a time, its stdout is read
+     * by its own thread so a dying process fails the pending request at once.
+     */
+    private final class Worker {
+        private final Process process;
+        private final BufferedWriter stdin;
+        private volatile CompletableFuture<String> pending;
+        private volatile long pendingId;
+        private volatile boolean answered;
+        private volatile boolean dead;
+
+        Worker(Process process) {
+            this.process = process;
+            this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            // a dedicated thread, it lives as long as the process
+            ThreadExecutor.newManagedThread(this::readLoop, "telluride-worker:" + process.pid()).start();
+        }
+
+        boolean isAlive() {
+            return !dead && process.isAlive();
+        }
+
+        void destroy() {
+            dead = true;
+            // descendants too, whatever they hold keeps stdout open
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }
+
+        String request(long id, String url, boolean playlist, long deadline)
+                throws IOException, TimeoutException, InterruptedException {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            pendingId = id;
+            pending = future;
+            if (!isAlive()) {
+                pending = null;
+                throw new IOException("Telluride worker is gone");
+            }
+            JsonObject request = new JsonObject();
+            request.addProperty("id", id);
+            request.addProperty("url", url);
+            request.addProperty("playlist", playlist);
+            try {
+                stdin.write(request.toString());
+                stdin.newLine();
+                stdin.flush();
+            } catch (IOException e) {
+                pending = null;
+                throw new IOException("Telluride worker is gone", e);
+            }
+            try {
+                return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            } finally {
+                pending = null;
+            }
+        }
+
+        private void readLoop() {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    onLine(line);
+                }
+            } catch (IOException e) {
+                // process killed while reading
+            }
+            // marked before looking at pending, request() checks in the opposite order
+            dead = true;
+            CompletableFuture<String> future = pending;
+            if (future != null) {
+                future.completeExceptionally(new IOException("Telluride worker exited while serving a request"));
+            }
+            if (!answered && !closed) {
+                int crashes = consecutiveCrashes.incrementAndGet();
+                if (crashes == MAX_CONSECUTIVE_CRASHES) {
+                    LOG.warn("TelluridePool: " + crashes + " workers died without answering, falling back to one-shot processes");
+                }
+            }
+            remove(this);
+        }
+
+        private void onLine(String line) {
+            if (!line.startsWith("{")) {
+                return;
+            }
+            JsonObject response;
+            try {
+                response = JsonParser.parseString(line).getAsJsonObject();
+            } catch (Throwable t) {
+                return;
+            }
+            CompletableFuture<String> future = pending;
+            JsonElement id = response.get("id");
+            if (future == null || id == null || id.getAsLong() != pendingId) {
+                return;
+            }
+            answered = true;
+            consecutiveCrashes.set(0);
+            JsonElement meta = response.get("meta");
+            if (meta != null && !meta.isJsonNull()) {
+                future.complete(meta.toString());
+            } else {
+                JsonElement error = response.get("error");
+                future.completeExceptionally(new ExtractorException(error != null ? error.getAsString() : "Telluride worker sent no metadata"));
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ package com.frostwire.search.telluride;
 import com.frostwire.search.CrawlableSearchResult;
 import com.frostwire.search.ISearchPerformer;
 import com.frostwire.search.SearchListener;
+import com.frostwire.transfers.HlsPlaylist;
 import com.frostwire.util.Logger;
 import com.frostwire.util.Ssl;
 import com.frostwire.util.UrlUtils;
@@ -28,11 +29,14 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * V2-compatible search performer for Telluride (cloud backup/streaming platform).
@@ -92,6 +96,29 @@ public class TellurideSearchPerformer implements ISearchPerformer {
 
     public void perform() {
         stopped = false;
+        TellurideProcessListener processListener = new TellurideProcessListener(this);
+        TelluridePool pool = TelluridePool.instance(tellurideLauncher);
+        if (pool.isAvailable()) {
+            try {
+                processListener.onMeta(pool.meta(url, playlistMode, TelluridePool.DEFAULT_TIMEOUT_MILLIS));
+                stopped = true;
+                return;
+            } catch (TimeoutException e) {
+                processListener.onError("Timed out extracting " + url);
+                stopped = true;
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopped = true;
+                return;
+            } catch (TelluridePool.ExtractorException e) {
+                processListener.onError(e.getMessage());
+                stopped = true;
+                return;
+            } catch (IOException e) {
+                LOG.info("perform() telluride worker failed (" + e.getMessage() + "), launching a one-shot process for " + url);
+            }
+        }
         TellurideLauncher.launch(tellurideLauncher,
                 url,
                 null,
@@ -99,10 +126,13 @@ public class TellurideSearchPerformer implements ISearchPerformer {
                 !playlistMode,
                 playlistMode,
                 false,
-                new TellurideProcessListener(this));
+                processListener);
         try {
-            performerLatch.await();
+            if (!performerLatch.await(TelluridePool.DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                processListener.onError("Timed out extracting " + url);
+            }
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
         stopped = true;
     }
@@ -118,6 +148,14 @@ public class TellurideSearchPerformer implements ISearchPerformer {
     }
 
     public static List<TellurideSearchResult> getValidResults(String jsonMeta, Gson gson, TellurideSearchPerformerListener performerListener, long token, String debugUrl) {
+        return getValidResults(jsonMeta, gson, performerListener, token, debugUrl, false);
+    }
+
+    /**
+     * @param includeHls whether to keep .m3u8 formats, only for clients that download them with {@link com.frostwire.transfers.HlsDownloader},
+     *                   as desktop's HttpDownload and the common {@link com.frostwire.transfers.HttpDownload} do
+     */
+    public static List<TellurideSearchResult> getValidResults(String jsonMeta, Gson gson, TellurideSearchPerformerListener performerListener, long token, String debugUrl, boolean includeHls) {
         TellurideJSONResult result = gson.fromJson(jsonMeta, TellurideJSONResult.class);
 
         if (performerListener != null) {
@@ -132,9 +170,8 @@ public class TellurideSearchPerformer implements ISearchPerformer {
         }
         int originalResultCount = result.formats.size();
         for (TellurideJSONMediaFormat format : result.formats) {
-            if (format.url.contains(".m3u8")) {
-                // skip playlists for now
-                // TODO: Implement .m3u8 telluride downloader
+            boolean hls = format.url.contains(".m3u8");
+            if (hls && (!includeHls || !HlsPlaylist.isHlsUrl(format.url))) {
                 //LOG.info("getValidResults format.url contains .m3u8");
                 continue;
             }
@@ -183,7 +220,7 @@ public class TellurideSearchPerformer implements ISearchPerformer {
             results.add(new TellurideSearchResult(
                     result.id,
                     videoFormatParenthesis + " " + result.title,
-                    result.title + " " + videoFormatParenthesis + "." + format.ext,
+                    result.title + " " + videoFormatParenthesis + "." + (hls ? "ts" : format.ext),
                     "Cloud:" + result.extractor,
                     result.webpage_url,
                     format.url,
@@ -233,7 +270,7 @@ public static List<TellurideSearchResult> getValidPlaylistResults(String jsonMet
     }
 
     private void onMeta(String json) {
-        List<TellurideSearchResult> results = getValidResults(json, gson, performerListener, getToken(), url);
+        List<TellurideSearchResult> results = getValidResults(json, gson, performerListener, getToken(), url, true);
         onResults(results);
 
         if (performerListener != null) {
@@ -0,0 +1,185 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.search.torrent;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pull reader over a bencoded buffer. Values the caller doesn't ask for are
+ * skipped in place, without building any object tree, so pulling a few
+ * fields out of a large .torrent only allocates those fields.
+ *
+ * <p>Malformed input throws {@link IllegalArgumentException} with the
+ * offending offset. Nesting is skipped iteratively and bounded by
+ * {@link #MAX_DEPTH}, so hostile input can't overflow the stack.
+ */
+final class BencodeReader {
+    static final int MAX_DEPTH = 64;
+
+    private final byte[] data;
+    private int pos;
+
+    BencodeReader(byte[] data) {
+        this(data, 0);
+    }
+
+    BencodeReader(byte[] data, int pos) {
+        this.data = data;
+        this.pos = pos;
+    }
+
+    int position() {
+        return pos;
+    }
+
+    boolean isString() {
+        byte b = peek();
+        return b >= '0' && b <= '9';
+    }
+
+    boolean isInt() {
+        return peek() == 'i';
+    }
+
+    void beginDict() {
+        expect('d');
+    }
+
+    void beginList() {
+        expect('l');
+    }
+
+    /** True while the current list or dict has more elements. */
+    boolean hasNext() {
+        return peek() != 'e';
+    }
+
+    void end() {
+        expect('e');
+    }
+
+    long readInt() {
+        expect('i');
+        boolean negative = false;
+        if (peek() == '-') {
+            negative = true;
+            pos++;
+        }
+        long value = readDigits('e');
+        pos++; // 'e'
+        return negative ? -value : value;
+    }
+
+    String readString() {
+        int length = readStringLength();
+        String s = new String(data, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return s;
+    }
+
+    /**
+     * Reads a string and tells whether it equals {@code ascii}, without
+     * decoding it. For matching dictionary keys.
+     */
+    boolean readKeyEquals(String ascii) {
+        int length = readStringLength();
+        boolean equal = length == ascii.length();
+        for (int i = 0; equal && i < length; i++) {
+            equal = data[pos + i] == ascii.charAt(i);
+        }
+        pos += length;
+        return equal;
+    }
+
+    /** Reads a dictionary key; keys of torrent dicts are ASCII. */
+    String readKey() {
+        int length = readStringLength();
+        String s = new String(data, pos, length, StandardCharsets.ISO_8859_1);
+        pos += length;
+        return s;
+    }
+
+    /** Skips the next value of any type, however deeply nested. */
+    void skip() {
+        int depth = 0;
+        do {
+            byte b = peek();
+            if (b == 'd' || b == 'l') {
+                if (++depth > MAX_DEPTH) {
+                    throw error("nesting deeper than " + MAX_DEPTH);
+                }
+                pos++;
+            } else if (b == 'e') {
+                if (depth == 0) {
+                    throw error("unexpected end of container");
+                }
+                depth--;
+                pos++;
+            } else if (b == 'i') {
+                readInt();
+            } else {
+                int length = readStringLength();
+                pos += length;
+            }
+        } while (depth > 0);
+    }
+
+    private int readStringLength() {
+        long length = readDigits(':');
+        pos++; // ':'
+        if (length > data.length - pos) {
+            throw error("string of " + length + " bytes past end of data");
+        }
+        return (int) length;
+    }
+
+    private long readDigits(char terminator) {
+        int start = pos;
+        long value = 0;
+        while (true) {
+            byte b = peek();
+            if (b == terminator && pos > start) {
+                return value;
+            }
+            if (b < '0' || b > '9' || pos - start >= 18) {
+                throw error("bad number");
+            }
+            value = value * 10 + (b - '0');
+            pos++;
+        }
+    }
+
+    private byte peek() {
+        if (pos >= data.length) {
+            throw error("unexpected end of data");
+        }
+        return data[pos];
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("bencode: " + message + " at offset " + pos);
+    }
+}
@@ -32,7 +32,7 @@ public final class TorrentCrawledAlbumSearchResult extends AbstractCrawledSearch
     private final String album;
     private final List<TorrentItemSearchResult> items;
     private final String displayName;
-    private final long size;
+    private volatile long size;
 
     public TorrentCrawledAlbumSearchResult(TorrentCrawlableSearchResult sr, String artist, String album, List<TorrentItemSearchResult> items) {
         super(sr);
@@ -55,6 +55,15 @@ public final class TorrentCrawledAlbumSearchResult extends AbstractCrawledSearch
         return items;
     }
 
+    /**
+     * Adds a track found after the album was reported, e.g. in a later
+     * batch of the same torrent.
+     */
+    public void addItem(TorrentItemSearchResult item) {
+        items.add(item);
+        size += item.getSize();
+    }
+
     @Override
     public String getDisplayName() {
         return displayName;
@@ -18,43 +18,73 @@
 
 package com.frostwire.search.torrent;
 
+import com.frostwire.jlibtorrent.FileStorage;
 import com.frostwire.jlibtorrent.TorrentInfo;
 import com.frostwire.search.AbstractCrawledSearchResult;
 import org.apache.commons.io.FilenameUtils;
 
 /**
+ * One file of a crawled torrent. The file list is shared with the other
+ * files of the same torrent through {@link TorrentFiles}; no libtorrent
+ * object is held until {@link #getTorrentInfo()} is called to download.
+ *
  * @author gubatron
  * @author aldenml
  */
 public final class TorrentCrawledSearchResult extends AbstractCrawledSearchResult<TorrentCrawlableSearchResult> implements TorrentItemSearchResult {
-    private final TorrentInfo ti;
-    private final int fileIndex;
-    private final String filePath;
+    private final TorrentFiles files;
+    private final int entry;
     private final String displayName;
-    private final String filename;
-    private final long size;
 
-    public TorrentCrawledSearchResult(TorrentCrawlableSearchResult sr, TorrentInfo ti, int fileIndex, String filePath, long fileSize) {
+    /**
+     * @param entry index of the file among {@code files}' visible files
+     */
+    public TorrentCrawledSearchResult(TorrentCrawlableSearchResult sr, TorrentFiles files, int entry) {
         super(sr);
-        this.ti = ti;
-        this.fileIndex = fileIndex;
-        this.filePath = filePath;
-        this.filename = FilenameUtils.getName(this.filePath);
-        this.size = fileSize;
-        this.displayName = FilenameUtils.getBaseName(this.filename);
+        this.files = files;
+        this.entry = entry;
+        this.displayName = FilenameUtils.getBaseName(files.fileName(entry));
     }
 
+    /**
+     * Decodes the torrent with libtorrent. Every call builds a new native
+     * {@link TorrentInfo}; hold on to it only while starting the download.
+     */
     public TorrentInfo getTorrentInfo() {
-        return ti;
+        return TorrentInfo.bdecode(files.torrentData());
+    }
+
+    public TorrentFiles getTorrentFiles() {
+        return files;
+    }
+
+    /**
+     * Index of this file in {@code ti}, which must be this result's
+     * {@link #getTorrentInfo()}. Resolved by path when the parsed index
+     * can't be trusted (v2-only torrents).
+     */
+    public int getFileIndex(TorrentInfo ti) {
+        int index = files.fileIndex(entry);
+        if (files.exactFileIndices()) {
+            return index;
+        }
+        FileStorage fs = ti.files();
+        String path = getFilePath();
+        for (int i = 0; i < fs.numFiles(); i++) {
+            if (path.equals(fs.filePath(i))) {
+                return i;
+            }
+        }
+        return index;
     }
 
     public int getFileIndex() {
-        return fileIndex;
+        return files.fileIndex(entry);
     }
 
     @Override
     public String getFilePath() {
-        return filePath;
+        return files.filePath(entry);
     }
 
     @Override
@@ -64,12 +94,12 @@ public final class TorrentCrawledSearchResult extends AbstractCrawledSearchResul
 
     @Override
     public String getFilename() {
-        return filename;
+        return files.fileName(entry);
     }
 
     @Override
     public long getSize() {
-        return size;
+        return files.fileSize(entry);
     }
 
     @Override
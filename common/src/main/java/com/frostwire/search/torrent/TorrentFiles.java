@@ -0,0 +1,446 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.search.torrent;
+
+import com.frostwire.util.Hex;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The file list of a .torrent, parsed in pure Java and shared by all the
+ * {@link TorrentCrawledSearchResult}s of that torrent.
+ *
+ * <p>Only what search results show is kept: the torrent name, infohash and,
+ * per visible file, its libtorrent file index, size and path. Sizes and
+ * indices are packed into primitive arrays; a path is its file name plus an
+ * index into a table of distinct directory prefixes, so the thousands of
+ * files of a big torrent share a handful of directory strings. Pad and
+ * hidden files are left out, as libtorrent's file storage would flag them.
+ *
+ * <p>The raw .torrent bytes are kept (on the Java heap) so a libtorrent
+ * {@code TorrentInfo} can be built when, and only when, the user downloads.
+ *
+ * <p>{@link #parse(byte[])} remembers recently parsed torrents by infohash:
+ * the same torrent returned by several engines is parsed once and its
+ * results share one instance.
+ */
+public final class TorrentFiles {
+    static final int MAX_CACHED = 64;
+    static final long MAX_CACHED_BYTES = 32L * 1024 * 1024;
+    private static final String PAD_FILE_PREFIX = "_____padding_file_";
+
+    private static final LinkedHashMap<String, TorrentFiles> PARSED = new LinkedHashMap<>(16, 0.75f, true);
+    private static long parsedBytes;
+
+    private final String infoHash;
+    private final String name;
+    private final byte[] torrentData;
+    private final boolean exactFileIndices;
+    private final long totalSize;
+    private final String[] dirs;
+    private final int[] dirOf;
+    private final String[] names;
+    private final long[] sizes;
+    private final int[] fileIndices;
+
+    private TorrentFiles(String infoHash, String name, byte[] torrentData, boolean exactFileIndices,
+                         String[] dirs, int[] dirOf, String[] names, long[] sizes, int[] fileIndices) {
+        this.infoHash = infoHash;
+        this.name = name;
+        this.torrentData = torrentData;
+        this.exactFileIndices = exactFileIndices;
+        this.dirs = dirs;
+        this.dirOf = dirOf;
+        this.names = names;
+        this.sizes = sizes;
+        this.fileIndices = fileIndices;
+        long total = 0;
+        for (long size : sizes) {
+            total += size;
+        }
+        this.totalSize = total;
+    }
+
+    /**
+     * Parses {@code data}, or returns the instance already parsed for the
+     * same infohash.
+     *
+     * @throws IllegalArgumentException if {@code data} is not a valid .torrent
+     */
+    public static TorrentFiles parse(byte[] data) {
+        int[] info = locateInfo(data);
+        String infoHash = sha1Hex(data, info[0], info[1] - info[0]);
+        synchronized (PARSED) {
+            TorrentFiles cached = PARSED.get(infoHash);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        TorrentFiles files = parseInfo(data, info[0], infoHash);
+        synchronized (PARSED) {
+            TorrentFiles raced = PARSED.putIfAbsent(infoHash, files);
+            if (raced != null) {
+                return raced;
+            }
+            parsedBytes += data.length;
+            Iterator<TorrentFiles> it = PARSED.values().iterator();
+            while (it.hasNext() && (PARSED.size() > MAX_CACHED || parsedBytes > MAX_CACHED_BYTES)) {
+                TorrentFiles eldest = it.next();
+                if (eldest == files) {
+                    break;
+                }
+                parsedBytes -= eldest.torrentData.length;
+                it.remove();
+            }
+        }
+        return files;
+    }
+
+    /** Forgets the recently parsed torrents. */
+    public static void clearCache() {
+        synchronized (PARSED) {
+            PARSED.clear();
+            parsedBytes = 0;
+        }
+    }
+
+    /** Hex SHA-1 of the bencoded info dictionary (the v1 infohash). */
+    public String infoHash() {
+        return infoHash;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /** The .torrent these files were parsed from. Not a copy, don't modify. */
+    public byte[] torrentData() {
+        return torrentData;
+    }
+
+    /**
+     * False for v2-only torrents: libtorrent inserts pad files between their
+     * files, so {@link #fileIndex} is only a guess and should be resolved by
+     * path against the {@code TorrentInfo}.
+     */
+    public boolean exactFileIndices() {
+        return exactFileIndices;
+    }
+
+    /** Number of visible (non-pad, non-hidden) files. */
+    public int size() {
+        return names.length;
+    }
+
+    public long totalSize() {
+        return totalSize;
+    }
+
+    /** Path of file {@code i} as libtorrent reports it, the torrent name first. */
+    public String filePath(int i) {
+        String dir = dirs[dirOf[i]];
+        return dir.isEmpty() ? names[i] : dir + names[i];
+    }
+
+    public String fileName(int i) {
+        return names[i];
+    }
+
+    public long fileSize(int i) {
+        return sizes[i];
+    }
+
+    /** libtorrent file index of file {@code i}, pad files included. */
+    public int fileIndex(int i) {
+        return fileIndices[i];
+    }
+
+    /** {@code [start, end)} of the info dictionary value in {@code data}. */
+    private static int[] locateInfo(byte[] data) {
+        BencodeReader r = new BencodeReader(data);
+        r.beginDict();
+        while (r.hasNext()) {
+            if (r.readKeyEquals("info")) {
+                int start = r.position();
+                r.skip();
+                return new int[]{start, r.position()};
+            }
+            r.skip();
+        }
+        throw new IllegalArgumentException("torrent has no info dictionary");
+    }
+
+    private static TorrentFiles parseInfo(byte[] data, int infoStart, String infoHash) {
+        BencodeReader r = new BencodeReader(data, infoStart);
+        String name = null;
+        String nameUtf8 = null;
+        long singleLength = -1;
+        List<RawFile> files = null;
+        List<RawFile> fileTree = null;
+        r.beginDict();
+        while (r.hasNext()) {
+            String key = r.readKey();
+            switch (key) {
+                case "name":
+                    name = r.isString() ? r.readString() : skip(r);
+                    break;
+                case "name.utf-8":
+                    nameUtf8 = r.isString() ? r.readString() : skip(r);
+                    break;
+                case "length":
+                    singleLength = r.isInt() ? r.readInt() : -1;
+                    if (singleLength < 0) {
+                        throw new IllegalArgumentException("torrent has an invalid length");
+                    }
+                    break;
+                case "files":
+                    files = readFiles(r);
+                    break;
+                case "file tree":
+                    fileTree = new ArrayList<>();
+                    readFileTree(r, new ArrayList<>(), fileTree, 0);
+                    break;
+                default:
+                    r.skip();
+            }
+        }
+        r.end();
+        if (nameUtf8 != null && !nameUtf8.isEmpty()) {
+            name = nameUtf8;
+        }
+        name = sanitize(name);
+        if (name == null) {
+            throw new IllegalArgumentException("torrent has no name");
+        }
+
+        boolean exact = true;
+        boolean multiFile = true;
+        if (files == null && singleLength >= 0) {
+            files = List.of(new RawFile(new String[]{name}, singleLength, ""));
+            multiFile = false;
+        } else if (files == null && fileTree != null) {
+            // v2-only: libtorrent pads between files, see exactFileIndices()
+            files = fileTree;
+            exact = false;
+            multiFile = fileTree.size() != 1 || fileTree.get(0).path.length != 1;
+        } else if (files == null) {
+            throw new IllegalArgumentException("torrent has no files");
+        }
+        return build(infoHash, name, data, exact, multiFile, files);
+    }
+
+    private static TorrentFiles build(String infoHash, String name, byte[] data, boolean exact,
+                                      boolean multiFile, List<RawFile> files) {
+        Map<String, Integer> dirIds = new HashMap<>();
+        List<String> dirs = new ArrayList<>();
+        int n = 0;
+        for (RawFile f : files) {
+            if (f.visible()) {
+                n++;
+            }
+        }
+        int[] dirOf = new int[n];
+        String[] names = new String[n];
+        long[] sizes = new long[n];
+        int[] indices = new int[n];
+        StringBuilder sb = new StringBuilder();
+        int k = 0;
+        for (int index = 0; index < files.size(); index++) {
+            RawFile f = files.get(index);
+            if (!f.visible()) {
+                continue;
+            }
+            sb.setLength(0);
+            String fileName;
+            if (multiFile) {
+                sb.append(name).append(File.separatorChar);
+                List<String> parts = new ArrayList<>(f.path.length);
+                for (String element : f.path) {
+                    String part = sanitize(element);
+                    if (part != null) {
+                        parts.add(part);
+                    }
+                }
+                for (int p = 0; p < parts.size() - 1; p++) {
+                    sb.append(parts.get(p)).append(File.separatorChar);
+                }
+                fileName = parts.isEmpty() ? "_" : parts.get(parts.size() - 1);
+            } else {
+                fileName = name;
+            }
+            String dir = sb.toString();
+            Integer id = dirIds.get(dir);
+            if (id == null) {
+                id = dirs.size();
+                dirIds.put(dir, id);
+                dirs.add(dir);
+            }
+            dirOf[k] = id;
+            names[k] = fileName;
+            sizes[k] = f.length;
+            indices[k] = index;
+            k++;
+        }
+        return new TorrentFiles(infoHash, name, data, exact,
+                dirs.toArray(new String[0]), dirOf, names, sizes, indices);
+    }
+
+    private static List<RawFile> readFiles(BencodeReader r) {
+        List<RawFile> files = new ArrayList<>();
+        r.beginList();
+        while (r.hasNext()) {
+            String[] path = null;
+            String[] pathUtf8 = null;
+            long length = -1;
+            String attr = "";
+            r.beginDict();
+            while (r.hasNext()) {
+                String key = r.readKey();
+                switch (key) {
+                    case "length":
+                        length = r.readInt();
+                        break;
+                    case "path":
+                        path = readPath(r);
+                        break;
+                    case "path.utf-8":
+                        pathUtf8 = readPath(r);
+                        break;
+                    case "attr":
+                        attr = r.isString() ? r.readString() : skip(r);
+                        break;
+                    default:
+                        r.skip();
+                }
+            }
+            r.end();
+            if (pathUtf8 != null && pathUtf8.length > 0) {
+                path = pathUtf8;
+            }
+            if (path == null || length < 0) {
+                throw new IllegalArgumentException("torrent file entry without path or length");
+            }
+            files.add(new RawFile(path, length, attr));
+        }
+        r.end();
+        return files;
+    }
+
+    private static String[] readPath(BencodeReader r) {
+        List<String> elements = new ArrayList<>(4);
+        r.beginList();
+        while (r.hasNext()) {
+            elements.add(r.readString());
+        }
+        r.end();
+        return elements.toArray(new String[0]);
+    }
+
+    /**
+     * BEP 52 file tree: nested dicts of path elements, where the empty key
+     * holds a file's properties. Dict keys are sorted, which is the order
+     * libtorrent lists the files in.
+     */
+    private static void readFileTree(BencodeReader r, List<String> path, List<RawFile> out, int depth) {
+        if (depth > BencodeReader.MAX_DEPTH) {
+            throw new IllegalArgumentException("file tree deeper than " + BencodeReader.MAX_DEPTH);
+        }
+        r.beginDict();
+        while (r.hasNext()) {
+            String element = r.readString();
+            if (element.isEmpty()) {
+                long length = 0;
+                String attr = "";
+                r.beginDict();
+                while (r.hasNext()) {
+                    String key = r.readKey();
+                    if ("length".equals(key)) {
+                        length = r.readInt();
+                    } else if ("attr".equals(key) && r.isString()) {
+                        attr = r.readString();
+                    } else {
+                        r.skip();
+                    }
+                }
+                r.end();
+                out.add(new RawFile(path.toArray(new String[0]), length, attr));
+            } else {
+                path.add(element);
+                readFileTree(r, path, out, depth + 1);
+                path.remove(path.size() - 1);
+            }
+        }
+        r.end();
+    }
+
+    private static String skip(BencodeReader r) {
+        r.skip();
+        return null;
+    }
+
+    /** Drops empty, "." and ".." elements and separators inside an element. */
+    private static String sanitize(String element) {
+        if (element == null) {
+            return null;
+        }
+        String s = element.replace('/', '_').replace('\\', '_');
+        if (s.isEmpty() || s.equals(".") || s.equals("..")) {
+            return null;
+        }
+        return s;
+    }
+
+    private static String sha1Hex(byte[] data, int offset, int length) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            sha1.update(data, offset, length);
+            return Hex.encode(sha1.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class RawFile {
+        final String[] path;
+        final long length;
+        final String attr;
+
+        RawFile(String[] path, long length, String attr) {
+            this.path = path;
+            this.length = length;
+            this.attr = attr;
+        }
+
+        boolean visible() {
+            if (attr.indexOf('p') >= 0 || attr.indexOf('h') >= 0) {
+                return false;
+            }
+            // BitComet style pad files, which libtorrent also flags as pad files
+            return path.length == 0 || !path[path.length - 1].startsWith(PAD_FILE_PREFIX);
+        }
+    }
+}
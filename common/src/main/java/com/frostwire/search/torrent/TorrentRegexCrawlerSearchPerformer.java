@@ -40,6 +40,7 @@ public abstract class TorrentRegexCrawlerSearchPerformer<T extends CrawlableSear
     private final static Logger LOG = Logger.getLogger(TorrentRegexCrawlerSearchPerformer.class);
     private final Pattern preliminarySearchResultsPattern;
     private final Pattern htmlDetailPagePattern;
+    private final AlbumCluster albumCluster = new AlbumCluster();
 
     public TorrentRegexCrawlerSearchPerformer(String domainName, long token, String keywords, int timeout, int pages, int numCrawls, int regexMaxResults, String preliminarySearchResultsRegex, String htmlDetailPagePatternRegex) {
         super(domainName, token, keywords, timeout, pages, numCrawls, regexMaxResults);
@@ -79,7 +80,7 @@ public abstract class TorrentRegexCrawlerSearchPerformer<T extends CrawlableSear
         }
         if (sr instanceof TorrentCrawlableSearchResult) {
             //in case we fetched a torrent's info (magnet, or the .torrent itself) to obtain 
-            list.addAll(PerformersHelper.crawlTorrentInfo(this, (TorrentCrawlableSearchResult) sr, data, detectAlbums));
+            list.addAll(PerformersHelper.crawlTorrentInfo(this, (TorrentCrawlableSearchResult) sr, data, detectAlbums ? albumCluster : null));
         } else {
             String unreducedHtml = new String(data, StandardCharsets.UTF_8);
             if (!isValidHtml(unreducedHtml)) {
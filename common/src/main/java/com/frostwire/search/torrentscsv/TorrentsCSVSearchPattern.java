@@ -50,6 +50,12 @@ public class TorrentsCSVSearchPattern implements SearchPattern {
         return "https://" + DOMAIN + "/service/search?q=" + encodedKeywords + "&size=" + MAX_RESULTS;
     }
 
+    @Override
+    public int getCacheFreshnessSeconds() {
+        // seed/peer counts go stale quickly, always revalidate
+        return 0;
+    }
+
     @Override
     public List<FileSearchResult> parseResults(String responseBody) {
         List<FileSearchResult> results = new ArrayList<>();
@@ -22,6 +22,8 @@ import com.frostwire.search.CompositeFileSearchResult;
 import com.frostwire.regex.Matcher;
 import com.frostwire.regex.Pattern;
 import com.frostwire.search.FileSearchResult;
+import com.frostwire.search.RegexPageScanner;
+import com.frostwire.search.SearchMatcher;
 import com.frostwire.search.SearchPattern;
 import com.frostwire.util.HtmlManipulator;
 import com.frostwire.util.Logger;
@@ -78,14 +80,15 @@ public class Torrentz2SearchPattern implements SearchPattern {
             LOG.debug("Torrentz2: Response body length: " + responseBody.length());
             LOG.debug("Torrentz2: Reduced page length: " + reducedPage.length());
 
-            Matcher matcher = searchPattern.matcher(reducedPage);
+            RegexPageScanner scanner = new RegexPageScanner(searchPattern, reducedPage);
             int resultCount = 0;
 
             LOG.debug("Torrentz2: Pattern matching started");
 
             LOG.debug("Torrentz2: Starting pattern matching on " + reducedPage.length() + " characters");
 
-            while (matcher.find() && resultCount < 100) {
+            while (scanner.find() && resultCount < 100) {
+                SearchMatcher matcher = scanner.matcher();
                 try {
                     String magnetLink = matcher.group("magnet");
                     String title = matcher.group("title");
@@ -0,0 +1,357 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.transfers;
+
+import com.frostwire.util.HttpClientFactory;
+import com.frostwire.util.Logger;
+import com.frostwire.util.ThreadPool;
+import com.frostwire.util.UserAgentGenerator;
+import com.frostwire.util.http.HttpClient;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Downloads an HLS stream into a single file.
+ * <p>
+ * A master playlist is resolved to its best variant, then the segments of
+ * the media playlist are fetched in parallel, at most
+ * {@link #MAX_PARALLEL_SEGMENTS} per stream over a pool shared by all streams,
+ * each one retried up to {@link #MAX_SEGMENT_ATTEMPTS} times. Segments are
+ * kept in part files next to the output and joined in order once all of them
+ * are in, decrypting AES-128 segments on the way. MPEG-TS segments join into
+ * a playable .ts file and fMP4 segments, after their initialization section,
+ * into a fragmented .mp4 file.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class HlsDownloader {
+
+    private static final Logger LOG = Logger.getLogger(HlsDownloader.class);
+
+    static final int MAX_PARALLEL_SEGMENTS = 4;
+    static final int MAX_SEGMENT_ATTEMPTS = 3;
+    private static final int TIMEOUT_MILLIS = 30_000;
+    private static final long RETRY_DELAY_MILLIS = 500;
+
+    private static final ExecutorService SEGMENTS_POOL =
+            new ThreadPool("HlsSegments", 2 * MAX_PARALLEL_SEGMENTS, new LinkedBlockingQueue<>(), true);
+
+    private final Supplier<HttpClient> clientFactory;
+    private final Map<String, String> httpHeaders;
+    private final int maxHeight;
+    private final Set<HttpClient> activeClients;
+    private final Map<String, byte[]> keys;
+
+    private volatile boolean cancelled;
+    private volatile long retryDelayMillis;
+
+    public interface Listener {
+        /**
+         * Called from the segment threads as bytes come in.
+         */
+        void onData(int length);
+
+        /**
+         * Called once a segment is complete, doneSegments out of totalSegments.
+         */
+        void onSegment(int doneSegments, int totalSegments);
+    }
+
+    /**
+     * @param httpHeaders headers sent with every request, may be null
+     * @param maxHeight   the maximum video height of the variant, 0 for the best one
+     */
+    public HlsDownloader(Map<String, String> httpHeaders, int maxHeight) {
+        this(() -> HttpClientFactory.getInstance(HttpClientFactory.HttpContext.DOWNLOAD), httpHeaders, maxHeight);
+    }
+
+    HlsDownloader(Supplier<HttpClient> clientFactory, Map<String, String> httpHeaders, int maxHeight) {
+        this.clientFactory = clientFactory;
+        this.httpHeaders = httpHeaders;
+        this.maxHeight = maxHeight;
+        this.activeClients = ConcurrentHashMap.newKeySet();
+        this.keys = new HashMap<>();
+        this.retryDelayMillis = RETRY_DELAY_MILLIS;
+    }
+
+    /**
+     * Downloads the whole stream of the playlist into output, blocking the
+     * calling thread until it's done.
+     *
+     * @throws InterruptedIOException if {@link #cancel()} was called
+     */
+    public void download(String playlistUrl, File output, Listener listener) throws IOException {
+        HlsPlaylist playlist = playlist(playlistUrl);
+        if (playlist.isMaster()) {
+            HlsPlaylist.Variant variant = playlist.bestVariant(maxHeight);
+            LOG.info("HlsDownloader.download() picked variant " + variant.width + "x" + variant.height +
+                    " @ " + variant.bandwidth + " bps of " + playlist.variants().size());
+            playlist = playlist(variant.uri);
+            if (playlist.isMaster()) {
+                throw new IOException("HLS master playlist points to another master playlist: " + variant.uri);
+            }
+        }
+        if (playlist.segments().isEmpty()) {
+            throw new IOException("HLS playlist without segments: " + playlistUrl);
+        }
+        if (!playlist.isEndList()) {
+            LOG.warn("HlsDownloader.download() live playlist, downloading the " + playlist.segments().size() + " segments listed now");
+        }
+
+        File partsDir = new File(output.getParentFile(), output.getName() + ".parts");
+        if (!partsDir.isDirectory() && !partsDir.mkdirs()) {
+            throw new IOException("Can't create " + partsDir);
+        }
+        try {
+            File init = null;
+            if (playlist.initSectionUri() != null) {
+                init = new File(partsDir, "init");
+                try {
+                    fetchWithRetries(playlist.initSectionUri(), init, null);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("HLS download interrupted");
+                }
+            }
+            List<HlsPlaylist.Segment> segments = playlist.segments();
+            fetchSegments(segments, partsDir, listener);
+            join(init, segments, partsDir, output);
+        } finally {
+            deleteRecursive(partsDir);
+        }
+    }
+
+    /**
+     * Stops the download, the calling thread of {@link #download} gets an
+     * {@link InterruptedIOException}.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (HttpClient client : activeClients) {
+            client.cancel();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void setRetryDelayMillis(long retryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    private HlsPlaylist playlist(String url) throws IOException {
+        checkCancelled();
+        HttpClient client = clientFactory.get();
+        String text = client.get(url, TIMEOUT_MILLIS, UserAgentGenerator.getUserAgent(), null, null, httpHeaders);
+        return HlsPlaylist.parse(url, text);
+    }
+
+    private void fetchSegments(List<HlsPlaylist.Segment> segments, File partsDir, Listener listener) throws IOException {
+        ExecutorCompletionService<Integer> completion = new ExecutorCompletionService<>(SEGMENTS_POOL);
+        int total = segments.size();
+        int submitted = 0;
+        int done = 0;
+        int inFlight = 0;
+        try {
+            while (done < total) {
+                while (submitted < total && inFlight < MAX_PARALLEL_SEGMENTS) {
+                    final int index = submitted++;
+                    completion.submit(() -> {
+                        fetchWithRetries(segments.get(index).uri, part(partsDir, index), listener);
+                        return index;
+                    });
+                    inFlight++;
+                }
+                Future<Integer> finished = completion.take();
+                inFlight--;
+                finished.get();
+                done++;
+                if (listener != null) {
+                    listener.onSegment(done, total);
+                }
+            }
+        } catch (InterruptedException e) {
+            cancel();
+            awaitInFlight(completion, inFlight);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("HLS download interrupted");
+        } catch (ExecutionException e) {
+            // stop the segments in flight, they'd be thrown away
+            cancel();
+            awaitInFlight(completion, inFlight);
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    /**
+     * Waits for the cancelled segments still running, so none of them writes
+     * a part file after the parts directory is deleted.
+     */
+    private static void awaitInFlight(ExecutorCompletionService<Integer> completion, int inFlight) {
+        boolean interrupted = Thread.interrupted();
+        while (inFlight > 0) {
+            try {
+                completion.take();
+                inFlight--;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void fetchWithRetries(String url, File part, Listener listener) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            checkCancelled();
+            try {
+                fetch(url, part, listener);
+                return;
+            } catch (IOException e) {
+                if (cancelled || attempt >= MAX_SEGMENT_ATTEMPTS) {
+                    checkCancelled();
+                    throw new IOException("HLS segment failed after " + attempt + " attempts: " + url, e);
+                }
+                LOG.warn("HlsDownloader segment attempt " + attempt + " failed, retrying: " + url + " (" + e.getMessage() + ")");
+                Thread.sleep(retryDelayMillis << (attempt - 1));
+            }
+        }
+    }
+
+    private void fetch(String url, File file, Listener listener) throws IOException {
+        HttpClient client = clientFactory.get();
+        client.setListener(new HttpClient.HttpClientListenerAdapter() {
+            @Override
+            public void onData(HttpClient c, byte[] buffer, int offset, int length) {
+                if (listener != null) {
+                    listener.onData(length);
+                }
+            }
+        });
+        activeClients.add(client);
+        try {
+            checkCancelled();
+            Files.deleteIfExists(file.toPath());
+            client.save(url, file, false, TIMEOUT_MILLIS, UserAgentGenerator.getUserAgent(), null, httpHeaders);
+            checkCancelled();
+        } finally {
+            activeClients.remove(client);
+        }
+    }
+
+    private void join(File init, List<HlsPlaylist.Segment> segments, File partsDir, File output) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output), 64 * 1024)) {
+            if (init != null) {
+                Files.copy(init.toPath(), out);
+            }
+            for (int i = 0; i < segments.size(); i++) {
+                checkCancelled();
+                HlsPlaylist.Segment segment = segments.get(i);
+                try (InputStream in = decrypting(segment, new FileInputStream(part(partsDir, i)))) {
+                    byte[] buffer = new byte[64 * 1024];
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, n);
+                    }
+                }
+            }
+        }
+    }
+
+    private InputStream decrypting(HlsPlaylist.Segment segment, InputStream in) throws IOException {
+        if (segment.key == null) {
+            return in;
+        }
+        try {
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key(segment.key.uri), "AES"), new IvParameterSpec(segment.iv()));
+            return new CipherInputStream(in, cipher);
+        } catch (GeneralSecurityException e) {
+            in.close();
+            throw new IOException("Can't decrypt HLS segment " + segment.uri, e);
+        }
+    }
+
+    private byte[] key(String url) throws IOException {
+        byte[] key = keys.get(url);
+        if (key == null) {
+            File file = File.createTempFile("hls-key", null);
+            try {
+                fetch(url, file, null);
+                key = Files.readAllBytes(file.toPath());
+            } finally {
+                Files.deleteIfExists(file.toPath());
+            }
+            if (key.length != 16) {
+                throw new IOException("Invalid HLS AES-128 key (" + key.length + " bytes): " + url);
+            }
+            keys.put(url, key);
+        }
+        return key;
+    }
+
+    private void checkCancelled() throws InterruptedIOException {
+        if (cancelled) {
+            throw new InterruptedIOException("HLS download cancelled");
+        }
+    }
+
+    private static File part(File partsDir, int index) {
+        return new File(partsDir, String.valueOf(index));
+    }
+
+    private static void deleteRecursive(File f) {
+        File[] kids = f.listFiles();
+        if (kids != null) {
+            for (File k : kids) {
+                deleteRecursive(k);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        f.delete();
+    }
+}
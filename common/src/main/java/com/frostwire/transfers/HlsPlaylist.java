@@ -0,0 +1,310 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.transfers;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An HLS (.m3u8) playlist, either a master playlist listing the variants of a
+ * stream or a media playlist listing its segments.
+ * <p>
+ * Only the tags needed to download a whole stream are understood: variants,
+ * segments, AES-128 keys and the fMP4 initialization section. URIs are
+ * resolved against the playlist URL.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class HlsPlaylist {
+
+    private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile("([A-Z0-9-]+)=(\"[^\"]*\"|[^,]*)");
+
+    private final List<Variant> variants;
+    private final List<Segment> segments;
+    private final String initSectionUri;
+    private final boolean endList;
+
+    private HlsPlaylist(List<Variant> variants, List<Segment> segments, String initSectionUri, boolean endList) {
+        this.variants = Collections.unmodifiableList(variants);
+        this.segments = Collections.unmodifiableList(segments);
+        this.initSectionUri = initSectionUri;
+        this.endList = endList;
+    }
+
+    public static boolean isHlsUrl(String url) {
+        if (url == null) {
+            return false;
+        }
+        String path = url.toLowerCase(Locale.US);
+        int query = path.indexOf('?');
+        if (query != -1) {
+            path = path.substring(0, query);
+        }
+        return path.endsWith(".m3u8") || path.contains(".m3u8/");
+    }
+
+    public static HlsPlaylist parse(String playlistUrl, String text) throws IOException {
+        if (text == null || !text.trim().startsWith("#EXTM3U")) {
+            throw new IOException("Not an HLS playlist: " + playlistUrl);
+        }
+        URI base = URI.create(playlistUrl);
+        List<Variant> variants = new ArrayList<>();
+        List<Segment> segments = new ArrayList<>();
+        String initSectionUri = null;
+        boolean endList = false;
+
+        Map<String, String> pendingVariant = null;
+        double pendingDuration = 0;
+        long sequence = 0;
+        Key key = null;
+
+        for (String rawLine : text.split("\r?\n")) {
+            String line = rawLine.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith("#")) {
+                if (line.startsWith("#EXT-X-STREAM-INF:")) {
+                    pendingVariant = attributes(line.substring("#EXT-X-STREAM-INF:".length()));
+                } else if (line.startsWith("#EXTINF:")) {
+                    String value = line.substring("#EXTINF:".length());
+                    int comma = value.indexOf(',');
+                    pendingDuration = parseDouble(comma == -1 ? value : value.substring(0, comma));
+                } else if (line.startsWith("#EXT-X-MEDIA-SEQUENCE:")) {
+                    sequence = parseLong(line.substring("#EXT-X-MEDIA-SEQUENCE:".length()));
+                } else if (line.startsWith("#EXT-X-KEY:")) {
+                    key = key(base, attributes(line.substring("#EXT-X-KEY:".length())));
+                } else if (line.startsWith("#EXT-X-MAP:")) {
+                    String uri = attributes(line.substring("#EXT-X-MAP:".length())).get("URI");
+                    if (uri != null) {
+                        initSectionUri = base.resolve(uri).toString();
+                    }
+                } else if (line.startsWith("#EXT-X-ENDLIST")) {
+                    endList = true;
+                }
+                continue;
+            }
+            String uri = base.resolve(line).toString();
+            if (pendingVariant != null) {
+                variants.add(variant(uri, pendingVariant));
+                pendingVariant = null;
+            } else {
+                segments.add(new Segment(uri, pendingDuration, sequence, key));
+                sequence++;
+                pendingDuration = 0;
+            }
+        }
+        return new HlsPlaylist(variants, segments, initSectionUri, endList);
+    }
+
+    public boolean isMaster() {
+        return !variants.isEmpty();
+    }
+
+    public List<Variant> variants() {
+        return variants;
+    }
+
+    public List<Segment> segments() {
+        return segments;
+    }
+
+    /**
+     * The fMP4 initialization section, to be written before the segments,
+     * null for MPEG-TS streams.
+     */
+    public String initSectionUri() {
+        return initSectionUri;
+    }
+
+    /**
+     * False for live playlists that are still growing.
+     */
+    public boolean isEndList() {
+        return endList;
+    }
+
+    /**
+     * Returns the variant with the highest bandwidth not taller than
+     * maxHeight, or the smallest one if all of them are taller.
+     *
+     * @param maxHeight the maximum video height, 0 for no limit
+     */
+    public Variant bestVariant(int maxHeight) {
+        Variant best = null;
+        Variant smallest = null;
+        for (Variant v : variants) {
+            if (smallest == null || v.bandwidth < smallest.bandwidth) {
+                smallest = v;
+            }
+            boolean fits = maxHeight <= 0 || v.height <= maxHeight;
+            if (fits && (best == null || v.bandwidth > best.bandwidth)) {
+                best = v;
+            }
+        }
+        return best != null ? best : smallest;
+    }
+
+    public double duration() {
+        double duration = 0;
+        for (Segment s : segments) {
+            duration += s.duration;
+        }
+        return duration;
+    }
+
+    static Map<String, String> attributes(String list) {
+        Map<String, String> attributes = new HashMap<>();
+        Matcher m = ATTRIBUTE_PATTERN.matcher(list);
+        while (m.find()) {
+            String value = m.group(2);
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            attributes.put(m.group(1), value);
+        }
+        return attributes;
+    }
+
+    private static Variant variant(String uri, Map<String, String> attributes) {
+        long bandwidth = parseLong(attributes.get("BANDWIDTH"));
+        int width = 0;
+        int height = 0;
+        String resolution = attributes.get("RESOLUTION");
+        if (resolution != null) {
+            int x = resolution.indexOf('x');
+            if (x != -1) {
+                width = (int) parseLong(resolution.substring(0, x));
+                height = (int) parseLong(resolution.substring(x + 1));
+            }
+        }
+        return new Variant(uri, bandwidth, width, height);
+    }
+
+    private static Key key(URI base, Map<String, String> attributes) throws IOException {
+        String method = attributes.get("METHOD");
+        if (method == null || "NONE".equals(method)) {
+            return null;
+        }
+        if (!"AES-128".equals(method)) {
+            throw new IOException("Unsupported HLS encryption method: " + method);
+        }
+        String uri = attributes.get("URI");
+        if (uri == null) {
+            throw new IOException("HLS AES-128 key without URI");
+        }
+        return new Key(base.resolve(uri).toString(), iv(attributes.get("IV")));
+    }
+
+    private static byte[] iv(String hex) throws IOException {
+        if (hex == null) {
+            return null;
+        }
+        if (hex.startsWith("0x") || hex.startsWith("0X")) {
+            hex = hex.substring(2);
+        }
+        if (hex.length() > 32) {
+            throw new IOException("Invalid HLS key IV: " + hex);
+        }
+        byte[] iv = new byte[16];
+        // right aligned, shorter values are zero padded on the left
+        for (int i = hex.length(), b = 15; i > 0; i -= 2, b--) {
+            iv[b] = (byte) Integer.parseInt(hex.substring(Math.max(0, i - 2), i), 16);
+        }
+        return iv;
+    }
+
+    private static long parseLong(String s) {
+        try {
+            return s != null ? Long.parseLong(s.trim()) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static double parseDouble(String s) {
+        try {
+            return Double.parseDouble(s.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public static final class Variant {
+        public final String uri;
+        public final long bandwidth;
+        public final int width;
+        public final int height;
+
+        Variant(String uri, long bandwidth, int width, int height) {
+            this.uri = uri;
+            this.bandwidth = bandwidth;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    public static final class Segment {
+        public final String uri;
+        public final double duration;
+        public final long sequence;
+        public final Key key;
+
+        Segment(String uri, double duration, long sequence, Key key) {
+            this.uri = uri;
+            this.duration = duration;
+            this.sequence = sequence;
+            this.key = key;
+        }
+
+        /**
+         * The key's explicit IV, or the media sequence number as the spec
+         * says when there is none.
+         */
+        byte[] iv() {
+            if (key.iv != null) {
+                return key.iv;
+            }
+            byte[] iv = new byte[16];
+            for (int i = 0; i < 8; i++) {
+                iv[15 - i] = (byte) (sequence >>> (8 * i));
+            }
+            return iv;
+        }
+    }
+
+    public static final class Key {
+        public final String uri;
+        final byte[] iv;
+
+        Key(String uri, byte[] iv) {
+            this.uri = uri;
+            this.iv = iv;
+        }
+    }
+}
@@ -18,17 +18,106 @@
 
 package com.frostwire.transfers;
 
+import com.frostwire.util.Logger;
+import com.frostwire.util.ThreadPool;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+
 /**
+ * An HTTP download. An HLS (.m3u8) url is fetched segment by segment with
+ * {@link HlsDownloader}, its size isn't known upfront and progress is
+ * reported by segments.
+ *
  * @author gubatron
  * @author aldenml
  */
 public class HttpDownload extends BaseHttpDownload {
+    private static final Logger LOG = Logger.getLogger(HttpDownload.class);
+    private static final ExecutorService HLS_THREAD_POOL = ThreadPool.newThreadPool("HlsDownload", 4, true);
+
+    private final HlsDownloader hls;
+    private volatile int hlsProgress;
+
     public HttpDownload(Info info) {
         super(info);
+        this.hls = HlsPlaylist.isHlsUrl(info.url()) ? new HlsDownloader(info.httpHeaders(), 0) : null;
     }
 
     public void start() {
-        super.start(info.url(), tempPath, false, info.httpHeaders());
+        if (hls != null) {
+            startHls();
+        } else {
+            super.start(info.url(), tempPath, false, info.httpHeaders());
+        }
+    }
+
+    private void startHls() {
+        if (complete) {
+            return;
+        }
+        HLS_THREAD_POOL.execute(() -> {
+            try {
+                TransferState oldState = state;
+                state = TransferState.DOWNLOADING;
+                notifyStateChanged(oldState, TransferState.DOWNLOADING);
+                hls.download(info.url(), tempPath, new HlsDownloader.Listener() {
+                    @Override
+                    public void onData(int length) {
+                        stat.update(length);
+                    }
+
+                    @Override
+                    public void onSegment(int doneSegments, int totalSegments) {
+                        int p = (int) ((doneSegments * 100L) / totalSegments);
+                        if (p != hlsProgress) {
+                            hlsProgress = p;
+                            notifyProgressChanged(p);
+                        }
+                    }
+                });
+                finish();
+            } catch (InterruptedIOException e) {
+                LOG.info("HLS download cancelled: " + getDisplayName());
+            } catch (Throwable e) {
+                error(e);
+            }
+        });
+    }
+
+    @Override
+    public int getProgress() {
+        if (hls == null) {
+            return super.getProgress();
+        }
+        return complete ? 100 : hlsProgress;
+    }
+
+    @Override
+    public long getSize() {
+        if (hls == null) {
+            return super.getSize();
+        }
+        // estimated from the segments in so far
+        long received = stat.totalBytes();
+        return complete || hlsProgress == 0 ? received : received * 100 / hlsProgress;
+    }
+
+    @Override
+    public long getETA() {
+        if (hls == null) {
+            return super.getETA();
+        }
+        long speed = stat.averageSpeed();
+        return complete || speed <= 0 ? 0 : (getSize() - stat.totalBytes()) / speed;
+    }
+
+    @Override
+    public void remove(boolean deleteData) {
+        if (hls != null) {
+            hls.cancel();
+        }
+        super.remove(deleteData);
     }
 
     @Override
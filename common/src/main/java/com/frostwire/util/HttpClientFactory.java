@@ -18,10 +18,13 @@
 
 package com.frostwire.util;
 
+import com.frostwire.platform.Platforms;
 import com.frostwire.util.http.HttpClient;
 import com.frostwire.util.http.JdkHttpClient;
 import com.frostwire.util.http.OkHttpClientWrapper;
+import com.frostwire.util.http.SearchHttpCache;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -32,12 +35,11 @@ import java.util.concurrent.LinkedBlockingQueue;
  * @author aldenml
  */
 public class HttpClientFactory {
-    private static Map<HttpContext, ThreadPool> okHttpClientPools = null;
-
     private static final boolean FORCE_JDK_HTTP_CLIENT = false;
 
     private static final Map<HttpContext, OkHttpClientWrapper> fwOKHTTPClients = new HashMap<>();
     private static final Object okHTTPClientLock = new Object();
+    private static volatile SearchHttpCache searchCache;
 
     private HttpClientFactory() {
     }
@@ -54,23 +56,76 @@ public class HttpClientFactory {
         if (isWindowsXP()) {
             return new JdkHttpClient();
         }
-        if (okHttpClientPools == null) {
-            okHttpClientPools = buildThreadPools();
-        }
         synchronized (okHTTPClientLock) {
             if (!fwOKHTTPClients.containsKey(context)) {
-                fwOKHTTPClients.put(context, new OkHttpClientWrapper(okHttpClientPools.get(context)));
+                fwOKHTTPClients.put(context, newOkHttpClient(context));
             }
         }
         return fwOKHTTPClients.get(context);
     }
 
-    private static Map<HttpContext, ThreadPool> buildThreadPools() {
-        final HashMap<HttpContext, ThreadPool> map = new HashMap<>();
-        map.put(HttpContext.SEARCH, new ThreadPool("OkHttpClient-searches", 2, 2, 2, new LinkedBlockingQueue<>(), true));
-        map.put(HttpContext.DOWNLOAD, new ThreadPool("OkHttpClient-downloads", 2, 2, 2, new LinkedBlockingQueue<>(), true));
-        map.put(HttpContext.MISC, new ThreadPool("OkHttpClient-misc", 2, 2, 2, new LinkedBlockingQueue<>(), true));
-        return map;
+    /**
+     * Response cache of the {@link HttpContext#SEARCH} client. Kept on disk
+     * under the platform temp dir, or in memory only before a platform is set.
+     */
+    public static SearchHttpCache getSearchCache() {
+        SearchHttpCache cache = searchCache;
+        if (cache == null) {
+            synchronized (okHTTPClientLock) {
+                cache = searchCache;
+                if (cache == null) {
+                    File dir;
+                    try {
+                        dir = new File(Platforms.temp(), "okhttp-search-cache");
+                    } catch (IllegalStateException e) {
+                        dir = null;
+                    }
+                    cache = new SearchHttpCache(dir, SearchHttpCache.DEFAULT_MAX_DISK_BYTES,
+                            SearchHttpCache.DEFAULT_MAX_MEMORY_ENTRIES);
+                    searchCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Opens connections to the hosts of {@code urls} ahead of the requests
+     * of {@code context}, e.g. to every enabled engine when a search starts.
+     */
+    public static void warmUp(HttpContext context, Iterable<String> urls) {
+        HttpClient client = getInstance(context);
+        if (client instanceof OkHttpClientWrapper) {
+            for (String url : urls) {
+                ((OkHttpClientWrapper) client).warmUp(url);
+            }
+        }
+    }
+
+    private static OkHttpClientWrapper newOkHttpClient(HttpContext context) {
+        String prefix = "frostwire.prefs.http." + context.name().toLowerCase(Locale.US) + ".";
+        int threads = setting(prefix + "threads", context.threads);
+        int maxIdleConnections = setting(prefix + "max_idle_connections", context.maxIdleConnections);
+        int keepAliveSeconds = setting(prefix + "keep_alive_seconds", context.keepAliveSeconds);
+        int maxRequestsPerHost = setting(prefix + "max_requests_per_host", context.maxRequestsPerHost);
+        ThreadPool pool = new ThreadPool("OkHttpClient-" + context.name().toLowerCase(Locale.US),
+                threads, threads, 2, new LinkedBlockingQueue<>(), true);
+        pool.allowCoreThreadTimeOut(true);
+        return new OkHttpClientWrapper(pool,
+                OkHttpClientWrapper.newConnectionPool(maxIdleConnections, keepAliveSeconds),
+                keepAliveSeconds,
+                maxRequestsPerHost,
+                context == HttpContext.SEARCH ? getSearchCache() : null);
+    }
+
+    /** {@code key} from the platform settings; unset (0) or no platform yields {@code defaultValue}. */
+    private static int setting(String key, int defaultValue) {
+        try {
+            int value = Platforms.appSettings().int32(key);
+            return value > 0 ? value : defaultValue;
+        } catch (Throwable t) {
+            return defaultValue;
+        }
     }
 
     private static boolean isWindowsXP() {
@@ -79,9 +134,27 @@ public class HttpClientFactory {
         return os.contains("windows xp");
     }
 
+    /**
+     * Each context gets its own dispatcher threads and connection pool.
+     * Defaults below can be overridden through the platform settings with
+     * {@code frostwire.prefs.http.<context>.<threads|max_idle_connections|keep_alive_seconds|max_requests_per_host>}.
+     */
     public enum HttpContext {
-        SEARCH,
-        DOWNLOAD,
-        MISC
+        // a search burst hits a dozen engines at once, keep their connections around between searches
+        SEARCH(8, 16, 300, 4),
+        DOWNLOAD(4, 8, 60, 4),
+        MISC(2, 8, 30, 5);
+
+        final int threads;
+        final int maxIdleConnections;
+        final int keepAliveSeconds;
+        final int maxRequestsPerHost;
+
+        HttpContext(int threads, int maxIdleConnections, int keepAliveSeconds, int maxRequestsPerHost) {
+            this.threads = threads;
+            this.maxIdleConnections = maxIdleConnections;
+            this.keepAliveSeconds = keepAliveSeconds;
+            this.maxRequestsPerHost = maxRequestsPerHost;
+        }
     }
 }
@@ -0,0 +1,50 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.util;
+
+import java.net.InetAddress;
+import java.net.SocketAddress;
+
+/**
+ * Process-wide user IP block list (the ranges imported in the IP Filter settings), so that
+ * listeners outside libtorrent can drop blocked peers as early as libtorrent does.
+ */
+public final class IPBlocklist {
+
+    private static volatile IPIntervalSet ranges = IPIntervalSet.EMPTY;
+
+    private IPBlocklist() {
+    }
+
+    public static IPIntervalSet get() {
+        return ranges;
+    }
+
+    public static void set(IPIntervalSet set) {
+        ranges = set != null ? set : IPIntervalSet.EMPTY;
+    }
+
+    public static boolean isBlocked(InetAddress address) {
+        return ranges.contains(address);
+    }
+
+    public static boolean isBlocked(SocketAddress address) {
+        return ranges.contains(address);
+    }
+}
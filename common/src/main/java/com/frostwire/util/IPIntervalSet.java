@@ -0,0 +1,439 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Immutable set of IP address ranges, sorted and merged, with O(log n) membership tests.
+ * <p>
+ * IPv4 ranges are kept as pairs of packed (unsigned) ints and IPv6 ranges as pairs of 128-bit
+ * values (two longs each). The in-memory layout is the same as the file layout
+ * ({@link #writeTo(File)}), so {@link #load(File)} memory-maps the file and is ready to answer
+ * {@link #contains(InetAddress)} without parsing anything.
+ * <pre>
+ * int  magic 'FWIP'
+ * int  version
+ * int  v4 range count
+ * int  v6 range count
+ * v4 ranges: int start, int end           (big endian, unsigned)
+ * v6 ranges: long startHi, long startLo, long endHi, long endLo
+ * </pre>
+ */
+public final class IPIntervalSet {
+
+    private static final int MAGIC = 0x46574950; // FWIP
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    public static final IPIntervalSet EMPTY = new Builder().build();
+
+    private final IntBuffer v4;   // [start, end] * v4Count
+    private final LongBuffer v6;  // [startHi, startLo, endHi, endLo] * v6Count
+    private final int v4Count;
+    private final int v6Count;
+    private final ByteBuffer data;
+
+    private IPIntervalSet(ByteBuffer data) throws IOException {
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException("Not an IP interval set");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported IP interval set version " + data.getInt(4));
+        }
+        this.v4Count = data.getInt(8);
+        this.v6Count = data.getInt(12);
+        long expected = HEADER_BYTES + 8L * v4Count + 32L * v6Count;
+        if (v4Count < 0 || v6Count < 0 || expected != data.capacity()) {
+            throw new IOException("Corrupted IP interval set, expected " + expected + " bytes, found " + data.capacity());
+        }
+        this.data = data;
+        ByteBuffer b = data.duplicate();
+        b.position(HEADER_BYTES).limit(HEADER_BYTES + 8 * v4Count);
+        this.v4 = b.slice().asIntBuffer();
+        b = data.duplicate();
+        b.position(HEADER_BYTES + 8 * v4Count);
+        this.v6 = b.slice().asLongBuffer();
+    }
+
+    /**
+     * Memory-maps a file written by {@link #writeTo(File)}. On Windows, where a mapped file can't
+     * be replaced until the mapping is garbage collected, the file is read into the heap instead.
+     */
+    public static IPIntervalSet load(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("IP interval set too big: " + size + " bytes");
+            }
+            if (!OSUtils.isWindows()) {
+                // the mapping stays valid after the channel is closed
+                return new IPIntervalSet(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+            ByteBuffer b = ByteBuffer.allocate((int) size);
+            while (b.hasRemaining() && channel.read(b) >= 0) {
+                // read fully
+            }
+            b.flip();
+            return new IPIntervalSet(b);
+        }
+    }
+
+    /**
+     * Writes the set to a temporary file next to {@code file} and renames it over {@code file}.
+     */
+    public void writeTo(File file) throws IOException {
+        File tmp = new File(file.getAbsolutePath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            FileChannel channel = out.getChannel();
+            ByteBuffer b = data.duplicate();
+            b.clear();
+            while (b.hasRemaining()) {
+                channel.write(b);
+            }
+            channel.force(true);
+        }
+        if (!tmp.renameTo(file) && (!file.delete() || !tmp.renameTo(file))) {
+            tmp.delete();
+            throw new IOException("Can't replace " + file);
+        }
+    }
+
+    public int size() {
+        return v4Count + v6Count;
+    }
+
+    public int v4Ranges() {
+        return v4Count;
+    }
+
+    public int v6Ranges() {
+        return v6Count;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean contains(InetAddress address) {
+        if (address == null) {
+            return false;
+        }
+        byte[] a = address.getAddress();
+        if (a.length == 4) {
+            return containsV4(toInt(a, 0));
+        }
+        if (a.length == 16) {
+            return containsV6(toLong(a, 0), toLong(a, 8));
+        }
+        return false;
+    }
+
+    public boolean contains(SocketAddress address) {
+        return address instanceof InetSocketAddress && contains(((InetSocketAddress) address).getAddress());
+    }
+
+    /**
+     * Calls the visitor with every merged range, IPv4 ranges first.
+     */
+    public void forEach(RangeVisitor visitor) {
+        try {
+            for (int i = 0; i < v4Count; i++) {
+                visitor.visit(v4Address(v4.get(2 * i)), v4Address(v4.get(2 * i + 1)));
+            }
+            for (int i = 0; i < v6Count; i++) {
+                int k = 4 * i;
+                visitor.visit(v6Address(v6.get(k), v6.get(k + 1)), v6Address(v6.get(k + 2), v6.get(k + 3)));
+            }
+        } catch (UnknownHostException e) {
+            // getByAddress only throws for illegal lengths
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Calls the visitor with every merged IPv4 range as raw unsigned values, without creating
+     * addresses, for consumers that build their own address types.
+     */
+    public void forEachV4(V4RangeVisitor visitor) {
+        for (int i = 0; i < v4Count; i++) {
+            visitor.visit(v4.get(2 * i), v4.get(2 * i + 1));
+        }
+    }
+
+    /**
+     * Calls the visitor with every merged IPv6 range as raw 128 bit values, high and low halves.
+     */
+    public void forEachV6(V6RangeVisitor visitor) {
+        for (int i = 0; i < v6Count; i++) {
+            int k = 4 * i;
+            visitor.visit(v6.get(k), v6.get(k + 1), v6.get(k + 2), v6.get(k + 3));
+        }
+    }
+
+    private boolean containsV4(int ip) {
+        int lo = 0;
+        int hi = v4Count - 1;
+        int found = -1;
+        // last range whose start <= ip
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Integer.compareUnsigned(v4.get(2 * mid), ip) <= 0) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found >= 0 && Integer.compareUnsigned(ip, v4.get(2 * found + 1)) <= 0;
+    }
+
+    private boolean containsV6(long ipHi, long ipLo) {
+        int lo = 0;
+        int hi = v6Count - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare128(v6.get(4 * mid), v6.get(4 * mid + 1), ipHi, ipLo) <= 0) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found >= 0 && compare128(ipHi, ipLo, v6.get(4 * found + 2), v6.get(4 * found + 3)) <= 0;
+    }
+
+    private static int compare128(long aHi, long aLo, long bHi, long bLo) {
+        int c = Long.compareUnsigned(aHi, bHi);
+        return c != 0 ? c : Long.compareUnsigned(aLo, bLo);
+    }
+
+    private static int toInt(byte[] a, int off) {
+        return ((a[off] & 0xFF) << 24) | ((a[off + 1] & 0xFF) << 16) | ((a[off + 2] & 0xFF) << 8) | (a[off + 3] & 0xFF);
+    }
+
+    private static long toLong(byte[] a, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | (a[off + i] & 0xFF);
+        }
+        return v;
+    }
+
+    private static InetAddress v4Address(int ip) throws UnknownHostException {
+        return InetAddress.getByAddress(new byte[]{(byte) (ip >>> 24), (byte) (ip >>> 16), (byte) (ip >>> 8), (byte) ip});
+    }
+
+    private static InetAddress v6Address(long hi, long lo) throws UnknownHostException {
+        byte[] b = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            b[i] = (byte) (hi >>> (56 - 8 * i));
+            b[8 + i] = (byte) (lo >>> (56 - 8 * i));
+        }
+        // Inet6Address.getByAddress keeps ::ffff:a.b.c.d as IPv6, unlike InetAddress.getByAddress
+        return Inet6Address.getByAddress(null, b, -1);
+    }
+
+    public interface RangeVisitor {
+        void visit(InetAddress start, InetAddress end);
+    }
+
+    public interface V4RangeVisitor {
+        /**
+         * @param start the first address, an unsigned 32 bit value
+         * @param end   the last address, an unsigned 32 bit value
+         */
+        void visit(int start, int end);
+    }
+
+    public interface V6RangeVisitor {
+        void visit(long startHi, long startLo, long endHi, long endLo);
+    }
+
+    /**
+     * Collects ranges in any order, {@link #build()} sorts them and merges the ones that
+     * overlap or touch.
+     */
+    public static final class Builder {
+        private long[] v4 = new long[64];   // start, end as unsigned values in longs
+        private long[] v6 = new long[64];   // startHi, startLo, endHi, endLo
+        private int v4Size;
+        private int v6Size;
+
+        public Builder add(InetAddress start, InetAddress end) {
+            if (start == null) {
+                return this;
+            }
+            if (end == null) {
+                end = start;
+            }
+            byte[] s = start.getAddress();
+            byte[] e = end.getAddress();
+            if (s.length == 4 && e.length == 4) {
+                long a = toInt(s, 0) & 0xFFFFFFFFL;
+                long b = toInt(e, 0) & 0xFFFFFFFFL;
+                if (v4Size + 2 > v4.length) {
+                    v4 = Arrays.copyOf(v4, v4.length * 2);
+                }
+                v4[v4Size++] = Math.min(a, b);
+                v4[v4Size++] = Math.max(a, b);
+            } else if (s.length == 16 && e.length == 16) {
+                long sHi = toLong(s, 0), sLo = toLong(s, 8);
+                long eHi = toLong(e, 0), eLo = toLong(e, 8);
+                if (compare128(sHi, sLo, eHi, eLo) > 0) {
+                    long t = sHi; sHi = eHi; eHi = t;
+                    t = sLo; sLo = eLo; eLo = t;
+                }
+                if (v6Size + 4 > v6.length) {
+                    v6 = Arrays.copyOf(v6, v6.length * 2);
+                }
+                v6[v6Size++] = sHi;
+                v6[v6Size++] = sLo;
+                v6[v6Size++] = eHi;
+                v6[v6Size++] = eLo;
+            }
+            // a range mixing IPv4 and IPv6 ends is meaningless, ignored
+            return this;
+        }
+
+        public Builder add(String start, String end) throws UnknownHostException {
+            return add(literal(start), end == null || end.isEmpty() ? null : literal(end));
+        }
+
+        public IPIntervalSet build() {
+            int[] merged4 = mergeV4();
+            long[] merged6 = mergeV6();
+            int n4 = merged4.length / 2;
+            int n6 = merged6.length / 4;
+            ByteBuffer b = ByteBuffer.allocate(HEADER_BYTES + 8 * n4 + 32 * n6);
+            b.putInt(MAGIC).putInt(VERSION).putInt(n4).putInt(n6);
+            for (int v : merged4) {
+                b.putInt(v);
+            }
+            for (long v : merged6) {
+                b.putLong(v);
+            }
+            b.flip();
+            try {
+                return new IPIntervalSet(b);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private int[] mergeV4() {
+            int n = v4Size / 2;
+            Integer[] order = sortedOrder(n, (x, y) -> Long.compare(v4[2 * x], v4[2 * y]));
+            int[] out = new int[v4Size];
+            int k = 0;
+            long curStart = -1, curEnd = -1;
+            for (Integer i : order) {
+                long s = v4[2 * i], e = v4[2 * i + 1];
+                if (curStart >= 0 && s <= curEnd + 1) {
+                    curEnd = Math.max(curEnd, e);
+                } else {
+                    if (curStart >= 0) {
+                        out[k++] = (int) curStart;
+                        out[k++] = (int) curEnd;
+                    }
+                    curStart = s;
+                    curEnd = e;
+                }
+            }
+            if (curStart >= 0) {
+                out[k++] = (int) curStart;
+                out[k++] = (int) curEnd;
+            }
+            return Arrays.copyOf(out, k);
+        }
+
+        private long[] mergeV6() {
+            int n = v6Size / 4;
+            Integer[] order = sortedOrder(n, (x, y) -> compare128(v6[4 * x], v6[4 * x + 1], v6[4 * y], v6[4 * y + 1]));
+            long[] out = new long[v6Size];
+            int k = 0;
+            for (Integer i : order) {
+                long sHi = v6[4 * i], sLo = v6[4 * i + 1], eHi = v6[4 * i + 2], eLo = v6[4 * i + 3];
+                if (k > 0 && touches(out[k - 2], out[k - 1], sHi, sLo)) {
+                    if (compare128(eHi, eLo, out[k - 2], out[k - 1]) > 0) {
+                        out[k - 2] = eHi;
+                        out[k - 1] = eLo;
+                    }
+                } else {
+                    out[k++] = sHi;
+                    out[k++] = sLo;
+                    out[k++] = eHi;
+                    out[k++] = eLo;
+                }
+            }
+            return Arrays.copyOf(out, k);
+        }
+
+        /**
+         * True if a range starting at {@code s} overlaps or directly follows one ending at {@code e}.
+         */
+        private static boolean touches(long eHi, long eLo, long sHi, long sLo) {
+            if (compare128(sHi, sLo, eHi, eLo) <= 0) {
+                return true;
+            }
+            // s == e + 1
+            long nextLo = eLo + 1;
+            long nextHi = nextLo == 0 ? eHi + 1 : eHi;
+            return sHi == nextHi && sLo == nextLo;
+        }
+
+        private static Integer[] sortedOrder(int n, java.util.Comparator<Integer> cmp) {
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, cmp);
+            return order;
+        }
+
+        /**
+         * Parses an IP literal without ever doing a DNS lookup.
+         */
+        private static InetAddress literal(String s) throws UnknownHostException {
+            String t = s.trim();
+            if (t.startsWith("[") && t.endsWith("]")) {
+                t = t.substring(1, t.length() - 1);
+            }
+            if (t.isEmpty() || !(t.indexOf(':') >= 0 || t.chars().allMatch(c -> c == '.' || (c >= '0' && c <= '9')))) {
+                throw new UnknownHostException("Not an IP address: " + s);
+            }
+            return InetAddress.getByName(t);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.util.http;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the requests to one host that are in flight, for synchronous calls
+ * too. A request holds its slot until its response body is closed.
+ *
+ * <p>OkHttp's {@code Dispatcher.maxRequestsPerHost} only applies to
+ * enqueued calls, while almost everything in FrostWire runs on
+ * {@code execute()} from search and crawl threads. A burst of crawls
+ * against one site would otherwise open as many connections as there are
+ * crawl threads. A request waits at most its connect timeout for a slot.
+ *
+ * <p>Install it as a network interceptor, so responses served from the
+ * cache and each redirect hop are counted against the host that is
+ * actually contacted.
+ */
+final class HostConcurrencyLimiter implements Interceptor {
+    private final int maxPerHost;
+    private final ConcurrentHashMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    HostConcurrencyLimiter(int maxPerHost) {
+        this.maxPerHost = maxPerHost;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        String host = chain.request().url().host();
+        Semaphore semaphore = permits.computeIfAbsent(host, h -> new Semaphore(maxPerHost, true));
+        try {
+            if (!semaphore.tryAcquire(chain.connectTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                throw new SocketTimeoutException("timed out waiting for one of " + maxPerHost + " request slots to " + host);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for a request slot to " + host);
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        };
+        try {
+            Response response = chain.proceed(chain.request());
+            ResponseBody body = response.body();
+            if (body == null) {
+                release.run();
+                return response;
+            }
+            ForwardingSource source = new ForwardingSource(body.source()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        release.run();
+                    }
+                }
+            };
+            return response.newBuilder()
+                    .body(ResponseBody.create(Okio.buffer(source), body.contentType(), body.contentLength()))
+                    .build();
+        } catch (IOException | RuntimeException | Error e) {
+            release.run();
+            throw e;
+        }
+    }
+
+    /** Free slots for {@code host}. */
+    int available(String host) {
+        Semaphore semaphore = permits.get(host);
+        return semaphore != null ? semaphore.availablePermits() : maxPerHost;
+    }
+}
@@ -35,6 +35,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -56,6 +58,7 @@ import java.util.concurrent.TimeUnit;
  */
 public class OkHttpClientWrapper extends AbstractHttpClient {
     public static final ConnectionPool CONNECTION_POOL = new ConnectionPool(8, 30, TimeUnit.SECONDS);
+    private static final List<ConnectionPool> CONNECTION_POOLS = new CopyOnWriteArrayList<>(List.of(CONNECTION_POOL));
     private static final Logger LOG = Logger.getLogger(OkHttpClientWrapper.class);
 
     /** Maximum response body size for get() (16 MB). Prevents OOM from malicious servers. */
@@ -65,10 +68,60 @@ public class OkHttpClientWrapper extends AbstractHttpClient {
 
     private final ThreadPool pool;
     private final OkHttpClient sharedClient;
+    private final SearchHttpCache cache;
+    private final long warmUpIntervalMillis;
+    /** scheme://host:port to the time it was last warmed up. */
+    private final Map<String, Long> warmedUp = new ConcurrentHashMap<>();
 
     public OkHttpClientWrapper(final ThreadPool pool) {
+        this(pool, null);
+    }
+
+    /**
+     * @param cache response cache for plain GETs, or null for none
+     */
+    public OkHttpClientWrapper(final ThreadPool pool, final SearchHttpCache cache) {
+        this(pool, CONNECTION_POOL, 30, 0, cache);
+    }
+
+    /**
+     * @param connectionPool       pool of this client's idle connections, see {@link #newConnectionPool}
+     * @param keepAliveSeconds     how long the pool keeps idle connections; warm-ups of a host are
+     *                             skipped while its last one is likely still pooled
+     * @param maxRequestsPerHost   requests to one host awaiting headers at a time, 0 for no limit
+     * @param cache                response cache for plain GETs, or null for none
+     */
+    public OkHttpClientWrapper(final ThreadPool pool, final ConnectionPool connectionPool,
+                               final int keepAliveSeconds, final int maxRequestsPerHost,
+                               final SearchHttpCache cache) {
         this.pool = pool;
-        this.sharedClient = newOkHttpClient(pool).build();
+        this.cache = cache;
+        this.warmUpIntervalMillis = keepAliveSeconds * 1000L / 2;
+        OkHttpClient.Builder b = newOkHttpClient(pool);
+        b.connectionPool(connectionPool);
+        if (maxRequestsPerHost > 0) {
+            // the dispatcher limits enqueued calls (warm-ups), the interceptor synchronous ones
+            Dispatcher dispatcher = new Dispatcher(pool);
+            dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+            b.dispatcher(dispatcher);
+            b.addNetworkInterceptor(new HostConcurrencyLimiter(maxRequestsPerHost));
+        }
+        if (cache != null) {
+            if (cache.diskCache() != null) {
+                b.cache(cache.diskCache());
+            }
+            b.addNetworkInterceptor(cache.networkInterceptor());
+        }
+        this.sharedClient = b.build();
+    }
+
+    /**
+     * New connection pool that {@link #cancelAllRequests()} also evicts.
+     */
+    public static ConnectionPool newConnectionPool(int maxIdleConnections, int keepAliveSeconds) {
+        ConnectionPool connectionPool = new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS);
+        CONNECTION_POOLS.add(connectionPool);
+        return connectionPool;
     }
 
     public static void cancelAllRequests() {
@@ -78,10 +131,12 @@ public class OkHttpClientWrapper extends AbstractHttpClient {
             new Thread("OkHttpClientWrapper::cancelAllRequests") {
                 @Override
                 public void run() {
-                    try {
-                        CONNECTION_POOL.evictAll();
-                    } catch (Throwable t) {
-                        LOG.error(t.getMessage(), t);
+                    for (ConnectionPool connectionPool : CONNECTION_POOLS) {
+                        try {
+                            connectionPool.evictAll();
+                        } catch (Throwable t) {
+                            LOG.error(t.getMessage(), t);
+                        }
                     }
                 }
             }.start();
@@ -99,6 +154,42 @@ public class OkHttpClientWrapper extends AbstractHttpClient {
         return searchClient;
     }
 
+    /**
+     * Opens a connection to the host of {@code url} in the background, so
+     * the TCP and TLS handshakes (and the h2 preface) are done before the
+     * first real request. Does nothing if the host was warmed up recently.
+     */
+    public void warmUp(String url) {
+        HttpUrl parsed = HttpUrl.parse(url);
+        if (parsed == null) {
+            return;
+        }
+        String origin = parsed.scheme() + "://" + parsed.host() + ":" + parsed.port();
+        long now = System.currentTimeMillis();
+        Long last = warmedUp.get(origin);
+        if (last != null && now - last < warmUpIntervalMillis) {
+            return;
+        }
+        warmedUp.put(origin, now);
+        Request request = new Request.Builder()
+                .url(parsed.newBuilder().encodedPath("/").query(null).fragment(null).build())
+                .header("User-Agent", DEFAULT_USER_AGENT)
+                .head()
+                .build();
+        sharedClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                warmedUp.remove(origin);
+                LOG.debug("OkHttpClientWrapper::warmUp - " + origin + " failed: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                closeQuietly(response.body());
+            }
+        });
+    }
+
     public static OkHttpClient.Builder configNullSsl(OkHttpClient.Builder b) {
         b.followSslRedirects(true);
         b.hostnameVerifier(Ssl.fwHostnameVerifier());
@@ -177,6 +268,16 @@ public class OkHttpClientWrapper extends AbstractHttpClient {
 
     @Override
     public String get(String url, int timeoutMillis, String userAgent, String referrer, String cookie, Map<String, String> customHeaders) throws IOException {
+        // cookies and custom headers may select per-user content, keep those out of the memory tier
+        boolean memoryCacheable = cache != null
+                && (cookie == null || cookie.isEmpty())
+                && (customHeaders == null || customHeaders.isEmpty());
+        if (memoryCacheable) {
+            String cached = cache.getFresh(url);
+            if (cached != null) {
+                return cached;
+            }
+        }
         String result = null;
         OkHttpClient client = sharedClient.newBuilder()
                 .connectTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
@@ -204,6 +305,9 @@ public class OkHttpClientWrapper extends AbstractHttpClient {
                 }
                 result = responseBody.string();
             }
+            if (cache != null) {
+                cache.onResponse(url, response, memoryCacheable ? result : null);
+            }
         } catch (IOException ioe) {
             throw ioe;
         } catch (Throwable e) {
@@ -238,33 +342,39 @@ public class OkHttpClientWrapper extends AbstractHttpClient {
         final Request.Builder builder = prepareRequestBuilder(url, userAgent, referrer, null);
         addCustomHeaders(extraHeaders, builder);
         addRangeHeader(rangeStart, -1, builder);
-        final Response response = getSyncResponse(client, builder);
-        LOG.info("OkHttpClientWrapper::save - HTTP " + response.code() + " " + response.message() + " url=" + url);
-        if (!response.isSuccessful()) {
+        Response response = null;
+        long totalBytesWritten = 0;
+        // the body holds a HostConcurrencyLimiter slot until it is closed, even when the read fails
+        try {
+            response = getSyncResponse(client, builder);
+            LOG.info("OkHttpClientWrapper::save - HTTP " + response.code() + " " + response.message() + " url=" + url);
+            if (!response.isSuccessful()) {
+                closeQuietly(bos);
+                closeQuietly(fos);
+                if (!resume) {
+                    file.delete(); // remove the 0-byte file created by FileOutputStream before the request
+                }
+                throw new IOException("HTTP " + response.code() + " " + response.message() + " url=" + url);
+            }
+            final Headers headers = response.headers();
+            onHeaders(headers);
+            final InputStream in = response.body().byteStream();
+            byte[] b = new byte[32768]; // 32 KiB buffer
+            int n;
+            while (!canceled && (n = in.read(b, 0, b.length)) != -1) {
+                if (!canceled) {
+                    bos.write(b, 0, n);
+                    totalBytesWritten += n;
+                    onData(b, 0, n);
+                }
+            }
+        } finally {
             closeQuietly(bos);
             closeQuietly(fos);
-            closeQuietly(response.body());
-            if (!resume) {
-                file.delete(); // remove the 0-byte file created by FileOutputStream before the request
-            }
-            throw new IOException("HTTP " + response.code() + " " + response.message() + " url=" + url);
-        }
-        final Headers headers = response.headers();
-        onHeaders(headers);
-        final InputStream in = response.body().byteStream();
-        byte[] b = new byte[32768]; // 32 KiB buffer
-        int n;
-        long totalBytesWritten = 0;
-        while (!canceled && (n = in.read(b, 0, b.length)) != -1) {
-            if (!canceled) {
-                bos.write(b, 0, n);
-                totalBytesWritten += n;
-                onData(b, 0, n);
+            if (response != null) {
+                closeQuietly(response.body());
             }
         }
-        closeQuietly(bos);
-        closeQuietly(fos);
-        closeQuietly(response.body());
         LOG.info("OkHttpClientWrapper::save - finished, totalBytesWritten=" + totalBytesWritten + " file=" + file.getAbsolutePath());
         if (canceled) {
             onCancel();
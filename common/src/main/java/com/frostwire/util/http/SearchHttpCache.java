@@ -0,0 +1,278 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.util.http;
+
+import com.frostwire.util.Logger;
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier HTTP cache for search engine result pages, used by the
+ * {@link com.frostwire.util.HttpClientFactory.HttpContext#SEARCH} client.
+ *
+ * <p>The disk tier is OkHttp's {@link Cache}: LRU-evicted at
+ * {@code maxDiskBytes}, and it revalidates stale entries with
+ * {@code If-None-Match} / {@code If-Modified-Since}, so an unchanged page
+ * costs a 304 instead of a full download. Search engines rarely send
+ * useful caching headers, so for hosts that opted in through
+ * {@link #setFreshness}, {@link #networkInterceptor()} replaces the
+ * {@code Cache-Control} of text responses with the configured freshness:
+ * within that many seconds a page is reused without contacting the server,
+ * after it is revalidated. A freshness of 0 means "always revalidate".
+ * Other hosts keep the server's headers. Responses that may be specific
+ * to the user (a request with {@code Cookie} or {@code Authorization}, a
+ * response with {@code Set-Cookie} or {@code no-store} / {@code private})
+ * are never overridden.
+ *
+ * <p>The memory tier keeps the bodies of the most recent fresh pages as
+ * strings, so repeated keystroke searches and paging back and forth skip
+ * the disk read and charset decode as well.
+ *
+ * <p>Only plain GETs (no cookie or custom headers) use the memory tier;
+ * OkHttp applies the disk tier to every GET made through the client.
+ */
+public final class SearchHttpCache {
+    private static final Logger LOG = Logger.getLogger(SearchHttpCache.class);
+
+    public static final long DEFAULT_MAX_DISK_BYTES = 32L * 1024 * 1024;
+    public static final int DEFAULT_MAX_MEMORY_ENTRIES = 64;
+    /** Larger bodies are left to the disk tier. */
+    static final int MAX_MEMORY_BODY_CHARS = 512 * 1024;
+
+    private final Cache diskCache;
+    private final Map<String, Integer> freshnessByHost = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, MemoryEntry> memory;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong revalidatedHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param directory disk tier directory, or null for a memory-only cache
+     */
+    public SearchHttpCache(File directory, long maxDiskBytes, int maxMemoryEntries) {
+        this.diskCache = directory != null ? new Cache(directory, maxDiskBytes) : null;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MemoryEntry> eldest) {
+                return size() > maxMemoryEntries;
+            }
+        };
+    }
+
+    /** OkHttp disk cache to install on the client, or null if memory-only. */
+    public Cache diskCache() {
+        return diskCache;
+    }
+
+    /**
+     * Seconds pages from the host of {@code url} (and its subdomains) are
+     * reused without revalidation. 0 always revalidates.
+     */
+    public void setFreshness(String url, int seconds) {
+        HttpUrl parsed = HttpUrl.parse(url);
+        if (parsed != null && seconds >= 0) {
+            freshnessByHost.put(parsed.host().toLowerCase(Locale.US), seconds);
+        }
+    }
+
+    /** Configured freshness of {@code host}, -1 if it did not opt in. */
+    int freshnessSeconds(String host) {
+        String h = host.toLowerCase(Locale.US);
+        while (true) {
+            Integer seconds = freshnessByHost.get(h);
+            if (seconds != null) {
+                return seconds;
+            }
+            int dot = h.indexOf('.');
+            if (dot < 0) {
+                return -1;
+            }
+            h = h.substring(dot + 1);
+        }
+    }
+
+    /**
+     * Network interceptor that applies the host's freshness to successful
+     * text responses before OkHttp decides whether to store them.
+     */
+    public Interceptor networkInterceptor() {
+        return chain -> {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            if (!"GET".equals(request.method())
+                    || request.header("Cookie") != null
+                    || request.header("Authorization") != null
+                    || isPrivate(response)) {
+                return response;
+            }
+            int seconds = freshnessSeconds(request.url().host());
+            if (seconds < 0) {
+                return response;
+            }
+            // a 304's headers are merged into the stored entry, so it gets the same policy
+            boolean notModified = response.code() == HttpURLConnection.HTTP_NOT_MODIFIED;
+            if (!notModified && (response.code() != HttpURLConnection.HTTP_OK || !isText(response))) {
+                return response;
+            }
+            return response.newBuilder()
+                    .removeHeader("Pragma")
+                    .removeHeader("Expires")
+                    .header("Cache-Control", seconds > 0 ? "max-age=" + seconds : "no-cache")
+                    .build();
+        };
+    }
+
+    /** True if the response is meant for this user only and must keep the server's policy. */
+    private static boolean isPrivate(Response response) {
+        if (response.header("Set-Cookie") != null) {
+            return true;
+        }
+        CacheControl cc = response.cacheControl();
+        return cc.noStore() || cc.isPrivate();
+    }
+
+    private static boolean isText(Response response) {
+        String contentType = response.header("Content-Type");
+        MediaType type = contentType != null ? MediaType.parse(contentType) : null;
+        if (type == null) {
+            return false;
+        }
+        String subtype = type.subtype().toLowerCase(Locale.US);
+        return "text".equals(type.type())
+                || subtype.equals("json") || subtype.endsWith("+json")
+                || subtype.equals("xml") || subtype.endsWith("+xml");
+    }
+
+    /** Fresh body for {@code url} from the memory tier, or null. */
+    String getFresh(String url) {
+        synchronized (memory) {
+            MemoryEntry e = memory.get(url);
+            if (e == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() >= e.freshUntilMs) {
+                memory.remove(url);
+                return null;
+            }
+            memoryHits.incrementAndGet();
+            return e.body;
+        }
+    }
+
+    /**
+     * Records how a response was served and keeps its body in the memory
+     * tier while it is fresh.
+     */
+    void onResponse(String url, Response response, String body) {
+        Response network = response.networkResponse();
+        if (response.cacheResponse() == null) {
+            misses.incrementAndGet();
+        } else if (network == null) {
+            diskHits.incrementAndGet();
+        } else if (network.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            revalidatedHits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        int maxAge = response.cacheControl().maxAgeSeconds();
+        if (body == null || maxAge <= 0 || body.length() > MAX_MEMORY_BODY_CHARS || isPrivate(response)) {
+            return;
+        }
+        long freshUntil = response.receivedResponseAtMillis() + maxAge * 1000L;
+        if (freshUntil > System.currentTimeMillis()) {
+            synchronized (memory) {
+                memory.put(url, new MemoryEntry(body, freshUntil));
+            }
+        }
+    }
+
+    /** Drops both tiers, e.g. when the user clears caches. */
+    public void evictAll() {
+        synchronized (memory) {
+            memory.clear();
+        }
+        if (diskCache != null) {
+            try {
+                diskCache.evictAll();
+            } catch (IOException e) {
+                LOG.warn("SearchHttpCache: could not clear disk cache: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Pages served from memory without touching OkHttp. */
+    public long memoryHits() {
+        return memoryHits.get();
+    }
+
+    /** Pages served from disk without a network round trip. */
+    public long diskHits() {
+        return diskHits.get();
+    }
+
+    /** Stale pages the server confirmed unchanged with a 304. */
+    public long revalidatedHits() {
+        return revalidatedHits.get();
+    }
+
+    /** Pages downloaded in full. */
+    public long misses() {
+        return misses.get();
+    }
+
+    public int memoryEntries() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    public long diskBytes() {
+        try {
+            return diskCache != null ? diskCache.size() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static final class MemoryEntry {
+        final String body;
+        final long freshUntilMs;
+
+        MemoryEntry(String body, long freshUntilMs) {
+            this.body = body;
+            this.freshUntilMs = freshUntilMs;
+        }
+    }
+}
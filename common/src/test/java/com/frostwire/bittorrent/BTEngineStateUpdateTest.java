@@ -0,0 +1,106 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.bittorrent;
+
+import com.frostwire.jlibtorrent.AlertListener;
+import com.frostwire.jlibtorrent.SessionManager;
+import com.frostwire.jlibtorrent.SessionParams;
+import com.frostwire.jlibtorrent.SettingsPack;
+import com.frostwire.jlibtorrent.TorrentBuilder;
+import com.frostwire.jlibtorrent.TorrentInfo;
+import com.frostwire.jlibtorrent.TorrentStatus;
+import com.frostwire.jlibtorrent.alerts.Alert;
+import com.frostwire.jlibtorrent.alerts.AlertType;
+import com.frostwire.jlibtorrent.alerts.StateUpdateAlert;
+import com.frostwire.jlibtorrent.swig.settings_pack;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BTEngineStateUpdateTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    public void testCachedStatusOutlivesItsAlert() throws Exception {
+        File data = new File(dir, "state-update-test.bin");
+        byte[] bytes = new byte[256 * 1024];
+        new Random(7).nextBytes(bytes);
+        Files.write(data.toPath(), bytes);
+        TorrentInfo ti = TorrentInfo.bdecode(new TorrentBuilder().path(data).generate().entry().bencode());
+
+        SettingsPack sp = new SettingsPack();
+        settings_pack s = sp.swig();
+        s.set_str(settings_pack.string_types.listen_interfaces.swigValue(), "127.0.0.1:0");
+        s.set_bool(settings_pack.bool_types.enable_dht.swigValue(), false);
+        s.set_bool(settings_pack.bool_types.enable_lsd.swigValue(), false);
+        s.set_bool(settings_pack.bool_types.enable_upnp.swigValue(), false);
+        s.set_bool(settings_pack.bool_types.enable_natpmp.swigValue(), false);
+
+        AtomicReference<TorrentStatus> cached = new AtomicReference<>();
+        CountDownLatch laterAlerts = new CountDownLatch(3);
+        SessionManager session = new SessionManager(false);
+        session.addListener(new AlertListener() {
+            @Override
+            public int[] types() {
+                return new int[]{AlertType.STATE_UPDATE.swig()};
+            }
+
+            @Override
+            public void alert(Alert<?> alert) {
+                if (cached.get() != null) {
+                    laterAlerts.countDown();
+                    return;
+                }
+                for (TorrentStatus status : ((StateUpdateAlert) alert).status()) {
+                    if (data.getName().equals(status.name())) {
+                        cached.set(BTEngine.detachedStatus(status));
+                    }
+                }
+            }
+        });
+        session.start(new SessionParams(sp));
+        try {
+            session.download(ti, dir);
+            long deadline = System.currentTimeMillis() + 30000;
+            while (laterAlerts.getCount() > 0 && System.currentTimeMillis() < deadline) {
+                session.postTorrentUpdates();
+                laterAlerts.await(200, TimeUnit.MILLISECONDS);
+            }
+            assertNotNull(cached.get(), "no state update for the torrent");
+            assertEquals(0, laterAlerts.getCount(), "no state updates after the cached one");
+
+            // the alert the status came from, and the ones after it, have been popped and freed
+            TorrentStatus status = cached.get();
+            assertEquals(data.getName(), status.name());
+            assertEquals(bytes.length, status.totalWanted());
+        } finally {
+            session.stop();
+        }
+    }
+}
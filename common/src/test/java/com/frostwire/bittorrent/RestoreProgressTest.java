@@ -0,0 +1,123 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.bittorrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RestoreProgressTest {
+
+    @Test
+    public void testOnlyRestoreBatchAddsAreCounted() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        RestoreProgress progress = new RestoreProgress(null, listener, 3, 2);
+
+        assertTrue(progress.acquire(100));
+        progress.submitted("AAAA");
+        assertTrue(progress.acquire(100));
+        progress.submitted("bbbb");
+        // the window is full until an add of the batch is confirmed
+        assertFalse(progress.acquire(50));
+
+        // a user download added meanwhile neither frees a slot nor counts
+        assertFalse(progress.confirmed("cccc"));
+        assertFalse(progress.acquire(50));
+        assertEquals(0, progress.restored());
+
+        assertTrue(progress.confirmed("aaaa"));
+        // confirmed once, a second alert for the same torrent is not counted again
+        assertFalse(progress.confirmed("aaaa"));
+        assertTrue(progress.acquire(100));
+        progress.submitted("dddd");
+        assertTrue(progress.confirmed("bbbb"));
+        assertTrue(progress.confirmed("dddd"));
+
+        assertTrue(progress.drain(100));
+        assertEquals(3, progress.restored());
+        assertEquals(0, progress.pendingCount());
+        // reported every window of confirmed adds and at the end
+        assertEquals(List.of("2/3", "3/3"), listener.progress);
+
+        progress.finished(1, 42);
+        assertEquals("3/1/3/42", listener.finished);
+    }
+
+    @Test
+    public void testFailedAddGivesBackItsSlot() throws InterruptedException {
+        RestoreProgress progress = new RestoreProgress(null, null, 2, 1);
+        assertTrue(progress.acquire(100));
+        progress.submitted("aaaa");
+        progress.failed("aaaa");
+        assertTrue(progress.acquire(100));
+        progress.submitted("bbbb");
+        // a late alert for the failed add is not counted
+        assertFalse(progress.confirmed("aaaa"));
+        assertTrue(progress.confirmed("bbbb"));
+        assertTrue(progress.drain(100));
+        assertEquals(1, progress.restored());
+    }
+
+    @Test
+    public void testRejectedAddFreesItsSlotAndCountsAsFailed() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        RestoreProgress progress = new RestoreProgress(null, listener, 2, 1);
+        assertTrue(progress.acquire(100));
+        progress.submitted("aaaa");
+        // libtorrent rejected the add, the next one doesn't wait for the drain timeout
+        assertTrue(progress.rejected("AAAA"));
+        assertFalse(progress.rejected("aaaa"));
+        assertTrue(progress.acquire(50));
+        progress.submitted("bbbb");
+        // a rejected add of something else added meanwhile is not counted
+        assertFalse(progress.rejected("cccc"));
+        assertTrue(progress.confirmed("bbbb"));
+        assertTrue(progress.drain(100));
+
+        progress.finished(0, 7);
+        assertEquals("1/1/2/7", listener.finished);
+    }
+
+    @Test
+    public void testDrainTimesOutWithUnconfirmedAdds() throws InterruptedException {
+        RestoreProgress progress = new RestoreProgress(null, null, 1, 4);
+        assertTrue(progress.acquire(100));
+        progress.submitted("aaaa");
+        assertFalse(progress.drain(50));
+        assertEquals(1, progress.pendingCount());
+    }
+
+    private static final class RecordingListener implements BTRestoreListener {
+        final List<String> progress = new ArrayList<>();
+        String finished;
+
+        @Override
+        public void restoreProgress(BTEngine engine, int restored, int total) {
+            progress.add(restored + "/" + total);
+        }
+
+        @Override
+        public void restoreFinished(BTEngine engine, int restored, int failed, int total, long elapsedMillis) {
+            finished = restored + "/" + failed + "/" + total + "/" + elapsedMillis;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.bittorrent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResumeDataStoreTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    public void testPutGetRemoveSurviveReopen() throws IOException {
+        try (ResumeDataStore store = ResumeDataStore.open(dir, false)) {
+            store.put("aa", bytes("first"));
+            store.put("bb", bytes("second"));
+            store.put("aa", bytes("first-updated"));
+            store.remove("bb");
+            assertEquals("first-updated", string(store.get("aa")));
+            assertNull(store.get("bb"));
+        }
+        try (ResumeDataStore store = ResumeDataStore.open(dir, false)) {
+            assertEquals(1, store.size());
+            assertEquals("first-updated", string(store.get("aa")));
+            assertFalse(store.contains("bb"));
+        }
+    }
+
+    @Test
+    public void testTornTailIsTruncated() throws IOException {
+        long goodLength;
+        try (ResumeDataStore store = ResumeDataStore.open(dir, false)) {
+            store.put("aa", bytes("kept"));
+            goodLength = store.fileBytes();
+            store.put("bb", bytes("torn by a crash"));
+        }
+        File log = new File(dir, ResumeDataStore.LOG_FILE_NAME);
+        try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        try (ResumeDataStore store = ResumeDataStore.open(dir, false)) {
+            assertEquals("kept", string(store.get("aa")));
+            assertNull(store.get("bb"));
+            assertEquals(goodLength, log.length());
+            // appends after the truncated tail are readable again
+            store.put("cc", bytes("after"));
+        }
+        try (ResumeDataStore store = ResumeDataStore.open(dir, false)) {
+            assertEquals("after", string(store.get("cc")));
+        }
+    }
+
+    @Test
+    public void testCorruptRecordStopsLoad() throws IOException {
+        try (ResumeDataStore store = ResumeDataStore.open(dir, false)) {
+            store.put("aa", bytes("kept"));
+            store.put("bb", bytes("corrupted"));
+        }
+        File log = new File(dir, ResumeDataStore.LOG_FILE_NAME);
+        try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+            // flip a byte of the last value, the CRC no longer matches
+            raf.seek(raf.length() - 6);
+            int b = raf.read();
+            raf.seek(raf.length() - 6);
+            raf.write(b ^ 0xFF);
+        }
+        try (ResumeDataStore store = ResumeDataStore.open(dir, false)) {
+            assertEquals("kept", string(store.get("aa")));
+            assertNull(store.get("bb"));
+        }
+    }
+
+    @Test
+    public void testCompactionKeepsLiveRecords() throws IOException {
+        try (ResumeDataStore store = ResumeDataStore.open(dir, false)) {
+            for (int i = 0; i < 50; i++) {
+                store.put("aa", bytes("value-" + i));
+                store.put("key" + i, bytes("v" + i));
+            }
+            for (int i = 0; i < 25; i++) {
+                store.remove("key" + i);
+            }
+            long before = store.fileBytes();
+            store.compact();
+            assertTrue(store.fileBytes() < before);
+            assertEquals("value-49", string(store.get("aa")));
+            assertEquals("v30", string(store.get("key30")));
+            assertNull(store.get("key10"));
+            store.put("dd", bytes("post-compaction"));
+        }
+        try (ResumeDataStore store = ResumeDataStore.open(dir, false)) {
+            assertEquals(27, store.size());
+            assertEquals("post-compaction", string(store.get("dd")));
+            Map<String, byte[]> all = store.loadAll();
+            assertEquals(27, all.size());
+            assertEquals("value-49", string(all.get("aa")));
+        }
+        assertFalse(new File(dir, ResumeDataStore.LOG_FILE_NAME + ".compact").exists());
+    }
+
+    @Test
+    public void testLoadAllReturnsOnlyLatestValues() throws IOException {
+        try (ResumeDataStore store = ResumeDataStore.open(dir, false)) {
+            store.put("aa", bytes("old"));
+            store.put("bb", bytes("b"));
+            store.put("aa", bytes("new"));
+            store.remove("bb");
+            store.put("cc", bytes("c"));
+            Map<String, byte[]> all = store.loadAll();
+            assertEquals(2, all.size());
+            assertEquals("new", string(all.get("aa")));
+            assertEquals("c", string(all.get("cc")));
+        }
+    }
+
+    @Test
+    public void testMigratesLegacyResumeFiles() throws IOException {
+        write(new File(dir, "aa.resume"), "legacy-a");
+        write(new File(dir, "bb.resume"), "legacy-b");
+        write(new File(dir, "aa.torrent"), "not resume data");
+        try (ResumeDataStore store = ResumeDataStore.open(dir, false)) {
+            assertEquals("legacy-a", string(store.get("aa")));
+            assertEquals("legacy-b", string(store.get("bb")));
+            assertEquals(2, store.size());
+        }
+        assertFalse(new File(dir, "aa.resume").exists());
+        assertFalse(new File(dir, "bb.resume").exists());
+        assertTrue(new File(dir, "aa.torrent").exists());
+
+        // a stale legacy file left behind must not override newer data in the log
+        write(new File(dir, "aa.resume"), "stale");
+        try (ResumeDataStore store = ResumeDataStore.open(dir, false)) {
+            assertEquals("legacy-a", string(store.get("aa")));
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] b) {
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static void write(File f, String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(bytes(content));
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.search;
+
+import com.frostwire.licenses.License;
+import com.frostwire.search.torrent.TorrentCrawlableSearchResult;
+import com.frostwire.search.torrent.TorrentCrawledAlbumSearchResult;
+import com.frostwire.search.torrent.TorrentItemSearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlbumClusterTest {
+
+    @Test
+    void tracksOfOneDirectoryBecomeOneAlbumNextToAllTheFiles() {
+        Torrent t = new Torrent("aa");
+        List<Item> batch = items(t, "Artist - Album/0%d - Song.mp3", 1, 5);
+        batch.add(new Item(t, "Artist - Album/cover.jpg", 10));
+        batch.add(new Item(t, "Artist - Album/extra.mp3", 10));
+
+        List<SearchResult> out = new AlbumCluster().add(t, batch);
+
+        List<TorrentCrawledAlbumSearchResult> albums = albums(out);
+        assertEquals(1, albums.size());
+        assertEquals("Artist", albums.get(0).artist());
+        assertEquals("Album", albums.get(0).album());
+        assertEquals(6, albums.get(0).items().size(), "untitled track of the directory joins too");
+        assertEquals(batch.size(), out.size() - albums.size(), "the tracks are still shown on their own");
+        assertEquals(batch, out.subList(0, batch.size()));
+        assertSame(albums.get(0), out.get(out.size() - 1));
+    }
+
+    @Test
+    void discDirectoriesFoldIntoTheirAlbum() {
+        Torrent t = new Torrent("bb");
+        List<Item> batch = items(t, "Band/Record/CD1/0%d. Song.flac", 1, 3);
+        batch.addAll(items(t, "Band/Record/Disc 2/0%d. Song.flac", 1, 3));
+
+        List<TorrentCrawledAlbumSearchResult> albums = albums(new AlbumCluster().add(t, batch));
+
+        assertEquals(1, albums.size());
+        assertEquals("Band", albums.get(0).artist());
+        assertEquals("Record", albums.get(0).album());
+        assertEquals(6, albums.get(0).items().size());
+    }
+
+    @Test
+    void flatDiscographySplitsByArtistAndAlbumTokens() {
+        Torrent t = new Torrent("cc");
+        List<Item> batch = items(t, "Discography/Band - First - 0%d - Song.mp3", 1, 4);
+        batch.addAll(items(t, "Discography/Band_-_Second_-_0%d_-_Song.mp3", 1, 4));
+        batch.addAll(items(t, "Discography/band - second - 1-0%d - Song.mp3", 1, 2));
+
+        List<TorrentCrawledAlbumSearchResult> albums = albums(new AlbumCluster().add(t, batch));
+
+        assertEquals(2, albums.size());
+        assertEquals("First", albums.get(0).album());
+        assertEquals(4, albums.get(0).items().size());
+        assertEquals(4, albums.get(1).items().size(), "underscored names have no tokens and group by their directory");
+    }
+
+    @Test
+    void laterBatchesJoinReportedAlbumsAndSmallGroupsStayFlat() {
+        Torrent t = new Torrent("dd");
+        AlbumCluster cluster = new AlbumCluster();
+
+        List<SearchResult> first = cluster.add(t, items(t, "Album/0%d - Song.ogg", 1, 4));
+        TorrentCrawledAlbumSearchResult album = albums(first).get(0);
+        assertEquals(4 * 100, album.getSize());
+
+        List<Item> second = items(t, "Album/0%d - Song.ogg", 5, 6);
+        second.addAll(items(t, "Singles/0%d - Song.ogg", 1, 2));
+        List<SearchResult> out = cluster.add(t, second);
+
+        assertEquals(second, out, "no new album, the tracks joining it are still listed");
+        assertEquals(6, album.items().size());
+        assertEquals(6 * 100, album.getSize());
+
+        List<SearchResult> third = cluster.add(t, items(t, "Singles/0%d - Song.ogg", 3, 6));
+        assertEquals(4, third.size(), "a group shown as singles stays singles");
+        assertTrue(albums(third).isEmpty());
+    }
+
+    @Test
+    void theSameTorrentCrawledAgainIsNotAddedTwice() {
+        AlbumCluster cluster = new AlbumCluster();
+        Torrent t = new Torrent("AB");
+        TorrentCrawledAlbumSearchResult album = albums(cluster.add(t, items(t, "Album/0%d - Song.mp3", 1, 5))).get(0);
+
+        // another engine lists the same torrent, its infohash in another case
+        Torrent again = new Torrent("ab");
+        List<Item> batch = items(again, "Album/0%d - Song.mp3", 1, 5);
+        List<SearchResult> out = cluster.add(again, batch);
+
+        assertEquals(batch, out);
+        assertEquals(5, album.items().size());
+        assertEquals(5 * 100, album.getSize());
+    }
+
+    @Test
+    void detectReturnsOnlyAlbumsPerTorrent() {
+        Torrent a = new Torrent("ee");
+        Torrent b = new Torrent("ff");
+
+        assertEquals(1, AlbumCluster.detect(a, items(a, "X/0%d.mp3", 1, 4)).size());
+        assertTrue(AlbumCluster.detect(b, items(b, "X/0%d.txt", 1, 9)).isEmpty());
+    }
+
+    @Test
+    void trackPrefixIgnoresTitlesThatAreNotTrackNumbers() {
+        assertEquals("", AlbumCluster.trackPrefix("01 - Song"));
+        assertEquals("Artist - Album", AlbumCluster.trackPrefix("Artist - Album - 103 - Song"));
+        assertEquals("Artist", AlbumCluster.trackPrefix("Artist - 07. Song"));
+        assertEquals("", AlbumCluster.trackPrefix("Artist - Song 2000"));
+        assertEquals("Music", AlbumCluster.albumDir("Music"));
+        assertEquals("A/Best of CD", AlbumCluster.albumDir("A/Best of CD"));
+        assertEquals("A/B", AlbumCluster.albumDir("A/B/CD 2 - Live"));
+    }
+
+    private static List<Item> items(Torrent t, String pathFormat, int from, int to) {
+        List<Item> items = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            items.add(new Item(t, String.format(pathFormat, i), 100));
+        }
+        return items;
+    }
+
+    private static List<TorrentCrawledAlbumSearchResult> albums(List<SearchResult> results) {
+        List<TorrentCrawledAlbumSearchResult> albums = new ArrayList<>();
+        for (SearchResult sr : results) {
+            if (sr instanceof TorrentCrawledAlbumSearchResult) {
+                albums.add((TorrentCrawledAlbumSearchResult) sr);
+            }
+        }
+        return albums;
+    }
+
+    private static final class Torrent extends AbstractSearchResult implements TorrentCrawlableSearchResult {
+        private final String hash;
+
+        Torrent(String hash) {
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean isComplete() {
+            return false;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return hash;
+        }
+
+        @Override
+        public String getDetailsUrl() {
+            return "https://example.com/" + hash;
+        }
+
+        @Override
+        public long getCreationTime() {
+            return 0;
+        }
+
+        @Override
+        public String getSource() {
+            return "test";
+        }
+
+        @Override
+        public License getLicense() {
+            return null;
+        }
+
+        @Override
+        public String getFilename() {
+            return hash + ".torrent";
+        }
+
+        @Override
+        public long getSize() {
+            return 0;
+        }
+
+        @Override
+        public String getTorrentUrl() {
+            return getDetailsUrl() + ".torrent";
+        }
+
+        @Override
+        public String getReferrerUrl() {
+            return getDetailsUrl();
+        }
+
+        @Override
+        public int getSeeds() {
+            return 1;
+        }
+
+        @Override
+        public String getHash() {
+            return hash;
+        }
+    }
+
+    private static final class Item extends AbstractCrawledSearchResult<TorrentCrawlableSearchResult> implements TorrentItemSearchResult {
+        private final String path;
+        private final long size;
+
+        Item(Torrent parent, String path, long size) {
+            super(parent);
+            this.path = path;
+            this.size = size;
+        }
+
+        @Override
+        public String getFilePath() {
+            return path;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return path;
+        }
+
+        @Override
+        public String getFilename() {
+            return path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public String getTorrentUrl() {
+            return ((Torrent) parent).getTorrentUrl();
+        }
+
+        @Override
+        public String getReferrerUrl() {
+            return parent.getDetailsUrl();
+        }
+
+        @Override
+        public int getSeeds() {
+            return 1;
+        }
+
+        @Override
+        public String getHash() {
+            return ((Torrent) parent).getHash();
+        }
+    }
+}
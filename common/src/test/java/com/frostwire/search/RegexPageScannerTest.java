@@ -0,0 +1,129 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.search;
+
+import com.frostwire.regex.Matcher;
+import com.frostwire.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegexPageScannerTest {
+
+    private static final Pattern ROW = Pattern.compile("(?is)<tr id=\"(?<id>\\d+)\">(?<name>.*?)</tr>");
+
+    @Test
+    void slidingWindowFindsTheSameMatchesAsTheWholePage() {
+        String page = page(400, new Random(7));
+
+        List<String> expected = new ArrayList<>();
+        Matcher whole = ROW.matcher(page);
+        while (whole.find()) {
+            expected.add(whole.group("id") + ":" + whole.group("name"));
+        }
+
+        List<String> actual = new ArrayList<>();
+        RegexPageScanner scanner = new RegexPageScanner(ROW, page, 256, 96, 1_000, 10_000);
+        while (scanner.find()) {
+            actual.add(scanner.matcher().group("id") + ":" + scanner.matcher().group("name"));
+        }
+
+        assertEquals(400, expected.size());
+        assertEquals(expected, actual);
+        assertFalse(scanner.budgetExceeded());
+    }
+
+    @Test
+    void startIsThePageOffsetOfTheMatch() {
+        String page = page(50, new Random(1));
+        RegexPageScanner scanner = new RegexPageScanner(ROW, page, 128, 64, 1_000, 10_000);
+        while (scanner.find()) {
+            assertTrue(page.startsWith("<tr id=\"" + scanner.matcher().group("id") + "\">", scanner.start()));
+        }
+    }
+
+    @Test
+    void stopsWhenTheMatchBudgetRunsOut() {
+        StringBuilder sb = new StringBuilder("<tr id=\"1\">first</tr>");
+        for (int i = 0; i < 200_000; i++) {
+            sb.append("<td>filler</td>");
+        }
+        RegexPageScanner scanner = new RegexPageScanner(ROW, sb.toString(),
+                RegexPageScanner.DEFAULT_WINDOW_CHARS, RegexPageScanner.DEFAULT_OVERLAP_CHARS, 0, 10_000);
+
+        // the first row is found before the first clock check
+        assertTrue(scanner.find());
+        assertEquals("first", scanner.matcher().group("name"));
+        assertFalse(scanner.find());
+        assertTrue(scanner.budgetExceeded());
+        assertFalse(scanner.find());
+    }
+
+    @Test
+    void streamResultsHandsOverBatchesAndStopsWhenTheSinkDeclines() {
+        RegexSearchPattern pattern = new RegexSearchPattern(1000) {
+            @Override
+            protected Pattern getPattern() {
+                return ROW;
+            }
+
+            @Override
+            protected FileSearchResult fromMatch(SearchMatcher matcher) {
+                return CompositeFileSearchResult.builder()
+                        .displayName(matcher.group("name"))
+                        .filename(matcher.group("id") + ".torrent")
+                        .source("test")
+                        .build();
+            }
+
+            @Override
+            public String getSearchUrl(String keywords) {
+                return "https://example.com/?q=" + keywords;
+            }
+        };
+        String page = page(100, new Random(3));
+
+        List<Integer> batchSizes = new ArrayList<>();
+        pattern.streamResults(page, batch -> {
+            batchSizes.add(batch.size());
+            return batchSizes.size() < 3;
+        });
+
+        assertEquals(3, batchSizes.size());
+        assertTrue(batchSizes.stream().allMatch(n -> n > 0 && n <= 8), batchSizes.toString());
+        assertEquals(100, pattern.parseResults(page).size());
+    }
+
+    private static String page(int rows, Random random) {
+        StringBuilder sb = new StringBuilder("<html><table>");
+        for (int i = 0; i < rows; i++) {
+            sb.append("<tr id=\"").append(i).append("\">");
+            int len = 5 + random.nextInt(60);
+            for (int j = 0; j < len; j++) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+            sb.append("</tr>\n<td>").append("x".repeat(random.nextInt(40))).append("</td>\n");
+        }
+        return sb.append("</table></html>").toString();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * False-positive rate of {@link CatalogSummary} against the bytes it
+ * puts on the DHT, for catalogs of growing size and a few shard
+ * geometries. A false positive is a peer we query although it cannot
+ * match; the table shows the measured rate next to the theoretical one.
+ *
+ * <p>Run with {@code main}; not part of the test suite.
+ */
+public class CatalogSummaryBenchmark {
+
+    private static final int PROBES = 200_000;
+    private static final int[] CATALOG_KEYS = {100, 500, 1_000, 2_500, 5_000, 10_000, 20_000};
+    private static final int[][] GEOMETRIES = {
+            {CatalogSummary.SHARD_BYTES, CatalogSummary.MAX_SHARDS},
+            {CatalogSummary.SHARD_BYTES, 4},
+            {CatalogSummary.SHARD_BYTES / 2, CatalogSummary.MAX_SHARDS},
+    };
+
+    public static void main(String[] args) {
+        System.out.println("Catalog summary false-positive benchmark");
+        System.out.println("=".repeat(78));
+        System.out.printf("%-12s %8s %7s %10s %10s %12s %12s%n",
+                "geometry", "keys", "shards", "bytes", "bits/key", "measured FP", "expected FP");
+
+        for (int[] geometry : GEOMETRIES) {
+            String label = geometry[0] + "x" + geometry[1];
+            for (int keys : CATALOG_KEYS) {
+                run(label, geometry[0], geometry[1], keys);
+            }
+            System.out.println();
+        }
+        timeQueries();
+    }
+
+    private static void run(String label, int shardBytes, int maxShards, int keyCount) {
+        Random random = new Random(keyCount * 31L + shardBytes);
+        Set<String> indexed = new HashSet<>();
+        CatalogSummary.Builder builder = CatalogSummary.builder().geometry(shardBytes, maxShards);
+        while (indexed.size() < keyCount) {
+            String w = randomWord(random);
+            if (indexed.add(KeywordBloomFilter.key(w))) {
+                builder.addText(w);
+            }
+        }
+        CatalogSummary summary = builder.build();
+
+        int falsePositives = 0;
+        int probes = 0;
+        while (probes < PROBES) {
+            String w = randomWord(random);
+            if (indexed.contains(KeywordBloomFilter.key(w))) {
+                continue;
+            }
+            probes++;
+            if (summary.mightMatch(w)) {
+                falsePositives++;
+            }
+        }
+
+        double expected = 0;
+        for (int i = 0; i < summary.shardCount(); i++) {
+            // keys spread evenly; weight every shard the same
+            expected += KeywordBloomFilter.expectedFalsePositiveRate(shardBytes * 8L,
+                    summary.shard(i).hashes(), keyCount / summary.shardCount());
+        }
+        expected /= summary.shardCount();
+        long bits = (long) shardBytes * 8 * summary.shardCount();
+        System.out.printf("%-12s %8d %7d %10d %10.1f %11.3f%% %11.3f%%%n",
+                label, keyCount, summary.shardCount(), summary.publishedBytes(),
+                (double) bits / keyCount, 100.0 * falsePositives / probes, 100.0 * expected);
+    }
+
+    private static void timeQueries() {
+        Random random = new Random(7);
+        CatalogSummary.Builder builder = CatalogSummary.builder();
+        for (int i = 0; i < 5_000; i++) {
+            builder.addText(randomWord(random));
+        }
+        CatalogSummary summary = builder.build();
+        String[] queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = randomWord(random) + " " + randomWord(random);
+        }
+        int sink = 0;
+        for (int i = 0; i < 100_000; i++) {
+            sink += summary.mightMatch(queries[i & 1023]) ? 1 : 0;
+        }
+        int iterations = 1_000_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += summary.mightMatch(queries[i & 1023]) ? 1 : 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("mightMatch: %.1f ns/query (two tokens, %d shards) [%d]%n",
+                (double) elapsed / iterations, summary.shardCount(), sink);
+    }
+
+    private static String randomWord(Random random) {
+        int length = 3 + random.nextInt(6);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            int c = random.nextInt(36);
+            chars[i] = (char) (c < 26 ? 'a' + c : '0' + c - 26);
+        }
+        return new String(chars);
+    }
+}
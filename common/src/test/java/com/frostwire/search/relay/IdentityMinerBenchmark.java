@@ -0,0 +1,59 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Identity mining throughput by thread count, in
+ * {@link IdentityMiner#forBenchmark} mode so every run does exactly the
+ * same work: the same key is found whatever the thread count, and only
+ * the wall time changes.
+ *
+ * <p>Run with {@code main [difficulty] [seed]}; needs the native
+ * jlibtorrent library. Not part of the test suite.
+ */
+public class IdentityMinerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int difficulty = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        byte[] seed = (args.length > 1 ? args[1] : "frostwire-pow-benchmark")
+                .getBytes(StandardCharsets.UTF_8);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("Identity PoW mining benchmark: difficulty=" + difficulty
+                + " cores=" + cores);
+        System.out.println("=".repeat(64));
+        System.out.printf("%8s %12s %10s %12s %9s%n", "threads", "attempts", "ms", "keys/s", "speedup");
+
+        // warm up the JIT and the native library
+        IdentityMiner.forBenchmark(cores, seed).mine(Math.min(difficulty, 10), null);
+
+        double baseline = 0;
+        double best = 0;
+        byte[] firstKey = null;
+        for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(cores, threads * 2) : cores + 1) {
+            IdentityMiner.Result r = IdentityMiner.forBenchmark(threads, seed).mine(difficulty, null);
+            byte[] key = r.keys().ed25519PubRaw();
+            if (firstKey == null) {
+                firstKey = key;
+                baseline = r.hashesPerSecond();
+            } else if (!Arrays.equals(firstKey, key)) {
+                throw new IllegalStateException("benchmark mode found a different key with " + threads + " threads");
+            }
+            best = Math.max(best, r.hashesPerSecond());
+            System.out.printf("%8d %12d %10d %12.0f %8.2fx%n", threads, r.attempts(), r.elapsedMs(),
+                    r.hashesPerSecond(), baseline > 0 ? r.hashesPerSecond() / baseline : 0);
+        }
+        int required = KarmaConstants.IDENTITY_DIFFICULTY;
+        System.out.println();
+        System.out.printf("Expected time for difficulty %d: %.1f s single-threaded, %.1f s at the best rate%n",
+                required, (1L << required) / baseline, (1L << required) / best);
+    }
+}
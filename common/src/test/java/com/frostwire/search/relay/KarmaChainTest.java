@@ -12,7 +12,9 @@ import org.junit.jupiter.api.Test;
 
 import java.security.KeyPair;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -281,4 +283,155 @@ class KarmaChainTest {
         assertEquals(3, loaded.availableEnergy());
         assertEquals(3, loaded.entries().size());
     }
+
+    @Test
+    void verifyFromCheckpointOnlyChecksTheNewTail() {
+        KarmaChain chain = new KarmaChain(pubRaw);
+        chain.commitEpoch(block(850000L), keyPair.getPrivate());
+        chain.endorse(dummyPeerPub(1), dummyInfoHash(1), block(850050L),
+                keyPair.getPrivate());
+        KarmaChain.Checkpoint cp = KarmaChain.verifyFrom(null, chain.entries());
+        assertNotNull(cp);
+        assertEquals(1, cp.seq());
+        assertEquals(1, cp.endorsementsInEpoch());
+
+        chain.endorse(dummyPeerPub(2), dummyInfoHash(2), block(850060L),
+                keyPair.getPrivate());
+        List<KarmaChainEntry> grown = new ArrayList<>(chain.entries());
+        // A bad signature doesn't change the entry hash, so the prefix
+        // still binds to the checkpoint and is not re-checked.
+        grown.set(0, withBadSignature(grown.get(0)));
+        assertFalse(KarmaChain.verify(grown));
+
+        KarmaChain.Checkpoint head = KarmaChain.verifyFrom(cp, grown);
+        assertNotNull(head);
+        assertEquals(2, head.seq());
+        assertEquals(2, head.endorsementsInEpoch());
+        assertEquals(850060L, head.blockHeight());
+        assertArrayEquals(grown.get(2).entryHash(), head.entryHash());
+    }
+
+    @Test
+    void verifyFromFallsBackToGenesisWhenPrefixWasRewritten() {
+        KarmaChain original = new KarmaChain(pubRaw);
+        original.commitEpoch(block(850000L), keyPair.getPrivate());
+        original.endorse(dummyPeerPub(1), dummyInfoHash(1), block(850050L),
+                keyPair.getPrivate());
+        KarmaChain.Checkpoint cp = KarmaChain.verifyFrom(null, original.entries());
+
+        KarmaChain rewritten = new KarmaChain(pubRaw);
+        rewritten.commitEpoch(block(850000L), keyPair.getPrivate());
+        rewritten.endorse(dummyPeerPub(7), dummyInfoHash(7), block(850050L),
+                keyPair.getPrivate());
+        rewritten.endorse(dummyPeerPub(8), dummyInfoHash(8), block(850050L),
+                keyPair.getPrivate());
+        assertNotNull(KarmaChain.verifyFrom(cp, rewritten.entries()),
+                "valid rewrite verifies from genesis");
+
+        List<KarmaChainEntry> tampered = new ArrayList<>(rewritten.entries());
+        tampered.set(0, withBadSignature(tampered.get(0)));
+        assertNull(KarmaChain.verifyFrom(cp, tampered),
+                "prefix doesn't match the checkpoint, so its signatures are checked");
+        KarmaChain.Checkpoint shorter = KarmaChain.verifyFrom(cp, original.entries().subList(0, 1));
+        assertNotNull(shorter, "chain shorter than the checkpoint verifies from genesis");
+        assertEquals(0, shorter.seq());
+    }
+
+    @Test
+    void verifyFromCheckpointKeepsTheEnergyBudget() {
+        KarmaChain chain = new KarmaChain(pubRaw);
+        chain.commitEpoch(block(850000L), keyPair.getPrivate());
+        for (int i = 0; i < 4; i++) {
+            chain.endorse(dummyPeerPub(i), dummyInfoHash(i), block(850050L),
+                    keyPair.getPrivate());
+        }
+        KarmaChain.Checkpoint cp = KarmaChain.verifyFrom(null, chain.entries());
+        assertNotNull(cp);
+
+        List<KarmaChainEntry> grown = new ArrayList<>(chain.entries());
+        KarmaChainEntry last = grown.get(grown.size() - 1);
+        for (int i = 4; i < 6; i++) {
+            KarmaChainEntry en = KarmaChainEntry.createEndorsement(
+                    last.entryHash(), i + 1, pubRaw, block(850050L),
+                    dummyPeerPub(i), dummyInfoHash(i), 1, keyPair.getPrivate());
+            grown.add(en);
+            last = en;
+        }
+        assertNull(KarmaChain.verifyFrom(cp, grown), "sixth endorsement is over the budget of 5");
+        assertNotNull(KarmaChain.verifyFrom(cp, grown.subList(0, grown.size() - 1)));
+    }
+
+    @Test
+    void verifyWithStoreSavesAndReusesCheckpoints() {
+        InMemoryCheckpoints store = new InMemoryCheckpoints();
+        KarmaChain chain = new KarmaChain(pubRaw);
+        chain.commitEpoch(block(850000L), keyPair.getPrivate());
+        chain.endorse(dummyPeerPub(1), dummyInfoHash(1), block(850050L),
+                keyPair.getPrivate());
+
+        assertTrue(KarmaChain.verify(chain.entries(), store));
+        assertEquals(1, store.saves);
+        assertEquals(1, store.loadCheckpoint(pubRaw).seq());
+
+        assertTrue(KarmaChain.verify(chain.entries(), store));
+        assertEquals(1, store.saves, "unchanged head is not saved again");
+
+        chain.endorse(dummyPeerPub(2), dummyInfoHash(2), block(850050L),
+                keyPair.getPrivate());
+        KarmaChain loaded = KarmaChain.load(pubRaw, chain.entries(), store);
+        assertNotNull(loaded);
+        assertEquals(3, loaded.availableEnergy());
+        assertEquals(2, store.saves);
+        assertEquals(2, store.loadCheckpoint(pubRaw).seq());
+
+        List<KarmaChainEntry> grown = new ArrayList<>(chain.entries());
+        grown.set(2, withBadSignature(grown.get(2)));
+        KarmaChainEntry tail = KarmaChainEntry.createEndorsement(
+                grown.get(2).entryHash(), 3, pubRaw, block(850050L),
+                dummyPeerPub(3), dummyInfoHash(3), 1, keyPair.getPrivate());
+        grown.add(withBadSignature(tail));
+        assertFalse(KarmaChain.verify(grown, store), "the tail is fully verified");
+        assertEquals(2, store.saves);
+
+        grown.set(3, tail);
+        assertTrue(KarmaChain.verify(grown, store), "seq 2 is behind the checkpoint");
+        assertEquals(3, store.loadCheckpoint(pubRaw).seq());
+    }
+
+    private static KarmaChainEntry withBadSignature(KarmaChainEntry e) {
+        byte[] badSig = e.signature().clone();
+        badSig[0] ^= 1;
+        return KarmaChainEntry.fromStoredFields(e.kind(), e.prevHash(), e.seq(),
+                e.endorserPub(), e.timestamp(), e.blockHeight(), e.blockHash(),
+                e.epoch(), e.energy(), e.peerPub(), e.infoHash(), e.scoreDelta(), badSig);
+    }
+
+    private static final class InMemoryCheckpoints implements KarmaChainStore {
+        private final Map<String, KarmaChain.Checkpoint> checkpoints = new HashMap<>();
+        int saves;
+
+        @Override
+        public void append(KarmaChainEntry entry) {
+        }
+
+        @Override
+        public KarmaChain loadChain(byte[] ownerPub) {
+            return null;
+        }
+
+        @Override
+        public KarmaChain.Checkpoint loadCheckpoint(byte[] ownerPub) {
+            return checkpoints.get(com.frostwire.util.Hex.encode(ownerPub));
+        }
+
+        @Override
+        public void saveCheckpoint(KarmaChain.Checkpoint checkpoint) {
+            saves++;
+            checkpoints.put(com.frostwire.util.Hex.encode(checkpoint.ownerPub()), checkpoint);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }
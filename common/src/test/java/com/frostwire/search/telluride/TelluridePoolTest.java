@@ -0,0 +1,177 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.search.telluride;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Drives {@link TelluridePool} against a shell script standing in for a
+ * telluride worker. The script answers according to the requested URL:
+ * "hang" never answers, "crash" exits and "error" reports an extractor error.
+ */
+class TelluridePoolTest {
+
+    private static final String FAKE_WORKER =
+            "#!/bin/sh\n" +
+            "[ \"$1\" = \"--worker\" ] || exit 2\n" +
+            "echo spawn >> \"$(dirname \"$0\")/spawns.log\"\n" +
+            "echo \"telluride worker ready\"\n" +
+            "while IFS= read -r line; do\n" +
+            "  echo \"$line\" >> \"$(dirname \"$0\")/requests.log\"\n" +
+            "  id=$(echo \"$line\" | sed 's/.*\"id\":\\([0-9]*\\).*/\\1/')\n" +
+            "  url=$(echo \"$line\" | sed 's/.*\"url\":\"\\([^\"]*\\)\".*/\\1/')\n" +
+            "  case \"$url\" in\n" +
+            "    *hang*) sleep 30 ;;\n" +
+            "    *crash*) exit 1 ;;\n" +
+            "    *error*) echo \"{\\\"id\\\":$id,\\\"error\\\":\\\"ERROR: Unsupported URL: $url\\\"}\" ;;\n" +
+            "    *) echo \"{\\\"id\\\":$id,\\\"meta\\\":{\\\"title\\\":\\\"$url\\\",\\\"pid\\\":$$}}\" ;;\n" +
+            "  esac\n" +
+            "done\n";
+
+    @TempDir
+    File temp;
+
+    private TelluridePool pool;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(new File("/bin/sh").canExecute(), "the fake worker needs a POSIX shell");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void oneWorkerServesManyRequests() throws Exception {
+        pool = new TelluridePool(script(FAKE_WORKER), 1, TelluridePool.META_CACHE_TTL_MILLIS);
+
+        for (int i = 0; i < 5; i++) {
+            String meta = pool.meta("https://example.com/video" + i, false, 5000);
+            assertTrue(meta.contains("\"title\":\"https://example.com/video" + i + "\""), meta);
+        }
+
+        assertEquals(1, lines("spawns.log"));
+        assertEquals(5, lines("requests.log"));
+    }
+
+    @Test
+    void metadataIsCachedPerUrlAndMode() throws Exception {
+        pool = new TelluridePool(script(FAKE_WORKER), 1, TelluridePool.META_CACHE_TTL_MILLIS);
+
+        String first = pool.meta("https://example.com/a", false, 5000);
+        String second = pool.meta("https://example.com/a", false, 5000);
+        pool.meta("https://example.com/a", true, 5000);
+
+        assertEquals(first, second);
+        assertEquals(2, lines("requests.log"), "the playlist lookup is cached separately");
+    }
+
+    @Test
+    void expiredMetadataIsFetchedAgain() throws Exception {
+        pool = new TelluridePool(script(FAKE_WORKER), 1, 0);
+
+        pool.meta("https://example.com/a", false, 5000);
+        Thread.sleep(5);
+        pool.meta("https://example.com/a", false, 5000);
+
+        assertEquals(2, lines("requests.log"));
+    }
+
+    @Test
+    void hungWorkerMissesItsDeadlineAndIsReplaced() throws Exception {
+        pool = new TelluridePool(script(FAKE_WORKER), 1, TelluridePool.META_CACHE_TTL_MILLIS);
+
+        long start = System.currentTimeMillis();
+        assertThrows(TimeoutException.class, () -> pool.meta("https://example.com/hang", false, 500));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+
+        assertNotNull(pool.meta("https://example.com/ok", false, 5000));
+        assertEquals(2, lines("spawns.log"));
+    }
+
+    @Test
+    void crashedWorkerFailsItsRequestAndIsRespawned() throws Exception {
+        pool = new TelluridePool(script(FAKE_WORKER), 1, TelluridePool.META_CACHE_TTL_MILLIS);
+
+        IOException e = assertThrows(IOException.class, () -> pool.meta("https://example.com/crash", false, 5000));
+        assertFalse(e instanceof TelluridePool.ExtractorException);
+
+        assertNotNull(pool.meta("https://example.com/ok", false, 5000));
+        assertEquals(2, lines("spawns.log"));
+        assertTrue(pool.isAvailable());
+    }
+
+    @Test
+    void extractorErrorsKeepTheWorker() throws Exception {
+        pool = new TelluridePool(script(FAKE_WORKER), 1, TelluridePool.META_CACHE_TTL_MILLIS);
+
+        TelluridePool.ExtractorException e = assertThrows(TelluridePool.ExtractorException.class,
+                () -> pool.meta("https://example.com/error", false, 5000));
+        assertTrue(e.getMessage().startsWith("ERROR: Unsupported URL"));
+
+        assertNotNull(pool.meta("https://example.com/ok", false, 5000));
+        assertEquals(1, lines("spawns.log"));
+    }
+
+    @Test
+    void poolDisablesItselfWhenWorkersNeverAnswer() throws Exception {
+        pool = new TelluridePool(script("#!/bin/sh\nexit 2\n"), 2, TelluridePool.META_CACHE_TTL_MILLIS);
+
+        for (int i = 0; i < TelluridePool.MAX_CONSECUTIVE_CRASHES && pool.isAvailable(); i++) {
+            assertThrows(IOException.class, () -> pool.meta("https://example.com/a", false, 2000));
+            Thread.sleep(100);
+        }
+
+        assertFalse(pool.isAvailable());
+        assertEquals(0, pool.liveWorkers());
+    }
+
+    private File script(String content) throws IOException {
+        File f = new File(temp, "telluride-worker.sh");
+        Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        assertTrue(f.setExecutable(true));
+        return f;
+    }
+
+    private int lines(String log) throws IOException {
+        File f = new File(temp, log);
+        if (!f.exists()) {
+            return 0;
+        }
+        List<String> lines = Files.readAllLines(f.toPath());
+        return lines.size();
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.search.torrent;
+
+import com.frostwire.util.Hex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TorrentFilesTest {
+
+    private static final String SEP = File.separator;
+
+    @BeforeEach
+    void setUp() {
+        TorrentFiles.clearCache();
+    }
+
+    @Test
+    void multiFileTorrentSkipsPadAndHiddenFilesButKeepsTheirIndices() throws Exception {
+        Map<String, Object> info = info("Album",
+                file(1000, "CD1", "01 - intro.mp3"),
+                padFile(24),
+                file(2000, "CD1", "02 - song.mp3"),
+                fileWithAttr(10, "h", ".hidden"),
+                file(3000, "CD2", "01 - other.mp3"),
+                file(5, "_____padding_file_0_"));
+        byte[] torrent = torrent(info);
+
+        TorrentFiles files = TorrentFiles.parse(torrent);
+
+        assertEquals("Album", files.name());
+        assertEquals(3, files.size());
+        assertEquals("Album" + SEP + "CD1" + SEP + "01 - intro.mp3", files.filePath(0));
+        assertEquals("02 - song.mp3", files.fileName(1));
+        assertEquals(2000, files.fileSize(1));
+        assertEquals(2, files.fileIndex(1), "pad file still takes an index");
+        assertEquals(4, files.fileIndex(2));
+        assertEquals(6000, files.totalSize());
+        assertTrue(files.exactFileIndices());
+        assertEquals(sha1Hex(encode(info)), files.infoHash());
+    }
+
+    @Test
+    void singleFileTorrentPathIsItsName() {
+        Map<String, Object> info = new TreeMap<>();
+        info.put("name", "ubuntu.iso");
+        info.put("length", 4_000_000_000L);
+        info.put("piece length", 262144L);
+        info.put("pieces", new byte[20]);
+
+        TorrentFiles files = TorrentFiles.parse(torrent(info));
+
+        assertEquals(1, files.size());
+        assertEquals("ubuntu.iso", files.filePath(0));
+        assertEquals(4_000_000_000L, files.fileSize(0));
+        assertEquals(0, files.fileIndex(0));
+    }
+
+    @Test
+    void utf8VariantsWinAndUnsafeElementsAreDropped() {
+        Map<String, Object> entry = file(7, "..", "a/b", "x.txt");
+        entry.put("path.utf-8", List.of("..", "dir", "名前.txt"));
+        Map<String, Object> info = info("raw", entry);
+        info.put("name.utf-8", "Título");
+
+        TorrentFiles files = TorrentFiles.parse(torrent(info));
+
+        assertEquals("Título", files.name());
+        assertEquals("Título" + SEP + "dir" + SEP + "名前.txt", files.filePath(0));
+    }
+
+    @Test
+    void filesOfOneDirectoryShareTheDirectoryString() {
+        Object[] entries = new Object[500];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = file(i, "disc", "track" + i + ".flac");
+        }
+        TorrentFiles files = TorrentFiles.parse(torrent(info("big", entries)));
+
+        assertEquals(500, files.size());
+        assertEquals("big" + SEP + "disc" + SEP + "track499.flac", files.filePath(499));
+        assertEquals(499, files.fileIndex(499));
+    }
+
+    @Test
+    void sameTorrentIsParsedOnce() {
+        byte[] a = torrent(info("same", file(1, "f")));
+        Map<String, Object> outer = new TreeMap<>();
+        outer.put("announce", "udp://other.tracker");
+        outer.put("info", info("same", file(1, "f")));
+        byte[] b = encode(outer);
+
+        assertSame(TorrentFiles.parse(a), TorrentFiles.parse(b), "same info dict, different trackers");
+    }
+
+    @Test
+    void v2FileTreeIsReadInKeyOrderWithInexactIndices() {
+        Map<String, Object> tree = new TreeMap<>();
+        tree.put("b.txt", leaf(20));
+        Map<String, Object> sub = new TreeMap<>();
+        sub.put("c.txt", leaf(30));
+        tree.put("a", sub);
+        Map<String, Object> info = new TreeMap<>();
+        info.put("name", "v2");
+        info.put("meta version", 2L);
+        info.put("piece length", 16384L);
+        info.put("file tree", tree);
+
+        TorrentFiles files = TorrentFiles.parse(torrent(info));
+
+        assertFalse(files.exactFileIndices());
+        assertEquals(2, files.size());
+        assertEquals("v2" + SEP + "a" + SEP + "c.txt", files.filePath(0));
+        assertEquals("v2" + SEP + "b.txt", files.filePath(1));
+    }
+
+    @Test
+    void malformedInputIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TorrentFiles.parse(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> TorrentFiles.parse("d4:infod4:name".getBytes(StandardCharsets.US_ASCII)));
+        assertThrows(IllegalArgumentException.class, () -> TorrentFiles.parse("d4:infod4:name999:xee".getBytes(StandardCharsets.US_ASCII)));
+        assertThrows(IllegalArgumentException.class, () -> TorrentFiles.parse(encode(Map.of("announce", "x"))));
+        assertThrows(IllegalArgumentException.class, () -> TorrentFiles.parse(encode(Map.of("info", Map.of("length", 1L)))));
+
+        byte[] deep = new byte[10_000];
+        Arrays.fill(deep, (byte) 'l');
+        byte[] nested = ("d4:info" + new String(deep, StandardCharsets.US_ASCII)).getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IllegalArgumentException.class, () -> TorrentFiles.parse(nested));
+    }
+
+    private static Map<String, Object> info(String name, Object... files) {
+        Map<String, Object> info = new TreeMap<>();
+        info.put("name", name);
+        info.put("piece length", 16384L);
+        info.put("pieces", new byte[20]);
+        info.put("files", Arrays.asList(files));
+        return info;
+    }
+
+    private static Map<String, Object> file(long length, String... path) {
+        Map<String, Object> f = new TreeMap<>();
+        f.put("length", length);
+        f.put("path", Arrays.asList(path));
+        return f;
+    }
+
+    private static Map<String, Object> fileWithAttr(long length, String attr, String... path) {
+        Map<String, Object> f = file(length, path);
+        f.put("attr", attr);
+        return f;
+    }
+
+    private static Map<String, Object> padFile(long length) {
+        return fileWithAttr(length, "p", ".pad", String.valueOf(length));
+    }
+
+    private static Map<String, Object> leaf(long length) {
+        Map<String, Object> props = new TreeMap<>();
+        props.put("length", length);
+        props.put("pieces root", new byte[32]);
+        Map<String, Object> leaf = new TreeMap<>();
+        leaf.put("", props);
+        return leaf;
+    }
+
+    private static byte[] torrent(Map<String, Object> info) {
+        Map<String, Object> t = new TreeMap<>();
+        t.put("announce", "udp://tracker.example:1337");
+        t.put("info", info);
+        return encode(t);
+    }
+
+    private static byte[] encode(Object value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encode(value, out);
+        return out.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void encode(Object value, ByteArrayOutputStream out) {
+        if (value instanceof Long) {
+            out.writeBytes(("i" + value + "e").getBytes(StandardCharsets.US_ASCII));
+        } else if (value instanceof String) {
+            encode(((String) value).getBytes(StandardCharsets.UTF_8), out);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            out.writeBytes((bytes.length + ":").getBytes(StandardCharsets.US_ASCII));
+            out.writeBytes(bytes);
+        } else if (value instanceof List) {
+            out.write('l');
+            for (Object o : (List<Object>) value) {
+                encode(o, out);
+            }
+            out.write('e');
+        } else {
+            out.write('d');
+            for (Map.Entry<String, Object> e : new TreeMap<>((Map<String, Object>) value).entrySet()) {
+                encode(e.getKey(), out);
+                encode(e.getValue(), out);
+            }
+            out.write('e');
+        }
+    }
+
+    private static String sha1Hex(byte[] data) throws Exception {
+        return Hex.encode(MessageDigest.getInstance("SHA-1").digest(data));
+    }
+}
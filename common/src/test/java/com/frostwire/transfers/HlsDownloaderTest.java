@@ -0,0 +1,326 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.transfers;
+
+import com.frostwire.util.http.JdkHttpClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Downloads generated HLS streams served by a local HTTP server.
+ */
+class HlsDownloaderTest {
+
+    private static final int SEGMENTS = 6;
+
+    @TempDir
+    File temp;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String base;
+    private final Map<String, byte[]> resources = new ConcurrentHashMap<>();
+    /** Remaining failures of a path before it's served. */
+    private final Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    /** Milliseconds a path waits before it's answered. */
+    private final Map<String, Long> delays = new ConcurrentHashMap<>();
+    private final List<String> answered = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverExecutor);
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        requests.add(path);
+        AtomicInteger failing = failures.get(path);
+        byte[] body = resources.get(path);
+        Long delay = delays.get(path);
+        if (delay != null) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        answered.add(path);
+        if (body == null || (failing != null && failing.getAndDecrement() > 0)) {
+            exchange.sendResponseHeaders(body == null ? 404 : 503, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test
+    void masterPlaylistResolvesToTheBestVariantAndJoinsSegmentsInOrder() throws IOException {
+        serveMaster();
+        byte[] expected = serveMedia("/high/", false);
+        serveMedia("/low/", false);
+        AtomicLong data = new AtomicLong();
+        AtomicInteger lastDone = new AtomicInteger();
+        File output = new File(temp, "video.ts");
+
+        downloader(0).download(base + "/master.m3u8", output, new HlsDownloader.Listener() {
+            @Override
+            public void onData(int length) {
+                data.addAndGet(length);
+            }
+
+            @Override
+            public void onSegment(int doneSegments, int totalSegments) {
+                assertEquals(SEGMENTS, totalSegments);
+                lastDone.set(doneSegments);
+            }
+        });
+
+        assertArrayEquals(expected, Files.readAllBytes(output.toPath()));
+        assertEquals(expected.length, data.get());
+        assertEquals(SEGMENTS, lastDone.get());
+        assertTrue(requests.stream().noneMatch(p -> p.startsWith("/low/")), requests.toString());
+        assertFalse(new File(temp, "video.ts.parts").exists(), "part files are removed");
+    }
+
+    @Test
+    void maxHeightCapsTheVariant() throws IOException {
+        serveMaster();
+        serveMedia("/high/", false);
+        byte[] expected = serveMedia("/low/", false);
+        File output = new File(temp, "video.ts");
+
+        downloader(480).download(base + "/master.m3u8", output, null);
+
+        assertArrayEquals(expected, Files.readAllBytes(output.toPath()));
+    }
+
+    @Test
+    void aes128SegmentsAreDecrypted() throws IOException {
+        byte[] expected = serveMedia("/enc/", true);
+        File output = new File(temp, "video.ts");
+
+        downloader(0).download(base + "/enc/index.m3u8", output, null);
+
+        assertArrayEquals(expected, Files.readAllBytes(output.toPath()));
+        assertEquals(1, requests.stream().filter(p -> p.endsWith("/key.bin")).count(), "the key is fetched once");
+    }
+
+    @Test
+    void failingSegmentIsRetried() throws IOException {
+        byte[] expected = serveMedia("/media/", false);
+        failures.put("/media/seg2.ts", new AtomicInteger(HlsDownloader.MAX_SEGMENT_ATTEMPTS - 1));
+        File output = new File(temp, "video.ts");
+
+        downloader(0).download(base + "/media/index.m3u8", output, null);
+
+        assertArrayEquals(expected, Files.readAllBytes(output.toPath()));
+        assertEquals(HlsDownloader.MAX_SEGMENT_ATTEMPTS, requests.stream().filter("/media/seg2.ts"::equals).count());
+    }
+
+    @Test
+    void segmentFailingEveryAttemptFailsTheDownload() throws IOException {
+        serveMedia("/media/", false);
+        resources.remove("/media/seg4.ts");
+        File output = new File(temp, "video.ts");
+
+        assertThrows(IOException.class, () -> downloader(0).download(base + "/media/index.m3u8", output, null));
+        assertFalse(new File(temp, "video.ts.parts").exists());
+    }
+
+    @Test
+    void failedDownloadWaitsForTheSegmentsInFlight() throws IOException {
+        serveMedia("/media/", false);
+        resources.remove("/media/seg0.ts");
+        delays.put("/media/seg1.ts", 500L);
+        File output = new File(temp, "video.ts");
+
+        assertThrows(IOException.class, () -> downloader(0).download(base + "/media/index.m3u8", output, null));
+        // the parts directory is only deleted once no segment can write into it
+        assertTrue(answered.contains("/media/seg1.ts"));
+        assertFalse(new File(temp, "video.ts.parts").exists());
+    }
+
+    @Test
+    void fmp4InitSectionIsWrittenFirst() throws IOException {
+        byte[] init = "ftyp-moov".getBytes(StandardCharsets.US_ASCII);
+        resources.put("/fmp4/init.mp4", init);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(init);
+        StringBuilder playlist = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:7\n#EXT-X-MAP:URI=\"init.mp4\"\n");
+        for (int i = 0; i < 3; i++) {
+            byte[] segment = segment(i);
+            resources.put("/fmp4/seg" + i + ".m4s", segment);
+            expected.write(segment);
+            playlist.append("#EXTINF:4.0,\nseg").append(i).append(".m4s\n");
+        }
+        playlist.append("#EXT-X-ENDLIST\n");
+        resources.put("/fmp4/index.m3u8", playlist.toString().getBytes(StandardCharsets.UTF_8));
+        File output = new File(temp, "video.mp4");
+
+        downloader(0).download(base + "/fmp4/index.m3u8", output, null);
+
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(output.toPath()));
+    }
+
+    @Test
+    void playlistParsing() throws IOException {
+        assertTrue(HlsPlaylist.isHlsUrl("https://example.com/a/index.M3U8?token=1"));
+        assertFalse(HlsPlaylist.isHlsUrl("https://example.com/video.mp4?list=x.m3u8"));
+
+        HlsPlaylist playlist = HlsPlaylist.parse("https://example.com/a/b/index.m3u8",
+                "#EXTM3U\n" +
+                "#EXT-X-MEDIA-SEQUENCE:7\n" +
+                "#EXT-X-KEY:METHOD=AES-128,URI=\"/keys/k\",IV=0x1F\n" +
+                "#EXTINF:5.5,title\n" +
+                "../seg.ts\n" +
+                "#EXT-X-KEY:METHOD=NONE\n" +
+                "#EXTINF:4.5,\n" +
+                "https://cdn.example.com/seg2.ts\n");
+
+        assertFalse(playlist.isMaster());
+        assertFalse(playlist.isEndList());
+        assertEquals(10.0, playlist.duration(), 0.001);
+        HlsPlaylist.Segment first = playlist.segments().get(0);
+        assertEquals("https://example.com/a/seg.ts", first.uri);
+        assertEquals(7, first.sequence);
+        assertEquals("https://example.com/keys/k", first.key.uri);
+        assertEquals(0x1F, first.iv()[15]);
+        assertEquals(0, first.iv()[14]);
+        assertNull(playlist.segments().get(1).key);
+        assertEquals(8, playlist.segments().get(1).sequence);
+
+        assertThrows(IOException.class, () -> HlsPlaylist.parse("https://example.com/x", "<html></html>"));
+    }
+
+    private HlsDownloader downloader(int maxHeight) {
+        HlsDownloader downloader = new HlsDownloader(JdkHttpClient::new, null, maxHeight);
+        downloader.setRetryDelayMillis(1);
+        return downloader;
+    }
+
+    private void serveMaster() {
+        resources.put("/master.m3u8", ("#EXTM3U\n" +
+                "#EXT-X-STREAM-INF:BANDWIDTH=800000,RESOLUTION=640x360,CODECS=\"avc1.4d401e,mp4a.40.2\"\n" +
+                "low/index.m3u8\n" +
+                "#EXT-X-STREAM-INF:BANDWIDTH=2800000,RESOLUTION=1280x720,CODECS=\"avc1.4d401f,mp4a.40.2\"\n" +
+                "/high/index.m3u8\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Serves a media playlist and its segments under dir, returns the
+     * expected output.
+     */
+    private byte[] serveMedia(String dir, boolean encrypted) throws IOException {
+        byte[] key = new byte[16];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) (i * 7 + 3);
+        }
+        byte[] explicitIv = new byte[16];
+        explicitIv[0] = 0x42;
+        long firstSequence = 100;
+
+        StringBuilder playlist = new StringBuilder("#EXTM3U\n#EXT-X-TARGETDURATION:4\n#EXT-X-MEDIA-SEQUENCE:" + firstSequence + "\n");
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < SEGMENTS; i++) {
+            byte[] segment = segment(dir.hashCode() + i);
+            expected.write(segment);
+            if (encrypted && i == 0) {
+                playlist.append("#EXT-X-KEY:METHOD=AES-128,URI=\"key.bin\"\n");
+            } else if (encrypted && i == SEGMENTS / 2) {
+                playlist.append("#EXT-X-KEY:METHOD=AES-128,URI=\"key.bin\",IV=0x42000000000000000000000000000000\n");
+            }
+            if (encrypted) {
+                byte[] iv = i < SEGMENTS / 2 ? sequenceIv(firstSequence + i) : explicitIv;
+                segment = encrypt(segment, key, iv);
+            }
+            resources.put(dir + "seg" + i + ".ts", segment);
+            playlist.append("#EXTINF:4.0,\nseg").append(i).append(".ts\n");
+        }
+        playlist.append("#EXT-X-ENDLIST\n");
+        resources.put(dir + "index.m3u8", playlist.toString().getBytes(StandardCharsets.UTF_8));
+        resources.put(dir + "key.bin", key);
+        return expected.toByteArray();
+    }
+
+    private static byte[] segment(int seed) {
+        byte[] segment = new byte[188 * (20 + Math.floorMod(seed, 7))];
+        for (int i = 0; i < segment.length; i++) {
+            segment[i] = (byte) (i % 188 == 0 ? 0x47 : seed * 31 + i);
+        }
+        return segment;
+    }
+
+    private static byte[] sequenceIv(long sequence) {
+        byte[] iv = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            iv[15 - i] = (byte) (sequence >>> (8 * i));
+        }
+        return iv;
+    }
+
+    private static byte[] encrypt(byte[] data, byte[] key, byte[] iv) {
+        try {
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+            return cipher.doFinal(data);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
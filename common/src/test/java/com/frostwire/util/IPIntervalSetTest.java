@@ -0,0 +1,184 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IPIntervalSetTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    public void testOverlappingAndAdjacentRangesAreMerged() throws IOException {
+        IPIntervalSet set = new IPIntervalSet.Builder()
+                .add("10.0.0.10", "10.0.0.20")
+                .add("10.0.0.15", "10.0.0.30")
+                .add("10.0.0.31", "10.0.0.40")   // adjacent
+                .add("10.0.0.50", "10.0.0.45")   // reversed
+                .add("192.168.1.1", "")          // single address
+                .build();
+        assertEquals(3, set.v4Ranges());
+        assertTrue(set.contains(ip("10.0.0.10")));
+        assertTrue(set.contains(ip("10.0.0.33")));
+        assertTrue(set.contains(ip("10.0.0.40")));
+        assertFalse(set.contains(ip("10.0.0.41")));
+        assertTrue(set.contains(ip("10.0.0.47")));
+        assertTrue(set.contains(ip("192.168.1.1")));
+        assertFalse(set.contains(ip("192.168.1.2")));
+        assertFalse(set.contains(ip("10.0.0.9")));
+    }
+
+    @Test
+    public void testHighIPv4AddressesCompareUnsigned() throws IOException {
+        IPIntervalSet set = new IPIntervalSet.Builder()
+                .add("1.0.0.0", "1.0.0.255")
+                .add("200.0.0.0", "255.255.255.255")
+                .build();
+        assertTrue(set.contains(ip("255.255.255.255")));
+        assertTrue(set.contains(ip("200.1.2.3")));
+        assertFalse(set.contains(ip("199.255.255.255")));
+        assertFalse(set.contains(ip("2.0.0.0")));
+    }
+
+    @Test
+    public void testIPv6() throws IOException {
+        IPIntervalSet set = new IPIntervalSet.Builder()
+                .add("2001:db8::", "2001:db8::ffff")
+                .add("2001:db8::1:0", "2001:db8::1:ff")  // adjacent to the first one
+                .add("fe80::1", "fe80::1")
+                .build();
+        assertEquals(2, set.v6Ranges());
+        assertTrue(set.contains(ip("2001:db8::abcd")));
+        assertTrue(set.contains(ip("2001:db8::1:10")));
+        assertFalse(set.contains(ip("2001:db8::2:0")));
+        assertTrue(set.contains(ip("fe80::1")));
+        assertFalse(set.contains(ip("fe80::2")));
+        assertFalse(set.contains(ip("10.0.0.1")));
+    }
+
+    @Test
+    public void testMemoryMappedRoundTrip() throws IOException {
+        IPIntervalSet.Builder builder = new IPIntervalSet.Builder();
+        Random random = new Random(42);
+        List<long[]> ranges = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            long start = random.nextInt() & 0xFFFFFFFFL;
+            long end = Math.min(0xFFFFFFFFL, start + random.nextInt(4096));
+            ranges.add(new long[]{start, end});
+            builder.add(v4(start), v4(end));
+        }
+        builder.add("2001:db8::", "2001:db8::ff");
+        IPIntervalSet built = builder.build();
+        File file = new File(dir, "ip_filter.idx");
+        built.writeTo(file);
+        IPIntervalSet loaded = IPIntervalSet.load(file);
+        assertEquals(built.size(), loaded.size());
+        for (int i = 0; i < 20000; i++) {
+            long probe = random.nextInt() & 0xFFFFFFFFL;
+            boolean expected = false;
+            for (long[] r : ranges) {
+                if (probe >= r[0] && probe <= r[1]) {
+                    expected = true;
+                    break;
+                }
+            }
+            assertEquals(expected, loaded.contains(v4(probe)), "probe " + probe);
+        }
+        for (long[] r : ranges) {
+            assertTrue(loaded.contains(v4(r[0])));
+            assertTrue(loaded.contains(v4(r[1])));
+        }
+        assertTrue(loaded.contains(new InetSocketAddress(ip("2001:db8::7"), 6881)));
+    }
+
+    @Test
+    public void testForEachVisitsMergedRanges() throws IOException {
+        IPIntervalSet set = new IPIntervalSet.Builder()
+                .add("10.0.0.1", "10.0.0.5")
+                .add("10.0.0.3", "10.0.0.9")
+                .add("::1", "::1")
+                .build();
+        List<String> visited = new ArrayList<>();
+        set.forEach((start, end) -> visited.add(start.getHostAddress() + "-" + end.getHostAddress()));
+        assertEquals(2, visited.size());
+        assertEquals("10.0.0.1-10.0.0.9", visited.get(0));
+        assertTrue(visited.get(1).startsWith("0:0:0:0:0:0:0:1"));
+    }
+
+    @Test
+    public void testForEachRawVisitsMergedRanges() throws IOException {
+        IPIntervalSet set = new IPIntervalSet.Builder()
+                .add("10.0.0.1", "10.0.0.5")
+                .add("10.0.0.3", "10.0.0.9")
+                .add("200.0.0.0", "255.255.255.255")
+                .add("2001:db8::", "2001:db8::ff")
+                .build();
+        List<String> v4 = new ArrayList<>();
+        set.forEachV4((start, end) -> v4.add(Integer.toUnsignedString(start, 16) + "-" + Integer.toUnsignedString(end, 16)));
+        assertEquals(List.of("a000001-a000009", "c8000000-ffffffff"), v4);
+        List<String> v6 = new ArrayList<>();
+        set.forEachV6((startHi, startLo, endHi, endLo) -> v6.add(Long.toHexString(startHi) + "/" + Long.toHexString(startLo)
+                + "-" + Long.toHexString(endHi) + "/" + Long.toHexString(endLo)));
+        assertEquals(List.of("20010db800000000/0-20010db800000000/ff"), v6);
+    }
+
+    @Test
+    public void testRejectsCorruptFile() throws IOException {
+        File file = new File(dir, "bad.idx");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+        }
+        assertThrows(IOException.class, () -> IPIntervalSet.load(file));
+        assertThrows(IOException.class, () -> new IPIntervalSet.Builder().add("not-an-ip", ""));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertTrue(IPIntervalSet.EMPTY.isEmpty());
+        assertFalse(IPIntervalSet.EMPTY.contains(ip("1.2.3.4")));
+        File file = new File(dir, "empty.idx");
+        IPIntervalSet.EMPTY.writeTo(file);
+        assertTrue(IPIntervalSet.load(file).isEmpty());
+    }
+
+    private static InetAddress ip(String s) throws IOException {
+        return InetAddress.getByName(s);
+    }
+
+    private static InetAddress v4(long ip) {
+        try {
+            return InetAddress.getByAddress(new byte[]{(byte) (ip >>> 24), (byte) (ip >>> 16), (byte) (ip >>> 8), (byte) ip});
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.util.http;
+
+import com.frostwire.util.ThreadPool;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostConcurrencyLimiterTest {
+
+    private HttpServer server;
+    private HostConcurrencyLimiter limiter;
+    private OkHttpClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            if (exchange.getRequestURI().getPath().equals("/broken")) {
+                // promise more than is sent, the client's read fails mid-body
+                exchange.sendResponseHeaders(200, 1 << 20);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(new byte[1024]);
+                    os.flush();
+                } catch (IOException expected) {
+                    // closing a short fixed-length body drops the connection
+                }
+                return;
+            }
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            int code = exchange.getRequestURI().getPath().equals("/error") ? 500 : 200;
+            exchange.sendResponseHeaders(code, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        limiter = new HostConcurrencyLimiter(1);
+        client = new OkHttpClient.Builder()
+                .addNetworkInterceptor(limiter)
+                .connectTimeout(200, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private Request request(String path) {
+        return new Request.Builder().url("http://127.0.0.1:" + server.getAddress().getPort() + path).build();
+    }
+
+    @Test
+    void slotIsHeldUntilTheBodyIsClosed() throws IOException {
+        try (Response response = client.newCall(request("/a")).execute()) {
+            assertEquals(0, limiter.available("127.0.0.1"), "headers are in, the body is not read yet");
+            assertThrows(SocketTimeoutException.class, () -> client.newCall(request("/b")).execute());
+            assertEquals("ok", response.body().string());
+        }
+        assertEquals(1, limiter.available("127.0.0.1"));
+        try (Response response = client.newCall(request("/b")).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(1, limiter.available("127.0.0.1"));
+    }
+
+    @Test
+    void slotIsReleasedOnceForErrorsAndDoubleCloses() throws IOException {
+        Response response = client.newCall(request("/error")).execute();
+        assertEquals(500, response.code());
+        response.close();
+        response.close();
+        assertEquals(1, limiter.available("127.0.0.1"));
+        assertEquals(1, limiter.available("example.com"), "hosts never contacted have every slot");
+    }
+
+    @Test
+    void saveThatFailsMidBodyGivesItsSlotBack(@TempDir File dir) throws IOException {
+        OkHttpClientWrapper http = new OkHttpClientWrapper(
+                new ThreadPool("HostConcurrencyLimiterTest", 1, 1, 1, new LinkedBlockingQueue<>(), true),
+                OkHttpClientWrapper.newConnectionPool(1, 1), 1, 1, null);
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        assertThrows(IOException.class,
+                () -> http.save(base + "/broken", new File(dir, "broken"), false, 500, null, null, null));
+        // the only slot to the host is free again
+        assertEquals("ok", http.get(base + "/a", 500, null, null, null, null));
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.util.http;
+
+import com.frostwire.util.ThreadPool;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchHttpCacheTest {
+
+    private static final String ETAG = "\"results-v1\"";
+
+    @TempDir
+    File cacheDir;
+
+    private HttpServer server;
+    /** If-None-Match header of each request the server saw, "" when absent. */
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private SearchHttpCache cache;
+    private OkHttpClientWrapper client;
+    /** Extra response headers the server sends, e.g. Cache-Control: no-store. */
+    private final Map<String, String> responseHeaders = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        cache = new SearchHttpCache(cacheDir, 1024 * 1024, 2);
+        client = new OkHttpClientWrapper(
+                new ThreadPool("SearchHttpCacheTest", 1, 1, 1, new LinkedBlockingQueue<>(), true), cache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        requests.add(ifNoneMatch == null ? "" : ifNoneMatch);
+        if (ETAG.equals(ifNoneMatch)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = ("<html>results for " + exchange.getRequestURI() + "</html>").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+        exchange.getResponseHeaders().add("ETag", ETAG);
+        responseHeaders.forEach((name, value) -> exchange.getResponseHeaders().add(name, value));
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private String get(String url, Map<String, String> headers) throws IOException {
+        return client.get(url, 5000, "test", null, null, headers);
+    }
+
+    private void assertNotCached(String url, String cookie) throws IOException {
+        client.get(url, 5000, "test", null, cookie, null);
+        client.get(url, 5000, "test", null, cookie, null);
+        assertEquals(2, requests.size(), "the engine freshness must not skip the second request");
+        assertEquals(0, cache.memoryHits());
+        assertEquals(0, cache.memoryEntries());
+    }
+
+    @Test
+    void staleEntryIsRevalidatedWithItsETag() throws IOException {
+        String url = url("/search?q=ubuntu");
+        cache.setFreshness(url, 0);
+
+        String first = get(url, null);
+        String second = get(url, null);
+
+        assertEquals(first, second);
+        assertEquals(List.of("", ETAG), requests);
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.revalidatedHits());
+        assertEquals(0, cache.memoryEntries(), "pages that must be revalidated stay out of memory");
+    }
+
+    @Test
+    void freshEntryIsServedFromMemoryWithoutARequest() throws IOException {
+        String url = url("/search?q=debian");
+        cache.setFreshness(url, 60);
+
+        String first = get(url, null);
+        String second = get(url, null);
+
+        assertEquals(first, second);
+        assertEquals(1, requests.size(), "the engine freshness replaces the server's missing max-age");
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.memoryHits());
+    }
+
+    @Test
+    void requestsWithCustomHeadersUseOnlyTheDiskTier() throws IOException {
+        String url = url("/api?q=fedora");
+        cache.setFreshness(url, 60);
+        Map<String, String> headers = Map.of("X-Api-Key", "k");
+
+        String first = get(url, headers);
+        String second = get(url, headers);
+
+        assertEquals(first, second);
+        assertEquals(1, requests.size());
+        assertEquals(1, cache.diskHits());
+        assertEquals(0, cache.memoryHits());
+        assertEquals(0, cache.memoryEntries());
+    }
+
+    @Test
+    void memoryTierIsBoundedAndFreshnessAppliesToSubdomains() throws IOException {
+        cache.setFreshness("http://127.0.0.1/", 60);
+        for (String q : new String[]{"a", "b", "c"}) {
+            get(url("/search?q=" + q), null);
+        }
+        assertEquals(2, cache.memoryEntries());
+
+        SearchHttpCache policies = new SearchHttpCache(null, 0, 1);
+        policies.setFreshness("https://example.org/search", 120);
+        assertEquals(120, policies.freshnessSeconds("www.example.org"));
+        assertEquals(120, policies.freshnessSeconds("EXAMPLE.org"));
+        assertEquals(-1, policies.freshnessSeconds("example.com"), "freshness is opt-in per host");
+        assertNull(policies.diskCache());
+    }
+
+    @Test
+    void hostsWithoutFreshnessKeepTheServerPolicy() throws IOException {
+        responseHeaders.put("Cache-Control", "no-cache");
+        String url = url("/search?q=arch");
+
+        get(url, null);
+        get(url, null);
+
+        assertEquals(List.of("", ETAG), requests);
+        assertEquals(0, cache.memoryHits());
+    }
+
+    @Test
+    void noStoreAndPrivateResponsesAreNotOverridden() throws IOException {
+        responseHeaders.put("Cache-Control", "private, no-store");
+        String url = url("/search?q=mint");
+        cache.setFreshness(url, 60);
+        assertNotCached(url, null);
+    }
+
+    @Test
+    void responsesSettingCookiesAreNotOverridden() throws IOException {
+        responseHeaders.put("Set-Cookie", "session=1");
+        String url = url("/search?q=gentoo");
+        cache.setFreshness(url, 60);
+        assertNotCached(url, null);
+    }
+
+    @Test
+    void requestsWithCookiesAreNotOverridden() throws IOException {
+        String url = url("/search?q=alpine");
+        cache.setFreshness(url, 60);
+        assertNotCached(url, "session=1");
+    }
+}
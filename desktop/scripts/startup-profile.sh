@@ -0,0 +1,71 @@
+#!/usr/bin/env bash
+# Measure FrostWire desktop cold start (time-to-first-window) headlessly.
+#
+# Runs build/libs/frostwire.jar N times under a virtual X server (xvfb-run) with
+# -Dfrostwire.startup.profile and -Dfrostwire.startup.exitAfterProfile, so each run
+# writes the Initializer startup task graph as JSON and exits once every startup task
+# is done. Prints the first-window and total milliseconds of each run.
+#
+# Usage (from anywhere):
+#   ./scripts/startup-profile.sh              # 3 runs, profiles in build/startup-profiles
+#   ./scripts/startup-profile.sh --runs 10
+#   ./scripts/startup-profile.sh --out /tmp/profiles
+#
+# Builds frostwire.jar if missing. Requires xvfb-run unless DISPLAY is already set.
+
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+cd "${ROOT}"
+
+RUNS=3
+OUT_DIR="${ROOT}/build/startup-profiles"
+
+usage() {
+  awk 'NR==1 { next } /^#/ { sub(/^# ?/, ""); print; next } { exit }' "$0"
+  exit "${1:-0}"
+}
+
+while [[ $# -gt 0 ]]; do
+  case "$1" in
+    -h|--help) usage 0 ;;
+    --runs) RUNS="$2"; shift ;;
+    --out) OUT_DIR="$2"; shift ;;
+    *)
+      echo "Unknown option: $1" >&2
+      usage 1
+      ;;
+  esac
+  shift
+done
+
+JAR="${ROOT}/build/libs/frostwire.jar"
+if [[ ! -f "${JAR}" ]]; then
+  ./gradlew jar
+fi
+
+RUNNER=()
+if [[ -z "${DISPLAY:-}" ]]; then
+  if ! command -v xvfb-run >/dev/null 2>&1; then
+    echo "xvfb-run not found and DISPLAY is not set" >&2
+    exit 1
+  fi
+  RUNNER=(xvfb-run -a)
+fi
+
+mkdir -p "${OUT_DIR}"
+for i in $(seq 1 "${RUNS}"); do
+  PROFILE="${OUT_DIR}/startup-${i}.json"
+  rm -f "${PROFILE}"
+  "${RUNNER[@]}" java -Djava.library.path=lib/native \
+    -Dfrostwire.startup.profile="${PROFILE}" \
+    -Dfrostwire.startup.exitAfterProfile=true \
+    -jar "${JAR}" >"${OUT_DIR}/startup-${i}.log" 2>&1 || true
+  if [[ -f "${PROFILE}" ]]; then
+    FIRST_WINDOW=$(grep -o '"first-window": [0-9-]*' "${PROFILE}" | awk '{ print $2 }')
+    TOTAL=$(grep -o '"totalMs": [0-9-]*' "${PROFILE}" | awk '{ print $2 }')
+    echo "run ${i}: first-window=${FIRST_WINDOW:-?} ms total=${TOTAL:-?} ms (${PROFILE})"
+  else
+    echo "run ${i}: no profile written, see ${OUT_DIR}/startup-${i}.log" >&2
+  fi
+done
@@ -36,7 +36,8 @@ final class DesktopSettings implements AppSettings {
 
     @Override
     public int int32(String key) {
-        return 0;
+        // no desktop store behind these keys yet; allow -Dkey=value overrides (e.g. frostwire.prefs.http.*)
+        return Integer.getInteger(key, 0);
     }
 
     @Override
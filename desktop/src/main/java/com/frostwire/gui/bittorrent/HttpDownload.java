@@ -20,6 +20,8 @@ package com.frostwire.gui.bittorrent;
 
 import com.frostwire.gui.DigestUtils;
 import com.frostwire.gui.DigestUtils.DigestProgressListener;
+import com.frostwire.transfers.HlsDownloader;
+import com.frostwire.transfers.HlsPlaylist;
 import com.frostwire.transfers.TransferState;
 import com.frostwire.util.Logger;
 import com.frostwire.util.ThreadPool;
@@ -32,6 +34,7 @@ import org.limewire.util.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.util.List;
 import java.util.Map;
@@ -59,6 +62,7 @@ public class HttpDownload extends HttpBTDownload {
     private File saveFile;
     private int md5CheckingProgress;
     private boolean isResumable;
+    private HlsDownloader hls;
 
     HttpDownload(String theURL, String theTitle, String saveFileAs, long fileSize, String md5hash, boolean shouldResume, boolean deleteFileWhenTransferCancelled) {
         super(saveFileAs, fileSize);
@@ -113,6 +117,9 @@ public class HttpDownload extends HttpBTDownload {
                 state = TransferState.CANCELING;
             }
             httpClient.cancel();
+            if (hls != null) {
+                hls.cancel();
+            }
         }
     }
 
@@ -146,6 +153,10 @@ public class HttpDownload extends HttpBTDownload {
     private void start(final boolean resume) {
         state = TransferState.WAITING;
         saveFile = org.apache.commons.io.FileUtils.validFilepathLengthFile(completeFile);
+        if (HlsPlaylist.isHlsUrl(url)) {
+            startHls();
+            return;
+        }
         HTTP_THREAD_POOL.execute(() -> {
             try {
                 File expectedFile = org.apache.commons.io.FileUtils.validFilepathLengthFile(new File(SharingSettings.TORRENT_DATA_DIR_SETTING.getValue(), saveAs));
@@ -176,6 +187,41 @@ public class HttpDownload extends HttpBTDownload {
         });
     }
 
+    /**
+     * HLS streams are fetched segment by segment and can't be resumed, the
+     * size is estimated as segments come in.
+     */
+    private void startHls() {
+        isResumable = false;
+        hls = new HlsDownloader(null, 0);
+        final HlsDownloader downloader = hls;
+        HTTP_THREAD_POOL.execute(() -> {
+            HttpClientListener listener = httpClient.getListener();
+            try {
+                downloader.download(url, incompleteFile, new HlsDownloader.Listener() {
+                    @Override
+                    public void onData(int length) {
+                        synchronized (HttpDownload.this) {
+                            listener.onData(httpClient, null, 0, length);
+                        }
+                    }
+
+                    @Override
+                    public void onSegment(int doneSegments, int totalSegments) {
+                        size = bytesReceived * totalSegments / doneSegments;
+                    }
+                });
+                size = incompleteFile.length();
+                listener.onComplete(httpClient);
+            } catch (InterruptedIOException e) {
+                listener.onCancel(httpClient);
+            } catch (IOException e) {
+                LOG.error(url, e);
+                listener.onError(httpClient, e);
+            }
+        });
+    }
+
     @Override
     void cleanupIncomplete() {
         cleanupFile(incompleteFile);
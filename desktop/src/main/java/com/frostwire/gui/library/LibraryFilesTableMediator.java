@@ -20,6 +20,7 @@ package com.frostwire.gui.library;
 
 import com.frostwire.bittorrent.PaymentOptions;
 import com.frostwire.gui.bittorrent.*;
+import com.frostwire.gui.library.tags.TagsCache;
 import com.frostwire.gui.library.tags.TagsReader;
 import com.frostwire.util.MediaSource;
 import com.frostwire.util.PlaybackUtil;
@@ -313,6 +314,10 @@ final public class LibraryFilesTableMediator extends AbstractLibraryTableMediato
         clearTable();
         BackgroundQueuedExecutorService.schedule(() -> {
             final File[] files = dirHolder.getFiles();
+            TagsCache tagsCache = TagsCache.instance();
+            if (tagsCache != null) {
+                tagsCache.prefetch(Arrays.asList(files));
+            }
             List<List<File>> partitionedFiles = split(Arrays.asList(files));
             for (List<File> partition : partitionedFiles) {
                 final List<File> fPartition = partition;
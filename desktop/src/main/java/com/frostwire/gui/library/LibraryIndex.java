@@ -0,0 +1,520 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.gui.library;
+
+import com.frostwire.util.Logger;
+import org.limewire.util.CommonUtils;
+import org.limewire.util.StringUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistent index of the files under the library directories, so a
+ * library search is a scan of pre-normalized names in memory instead of a
+ * walk of the file system.
+ *
+ * <p>A directory is indexed the first time it is searched. After that the
+ * index is kept current by a {@link WatchService} on every indexed
+ * directory, plus a reconciliation walk every {@link #RECONCILE_INTERVAL_MINUTES}
+ * minutes that catches what the watcher missed (overflows, watch limits,
+ * network drives). Files are kept sorted by path, so searching a directory
+ * only looks at the files under it. The index is saved to
+ * {@code library-index.dat} in the settings directory and reloaded on
+ * startup, then reconciled in the background.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class LibraryIndex {
+    private static final Logger LOG = Logger.getLogger(LibraryIndex.class);
+
+    static final String SNAPSHOT_FILE_NAME = "library-index.dat";
+    private static final int SNAPSHOT_VERSION = 1;
+    static final long RECONCILE_INTERVAL_MINUTES = 15;
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private static final Pattern COMBINING_DIACRITICAL_MARKS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+
+    private static LibraryIndex INSTANCE;
+
+    private final File snapshot;
+    /** Indexed files by absolute path, hidden files and directories excluded. */
+    private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private final Set<File> roots = ConcurrentHashMap.newKeySet();
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final Object indexLock = new Object();
+    private final WatchService watcher;
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean dirty;
+    private volatile boolean closed;
+    private boolean watchLimitLogged;
+
+    LibraryIndex(File snapshot) {
+        this.snapshot = snapshot;
+        this.watcher = newWatchService();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "LibraryIndex-Reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        if (snapshot != null) {
+            load();
+        }
+        if (watcher != null) {
+            Thread t = new Thread(this::watchLoop, "LibraryIndex-Watcher");
+            t.setDaemon(true);
+            t.start();
+        }
+        // the snapshot may be stale and the loaded roots aren't watched yet
+        scheduler.schedule(this::reconcileAll, 0, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::reconcileAll, RECONCILE_INTERVAL_MINUTES, RECONCILE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static synchronized LibraryIndex instance() {
+        if (INSTANCE == null) {
+            INSTANCE = new LibraryIndex(new File(CommonUtils.getUserSettingsDir(), SNAPSHOT_FILE_NAME));
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Saves the index and stops watching, if the index was ever used.
+     */
+    public static synchronized void shutdown() {
+        if (INSTANCE != null) {
+            INSTANCE.close();
+            INSTANCE = null;
+        }
+    }
+
+    /**
+     * Files under {@code dir} whose normalized path contains every token
+     * of {@code query}, skipping {@code excludeFiles}, anything under
+     * {@code excludeDirectories} and files {@code accept} rejects.
+     * Indexes {@code dir} first if it isn't yet.
+     */
+    public List<File> search(File dir, String query, Set<File> excludeFiles, Collection<File> excludeDirectories, Predicate<File> accept) {
+        String root = dir.getAbsolutePath();
+        index(dir);
+        String[] tokens = tokens(query);
+        List<String> excludedPrefixes = new ArrayList<>(excludeDirectories.size());
+        for (File excluded : excludeDirectories) {
+            if (excluded != null) {
+                excludedPrefixes.add(excluded.getAbsolutePath() + File.separator);
+            }
+        }
+        List<File> results = new ArrayList<>();
+        String prefix = root.endsWith(File.separator) ? root : root + File.separator;
+        for (Entry entry : entries.tailMap(prefix).values()) {
+            if (!entry.path.startsWith(prefix)) {
+                break;
+            }
+            if (matches(entry.normalized, tokens) && !startsWithAny(entry.path, excludedPrefixes) &&
+                    !excludeFiles.contains(entry.file) && accept.test(entry.file)) {
+                results.add(entry.file);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Whether {@code file} is an existing, visible file whose normalized
+     * path contains every token; indexed files are answered from the index.
+     */
+    public boolean matches(File file, String[] tokens) {
+        Entry entry = entries.get(file.getAbsolutePath());
+        if (entry != null) {
+            return matches(entry.normalized, tokens);
+        }
+        return file.exists() && !file.isHidden() && matches(normalize(file.getAbsolutePath()), tokens);
+    }
+
+    public static String[] tokens(String query) {
+        return StringUtils.removeDoubleSpaces(normalize(query)).split(" ");
+    }
+
+    static String normalize(String s) {
+        String norm = Normalizer.normalize(s, Normalizer.Form.NFKD);
+        norm = COMBINING_DIACRITICAL_MARKS.matcher(norm).replaceAll("");
+        return norm.toLowerCase(Locale.US);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Indexes and watches {@code dir} unless it, or a directory above it,
+     * already is.
+     */
+    void index(File dir) {
+        File root = dir.getAbsoluteFile();
+        if (isIndexed(root)) {
+            return;
+        }
+        synchronized (indexLock) {
+            if (isIndexed(root)) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            reconcile(root);
+            roots.add(root);
+            LOG.info("Indexed " + root + " in " + (System.currentTimeMillis() - start) + "ms, " + entries.size() + " library files indexed");
+        }
+    }
+
+    private boolean isIndexed(File dir) {
+        for (File f = dir; f != null; f = f.getParentFile()) {
+            if (roots.contains(f)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void reconcileAll() {
+        if (closed) {
+            return;
+        }
+        try {
+            for (File root : new ArrayList<>(roots)) {
+                if (root.isDirectory()) {
+                    reconcile(root);
+                } else {
+                    roots.remove(root);
+                    remove(root.toPath());
+                }
+            }
+            if (dirty) {
+                save();
+            }
+        } catch (Throwable t) {
+            LOG.error("Error reconciling library index", t);
+        }
+    }
+
+    /**
+     * Walks {@code root}, adding and watching what's new and dropping
+     * indexed files that are gone. Indexed names are reused, not
+     * normalized again.
+     */
+    private void reconcile(File root) {
+        String rootPath = root.getAbsolutePath();
+        String prefix = rootPath.endsWith(File.separator) ? rootPath : rootPath + File.separator;
+        Set<String> seen = new HashSet<>();
+        try {
+            Files.walkFileTree(root.toPath(), new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.toFile().equals(root) && isHidden(dir)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    watch(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && !isHidden(file)) {
+                        String path = file.toAbsolutePath().toString();
+                        seen.add(path);
+                        if (!entries.containsKey(path)) {
+                            add(path);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOG.warn("Error walking " + root + ": " + e.getMessage());
+        }
+        for (String path : entries.tailMap(prefix).keySet()) {
+            if (!path.startsWith(prefix)) {
+                break;
+            }
+            // a file created during the walk is indexed by the watcher but not seen
+            if (!seen.contains(path) && !new File(path).exists()) {
+                entries.remove(path);
+                dirty = true;
+            }
+        }
+    }
+
+    private void add(String path) {
+        entries.put(path, new Entry(path));
+        dirty = true;
+    }
+
+    /** Drops {@code path} and, if it was a directory, everything under it. */
+    private void remove(Path path) {
+        String p = path.toAbsolutePath().toString();
+        if (entries.remove(p) != null) {
+            dirty = true;
+        }
+        String prefix = p + File.separator;
+        for (String key : entries.tailMap(prefix).keySet()) {
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            entries.remove(key);
+            dirty = true;
+        }
+    }
+
+    private void watch(Path dir) {
+        if (watcher == null || closed) {
+            return;
+        }
+        try {
+            WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirectories.put(key, dir);
+        } catch (IOException e) {
+            // typically the OS limit on watches, reconciliation covers these directories
+            if (!watchLimitLogged) {
+                watchLimitLogged = true;
+                LOG.warn("Can't watch " + dir + " (" + e.getMessage() + "), relying on periodic reconciliation");
+            }
+        } catch (ClosedWatchServiceException ignored) {
+        }
+    }
+
+    private void watchLoop() {
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = watchedDirectories.get(key);
+            if (dir != null) {
+                try {
+                    onEvents(dir, key.pollEvents());
+                } catch (Throwable t) {
+                    LOG.error("Error updating library index for " + dir, t);
+                }
+            } else {
+                key.pollEvents();
+            }
+            if (!key.reset()) {
+                watchedDirectories.remove(key);
+            }
+        }
+    }
+
+    private void onEvents(Path dir, List<WatchEvent<?>> events) {
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                scheduler.execute(() -> reconcile(dir.toFile()));
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                remove(child);
+            } else if (Files.isDirectory(child)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && !isHidden(child)) {
+                    // files may land in it before it's watched
+                    scheduler.execute(() -> reconcile(child.toFile()));
+                }
+            } else if (Files.isRegularFile(child)) {
+                if (isHidden(child)) {
+                    remove(child);
+                } else if (!entries.containsKey(child.toAbsolutePath().toString())) {
+                    add(child.toAbsolutePath().toString());
+                }
+            }
+        }
+    }
+
+    void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException ignored) {
+            }
+        }
+        // a reconciliation may be saving right now, let it finish before the process exits
+        try {
+            if (!scheduler.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.warn("Library index reconciliation still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (dirty) {
+            save();
+        }
+    }
+
+    /**
+     * Writes the snapshot. Synchronized so a reconciliation and shutdown
+     * never write the temporary file at the same time.
+     */
+    synchronized void save() {
+        if (snapshot == null) {
+            return;
+        }
+        dirty = false;
+        File temp = new File(snapshot.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temp))))) {
+            out.writeInt(SNAPSHOT_VERSION);
+            List<File> rootsCopy = new ArrayList<>(roots);
+            out.writeInt(rootsCopy.size());
+            for (File root : rootsCopy) {
+                out.writeUTF(root.getAbsolutePath());
+            }
+            List<Entry> entriesCopy = new ArrayList<>(entries.values());
+            out.writeInt(entriesCopy.size());
+            for (Entry entry : entriesCopy) {
+                out.writeUTF(entry.path);
+                out.writeUTF(entry.normalized);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            LOG.warn("Can't save library index to " + temp + ": " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            LOG.warn("Can't save library index to " + snapshot + ": " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!snapshot.isFile()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(snapshot))))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                return;
+            }
+            int numRoots = in.readInt();
+            List<File> loadedRoots = new ArrayList<>(numRoots);
+            for (int i = 0; i < numRoots; i++) {
+                loadedRoots.add(new File(in.readUTF()));
+            }
+            int numEntries = in.readInt();
+            for (int i = 0; i < numEntries; i++) {
+                String path = in.readUTF();
+                entries.put(path, new Entry(path, in.readUTF()));
+            }
+            roots.addAll(loadedRoots);
+        } catch (IOException e) {
+            LOG.warn("Ignoring unreadable library index " + snapshot + ": " + e.getMessage());
+            entries.clear();
+            roots.clear();
+        }
+    }
+
+    private static WatchService newWatchService() {
+        try {
+            return FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            LOG.warn("No file system watcher available, library index relies on reconciliation: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isHidden(Path path) {
+        try {
+            return Files.isHidden(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean matches(String normalized, String[] tokens) {
+        for (String token : tokens) {
+            if (!normalized.contains(token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWithAny(String path, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Entry {
+        final String path;
+        final String normalized;
+        final File file;
+
+        Entry(String path) {
+            this(path, normalize(path));
+        }
+
+        Entry(String path, String normalized) {
+            this.path = path;
+            this.normalized = normalized;
+            this.file = new File(path);
+        }
+    }
+}
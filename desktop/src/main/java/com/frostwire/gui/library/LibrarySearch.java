@@ -29,8 +29,6 @@ import com.limegroup.gnutella.gui.search.SearchMediator;
 import com.limegroup.gnutella.gui.util.BackgroundQueuedExecutorService;
 import com.limegroup.gnutella.gui.util.DesktopParallelExecutor;
 import com.limegroup.gnutella.settings.LibrarySettings;
-import org.limewire.util.FileUtils;
-import org.limewire.util.StringUtils;
 
 import javax.swing.*;
 import java.awt.*;
@@ -39,11 +37,10 @@ import java.awt.event.ActionListener;
 import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
 import java.io.File;
-import java.io.FileFilter;
 import java.io.Serial;
-import java.text.Normalizer;
 import java.util.List;
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * @author gubatron
@@ -163,41 +160,6 @@ public class LibrarySearch extends JPanel {
         searchField.setPrompt(string);
     }
 
-    private static final class SearchFileFilter implements FileFilter {
-        private final String[] _tokens;
-
-        SearchFileFilter(String query) {
-            _tokens = StringUtils.removeDoubleSpaces(normalize(query)).split(" ");
-        }
-
-        public boolean accept(File pathname) {
-            return accept(pathname, true);
-        }
-
-        boolean accept(File pathname, boolean includeAllDirectories) {
-            if (!pathname.exists()) {
-                return false;
-            }
-            if (pathname.isDirectory() && includeAllDirectories) {
-                return true;
-            }
-            String name = normalize(pathname.getAbsolutePath());
-            for (String token : _tokens) {
-                if (!name.contains(token)) {
-                    return false;
-                }
-            }
-            return true;
-        }
-
-        private String normalize(String token) {
-            String norm = Normalizer.normalize(token, Normalizer.Form.NFKD);
-            norm = norm.replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
-            norm = norm.toLowerCase(Locale.US);
-            return norm;
-        }
-    }
-
     private class SearchLibraryAction extends AbstractAction {
 
         SearchLibraryAction() {
@@ -317,57 +279,27 @@ public class LibrarySearch extends JPanel {
         }
 
         /**
-         * It searches _query in haystackDir.
+         * It searches _query in haystackDir, from the library index.
          */
         private void search(File haystackDir, Set<File> excludeFiles, Set<File> excludedSubFolders) {
             if (canceled) {
                 return;
             }
-            if (haystackDir == null || !haystackDir.isDirectory() || !haystackDir.exists()) {
+            if (haystackDir == null || !haystackDir.isDirectory()) {
                 return;
             }
-            final List<File> directories = new ArrayList<>();
-            final List<File> results = new ArrayList<>();
-            SearchFileFilter searchFilter = new SearchFileFilter(_query);
-            for (File child : FileUtils.listFiles(haystackDir)) { //haystackDir.listFiles(searchFilter)) {
-                if (canceled) {
-                    return;
-                }
-                /////
-                //Stop search if the user selected another item in the library tree
-                DirectoryHolder currentDirectoryHolder = LibraryMediator.instance().getLibraryExplorer().getSelectedDirectoryHolder();
-                if (!directoryHolder.equals(currentDirectoryHolder)) {
-                    return;
-                }
-                /////
-                if (excludeFiles.contains(child)) {
-                    continue;
-                }
-                if (child.isHidden()) {
-                    continue;
-                }
-                if (child.isDirectory() && !excludedSubFolders.contains(child)) {
-                    directories.add(child);
-                } else if (child.isFile()) {
-                    if (directoryHolder instanceof FileSettingDirectoryHolder) {
-                        if (searchFilter.accept(child, false)) {
-                            results.add(child);
-                        }
-                    } else if (directoryHolder.accept(child)) {
-                        results.add(child);
-                    }
-                }
+            Predicate<File> accept = directoryHolder instanceof FileSettingDirectoryHolder ? f -> true : directoryHolder::accept;
+            final List<File> results = LibraryIndex.instance().search(haystackDir, _query, excludeFiles, excludedSubFolders, accept);
+            //Stop search if the user selected another item in the library tree
+            if (canceled || !directoryHolder.equals(LibraryMediator.instance().getLibraryExplorer().getSelectedDirectoryHolder())) {
+                return;
             }
-            Runnable r = () -> {
+            GUIMediator.safeInvokeLater(() -> {
                 LibraryMediator.instance().addFilesToLibraryTable(results);
                 if (directoryHolder instanceof SavedFilesDirectoryHolder) {
                     LibraryFilesTableMediator.instance().resetAudioPlayerFileView();
                 }
-            };
-            GUIMediator.safeInvokeLater(r);
-            for (File directory : directories) {
-                search(directory, excludeFiles, excludedSubFolders);
-            }
+            });
         }
 
         private void search(List<File> cache) {
@@ -375,25 +307,20 @@ public class LibrarySearch extends JPanel {
                 return;
             }
             final List<File> results = new ArrayList<>();
-            SearchFileFilter searchFilter = new SearchFileFilter(_query);
+            LibraryIndex index = LibraryIndex.instance();
+            String[] tokens = LibraryIndex.tokens(_query);
             for (File file : cache) {
                 if (canceled) {
                     return;
                 }
-                /////
-                //Stop search if the user selected another item in the library tree
-                DirectoryHolder currentDirectoryHolder = LibraryMediator.instance().getLibraryExplorer().getSelectedDirectoryHolder();
-                if (!directoryHolder.equals(currentDirectoryHolder)) {
-                    return;
-                }
-                /////
-                if (file.isHidden()) {
-                    continue;
-                }
-                if (searchFilter.accept(file)) {
+                if (index.matches(file, tokens)) {
                     results.add(file);
                 }
             }
+            //Stop search if the user selected another item in the library tree
+            if (!directoryHolder.equals(LibraryMediator.instance().getLibraryExplorer().getSelectedDirectoryHolder())) {
+                return;
+            }
             GUIMediator.safeInvokeLater(() -> LibraryMediator.instance().addFilesToLibraryTable(results));
         }
     }
@@ -0,0 +1,476 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.gui.library.tags;
+
+import com.frostwire.util.Hex;
+import com.frostwire.util.Logger;
+import com.frostwire.util.ThreadPool;
+import org.limewire.util.CommonUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * SQLite backed cache of parsed tags and artwork thumbnails, so a file is
+ * only run through its {@link TagsParser} again after it changed.
+ *
+ * <p>Rows are keyed by absolute path and only valid for the size and
+ * modification time the file had when parsed; a changed file misses and
+ * its row is replaced on the next read. Artwork is stored downscaled to
+ * {@link #ARTWORK_THUMBNAIL_SIZE} pixels as JPEG, once per distinct image,
+ * since the tracks of an album usually share it. Rows of deleted files are
+ * pruned in the background when the cache is opened.
+ *
+ * <p>{@link #prefetch} parses files ahead of time on a small bounded pool;
+ * a new prefetch replaces whatever the previous one hadn't done yet.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class TagsCache implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(TagsCache.class);
+
+    public static final String DEFAULT_DB_NAME = "frostwire-tags-cache.db";
+    static final int ARTWORK_THUMBNAIL_SIZE = 350;
+    private static final int PREFETCH_THREADS = 2;
+    private static final int PREFETCH_MAX_QUEUED = 1024;
+
+    private static final int ARTWORK_UNKNOWN = 0;
+    private static final int ARTWORK_NONE = 1;
+    private static final int ARTWORK_PRESENT = 2;
+
+    private static final String CREATE_TAGS_SQL =
+            "CREATE TABLE IF NOT EXISTS tags (" +
+                    "path TEXT PRIMARY KEY, " +
+                    "size INTEGER NOT NULL, " +
+                    "mtime INTEGER NOT NULL, " +
+                    "parsed INTEGER NOT NULL DEFAULT 0, " +
+                    "duration INTEGER, bitrate TEXT, title TEXT, artist TEXT, album TEXT, " +
+                    "comment TEXT, genre TEXT, track TEXT, year TEXT, lyrics TEXT, " +
+                    "artwork_state INTEGER NOT NULL DEFAULT " + ARTWORK_UNKNOWN + ", " +
+                    "artwork_id TEXT" +
+                    ")";
+
+    private static final String CREATE_ARTWORK_SQL =
+            "CREATE TABLE IF NOT EXISTS artwork (id TEXT PRIMARY KEY, data BLOB NOT NULL)";
+
+    /** Creates the row of a file, or resets it if the file changed since. */
+    private static final String ENSURE_ROW_SQL =
+            "INSERT INTO tags (path, size, mtime) VALUES (?,?,?) " +
+                    "ON CONFLICT(path) DO UPDATE SET size = excluded.size, mtime = excluded.mtime, " +
+                    "parsed = 0, artwork_state = " + ARTWORK_UNKNOWN + ", artwork_id = NULL " +
+                    "WHERE size <> excluded.size OR mtime <> excluded.mtime";
+
+    private static volatile TagsCache INSTANCE;
+    private static final AtomicBoolean openFailed = new AtomicBoolean();
+
+    private final Connection connection;
+    private final ThreadPool prefetchPool;
+    private final AtomicBoolean open = new AtomicBoolean(false);
+
+    private TagsCache(File dbFile) {
+        try {
+            File parent = dbFile.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IllegalStateException("Could not create database directory: " + parent);
+            }
+            connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+            try (Statement s = connection.createStatement()) {
+                s.execute("PRAGMA journal_mode = WAL");
+                s.execute("PRAGMA synchronous = NORMAL");
+                s.execute(CREATE_TAGS_SQL);
+                s.execute(CREATE_ARTWORK_SQL);
+            }
+            open.set(true);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to open TagsCache at " + dbFile, e);
+        }
+        prefetchPool = new ThreadPool("TagsCache", PREFETCH_THREADS, PREFETCH_THREADS, 30, new ArrayBlockingQueue<>(PREFETCH_MAX_QUEUED), true);
+        prefetchPool.allowCoreThreadTimeOut(true);
+        prefetchPool.execute(this::pruneDeletedFiles);
+    }
+
+    public static TagsCache open(File dbFile) {
+        return new TagsCache(dbFile);
+    }
+
+    /**
+     * @return the cache in the settings directory, or null if it can't be
+     * opened, in which case tags are parsed every time
+     */
+    public static TagsCache instance() {
+        TagsCache cache = INSTANCE;
+        if (cache == null && !openFailed.get()) {
+            synchronized (TagsCache.class) {
+                if (INSTANCE == null && !openFailed.get()) {
+                    try {
+                        INSTANCE = open(new File(CommonUtils.getUserSettingsDir(), DEFAULT_DB_NAME));
+                    } catch (Throwable t) {
+                        openFailed.set(true);
+                        LOG.error("Tags cache not available, parsing tags on every read", t);
+                    }
+                }
+                cache = INSTANCE;
+            }
+        }
+        return cache;
+    }
+
+    public static synchronized void shutdown() {
+        if (INSTANCE != null) {
+            INSTANCE.close();
+            INSTANCE = null;
+        }
+    }
+
+    public boolean isOpen() {
+        return open.get();
+    }
+
+    @Override
+    public void close() {
+        if (!open.compareAndSet(true, false)) {
+            return;
+        }
+        prefetchPool.shutdownNow();
+        synchronized (connection) {
+            try {
+                connection.close();
+            } catch (Throwable t) {
+                LOG.warn("Error closing connection", t);
+            }
+        }
+    }
+
+    /**
+     * The cached tags of {@code file}, or what {@code parser} returns,
+     * which is then cached.
+     */
+    TagsData getTags(File file, Supplier<TagsData> parser) {
+        Key key = Key.of(file);
+        if (key == null || !open.get()) {
+            return parser.get();
+        }
+        try {
+            TagsData cached = readTags(key);
+            if (cached != null) {
+                return cached;
+            }
+        } catch (SQLException e) {
+            LOG.warn("Error reading cached tags of " + file + ": " + e.getMessage());
+        }
+        TagsData data = parser.get();
+        if (data != null) {
+            try {
+                writeTags(key, data);
+            } catch (SQLException e) {
+                LOG.warn("Error caching tags of " + file + ": " + e.getMessage());
+            }
+        }
+        return data;
+    }
+
+    /**
+     * The cached artwork thumbnail of {@code file}, or what {@code parser}
+     * returns, whose thumbnail is then cached. Files without artwork are
+     * remembered too.
+     */
+    BufferedImage getArtwork(File file, Supplier<BufferedImage> parser) {
+        Key key = Key.of(file);
+        if (key == null || !open.get()) {
+            return parser.get();
+        }
+        try {
+            int[] state = new int[1];
+            byte[] thumbnail = readArtwork(key, state);
+            if (state[0] == ARTWORK_NONE) {
+                return null;
+            }
+            if (thumbnail != null) {
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(thumbnail));
+                if (image != null) {
+                    return image;
+                }
+            }
+        } catch (SQLException | IOException e) {
+            LOG.warn("Error reading cached artwork of " + file + ": " + e.getMessage());
+        }
+        BufferedImage image = parser.get();
+        try {
+            writeArtwork(key, image != null ? thumbnail(image) : null);
+        } catch (SQLException | IOException e) {
+            LOG.warn("Error caching artwork of " + file + ": " + e.getMessage());
+        }
+        return image;
+    }
+
+    /**
+     * Parses the tags and artwork of the files that aren't cached yet in
+     * the background, dropping what an earlier call left pending.
+     */
+    public void prefetch(Collection<File> files) {
+        if (!open.get()) {
+            return;
+        }
+        prefetchPool.getQueue().clear();
+        for (File file : files) {
+            if (!TagsReader.isSupported(file)) {
+                continue;
+            }
+            try {
+                prefetchPool.execute(() -> {
+                    if (open.get() && !isCached(file)) {
+                        TagsReader reader = new TagsReader(file, this);
+                        reader.parse();
+                        reader.getArtwork();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // queue full, the rest is parsed when shown
+                return;
+            }
+        }
+    }
+
+    /** Whether both the tags and the artwork of {@code file} are cached and current. */
+    boolean isCached(File file) {
+        Key key = Key.of(file);
+        if (key == null) {
+            return false;
+        }
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT parsed, artwork_state FROM tags WHERE path = ? AND size = ? AND mtime = ?")) {
+                key.bind(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() && rs.getInt(1) == 1 && rs.getInt(2) != ARTWORK_UNKNOWN;
+                }
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+
+    int size() {
+        synchronized (connection) {
+            try (Statement s = connection.createStatement();
+                 ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM tags")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            } catch (SQLException e) {
+                return 0;
+            }
+        }
+    }
+
+    private TagsData readTags(Key key) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT duration, bitrate, title, artist, album, comment, genre, track, year, lyrics " +
+                            "FROM tags WHERE path = ? AND size = ? AND mtime = ? AND parsed = 1")) {
+                key.bind(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    return new TagsData(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                            rs.getString(6), rs.getString(7), rs.getString(8), rs.getString(9), rs.getString(10));
+                }
+            }
+        }
+    }
+
+    private void writeTags(Key key, TagsData data) throws SQLException {
+        synchronized (connection) {
+            ensureRow(key);
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "UPDATE tags SET parsed = 1, duration = ?, bitrate = ?, title = ?, artist = ?, album = ?, " +
+                            "comment = ?, genre = ?, track = ?, year = ?, lyrics = ? WHERE path = ?")) {
+                ps.setInt(1, data.getDuration());
+                ps.setString(2, data.getBitrate());
+                ps.setString(3, data.getTitle());
+                ps.setString(4, data.getArtist());
+                ps.setString(5, data.getAlbum());
+                ps.setString(6, data.getComment());
+                ps.setString(7, data.getGenre());
+                ps.setString(8, data.getTrack());
+                ps.setString(9, data.getYear());
+                ps.setString(10, data.getLyrics());
+                ps.setString(11, key.path);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private byte[] readArtwork(Key key, int[] state) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT t.artwork_state, a.data FROM tags t LEFT JOIN artwork a ON a.id = t.artwork_id " +
+                            "WHERE t.path = ? AND t.size = ? AND t.mtime = ?")) {
+                key.bind(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    state[0] = rs.getInt(1);
+                    return rs.getBytes(2);
+                }
+            }
+        }
+    }
+
+    private void writeArtwork(Key key, byte[] thumbnail) throws SQLException {
+        String id = thumbnail != null ? sha1(thumbnail) : null;
+        synchronized (connection) {
+            ensureRow(key);
+            if (id != null) {
+                try (PreparedStatement ps = connection.prepareStatement("INSERT OR IGNORE INTO artwork (id, data) VALUES (?,?)")) {
+                    ps.setString(1, id);
+                    ps.setBytes(2, thumbnail);
+                    ps.executeUpdate();
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement("UPDATE tags SET artwork_state = ?, artwork_id = ? WHERE path = ?")) {
+                ps.setInt(1, id != null ? ARTWORK_PRESENT : ARTWORK_NONE);
+                ps.setString(2, id);
+                ps.setString(3, key.path);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private void ensureRow(Key key) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(ENSURE_ROW_SQL)) {
+            key.bind(ps);
+            ps.executeUpdate();
+        }
+    }
+
+    void pruneDeletedFiles() {
+        try {
+            List<String> paths = new ArrayList<>();
+            synchronized (connection) {
+                try (Statement s = connection.createStatement();
+                     ResultSet rs = s.executeQuery("SELECT path FROM tags")) {
+                    while (rs.next()) {
+                        paths.add(rs.getString(1));
+                    }
+                }
+            }
+            List<String> deleted = new ArrayList<>();
+            for (String path : paths) {
+                if (!new File(path).exists()) {
+                    deleted.add(path);
+                }
+            }
+            synchronized (connection) {
+                try (PreparedStatement ps = connection.prepareStatement("DELETE FROM tags WHERE path = ?")) {
+                    for (String path : deleted) {
+                        ps.setString(1, path);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                try (Statement s = connection.createStatement()) {
+                    s.executeUpdate("DELETE FROM artwork WHERE id NOT IN (SELECT artwork_id FROM tags WHERE artwork_id IS NOT NULL)");
+                }
+            }
+        } catch (SQLException e) {
+            if (open.get()) {
+                LOG.warn("Error pruning tags cache: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * JPEG of {@code image} scaled to fit {@link #ARTWORK_THUMBNAIL_SIZE}.
+     */
+    static byte[] thumbnail(BufferedImage image) throws IOException {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        double scale = Math.min(1.0, (double) ARTWORK_THUMBNAIL_SIZE / Math.max(w, h));
+        int tw = Math.max(1, (int) Math.round(w * scale));
+        int th = Math.max(1, (int) Math.round(h * scale));
+        BufferedImage thumbnail = new BufferedImage(tw, th, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = thumbnail.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, tw, th, null);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(thumbnail, "jpg", out)) {
+            throw new IOException("No JPEG writer available");
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha1(byte[] data) {
+        try {
+            return Hex.encode(MessageDigest.getInstance("SHA-1").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Key {
+        final String path;
+        final long size;
+        final long mtime;
+
+        private Key(String path, long size, long mtime) {
+            this.path = path;
+            this.size = size;
+            this.mtime = mtime;
+        }
+
+        /** null if the file doesn't exist, nothing to cache then. */
+        static Key of(File file) {
+            long mtime = file.lastModified();
+            if (mtime == 0) {
+                return null;
+            }
+            return new Key(file.getAbsolutePath(), file.length(), mtime);
+        }
+
+        void bind(PreparedStatement ps) throws SQLException {
+            ps.setString(1, path);
+            ps.setLong(2, size);
+            ps.setLong(3, mtime);
+        }
+    }
+}
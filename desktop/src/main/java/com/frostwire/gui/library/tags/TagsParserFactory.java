@@ -55,6 +55,12 @@ class TagsParserFactory {
         }
     }
 
+    static boolean isSupported(File file) {
+        String ext = FilenameUtils.getExtension(file.getName());
+        return MP3_EXTENSIONS.contains(ext) || M4A_EXTENSIONS.contains(ext) || MP4_EXTENSIONS.contains(ext) ||
+                OGG_EXTENSIONS.contains(ext) || FLAC_EXTENSIONS.contains(ext) || JAUDIOTAGGER_EXTENSIONS.contains(ext);
+    }
+
     private boolean isMP3(String ext) {
         return MP3_EXTENSIONS.contains(ext);
     }
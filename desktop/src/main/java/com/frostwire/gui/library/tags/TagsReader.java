@@ -30,15 +30,48 @@ import java.io.File;
 public class TagsReader {
     private static final Logger LOG = Logger.getLogger(TagsReader.class);
     private final File file;
-    private final TagsParser parser;
+    private final TagsCache cache;
+    private TagsParser parser;
+    private boolean parserCreated;
 
     public TagsReader(File file) {
+        this(file, TagsCache.instance());
+    }
+
+    /**
+     * @param cache where parsed tags and artwork are cached, null to always parse
+     */
+    TagsReader(File file, TagsCache cache) {
         this.file = file;
-        parser = new TagsParserFactory().getInstance(file);
+        this.cache = cache;
+    }
+
+    /**
+     * Whether there's a tags parser for this kind of file.
+     */
+    public static boolean isSupported(File file) {
+        return TagsParserFactory.isSupported(file);
     }
 
     public TagsData parse() {
+        return cache != null ? cache.getTags(file, this::parseFile) : parseFile();
+    }
+
+    public BufferedImage getArtwork() {
+        return cache != null ? cache.getArtwork(file, this::readArtwork) : readArtwork();
+    }
+
+    private TagsParser parser() {
+        if (!parserCreated) {
+            parser = new TagsParserFactory().getInstance(file);
+            parserCreated = true;
+        }
+        return parser;
+    }
+
+    private TagsData parseFile() {
         TagsData data = null;
+        TagsParser parser = parser();
         if (parser != null) {
             data = parser.parse();
         } else {
@@ -47,8 +80,9 @@ public class TagsReader {
         return data;
     }
 
-    public BufferedImage getArtwork() {
+    private BufferedImage readArtwork() {
         BufferedImage image = null;
+        TagsParser parser = parser();
         if (parser != null) {
             image = parser.getArtwork();
         } else {
@@ -0,0 +1,271 @@
+package com.frostwire.mcp.desktop.state;
+
+import com.frostwire.search.CompositeFileSearchResult;
+import com.frostwire.search.HttpSearchResult;
+import com.frostwire.search.SearchResult;
+import com.frostwire.search.torrent.TorrentSearchResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+public class SearchResultStore {
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private static final Comparator<Entry> RANKING = (a, b) -> {
+        int c = Double.compare(b.score, a.score);
+        return c != 0 ? c : Long.compare(a.sequence, b.sequence);
+    };
+
+    private final int capacity;
+    private final ToDoubleFunction<SearchResult> scorer;
+    private final Map<String, Entry> byKey = new HashMap<>();
+    private final TreeSet<Entry> ranked = new TreeSet<>(RANKING);
+    private long sequence;
+    private long duplicates;
+    private long evicted;
+
+    public SearchResultStore(int capacity, ToDoubleFunction<SearchResult> scorer) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.scorer = scorer;
+    }
+
+    public synchronized void addAll(List<? extends SearchResult> results) {
+        for (SearchResult sr : results) {
+            add(sr);
+        }
+    }
+
+    private void add(SearchResult sr) {
+        String key = key(sr);
+        double score = scorer.applyAsDouble(sr);
+        Entry existing = byKey.get(key);
+        if (existing != null) {
+            duplicates++;
+            if (score > existing.score) {
+                // same result from a better source, it takes the place of the first one: moving it
+                // would skip or repeat it in the pages of an open cursor
+                ranked.remove(existing);
+                Entry better = new Entry(sr, key, existing.score, existing.sequence);
+                byKey.put(key, better);
+                ranked.add(better);
+            }
+            return;
+        }
+        Entry entry = new Entry(sr, key, score, sequence++);
+        if (ranked.size() >= capacity) {
+            Entry lowest = ranked.last();
+            if (RANKING.compare(entry, lowest) > 0) {
+                evicted++;
+                return;
+            }
+            ranked.pollLast();
+            byKey.remove(lowest.key);
+            evicted++;
+        }
+        byKey.put(key, entry);
+        ranked.add(entry);
+    }
+
+    public synchronized int size() {
+        return ranked.size();
+    }
+
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    public synchronized long getEvicted() {
+        return evicted;
+    }
+
+    public synchronized List<SearchResult> snapshot() {
+        List<SearchResult> results = new ArrayList<>(ranked.size());
+        for (Entry e : ranked) {
+            results.add(e.result);
+        }
+        return results;
+    }
+
+    public synchronized Page page(String cursor, int limit, Predicate<SearchResult> filter) {
+        NavigableSet<Entry> from = ranked;
+        // resumes right after the last result returned, results arriving between pages don't shift it
+        if (cursor != null) {
+            String[] parts = decodeCursor(cursor, "s", 3);
+            try {
+                double score = Double.longBitsToDouble(Long.parseUnsignedLong(parts[1], 16));
+                long seq = Long.parseLong(parts[2]);
+                from = ranked.tailSet(new Entry(null, null, score, seq), false);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        List<SearchResult> results = new ArrayList<>(Math.min(limit, ranked.size()));
+        Entry last = null;
+        boolean more = false;
+        for (Entry e : from) {
+            if (!filter.test(e.result)) {
+                continue;
+            }
+            if (results.size() == limit) {
+                more = true;
+                break;
+            }
+            results.add(e.result);
+            last = e;
+        }
+        String next = more ? encodeCursor("s", Long.toHexString(Double.doubleToLongBits(last.score)), String.valueOf(last.sequence)) : null;
+        return new Page(results, count(filter), next);
+    }
+
+    public Page sortedPage(Comparator<SearchResult> order, String sortKey, String cursor, int limit, Predicate<SearchResult> filter) {
+        int offset = 0;
+        if (cursor != null) {
+            String[] parts = decodeCursor(cursor, "o", 3);
+            if (!parts[1].equals(sortKey)) {
+                throw new IllegalArgumentException("Cursor belongs to another sort order");
+            }
+            try {
+                offset = Integer.parseInt(parts[2]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        return sortedPage(order, sortKey, offset, limit, filter);
+    }
+
+    public Page sortedPage(Comparator<SearchResult> order, String sortKey, int offset, int limit, Predicate<SearchResult> filter) {
+        List<SearchResult> results = snapshot();
+        results.removeIf(filter.negate());
+        if (order != null) {
+            results.sort(order);
+        }
+        int total = results.size();
+        int from = Math.max(0, Math.min(offset, total));
+        int to = Math.min(from + limit, total);
+        String next = to < total ? encodeCursor("o", sortKey, String.valueOf(to)) : null;
+        return new Page(new ArrayList<>(results.subList(from, to)), total, next);
+    }
+
+    private int count(Predicate<SearchResult> filter) {
+        int count = 0;
+        for (Entry e : ranked) {
+            if (filter.test(e.result)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String encodeCursor(String... parts) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(String.join(":", parts).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor, String type, int length) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != length || !parts[0].equals(type)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return parts;
+    }
+
+    static String key(SearchResult sr) {
+        if (sr instanceof TorrentSearchResult) {
+            String hash = ((TorrentSearchResult) sr).getHash();
+            if (hash != null && !hash.isEmpty()) {
+                return "btih:" + hash.toLowerCase(Locale.US);
+            }
+        } else if (sr instanceof CompositeFileSearchResult) {
+            CompositeFileSearchResult csr = (CompositeFileSearchResult) sr;
+            String hash = csr.getTorrentHash().orElse(null);
+            if (hash != null && !hash.isEmpty()) {
+                return "btih:" + hash.toLowerCase(Locale.US);
+            }
+            String url = csr.getHttpDownloadUrl().orElse(null);
+            if (url != null) {
+                return "url:" + url;
+            }
+        } else if (sr instanceof HttpSearchResult) {
+            String url = ((HttpSearchResult) sr).getDownloadUrl();
+            if (url != null) {
+                return "url:" + url;
+            }
+        }
+        return "details:" + sr.getDetailsUrl() + "#" + sr.getDisplayName();
+    }
+
+    public static ToDoubleFunction<SearchResult> relevanceScorer(String keywords) {
+        String[] tokens = keywords == null ? new String[0] : keywords.toLowerCase(Locale.US).trim().split("\\s+");
+        return sr -> {
+            String name = sr.getDisplayName() != null ? sr.getDisplayName().toLowerCase(Locale.US) : "";
+            int matched = 0;
+            int total = 0;
+            for (String token : tokens) {
+                if (!token.isEmpty()) {
+                    total++;
+                    if (name.contains(token)) {
+                        matched++;
+                    }
+                }
+            }
+            double relevance = total == 0 ? 1 : (double) matched / total;
+            int seeds = seeds(sr);
+            // cloud results count as a few seeds so they don't sink under poor torrent matches
+            double popularity = seeds >= 0 ? Math.log10(1 + seeds) : 0.5;
+            return relevance * 10 + popularity;
+        };
+    }
+
+    public static int seeds(SearchResult sr) {
+        if (sr instanceof TorrentSearchResult) {
+            return ((TorrentSearchResult) sr).getSeeds();
+        }
+        if (sr instanceof CompositeFileSearchResult) {
+            return ((CompositeFileSearchResult) sr).getSeeds().orElse(-1);
+        }
+        return -1;
+    }
+
+    public static final class Page {
+        public final List<SearchResult> results;
+        public final int total;
+        public final String nextCursor;
+
+        Page(List<SearchResult> results, int total, String nextCursor) {
+            this.results = results;
+            this.total = total;
+            this.nextCursor = nextCursor;
+        }
+    }
+
+    private static final class Entry {
+        final SearchResult result;
+        final String key;
+        final double score;
+        final long sequence;
+
+        Entry(SearchResult result, String key, double score, long sequence) {
+            this.result = result;
+            this.key = key;
+            this.score = score;
+            this.sequence = sequence;
+        }
+    }
+}
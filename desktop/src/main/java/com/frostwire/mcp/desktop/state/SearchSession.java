@@ -3,24 +3,25 @@ package com.frostwire.mcp.desktop.state;
 import com.frostwire.search.ISearchPerformer;
 import com.frostwire.search.SearchResult;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 public class SearchSession {
     private final long token;
     private final String keywords;
     private final List<ISearchPerformer> performers;
-    private final List<SearchResult> results = Collections.synchronizedList(new ArrayList<>());
+    private final SearchResultStore results;
     private volatile boolean complete;
     private volatile String error;
     private final long createdAt;
+    private volatile long lastAccessedAt;
 
     public SearchSession(long token, String keywords, List<ISearchPerformer> performers) {
         this.token = token;
         this.keywords = keywords;
         this.performers = performers;
+        this.results = new SearchResultStore(SearchResultStore.DEFAULT_CAPACITY, SearchResultStore.relevanceScorer(keywords));
         this.createdAt = System.currentTimeMillis();
+        this.lastAccessedAt = createdAt;
     }
 
     public void addResults(List<? extends SearchResult> newResults) {
@@ -44,7 +45,15 @@ public class SearchSession {
     }
 
     public List<SearchResult> getResults() {
-        return Collections.unmodifiableList(results);
+        return results.snapshot();
+    }
+
+    public int getResultCount() {
+        return results.size();
+    }
+
+    public SearchResultStore getResultStore() {
+        return results;
     }
 
     public boolean isComplete() {
@@ -59,6 +68,14 @@ public class SearchSession {
         return createdAt;
     }
 
+    public long getLastAccessedAt() {
+        return lastAccessedAt;
+    }
+
+    public void touch() {
+        lastAccessedAt = System.currentTimeMillis();
+    }
+
     public boolean allPerformersStopped() {
         for (ISearchPerformer p : performers) {
             if (!p.isStopped()) {
@@ -11,16 +11,27 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class SearchSessionManager implements SearchListener {
     private static final SearchSessionManager INSTANCE = new SearchSessionManager();
     private static final long SESSION_TTL_MS = 10 * 60 * 1000L;
+    private static final long CLEANUP_INTERVAL_MS = 60 * 1000L;
+    private static final int MAX_SESSIONS = 32;
 
     private final Map<Long, SearchSession> sessions = new ConcurrentHashMap<>();
     private final AtomicLong tokenCounter = new AtomicLong(1);
+    private final ScheduledExecutorService cleanupScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "MCP-Search-Sessions-Cleanup");
+        t.setDaemon(true);
+        return t;
+    });
 
     private SearchSessionManager() {
+        cleanupScheduler.scheduleWithFixedDelay(this::cleanup, CLEANUP_INTERVAL_MS, CLEANUP_INTERVAL_MS, TimeUnit.MILLISECONDS);
     }
 
     public static SearchSessionManager instance() {
@@ -49,6 +60,7 @@ public class SearchSessionManager implements SearchListener {
         }
         SearchSession session = new SearchSession(token, keywords, performers);
         sessions.put(token, session);
+        evictLeastRecentlyUsed(token);
         for (ISearchPerformer performer : performers) {
             SearchManager.getInstance().perform(performer);
         }
@@ -56,7 +68,11 @@ public class SearchSessionManager implements SearchListener {
     }
 
     public SearchSession getSession(long token) {
-        return sessions.get(token);
+        SearchSession session = sessions.get(token);
+        if (session != null) {
+            session.touch();
+        }
+        return session;
     }
 
     @Override
@@ -85,9 +101,32 @@ public class SearchSessionManager implements SearchListener {
 
     public void cleanup() {
         long now = System.currentTimeMillis();
-        sessions.entrySet().removeIf(entry -> {
-            SearchSession session = entry.getValue();
-            return session.isComplete() && (now - session.getCreatedAt()) > SESSION_TTL_MS;
+        sessions.values().removeIf(session -> {
+            if (now - session.getLastAccessedAt() <= SESSION_TTL_MS) {
+                return false;
+            }
+            // nobody is reading it anymore, stop the engines still feeding it
+            if (!session.isComplete()) {
+                session.cancel();
+            }
+            return true;
         });
     }
+
+    private synchronized void evictLeastRecentlyUsed(long keepToken) {
+        while (sessions.size() > MAX_SESSIONS) {
+            SearchSession oldest = null;
+            for (SearchSession session : sessions.values()) {
+                if (session.getToken() != keepToken && (oldest == null || session.getLastAccessedAt() < oldest.getLastAccessedAt())) {
+                    oldest = session;
+                }
+            }
+            if (oldest == null || sessions.remove(oldest.getToken()) == null) {
+                return;
+            }
+            if (!oldest.isComplete()) {
+                oldest.cancel();
+            }
+        }
+    }
 }
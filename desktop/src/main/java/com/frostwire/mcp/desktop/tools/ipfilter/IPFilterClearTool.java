@@ -1,12 +1,10 @@
 package com.frostwire.mcp.desktop.tools.ipfilter;
 
-import com.frostwire.bittorrent.BTEngine;
-import com.frostwire.jlibtorrent.swig.ip_filter;
 import com.frostwire.mcp.MCPTool;
 import com.frostwire.util.Logger;
 import com.google.gson.JsonObject;
 import com.limegroup.gnutella.gui.options.panes.IPFilterTableMediator;
-import org.limewire.util.CommonUtils;
+import com.limegroup.gnutella.gui.options.panes.ipfilter.IPFilterStore;
 
 import java.io.File;
 import java.io.IOException;
@@ -40,7 +38,7 @@ public class IPFilterClearTool implements MCPTool {
         IPFilterTableMediator tableMediator = IPFilterTableMediator.getInstance();
         tableMediator.clearTable();
 
-        File ipFilterDBFile = new File(CommonUtils.getUserSettingsDir(), "ip_filter.db");
+        File ipFilterDBFile = IPFilterStore.dbFile();
         ipFilterDBFile.delete();
         try {
             ipFilterDBFile.createNewFile();
@@ -48,11 +46,7 @@ public class IPFilterClearTool implements MCPTool {
             LOG.warn("IPFilterClearTool: Could not recreate ip_filter.db: " + e.getMessage());
         }
 
-        BTEngine engine = BTEngine.getInstance();
-        if (engine != null && engine.swig() != null) {
-            ip_filter freshFilter = new ip_filter();
-            engine.swig().set_ip_filter(freshFilter);
-        }
+        IPFilterStore.clear();
 
         result.addProperty("cleared", true);
         return result;
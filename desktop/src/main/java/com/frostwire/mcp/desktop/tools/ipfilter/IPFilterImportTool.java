@@ -1,9 +1,5 @@
 package com.frostwire.mcp.desktop.tools.ipfilter;
 
-import com.frostwire.bittorrent.BTEngine;
-import com.frostwire.jlibtorrent.swig.address;
-import com.frostwire.jlibtorrent.swig.error_code;
-import com.frostwire.jlibtorrent.swig.ip_filter;
 import com.frostwire.mcp.MCPTool;
 import com.frostwire.regex.Matcher;
 import com.frostwire.regex.Pattern;
@@ -11,6 +7,7 @@ import com.frostwire.util.Logger;
 import com.frostwire.util.http.JdkHttpClient;
 import com.google.gson.JsonObject;
 import com.limegroup.gnutella.gui.options.panes.IPFilterTableMediator;
+import com.limegroup.gnutella.gui.options.panes.ipfilter.IPFilterStore;
 import com.limegroup.gnutella.gui.options.panes.ipfilter.IPRange;
 import com.limegroup.gnutella.gui.tables.DataLineModel;
 import org.limewire.util.CommonUtils;
@@ -165,15 +162,6 @@ public class IPFilterImportTool implements MCPTool {
     private int importP2PFile(File file) {
         IPFilterTableMediator tableMediator = IPFilterTableMediator.getInstance();
         DataLineModel<IPFilterTableMediator.IPFilterDataLine, IPRange> dataModel = tableMediator.getDataModel();
-        BTEngine engine = BTEngine.getInstance();
-        ip_filter currentFilter = null;
-        if (engine != null && engine.swig() != null) {
-            try {
-                currentFilter = engine.swig().get_ip_filter();
-            } catch (Exception e) {
-                LOG.warn("IPFilterImportTool: Could not get ip_filter from BTEngine: " + e.getMessage());
-            }
-        }
 
         int imported = 0;
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
@@ -191,16 +179,6 @@ public class IPFilterImportTool implements MCPTool {
                     try {
                         IPRange ipRange = new IPRange(description, startAddr, endAddr);
                         dataModel.add(ipRange, dataModel.getRowCount());
-                        if (currentFilter != null) {
-                            error_code ec = new error_code();
-                            address addrStart = address.from_string(startAddr, ec);
-                            if (!ec.failed()) {
-                                address addrEnd = address.from_string(endAddr, ec);
-                                if (!ec.failed()) {
-                                    currentFilter.add_rule(addrStart, addrEnd, ip_filter.access_flags.blocked.swigValue());
-                                }
-                            }
-                        }
                         imported++;
                     } catch (Exception e) {
                         LOG.warn("IPFilterImportTool: Skipping invalid range: " + line);
@@ -211,22 +189,19 @@ public class IPFilterImportTool implements MCPTool {
             LOG.error("IPFilterImportTool: Error reading blocklist file: " + e.getMessage(), e);
         }
 
-        if (engine != null && currentFilter != null) {
-            try {
-                engine.swig().set_ip_filter(currentFilter);
-            } catch (Exception e) {
-                LOG.error("IPFilterImportTool: Error setting ip_filter on BTEngine: " + e.getMessage(), e);
-            }
-        }
-
         tableMediator.refresh();
         persistFilter(dataModel);
+        try {
+            IPFilterStore.saveAndApply(IPFilterStore.compile(IPFilterStore.dbFile()));
+        } catch (Exception e) {
+            LOG.error("IPFilterImportTool: Error applying ip filter: " + e.getMessage(), e);
+        }
 
         return imported;
     }
 
     private void persistFilter(DataLineModel<IPFilterTableMediator.IPFilterDataLine, IPRange> dataModel) {
-        File ipFilterDBFile = new File(CommonUtils.getUserSettingsDir(), "ip_filter.db");
+        File ipFilterDBFile = IPFilterStore.dbFile();
         try (FileOutputStream fos = new FileOutputStream(ipFilterDBFile)) {
             int count = dataModel.getRowCount();
             for (int i = 0; i < count; i++) {
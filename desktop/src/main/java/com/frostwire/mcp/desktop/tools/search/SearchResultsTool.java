@@ -3,21 +3,22 @@ package com.frostwire.mcp.desktop.tools.search;
 import com.frostwire.mcp.MCPTool;
 import com.frostwire.mcp.desktop.adapters.SearchAdapter;
 import com.frostwire.mcp.desktop.state.SearchSession;
+import com.frostwire.mcp.desktop.state.SearchResultStore;
 import com.frostwire.mcp.desktop.state.SearchSessionManager;
+import com.frostwire.search.CompositeFileSearchResult;
+import com.frostwire.search.FileSearchResult;
 import com.frostwire.search.HttpSearchResult;
 import com.frostwire.search.SearchResult;
 import com.frostwire.search.torrent.TorrentSearchResult;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
-import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 public class SearchResultsTool implements MCPTool {
     private static final int DEFAULT_LIMIT = 50;
-    private static final int DEFAULT_OFFSET = 0;
+    private static final int MAX_LIMIT = 100;
 
     @Override
     public String name() {
@@ -26,7 +27,8 @@ public class SearchResultsTool implements MCPTool {
 
     @Override
     public String description() {
-        return "Retrieve search results for a given search token with optional filtering, sorting, and pagination.";
+        return "Retrieve search results for a given search token with optional filtering, sorting, and pagination. " +
+                "Results are deduplicated and ranked by relevance; pass the returned nextCursor to get the next page.";
     }
 
     @Override
@@ -41,19 +43,24 @@ public class SearchResultsTool implements MCPTool {
         tokenProp.addProperty("description", "The search token returned by frostwire_search");
         properties.add("token", tokenProp);
 
+        JsonObject cursorProp = new JsonObject();
+        cursorProp.addProperty("type", "string");
+        cursorProp.addProperty("description", "The nextCursor of the previous page, omit for the first page. Use it with the same sortBy and filter");
+        properties.add("cursor", cursorProp);
+
         JsonObject offsetProp = new JsonObject();
         offsetProp.addProperty("type", "integer");
-        offsetProp.addProperty("description", "Offset for pagination (default: 0)");
+        offsetProp.addProperty("description", "Offset for pagination, prefer cursor (default: 0)");
         properties.add("offset", offsetProp);
 
         JsonObject limitProp = new JsonObject();
         limitProp.addProperty("type", "integer");
-        limitProp.addProperty("description", "Maximum number of results to return (default: 50)");
+        limitProp.addProperty("description", "Maximum number of results to return (default: 50, max: 100)");
         properties.add("limit", limitProp);
 
         JsonObject sortByProp = new JsonObject();
         sortByProp.addProperty("type", "string");
-        sortByProp.addProperty("description", "Sort field: 'seeds', 'size', 'creationTime', or 'displayName' (default: no sorting)");
+        sortByProp.addProperty("description", "Sort field: 'score', 'seeds', 'size', 'creationTime', or 'displayName' (default: score)");
         properties.add("sortBy", sortByProp);
 
         JsonObject filterProp = new JsonObject();
@@ -83,66 +90,75 @@ public class SearchResultsTool implements MCPTool {
             return result;
         }
 
-        int offset = arguments.has("offset") ? arguments.get("offset").getAsInt() : DEFAULT_OFFSET;
         int limit = arguments.has("limit") ? arguments.get("limit").getAsInt() : DEFAULT_LIMIT;
-        String sortBy = arguments.has("sortBy") ? arguments.get("sortBy").getAsString() : null;
-
-        List<SearchResult> allResults = new ArrayList<>(session.getResults());
+        limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+        String sortBy = arguments.has("sortBy") ? arguments.get("sortBy").getAsString() : "score";
+        String cursor = arguments.has("cursor") ? arguments.get("cursor").getAsString() : null;
+        boolean offsetPaging = cursor == null && arguments.has("offset");
 
+        Predicate<SearchResult> filter = sr -> true;
         if (arguments.has("filter") && arguments.get("filter").isJsonObject()) {
-            JsonObject filter = arguments.getAsJsonObject("filter");
-            allResults = applyFilters(allResults, filter);
+            filter = buildFilter(arguments.getAsJsonObject("filter"));
         }
 
-        if (sortBy != null) {
-            allResults = applySorting(allResults, sortBy);
+        Comparator<SearchResult> order = sorting(sortBy);
+        SearchResultStore store = session.getResultStore();
+        SearchResultStore.Page page;
+        try {
+            if (offsetPaging) {
+                page = store.sortedPage(order, sortBy, arguments.get("offset").getAsInt(), limit, filter);
+            } else if (order == null) {
+                page = store.page(cursor, limit, filter);
+            } else {
+                page = store.sortedPage(order, sortBy, cursor, limit, filter);
+            }
+        } catch (IllegalArgumentException e) {
+            result.addProperty("error", e.getMessage());
+            return result;
         }
 
-        int totalResults = allResults.size();
-        int from = Math.min(offset, totalResults);
-        int to = Math.min(offset + limit, totalResults);
-        List<SearchResult> page = allResults.subList(from, to);
-
         JsonArray resultsArray = new JsonArray();
-        for (SearchResult sr : page) {
+        for (SearchResult sr : page.results) {
             resultsArray.add(SearchAdapter.toMCPJson(sr));
         }
 
         result.add("results", resultsArray);
-        result.addProperty("totalResults", totalResults);
-        result.addProperty("offset", from);
+        result.addProperty("totalResults", page.total);
+        if (offsetPaging) {
+            result.addProperty("offset", Math.max(0, arguments.get("offset").getAsInt()));
+        } else if (page.nextCursor != null) {
+            result.addProperty("nextCursor", page.nextCursor);
+        }
         result.addProperty("limit", limit);
-        result.addProperty("hasMore", to < totalResults);
+        result.addProperty("hasMore", page.nextCursor != null);
 
         return result;
     }
 
-    private List<SearchResult> applyFilters(List<SearchResult> results, JsonObject filter) {
+    private Predicate<SearchResult> buildFilter(JsonObject filter) {
         Long minSize = filter.has("minSize") ? filter.get("minSize").getAsLong() : null;
         Long maxSize = filter.has("maxSize") ? filter.get("maxSize").getAsLong() : null;
         Integer minSeeds = filter.has("minSeeds") ? filter.get("minSeeds").getAsInt() : null;
         String source = filter.has("source") ? filter.get("source").getAsString() : null;
         String fileType = filter.has("fileType") ? filter.get("fileType").getAsString() : null;
 
-        return results.stream().filter(sr -> {
+        return sr -> {
             if (fileType != null) {
-                if ("torrent".equals(fileType) && !(sr instanceof TorrentSearchResult)) {
+                if ("torrent".equals(fileType) && !isTorrent(sr)) {
                     return false;
                 }
-                if ("cloud".equals(fileType) && !(sr instanceof HttpSearchResult)) {
+                if ("cloud".equals(fileType) && !isCloud(sr)) {
                     return false;
                 }
             }
 
-            if (sr instanceof TorrentSearchResult) {
-                TorrentSearchResult tsr = (TorrentSearchResult) sr;
-                if (minSize != null && tsr.getSize() < minSize) return false;
-                if (maxSize != null && tsr.getSize() > maxSize) return false;
-                if (minSeeds != null && tsr.getSeeds() < minSeeds) return false;
-            } else if (sr instanceof HttpSearchResult) {
-                HttpSearchResult hsr = (HttpSearchResult) sr;
-                if (minSize != null && hsr.getSize() < minSize) return false;
-                if (maxSize != null && hsr.getSize() > maxSize) return false;
+            if (sr instanceof FileSearchResult) {
+                long size = ((FileSearchResult) sr).getSize();
+                if (minSize != null && size < minSize) return false;
+                if (maxSize != null && size > maxSize) return false;
+            }
+            if (minSeeds != null && isTorrent(sr) && SearchResultStore.seeds(sr) < minSeeds) {
+                return false;
             }
 
             if (source != null && !source.equalsIgnoreCase(sr.getSource())) {
@@ -150,41 +166,36 @@ public class SearchResultsTool implements MCPTool {
             }
 
             return true;
-        }).collect(Collectors.toList());
+        };
+    }
+
+    private static boolean isTorrent(SearchResult sr) {
+        return sr instanceof TorrentSearchResult ||
+                (sr instanceof CompositeFileSearchResult && ((CompositeFileSearchResult) sr).isTorrent());
     }
 
-    private List<SearchResult> applySorting(List<SearchResult> results, String sortBy) {
-        Comparator<SearchResult> comparator = null;
+    private static boolean isCloud(SearchResult sr) {
+        return sr instanceof HttpSearchResult ||
+                (sr instanceof CompositeFileSearchResult && !((CompositeFileSearchResult) sr).isTorrent());
+    }
+
+    private static Comparator<SearchResult> sorting(String sortBy) {
         switch (sortBy) {
             case "seeds":
-                comparator = (a, b) -> {
-                    int sa = (a instanceof TorrentSearchResult) ? ((TorrentSearchResult) a).getSeeds() : 0;
-                    int sb = (b instanceof TorrentSearchResult) ? ((TorrentSearchResult) b).getSeeds() : 0;
-                    return Integer.compare(sb, sa);
-                };
-                break;
+                return (a, b) -> Integer.compare(Math.max(0, SearchResultStore.seeds(b)), Math.max(0, SearchResultStore.seeds(a)));
             case "size":
-                comparator = (a, b) -> {
-                    long sa = (a instanceof TorrentSearchResult) ? ((TorrentSearchResult) a).getSize() :
-                            (a instanceof HttpSearchResult) ? ((HttpSearchResult) a).getSize() : 0L;
-                    long sbb = (b instanceof TorrentSearchResult) ? ((TorrentSearchResult) b).getSize() :
-                            (b instanceof HttpSearchResult) ? ((HttpSearchResult) b).getSize() : 0L;
-                    return Long.compare(sbb, sa);
-                };
-                break;
+                return (a, b) -> Long.compare(size(b), size(a));
             case "creationTime":
-                comparator = (a, b) -> Long.compare(b.getCreationTime(), a.getCreationTime());
-                break;
+                return (a, b) -> Long.compare(b.getCreationTime(), a.getCreationTime());
             case "displayName":
-                comparator = Comparator.comparing(SearchResult::getDisplayName, String.CASE_INSENSITIVE_ORDER);
-                break;
+                return Comparator.comparing(SearchResult::getDisplayName, String.CASE_INSENSITIVE_ORDER);
             default:
-                break;
+                // score, the order the results are stored in
+                return null;
         }
+    }
 
-        if (comparator != null) {
-            results.sort(comparator);
-        }
-        return results;
+    private static long size(SearchResult sr) {
+        return sr instanceof FileSearchResult ? ((FileSearchResult) sr).getSize() : 0L;
     }
 }
@@ -60,7 +60,7 @@ public class SearchStatusTool implements MCPTool {
             result.addProperty("status", "running");
         }
 
-        result.addProperty("resultCount", session.getResults().size());
+        result.addProperty("resultCount", session.getResultCount());
         result.addProperty("keywords", session.getKeywords());
 
         return result;
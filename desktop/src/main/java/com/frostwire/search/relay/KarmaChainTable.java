@@ -26,11 +26,13 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * SQLite persistence for the local node's karma chain and peer karma aggregate scores.
  *
  * <p>Shares the same database file as {@link LocalIndexTable} (WAL mode allows multiple
- * connections). Adds two new tables:
+ * connections). Adds three new tables:
  *
  * <ul>
  *   <li>{@code karma_chain} — append-only chain entries
  *   <li>{@code peer_karma} — aggregate scores per peer for fast lookup
+ *   <li>{@code karma_checkpoint} — last verified position of each chain (ours and remote peers'),
+ *       so re-verification only covers newly appended entries
  * </ul>
  */
 public final class KarmaChainTable implements KarmaChainStore {
@@ -39,6 +41,7 @@ public final class KarmaChainTable implements KarmaChainStore {
 
   static final String CHAIN_TABLE = "karma_chain";
   static final String PEER_TABLE = "peer_karma";
+  static final String CHECKPOINT_TABLE = "karma_checkpoint";
 
   private static final String CREATE_CHAIN_TABLE_SQL =
       "CREATE TABLE IF NOT EXISTS "
@@ -70,6 +73,21 @@ public final class KarmaChainTable implements KarmaChainStore {
           + "last_endorsed_at INTEGER NOT NULL DEFAULT 0"
           + ")";
 
+  private static final String CREATE_CHECKPOINT_TABLE_SQL =
+      "CREATE TABLE IF NOT EXISTS "
+          + CHECKPOINT_TABLE
+          + " ("
+          + "owner_pub TEXT PRIMARY KEY, "
+          + "seq INTEGER NOT NULL, "
+          + "entry_hash TEXT NOT NULL, "
+          + "block_height INTEGER NOT NULL, "
+          + "last_epoch INTEGER NOT NULL, "
+          + "commitment_epoch INTEGER NOT NULL, "
+          + "endorsements INTEGER NOT NULL, "
+          + "energy REAL NOT NULL, "
+          + "verified_at INTEGER NOT NULL"
+          + ")";
+
   private static final String CREATE_INDEX_EPOCH_SQL =
       "CREATE INDEX IF NOT EXISTS idx_" + CHAIN_TABLE + "_epoch ON " + CHAIN_TABLE + " (epoch)";
   private static final String CREATE_INDEX_BLOCK_SQL =
@@ -267,7 +285,7 @@ public final class KarmaChainTable implements KarmaChainStore {
     if (loaded.isEmpty()) {
       return new KarmaChain(ownerPub);
     }
-    KarmaChain chain = KarmaChain.load(ownerPub, loaded);
+    KarmaChain chain = KarmaChain.load(ownerPub, loaded, this);
     if (chain == null) {
       LOG.warn("Persisted karma chain failed verification; starting fresh");
       return new KarmaChain(ownerPub);
@@ -275,6 +293,71 @@ public final class KarmaChainTable implements KarmaChainStore {
     return chain;
   }
 
+  @Override
+  public KarmaChain.Checkpoint loadCheckpoint(byte[] ownerPub) {
+    if (ownerPub == null || ownerPub.length != 32) {
+      return null;
+    }
+    ensureOpen();
+    synchronized (connection) {
+      try (PreparedStatement ps =
+          connection.prepareStatement(
+              "SELECT seq, entry_hash, block_height, last_epoch, commitment_epoch, "
+                  + "endorsements, energy FROM "
+                  + CHECKPOINT_TABLE
+                  + " WHERE owner_pub = ?")) {
+        ps.setString(1, Base64.getEncoder().withoutPadding().encodeToString(ownerPub));
+        try (ResultSet rs = ps.executeQuery()) {
+          if (rs.next()) {
+            return new KarmaChain.Checkpoint(
+                ownerPub,
+                rs.getLong(1),
+                Hex.decode(rs.getString(2)),
+                rs.getLong(3),
+                rs.getLong(4),
+                rs.getLong(5),
+                rs.getInt(6),
+                rs.getDouble(7));
+          }
+        }
+      } catch (SQLException | RuntimeException e) {
+        LOG.warn("Failed to read karma checkpoint", e);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void saveCheckpoint(KarmaChain.Checkpoint checkpoint) {
+    if (checkpoint == null) {
+      throw new IllegalArgumentException("checkpoint is null");
+    }
+    ensureOpen();
+    synchronized (connection) {
+      try (PreparedStatement ps =
+          connection.prepareStatement(
+              "INSERT OR REPLACE INTO "
+                  + CHECKPOINT_TABLE
+                  + " (owner_pub, seq, entry_hash, block_height, last_epoch, "
+                  + "commitment_epoch, endorsements, energy, verified_at) "
+                  + "VALUES (?,?,?,?,?,?,?,?,?)")) {
+        ps.setString(
+            1, Base64.getEncoder().withoutPadding().encodeToString(checkpoint.ownerPub()));
+        ps.setLong(2, checkpoint.seq());
+        ps.setString(3, Hex.encode(checkpoint.entryHash()));
+        ps.setLong(4, checkpoint.blockHeight());
+        ps.setLong(5, checkpoint.lastEpoch());
+        ps.setLong(6, checkpoint.commitmentEpoch());
+        ps.setInt(7, checkpoint.endorsementsInEpoch());
+        ps.setDouble(8, checkpoint.energy());
+        ps.setLong(9, System.currentTimeMillis());
+        ps.executeUpdate();
+      } catch (SQLException e) {
+        LOG.warn("Failed to save karma checkpoint", e);
+      }
+    }
+  }
+
   /** Get the aggregate karma score for a peer. Returns 0 if the peer has no endorsements. */
   public long getPeerKarma(byte[] peerPub) {
     if (peerPub == null) return 0;
@@ -394,6 +477,7 @@ public final class KarmaChainTable implements KarmaChainStore {
     try (Statement s = connection.createStatement()) {
       s.execute(CREATE_CHAIN_TABLE_SQL);
       s.execute(CREATE_PEER_TABLE_SQL);
+      s.execute(CREATE_CHECKPOINT_TABLE_SQL);
       s.execute(CREATE_INDEX_EPOCH_SQL);
       s.execute(CREATE_INDEX_BLOCK_SQL);
       s.execute(CREATE_INDEX_SCORE_SQL);
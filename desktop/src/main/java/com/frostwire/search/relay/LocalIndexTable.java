@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
     /**
      * SQLite + FTS5 backed table holding every torrent this FrostWire node
@@ -434,67 +435,100 @@ public final class LocalIndexTable implements LocalIndex, AutoCloseable {
     }
 
     public List<LocalSharedTorrent> search(String query, int limit) {
+        List<LocalSharedTorrent> out = new ArrayList<>();
+        forEachMatch(query, limit, out::add);
+        return out;
+    }
+
+    /**
+     * Hands rows to {@code sink} one FTS phase at a time: the torrent-name
+     * matches, then the file-path matches if the sink still wants more.
+     * Each phase is read under the connection lock and handed over after
+     * it is released, so a sink that sends results over the network does
+     * not hold up other users of the table.
+     */
+    public void forEachMatch(String query, int limit, Predicate<LocalSharedTorrent> sink) {
         ensureOpen();
         String ftsQuery = sanitizeFtsQuery(query);
         if (ftsQuery.isEmpty()) {
-            return new ArrayList<>();
+            return;
         }
         int cap = Math.max(1, limit);
-        List<LocalSharedTorrent> out = new ArrayList<>();
+        int emitted = 0;
         java.util.Set<String> seen = new java.util.HashSet<>();
+        // Phase 1: torrent-name FTS matches (matchedFile = null).
+        for (LocalSharedTorrent t : torrentNameMatches(ftsQuery, cap)) {
+            if (seen.add(t.infoHashHex())) {
+                emitted++;
+                if (!sink.test(t)) {
+                    return;
+                }
+            }
+        }
+        // Phase 2: file-path FTS matches (matchedFile = matched file path).
+        if (emitted < cap) {
+            for (LocalSharedTorrent t : filePathMatches(ftsQuery, cap - emitted, seen)) {
+                if (!sink.test(t)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<LocalSharedTorrent> torrentNameMatches(String ftsQuery, int cap) {
+        String torrentSql =
+                "SELECT s.info_hash, s.name, s.size_bytes, s.file_count, s.files_json, s.tags, " +
+                        "s.publisher_node_id, s.publisher_ed25519_pub, s.publisher_utp_port, " +
+                        "s.added_at, s.last_seen_at, s.last_published_at " +
+                        "FROM " + TABLE + " s " +
+                        "JOIN " + FTS + " ON " + FTS + ".rowid = s.rowid " +
+                        "WHERE " + FTS + " MATCH ? " +
+                        "ORDER BY bm25(" + FTS + ") " +
+                        "LIMIT ?";
+        List<LocalSharedTorrent> out = new ArrayList<>();
         synchronized (connection) {
-            // Phase 1: torrent-name FTS matches (matchedFile = null).
-            String torrentSql =
-                    "SELECT s.info_hash, s.name, s.size_bytes, s.file_count, s.files_json, s.tags, " +
-                            "s.publisher_node_id, s.publisher_ed25519_pub, s.publisher_utp_port, " +
-                            "s.added_at, s.last_seen_at, s.last_published_at " +
-                            "FROM " + TABLE + " s " +
-                            "JOIN " + FTS + " ON " + FTS + ".rowid = s.rowid " +
-                            "WHERE " + FTS + " MATCH ? " +
-                            "ORDER BY bm25(" + FTS + ") " +
-                            "LIMIT ?";
             try (PreparedStatement ps = connection.prepareStatement(torrentSql)) {
                 ps.setString(1, ftsQuery);
                 ps.setInt(2, cap);
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        LocalSharedTorrent t = readRow(rs);
-                        if (seen.add(t.infoHashHex())) {
-                            out.add(t);
-                        }
+                        out.add(readRow(rs));
                     }
                 }
             } catch (SQLException e) {
                 throw new IllegalStateException("search (torrent-name) failed for query: " + ftsQuery, e);
             }
-            // Phase 2: file-path FTS matches (matchedFile = matched file path).
-            if (out.size() < cap) {
-                String fileSql =
-                        "SELECT s.info_hash, s.name, s.size_bytes, s.file_count, s.files_json, s.tags, " +
-                                "s.publisher_node_id, s.publisher_ed25519_pub, s.publisher_utp_port, " +
-                                "s.added_at, s.last_seen_at, s.last_published_at, " +
-                                "ffts.file_path AS matched_file " +
-                                "FROM " + TABLE + " s " +
-                                "JOIN " + FILES_FTS + " ffts ON ffts.torrent_rowid = s.rowid " +
-                                "WHERE " + FILES_FTS + " MATCH ? " +
-                                "ORDER BY bm25(" + FILES_FTS + ") " +
-                                "LIMIT ?";
-                int remaining = cap - out.size();
-                try (PreparedStatement ps = connection.prepareStatement(fileSql)) {
-                    ps.setString(1, ftsQuery);
-                    ps.setInt(2, remaining * 2);
-                    try (ResultSet rs = ps.executeQuery()) {
-                        while (rs.next() && out.size() < cap) {
-                            LocalSharedTorrent t = readRow(rs);
-                            if (seen.add(t.infoHashHex())) {
-                                String mf = rs.getString("matched_file");
-                                out.add(t.toBuilder().matchedFile(mf).build());
-                            }
+        }
+        return out;
+    }
+
+    /** Up to {@code remaining} file-path matches of torrents not yet in {@code seen}; adds the ones it returns. */
+    private List<LocalSharedTorrent> filePathMatches(String ftsQuery, int remaining, java.util.Set<String> seen) {
+        String fileSql =
+                "SELECT s.info_hash, s.name, s.size_bytes, s.file_count, s.files_json, s.tags, " +
+                        "s.publisher_node_id, s.publisher_ed25519_pub, s.publisher_utp_port, " +
+                        "s.added_at, s.last_seen_at, s.last_published_at, " +
+                        "ffts.file_path AS matched_file " +
+                        "FROM " + TABLE + " s " +
+                        "JOIN " + FILES_FTS + " ffts ON ffts.torrent_rowid = s.rowid " +
+                        "WHERE " + FILES_FTS + " MATCH ? " +
+                        "ORDER BY bm25(" + FILES_FTS + ") " +
+                        "LIMIT ?";
+        List<LocalSharedTorrent> out = new ArrayList<>();
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(fileSql)) {
+                ps.setString(1, ftsQuery);
+                ps.setInt(2, remaining * 2);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next() && out.size() < remaining) {
+                        LocalSharedTorrent t = readRow(rs);
+                        if (seen.add(t.infoHashHex())) {
+                            out.add(t.toBuilder().matchedFile(rs.getString("matched_file")).build());
                         }
                     }
-                } catch (SQLException e) {
-                    throw new IllegalStateException("search (file-path) failed for query: " + ftsQuery, e);
                 }
+            } catch (SQLException e) {
+                throw new IllegalStateException("search (file-path) failed for query: " + ftsQuery, e);
             }
         }
         return out;
@@ -721,11 +755,12 @@ public final class LocalIndexTable implements LocalIndex, AutoCloseable {
      *
      * <p>Rules:
      * <ul>
-     *   <li>Lowercase.</li>
-     *   <li>Keep only [a-z0-9]; replace everything else (including
-     *       underscore, dot, dash, slash) with a space so token
-     *       boundaries match the FTS5 unicode61 tokenizer.</li>
-     *   <li>Split on whitespace, discard empty tokens.</li>
+     *   <li>Split into {@link KeywordBloomFilter#tokens}: diacritics
+     *       removed and lowercased like the FTS5 unicode61 tokenizer,
+     *       then [a-z0-9] runs, everything else (including underscore,
+     *       dot, dash, slash) a token boundary. Catalog summaries are
+     *       keyed on the same tokens, so they never rule out a peer
+     *       this query would match.</li>
      *   <li>Wrap each remaining token in double quotes (phrase token) so
      *       FTS5 reserved words like {@code OR}, {@code AND}, {@code NOT},
      *       {@code NEAR} become literal text instead of operators.</li>
@@ -741,26 +776,9 @@ public final class LocalIndexTable implements LocalIndex, AutoCloseable {
      * this invariant must be preserved.
      */
     private static String sanitizeFtsQuery(String raw) {
-        if (raw == null) return "";
-        String lowered = raw.toLowerCase();
-        StringBuilder clean = new StringBuilder(lowered.length());
-        for (int i = 0; i < lowered.length(); i++) {
-            char ch = lowered.charAt(i);
-            if ((ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9')) {
-                clean.append(ch);
-            } else {
-                // Replace any non-alphanumeric (including underscore, dot,
-                // dash, slash) with a space so it acts as a token boundary
-                // — matching how FTS5's unicode61 tokenizer splits on the
-                // same characters.
-                clean.append(' ');
-            }
-        }
-        String[] tokens = clean.toString().split("\\s+");
         StringBuilder out = new StringBuilder();
         boolean first = true;
-        for (String tok : tokens) {
-            if (tok.isEmpty()) continue;
+        for (String tok : KeywordBloomFilter.tokens(raw)) {
             if (!first) out.append(' ');
             out.append('"').append(tok).append('"');
             first = false;
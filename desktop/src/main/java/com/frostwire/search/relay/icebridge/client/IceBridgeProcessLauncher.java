@@ -33,6 +33,7 @@ public final class IceBridgeProcessLauncher implements AutoCloseable {
   private final String role;
   private final String host;
   private final String authToken;
+  private final File ipFilterFile;
 
   private Process process;
   private IceBridgeClient client;
@@ -68,6 +69,22 @@ public final class IceBridgeProcessLauncher implements AutoCloseable {
       int relayPort,
       String role,
       String host) {
+    this(jarPath, identityFile, controlHttpPort, rudpPort, relayPort, role, host, null);
+  }
+
+  /**
+   * Like the constructor above, and the daemon drops the peers of the compiled IP block list
+   * {@code ipFilterFile} (may be null), reloading it when the user changes the list.
+   */
+  public IceBridgeProcessLauncher(
+      File jarPath,
+      File identityFile,
+      int controlHttpPort,
+      int rudpPort,
+      int relayPort,
+      String role,
+      String host,
+      File ipFilterFile) {
     if (jarPath == null) {
       throw new IllegalArgumentException("jarPath is null");
     }
@@ -86,6 +103,7 @@ public final class IceBridgeProcessLauncher implements AutoCloseable {
     byte[] tokenBytes = new byte[32];
     new java.security.SecureRandom().nextBytes(tokenBytes);
     this.authToken = com.frostwire.util.Hex.encode(tokenBytes);
+    this.ipFilterFile = ipFilterFile;
   }
 
   public String authToken() {
@@ -147,6 +165,10 @@ public final class IceBridgeProcessLauncher implements AutoCloseable {
       command.add("--identity-file");
       command.add(identityFile.getAbsolutePath());
     }
+    if (ipFilterFile != null) {
+      command.add("--ip-filter-file");
+      command.add(ipFilterFile.getAbsolutePath());
+    }
 
     logDir = Files.createTempDirectory("icebridge-launcher-" + controlHttpPort).toFile();
     File stdout = new File(logDir, "stdout.log");
@@ -1,5 +1,8 @@
 package com.limegroup.gnutella.gui;
 
+import com.frostwire.gui.library.LibraryIndex;
+import com.frostwire.gui.library.tags.TagsCache;
+import com.frostwire.search.telluride.TelluridePool;
 import com.frostwire.util.Logger;
 import com.limegroup.gnutella.LimeWireCore;
 import com.limegroup.gnutella.gui.notify.NotifyUserProxy;
@@ -45,6 +48,9 @@ final class Finalizer {
                     VPNStatusRefresher.getInstance().shutdown();
                     //LOG.info("SearchMediator shutting down...");
                     SearchMediator.instance().shutdown();
+                    LibraryIndex.shutdown();
+                    TagsCache.shutdown();
+                    TelluridePool.shutdown();
                     //LOG.info("MediaPlayer stopping...");
                     // Media player instance removed
                     //LOG.info("Shutting down [updateCommand=" + toExecute + "]");
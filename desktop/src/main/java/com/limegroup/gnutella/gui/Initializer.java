@@ -20,9 +20,12 @@ package com.limegroup.gnutella.gui;
 
 import com.frostwire.bittorrent.BTContext;
 import com.frostwire.bittorrent.BTEngine;
+import com.frostwire.bittorrent.BTRestoreListener;
 import com.frostwire.gui.theme.ThemeMediator;
+import com.frostwire.search.CrawlCacheDB;
 import com.frostwire.search.relay.BTEngineListenerChain;
 import com.frostwire.search.relay.BlockHeaderSource;
+import com.frostwire.search.relay.CatalogSummaryFetcher;
 import com.frostwire.search.relay.DhtAdvertiser;
 import com.frostwire.search.relay.DhtKarmaChainSource;
 import com.frostwire.search.relay.DhtPeerDiscoverySource;
@@ -65,6 +68,7 @@ import com.limegroup.gnutella.LimeWireCore;
 import com.limegroup.gnutella.gui.bugs.BugManager;
 import com.limegroup.gnutella.gui.init.SetupManager;
 import com.limegroup.gnutella.gui.notify.NotifyUserProxy;
+import com.limegroup.gnutella.gui.options.panes.ipfilter.IPFilterStore;
 import com.limegroup.gnutella.gui.search.DistributedSearchEngineWire;
 import com.limegroup.gnutella.gui.search.IceBridgeUrlHandler;
 import com.limegroup.gnutella.gui.search.LocalSearchEngineWire;
@@ -82,9 +86,23 @@ import org.limewire.util.NetworkUtils;
 
 /** Initializes (creates, starts, & displays) the LimeWire Core & UI. */
 final class Initializer {
+  /** System property naming a file the JSON startup profile is written to. */
+  static final String STARTUP_PROFILE_PROPERTY = "frostwire.startup.profile";
+
+  /** System property that makes the JVM exit once the startup profile has been reported. */
+  static final String STARTUP_PROFILE_EXIT_PROPERTY = "frostwire.startup.exitAfterProfile";
+
+  static final String FIRST_WINDOW_MARK = "first-window";
+
+  private static final int STARTUP_BACKGROUND_THREADS = 4;
+  private static final long STARTUP_PROFILE_WAIT_MILLIS = 60_000;
+
   /** True if is running from a system startup. */
   private volatile boolean isStartup = false;
 
+  private volatile LimeWireCore limeWireCore;
+  private volatile SetupManager setupManager;
+
   Initializer() {}
 
   /**
@@ -96,10 +114,142 @@ final class Initializer {
   void initialize(String[] args, Frame awtSplash) {
     // ** THE VERY BEGINNING -- DO NOT ADD THINGS BEFORE THIS **
     preinit();
-    // Apply the theme the user chose last time (falls back to DEFAULT)
-    // IMPORTANT: Due to the introduction of the new light theme and
-    // internal changes in ThemeMediator.ThemeEnum, we need to perform some
-    // migration for old theme names to prevent crashes
+    StartupTaskGraph startup = new StartupTaskGraph("Initializer", STARTUP_BACKGROUND_THREADS);
+    // Caller tasks run on this thread in the order below, exactly as the phases used to run one
+    // after another. Background tasks start as soon as their dependencies are done and overlap
+    // with the UI work. A caller task that depends on a background task waits for it.
+    startup
+        .onCaller("theme", this::applySavedTheme)
+        .onCaller(
+            "validate-startup",
+            () -> {
+              // Various startup tasks...
+              setupCallbacksAndListeners();
+              validateStartup(args);
+            },
+            "theme")
+        .onCaller(
+            "core-wiring",
+            () -> {
+              // Creates LimeWire itself.
+              LimeWireGUI limewireGUI = createLimeWire();
+              limeWireCore = limewireGUI.getLimeWireCore();
+              // Various tasks that can be done after core is glued & started.
+              glueCore(limeWireCore);
+              // Validate any arguments or properties outside of the LW environment.
+              runExternalChecks(limeWireCore, args);
+              limeWireCore.getExternalControl().startServer();
+              // Starts some system monitoring for deadlocks.
+              DeadlockSupport.startDeadlockMonitoring();
+            },
+            "validate-startup")
+        // Warms up the crawl cache database off the EDT; SearchMediator picks it up later.
+        .inBackground("crawl-db", CrawlCacheDB::instance, "validate-startup")
+        .onCaller(
+            "install-resources",
+            () -> {
+              // Installs properties & resources.
+              installProperties();
+              installResources();
+            },
+            "core-wiring")
+        .onCaller(
+            "splash",
+            () -> {
+              // Construct the SetupManager, which may or may not be shown.
+              setupManager = new SetupManager();
+              // Move from the AWT splash to the Swing splash & start early core.
+              switchSplashes(awtSplash);
+              startEarlyCore(limeWireCore);
+            },
+            "install-resources")
+        // Initialize early UI components, display the setup manager (if necessary),
+        // and ensure the save directory is valid.
+        .onCaller("early-ui", this::initializeEarlyUI, "splash")
+        .onCaller("setup-manager", () -> startSetupManager(setupManager), "early-ui")
+        // The setup wizard may change the torrent directories, so the BitTorrent context is
+        // built after it. The session itself starts in the background; anything that calls
+        // BTEngine.getInstance() in the meantime gets the configured (not yet started) engine.
+        .onCaller("bittorrent-context", this::setupBittorrentContext, "setup-manager")
+        .inBackground("bittorrent-session", this::startBittorrentSession, "bittorrent-context")
+        .inBackground(
+            "mcp-server",
+            com.frostwire.mcp.desktop.MCPStartupHook::initialize,
+            "bittorrent-session")
+        // The compiled IP filter is memory-mapped and applied in one call, before the relay
+        // listeners open and before saved downloads start connecting to peers.
+        .inBackground("ip-filter", this::loadIPFilter, "bittorrent-session")
+        // The relay stack installs the indexer and karma listeners on BTEngine, so it needs the
+        // running session and must be done before startCore restores saved downloads.
+        .inBackground("relay-stack", this::startRelayStack, "bittorrent-session", "ip-filter")
+        // Load the UI, system tray & notification handlers,
+        // and hide the splash screen & display the UI.
+        .onCaller("load-ui", this::loadUI, "bittorrent-context")
+        .onCaller("tray", this::loadTrayAndNotifications, "load-ui")
+        .onCaller(
+            "show-ui",
+            () -> {
+              hideSplashAndShowUI();
+              startup.mark(FIRST_WINDOW_MARK);
+            },
+            "tray")
+        // Initialize late tasks, like Icon initialization & install listeners.
+        .onCaller("late-ui", this::loadLateTasksForUI, "show-ui")
+        .onCaller(
+            "start-core",
+            () -> {
+              // Start the core & run any queued control requests.
+              IceBridgeUrlHandler.register();
+              startCore(limeWireCore);
+              runQueuedRequests(limeWireCore);
+              if (OSUtils.isMacOSX()) {
+                GURLHandler.getInstance().register();
+                MacEventHandler.instance();
+              }
+            },
+            "late-ui",
+            "ip-filter",
+            "relay-stack")
+        // Run any after-init tasks.
+        .onCaller("postinit", this::postinit, "start-core");
+    startup.run();
+    reportStartupProfile(startup);
+  }
+
+  /**
+   * Logs the startup profile and, when {@value #STARTUP_PROFILE_PROPERTY} names a file, writes it
+   * there as JSON. When {@value #STARTUP_PROFILE_EXIT_PROPERTY} is set the JVM exits once the
+   * profile is written, which lets a headless harness measure time-to-first-window.
+   */
+  private static void reportStartupProfile(StartupTaskGraph startup) {
+    com.frostwire.util.Logger log = com.frostwire.util.Logger.getLogger(Initializer.class);
+    log.info("Time to first window: " + startup.markMillis(FIRST_WINDOW_MARK) + " ms");
+    String profilePath = System.getProperty(STARTUP_PROFILE_PROPERTY);
+    boolean exitAfterProfile = Boolean.getBoolean(STARTUP_PROFILE_EXIT_PROPERTY);
+    if ((profilePath == null || profilePath.isEmpty()) && !exitAfterProfile) {
+      return;
+    }
+    startup.awaitBackground(STARTUP_PROFILE_WAIT_MILLIS);
+    String json = startup.toJson();
+    if (profilePath != null && !profilePath.isEmpty()) {
+      startup.writeProfile(new File(profilePath));
+      log.info("Startup profile written to " + profilePath);
+    } else {
+      System.out.println(json);
+    }
+    if (exitAfterProfile) {
+      System.exit(0);
+    }
+  }
+
+  /**
+   * Apply the theme the user chose last time (falls back to DEFAULT)
+   *
+   * <p>IMPORTANT: Due to the introduction of the new light theme and internal changes in
+   * ThemeMediator.ThemeEnum, we need to perform some migration for old theme names to prevent
+   * crashes
+   */
+  private void applySavedTheme() {
     String uiThemeValue = UISettings.UI_THEME.getValue();
     if (uiThemeValue.equals("DARK")) {
       uiThemeValue = "DARK_FLAT_LAF";
@@ -124,63 +274,6 @@ final class Initializer {
     }
     System.out.println("Initializer.initialize() applying theme: " + saved);
     ThemeMediator.loadThemeAtStartup(saved);
-    // Various startup tasks...
-    // System.out.println("Initializer.initialize() setup callbacks and listeners");
-    setupCallbacksAndListeners();
-    validateStartup(args);
-    // Creates LimeWire itself.
-    // System.out.println("Initializer.initialize() create Limewire");
-    LimeWireGUI limewireGUI = createLimeWire();
-    LimeWireCore limeWireCore = limewireGUI.getLimeWireCore();
-    // Various tasks that can be done after core is glued & started.
-    // System.out.println("Initializer.initialize() glue core");
-    glueCore(limeWireCore);
-    // Validate any arguments or properties outside of the LW environment.
-    // System.out.println("Initializer.initialize() run external checks");
-    runExternalChecks(limeWireCore, args);
-    limeWireCore.getExternalControl().startServer();
-    // Starts some system monitoring for deadlocks.
-    // System.out.println("Initializer.initialize() monitor deadlocks");
-    DeadlockSupport.startDeadlockMonitoring();
-    // stopwatch.resetAndLog("Start deadlock monitor");
-    // Installs properties & resources.
-    // System.out.println("Initializer.initialize() install properties");
-    installProperties();
-    installResources();
-    // Construct the SetupManager, which may or may not be shown.
-    final SetupManager setupManager = new SetupManager();
-    // stopwatch.resetAndLog("construct SetupManager");
-    // Move from the AWT splash to the Swing splash & start early core.
-    // System.out.println("Initializer.initialize() switch splashes");
-    switchSplashes(awtSplash);
-    startEarlyCore(limeWireCore);
-    // Initialize early UI components, display the setup manager (if necessary),
-    // and ensure the save directory is valid.
-    // System.out.println("Initializer.initialize() init early UI");
-    initializeEarlyUI();
-    startSetupManager(setupManager);
-    startBittorrentCore();
-    com.frostwire.mcp.desktop.MCPStartupHook.initialize();
-    // Load the UI, system tray & notification handlers,
-    // and hide the splash screen & display the UI.
-    // System.out.println("Initializer.initialize() load UI");
-    loadUI();
-    loadTrayAndNotifications();
-    hideSplashAndShowUI();
-    // Initialize late tasks, like Icon initialization & install listeners.
-    loadLateTasksForUI();
-    // Start the core & run any queued control requests, and load DAAP.
-    // System.out.println("Initializer.initialize() start core");
-    startRelayStack();
-    IceBridgeUrlHandler.register();
-    startCore(limeWireCore);
-    runQueuedRequests(limeWireCore);
-    if (OSUtils.isMacOSX()) {
-      GURLHandler.getInstance().register();
-      MacEventHandler.instance();
-    }
-    // Run any after-init tasks.
-    postinit();
   }
 
   /** Initializes the very early things. */
@@ -405,9 +498,36 @@ final class Initializer {
     // after the backend has been constructed.
     GUIMediator.instance().coreInitialized();
     GUIMediator.setSplashScreenString(I18n.tr("Loading Old Downloads..."));
+    BTEngine.getInstance().setRestoreListener(new RestoreStatusListener());
     limeWireCore.getDownloadManager().loadSavedDownloadsAndScheduleWriting();
   }
 
+  /** Shows the progress of the parallel torrent restore in the splash screen or status line. */
+  private static final class RestoreStatusListener implements BTRestoreListener {
+    @Override
+    public void restoreProgress(BTEngine engine, int restored, int total) {
+      GUIMediator.setSplashScreenString(
+          I18n.tr("Loading Old Downloads ({0} of {1})...", restored, total));
+    }
+
+    @Override
+    public void restoreFinished(
+        BTEngine engine, int restored, int failed, int total, long elapsedMillis) {
+      GUIMediator.setSplashScreenString("");
+      engine.setRestoreListener(null);
+    }
+  }
+
+  /** Applies the user's IP block list, see {@link IPFilterStore#loadAndApply()}. */
+  private void loadIPFilter() {
+    try {
+      IPFilterStore.loadAndApply();
+    } catch (Throwable t) {
+      // startup goes on without the block list rather than not at all
+      com.frostwire.util.Logger.getLogger(Initializer.class).error("Could not load the IP filter", t);
+    }
+  }
+
   /**
    * Wires the distributed-search direct peer-search stack: opens the local torrent index, loads (or
    * generates) the node's cryptographic identity, installs the auto-indexer on BTEngine, opens the
@@ -416,8 +536,9 @@ final class Initializer {
    * user searches can query it, and starts the direct peer-search server so peers can query our
    * index over plain TCP.
    *
-   * <p>Runs before {@link #startCore(LimeWireCore)} so the indexer is already installed when saved
-   * downloads are restored and their {@code downloadAdded} events fire. {@code
+   * <p>Runs as a background startup task once the BitTorrent session is up, overlapping with the
+   * UI load. It must finish before {@link #startCore(LimeWireCore)} so the indexer is already
+   * installed when saved downloads are restored and their {@code downloadAdded} events fire. {@code
    * BTEngineListenerChain.install} appends the {@code DownloadManagerImpl} listener later without
    * disturbing the indexer.
    */
@@ -470,7 +591,7 @@ final class Initializer {
       // 6. Wire the karma cache into the LOCAL search engine so
       //    user searches can weight results by the publisher's karma.
       RemoteKarmaChainFetcher karmaFetcher =
-          new RemoteKarmaChainFetcher(new DhtKarmaChainSource(btEngine));
+          new RemoteKarmaChainFetcher(new DhtKarmaChainSource(btEngine), karmaTable);
       PeerKarmaCache karmaCache = new PeerKarmaCache(karmaFetcher);
       LocalSearchEngineWire.setKarmaCache(karmaCache);
 
@@ -508,7 +629,7 @@ final class Initializer {
       //     peers from the normal Search UI.
       if (SearchEnginesSettings.ICEBRIDGE_ENABLED.getValue()
           && SearchEnginesSettings.DISTRIBUTED_SEARCH_ENABLED.getValue()) {
-        startIceBridgeSearch(localIndex, directory, identity, relayLog);
+        startIceBridgeSearch(localIndex, directory, identity, btEngine, relayLog);
       } else {
         relayLog.info("IceBridge disabled via settings.");
       }
@@ -567,6 +688,7 @@ final class Initializer {
       LocalIndex localIndex,
       PeerDirectory directory,
       IdentityKeys identity,
+      BTEngine btEngine,
       com.frostwire.util.Logger relayLog) {
     try {
       IceBridgeClient client;
@@ -643,7 +765,9 @@ final class Initializer {
             new IceBridgeProcessLauncher(
                 // relayPort=0: the app's own IncomingRelayServer already owns
                 // the identity TCP port (dual-bind causes EADDRINUSE).
-                jarPath, identityFile, 0, effectiveRudpPort, 0, role, bindHost);
+                jarPath, identityFile, 0, effectiveRudpPort, 0, role, bindHost,
+                // the daemon's rUDP listener drops the same peers as libtorrent
+                IPFilterStore.indexFile());
         launcher.start();
         relayLog.info("IceBridge daemon (local child) started:");
         relayLog.info("  controlPort=" + launcher.controlPort() + " (auto-assigned)");
@@ -733,7 +857,12 @@ final class Initializer {
               + syncRole);
 
       // Wire the DISTRIBUTED search engine.
-      DistributedSearchEngineWire.wire(localIndex, directory, identity, transport);
+      DistributedSearchEngineWire.wire(
+          localIndex,
+          directory,
+          identity,
+          transport,
+          new CatalogSummaryFetcher(new CatalogSummaryFetcher.DhtSummarySource(btEngine)));
       boolean usingRemote = useRemote && remoteUrl != null && !remoteUrl.isEmpty();
       relayLog.info(
           "Relay stack ready; Distributed search engine wired via IceBridge"
@@ -910,7 +1039,8 @@ final class Initializer {
     }
   }
 
-  private void startBittorrentCore() {
+  /** Builds the {@link BTContext} from settings and releases {@link BTEngine#getInstance()}. */
+  private void setupBittorrentContext() {
     SharingSettings.initTorrentDataDirSetting();
     SharingSettings.initTorrentsDirSetting();
     File homeDir =
@@ -957,6 +1087,10 @@ final class Initializer {
     FrostWireUtils.getFrostWireVersionBuild(ctx.version);
     BTEngine.ctx = ctx;
     BTEngine.onCtxSetupComplete();
+  }
+
+  /** Starts the libtorrent session configured by {@link #setupBittorrentContext()}. */
+  private void startBittorrentSession() {
     BTEngine btEngine = BTEngine.getInstance();
     btEngine.start();
     VPNStatusRefresher.getInstance().addRefreshListener(new VPNDropGuard());
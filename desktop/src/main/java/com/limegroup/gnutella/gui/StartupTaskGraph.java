@@ -0,0 +1,326 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.limegroup.gnutella.gui;
+
+import com.frostwire.util.JsonUtils;
+import com.frostwire.util.Logger;
+import com.frostwire.util.ThreadPool;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A small dependency graph of startup phases.
+ *
+ * <p>Tasks are declared in order with the names of the tasks they depend on. A dependency must be
+ * declared before the task that uses it, which rules out cycles by construction. Caller tasks run
+ * inline on the thread that calls {@link #run()}, in declaration order, each one waiting for its
+ * dependencies first. Background tasks run on a small daemon pool as soon as their dependencies
+ * are done, so independent phases (BitTorrent session, relay stack, MCP server...) overlap with
+ * the UI work done by the caller.
+ *
+ * <p>Each task's start offset, wall time and thread are recorded. {@link #toJson()} renders them
+ * together with named milestones (see {@link #mark(String)}) as a machine-readable startup
+ * profile.
+ *
+ * <p>A failed task fails every task that depends on it. Caller tasks rethrow the failure so the
+ * startup sequence aborts the same way it did when the phases were called one after another.
+ */
+final class StartupTaskGraph {
+  private static final Logger LOG = Logger.getLogger(StartupTaskGraph.class);
+
+  private final String name;
+  private final ExecutorService pool;
+  private final long originNanos;
+  private final Map<String, Task> tasks = new LinkedHashMap<>();
+  private final Map<String, Long> marks = new LinkedHashMap<>();
+
+  StartupTaskGraph(String name, int backgroundThreads) {
+    this.name = name;
+    this.pool = ThreadPool.newThreadPool(name, Math.max(1, backgroundThreads), true);
+    this.originNanos = System.nanoTime();
+  }
+
+  /** Declares a task that runs on the thread calling {@link #run()}. */
+  StartupTaskGraph onCaller(String taskName, Runnable body, String... dependsOn) {
+    return add(taskName, body, false, dependsOn);
+  }
+
+  /** Declares a task that runs on the background pool once its dependencies are done. */
+  StartupTaskGraph inBackground(String taskName, Runnable body, String... dependsOn) {
+    return add(taskName, body, true, dependsOn);
+  }
+
+  private synchronized StartupTaskGraph add(
+      String taskName, Runnable body, boolean background, String... dependsOn) {
+    if (tasks.containsKey(taskName)) {
+      throw new IllegalArgumentException("Duplicate startup task: " + taskName);
+    }
+    List<Task> deps = new ArrayList<>(dependsOn.length);
+    for (String dep : dependsOn) {
+      Task d = tasks.get(dep);
+      if (d == null) {
+        throw new IllegalArgumentException(
+            "Startup task " + taskName + " depends on undeclared task " + dep);
+      }
+      deps.add(d);
+    }
+    tasks.put(taskName, new Task(taskName, body, background, deps));
+    return this;
+  }
+
+  /**
+   * Schedules every background task and then runs the caller tasks in declaration order. Returns
+   * once the last caller task is done; background tasks that nothing on the caller waits for may
+   * still be running (see {@link #awaitBackground(long)}).
+   */
+  void run() {
+    List<Task> snapshot;
+    synchronized (this) {
+      snapshot = new ArrayList<>(tasks.values());
+    }
+    for (Task t : snapshot) {
+      if (t.background) {
+        CompletableFuture.allOf(t.dependencyFutures())
+            .whenCompleteAsync((ignored, depFailure) -> t.execute(depFailure), pool);
+      }
+    }
+    CompletableFuture.allOf(allFutures(snapshot))
+        .whenComplete((ignored, failure) -> pool.shutdown());
+    for (Task t : snapshot) {
+      if (!t.background) {
+        Throwable depFailure = null;
+        try {
+          CompletableFuture.allOf(t.dependencyFutures()).join();
+        } catch (CompletionException e) {
+          depFailure = e.getCause() != null ? e.getCause() : e;
+        }
+        t.execute(depFailure);
+        if (t.done.isCompletedExceptionally()) {
+          rethrow(t);
+        }
+      }
+    }
+  }
+
+  /** Waits for every task, including background ones. Returns true if all finished in time. */
+  boolean awaitBackground(long timeoutMillis) {
+    List<Task> snapshot;
+    synchronized (this) {
+      snapshot = new ArrayList<>(tasks.values());
+    }
+    try {
+      CompletableFuture.allOf(allFutures(snapshot)).get(timeoutMillis, TimeUnit.MILLISECONDS);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      return true;
+    } catch (TimeoutException e) {
+      return false;
+    }
+  }
+
+  /** Records a named milestone (e.g. {@code first-window}) at the current offset. */
+  void mark(String milestone) {
+    long now = System.nanoTime();
+    synchronized (marks) {
+      marks.putIfAbsent(milestone, now);
+    }
+  }
+
+  /** Milliseconds from graph creation to the given milestone, or -1 if it was never reached. */
+  long markMillis(String milestone) {
+    synchronized (marks) {
+      Long at = marks.get(milestone);
+      return at == null ? -1 : TimeUnit.NANOSECONDS.toMillis(at - originNanos);
+    }
+  }
+
+  /** Wall time of a finished task in milliseconds, or -1 if it has not finished. */
+  long durationMillis(String taskName) {
+    Task t;
+    synchronized (this) {
+      t = tasks.get(taskName);
+    }
+    if (t == null || t.endNanos < 0) {
+      return -1;
+    }
+    return TimeUnit.NANOSECONDS.toMillis(t.endNanos - t.startNanos);
+  }
+
+  /** Renders the recorded task timings and milestones as a JSON startup profile. */
+  String toJson() {
+    Profile profile = new Profile();
+    profile.graph = name;
+    profile.jvmStartToGraphMs = jvmUptimeAtOriginMillis();
+    synchronized (marks) {
+      for (Map.Entry<String, Long> e : marks.entrySet()) {
+        profile.marks.put(e.getKey(), TimeUnit.NANOSECONDS.toMillis(e.getValue() - originNanos));
+      }
+    }
+    List<Task> snapshot;
+    synchronized (this) {
+      snapshot = new ArrayList<>(tasks.values());
+    }
+    long lastEndNanos = originNanos;
+    boolean allDone = true;
+    for (Task t : snapshot) {
+      allDone &= t.done.isDone();
+      lastEndNanos = Math.max(lastEndNanos, t.endNanos);
+      TaskProfile tp = new TaskProfile();
+      tp.name = t.name;
+      tp.background = t.background;
+      tp.thread = t.threadName;
+      tp.dependsOn = t.deps.stream().map(d -> d.name).toArray(String[]::new);
+      tp.startMs = t.startNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(t.startNanos - originNanos);
+      tp.durationMs = t.endNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(t.endNanos - t.startNanos);
+      tp.status = t.status();
+      profile.tasks.add(tp);
+    }
+    profile.totalMs = allDone ? TimeUnit.NANOSECONDS.toMillis(lastEndNanos - originNanos) : -1;
+    return JsonUtils.toJson(profile, true);
+  }
+
+  /** Writes {@link #toJson()} to the given file, logging (not throwing) on failure. */
+  void writeProfile(File file) {
+    try {
+      File parent = file.getAbsoluteFile().getParentFile();
+      if (parent != null && !parent.exists()) {
+        parent.mkdirs();
+      }
+      Files.writeString(file.toPath(), toJson(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      LOG.warn("Could not write startup profile to " + file, e);
+    }
+  }
+
+  private long jvmUptimeAtOriginMillis() {
+    try {
+      long uptimeNow = ManagementFactory.getRuntimeMXBean().getUptime();
+      return uptimeNow - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - originNanos);
+    } catch (Throwable t) {
+      return -1;
+    }
+  }
+
+  private static CompletableFuture<?>[] allFutures(List<Task> list) {
+    return list.stream().map(t -> t.done).toArray(CompletableFuture[]::new);
+  }
+
+  private static void rethrow(Task t) {
+    try {
+      t.done.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw new RuntimeException("Startup task " + t.name + " failed", cause);
+    }
+  }
+
+  private final class Task {
+    final String name;
+    final Runnable body;
+    final boolean background;
+    final List<Task> deps;
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+    volatile long startNanos = -1;
+    volatile long endNanos = -1;
+    volatile String threadName;
+    volatile boolean skipped;
+
+    Task(String name, Runnable body, boolean background, List<Task> deps) {
+      this.name = name;
+      this.body = body;
+      this.background = background;
+      this.deps = deps;
+    }
+
+    CompletableFuture<?>[] dependencyFutures() {
+      return deps.stream().map(d -> d.done).toArray(CompletableFuture[]::new);
+    }
+
+    void execute(Throwable depFailure) {
+      if (depFailure != null) {
+        skipped = true;
+        LOG.warn("Startup task " + name + " skipped, a dependency failed: " + depFailure);
+        done.completeExceptionally(depFailure);
+        return;
+      }
+      threadName = Thread.currentThread().getName();
+      startNanos = System.nanoTime();
+      try {
+        body.run();
+        endNanos = System.nanoTime();
+        done.complete(null);
+      } catch (Throwable t) {
+        endNanos = System.nanoTime();
+        LOG.error("Startup task " + name + " failed", t);
+        done.completeExceptionally(t);
+      }
+      LOG.info(
+          "Startup task "
+              + name
+              + " took "
+              + TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos)
+              + " ms on "
+              + threadName);
+    }
+
+    String status() {
+      if (skipped) return "skipped";
+      if (!done.isDone()) return startNanos < 0 ? "pending" : "running";
+      return done.isCompletedExceptionally() ? "failed" : "ok";
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private static final class Profile {
+    String graph;
+    long jvmStartToGraphMs;
+    long totalMs;
+    Map<String, Long> marks = new LinkedHashMap<>();
+    List<TaskProfile> tasks = new ArrayList<>();
+  }
+
+  @SuppressWarnings("unused")
+  private static final class TaskProfile {
+    String name;
+    boolean background;
+    String thread;
+    String[] dependsOn;
+    long startMs;
+    long durationMs;
+    String status;
+  }
+}
@@ -19,11 +19,10 @@
 package com.limegroup.gnutella.gui.options.panes;
 
 import com.frostwire.bittorrent.BTEngine;
-import com.frostwire.jlibtorrent.swig.address;
-import com.frostwire.jlibtorrent.swig.error_code;
 import com.frostwire.jlibtorrent.swig.ip_filter;
 import com.frostwire.regex.Matcher;
 import com.frostwire.regex.Pattern;
+import com.frostwire.util.IPIntervalSet;
 import com.frostwire.util.Logger;
 import com.frostwire.util.http.HttpClient;
 import com.frostwire.util.http.JdkHttpClient;
@@ -38,6 +37,7 @@ import com.limegroup.gnutella.gui.options.panes.ipfilter.DatFilterInputStreamRea
 import com.limegroup.gnutella.gui.options.panes.ipfilter.HostsFilterInputStreamReader;
 import com.limegroup.gnutella.gui.options.panes.ipfilter.IPFilterFormat;
 import com.limegroup.gnutella.gui.options.panes.ipfilter.IPFilterInputStreamReader;
+import com.limegroup.gnutella.gui.options.panes.ipfilter.IPFilterStore;
 import com.limegroup.gnutella.gui.options.panes.ipfilter.IPRange;
 import com.limegroup.gnutella.gui.options.panes.ipfilter.P2PIPFilterInputStreamReader;
 import com.limegroup.gnutella.gui.util.DesktopParallelExecutor;
@@ -230,10 +230,7 @@ public class IPFilterPaneItem extends AbstractPaneItem {
             }
         }
         DesktopParallelExecutor.execute(() -> {
-            BTEngine engine = BTEngine.getInstance();
-            if (engine != null) {
-                engine.swig().set_ip_filter(new ip_filter());
-            }
+            IPFilterStore.clear();
             GUIMediator.safeInvokeLater(() -> enableImportControls(true));
         });
     }
@@ -308,27 +305,14 @@ public class IPFilterPaneItem extends AbstractPaneItem {
                 fos = new FileOutputStream(tmpDBFile);
                 IPFilterTableMediator.IPFilterModel dataModel = ipFilterTable.getDataModel();
                 final String importingString = I18n.tr("Importing");
-                BTEngine engine = BTEngine.getInstance();
-                ip_filter currentFilter = null;
-                if (engine != null) {
-                    currentFilter = engine.swig().get_ip_filter();
-                }
+                IPIntervalSet.Builder compiled = new IPIntervalSet.Builder();
                 while (ipFilterReader.available() > 0) {
                     IPRange ipRange = ipFilterReader.readLine();
                     if (ipRange != null) {
                         try {
                             ipRange.writeObjectTo(fos);
                             dataModel.add(ipRange, dataModel.getRowCount());
-                            if (currentFilter != null) {
-                                error_code ec = new error_code();
-                                address addrStart = address.from_string(ipRange.startAddress(), ec);
-                                if (!ec.failed()) {
-                                    address addrEnd = address.from_string(ipRange.endAddress(), ec);
-                                    if (!ec.failed()) {
-                                        currentFilter.add_rule(addrStart, addrEnd, ip_filter.access_flags.blocked.swigValue());
-                                    }
-                                }
-                            }
+                            IPFilterStore.add(compiled, ipRange);
                             if (dataModel.getRowCount() % 100 == 0) {
                                 GUIMediator.safeInvokeLater(() -> updateProgressBar((int) ((ipFilterReader.bytesRead() * 100.0f / decompressedFileSize)), importingString));
                             }
@@ -337,17 +321,18 @@ public class IPFilterPaneItem extends AbstractPaneItem {
                         }
                     }
                 }
-                if (engine != null && currentFilter != null) {
-                    engine.swig().set_ip_filter(currentFilter);
-                }
                 // Atomic rename: only swap db if import succeeded
                 synchronized (IP_FILTER_DB_LOCK) {
                     fos.flush();
                     fos.close();
                     fos = null;
-                    File dbFile = getIPFilterDBFile();
+                    File dbFile = IPFilterStore.dbFile();
                     if (!tmpDBFile.renameTo(dbFile)) {
+                        // the .db still holds the previous list, keep applying that one
                         LOG.error("importFromIPBlockFileAsync(): failed to atomically rename ip_filter.db.tmp");
+                        tmpDBFile.delete();
+                    } else {
+                        IPFilterStore.saveAndApply(compiled.build());
                     }
                 }
                 GUIMediator.safeInvokeLater(() -> {
@@ -625,34 +610,24 @@ public class IPFilterPaneItem extends AbstractPaneItem {
             }
         }
         DesktopParallelExecutor.execute(() -> {
-            ip_filter freshFilter = new ip_filter();
-            File tmpFile = new File(getIPFilterDBFile().getAbsolutePath() + ".tmp");
+            File tmpFile = new File(IPFilterStore.dbFile().getAbsolutePath() + ".tmp");
             FileOutputStream fos = null;
             try {
                 fos = new FileOutputStream(tmpFile);
                 for (IPRange ipRange : ranges) {
-                    error_code ec = new error_code();
-                    address addrStart = address.from_string(ipRange.startAddress(), ec);
-                    if (!ec.failed()) {
-                        address addrEnd = address.from_string(ipRange.endAddress(), ec);
-                        if (!ec.failed()) {
-                            freshFilter.add_rule(addrStart, addrEnd, ip_filter.access_flags.blocked.swigValue());
-                        }
-                    }
                     ipRange.writeObjectTo(fos);
                 }
                 fos.flush();
                 fos.close();
                 fos = null;
                 synchronized (IP_FILTER_DB_LOCK) {
-                    if (!tmpFile.renameTo(getIPFilterDBFile())) {
+                    if (!tmpFile.renameTo(IPFilterStore.dbFile())) {
                         LOG.error("rebuildIPFilter(): failed to atomically rename ip_filter.db.tmp");
+                        tmpFile.delete();
+                    } else {
+                        IPFilterStore.saveAndApply(IPFilterStore.compile(ranges));
                     }
                 }
-                BTEngine engine = BTEngine.getInstance();
-                if (engine != null) {
-                    engine.swig().set_ip_filter(freshFilter);
-                }
             } catch (IOException e) {
                 LOG.error("rebuildIPFilter(): " + e.getMessage(), e);
                 tmpFile.delete();
@@ -689,11 +664,8 @@ public class IPFilterPaneItem extends AbstractPaneItem {
             final IPFilterTableMediator.IPFilterModel dataModel = ipFilterTable.getDataModel();
             dataModel.clear();
             int ranges = 0;
-            BTEngine engine = BTEngine.getInstance();
-            ip_filter currentFilter = null;
-            if (engine != null) {
-                currentFilter = engine.swig().get_ip_filter();
-            }
+            // only fills the table, libtorrent and the IPBlocklist get the compiled
+            // ip_filter.idx at startup (see IPFilterStore#loadAndApply)
             synchronized (IP_FILTER_DB_LOCK) {
                 final FileInputStream fis = new FileInputStream(ipFilterDBFile);
                 try {
@@ -701,20 +673,6 @@ public class IPFilterPaneItem extends AbstractPaneItem {
                         try {
                             IPRange ipRange = IPRange.readObjectFrom(fis);
                             dataModel.add(ipRange, dataModel.getRowCount());
-                            if (currentFilter != null) {
-                                try {
-                                    error_code ec = new error_code();
-                                    address addrStart = address.from_string(ipRange.startAddress(), ec);
-                                    if (!ec.failed()) {
-                                        address addrEnd = address.from_string(ipRange.endAddress(), ec);
-                                        if (!ec.failed()) {
-                                            currentFilter.add_rule(addrStart, addrEnd, ip_filter.access_flags.blocked.swigValue());
-                                        }
-                                    }
-                                } catch (RuntimeException t) {
-                                    LOG.warn("Skipping invalid IP range for filter: " + ipRange + " - " + t.getMessage());
-                                }
-                            }
                             ranges++;
                         } catch (EOFException e) {
                             break; // normal end of file or corruption
@@ -730,9 +688,6 @@ public class IPFilterPaneItem extends AbstractPaneItem {
                     fis.close();
                 }
             }
-            if (engine != null && currentFilter != null) {
-                engine.swig().set_ip_filter(currentFilter);
-            }
             long end = System.currentTimeMillis();
             long delta = end - start;
             LOG.info("loadSerializedIPFilter(): loaded " + ranges + " ip filter ranges in " + delta + "ms");
@@ -742,7 +697,7 @@ public class IPFilterPaneItem extends AbstractPaneItem {
     }
 
     private File getIPFilterDBFile() {
-        return new File(CommonUtils.getUserSettingsDir(), "ip_filter.db");
+        return IPFilterStore.dbFile();
     }
 
 }
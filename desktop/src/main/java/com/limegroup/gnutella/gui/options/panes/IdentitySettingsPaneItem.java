@@ -9,6 +9,7 @@ package com.limegroup.gnutella.gui.options.panes;
 
 import com.frostwire.search.relay.IdentityKeys;
 import com.frostwire.search.relay.IdentityLifecycle;
+import com.frostwire.search.relay.IdentityMiner;
 import com.frostwire.search.relay.KarmaChainTable;
 import com.frostwire.search.relay.KarmaConstants;
 import com.frostwire.search.relay.PeerKarmaCache;
@@ -237,6 +238,7 @@ public final class IdentitySettingsPaneItem extends AbstractPaneItem {
     }
 
     generating = true;
+    GENERATE_PROGRESS.setString(I18n.tr("Mining proof-of-work identity…"));
     GENERATE_PROGRESS.setVisible(true);
     refreshIdentityInfo();
 
@@ -245,7 +247,17 @@ public final class IdentitySettingsPaneItem extends AbstractPaneItem {
           try {
             IdentityKeys keys =
                 IdentityLifecycle.generateAndInstall(
-                    identityFile(), KarmaConstants.IDENTITY_DIFFICULTY);
+                    identityFile(),
+                    KarmaConstants.IDENTITY_DIFFICULTY,
+                    new IdentityMiner(),
+                    progress ->
+                        GUIMediator.safeInvokeLater(
+                            () ->
+                                GENERATE_PROGRESS.setString(
+                                    I18n.tr(
+                                        "Mining proof-of-work identity… {0} keys/s on {1} cores",
+                                        String.valueOf(Math.round(progress.hashesPerSecond())),
+                                        String.valueOf(progress.threads())))));
             GUIMediator.safeInvokeLater(
                 () -> {
                   generating = false;
@@ -0,0 +1,191 @@
+/*
+ *     Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.limegroup.gnutella.gui.options.panes.ipfilter;
+
+import com.frostwire.bittorrent.BTEngine;
+import com.frostwire.jlibtorrent.swig.address;
+import com.frostwire.jlibtorrent.swig.address_v4;
+import com.frostwire.jlibtorrent.swig.error_code;
+import com.frostwire.jlibtorrent.swig.ip_filter;
+import com.frostwire.util.IPBlocklist;
+import com.frostwire.util.IPIntervalSet;
+import com.frostwire.util.Logger;
+import org.limewire.util.CommonUtils;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The compiled form of the IP filter.
+ * <p>
+ * {@code ip_filter.db} keeps every imported {@link IPRange} with its description, it is what the
+ * IP Filter table shows. {@code ip_filter.idx} is the same block list sorted and merged into an
+ * {@link IPIntervalSet}; at startup it is memory-mapped, published as the {@link IPBlocklist} and
+ * applied to libtorrent with a single {@code set_ip_filter}, without reading or parsing the
+ * range list. The index is rebuilt whenever the .db is rewritten, or at startup if it is missing
+ * or older than the .db (e.g. the .db was written by an older version or by the MCP tools).
+ */
+public final class IPFilterStore {
+    private static final Logger LOG = Logger.getLogger(IPFilterStore.class);
+
+    private IPFilterStore() {
+    }
+
+    public static File dbFile() {
+        return new File(CommonUtils.getUserSettingsDir(), "ip_filter.db");
+    }
+
+    public static File indexFile() {
+        return new File(CommonUtils.getUserSettingsDir(), "ip_filter.idx");
+    }
+
+    /**
+     * Loads the compiled index (compiling it first if needed) and applies it. Meant for startup.
+     */
+    public static void loadAndApply() {
+        long start = System.currentTimeMillis();
+        File db = dbFile();
+        File idx = indexFile();
+        IPIntervalSet set = null;
+        try {
+            if (idx.exists() && (!db.exists() || idx.lastModified() >= db.lastModified())) {
+                set = IPIntervalSet.load(idx);
+            }
+        } catch (IOException e) {
+            LOG.warn("IPFilterStore: unreadable " + idx + ", recompiling", e);
+        }
+        if (set == null) {
+            if (!db.exists() || db.length() == 0) {
+                return;
+            }
+            set = compile(db);
+            save(set);
+        }
+        apply(set);
+        LOG.info("IPFilterStore: applied " + set.size() + " merged ranges (" + set.v4Ranges() + " IPv4, " + set.v6Ranges() + " IPv6) in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * Reads every range of an {@code ip_filter.db} file into a merged set.
+     */
+    public static IPIntervalSet compile(File db) {
+        IPIntervalSet.Builder builder = new IPIntervalSet.Builder();
+        int ranges = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(db), 64 * 1024)) {
+            while (true) {
+                IPRange r;
+                try {
+                    r = IPRange.readObjectFrom(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                add(builder, r);
+                ranges++;
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.error("IPFilterStore: error reading " + db + " after " + ranges + " ranges, compiling what was read", e);
+        }
+        return builder.build();
+    }
+
+    public static IPIntervalSet compile(Iterable<IPRange> ranges) {
+        IPIntervalSet.Builder builder = new IPIntervalSet.Builder();
+        for (IPRange r : ranges) {
+            add(builder, r);
+        }
+        return builder.build();
+    }
+
+    public static void add(IPIntervalSet.Builder builder, IPRange r) {
+        try {
+            builder.add(r.startAddress(), r.endAddress());
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("IPFilterStore: skipping invalid range " + r + " - " + e.getMessage());
+        }
+    }
+
+    public static void save(IPIntervalSet set) {
+        try {
+            set.writeTo(indexFile());
+        } catch (IOException e) {
+            LOG.error("IPFilterStore: could not write " + indexFile(), e);
+        }
+    }
+
+    /**
+     * Saves the index and applies it, for when the .db has just been rewritten.
+     */
+    public static void saveAndApply(IPIntervalSet set) {
+        save(set);
+        apply(set);
+    }
+
+    public static void clear() {
+        //noinspection ResultOfMethodCallIgnored
+        indexFile().delete();
+        apply(IPIntervalSet.EMPTY);
+    }
+
+    /**
+     * Publishes the set as the {@link IPBlocklist} and replaces libtorrent's ip_filter with a
+     * fresh one built from the merged ranges in one pass, swapped in with one call. IPv4 ranges,
+     * almost all of any block list, go from the raw index values straight to native addresses.
+     */
+    public static void apply(IPIntervalSet set) {
+        IPBlocklist.set(set);
+        BTEngine engine = BTEngine.getInstance();
+        if (engine == null || engine.swig() == null) {
+            return;
+        }
+        ip_filter filter = new ip_filter();
+        int flags = ip_filter.access_flags.blocked.swigValue();
+        set.forEachV4((start, end) -> filter.add_rule(
+                new address(new address_v4(Integer.toUnsignedLong(start))),
+                new address(new address_v4(Integer.toUnsignedLong(end))),
+                flags));
+        set.forEachV6((startHi, startLo, endHi, endLo) -> {
+            error_code ec = new error_code();
+            address a = address.from_string(v6Literal(startHi, startLo), ec);
+            if (ec.failed()) {
+                return;
+            }
+            address b = address.from_string(v6Literal(endHi, endLo), ec);
+            if (!ec.failed()) {
+                filter.add_rule(a, b, flags);
+            }
+        });
+        engine.swig().set_ip_filter(filter);
+    }
+
+    private static String v6Literal(long hi, long lo) {
+        StringBuilder sb = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            long half = i < 4 ? hi : lo;
+            if (i > 0) {
+                sb.append(':');
+            }
+            sb.append(Long.toHexString((half >>> (48 - 16 * (i % 4))) & 0xFFFF));
+        }
+        return sb.toString();
+    }
+}
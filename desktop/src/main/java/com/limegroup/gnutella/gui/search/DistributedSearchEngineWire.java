@@ -7,6 +7,7 @@
 
 package com.limegroup.gnutella.gui.search;
 
+import com.frostwire.search.relay.CatalogSummaryFetcher;
 import com.frostwire.search.relay.DistributedSearchTransport;
 import com.frostwire.search.relay.IdentityKeys;
 import com.frostwire.search.relay.LocalIndex;
@@ -20,7 +21,8 @@ import com.frostwire.search.relay.PeerDirectory;
  * a {@link PeerDirectory} for authenticated peers, the node's
  * {@link IdentityKeys} for signing requests, and a
  * {@link DistributedSearchTransport} for sending and receiving payloads
- * over IceBridge.
+ * over IceBridge. A {@link CatalogSummaryFetcher} is optional; with one,
+ * searches skip peers whose catalog summary rules out the query.
  */
 public final class DistributedSearchEngineWire {
     private static volatile PeerDirectory peerDirectoryRef;
@@ -32,6 +34,14 @@ public final class DistributedSearchEngineWire {
                             PeerDirectory peerDirectory,
                             IdentityKeys identity,
                             DistributedSearchTransport transport) {
+        wire(localIndex, peerDirectory, identity, transport, null);
+    }
+
+    public static void wire(LocalIndex localIndex,
+                            PeerDirectory peerDirectory,
+                            IdentityKeys identity,
+                            DistributedSearchTransport transport,
+                            CatalogSummaryFetcher catalogSummaries) {
         if (localIndex == null) {
             throw new IllegalArgumentException("localIndex is null");
         }
@@ -51,7 +61,8 @@ public final class DistributedSearchEngineWire {
         distributed.setLocalIndex(localIndex)
                 .setPeerDirectory(peerDirectory)
                 .setIdentityKeys(identity)
-                .setSearchTransport(transport);
+                .setSearchTransport(transport)
+                .setCatalogSummaries(catalogSummaries);
         peerDirectoryRef = peerDirectory;
     }
 
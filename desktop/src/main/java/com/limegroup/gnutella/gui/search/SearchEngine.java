@@ -409,13 +409,18 @@ public abstract class SearchEngine {
             throw new RuntimeException(
                 "Distributed search engine is not ready; install localIndex, peerDirectory, identity, and searchTransport.");
           }
-          return new DistributedSearchPerformer(
-              token,
-              keywords,
-              DISTRIBUTED.localIndex,
-              DISTRIBUTED.peerDirectory,
-              DISTRIBUTED.identity,
-              DISTRIBUTED.searchTransport);
+          DistributedSearchPerformer performer =
+              new DistributedSearchPerformer(
+                  token,
+                  keywords,
+                  DISTRIBUTED.localIndex,
+                  DISTRIBUTED.peerDirectory,
+                  DISTRIBUTED.identity,
+                  DISTRIBUTED.searchTransport,
+                  DISTRIBUTED.catalogSummaries);
+          // show peer rows as their signed chunks arrive
+          performer.setStreamResults(true);
+          return performer;
         }
 
         @Override
@@ -442,6 +447,9 @@ public abstract class SearchEngine {
   /** Holder for the transport used by the DISTRIBUTED engine to send/receive search payloads. */
   private volatile DistributedSearchTransport searchTransport;
 
+  /** Optional peer catalog summaries used by the DISTRIBUTED engine to prune its fanout. */
+  private volatile com.frostwire.search.relay.CatalogSummaryFetcher catalogSummaries;
+
   /** MCP / diagnostics accessors for distributed relay wiring. */
   public static com.frostwire.search.relay.PeerDirectory getDistributedPeerDirectory() {
     return DISTRIBUTED.peerDirectory;
@@ -632,4 +640,14 @@ public abstract class SearchEngine {
   public DistributedSearchTransport getSearchTransport() {
     return searchTransport;
   }
+
+  /**
+   * Installs the peer catalog summaries the DISTRIBUTED engine uses to skip peers that cannot match
+   * a query; null disables pruning. Idempotent; the most recent call wins.
+   */
+  public SearchEngine setCatalogSummaries(
+      com.frostwire.search.relay.CatalogSummaryFetcher catalogSummaries) {
+    this.catalogSummaries = catalogSummaries;
+    return this;
+  }
 }
@@ -0,0 +1,125 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.gui.library;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LibraryIndexTest {
+
+    @TempDir
+    File temp;
+
+    private LibraryIndex index;
+
+    @AfterEach
+    void tearDown() {
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Test
+    void searchMatchesEveryNormalizedTokenUnderTheDirectory() throws IOException {
+        File music = dir("Music");
+        touch(music, "Bjork", "Homogenic", "01 - Hunter.mp3");
+        touch(music, "Bjork", "Homogenic", "02 - Joga.mp3");
+        touch(music, "Other", "hunter.flac");
+        touch(dir("Elsewhere"), "bjork hunter.mp3");
+        index = new LibraryIndex(null);
+
+        List<File> results = search(music, "BJORK  hunter");
+
+        assertEquals(1, results.size());
+        assertEquals("01 - Hunter.mp3", results.get(0).getName());
+        assertEquals(1, search(music, "J\u00f3ga").size(), "diacritics are dropped");
+        assertEquals(3, index.size(), "only the searched directory is indexed");
+    }
+
+    @Test
+    void normalizationDropsDiacriticsAndCase() {
+        assertEquals("bjork", LibraryIndex.normalize("Bj\u00d6rk"));
+        assertArrayEquals(new String[]{"sigur", "ros"}, LibraryIndex.tokens("Sigur   R\u00f3s"));
+    }
+
+    @Test
+    void hiddenFilesExcludedFilesAndDirectoriesAreSkipped() throws IOException {
+        File music = dir("Music");
+        File keep = touch(music, "a", "song.mp3");
+        File ignored = touch(music, "b", "song.mp3");
+        touch(music, "c", "song.mp3");
+        touch(music, ".hidden", "song.mp3");
+        touch(music, ".song.mp3");
+        index = new LibraryIndex(null);
+
+        List<File> results = index.search(music, "song", Set.of(ignored), List.of(new File(music, "c")), f -> true);
+
+        assertEquals(List.of(keep.getAbsoluteFile()), results);
+    }
+
+    @Test
+    void reconciliationPicksUpChangesTheWatcherMissed() throws IOException {
+        File music = dir("Music");
+        File gone = touch(music, "old.mp3");
+        index = new LibraryIndex(null);
+        assertEquals(1, search(music, "old").size());
+
+        Files.delete(gone.toPath());
+        touch(music, "new", "new.mp3");
+        index.reconcileAll();
+
+        assertTrue(search(music, "old").isEmpty());
+        assertEquals(1, search(music, "new").size());
+    }
+
+    @Test
+    void snapshotIsReloadedWithoutWalkingAgain() throws IOException {
+        File music = dir("Music");
+        touch(music, "kept.mp3");
+        File snapshot = new File(temp, LibraryIndex.SNAPSHOT_FILE_NAME);
+        index = new LibraryIndex(snapshot);
+        search(music, "kept");
+        index.save();
+        index.close();
+
+        index = new LibraryIndex(snapshot);
+
+        assertEquals(1, index.size(), "loaded before any search");
+        assertTrue(index.matches(new File(music, "kept.mp3"), LibraryIndex.tokens("KEPT")));
+    }
+
+    private List<File> search(File dir, String query) {
+        return index.search(dir, query, Collections.emptySet(), Collections.emptyList(), f -> true);
+    }
+
+    private File dir(String name) {
+        File dir = new File(temp, name);
+        assertTrue(dir.mkdirs());
+        return dir;
+    }
+
+    private static File touch(File parent, String... path) throws IOException {
+        File f = parent;
+        for (String p : path) {
+            f = new File(f, p);
+        }
+        Files.createDirectories(f.getParentFile().toPath());
+        Files.createFile(f.toPath());
+        return f;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.gui.library.tags;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures opening a library view over a generated corpus of WAV files:
+ * tags and artwork of every file read without the cache, through a cold
+ * cache, and through the warm cache reopened from disk.
+ *
+ * <p>Usage: {@code TagsCacheBenchmark [numFiles]}, 2000 files by default.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public class TagsCacheBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int numFiles = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        File dir = Files.createTempDirectory("tags-cache-benchmark-").toFile();
+        try {
+            System.out.println("Tags Cache Benchmark");
+            System.out.println("=".repeat(60));
+            System.out.println("Generating " + numFiles + " WAV files in " + dir);
+            List<File> corpus = generateCorpus(dir, numFiles);
+            File dbFile = new File(dir, TagsCache.DEFAULT_DB_NAME);
+
+            // warm up the parsers and the JIT, not measured
+            openLibrary(corpus.subList(0, Math.min(100, numFiles)), null);
+
+            long uncached = openLibrary(corpus, null);
+            long cold;
+            try (TagsCache cache = TagsCache.open(dbFile)) {
+                cold = openLibrary(corpus, cache);
+            }
+            long warm;
+            try (TagsCache cache = TagsCache.open(dbFile)) {
+                warm = openLibrary(corpus, cache);
+            }
+
+            System.out.printf("No cache:   %6d ms (%.3f ms/file)%n", uncached, (double) uncached / numFiles);
+            System.out.printf("Cold cache: %6d ms (%.3f ms/file)%n", cold, (double) cold / numFiles);
+            System.out.printf("Warm cache: %6d ms (%.3f ms/file)%n", warm, (double) warm / numFiles);
+            System.out.printf("Warm speedup over no cache: %.1fx%n", (double) uncached / Math.max(1, warm));
+            System.out.println("Cache size: " + dbFile.length() / 1024 + " KB");
+        } finally {
+            deleteRecursive(dir);
+        }
+    }
+
+    /**
+     * Reads tags and artwork of every file, as the library table and the
+     * cover art panel do.
+     */
+    private static long openLibrary(List<File> files, TagsCache cache) {
+        long start = System.nanoTime();
+        for (File file : files) {
+            TagsReader reader = new TagsReader(file, cache);
+            if (reader.parse() == null) {
+                throw new IllegalStateException("Unable to parse " + file);
+            }
+            reader.getArtwork();
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static List<File> generateCorpus(File dir, int numFiles) throws IOException {
+        List<File> files = new ArrayList<>(numFiles);
+        for (int i = 0; i < numFiles; i++) {
+            File album = new File(dir, "Artist " + (i / 100) + File.separator + "Album " + (i / 10));
+            if (!album.isDirectory() && !album.mkdirs()) {
+                throw new IOException("Can't create " + album);
+            }
+            File file = new File(album, String.format("%02d - Track %d.wav", i % 10 + 1, i));
+            Files.write(file.toPath(), wav(1 + i % 5));
+            files.add(file);
+        }
+        return files;
+    }
+
+    /** 8 kHz mono 8-bit PCM of silence. */
+    private static byte[] wav(int seconds) throws IOException {
+        int sampleRate = 8000;
+        int dataLength = sampleRate * seconds;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(44 + dataLength);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBytes("RIFF");
+        out.writeInt(Integer.reverseBytes(36 + dataLength));
+        out.writeBytes("WAVEfmt ");
+        out.writeInt(Integer.reverseBytes(16));
+        out.writeShort(Short.reverseBytes((short) 1)); // PCM
+        out.writeShort(Short.reverseBytes((short) 1)); // mono
+        out.writeInt(Integer.reverseBytes(sampleRate));
+        out.writeInt(Integer.reverseBytes(sampleRate)); // byte rate
+        out.writeShort(Short.reverseBytes((short) 1)); // block align
+        out.writeShort(Short.reverseBytes((short) 8)); // bits per sample
+        out.writeBytes("data");
+        out.writeInt(Integer.reverseBytes(dataLength));
+        byte[] silence = new byte[dataLength];
+        Arrays.fill(silence, (byte) 0x80);
+        out.write(silence);
+        return bytes.toByteArray();
+    }
+
+    private static void deleteRecursive(File f) {
+        File[] kids = f.listFiles();
+        if (kids != null) {
+            for (File k : kids) {
+                deleteRecursive(k);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        f.delete();
+    }
+}
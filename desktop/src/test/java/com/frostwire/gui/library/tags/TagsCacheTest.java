@@ -0,0 +1,139 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.gui.library.tags;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagsCacheTest {
+
+    @TempDir
+    File temp;
+
+    private File dbFile;
+    private TagsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        dbFile = new File(temp, "tags.db");
+        cache = TagsCache.open(dbFile);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    void tagsAreParsedOnceUntilTheFileChanges() throws IOException {
+        File song = file("song.mp3", 100);
+        AtomicInteger parses = new AtomicInteger();
+
+        TagsData first = cache.getTags(song, () -> tags("Title " + parses.incrementAndGet()));
+        TagsData second = cache.getTags(song, () -> tags("Title " + parses.incrementAndGet()));
+
+        assertEquals(1, parses.get());
+        assertEquals("Title 1", second.getTitle());
+        assertEquals(first.getArtist(), second.getArtist());
+        assertEquals(215, second.getDuration());
+
+        Files.write(song.toPath(), new byte[200]);
+        assertTrue(song.setLastModified(song.lastModified() + 2000));
+        assertEquals("Title 2", cache.getTags(song, () -> tags("Title " + parses.incrementAndGet())).getTitle());
+        assertEquals(1, cache.size(), "the changed file's row is replaced");
+    }
+
+    @Test
+    void cacheSurvivesReopening() throws IOException {
+        File song = file("song.flac", 10);
+        cache.getTags(song, () -> tags("Persisted"));
+        cache.close();
+
+        cache = TagsCache.open(dbFile);
+
+        assertEquals("Persisted", cache.getTags(song, () -> fail("should be cached")).getTitle());
+    }
+
+    @Test
+    void artworkIsStoredAsAThumbnailAndMissingArtworkIsRemembered() throws IOException {
+        File withArt = file("a.mp3", 10);
+        File withoutArt = file("b.mp3", 10);
+        AtomicInteger reads = new AtomicInteger();
+
+        BufferedImage original = cache.getArtwork(withArt, () -> {
+            reads.incrementAndGet();
+            return new BufferedImage(1000, 500, BufferedImage.TYPE_INT_ARGB);
+        });
+        BufferedImage cached = cache.getArtwork(withArt, () -> fail("should be cached"));
+        assertNull(cache.getArtwork(withoutArt, () -> {
+            reads.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.getArtwork(withoutArt, () -> fail("should be cached")));
+
+        assertEquals(2, reads.get());
+        assertEquals(1000, original.getWidth(), "the first read returns the parsed image");
+        assertEquals(TagsCache.ARTWORK_THUMBNAIL_SIZE, cached.getWidth());
+        assertEquals(TagsCache.ARTWORK_THUMBNAIL_SIZE / 2, cached.getHeight());
+    }
+
+    @Test
+    void fileIsCachedOnlyOnceTagsAndArtworkAreBoth() throws IOException {
+        File song = file("c.ogg", 10);
+        assertFalse(cache.isCached(song));
+        cache.getTags(song, () -> tags("t"));
+        assertFalse(cache.isCached(song));
+        cache.getArtwork(song, () -> null);
+        assertTrue(cache.isCached(song));
+    }
+
+    @Test
+    void rowsOfDeletedFilesArePruned() throws IOException {
+        File kept = file("kept.mp3", 10);
+        File deleted = file("deleted.mp3", 10);
+        cache.getTags(kept, () -> tags("kept"));
+        cache.getTags(deleted, () -> tags("deleted"));
+        Files.delete(deleted.toPath());
+
+        cache.pruneDeletedFiles();
+
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void missingFilesAreNotCached() {
+        File missing = new File(temp, "missing.mp3");
+        AtomicInteger parses = new AtomicInteger();
+        cache.getTags(missing, () -> tags("x" + parses.incrementAndGet()));
+        cache.getTags(missing, () -> tags("x" + parses.incrementAndGet()));
+        assertEquals(2, parses.get());
+        assertEquals(0, cache.size());
+    }
+
+    private File file(String name, int length) throws IOException {
+        File f = new File(temp, name);
+        Files.write(f.toPath(), new byte[length]);
+        return f;
+    }
+
+    private static TagsData tags(String title) {
+        return new TagsData(215, "320", title, "Artist", "Album", "", "Rock", "1", "2026", "");
+    }
+}
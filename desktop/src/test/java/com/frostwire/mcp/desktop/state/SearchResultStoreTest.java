@@ -0,0 +1,194 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.mcp.desktop.state;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.frostwire.search.CompositeFileSearchResult;
+import com.frostwire.search.SearchResult;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/** Tests for SearchResultStore: dedupe, bounded eviction, score order and cursor pagination. */
+public class SearchResultStoreTest {
+
+  @Test
+  public void dedupesByInfoHashKeepingTheBestScored() {
+    SearchResultStore store =
+        new SearchResultStore(10, SearchResultStore.relevanceScorer("ubuntu iso"));
+    store.addAll(
+        Arrays.asList(
+            torrent("ubuntu iso", "ABCDEF", 5),
+            torrent("ubuntu iso (mirror)", "abcdef", 500),
+            cloud("ubuntu iso", "https://example.com/ubuntu.iso"),
+            cloud("ubuntu iso copy", "https://example.com/ubuntu.iso")));
+
+    assertEquals(2, store.size());
+    assertEquals(2, store.getDuplicates());
+    List<SearchResult> results = store.snapshot();
+    assertEquals("ubuntu iso (mirror)", results.get(0).getDisplayName());
+    assertEquals("ubuntu iso", results.get(1).getDisplayName());
+  }
+
+  @Test
+  public void evictsTheLowestScoredWhenFull() {
+    SearchResultStore store = new SearchResultStore(3, SearchResultStore.relevanceScorer("song"));
+    store.addAll(
+        Arrays.asList(
+            torrent("song", "h1", 10), torrent("song", "h2", 100), torrent("song", "h3", 1)));
+    store.addAll(Collections.singletonList(torrent("song", "h4", 1000)));
+    store.addAll(Collections.singletonList(torrent("other", "h5", 1000)));
+
+    assertEquals(3, store.size());
+    assertEquals(2, store.getEvicted());
+    List<SearchResult> results = store.snapshot();
+    assertEquals(
+        Arrays.asList("h4", "h2", "h1"),
+        Arrays.asList(hash(results.get(0)), hash(results.get(1)), hash(results.get(2))));
+  }
+
+  @Test
+  public void ranksByKeywordRelevanceBeforeSeeds() {
+    SearchResultStore store =
+        new SearchResultStore(10, SearchResultStore.relevanceScorer("free software song"));
+    store.addAll(
+        Arrays.asList(
+            torrent("unrelated", "h1", 100000),
+            torrent("Free Software Song", "h2", 3),
+            cloud("free software song.mp3", "https://example.com/fss.mp3")));
+
+    List<SearchResult> results = store.snapshot();
+    assertEquals("Free Software Song", results.get(0).getDisplayName());
+    assertEquals("free software song.mp3", results.get(1).getDisplayName());
+    assertEquals("unrelated", results.get(2).getDisplayName());
+  }
+
+  @Test
+  public void cursorPagesAreStableWhileResultsArrive() {
+    SearchResultStore store = new SearchResultStore(100, SearchResultStore.relevanceScorer("x"));
+    List<SearchResult> batch = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      batch.add(torrent("x " + i, "h" + i, i));
+    }
+    store.addAll(batch);
+
+    SearchResultStore.Page first = store.page(null, 4, sr -> true);
+    assertEquals(4, first.results.size());
+    assertEquals(10, first.total);
+    assertNotNull(first.nextCursor);
+
+    // a better result arriving between pages lands before the cursor, not in the next page
+    store.addAll(Collections.singletonList(torrent("x top", "top", 10000)));
+
+    Set<String> seen = new HashSet<>();
+    for (SearchResult sr : first.results) {
+      seen.add(hash(sr));
+    }
+    String cursor = first.nextCursor;
+    while (cursor != null) {
+      SearchResultStore.Page page = store.page(cursor, 4, sr -> true);
+      for (SearchResult sr : page.results) {
+        assertTrue(seen.add(hash(sr)), "duplicate " + hash(sr));
+      }
+      cursor = page.nextCursor;
+    }
+    assertEquals(10, seen.size());
+    assertFalse(seen.contains("top"));
+  }
+
+  @Test
+  public void betterDuplicatesKeepTheirPlaceInOpenCursors() {
+    SearchResultStore store = new SearchResultStore(100, SearchResultStore.relevanceScorer("x"));
+    List<SearchResult> batch = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      batch.add(torrent("x " + i, "h" + i, i));
+    }
+    store.addAll(batch);
+
+    SearchResultStore.Page first = store.page(null, 4, sr -> true);
+    // the last ranked result shows up again with far more seeds
+    CompositeFileSearchResult better = torrent("x 0 (better)", "h0", 100000);
+    store.addAll(Collections.singletonList(better));
+
+    List<SearchResult> seen = new ArrayList<>(first.results);
+    String cursor = first.nextCursor;
+    while (cursor != null) {
+      SearchResultStore.Page page = store.page(cursor, 4, sr -> true);
+      seen.addAll(page.results);
+      cursor = page.nextCursor;
+    }
+    assertEquals(10, seen.size());
+    assertSame(better, seen.get(9));
+    assertEquals(1, store.getDuplicates());
+  }
+
+  @Test
+  public void filteredAndSortedPages() {
+    SearchResultStore store = new SearchResultStore(100, SearchResultStore.relevanceScorer("x"));
+    store.addAll(
+        Arrays.asList(
+            torrent("x a", "h1", 1),
+            torrent("x b", "h2", 50),
+            torrent("x c", "h3", 20),
+            cloud("x d", "https://example.com/d")));
+
+    SearchResultStore.Page page =
+        store.page(null, 1, sr -> sr instanceof CompositeFileSearchResult
+            && ((CompositeFileSearchResult) sr).isTorrent());
+    assertEquals(3, page.total);
+    assertEquals("h2", hash(page.results.get(0)));
+
+    SearchResultStore.Page byName =
+        store.sortedPage(
+            (a, b) -> a.getDisplayName().compareTo(b.getDisplayName()), "displayName", null, 3,
+            sr -> true);
+    assertEquals("x a", byName.results.get(0).getDisplayName());
+    SearchResultStore.Page rest =
+        store.sortedPage(
+            (a, b) -> a.getDisplayName().compareTo(b.getDisplayName()), "displayName",
+            byName.nextCursor, 3, sr -> true);
+    assertEquals(1, rest.results.size());
+    assertEquals("x d", rest.results.get(0).getDisplayName());
+    assertNull(rest.nextCursor);
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> store.sortedPage(null, "size", byName.nextCursor, 3, sr -> true));
+    assertThrows(IllegalArgumentException.class, () -> store.page(byName.nextCursor, 3, sr -> true));
+    assertThrows(IllegalArgumentException.class, () -> store.page("not a cursor!", 3, sr -> true));
+  }
+
+  private static CompositeFileSearchResult torrent(String name, String hash, int seeds) {
+    return CompositeFileSearchResult.builder()
+        .displayName(name)
+        .detailsUrl("https://example.com/details/" + hash)
+        .source("Test")
+        .size(1024)
+        .torrent("magnet:?xt=urn:btih:" + hash, hash, seeds, null)
+        .build();
+  }
+
+  private static CompositeFileSearchResult cloud(String name, String url) {
+    return CompositeFileSearchResult.builder()
+        .displayName(name)
+        .detailsUrl(url)
+        .source("Cloud")
+        .size(2048)
+        .download(url)
+        .build();
+  }
+
+  private static String hash(SearchResult sr) {
+    return ((CompositeFileSearchResult) sr).getTorrentHash().orElse(null);
+  }
+}
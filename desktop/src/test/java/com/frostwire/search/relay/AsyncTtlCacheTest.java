@@ -0,0 +1,141 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncTtlCacheTest {
+
+    private static final long TTL = 1000;
+    private static final long STALE = 5000;
+    private static final long NEGATIVE_TTL = 200;
+
+    private final long[] now = {1_000_000L};
+    private final List<Runnable> queued = new ArrayList<>();
+
+    private AsyncTtlCache<String, String> queuedCache(int maxEntries) {
+        return new AsyncTtlCache<>(maxEntries, TTL, STALE, NEGATIVE_TTL, queued::add, () -> now[0]);
+    }
+
+    private AsyncTtlCache<String, String> directCache(int maxEntries) {
+        return new AsyncTtlCache<>(maxEntries, TTL, STALE, NEGATIVE_TTL, Runnable::run, () -> now[0]);
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() {
+        AsyncTtlCache<String, String> cache = queuedCache(10);
+        AtomicInteger calls = new AtomicInteger();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(cache.get("k", k -> k + calls.incrementAndGet()));
+        }
+        assertEquals(1, queued.size());
+        assertEquals(1, cache.loadCount());
+        assertEquals(4, cache.coalescedCount());
+
+        queued.remove(0).run();
+        for (CompletableFuture<String> f : futures) {
+            assertEquals("k1", f.join());
+        }
+        assertEquals("k1", cache.get("k", k -> "unused").join());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void staleValueIsServedWhileRefreshing() {
+        AsyncTtlCache<String, String> cache = queuedCache(10);
+        cache.get("k", k -> "v1");
+        queued.remove(0).run();
+
+        now[0] += TTL;
+        assertEquals("v1", cache.get("k", k -> "v2").join(), "stale value returned immediately");
+        assertEquals("v1", cache.peek("k", k -> "v2"));
+        assertEquals(1, queued.size(), "one refresh, not one per read");
+
+        queued.remove(0).run();
+        assertEquals("v2", cache.peek("k", k -> "v3"));
+        assertTrue(queued.isEmpty(), "fresh again, no refresh");
+
+        now[0] += TTL + STALE;
+        assertNull(cache.peek("k", k -> "v4"), "expired past the stale window");
+    }
+
+    @Test
+    void negativeEntriesExpireAndAreNeverServedStale() {
+        AsyncTtlCache<String, String> cache = directCache(10);
+        AtomicInteger calls = new AtomicInteger();
+        assertNull(cache.get("k", k -> {
+            calls.incrementAndGet();
+            return null;
+        }).join());
+        assertTrue(cache.contains("k"));
+        assertEquals(0, cache.presentSize());
+
+        now[0] += NEGATIVE_TTL - 1;
+        cache.get("k", k -> "found");
+        assertEquals(1, calls.get());
+
+        now[0] += 1;
+        assertFalse(cache.contains("k"));
+        assertEquals("found", cache.get("k", k -> "found").join());
+    }
+
+    @Test
+    void failedLoadsAreNotCached() {
+        AsyncTtlCache<String, String> cache = directCache(10);
+        CompletableFuture<String> failed = cache.get("k", k -> {
+            throw new IllegalStateException("dht down");
+        });
+        assertThrows(CompletionException.class, failed::join);
+        assertFalse(cache.contains("k"));
+        assertEquals("v", cache.get("k", k -> "v").join());
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvicted() {
+        AsyncTtlCache<String, String> cache = directCache(2);
+        cache.get("a", k -> "A");
+        cache.get("b", k -> "B");
+        cache.get("a", k -> "unused");
+        cache.get("c", k -> "C");
+        assertEquals(2, cache.size());
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    void invalidateDuringLoadDropsTheResult() {
+        AsyncTtlCache<String, String> cache = queuedCache(10);
+        CompletableFuture<String> f = cache.get("k", k -> "old");
+        cache.invalidate("k");
+        queued.remove(0).run();
+        assertEquals("old", f.join(), "callers already waiting still get their value");
+        assertFalse(cache.contains("k"), "but it is not stored");
+    }
+
+    @Test
+    void peekNeverWaits() {
+        AsyncTtlCache<String, String> cache = queuedCache(10);
+        assertNull(cache.peek("k", k -> "v"));
+        assertEquals(1, queued.size());
+        assertEquals(1, cache.missCount());
+        queued.remove(0).run();
+        assertEquals("v", cache.peek("k", k -> "unused"));
+        assertEquals(1, cache.hitCount());
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import com.frostwire.jlibtorrent.Entry;
+import com.frostwire.util.Hex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogSummaryFetcherTest {
+
+    private static final byte[] PEER = new byte[32];
+
+    private final long[] now = {1_000_000L};
+    private final List<Runnable> queued = new ArrayList<>();
+    private final ConcurrentHashMap<Integer, Entry> published = new ConcurrentHashMap<>();
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    private CatalogSummaryFetcher.SummarySource source() {
+        return (peerPub, index) -> {
+            fetches.incrementAndGet();
+            return published.get(index);
+        };
+    }
+
+    private void publish(CatalogSummary summary) {
+        published.clear();
+        for (int i = 0; i < summary.shardCount(); i++) {
+            published.put(i, summary.toEntry(i, 0));
+        }
+    }
+
+    @Test
+    void excludesOnlyOnADefiniteMiss() {
+        publish(CatalogSummary.builder().addText("debian netinst").build());
+        CatalogSummaryFetcher fetcher = new CatalogSummaryFetcher(source(), Runnable::run, () -> now[0]);
+
+        assertTrue(fetcher.excludes(PEER, "ubuntu"));
+        assertFalse(fetcher.excludes(PEER, "debian"));
+        assertFalse(fetcher.excludes(PEER, "!!"), "no tokens, nothing to rule out");
+        assertEquals(2, fetcher.checkCount());
+        assertEquals(1, fetcher.exclusionCount());
+    }
+
+    @Test
+    void peerWithoutSummaryIsNeverExcluded() {
+        CatalogSummaryFetcher fetcher = new CatalogSummaryFetcher(source(), Runnable::run, () -> now[0]);
+        assertFalse(fetcher.excludes(PEER, "ubuntu"));
+        assertFalse(fetcher.excludes(PEER, "ubuntu"));
+        assertEquals(1, fetches.get(), "absence is cached");
+        assertEquals(2, fetcher.unknownCount());
+    }
+
+    @Test
+    void uncachedShardsAreFetchedInTheBackground() {
+        publish(CatalogSummary.builder().addText("debian").build());
+        CatalogSummaryFetcher fetcher = new CatalogSummaryFetcher(source(), queued::add, () -> now[0]);
+
+        assertFalse(fetcher.excludes(PEER, "ubuntu"), "never waits for the DHT");
+        assertEquals(1, queued.size());
+        queued.remove(0).run();
+        assertTrue(fetcher.excludes(PEER, "ubuntu"));
+    }
+
+    @Test
+    void onlyTheShardsAQueryNeedsAreFetched() {
+        CatalogSummary summary = summaryOfWords(5000);
+        assertTrue(summary.shardCount() > 2);
+        publish(summary);
+        CatalogSummaryFetcher fetcher = new CatalogSummaryFetcher(source(), Runnable::run, () -> now[0]);
+
+        assertFalse(fetcher.excludes(PEER, "aaa"));
+        int shard = CatalogSummary.shardOf(CatalogSummary.queryHashes("aaa")[0], summary.shardCount());
+        assertEquals(shard == 0 ? 1 : 2, fetches.get(), "shard 0 for the count, then the key's shard");
+    }
+
+    @Test
+    void shardsFromDifferentGenerationsAreDroppedAndRefetched() {
+        CatalogSummary older = summaryOfWords(5000);
+        CatalogSummary newer = summaryOfWords(26 * 26 * 26);
+        assertNotEquals(older.shardCount(), newer.shardCount());
+        String query = wordOutsideShardZero(older.shardCount());
+
+        published.put(0, older.toEntry(0, 0));
+        CatalogSummaryFetcher fetcher = new CatalogSummaryFetcher(source(), Runnable::run, () -> now[0]);
+        assertFalse(fetcher.excludes(PEER, query), "second shard not published yet");
+
+        // the peer republished a bigger catalog while our shard 0 is still fresh
+        now[0] += CatalogSummaryFetcher.ABSENT_TTL_MS;
+        int index = CatalogSummary.shardOf(CatalogSummary.queryHashes(query)[0], older.shardCount());
+        published.put(index, newer.toEntry(index, 1));
+        assertFalse(fetcher.excludes(PEER, query), "mixed generations never prove a miss");
+        String peerHex = Hex.encode(PEER);
+        assertFalse(fetcher.cache().contains(peerHex + "/0"));
+        assertFalse(fetcher.cache().contains(peerHex + "/" + index));
+    }
+
+    @Test
+    void shardsOfTheSameCountButAnotherPublishAreNotMixed() {
+        CatalogSummary older = summaryOfWords(5000);
+        String query = wordOutsideShardZero(older.shardCount());
+        int index = CatalogSummary.shardOf(CatalogSummary.queryHashes(query)[0], older.shardCount());
+        // same shard count, but the newer catalog lacks the query word
+        CatalogSummary.Builder b = CatalogSummary.builder();
+        for (int i = 0; i < 5000; i++) {
+            if (!word(i).equals(query)) {
+                b.addText(word(i));
+            }
+        }
+        CatalogSummary newer = b.build();
+        assertEquals(older.shardCount(), newer.shardCount());
+        assertFalse(newer.shard(index).mightContain(CatalogSummary.queryHashes(query)[0]));
+
+        published.put(0, older.toEntry(0, 10));
+        published.put(index, newer.toEntry(index, 20));
+        CatalogSummaryFetcher fetcher = new CatalogSummaryFetcher(source(), Runnable::run, () -> now[0]);
+        assertFalse(fetcher.excludes(PEER, query), "mixed generations never prove a miss");
+        String peerHex = Hex.encode(PEER);
+        assertFalse(fetcher.cache().contains(peerHex + "/0"));
+        assertFalse(fetcher.cache().contains(peerHex + "/" + index));
+
+        published.put(0, newer.toEntry(0, 20));
+        assertTrue(fetcher.excludes(PEER, query), "refetched shards of one publish");
+    }
+
+    @Test
+    void evictDropsEveryShardOfThePeer() {
+        publish(CatalogSummary.builder().addText("debian").build());
+        CatalogSummaryFetcher fetcher = new CatalogSummaryFetcher(source(), Runnable::run, () -> now[0]);
+        fetcher.excludes(PEER, "ubuntu");
+        assertEquals(1, fetches.get());
+
+        fetcher.evict(PEER);
+        fetcher.excludes(PEER, "ubuntu");
+        assertEquals(2, fetches.get());
+    }
+
+    private static CatalogSummary summaryOfWords(int count) {
+        CatalogSummary.Builder b = CatalogSummary.builder();
+        for (int i = 0; i < count; i++) {
+            b.addText(word(i));
+        }
+        return b.build();
+    }
+
+    private static String wordOutsideShardZero(int shardCount) {
+        for (int i = 0; ; i++) {
+            if (CatalogSummary.shardOf(CatalogSummary.queryHashes(word(i))[0], shardCount) != 0) {
+                return word(i);
+            }
+        }
+    }
+
+    private static String word(int i) {
+        return new String(new char[]{(char) ('a' + i / 676 % 26), (char) ('a' + i / 26 % 26), (char) ('a' + i % 26)});
+    }
+}
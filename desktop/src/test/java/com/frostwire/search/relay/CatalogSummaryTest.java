@@ -0,0 +1,211 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import com.frostwire.jlibtorrent.Entry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogSummaryTest {
+
+    @Test
+    void everyIndexedTokenMightMatch() {
+        CatalogSummary summary = CatalogSummary.builder()
+                .addText("Ubuntu 24.04 Desktop amd64")
+                .addText("Creative Commons - Open Songs [FLAC]")
+                .build();
+        for (String q : new String[]{"ubuntu", "24", "04 desktop", "AMD64", "creative commons", "open songs flac"}) {
+            assertTrue(summary.mightMatch(q), q);
+        }
+    }
+
+    @Test
+    void stemmedQueryVariantsStillMightMatch() {
+        CatalogSummary summary = CatalogSummary.builder()
+                .addText("songs cries running")
+                .build();
+        // the porter tokenizer matches these against the indexed words
+        for (String q : new String[]{"song", "cry", "cried", "run", "runs"}) {
+            assertTrue(summary.mightMatch(q), q);
+        }
+    }
+
+    @Test
+    void shortTokensShareAKeyWithTheirStemmedForms() {
+        // porter stems "djs" to "dj" and "using" to "us", so FTS5 matches
+        // each pair both ways although their first three letters differ
+        String[][] pairs = {{"dj", "djs"}, {"cd", "cds"}, {"ep", "eps"}, {"use", "using"}, {"ad", "adding"}};
+        for (String[] pair : pairs) {
+            assertTrue(CatalogSummary.builder().addText(pair[1]).build().mightMatch(pair[0]), pair[0]);
+            assertTrue(CatalogSummary.builder().addText(pair[0]).build().mightMatch(pair[1]), pair[1]);
+        }
+    }
+
+    @Test
+    void diacriticsAreRemovedLikeUnicode61() {
+        assertEquals(List.of("ete", "a", "paris"), KeywordBloomFilter.tokens("\u00c9t\u00e9 \u00e0 Paris"));
+        assertTrue(CatalogSummary.builder().addText("\u00c9t\u00e9 Hits").build().mightMatch("ete"));
+        assertTrue(CatalogSummary.builder().addText("ete hits").build().mightMatch("\u00e9t\u00e9"));
+        assertFalse(CatalogSummary.builder().addText("\u00e9t\u00e9").build().mightMatch("t"),
+                "\u00e9t\u00e9 is one token, not split around its accents");
+    }
+
+    @Test
+    void everyFtsMatchMightMatch(@TempDir File dir) {
+        String[] words = {"DJs", "CDs", "EPs", "using", "adding", "\u00c9t\u00e9", "na\u00efve", "cries",
+                "happiness", "relational", "hopping", "agreed", "generalizations", "ties", "owed", "mp3s"};
+        String[] queries = {"dj", "djs", "cd", "cds", "ep", "eps", "use", "used", "ad", "add", "ete",
+                "\u00e9t\u00e9", "naive", "cry", "cried", "happy", "happi", "relate", "relation", "hop",
+                "hope", "agree", "general", "generalize", "tie", "ti", "owe", "ow", "mp3"};
+        CatalogSummary.Builder b = CatalogSummary.builder();
+        try (LocalIndexTable table = LocalIndexTable.open(new File(dir, "index.db"))) {
+            for (int i = 0; i < words.length; i++) {
+                table.upsert(torrent(i, words[i]));
+                b.addText(words[i]);
+            }
+            CatalogSummary summary = b.build();
+            int matched = 0;
+            for (String q : queries) {
+                if (!table.search(q, 10).isEmpty()) {
+                    matched++;
+                    assertTrue(summary.mightMatch(q), "FTS5 matches " + q + " but the summary rules it out");
+                }
+            }
+            assertTrue(matched > queries.length / 2, "only " + matched + " queries matched");
+        }
+    }
+
+    @Test
+    void absentTokenRulesOutTheCatalog() {
+        CatalogSummary summary = CatalogSummary.builder().addText("debian netinst").build();
+        assertFalse(summary.mightMatch("ubuntu"));
+        assertFalse(summary.mightMatch("debian ubuntu"), "all query tokens must be present");
+        assertTrue(summary.mightMatch("  --  "), "a query without tokens is never ruled out");
+    }
+
+    @Test
+    void addIndexesNameTagsAndFilePaths() {
+        LocalSharedTorrent t = new LocalSharedTorrent.Builder()
+                .infoHash(new byte[20])
+                .name("holiday photos")
+                .tags("beach,summer")
+                .sizeBytes(10)
+                .fileCount(1)
+                .filesJson("[{\"p\":\"album/sunset.jpg\",\"s\":10}]")
+                .publisherNodeId(new byte[20])
+                .publisherEd25519Pub(new byte[32])
+                .addedAt(1L)
+                .lastSeenAt(1L)
+                .build();
+        CatalogSummary summary = CatalogSummary.builder().add(t).build();
+        assertTrue(summary.mightMatch("holiday"));
+        assertTrue(summary.mightMatch("summer beach"));
+        assertTrue(summary.mightMatch("sunset"));
+    }
+
+    @Test
+    void shardCountGrowsWithTheCatalogUpToTheMaximum() {
+        assertEquals(1, CatalogSummary.builder().addText("one two three").build().shardCount());
+
+        CatalogSummary.Builder b = CatalogSummary.builder();
+        for (int i = 0; i < 2000; i++) {
+            b.addText(word(i));
+        }
+        CatalogSummary medium = b.build();
+        assertTrue(medium.shardCount() > 1 && medium.shardCount() < CatalogSummary.MAX_SHARDS,
+                "shards: " + medium.shardCount());
+
+        for (int i = 0; i < 26 * 26 * 26; i++) {
+            b.addText(word(i));
+        }
+        assertEquals(CatalogSummary.MAX_SHARDS, b.build().shardCount());
+    }
+
+    @Test
+    void everyShardFitsTheDhtItemLimit() {
+        CatalogSummary.Builder b = CatalogSummary.builder();
+        for (int i = 0; i < 26 * 26 * 26; i++) {
+            b.addText(word(i));
+        }
+        CatalogSummary summary = b.build();
+        for (int i = 0; i < summary.shardCount(); i++) {
+            int size = summary.toEntry(i, System.currentTimeMillis() / 1000L).bencode().length;
+            assertTrue(size <= IndexAnnouncementPublisher.MAX_MANIFEST_BYTES, "shard " + i + ": " + size);
+        }
+    }
+
+    @Test
+    void parseShardRoundTripsAndChecksTheIndex() {
+        CatalogSummary.Builder b = CatalogSummary.builder();
+        for (int i = 0; i < 2000; i++) {
+            b.addText(word(i));
+        }
+        CatalogSummary summary = b.build();
+        Entry published = Entry.bdecode(summary.toEntry(1, 42L).bencode());
+
+        CatalogSummary.Shard shard = CatalogSummary.parseShard(published, 1);
+        assertNotNull(shard);
+        assertEquals(1, shard.index());
+        assertEquals(summary.shardCount(), shard.shardCount());
+        assertArrayEquals(summary.shard(1).toBytes(), shard.filter().toBytes());
+        assertEquals(summary.shard(1).hashes(), shard.filter().hashes());
+
+        assertNull(CatalogSummary.parseShard(published, 0), "published under another salt");
+    }
+
+    @Test
+    void parseShardRejectsMalformedEntries() {
+        Map<String, Object> map = new TreeMap<>();
+        map.put("v", new Entry((long) CatalogSummary.VERSION + 1));
+        map.put("i", new Entry(0L));
+        map.put("n", new Entry(1L));
+        map.put("k", new Entry(3L));
+        map.put("b", new Entry("AAAA"));
+        assertNull(CatalogSummary.parseShard(Entry.fromMap(map), 0), "unknown version");
+
+        map.put("v", new Entry((long) CatalogSummary.VERSION));
+        map.put("n", new Entry((long) CatalogSummary.MAX_SHARDS + 1));
+        assertNull(CatalogSummary.parseShard(Entry.fromMap(map), 0), "too many shards");
+
+        map.put("n", new Entry(1L));
+        map.put("k", new Entry(0L));
+        assertNull(CatalogSummary.parseShard(Entry.fromMap(map), 0), "no hash functions");
+
+        map.remove("b");
+        map.put("k", new Entry(3L));
+        assertNull(CatalogSummary.parseShard(Entry.fromMap(map), 0), "missing bits");
+    }
+
+    private static LocalSharedTorrent torrent(int i, String name) {
+        byte[] infoHash = new byte[20];
+        infoHash[0] = (byte) (i + 1);
+        return new LocalSharedTorrent.Builder()
+                .infoHash(infoHash)
+                .name(name)
+                .sizeBytes(10)
+                .fileCount(1)
+                .filesJson("[]")
+                .publisherNodeId(new byte[20])
+                .publisherEd25519Pub(new byte[32])
+                .addedAt(1L)
+                .lastSeenAt(1L)
+                .build();
+    }
+
+    /** A distinct three-letter word, so each one is its own key. */
+    private static String word(int i) {
+        return new String(new char[]{(char) ('a' + i / 676 % 26), (char) ('a' + i / 26 % 26), (char) ('a' + i % 26)});
+    }
+}
@@ -286,6 +286,148 @@ class DistributedSearchPerformerTest {
     assertTrue(listener.results.get(0).isEmpty(), "peer failure returns empty, not error");
   }
 
+  @Test
+  void performHedgesToNextPeerWhenPrimaryIsSilentPastItsP95() throws Exception {
+    IdentityKeys a = IdentityKeys.generate();
+    IdentityKeys b = IdentityKeys.generate();
+    PeerDirectory directory = directoryWithVerifiedPeer(a, "127.0.0.1", 6888);
+    directory.upsertVerified(b.ed25519PubRaw(), "127.0.0.2", 6888);
+    for (int i = 0; i < 10; i++) {
+      directory.latency().recordResponse(a.ed25519PubRaw(), 40);
+      directory.latency().recordResponse(b.ed25519PubRaw(), 40);
+    }
+    List<PeerDirectory.PeerInfo> ranked =
+        KeyspaceRouter.rankByKeyspace("ubuntu", directory.topByTrustVerified(2));
+    byte[] primary = ranked.get(0).peerPub();
+    byte[] spare = ranked.get(1).peerPub();
+    IdentityKeys spareKeys = Hex.encode(spare).equals(Hex.encode(a.ed25519PubRaw())) ? a : b;
+
+    FakeTransport transport = new FakeTransport(); // primary never answers
+    transport.addResponse(spare, spareKeys, "spare ubuntu", 100L, 1);
+
+    RecordingListener listener = new RecordingListener();
+    DistributedSearchPerformer p =
+        new DistributedSearchPerformer(
+            9L,
+            "ubuntu",
+            new InMemoryLocalIndex(),
+            directory,
+            IdentityKeys.generate(),
+            transport,
+            1,
+            50,
+            25,
+            10);
+    p.setListener(listener);
+
+    long start = System.nanoTime();
+    p.perform();
+    long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+    assertEquals(List.of(Hex.encode(primary), Hex.encode(spare)), transport.sentTargets);
+    assertEquals(1, listener.results.get(0).size());
+    assertEquals("spare ubuntu", listener.results.get(0).get(0).getDisplayName());
+    assertTrue(elapsedMs < 5_000, "hedge answered long before peerTimeoutSec: " + elapsedMs);
+    assertEquals(1, directory.latency().hedgeCount());
+    assertEquals(1, directory.latency().searchCount());
+    assertTrue(directory.latency().searchLatencyP99Ms() >= 0);
+  }
+
+  @Test
+  void performGivesUpOnSilentPeerAtItsAdaptiveDeadline() throws Exception {
+    IdentityKeys peerKeys = IdentityKeys.generate();
+    PeerDirectory directory = directoryWithVerifiedPeer(peerKeys, "127.0.0.1", 6888);
+    for (int i = 0; i < 10; i++) {
+      directory.latency().recordResponse(peerKeys.ed25519PubRaw(), 20);
+    }
+    FakeTransport transport = new FakeTransport(); // no response registered
+
+    RecordingListener listener = new RecordingListener();
+    DistributedSearchPerformer p =
+        new DistributedSearchPerformer(
+            10L,
+            "ubuntu",
+            new InMemoryLocalIndex(),
+            directory,
+            IdentityKeys.generate(),
+            transport,
+            5,
+            50,
+            25,
+            10);
+    p.setListener(listener);
+
+    long start = System.nanoTime();
+    p.perform();
+    long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+    assertTrue(listener.results.get(0).isEmpty());
+    assertTrue(
+        elapsedMs >= PeerLatencyTracker.MIN_DEADLINE_MS - 100 && elapsedMs < 5_000,
+        "waited for the adaptive deadline, not peerTimeoutSec: " + elapsedMs);
+    assertEquals(1, directory.latency().timeoutCount());
+  }
+
+  @Test
+  void performSkipsPeersWhoseCatalogSummaryRulesOutTheQuery() throws Exception {
+    IdentityKeys matching = IdentityKeys.generate();
+    IdentityKeys ruledOut = IdentityKeys.generate();
+    IdentityKeys forwarder = IdentityKeys.generate();
+    IdentityKeys noSummary = IdentityKeys.generate();
+    PeerDirectory directory = new PeerDirectory(new NoOpKarmaCache());
+    directory.upsertVerified(matching.ed25519PubRaw(), "127.0.0.1", 6881);
+    directory.upsertVerified(ruledOut.ed25519PubRaw(), "127.0.0.1", 6882);
+    directory.upsertVerified(
+        forwarder.ed25519PubRaw(), "127.0.0.1", 6883, 0, NodeCapabilities.DEFAULT_BOTH);
+    directory.upsertVerified(noSummary.ed25519PubRaw(), "127.0.0.1", 6884);
+
+    CatalogSummary debianOnly = CatalogSummary.builder().addText("debian netinst").build();
+    Map<String, CatalogSummary> published = new ConcurrentHashMap<>();
+    published.put(
+        Hex.encode(matching.ed25519PubRaw()),
+        CatalogSummary.builder().addText("ubuntu desktop").build());
+    published.put(Hex.encode(ruledOut.ed25519PubRaw()), debianOnly);
+    published.put(Hex.encode(forwarder.ed25519PubRaw()), debianOnly);
+    CatalogSummaryFetcher summaries =
+        new CatalogSummaryFetcher(
+            (peerPub, index) -> {
+              CatalogSummary s = published.get(Hex.encode(peerPub));
+              return s == null || index >= s.shardCount() ? null : s.toEntry(index, 0);
+            },
+            Runnable::run,
+            System::currentTimeMillis);
+
+    FakeTransport transport = new FakeTransport();
+    DistributedSearchPerformer p =
+        new DistributedSearchPerformer(
+            6L,
+            "ubuntu",
+            new InMemoryLocalIndex(),
+            directory,
+            IdentityKeys.generate(),
+            transport,
+            summaries,
+            5,
+            50,
+            25,
+            1);
+    p.setListener(new RecordingListener());
+
+    p.perform();
+
+    List<String> targets = new ArrayList<>(transport.sentTargets);
+    Collections.sort(targets);
+    List<String> expected =
+        new ArrayList<>(
+            List.of(
+                Hex.encode(matching.ed25519PubRaw()),
+                Hex.encode(forwarder.ed25519PubRaw()),
+                Hex.encode(noSummary.ed25519PubRaw())));
+    Collections.sort(expected);
+    assertEquals(expected, targets, "only the peer whose summary lacks the keyword is skipped");
+    assertEquals(1, summaries.exclusionCount());
+  }
+
   @Test
   void stopBeforePerformSkipsSearch() throws Exception {
     InMemoryLocalIndex index = new InMemoryLocalIndex();
@@ -339,6 +481,108 @@ class DistributedSearchPerformerTest {
         ((CompositeFileSearchResult) out.get(0)).getSource());
   }
 
+  @Test
+  void performReportsEachVerifiedChunkOnArrivalWhenStreaming() throws Exception {
+    IdentityKeys responderKeys = IdentityKeys.generate();
+    InMemoryLocalIndex responderIndex = new InMemoryLocalIndex();
+    for (int i = 0; i < 7; i++) {
+      responderIndex.upsert(torrent("ubuntu remote " + i, 500L + i, 1));
+    }
+    PeerDirectory directory = directoryWithVerifiedPeer(responderKeys, "127.0.0.1", 6888);
+    FakeTransport transport = new FakeTransport();
+    transport.setSearchService(
+        responderKeys.ed25519PubRaw(), new RelaySearchService(responderIndex, responderKeys));
+    transport.streamInChunksOf(3);
+
+    InMemoryLocalIndex requesterIndex = new InMemoryLocalIndex();
+    requesterIndex.upsert(torrent("ubuntu local", 100L, 1));
+
+    RecordingListener listener = new RecordingListener();
+    DistributedSearchPerformer p =
+        new DistributedSearchPerformer(
+            11L,
+            "ubuntu",
+            requesterIndex,
+            directory,
+            IdentityKeys.generate(),
+            transport,
+            5,
+            50,
+            25,
+            10);
+    p.setStreamResults(true);
+    p.setListener(listener);
+
+    p.perform();
+
+    // local batch first, then one batch per signed chunk (3 + 3 + 1 rows)
+    assertEquals(4, listener.results.size());
+    assertEquals("ubuntu local", listener.results.get(0).get(0).getDisplayName());
+    assertEquals(3, listener.results.get(1).size());
+    assertEquals(3, listener.results.get(2).size());
+    assertEquals(1, listener.results.get(3).size());
+  }
+
+  @Test
+  void performMergesStreamedChunksIntoOneBatchByDefault() throws Exception {
+    IdentityKeys responderKeys = IdentityKeys.generate();
+    InMemoryLocalIndex responderIndex = new InMemoryLocalIndex();
+    for (int i = 0; i < 7; i++) {
+      responderIndex.upsert(torrent("ubuntu remote " + i, 500L + i, 1));
+    }
+    PeerDirectory directory = directoryWithVerifiedPeer(responderKeys, "127.0.0.1", 6888);
+    FakeTransport transport = new FakeTransport();
+    transport.setSearchService(
+        responderKeys.ed25519PubRaw(), new RelaySearchService(responderIndex, responderKeys));
+    transport.streamInChunksOf(3);
+
+    RecordingListener listener = new RecordingListener();
+    DistributedSearchPerformer p =
+        new DistributedSearchPerformer(
+            12L,
+            "ubuntu",
+            new InMemoryLocalIndex(),
+            directory,
+            IdentityKeys.generate(),
+            transport,
+            5,
+            50,
+            25,
+            10);
+    p.setListener(listener);
+
+    p.perform();
+
+    assertEquals(1, listener.results.size());
+    assertEquals(7, listener.results.get(0).size());
+  }
+
+  @Test
+  void performReportsOneEmptyBatchWhenStreamingFindsNothing() throws Exception {
+    IdentityKeys peerKeys = IdentityKeys.generate();
+    PeerDirectory directory = directoryWithVerifiedPeer(peerKeys, "127.0.0.1", 6888);
+    RecordingListener listener = new RecordingListener();
+    DistributedSearchPerformer p =
+        new DistributedSearchPerformer(
+            13L,
+            "ubuntu",
+            new InMemoryLocalIndex(),
+            directory,
+            IdentityKeys.generate(),
+            new FakeTransport(),
+            5,
+            50,
+            25,
+            1);
+    p.setStreamResults(true);
+    p.setListener(listener);
+
+    p.perform();
+
+    assertEquals(1, listener.results.size());
+    assertTrue(listener.results.get(0).isEmpty());
+  }
+
   @Test
   void crawlIsNoOp() throws Exception {
     DistributedSearchPerformer p =
@@ -601,12 +845,19 @@ class DistributedSearchPerformerTest {
     private final Map<String, RelaySearchService> services = new ConcurrentHashMap<>();
     private final List<PayloadListener> listeners = new CopyOnWriteArrayList<>();
     final List<RemoteSearchRequest> sentRequests = new CopyOnWriteArrayList<>();
+    final List<String> sentTargets = new CopyOnWriteArrayList<>();
     private boolean deliverResponsesSynchronously;
+    private int chunkSize;
 
     void deliverResponsesSynchronously() {
       deliverResponsesSynchronously = true;
     }
 
+    /** Services answer through {@link RelaySearchService#handleStreaming} instead. */
+    void streamInChunksOf(int chunkSize) {
+      this.chunkSize = chunkSize;
+    }
+
     void addResponse(byte[] peerPub, IdentityKeys signer, String name, long size, int fileCount) {
       responses.put(
           Hex.encode(peerPub), new PeerResponse(signer, name, size, fileCount, null, null));
@@ -645,6 +896,7 @@ class DistributedSearchPerformerTest {
         sentRequests.add(request);
       }
       String key = Hex.encode(targetPub);
+      sentTargets.add(key);
       PeerResponse pr = responses.get(key);
       RelaySearchService svc = services.get(key);
       if (pr == null && svc == null) {
@@ -657,7 +909,19 @@ class DistributedSearchPerformerTest {
           () -> {
             try {
               byte[] responseBytes;
-              if (svc != null) {
+              if (svc != null && chunkSize > 0) {
+                svc.handleStreaming(
+                    request,
+                    chunkSize,
+                    chunk -> {
+                      byte[] bytes = SearchPayloadCodec.encodeResponse(chunk);
+                      for (PayloadListener l : listeners) {
+                        l.onPayload(targetPub, bytes, System.currentTimeMillis());
+                      }
+                      return true;
+                    });
+                return;
+              } else if (svc != null) {
                 Optional<RemoteSearchResponse> response = svc.handle(request);
                 if (response.isEmpty()) {
                   return;
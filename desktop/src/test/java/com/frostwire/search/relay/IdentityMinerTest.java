@@ -0,0 +1,100 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdentityMinerTest {
+
+    private static final byte[] SEED = "identity-miner-test".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    void minedKeyMeetsTheDifficulty() throws Exception {
+        IdentityMiner.Result result = new IdentityMiner(4).mine(8, null);
+        assertTrue(result.difficulty() >= 8);
+        assertEquals(result.difficulty(), IdentityKeys.countLeadingZeroBits(result.keys().nodeId()));
+        assertTrue(result.attempts() > 0);
+        assertEquals(4, result.threads());
+    }
+
+    @Test
+    void zeroDifficultyTakesOneAttemptOnTheCallingThread() throws Exception {
+        IdentityMiner.Result result = new IdentityMiner(8).mine(0, null);
+        assertEquals(1, result.attempts());
+        assertEquals(1, result.threads());
+    }
+
+    @Test
+    void benchmarkModeFindsTheSameKeyForAnyThreadCount() throws Exception {
+        IdentityMiner.Result single = IdentityMiner.forBenchmark(1, SEED).mine(8, null);
+        IdentityMiner.Result parallel = IdentityMiner.forBenchmark(4, SEED).mine(8, null);
+        assertArrayEquals(single.keys().ed25519PubRaw(), parallel.keys().ed25519PubRaw());
+        assertArrayEquals(single.keys().ed25519Seed(), parallel.keys().ed25519Seed());
+    }
+
+    @Test
+    void cancelStopsMining() throws Exception {
+        IdentityMiner miner = new IdentityMiner(2, null, 20);
+        Thread canceller = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+            miner.cancel();
+        });
+        canceller.start();
+        long t0 = System.currentTimeMillis();
+        assertThrows(CancellationException.class, () -> miner.mine(160, null));
+        assertTrue(System.currentTimeMillis() - t0 < 10_000);
+        assertTrue(miner.isCancelled());
+        canceller.join();
+    }
+
+    @Test
+    void progressReportsAttemptsAndRate() throws Exception {
+        IdentityMiner miner = new IdentityMiner(2, null, 10);
+        List<IdentityMiner.Progress> seen = new CopyOnWriteArrayList<>();
+        assertThrows(CancellationException.class, () -> miner.mine(160, p -> {
+            seen.add(p);
+            if (seen.size() >= 3) {
+                miner.cancel();
+            }
+        }));
+        assertTrue(seen.size() >= 3);
+        IdentityMiner.Progress last = seen.get(seen.size() - 1);
+        assertEquals(2, last.threads());
+        assertTrue(last.attempts() > 0);
+        assertTrue(last.hashesPerSecond() > 0);
+        assertTrue(last.expectedMs(20) > 0);
+    }
+
+    @Test
+    void mineBestSettlesForTheBestKeyWhenTheBudgetRunsOut() throws Exception {
+        IdentityMiner miner = new IdentityMiner(2, null, 20);
+        long t0 = System.currentTimeMillis();
+        IdentityMiner.Result result = miner.mineBest(4, 160, 200, null);
+        assertTrue(result.difficulty() >= 4);
+        assertTrue(System.currentTimeMillis() - t0 < 10_000);
+    }
+
+    @Test
+    void rejectsBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new IdentityMiner(0));
+        assertThrows(IllegalArgumentException.class, () -> new IdentityMiner(1).mine(-1, null));
+        assertThrows(IllegalArgumentException.class, () -> new IdentityMiner(1).mineBest(10, 8, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> IdentityMiner.threadsForShare(0));
+        assertEquals(1, IdentityMiner.threadsForShare(0.0001));
+    }
+}
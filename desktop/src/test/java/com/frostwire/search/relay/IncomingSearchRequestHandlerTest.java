@@ -10,6 +10,7 @@ package com.frostwire.search.relay;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.frostwire.jlibtorrent.Entry;
+import com.frostwire.search.relay.DistributedSearchTransport.PayloadListener;
 import com.frostwire.search.relay.icebridge.client.IncomingSearchRequestHandler;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
@@ -162,6 +163,53 @@ class IncomingSearchRequestHandlerTest {
     assertArrayEquals(request.nonce(), response.nonce(), "response nonce must match request nonce");
   }
 
+  @Test
+  void denseMeshAnswersAndForwardsEachRequestOncePerNode() throws Exception {
+    KeyPair requesterKey = generateEd25519KeyPair();
+    byte[] requesterPub = rawPub(requesterKey);
+    MeshRouter router = new MeshRouter(requesterPub);
+
+    int nodes = 6;
+    List<IdentityKeys> identities = new ArrayList<>();
+    for (int i = 0; i < nodes; i++) {
+      identities.add(IdentityKeys.generate());
+    }
+    List<IncomingSearchRequestHandler> handlers = new ArrayList<>();
+    for (IdentityKeys identity : identities) {
+      InMemoryLocalIndex index = new InMemoryLocalIndex();
+      index.torrents.add(torrent("ubuntu server", 500L, 1));
+      PeerDirectory directory = new PeerDirectory(new NoOpKarmaCache());
+      for (IdentityKeys other : identities) {
+        if (other != identity) {
+          directory.upsertVerified(other.ed25519PubRaw(), "host", 6881);
+        }
+      }
+      IncomingSearchRequestHandler handler =
+          new IncomingSearchRequestHandler(
+              router.transportFor(identity.ed25519PubRaw()),
+              new RelaySearchService(index, identity),
+              directory,
+              identity);
+      handler.start();
+      handlers.add(handler);
+    }
+
+    RemoteSearchRequest request =
+        signedRequest(requesterKey, "ubuntu", 25, 2, new byte[][] {requesterPub});
+    router.deliver(requesterPub, identities.get(0).ed25519PubRaw(), request);
+
+    // Full mesh, ttl 2: the first node forwards to 5, the first of those to the other 4
+    // (ttl 0), and node 0's later copies to those 4 are duplicates. Without suppression
+    // the 4 would also forward their ttl-1 copies: 26 deliveries, 26 searches.
+    assertEquals(nodes, router.responses.get(), "each node answers the requester once");
+    assertEquals(10, router.deliveries.get());
+    long dropped = 0;
+    for (IncomingSearchRequestHandler handler : handlers) {
+      dropped += handler.duplicateDrops();
+    }
+    assertEquals(4, dropped);
+  }
+
   // --- helpers ---
 
   private static KeyPair generateEd25519KeyPair() throws Exception {
@@ -304,6 +352,60 @@ class IncomingSearchRequestHandlerTest {
     }
   }
 
+  /** Synchronous in-memory mesh: every node can send to every other node. */
+  private static final class MeshRouter {
+    private final byte[] requesterPub;
+    private final java.util.Map<String, List<PayloadListener>> nodes =
+        new java.util.concurrent.ConcurrentHashMap<>();
+    final AtomicInteger responses = new AtomicInteger();
+    final AtomicInteger deliveries = new AtomicInteger();
+
+    MeshRouter(byte[] requesterPub) {
+      this.requesterPub = requesterPub;
+    }
+
+    DistributedSearchTransport transportFor(byte[] nodePub) {
+      List<PayloadListener> listeners = new CopyOnWriteArrayList<>();
+      nodes.put(com.frostwire.util.Hex.encode(nodePub), listeners);
+      return new DistributedSearchTransport() {
+        @Override
+        public boolean send(byte[] targetPub, int protocolId, byte[] payload) {
+          if (Arrays.equals(targetPub, requesterPub)) {
+            responses.incrementAndGet();
+            return true;
+          }
+          return route(nodePub, targetPub, payload);
+        }
+
+        @Override
+        public void addListener(PayloadListener listener) {
+          listeners.add(listener);
+        }
+
+        @Override
+        public void removeListener(PayloadListener listener) {
+          listeners.remove(listener);
+        }
+      };
+    }
+
+    void deliver(byte[] sourcePub, byte[] targetPub, RemoteSearchRequest request) {
+      route(sourcePub, targetPub, SearchPayloadCodec.encodeRequest(request));
+    }
+
+    private boolean route(byte[] sourcePub, byte[] targetPub, byte[] payload) {
+      List<PayloadListener> listeners = nodes.get(com.frostwire.util.Hex.encode(targetPub));
+      if (listeners == null) {
+        return false;
+      }
+      deliveries.incrementAndGet();
+      for (PayloadListener l : listeners) {
+        l.onPayload(sourcePub, payload, System.currentTimeMillis());
+      }
+      return true;
+    }
+  }
+
   private static final class InMemoryLocalIndex implements LocalIndex {
     final List<LocalSharedTorrent> torrents = Collections.synchronizedList(new ArrayList<>());
 
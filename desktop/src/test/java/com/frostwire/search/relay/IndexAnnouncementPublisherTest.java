@@ -8,6 +8,7 @@
 package com.frostwire.search.relay;
 
 import com.frostwire.jlibtorrent.Entry;
+import com.frostwire.jlibtorrent.SessionManager;
 import com.frostwire.util.Hex;
 import org.junit.jupiter.api.Test;
 
@@ -124,6 +125,63 @@ class IndexAnnouncementPublisherTest {
         assertEquals(0, pub.publishIfNeeded(null));
     }
 
+    @Test
+    void publishSummaryIfNeededPutsEveryShardUnderItsOwnSalt() throws Exception {
+        IdentityKeys keys = IdentityKeys.generate();
+        InMemoryLocalIndex index = new InMemoryLocalIndex();
+        index.upsert(torrent("ubuntu desktop", 100L, 1));
+        index.upsert(torrent("debian netinst", 200L, 1));
+        IndexAnnouncementPublisher pub = new IndexAnnouncementPublisher(index, keys);
+        RecordingSession session = new RecordingSession();
+
+        assertEquals(1, pub.publishSummaryIfNeeded(session));
+        assertEquals(1, session.puts.size());
+        Object[] put = session.puts.get(0);
+        assertArrayEquals(keys.ed25519PubRaw(), (byte[]) put[0]);
+        assertArrayEquals(CatalogSummaryFetcher.salt(0), (byte[]) put[3]);
+        CatalogSummary.Shard shard = CatalogSummary.parseShard((Entry) put[2], 0);
+        assertNotNull(shard);
+        assertTrue(shard.filter().mightContain(CatalogSummary.queryHashes("debian")[0]));
+
+        assertEquals(0, pub.publishSummaryIfNeeded(session), "unchanged index is not republished");
+        index.upsert(torrent("fedora", 300L, 1));
+        assertEquals(1, pub.publishSummaryIfNeeded(session), "a new row triggers a republish");
+    }
+
+    @Test
+    void publishSummaryIfNeededRepublishesASwapAtTheSameSize() throws Exception {
+        InMemoryLocalIndex index = new InMemoryLocalIndex();
+        LocalSharedTorrent ubuntu = torrent("ubuntu desktop", 100L, 1);
+        index.upsert(ubuntu);
+        IndexAnnouncementPublisher pub = new IndexAnnouncementPublisher(index, IdentityKeys.generate());
+        RecordingSession session = new RecordingSession();
+        assertEquals(1, pub.publishSummaryIfNeeded(session));
+
+        index.delete(ubuntu.infoHashHex());
+        index.upsert(torrent("debian netinst", 200L, 1));
+        assertEquals(1, pub.publishSummaryIfNeeded(session), "same size, different catalog");
+        CatalogSummary.Shard first = CatalogSummary.parseShard((Entry) session.puts.get(0)[2], 0);
+        CatalogSummary.Shard second = CatalogSummary.parseShard((Entry) session.puts.get(1)[2], 0);
+        assertTrue(second.filter().mightContain(CatalogSummary.queryHashes("debian")[0]));
+        assertTrue(second.generation() > first.generation(), "every publish is a new generation");
+    }
+
+    @Test
+    void publishSummaryIfNeededSkipsSubstringMatchingIndexes() throws Exception {
+        InMemoryLocalIndex index = new InMemoryLocalIndex() {
+            @Override
+            public boolean matchesWholeTokens() {
+                return false;
+            }
+        };
+        index.upsert(torrent("ubuntu", 100L, 1));
+        IndexAnnouncementPublisher pub = new IndexAnnouncementPublisher(index, IdentityKeys.generate());
+        RecordingSession session = new RecordingSession();
+
+        assertEquals(0, pub.publishSummaryIfNeeded(session));
+        assertTrue(session.puts.isEmpty());
+    }
+
     // --- helpers ---
 
     private static final AtomicInteger HASH_COUNTER = new AtomicInteger();
@@ -152,7 +210,7 @@ class IndexAnnouncementPublisherTest {
                 .build();
     }
 
-    private static final class InMemoryLocalIndex implements LocalIndex {
+    private static class InMemoryLocalIndex implements LocalIndex {
         private final List<LocalSharedTorrent> rows = new ArrayList<>();
 
         @Override
@@ -198,9 +256,23 @@ class IndexAnnouncementPublisherTest {
         public void updateLastSeen(String infoHashHex, long ts) {
         }
 
+        @Override
+        public List<LocalSharedTorrent> listAll() {
+            return new ArrayList<>(rows);
+        }
+
         @Override
         public int size() {
             return rows.size();
         }
     }
+
+    private static final class RecordingSession extends SessionManager {
+        final List<Object[]> puts = new ArrayList<>();
+
+        @Override
+        public void dhtPutItem(byte[] publicKey, byte[] privateKey, Entry entry, byte[] salt) {
+            puts.add(new Object[]{publicKey, privateKey, entry, salt});
+        }
+    }
 }
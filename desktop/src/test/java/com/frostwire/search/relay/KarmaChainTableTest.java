@@ -107,6 +107,32 @@ class KarmaChainTableTest {
         assertEquals(1, table.getPeerKarma(peer));
     }
 
+    @Test
+    void loadChainSavesCheckpointThatSurvivesReopen() throws IOException {
+        KarmaChainEntry ec = KarmaChainEntry.createEpochCommitment(
+                KarmaChainEntry.GENESIS_PREV_HASH, 0, pubRaw,
+                block(850000L), 5.0, keyPair.getPrivate());
+        KarmaChainEntry en = KarmaChainEntry.createEndorsement(
+                ec.entryHash(), 1, pubRaw, block(850050L),
+                dummyPeerPub(1), dummyInfoHash(1), 1, keyPair.getPrivate());
+        table.append(ec);
+        table.append(en);
+        assertNull(table.loadCheckpoint(pubRaw));
+
+        assertNotNull(table.loadChain(pubRaw));
+        table.close();
+        table = KarmaChainTable.open(dbFile);
+
+        KarmaChain.Checkpoint cp = table.loadCheckpoint(pubRaw);
+        assertNotNull(cp);
+        assertEquals(1, cp.seq());
+        assertArrayEquals(en.entryHash(), cp.entryHash());
+        assertEquals(850050L, cp.blockHeight());
+        assertEquals(1, cp.endorsementsInEpoch());
+        assertEquals(5.0, cp.energy());
+        assertEquals(4, table.loadChain(pubRaw).availableEnergy());
+    }
+
     @Test
     void loadChainReturnsEmptyChainForMissingOwner() {
         KarmaChain loaded = table.loadChain(pubRaw);
@@ -213,6 +213,16 @@ class LocalIndexTableTest {
         assertEquals(1, table.search("windows", 10).size());
     }
 
+    @Test
+    void searchRemovesDiacriticsLikeTheIndex() {
+        long now = 1_000_000L;
+        table.upsert(sampleTorrent("\u00c9t\u00e9 Hits", now));
+
+        assertEquals(1, table.search("ete", 10).size());
+        assertEquals(1, table.search("\u00e9t\u00e9", 10).size());
+        assertTrue(table.search("t", 10).isEmpty(), "the accents must not split the word");
+    }
+
     @Test
     void searchWithNoUsableTokensReturnsEmpty() {
         long now = 1_000_000L;
@@ -820,6 +830,34 @@ class LocalIndexTableTest {
         }
     }
 
+    @Test
+    void forEachMatchReleasesTheLockBeforeCallingTheSink() throws Exception {
+        long now = 1_000_000L;
+        LocalSharedTorrent byName = sampleTorrent("Lockfree Name", now);
+        table.upsert(byName);
+        table.upsert(torrentWithFiles("Other Name", "[{\"path\":\"lockfree.txt\",\"size\":10}]", now));
+
+        // A sink that waits on another thread using the table would deadlock
+        // if it ran under the connection lock.
+        java.util.concurrent.ExecutorService other = java.util.concurrent.Executors.newSingleThreadExecutor();
+        try {
+            java.util.List<String> names = new java.util.ArrayList<>();
+            table.forEachMatch("lockfree", 10, t -> {
+                try {
+                    assertTrue(other.submit(() -> table.get(byName.infoHashHex()).isPresent())
+                            .get(5, java.util.concurrent.TimeUnit.SECONDS));
+                } catch (Exception e) {
+                    throw new AssertionError("table was locked while the sink ran", e);
+                }
+                names.add(t.name());
+                return true;
+            });
+            assertEquals(List.of("Lockfree Name", "Other Name"), names);
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
     private int countSharedFilesRows() throws Exception {
         return countSharedFilesRows(dbFile);
     }
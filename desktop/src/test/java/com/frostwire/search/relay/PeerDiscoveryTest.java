@@ -217,10 +217,120 @@ class PeerDiscoveryTest {
     assertFalse(result.isEmpty());
   }
 
+  @Test
+  void authenticationRunsInParallel() {
+    int n = 8;
+    java.util.concurrent.CountDownLatch allStarted = new java.util.concurrent.CountDownLatch(n);
+    FakeAuthenticator auth = new FakeAuthenticator();
+    auth.beforeAuthenticate =
+        () -> {
+          allStarted.countDown();
+          try {
+            // only returns early if every handshake is in flight at the same time
+            allStarted.await(5, java.util.concurrent.TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        };
+    for (int i = 1; i <= n; i++) {
+      source.endpoints.add(new DiscoveredEndpoint("10.0.0." + i, 6888));
+      auth.add("10.0.0." + i, 6888);
+    }
+    discovery = new PeerDiscovery(source, directory, auth, null, n, 10_000);
+
+    long start = System.nanoTime();
+    List<DiscoveredEndpoint> result = discovery.discoverAndRegister();
+    long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+    assertEquals(n, result.size());
+    assertEquals(0, allStarted.getCount());
+    assertTrue(elapsedMs < 4000, "handshakes did not overlap, took " + elapsedMs + " ms");
+    // results are applied in candidate order
+    assertEquals("10.0.0.1", result.get(0).host);
+    assertEquals(n, discovery.lastRound().succeeded());
+    assertEquals(1.0, discovery.lastRound().successRate());
+  }
+
+  @Test
+  void slowHandshakeIsAbandonedAtItsDeadline() {
+    FakeAuthenticator auth = new FakeAuthenticator();
+    auth.add("10.0.0.1", 6888);
+    auth.add("10.0.0.2", 6888);
+    auth.slowHosts.add("10.0.0.2");
+    source.endpoints.add(new DiscoveredEndpoint("10.0.0.1", 6888));
+    source.endpoints.add(new DiscoveredEndpoint("10.0.0.2", 6888));
+    discovery = new PeerDiscovery(source, directory, auth, null, 4, 200);
+
+    List<DiscoveredEndpoint> result = discovery.discoverAndRegister();
+
+    assertEquals(1, result.size());
+    assertEquals("10.0.0.1", result.get(0).host);
+    PeerDiscovery.RoundStats stats = discovery.lastRound();
+    assertEquals(2, stats.attempted());
+    assertEquals(1, stats.timedOut());
+    assertTrue(stats.elapsedMs() < 2000, "round waited for the slow handshake");
+  }
+
+  @Test
+  void knownEndpointsAreNotHandshakenAgainUntilTheyExpire() {
+    long[] now = {1_000_000};
+    FakeAuthenticator auth = new FakeAuthenticator();
+    auth.add("10.0.0.1", 6888);
+    source.endpoints.add(new DiscoveredEndpoint("10.0.0.1", 6888));
+    source.endpoints.add(new DiscoveredEndpoint("10.0.0.1", 6888)); // duplicate
+    discovery = new PeerDiscovery(source, directory, auth, null, 4, 1000, () -> now[0]);
+
+    assertEquals(1, discovery.discoverAndRegister().size());
+    assertEquals(1, auth.calls.get());
+    assertEquals(1, discovery.lastRound().duplicates());
+
+    assertTrue(discovery.discoverAndRegister().isEmpty());
+    assertEquals(1, auth.calls.get());
+    assertEquals(1, discovery.lastRound().skippedKnown());
+
+    now[0] += PeerDiscovery.VERIFIED_TTL_MS;
+    assertTrue(discovery.discoverAndRegister().isEmpty());
+    assertEquals(2, auth.calls.get());
+  }
+
+  @Test
+  void failedEndpointsBackOff() {
+    long[] now = {1_000_000};
+    FakeAuthenticator auth = new FakeAuthenticator();
+    source.endpoints.add(new DiscoveredEndpoint("10.0.0.9", 6888)); // never authenticates
+    discovery = new PeerDiscovery(source, directory, auth, null, 4, 1000, () -> now[0]);
+
+    discovery.discoverAndRegister();
+    assertEquals(1, auth.calls.get());
+    assertEquals(1, discovery.lastRound().failed());
+    assertEquals(0.0, discovery.lastRound().successRate());
+
+    // still backing off
+    discovery.discoverAndRegister();
+    assertEquals(1, auth.calls.get());
+    assertEquals(1, discovery.lastRound().skippedBackoff());
+
+    now[0] += PeerDiscovery.FAILURE_BACKOFF_MS;
+    discovery.discoverAndRegister();
+    assertEquals(2, auth.calls.get());
+
+    // the second failure doubles the backoff
+    now[0] += PeerDiscovery.FAILURE_BACKOFF_MS;
+    discovery.discoverAndRegister();
+    assertEquals(2, auth.calls.get());
+    now[0] += PeerDiscovery.FAILURE_BACKOFF_MS;
+    discovery.discoverAndRegister();
+    assertEquals(3, auth.calls.get());
+  }
+
   // --- helpers ---
 
   private static final class FakeAuthenticator implements PeerAuthenticator {
-    final Map<String, IdentityRecord> records = new HashMap<>();
+    final Map<String, IdentityRecord> records = new java.util.concurrent.ConcurrentHashMap<>();
+    final java.util.Set<String> slowHosts = java.util.concurrent.ConcurrentHashMap.newKeySet();
+    final java.util.concurrent.atomic.AtomicInteger calls =
+        new java.util.concurrent.atomic.AtomicInteger();
+    volatile Runnable beforeAuthenticate;
 
     IdentityRecord add(String host, int port) {
       try {
@@ -238,6 +348,18 @@ class PeerDiscoveryTest {
 
     @Override
     public java.util.Optional<IdentityRecord> authenticate(String host, int port) {
+      calls.incrementAndGet();
+      Runnable before = beforeAuthenticate;
+      if (before != null) {
+        before.run();
+      }
+      if (slowHosts.contains(host)) {
+        try {
+          Thread.sleep(3000);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
       return java.util.Optional.ofNullable(records.get(host + ":" + port));
     }
   }
@@ -0,0 +1,185 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import com.frostwire.jlibtorrent.Entry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeerLatencyTrackerTest {
+
+    @Test
+    void sketchQuantilesAreWithinBucketError() {
+        PeerLatencyTracker.Sketch sketch = new PeerLatencyTracker.Sketch(10_000);
+        for (int ms = 1; ms <= 1000; ms++) {
+            sketch.record(ms);
+        }
+        assertWithin(500, sketch.quantile(0.50));
+        assertWithin(950, sketch.quantile(0.95));
+        assertWithin(990, sketch.quantile(0.99));
+        assertEquals(0, new PeerLatencyTracker.Sketch(16).quantile(0.5));
+    }
+
+    @Test
+    void sketchFavoursRecentSamplesOnceFull() {
+        PeerLatencyTracker.Sketch sketch = new PeerLatencyTracker.Sketch(64);
+        for (int i = 0; i < 64; i++) {
+            sketch.record(1000);
+        }
+        for (int i = 0; i < 200; i++) {
+            sketch.record(10);
+        }
+        assertWithin(10, sketch.quantile(0.95));
+        assertTrue(sketch.count() < 64);
+        assertEquals(264, sketch.total());
+    }
+
+    @Test
+    void ewmaTracksRecentResponses() {
+        PeerLatencyTracker t = new PeerLatencyTracker();
+        byte[] peer = pub(1);
+        assertEquals(-1, t.ewmaMs(peer));
+        t.recordResponse(peer, 100);
+        assertEquals(100, t.ewmaMs(peer));
+        for (int i = 0; i < 30; i++) {
+            t.recordResponse(peer, 300);
+        }
+        assertTrue(t.ewmaMs(peer) > 290 && t.ewmaMs(peer) <= 300, "ewma=" + t.ewmaMs(peer));
+        assertWithin(300, t.quantileMs(peer, 0.5));
+    }
+
+    @Test
+    void deadlineIsMaxUntilThePeerHasHistory() {
+        PeerLatencyTracker t = new PeerLatencyTracker();
+        byte[] peer = pub(1);
+        assertEquals(10_000, t.deadlineMs(peer, 10_000));
+        for (int i = 0; i < PeerLatencyTracker.MIN_SAMPLES; i++) {
+            t.recordResponse(peer, 20);
+        }
+        assertEquals(PeerLatencyTracker.MIN_DEADLINE_MS, t.deadlineMs(peer, 10_000));
+        assertEquals(800, t.deadlineMs(peer, 800), "never above the caller's max");
+        for (int i = 0; i < 50; i++) {
+            t.recordResponse(peer, 2000);
+        }
+        long deadline = t.deadlineMs(peer, 10_000);
+        assertTrue(deadline > 3000 && deadline <= 10_000, "deadline=" + deadline);
+    }
+
+    @Test
+    void peersThatOnlyTimeOutGetAProbeDeadline() {
+        PeerLatencyTracker t = new PeerLatencyTracker();
+        byte[] peer = pub(1);
+        for (int i = 0; i < PeerLatencyTracker.PROBE_AFTER_TIMEOUTS; i++) {
+            t.recordTimeout(peer);
+        }
+        assertEquals(2 * PeerLatencyTracker.MIN_DEADLINE_MS, t.deadlineMs(peer, 10_000));
+        assertEquals(3, t.timeoutCount());
+        t.recordResponse(peer, 50);
+        assertEquals(10_000, t.deadlineMs(peer, 10_000), "one answer ends the probe");
+    }
+
+    @Test
+    void hedgeDelayFallsBackToAllPeersThenToNone() {
+        PeerLatencyTracker t = new PeerLatencyTracker();
+        byte[] known = pub(1);
+        byte[] fresh = pub(2);
+        assertEquals(-1, t.hedgeDelayMs(fresh));
+        for (int i = 0; i < 20; i++) {
+            t.recordResponse(known, 400);
+        }
+        assertWithin(400, t.hedgeDelayMs(known));
+        assertWithin(400, t.hedgeDelayMs(fresh));
+        for (int i = 0; i < 20; i++) {
+            t.recordResponse(pub(3), 1);
+        }
+        assertEquals(PeerLatencyTracker.MIN_HEDGE_DELAY_MS, t.hedgeDelayMs(pub(3)));
+    }
+
+    @Test
+    void responsivenessPenalisesSlowAndSilentPeers() {
+        PeerLatencyTracker t = new PeerLatencyTracker();
+        byte[] fast = pub(1);
+        byte[] slow = pub(2);
+        byte[] silent = pub(3);
+        for (int i = 0; i < 10; i++) {
+            t.recordResponse(fast, 50);
+            t.recordResponse(slow, 4000);
+            t.recordTimeout(silent);
+        }
+        assertEquals(1.0, t.responsiveness(pub(4)));
+        assertTrue(t.responsiveness(fast) > 0.9);
+        assertTrue(t.responsiveness(slow) < PeerLatencyTracker.UNRESPONSIVE_BELOW);
+        assertTrue(t.responsiveness(silent) < PeerLatencyTracker.UNRESPONSIVE_BELOW);
+
+        List<PeerDirectory.PeerInfo> ranked = List.of(info(silent), info(fast), info(slow), info(pub(4)));
+        List<PeerDirectory.PeerInfo> demoted = t.demoteUnresponsive(ranked);
+        assertArrayEquals(fast, demoted.get(0).peerPub());
+        assertArrayEquals(pub(4), demoted.get(1).peerPub());
+        assertArrayEquals(silent, demoted.get(2).peerPub());
+        assertArrayEquals(slow, demoted.get(3).peerPub());
+    }
+
+    @Test
+    void directoryRanksResponsivePeersFirstAtEqualTrust() {
+        PeerDirectory d = new PeerDirectory(new PeerKarmaCache(new RemoteKarmaChainFetcher(
+                new KarmaChainSource() {
+                    @Override
+                    public Entry fetchManifest(byte[] peerPub) {
+                        return null;
+                    }
+                })));
+        d.upsertVerified(pub(1), "slow", 6881);
+        d.upsertVerified(pub(2), "fast", 6881);
+        for (int i = 0; i < 10; i++) {
+            d.latency().recordResponse(pub(1), 5000);
+            d.latency().recordResponse(pub(2), 30);
+        }
+        List<PeerDirectory.PeerInfo> top = d.topByTrustVerified(2);
+        assertEquals("fast", top.get(0).hostname());
+        assertEquals("slow", top.get(1).hostname());
+        assertTrue(d.rankScore(pub(1)) < d.trustScore(pub(1)));
+
+        d.evict(pub(1));
+        assertEquals(-1, d.latency().ewmaMs(pub(1)));
+    }
+
+    @Test
+    void searchLatencyQuantiles() {
+        PeerLatencyTracker t = new PeerLatencyTracker();
+        assertEquals(-1, t.searchLatencyP50Ms());
+        assertEquals(-1, t.searchLatencyP99Ms());
+        for (int i = 0; i < 99; i++) {
+            t.recordSearch(200);
+        }
+        t.recordSearch(9000);
+        assertWithin(200, t.searchLatencyP50Ms());
+        assertWithin(200, t.searchLatencyP99Ms());
+        t.recordSearch(9000);
+        assertWithin(9000, t.searchLatencyP99Ms());
+        assertEquals(101, t.searchCount());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected * 0.8 && actual <= expected * 1.2 + 1,
+                "expected ~" + expected + " but was " + actual);
+    }
+
+    private static PeerDirectory.PeerInfo info(byte[] pub) {
+        return new PeerDirectory.PeerInfo(pub, "h", 6881, 0, 0L, 0, false, true,
+                NodeCapabilities.NONE, "");
+    }
+
+    private static byte[] pub(int n) {
+        byte[] p = new byte[32];
+        p[0] = (byte) n;
+        return p;
+    }
+}
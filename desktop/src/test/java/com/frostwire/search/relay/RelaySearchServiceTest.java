@@ -187,6 +187,109 @@ class RelaySearchServiceTest {
         assertArrayEquals(reqNonce, r.get().nonce());
     }
 
+    @Test
+    void handleStreamingSignsEachChunkIndependently() throws Exception {
+        for (int i = 0; i < 12; i++) {
+            index.torrents.add(torrent("ubuntu " + i, 1000 + i, 1));
+        }
+        RemoteSearchRequest req = signedRequest("ubuntu", 20);
+        List<RemoteSearchResponse> chunks = new ArrayList<>();
+        assertTrue(service.handleStreaming(req, 5, chunks::add));
+
+        assertEquals(3, chunks.size());
+        int[] sizes = {5, 5, 2};
+        for (int i = 0; i < chunks.size(); i++) {
+            RemoteSearchResponse chunk = chunks.get(i);
+            assertEquals(i, chunk.chunkIndex());
+            assertEquals(i == 2, chunk.isFinalChunk());
+            assertEquals(sizes[i], chunk.rows().size());
+            assertArrayEquals(req.nonce(), chunk.nonce());
+            assertTrue(SearchResponseVerifier.verify(chunk, req, responderIdentity.ed25519PubRaw()),
+                    "chunk " + i + " verifies on its own");
+        }
+        assertEquals("ubuntu 5", chunks.get(1).rows().get(0).name);
+
+        // a chunk re-labelled as final no longer verifies
+        RemoteSearchResponse first = chunks.get(0);
+        RemoteSearchResponse.Builder forged = RemoteSearchResponse.builder()
+                .nonce(first.nonce())
+                .timestamp(first.timestamp())
+                .chunkIndex(0)
+                .finalChunk(true)
+                .signature(first.signature());
+        for (RemoteSearchResponse.Row r : first.rows()) {
+            forged.addRow(r.infoHash, r.name, r.sizeBytes, r.fileCount, r.publisherEd25519Pub,
+                    r.publisherNodeId, r.matchedFile, r.seederEndpoints);
+        }
+        assertFalse(SearchResponseVerifier.verify(forged.build(), req,
+                responderIdentity.ed25519PubRaw()));
+    }
+
+    @Test
+    void handleStreamingSendsChunksWhileTheCursorIsStillOpen() throws Exception {
+        for (int i = 0; i < 12; i++) {
+            index.torrents.add(torrent("ubuntu " + i, 1000 + i, 1));
+        }
+        List<RemoteSearchResponse> chunks = new ArrayList<>();
+        List<Integer> chunksWhenPulled = new ArrayList<>();
+        index.onPull = () -> chunksWhenPulled.add(chunks.size());
+        assertTrue(service.handleStreaming(signedRequest("ubuntu", 20), 5, chunks::add));
+
+        // chunk 0 goes out as soon as row 6 proves it is not the last one
+        assertEquals(0, (int) chunksWhenPulled.get(5));
+        assertEquals(1, (int) chunksWhenPulled.get(6));
+        assertEquals(2, (int) chunksWhenPulled.get(11));
+    }
+
+    @Test
+    void handleStreamingStopsReadingWhenTheSinkRefuses() throws Exception {
+        for (int i = 0; i < 12; i++) {
+            index.torrents.add(torrent("ubuntu " + i, 1000 + i, 1));
+        }
+        List<RemoteSearchResponse> chunks = new ArrayList<>();
+        int[] pulled = {0};
+        index.onPull = () -> pulled[0]++;
+        assertTrue(service.handleStreaming(signedRequest("ubuntu", 20), 5, chunk -> {
+            chunks.add(chunk);
+            return false;
+        }));
+        assertEquals(1, chunks.size());
+        assertFalse(chunks.get(0).isFinalChunk());
+        assertEquals(6, pulled[0]);
+    }
+
+    @Test
+    void handleStreamingAnswersAnEmptyResultWithOneFinalChunk() throws Exception {
+        RemoteSearchRequest req = signedRequest("nothing", 5);
+        List<RemoteSearchResponse> chunks = new ArrayList<>();
+        assertTrue(service.handleStreaming(req, 5, chunks::add));
+        assertEquals(1, chunks.size());
+        assertTrue(chunks.get(0).isFinalChunk());
+        assertTrue(chunks.get(0).rows().isEmpty());
+        assertTrue(SearchResponseVerifier.verify(chunks.get(0), req,
+                responderIdentity.ed25519PubRaw()));
+    }
+
+    @Test
+    void handleStreamingRejectsBadRequests() throws Exception {
+        RemoteSearchRequest req = signedRequest("ubuntu", 5);
+        RemoteSearchRequest tampered = RemoteSearchRequest.builder()
+                .nonce(req.nonce())
+                .requesterPub(req.requesterPub())
+                .keywords(req.keywords())
+                .limit(req.limit())
+                .timestamp(req.timestamp())
+                .path(new byte[0][])
+                .signature(tamperSignature(req.signature()))
+                .build();
+        List<RemoteSearchResponse> chunks = new ArrayList<>();
+        assertFalse(service.handleStreaming(tampered, 5, chunks::add));
+        assertFalse(service.handleStreaming(null, 5, chunks::add));
+        assertTrue(chunks.isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> service.handleStreaming(req, 0, chunks::add));
+    }
+
     @Test
     void rateLimiterAccessorReturnsNonNull() {
         assertNotNull(service.rateLimiter());
@@ -276,6 +379,8 @@ class RelaySearchServiceTest {
 
     private static final class NoopLocalIndex implements LocalIndex {
         final List<LocalSharedTorrent> torrents = new ArrayList<>();
+        Runnable onPull = () -> {
+        };
 
         @Override
         public void upsert(LocalSharedTorrent torrent) {
@@ -306,6 +411,18 @@ class RelaySearchServiceTest {
             return out;
         }
 
+        @Override
+        public void forEachMatch(String query, int limit,
+                                 java.util.function.Predicate<LocalSharedTorrent> sink) {
+            // one row at a time, like a cursor
+            for (LocalSharedTorrent t : search(query, limit)) {
+                onPull.run();
+                if (!sink.test(t)) {
+                    return;
+                }
+            }
+        }
+
         @Override
         public void markPublished(String infoHashHex, long timestamp) {
         }
@@ -178,7 +178,7 @@ class RemoteKarmaChainFetcherTest {
     @Test
     void peerKarmaCacheReturnsZeroForEmptyChain() {
         PeerKarmaCache cache = new PeerKarmaCache(
-                new RemoteKarmaChainFetcher(new FixedSource(null)));
+                directFetcher(new FixedSource(null)));
         assertEquals(0, cache.getKarma(peerPub));
     }
 
@@ -209,7 +209,7 @@ class RemoteKarmaChainFetcherTest {
 
         FakeSource source = new FakeSource();
         source.nextManifest = Entry.fromMap(manifest);
-        PeerKarmaCache cache = new PeerKarmaCache(new RemoteKarmaChainFetcher(source));
+        PeerKarmaCache cache = new PeerKarmaCache(directFetcher(source));
 
         assertEquals(2, cache.getKarma(peerPub),
                 "score counts ENDORSEMENT entries only");
@@ -219,7 +219,7 @@ class RemoteKarmaChainFetcherTest {
     void peerKarmaCacheMemoizesScore() {
         FakeSource source = new FakeSource();
         source.nextManifest = null;
-        PeerKarmaCache cache = new PeerKarmaCache(new RemoteKarmaChainFetcher(source));
+        PeerKarmaCache cache = new PeerKarmaCache(directFetcher(source));
         cache.getKarma(peerPub);
         cache.getKarma(peerPub);
         cache.getKarma(peerPub);
@@ -232,15 +232,125 @@ class RemoteKarmaChainFetcherTest {
     void peerKarmaCacheEvictClearsBoth() {
         FakeSource source = new FakeSource();
         source.nextManifest = null;
-        PeerKarmaCache cache = new PeerKarmaCache(new RemoteKarmaChainFetcher(source));
+        PeerKarmaCache cache = new PeerKarmaCache(directFetcher(source));
         cache.getKarma(peerPub);
         cache.evict(peerPub);
         cache.getKarma(peerPub);
         assertEquals(2, source.callCount.get());
     }
 
+    @Test
+    void peerKarmaCacheDoesNotBlockOnColdMiss() {
+        FakeSource source = new FakeSource();
+        source.nextManifest = Entry.fromMap(endorsementsManifest(2));
+        List<Runnable> queued = new ArrayList<>();
+        PeerKarmaCache cache = new PeerKarmaCache(
+                new RemoteKarmaChainFetcher(source, queued::add, System::currentTimeMillis));
+
+        assertEquals(0, cache.getKarma(peerPub), "cold miss scores 0 instead of waiting");
+        assertEquals(0, cache.getKarma(peerPub));
+        assertEquals(0, source.callCount.get(), "the DHT lookup runs on the loader pool");
+        assertEquals(1, queued.size(), "concurrent misses share one fetch");
+
+        queued.remove(0).run();
+        assertEquals(2, cache.getKarma(peerPub));
+        assertEquals(1, source.callCount.get());
+    }
+
+    @Test
+    void fetchChainCoalescesConcurrentMisses() {
+        FakeSource source = new FakeSource();
+        source.nextManifest = null;
+        List<Runnable> queued = new ArrayList<>();
+        RemoteKarmaChainFetcher fetcher =
+                new RemoteKarmaChainFetcher(source, queued::add, System::currentTimeMillis);
+
+        java.util.concurrent.CompletableFuture<List<KarmaChainEntry>> a = fetcher.fetchChainAsync(peerPub);
+        java.util.concurrent.CompletableFuture<List<KarmaChainEntry>> b = fetcher.fetchChainAsync(peerPub);
+        assertEquals(1, queued.size());
+        assertFalse(a.isDone());
+
+        queued.remove(0).run();
+        assertTrue(a.isDone() && b.isDone());
+        assertNull(a.join());
+        assertEquals(1, source.callCount.get());
+        assertEquals(1, fetcher.cache().coalescedCount());
+    }
+
+    @Test
+    void absentMarkerExpires() {
+        FakeSource source = new FakeSource();
+        source.nextManifest = null;
+        long[] now = {1_000_000L};
+        RemoteKarmaChainFetcher fetcher =
+                new RemoteKarmaChainFetcher(source, Runnable::run, () -> now[0]);
+
+        assertNull(fetcher.fetchChain(peerPub));
+        now[0] += RemoteKarmaChainFetcher.ABSENT_TTL_MS - 1;
+        assertNull(fetcher.fetchChain(peerPub));
+        assertEquals(1, source.callCount.get());
+
+        now[0] += 1;
+        assertNull(fetcher.fetchChain(peerPub));
+        assertEquals(2, source.callCount.get(), "an expired absent marker is fetched again");
+    }
+
+    @Test
+    void staleChainIsServedWhileRefreshing() {
+        FakeSource source = new FakeSource();
+        source.nextManifest = Entry.fromMap(endorsementsManifest(1));
+        long[] now = {1_000_000L};
+        List<Runnable> queued = new ArrayList<>();
+        RemoteKarmaChainFetcher fetcher =
+                new RemoteKarmaChainFetcher(source, queued::add, () -> now[0]);
+
+        fetcher.fetchChainAsync(peerPub);
+        queued.remove(0).run();
+        List<KarmaChainEntry> first = fetcher.cachedChain(peerPub);
+        assertNotNull(first);
+
+        now[0] += RemoteKarmaChainFetcher.CHAIN_TTL_MS;
+        assertSame(first, fetcher.cachedChain(peerPub), "stale chain is still served");
+        assertEquals(1, queued.size(), "and a refresh is started");
+
+        queued.remove(0).run();
+        List<KarmaChainEntry> refreshed = fetcher.cachedChain(peerPub);
+        assertNotSame(first, refreshed);
+        assertEquals(2, source.callCount.get());
+
+        now[0] += RemoteKarmaChainFetcher.CHAIN_TTL_MS + RemoteKarmaChainFetcher.CHAIN_STALE_MS;
+        assertNull(fetcher.cachedChain(peerPub), "past the stale window the chain is gone");
+    }
+
     // --- helpers ---
 
+    private static RemoteKarmaChainFetcher directFetcher(KarmaChainSource source) {
+        return new RemoteKarmaChainFetcher(source, Runnable::run, System::currentTimeMillis);
+    }
+
+    private static Map<String, Object> endorsementsManifest(int endorsements) {
+        List<KarmaChainEntry> chain = new ArrayList<>();
+        chain.add(KarmaChainEntry.createEpochCommitment(
+                KarmaChainEntry.GENESIS_PREV_HASH, 0, pubRaw, block, 5.0,
+                keyPair.getPrivate()));
+        for (int i = 1; i <= endorsements; i++) {
+            chain.add(KarmaChainEntry.createEndorsement(
+                    chain.get(i - 1).entryHash(), i, pubRaw, block, peerPub, new byte[20], 1,
+                    keyPair.getPrivate()));
+        }
+        Map<String, Object> manifest = new HashMap<>();
+        manifest.put("v", new Entry(1L));
+        manifest.put("len", new Entry((long) chain.size()));
+        manifest.put("head", new Entry(Hex.encode(chain.get(chain.size() - 1).entryHash())));
+        manifest.put("ts", new Entry(0L));
+        List<Entry> entries = new ArrayList<>();
+        for (KarmaChainEntry e : chain) {
+            entries.add(Entry.fromMap(publishDictOf(e)));
+        }
+        manifest.put("entries", Entry.fromList(entries));
+        return manifest;
+    }
+
     private static Map<String, Object> buildManifestWithBadSignature() {
         Map<String, Object> manifest = new HashMap<>();
         manifest.put("v", new Entry(1L));
@@ -0,0 +1,104 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeenFilterTest {
+
+    private final long[] now = {1_000_000L};
+
+    private SeenFilter filter(int expected, long windowMs) {
+        return new SeenFilter(expected, windowMs, () -> now[0]);
+    }
+
+    @Test
+    void secondCopyIsReportedAsDuplicate() {
+        SeenFilter seen = filter(100, 10_000);
+        assertFalse(seen.checkAndAdd(bytes(1), bytes(2)));
+        assertTrue(seen.checkAndAdd(bytes(1), bytes(2)));
+        assertFalse(seen.checkAndAdd(bytes(1), bytes(3)));
+        assertEquals(3, seen.checkCount());
+        assertEquals(1, seen.duplicateCount());
+    }
+
+    @Test
+    void mightContainDoesNotRecord() {
+        SeenFilter seen = filter(100, 10_000);
+        assertFalse(seen.mightContain(bytes(1)));
+        assertFalse(seen.checkAndAdd(bytes(1)));
+        assertTrue(seen.mightContain(bytes(1)));
+        assertEquals(1, seen.checkCount());
+        assertEquals(0, seen.duplicateCount());
+    }
+
+    @Test
+    void partBoundariesAreSignificant() {
+        SeenFilter seen = filter(100, 10_000);
+        assertFalse(seen.checkAndAdd(new byte[]{1, 2}, new byte[]{3}));
+        assertFalse(seen.checkAndAdd(new byte[]{1}, new byte[]{2, 3}));
+    }
+
+    @Test
+    void keysAreRememberedForAtLeastOneWindowAndAtMostTwo() {
+        SeenFilter seen = filter(100, 10_000);
+        seen.checkAndAdd(bytes(1));
+        now[0] += 9_999;
+        assertTrue(seen.checkAndAdd(bytes(1)));
+        now[0] += 1;
+        // rotated: the key is in the previous generation now
+        assertTrue(seen.checkAndAdd(bytes(1)));
+        now[0] += 10_000;
+        assertFalse(seen.checkAndAdd(bytes(1)));
+    }
+
+    @Test
+    void idleFilterForgetsEverything() {
+        SeenFilter seen = filter(100, 10_000);
+        seen.checkAndAdd(bytes(1));
+        now[0] += 60_000;
+        assertFalse(seen.checkAndAdd(bytes(1)));
+    }
+
+    @Test
+    void overloadRotatesEarlyToBoundFalsePositives() {
+        SeenFilter seen = filter(10, 60_000);
+        for (int i = 0; i < 25; i++) {
+            assertFalse(seen.checkAndAdd(bytes(i)));
+        }
+        // two rotations happened without the clock moving; the oldest keys are gone
+        assertFalse(seen.checkAndAdd(bytes(0)));
+        assertTrue(seen.checkAndAdd(bytes(24)));
+    }
+
+    @Test
+    void falsePositiveRateIsLowAtCapacity() {
+        int n = 10_000;
+        SeenFilter seen = filter(n, 60_000);
+        for (int i = 0; i < n - 1; i++) {
+            seen.checkAndAdd(bytes(i));
+        }
+        int falsePositives = 0;
+        int probes = 10_000;
+        for (int i = 0; i < probes; i++) {
+            // the probes themselves fill the next generation; previous stays at capacity
+            if (seen.checkAndAdd(bytes(1_000_000 + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < probes / 100, "false positives: " + falsePositives);
+    }
+
+    private static byte[] bytes(int i) {
+        return ByteBuffer.allocate(4).putInt(i).array();
+    }
+}
@@ -9,6 +9,10 @@ package com.frostwire.search.relay.icebridge;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -33,4 +37,14 @@ class IceBridgeServerParseArgsTest {
         });
         assertTrue(config.controlHttpPort() > 0);
     }
+
+    @Test
+    void parseArgsTakesTheIpFilterFileFromTheLauncher() {
+        IceBridgeConfig config = IceBridgeServer.parseArgs(new String[]{
+                "--control-http-port", "8797",
+                "--ip-filter-file", "/tmp/ip_filter.idx"
+        });
+        assertEquals(new File("/tmp/ip_filter.idx"), config.ipFilterFile());
+        assertNull(IceBridgeServer.parseArgs(new String[]{"--control-http-port", "8797"}).ipFilterFile());
+    }
 }
\ No newline at end of file
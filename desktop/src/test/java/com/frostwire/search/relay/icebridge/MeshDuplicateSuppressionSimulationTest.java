@@ -0,0 +1,185 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay.icebridge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.frostwire.search.relay.SeenFilter;
+import com.frostwire.util.Logger;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Floods RELAY frames over a dense random forwarder mesh with the hop rules
+ * of {@code RudpSessionManager.handleRelay} (fanout N, soft-max hop TTL,
+ * never back to the sender) and compares how many frames each node
+ * processes with and without a per-node {@link SeenFilter}.
+ */
+class MeshDuplicateSuppressionSimulationTest {
+
+  private static final Logger LOG = Logger.getLogger(MeshDuplicateSuppressionSimulationTest.class);
+
+  @AfterEach
+  void reset() {
+    IceBridgeTopology.get().resetToDefaults();
+  }
+
+  @Test
+  void seenFilterCutsFloodAmplificationWithoutLosingCoverage() {
+    List<List<Integer>> mesh = randomMesh(60, 10, 20260719L);
+    int floods = 50;
+
+    FloodStats plain = new FloodStats();
+    FloodStats deduped = new FloodStats();
+    List<SeenFilter> filters = new ArrayList<>();
+    for (int i = 0; i < mesh.size(); i++) {
+      filters.add(new SeenFilter(10_000, 10_000));
+    }
+    Random origins = new Random(7);
+    for (int f = 0; f < floods; f++) {
+      int origin = origins.nextInt(mesh.size());
+      byte[] frame = ByteBuffer.allocate(8).putLong(f).array();
+      flood(mesh, origin, frame, null, new Random(f), plain);
+      flood(mesh, origin, frame, filters, new Random(f), deduped);
+    }
+    long dropped = 0;
+    for (SeenFilter filter : filters) {
+      dropped += filter.duplicateCount();
+    }
+    double plainPerNode = (double) plain.processed / plain.reached;
+    double dedupedPerNode = (double) deduped.processed / deduped.reached;
+    LOG.info(
+        String.format(
+            "mesh flood: nodes=%d floods=%d | plain processed=%d (%.2f/node) sent=%d"
+                + " | deduped processed=%d (%.2f/node) sent=%d dropped=%d",
+            mesh.size(),
+            floods,
+            plain.processed,
+            plainPerNode,
+            plain.sent,
+            deduped.processed,
+            dedupedPerNode,
+            deduped.sent,
+            dropped));
+
+    // every node that got the frame processed it exactly once
+    assertEquals(deduped.reached, deduped.processed);
+    assertEquals(deduped.sent - dropped, deduped.processed - floods);
+    assertTrue(
+        plainPerNode > 3 * dedupedPerNode,
+        "dedupe should cut per-node processing well below the undeduplicated flood");
+    assertTrue(deduped.sent < plain.sent / 3, "fewer re-forwards means fewer frames on the wire");
+    // suppressing duplicates must not cost reach
+    assertTrue(deduped.reached >= plain.reached * 0.95);
+  }
+
+  /** Breadth-first flood; {@code filters} null disables duplicate suppression. */
+  private static void flood(
+      List<List<Integer>> mesh,
+      int origin,
+      byte[] frame,
+      List<SeenFilter> filters,
+      Random random,
+      FloodStats stats) {
+    IceBridgeTopology topology = IceBridgeTopology.get();
+    Set<Integer> reached = new HashSet<>();
+    // {node, sender, hopTtl}
+    Queue<int[]> queue = new ArrayDeque<>();
+    if (filters != null) {
+      filters.get(origin).checkAndAdd(frame);
+    }
+    stats.processed++;
+    reached.add(origin);
+    forward(mesh, origin, -1, topology.clampRemainingTtl(0, topology.meshHopTtl()), random, queue, stats);
+    while (!queue.isEmpty()) {
+      int[] hop = queue.poll();
+      int node = hop[0];
+      int hopTtl = hop[2];
+      if (filters != null && filters.get(node).checkAndAdd(frame)) {
+        continue;
+      }
+      stats.processed++;
+      reached.add(node);
+      if (hopTtl <= 0) {
+        continue;
+      }
+      int hopsSoFar = Math.max(0, topology.softMax() - hopTtl);
+      int nextTtl = topology.clampRemainingTtl(hopsSoFar + 1, hopTtl - 1);
+      forward(mesh, node, hop[1], nextTtl, random, queue, stats);
+    }
+    stats.reached += reached.size();
+  }
+
+  private static void forward(
+      List<List<Integer>> mesh,
+      int node,
+      int sender,
+      int hopTtl,
+      Random random,
+      Queue<int[]> queue,
+      FloodStats stats) {
+    int fanout = IceBridgeTopology.get().meshBroadcastFanout();
+    List<Integer> neighbors = new ArrayList<>(mesh.get(node));
+    Collections.shuffle(neighbors, random);
+    int sent = 0;
+    for (int next : neighbors) {
+      if (sent >= fanout) {
+        break;
+      }
+      if (next == sender) {
+        continue;
+      }
+      queue.add(new int[] {next, node, hopTtl});
+      stats.sent++;
+      sent++;
+    }
+  }
+
+  private static List<List<Integer>> randomMesh(int nodes, int degree, long seed) {
+    Random random = new Random(seed);
+    List<Set<Integer>> adj = new ArrayList<>();
+    for (int i = 0; i < nodes; i++) {
+      adj.add(new HashSet<>());
+    }
+    for (int i = 0; i < nodes; i++) {
+      // ring edge keeps the mesh connected
+      adj.get(i).add((i + 1) % nodes);
+      adj.get((i + 1) % nodes).add(i);
+      while (adj.get(i).size() < degree) {
+        int j = random.nextInt(nodes);
+        if (j != i) {
+          adj.get(i).add(j);
+          adj.get(j).add(i);
+        }
+      }
+    }
+    List<List<Integer>> mesh = new ArrayList<>();
+    for (Set<Integer> n : adj) {
+      List<Integer> sorted = new ArrayList<>(n);
+      Collections.sort(sorted);
+      mesh.add(sorted);
+    }
+    return mesh;
+  }
+
+  private static final class FloodStats {
+    long processed;
+    long sent;
+    long reached;
+  }
+}
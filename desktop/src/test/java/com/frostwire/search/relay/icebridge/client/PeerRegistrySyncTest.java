@@ -130,13 +130,64 @@ class PeerRegistrySyncTest {
     directory.upsertVerified(other.ed25519PubRaw(), "10.0.0.5", 6888, 6889);
     sync = new PeerRegistrySync(client, directory, "127.0.0.1");
     sync.sync();
-    // push: /route + warm /send; pull: /lookup; import of that same peer: /route + warm /send.
+    // push: /route; pull: /lookup/delta + /route of that same peer; warm: /lookup + one /send.
     assertEquals(
         5,
         metrics.controlRequests(),
         "routing a verified peer must warm its rUDP session with a TELEMETRY ping");
   }
 
+  @Test
+  void secondSyncOnlyPullsChangedPeers() throws Exception {
+    IdentityKeys peer = IdentityKeys.generate(0);
+    registry.register(
+        new com.frostwire.search.relay.icebridge.peer.PeerRecord(
+            peer.ed25519PubRaw(),
+            "10.0.0.9",
+            6889,
+            IceBridgeConfig.Role.BOTH,
+            System.currentTimeMillis()));
+    sync = new PeerRegistrySync(client, directory, "127.0.0.1");
+    sync.sync();
+    assertTrue(directory.get(peer.ed25519PubRaw()).isPresent());
+
+    long before = metrics.controlRequests();
+    sync.sync();
+    // push of the imported peer: /route; pull: one empty /lookup/delta; warm: /lookup + /send.
+    assertEquals(
+        4,
+        metrics.controlRequests() - before,
+        "an unchanged registry must not be re-imported, but its freshest peer is still warmed");
+    assertTrue(registry.deltaReads() >= 2);
+  }
+
+  @Test
+  void warmingIsCappedPerCycle() throws Exception {
+    int peers = PeerRegistrySync.MAX_WARMS_PER_CYCLE + 8;
+    for (int i = 0; i < peers; i++) {
+      registry.register(
+          new com.frostwire.search.relay.icebridge.peer.PeerRecord(
+              IdentityKeys.generate(0).ed25519PubRaw(),
+              "10.0.1." + (i + 1),
+              6889,
+              IceBridgeConfig.Role.BOTH,
+              System.currentTimeMillis()));
+    }
+    sync = new PeerRegistrySync(client, directory, "127.0.0.1");
+    sync.sync();
+    // pull: /lookup/delta + one /route per peer; warm: /lookup + MAX_WARMS_PER_CYCLE /send.
+    assertEquals(
+        1 + peers + 1 + PeerRegistrySync.MAX_WARMS_PER_CYCLE,
+        metrics.controlRequests());
+
+    long before = metrics.controlRequests();
+    sync.sync();
+    // push: one /route per imported peer; pull: empty /lookup/delta; warm: the same cap.
+    assertEquals(
+        peers + 1 + 1 + PeerRegistrySync.MAX_WARMS_PER_CYCLE,
+        metrics.controlRequests() - before);
+  }
+
   private static int freePort() throws IOException {
     try (ServerSocket s = new ServerSocket(0)) {
       return s.getLocalPort();
@@ -12,7 +12,9 @@ import com.frostwire.search.relay.icebridge.IceBridgeAuth;
 import com.frostwire.search.relay.icebridge.IceBridgeConfig;
 import com.frostwire.search.relay.icebridge.IceBridgeMetrics;
 import com.frostwire.search.relay.icebridge.IceBridgeTokens;
+import com.frostwire.search.relay.icebridge.peer.PeerRecord;
 import com.frostwire.search.relay.icebridge.peer.PeerRegistry;
+import com.frostwire.search.relay.icebridge.udp.RudpServer;
 import com.frostwire.search.relay.icebridge.udp.RudpSessionManager;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
@@ -186,6 +188,53 @@ class ControlServerTest {
         assertEquals("queued", body.data);
     }
 
+    @Test
+    void sendToAnUnreachableTargetIsAnError() throws Exception {
+        SendRequest req = new SendRequest();
+        req.targetPub = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(IdentityKeys.generate(0).ed25519PubRaw());
+        req.payload = Base64.getUrlEncoder().withoutPadding().encodeToString("query".getBytes(StandardCharsets.UTF_8));
+
+        HttpResponse<String> response = post("/send", req);
+        assertEquals(400, response.statusCode());
+        ApiResponse<?> body = GSON.fromJson(response.body(), ApiResponse.class);
+        assertFalse(body.ok);
+        assertNull(body.retryAfterMs);
+    }
+
+    @Test
+    void sendToAFullClientQueueAnswersRetryAfter() throws Exception {
+        IceBridgeConfig rudpConfig = IceBridgeConfig.newBuilder()
+                .rudpPort(freePort())
+                .controlHttpPort(freePort())
+                .role(IceBridgeConfig.Role.BOTH)
+                .build();
+        RudpServer rudp = new RudpServer(rudpConfig, rudpSessionManager);
+        rudp.start();
+        try {
+            // A USE_REMOTE client registered at this node's own rUDP endpoint.
+            byte[] clientPub = IdentityKeys.generate(0).ed25519PubRaw();
+            registry.register(new PeerRecord(clientPub, "127.0.0.1", rudp.port(),
+                    IceBridgeConfig.Role.CLIENT, System.currentTimeMillis()));
+            SendRequest req = new SendRequest();
+            req.targetPub = Base64.getUrlEncoder().withoutPadding().encodeToString(clientPub);
+            req.payload = Base64.getUrlEncoder().withoutPadding().encodeToString("result".getBytes(StandardCharsets.UTF_8));
+
+            HttpResponse<String> response = post("/send", req);
+            while (response.statusCode() == 200) {
+                response = post("/send", req);
+            }
+            assertEquals(503, response.statusCode(), response.body());
+            assertEquals("1", response.headers().firstValue("Retry-After").orElse(null));
+            ApiResponse<?> body = GSON.fromJson(response.body(), ApiResponse.class);
+            assertFalse(body.ok);
+            assertEquals(1000L, body.retryAfterMs.longValue());
+            assertEquals(512, inboundQueue.size(), "the client's queue is full, not replaced");
+        } finally {
+            rudp.close();
+        }
+    }
+
     private String signRegister(RegisterRequest req) throws Exception {
         Signature signer = Signature.getInstance("Ed25519");
         signer.initSign(identity.ed25519().getPrivate());
@@ -0,0 +1,158 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.frostwire.search.relay.icebridge.control;
+
+import com.frostwire.search.relay.icebridge.MeshEnvelope;
+import com.frostwire.search.relay.icebridge.MeshProtocolId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InboundMessageQueueTest {
+
+    private static final byte[] SOURCE = pub(9);
+
+    @Test
+    void fullQueueRefusesNewMessagesAndKeepsQueuedOnes() {
+        InboundMessageQueue queue = new InboundMessageQueue(3);
+        byte[] client = pub(1);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(queue.offerForTarget(client, SOURCE, search(i)));
+        }
+        assertFalse(queue.offerForTarget(client, SOURCE, search(3)));
+        assertEquals(1, queue.droppedCount(MeshProtocolId.SEARCH));
+        assertEquals(0, queue.droppedCount(MeshProtocolId.CHAT));
+
+        List<InboundMessage> drained = queue.pollForTarget(client, 10);
+        assertEquals(3, drained.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, drained.get(i).payload()[0], "oldest messages are kept, in order");
+        }
+
+        assertTrue(queue.offerForTarget(client, SOURCE, search(4)), "room again after poll");
+        assertEquals(4, queue.deliveredCount(MeshProtocolId.SEARCH));
+    }
+
+    @Test
+    void clientsHaveSeparateBounds() {
+        InboundMessageQueue queue = new InboundMessageQueue(1);
+        byte[] a = pub(1);
+        byte[] b = pub(2);
+
+        assertTrue(queue.offerForTarget(a, SOURCE, search(1)));
+        assertFalse(queue.offerForTarget(a, SOURCE, search(2)));
+        assertTrue(queue.offerForTarget(b, SOURCE, MeshEnvelope.wrap(MeshProtocolId.CHAT, new byte[]{7})));
+
+        assertEquals(1, queue.pollForTarget(a, 10).size());
+        List<InboundMessage> forB = queue.pollForTarget(b, 10);
+        assertEquals(1, forB.size());
+        assertEquals(MeshProtocolId.CHAT, forB.get(0).protocolId());
+        assertEquals(0, queue.poll(10).size(), "nothing leaks into the shared queue");
+    }
+
+    @Test
+    void pollHonoursMaxAndWrapsAround() {
+        InboundMessageQueue queue = new InboundMessageQueue(4);
+        byte[] client = pub(1);
+        int next = 0;
+        int expected = 0;
+        for (int round = 0; round < 10; round++) {
+            while (queue.offerForTarget(client, SOURCE, search(next))) {
+                next++;
+            }
+            for (InboundMessage m : queue.pollForTarget(client, 3)) {
+                assertEquals((byte) expected++, m.payload()[0]);
+            }
+        }
+        assertEquals(next - expected, queue.size());
+    }
+
+    @Test
+    void evictUnregisteredDropsClientQueues() {
+        InboundMessageQueue queue = new InboundMessageQueue();
+        byte[] kept = pub(1);
+        byte[] gone = pub(2);
+        queue.offerForTarget(kept, SOURCE, search(1));
+        queue.offerForTarget(gone, SOURCE, search(2));
+        queue.onMessage(SOURCE, search(3));
+
+        int removed = queue.evictUnregistered(p -> Arrays.equals(p, kept));
+
+        assertEquals(1, removed);
+        assertEquals(2, queue.queueCount(), "kept client and shared queue remain");
+        assertEquals(0, queue.pollForTarget(gone, 10).size());
+        assertEquals(1, queue.pollForTarget(kept, 10).size());
+        assertEquals(1, queue.poll(10).size());
+    }
+
+    @Test
+    void concurrentProducersNeverExceedCapacityOrLoseAcceptedMessages() throws Exception {
+        int capacity = 64;
+        int producers = 4;
+        int perProducer = 2000;
+        InboundMessageQueue queue = new InboundMessageQueue(capacity);
+        byte[] client = pub(1);
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    byte[] payload = {(byte) producer, (byte) (i >>> 8), (byte) i};
+                    if (queue.offerForTarget(client, SOURCE, payload)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        Set<String> seen = new HashSet<>();
+        start.countDown();
+        boolean running = true;
+        while (running) {
+            running = threads.stream().anyMatch(Thread::isAlive);
+            assertTrue(queue.size() <= capacity);
+            for (InboundMessage m : queue.pollForTarget(client, 16)) {
+                assertTrue(seen.add(Arrays.toString(m.payload())), "no duplicates");
+            }
+        }
+        for (InboundMessage m : queue.pollForTarget(client, capacity)) {
+            assertTrue(seen.add(Arrays.toString(m.payload())), "no duplicates");
+        }
+
+        assertEquals(accepted.get(), seen.size());
+        assertEquals(producers * perProducer,
+                queue.deliveredCount(MeshProtocolId.SEARCH) + queue.droppedCount(MeshProtocolId.SEARCH));
+    }
+
+    private static byte[] search(int i) {
+        return MeshEnvelope.wrap(MeshProtocolId.SEARCH, new byte[]{(byte) i});
+    }
+
+    private static byte[] pub(int seed) {
+        byte[] pub = new byte[32];
+        Arrays.fill(pub, (byte) seed);
+        return pub;
+    }
+}
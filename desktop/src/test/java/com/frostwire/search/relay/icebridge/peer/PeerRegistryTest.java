@@ -107,6 +107,122 @@ class PeerRegistryTest {
         assertEquals("1.0.0.10", registry.lookup(pubA).host());
     }
 
+    @Test
+    void lookupForwardersReturnsFreshestFirst() {
+        PeerRegistry registry = new RegistryBuilder().build();
+        long now = System.currentTimeMillis();
+        registry.register(new PeerRecord(pub(1), "1.0.0.1", 6888, IceBridgeConfig.Role.FORWARDER, now - 3000));
+        registry.register(new PeerRecord(pub(2), "1.0.0.2", 6888, IceBridgeConfig.Role.BOTH, now - 1000));
+        registry.register(new PeerRecord(pub(3), "1.0.0.3", 6888, IceBridgeConfig.Role.CLIENT, now));
+        registry.register(new PeerRecord(pub(4), "1.0.0.4", 6888, IceBridgeConfig.Role.FORWARDER, now - 2000));
+
+        List<PeerRecord> top = registry.lookupForwarders(2);
+        assertEquals(2, top.size());
+        assertEquals(2, top.get(0).ed25519Pub()[0]);
+        assertEquals(4, top.get(1).ed25519Pub()[0]);
+
+        // a refresh moves the peer to the front of the index
+        registry.register(new PeerRecord(pub(1), "1.0.0.1", 6888, IceBridgeConfig.Role.FORWARDER, now + 1000));
+        assertEquals(1, registry.lookupForwarders(1).get(0).ed25519Pub()[0]);
+        assertEquals(3, registry.lookupForwarders(10).size());
+        assertEquals(4, registry.lookupPeers(10, false).size());
+    }
+
+    @Test
+    void changesSinceReturnsOnlyChangedRecords() {
+        PeerRegistry registry = new RegistryBuilder().build();
+        long now = System.currentTimeMillis();
+        registry.register(new PeerRecord(pub(1), "1.0.0.1", 6888, IceBridgeConfig.Role.FORWARDER, now));
+        registry.register(new PeerRecord(pub(2), "1.0.0.2", 6888, IceBridgeConfig.Role.FORWARDER, now));
+
+        PeerRegistry.Delta full = registry.changesSince(0, 0, 100);
+        assertTrue(full.reset());
+        assertFalse(full.more());
+        assertEquals(2, full.records().size());
+        assertEquals(registry.epoch(), full.epoch());
+
+        PeerRegistry.Delta none = registry.changesSince(full.epoch(), full.version(), 100);
+        assertFalse(none.reset());
+        assertTrue(none.records().isEmpty());
+        assertEquals(full.version(), none.version());
+
+        registry.register(new PeerRecord(pub(2), "2.0.0.2", 6889, IceBridgeConfig.Role.FORWARDER, now + 1));
+        PeerRegistry.Delta moved = registry.changesSince(none.epoch(), none.version(), 100);
+        assertEquals(1, moved.records().size());
+        assertEquals("2.0.0.2", moved.records().get(0).host());
+    }
+
+    @Test
+    void lastSeenOnlyRefreshIsNotRepublished() {
+        PeerRegistry registry = new RegistryBuilder().build();
+        long now = System.currentTimeMillis();
+        registry.register(new PeerRecord(pub(1), "1.0.0.1", 6888, IceBridgeConfig.Role.FORWARDER, now));
+        long version = registry.version();
+
+        registry.register(new PeerRecord(pub(1), "1.0.0.1", 6888, IceBridgeConfig.Role.FORWARDER, now + 1000));
+        assertEquals(version, registry.version());
+        assertEquals(now + 1000, registry.lookup(pub(1)).lastSeenMs());
+
+        registry.register(new PeerRecord(pub(1), "1.0.0.1", 6888, IceBridgeConfig.Role.FORWARDER,
+                now + PeerRegistry.REFRESH_REPUBLISH_MS));
+        assertEquals(version + 1, registry.version());
+    }
+
+    @Test
+    void foreignEpochCursorRestartsFromZero() {
+        PeerRegistry registry = new RegistryBuilder().build();
+        registry.register(new PeerRecord(pub(1), "1.0.0.1", 6888, IceBridgeConfig.Role.FORWARDER,
+                System.currentTimeMillis()));
+
+        PeerRegistry.Delta delta = registry.changesSince(registry.epoch() + 1, registry.version(), 100);
+        assertTrue(delta.reset());
+        assertEquals(1, delta.records().size());
+    }
+
+    @Test
+    void changesSincePagesThroughLargeBacklog() {
+        PeerRegistry registry = new RegistryBuilder().build();
+        long now = System.currentTimeMillis();
+        for (int i = 1; i <= 25; i++) {
+            registry.register(new PeerRecord(pub(i), "1.0.0." + i, 6888, IceBridgeConfig.Role.BOTH, now));
+        }
+        long epoch = 0;
+        long version = 0;
+        int pages = 0;
+        int seen = 0;
+        PeerRegistry.Delta delta;
+        do {
+            delta = registry.changesSince(epoch, version, 10);
+            epoch = delta.epoch();
+            version = delta.version();
+            seen += delta.records().size();
+            pages++;
+        } while (delta.more());
+        assertEquals(25, seen);
+        assertEquals(3, pages);
+        assertEquals(registry.version(), version);
+    }
+
+    @Test
+    void evictedPeersLeaveTheIndexes() {
+        PeerRegistry registry = new RegistryBuilder().build();
+        long now = System.currentTimeMillis();
+        registry.register(new PeerRecord(pub(1), "1.0.0.1", 6888, IceBridgeConfig.Role.FORWARDER, now - 10_000));
+        registry.register(new PeerRecord(pub(2), "1.0.0.2", 6888, IceBridgeConfig.Role.FORWARDER, now));
+
+        assertEquals(1, registry.evictStale(5_000));
+        List<PeerRecord> left = registry.lookupForwarders(10);
+        assertEquals(1, left.size());
+        assertEquals(2, left.get(0).ed25519Pub()[0]);
+        assertEquals(1, registry.changesSince(0, 0, 10).records().size());
+    }
+
+    private static byte[] pub(int id) {
+        byte[] pub = new byte[32];
+        pub[0] = (byte) id;
+        return pub;
+    }
+
     private static final class RegistryBuilder {
         private int maxPeers = 100;
         private long peerTtlSec = 120;
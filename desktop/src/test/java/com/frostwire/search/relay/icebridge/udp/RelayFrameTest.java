@@ -9,6 +9,7 @@ package com.frostwire.search.relay.icebridge.udp;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -40,6 +41,36 @@ class RelayFrameTest {
         assertArrayEquals(app, frame.appPayload());
     }
 
+    @Test
+    void messageIdSurvivesTheHop() {
+        byte[] source = new byte[32];
+        byte[] target = new byte[32];
+        target[0] = 2;
+        byte[] app = "hello-mesh".getBytes();
+        long id = 0x8123456789abcdefL;
+        byte[] wire = RelayFrame.encodeV2(source, target, 2, id, app);
+        assertEquals(RelayFrame.HEADER_LENGTH_V2 + app.length, wire.length);
+        RelayFrame frame = RelayFrame.decodeV2(wire);
+        assertTrue(frame.hasMessageId());
+        assertEquals(id, frame.messageId());
+        assertArrayEquals(target, frame.targetPub());
+        assertEquals(2, frame.hopTtl());
+        assertArrayEquals(app, frame.appPayload());
+    }
+
+    @Test
+    void plainRelayKeepsTheVersionOneLayout() {
+        byte[] source = new byte[32];
+        byte[] target = new byte[32];
+        byte[] app = "hello-mesh".getBytes();
+        byte[] wire = RelayFrame.encode(source, target, 2, app);
+        // what nodes that predate RELAY_V2 send and expect
+        assertEquals(32 + 32 + 1 + app.length, wire.length);
+        assertFalse(RelayFrame.decode(wire).hasMessageId());
+        assertThrows(IllegalArgumentException.class,
+                () -> RelayFrame.encodeV2(source, target, 2, 1L, new byte[RelayFrame.MAX_APP_PAYLOAD_V2 + 1]));
+    }
+
     @Test
     void encodeRejectsOversizedAppPayload() {
         byte[] source = new byte[32];
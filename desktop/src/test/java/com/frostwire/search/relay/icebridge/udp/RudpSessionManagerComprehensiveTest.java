@@ -9,11 +9,13 @@ package com.frostwire.search.relay.icebridge.udp;
 
 import com.frostwire.search.relay.IdentityKeys;
 import com.frostwire.search.relay.icebridge.IceBridgeConfig;
+import com.frostwire.search.relay.icebridge.IceBridgeConstants;
 import com.frostwire.search.relay.icebridge.IceBridgeMetrics;
 import com.frostwire.search.relay.icebridge.peer.PeerRecord;
 import com.frostwire.search.relay.icebridge.peer.PeerRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.jupiter.api.Test;
 
 import java.net.InetSocketAddress;
@@ -464,6 +466,94 @@ class RudpSessionManagerComprehensiveTest {
         forwarder.shutdown();
     }
 
+    @Test
+    void relayDedupeKeepsTheSameBytesFromAnotherSource() throws Exception {
+        List<byte[]> delivered = new CopyOnWriteArrayList<>();
+        RudpSessionManager mgr = new RudpSessionManager(
+                local, registry, metrics, (pub, payload) -> delivered.add(payload));
+        IdentityKeys other = IdentityKeys.generate(0);
+        byte[] app = "same query".getBytes();
+
+        long cidA = 5151L;
+        InetSocketAddress a = new InetSocketAddress("127.0.0.1", 62063);
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.HELLO, cidA, 0, 0,
+                        RudpAuth.createHelloPayload(remote, cidA)),
+                a, new InetSocketAddress("127.0.0.1", 62065)));
+        long cidB = 5252L;
+        InetSocketAddress b = new InetSocketAddress("127.0.0.1", 62064);
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.HELLO, cidB, 0, 0,
+                        RudpAuth.createHelloPayload(other, cidB)),
+                b, new InetSocketAddress("127.0.0.1", 62065)));
+
+        byte[] fromA = RelayFrame.encodeV2(remote.ed25519PubRaw(), local.ed25519PubRaw(), 1, 11L, app);
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.RELAY_V2, cidA, 1, 0, fromA),
+                a, new InetSocketAddress("127.0.0.1", 62065)));
+        // another source sending the same bytes to the same target is not a duplicate
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.RELAY_V2, cidB, 1, 0,
+                        RelayFrame.encodeV2(other.ed25519PubRaw(), local.ed25519PubRaw(), 1, 22L, app)),
+                b, new InetSocketAddress("127.0.0.1", 62065)));
+        // a copy of the first message over another path is
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.RELAY_V2, cidB, 2, 0,
+                        RelayFrame.encodeV2(other.ed25519PubRaw(), local.ed25519PubRaw(), 0, 11L, app)),
+                b, new InetSocketAddress("127.0.0.1", 62065)));
+
+        assertEquals(2, delivered.size());
+        assertEquals(1, metrics.relayDuplicatesDropped());
+        mgr.shutdown();
+    }
+
+    @Test
+    void relayV2OnlyGoesToPeersThatAdvertiseIt() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RudpSessionManager mgr = new RudpSessionManager(
+                local, registry, metrics, (pub, payload) -> {});
+        mgr.setChannel(channel);
+        IdentityKeys current = IdentityKeys.generate(0);
+        InetSocketAddress self = new InetSocketAddress("127.0.0.1", 62068);
+
+        // a node that predates RELAY_V2 sends 0 in its HELLO's ackThrough
+        long oldCid = 6161L;
+        InetSocketAddress old = new InetSocketAddress("127.0.0.1", 62066);
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.HELLO, oldCid, 0, 0,
+                        RudpAuth.createHelloPayload(remote, oldCid)),
+                old, self));
+        long newCid = 6262L;
+        InetSocketAddress peer = new InetSocketAddress("127.0.0.1", 62067);
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.HELLO, newCid, 0, IceBridgeConstants.PROTOCOL_VERSION,
+                        RudpAuth.createHelloPayload(current, newCid)),
+                peer, self));
+
+        byte[] target = IdentityKeys.generate(0).ed25519PubRaw();
+        mgr.sendRelay(old, target, "query".getBytes(), 2);
+        mgr.sendRelay(peer, target, "query".getBytes(), 2);
+
+        List<RudpPacketEnvelope> sent = new java.util.ArrayList<>();
+        for (Object o; (o = channel.readOutbound()) != null; ) {
+            sent.add((RudpPacketEnvelope) o);
+        }
+        // our HELLO_ACKs advertise the version too
+        assertTrue(sent.stream().anyMatch(e -> e.packet().type() == RudpPacket.Type.HELLO_ACK
+                && e.packet().ackThrough() == IceBridgeConstants.PROTOCOL_VERSION));
+        RudpPacketEnvelope toOld = sent.stream()
+                .filter(e -> old.equals(e.recipient()) && e.packet().type() != RudpPacket.Type.HELLO_ACK)
+                .findFirst().orElseThrow();
+        assertEquals(RudpPacket.Type.RELAY, toOld.packet().type());
+        assertFalse(RelayFrame.decode(toOld.packet().payload()).hasMessageId());
+        RudpPacketEnvelope toPeer = sent.stream()
+                .filter(e -> peer.equals(e.recipient()) && e.packet().type() != RudpPacket.Type.HELLO_ACK)
+                .findFirst().orElseThrow();
+        assertEquals(RudpPacket.Type.RELAY_V2, toPeer.packet().type());
+        assertTrue(RelayFrame.decodeV2(toPeer.packet().payload()).hasMessageId());
+        mgr.shutdown();
+    }
+
     // ---- RELAY_RESPONSE delivery ----
 
     @Test
@@ -521,6 +611,98 @@ class RudpSessionManagerComprehensiveTest {
         mgr.shutdown();
     }
 
+    // ---- RELAY flow control ----
+
+    @Test
+    void relayBusyBacksOffTheHopAndIsPassedUpstream() throws Exception {
+        RudpSessionManager mgr = new RudpSessionManager(
+                local, registry, metrics, (pub, payload) -> {});
+        IdentityKeys target = IdentityKeys.generate(0);
+        IdentityKeys upstream = IdentityKeys.generate(0);
+        InetSocketAddress self = new InetSocketAddress("127.0.0.1", 62082);
+
+        // The only route to the target is the downstream forwarder.
+        long downCid = 8080L;
+        InetSocketAddress down = new InetSocketAddress("127.0.0.1", 62080);
+        registry.register(new PeerRecord(remote.ed25519PubRaw(),
+                "127.0.0.1", 62080, IceBridgeConfig.Role.FORWARDER,
+                System.currentTimeMillis()));
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.HELLO, downCid, 0, 0,
+                        RudpAuth.createHelloPayload(remote, downCid)),
+                down, self));
+        long upCid = 8181L;
+        InetSocketAddress up = new InetSocketAddress("127.0.0.1", 62081);
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.HELLO, upCid, 0, 0,
+                        RudpAuth.createHelloPayload(upstream, upCid)),
+                up, self));
+
+        // A RELAY_BUSY for a target never relayed through that hop is ignored.
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.RELAY_BUSY, downCid, 0, 0,
+                        relayBusy(target.ed25519PubRaw(), 2000)),
+                down, self));
+        assertEquals(0, mgr.relayBackoffRemainingMs(down, target.ed25519PubRaw()));
+
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.RELAY, upCid, 1, 0,
+                        RelayFrame.encode(upstream.ed25519PubRaw(),
+                                target.ed25519PubRaw(), 2, "first".getBytes())),
+                up, self));
+
+        // Downstream hop reports the target's queue as full.
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.RELAY_BUSY, downCid, 0, 0,
+                        relayBusy(target.ed25519PubRaw(), 200)),
+                down, self));
+        long remaining = mgr.relayBackoffRemainingMs(down, target.ed25519PubRaw());
+        assertTrue(remaining > 0 && remaining <= 200, "backoff " + remaining);
+        // only that hop's route to that target backs off
+        assertEquals(0, mgr.relayBackoffRemainingMs(up, target.ed25519PubRaw()));
+        assertEquals(0, mgr.relayBackoffRemainingMs(down, upstream.ed25519PubRaw()));
+
+        // With its only route backed off, a RELAY for the target is refused back.
+        byte[] second = RelayFrame.encode(upstream.ed25519PubRaw(),
+                target.ed25519PubRaw(), 2, "second".getBytes());
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.RELAY, upCid, 2, 0, second),
+                up, self));
+        assertEquals(1, metrics.relayBackoffDrops());
+        assertEquals(1, metrics.relayBusySignals());
+
+        // A local send to the target is refused with the hop's back-off.
+        long retryAfter = mgr.deliver(target.ed25519PubRaw(), "third".getBytes());
+        assertTrue(retryAfter > 0 && retryAfter <= 200, "retry after " + retryAfter);
+        assertEquals(2, metrics.relayBackoffDrops());
+
+        // The refused frame was not recorded as seen, its retry passes once the back-off ends.
+        Thread.sleep(300);
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.RELAY, upCid, 3, 0, second),
+                up, self));
+        assertEquals(0, metrics.relayDuplicatesDropped());
+        assertEquals(2, metrics.relayBackoffDrops());
+        assertEquals(RudpSessionManager.DELIVERED, mgr.deliver(target.ed25519PubRaw(), "third".getBytes()));
+        mgr.shutdown();
+    }
+
+    @Test
+    void relayBusyRejectedWithoutSession() throws Exception {
+        RudpSessionManager mgr = new RudpSessionManager(
+                local, registry, metrics, (pub, payload) -> {});
+        InetSocketAddress sender = new InetSocketAddress("127.0.0.1", 62083);
+
+        mgr.onPacket(new RudpPacketEnvelope(
+                new RudpPacket(RudpPacket.Type.RELAY_BUSY, 0, 0, 0,
+                        relayBusy(remote.ed25519PubRaw(), 200)),
+                sender,
+                new InetSocketAddress("127.0.0.1", 62084)));
+
+        assertEquals(0, mgr.relayBackoffRemainingMs(sender, remote.ed25519PubRaw()));
+        mgr.shutdown();
+    }
+
     @Test
     void helloAckSetsInitiatorRemotePub() throws Exception {
         List<byte[]> delivered = new CopyOnWriteArrayList<>();
@@ -571,6 +753,14 @@ class RudpSessionManagerComprehensiveTest {
 
     // ---- Helpers ----
 
+    private static byte[] relayBusy(byte[] targetPub, int retryAfterMs) {
+        byte[] busy = new byte[34];
+        System.arraycopy(targetPub, 0, busy, 0, 32);
+        busy[32] = (byte) (retryAfterMs >>> 8);
+        busy[33] = (byte) retryAfterMs;
+        return busy;
+    }
+
     private static void writeIntBE(byte[] buf, int offset, int value) {
         buf[offset] = (byte) (value >>> 24);
         buf[offset + 1] = (byte) (value >>> 16);
@@ -0,0 +1,136 @@
+/*
+ *     Created by Angel Leon (@gubatron)
+ *     Copyright (c) 2011-2026, FrostWire(R). All rights reserved.
+ *
+ *     Licensed under GPL v3. See LICENSE file.
+ */
+
+package com.limegroup.gnutella.gui;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StartupTaskGraphTest {
+
+    @Test
+    void callerTasksRunInDeclarationOrderOnCallingThread() {
+        List<String> order = new CopyOnWriteArrayList<>();
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        StartupTaskGraph graph = new StartupTaskGraph("test", 2);
+        graph.onCaller("a", () -> { order.add("a"); threads.add(Thread.currentThread()); })
+                .onCaller("b", () -> { order.add("b"); threads.add(Thread.currentThread()); }, "a")
+                .onCaller("c", () -> { order.add("c"); threads.add(Thread.currentThread()); });
+        graph.run();
+
+        assertEquals(List.of("a", "b", "c"), order);
+        for (Thread t : threads) {
+            assertEquals(caller, t);
+        }
+    }
+
+    @Test
+    void backgroundTaskOverlapsWithCallerWork() throws Exception {
+        CountDownLatch backgroundStarted = new CountDownLatch(1);
+        CountDownLatch callerDone = new CountDownLatch(1);
+        List<Thread> backgroundThread = new CopyOnWriteArrayList<>();
+        StartupTaskGraph graph = new StartupTaskGraph("test", 2);
+        graph.onCaller("context", () -> {})
+                .inBackground("session", () -> {
+                    backgroundThread.add(Thread.currentThread());
+                    backgroundStarted.countDown();
+                    await(callerDone);
+                }, "context")
+                .onCaller("ui", () -> {
+                    // the background task must be running while the caller works
+                    assertTrue(await(backgroundStarted));
+                    callerDone.countDown();
+                }, "context")
+                .onCaller("core", () -> {}, "session", "ui");
+        graph.run();
+
+        assertNotEquals(Thread.currentThread(), backgroundThread.get(0));
+        assertTrue(graph.awaitBackground(5000));
+        assertTrue(graph.durationMillis("session") >= 0);
+    }
+
+    @Test
+    void callerWaitsForBackgroundDependency() {
+        List<String> order = new CopyOnWriteArrayList<>();
+        StartupTaskGraph graph = new StartupTaskGraph("test", 2);
+        graph.inBackground("slow", () -> {
+                    sleep(100);
+                    order.add("slow");
+                })
+                .onCaller("after", () -> order.add("after"), "slow");
+        graph.run();
+
+        assertEquals(List.of("slow", "after"), order);
+    }
+
+    @Test
+    void failedBackgroundDependencyFailsCaller() {
+        StartupTaskGraph graph = new StartupTaskGraph("test", 1);
+        graph.inBackground("broken", () -> {
+                    throw new IllegalStateException("boom");
+                })
+                .onCaller("dependent", () -> {}, "broken");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, graph::run);
+        assertEquals("boom", e.getMessage());
+        assertTrue(graph.toJson().contains("\"skipped\""));
+    }
+
+    @Test
+    void undeclaredDependencyIsRejected() {
+        StartupTaskGraph graph = new StartupTaskGraph("test", 1);
+        assertThrows(IllegalArgumentException.class, () -> graph.onCaller("a", () -> {}, "missing"));
+        graph.onCaller("b", () -> {});
+        assertThrows(IllegalArgumentException.class, () -> graph.onCaller("b", () -> {}));
+    }
+
+    @Test
+    void profileReportsTasksAndMarks() {
+        StartupTaskGraph graph = new StartupTaskGraph("profile-test", 1);
+        graph.onCaller("window", () -> graph.mark("first-window"))
+                .inBackground("late", () -> sleep(20), "window");
+        graph.run();
+        assertTrue(graph.awaitBackground(5000));
+
+        String json = graph.toJson();
+        assertTrue(json.contains("\"graph\": \"profile-test\""));
+        assertTrue(json.contains("\"first-window\""));
+        assertTrue(json.contains("\"name\": \"late\""));
+        assertTrue(json.contains("\"status\": \"ok\""));
+        assertFalse(json.contains("\"totalMs\": -1"));
+        assertTrue(graph.markMillis("first-window") >= 0);
+        assertEquals(-1, graph.markMillis("never"));
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}